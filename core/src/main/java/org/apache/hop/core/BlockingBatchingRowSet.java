@@ -154,6 +154,26 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<IRo
     return row;
   }
 
+  /** Only hands out the rows left in the current output batch, never waits for a new batch. */
+  @Override
+  public int getRowsImmediate(Object[][] rows, int offset, int max) {
+    int nrGot = 0;
+    while (outputBuffer != null && nrGot < max) {
+      Object[] row = outputBuffer[getIndex];
+      if (row == null) {
+        // End of a partial batch, let getRow() handle the rest
+        break;
+      }
+      rows[offset + nrGot++] = row;
+      outputBuffer[getIndex++] = null; // prevent any hold-up to GC
+      if (getIndex == size) {
+        putArray.offer(outputBuffer);
+        outputBuffer = null;
+      }
+    }
+    return nrGot;
+  }
+
   @Override
   public int size() {
     // does BlockingQueue.size() grab a lock? If so, frequent call to this method
@@ -19,6 +19,9 @@ package org.apache.hop.core;
 
 import org.apache.hop.core.row.IRowMeta;
 
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -115,6 +118,13 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<IRowSet>, I
     }
   }
 
+  @Override
+  public int getRowsImmediate(Object[][] rows, int offset, int max) {
+    // Take all the available rows under a single lock
+    //
+    return queArray.drainTo(new RowArrayCollection(rows, offset), max);
+  }
+
   @Override
   public int size() {
     return queArray.size();
@@ -125,4 +135,32 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<IRowSet>, I
     queArray.clear();
     done.set(false);
   }
+
+  /** Collects drained rows straight into an array. */
+  private static class RowArrayCollection extends AbstractCollection<Object[]> {
+    private final Object[][] rows;
+    private final int offset;
+    private int size;
+
+    RowArrayCollection(Object[][] rows, int offset) {
+      this.rows = rows;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean add(Object[] row) {
+      rows[offset + size++] = row;
+      return true;
+    }
+
+    @Override
+    public Iterator<Object[]> iterator() {
+      return Arrays.asList(rows).subList(offset, offset + size).iterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
 }
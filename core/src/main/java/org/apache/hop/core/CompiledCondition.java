@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.ValueMetaAndData;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.util.Utils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A condition compiled for rows with a given layout. The work {@link Condition#evaluate(IRowMeta,
+ * Object[])} does for every row is done once here:
+ *
+ * <p>- the positions of the fields are looked up
+ *
+ * <p>- regular expressions, LIKE patterns, IN lists and the strings of CONTAINS, STARTS WITH and
+ * ENDS WITH with a constant are prepared
+ *
+ * <p>- Integer and Number fields are compared on their primitive values
+ *
+ * <p>Atomic conditions which can't be compiled are evaluated by the condition itself, so the
+ * outcome is always the same as the one of {@link Condition#evaluate(IRowMeta, Object[])}.
+ */
+public class CompiledCondition {
+
+  /** A compiled part of a condition */
+  @FunctionalInterface
+  private interface IPredicate {
+    boolean test(Object[] r) throws HopValueException;
+  }
+
+  private final Condition condition;
+  private final IPredicate predicate;
+
+  private CompiledCondition(Condition condition, IPredicate predicate) {
+    this.condition = condition;
+    this.predicate = predicate;
+  }
+
+  /**
+   * Compile a condition.
+   *
+   * @param condition the condition to compile
+   * @param rowMeta the metadata of the rows the condition will be evaluated on
+   * @return the compiled condition
+   */
+  public static CompiledCondition compile(Condition condition, IRowMeta rowMeta) {
+    return new CompiledCondition(condition, compilePredicate(condition, rowMeta));
+  }
+
+  /**
+   * Evaluate the condition.
+   *
+   * @param r the row data, with the metadata the condition was compiled for
+   * @return true if the condition evaluates to true.
+   */
+  public boolean evaluate(Object[] r) {
+    try {
+      return predicate.test(r);
+    } catch (Exception e) {
+      throw new RuntimeException("Unexpected error evaluation condition [" + condition + "]", e);
+    }
+  }
+
+  private static IPredicate compilePredicate(Condition condition, IRowMeta rowMeta) {
+    if (condition.isAtomic()) {
+      return compileAtomic(condition, rowMeta);
+    }
+
+    List<Condition> children = condition.getChildren();
+    IPredicate first = compilePredicate(children.get(0), rowMeta);
+    IPredicate[] others = new IPredicate[children.size() - 1];
+    int[] operators = new int[others.length];
+    for (int i = 0; i < others.length; i++) {
+      others[i] = compilePredicate(children.get(i + 1), rowMeta);
+      operators[i] = children.get(i + 1).getOperator();
+    }
+
+    // Conditions are evaluated in order, without precedence, like Condition.evaluate() does
+    //
+    IPredicate composite =
+        r -> {
+          boolean retval = first.test(r);
+          for (int i = 0; i < others.length; i++) {
+            switch (operators[i]) {
+              case Condition.OPERATOR_OR:
+                retval = retval || others[i].test(r);
+                break;
+              case Condition.OPERATOR_AND:
+                retval = retval && others[i].test(r);
+                break;
+              case Condition.OPERATOR_OR_NOT:
+                retval = retval || !others[i].test(r);
+                break;
+              case Condition.OPERATOR_AND_NOT:
+                retval = retval && !others[i].test(r);
+                break;
+              case Condition.OPERATOR_XOR:
+                retval = retval ^ others[i].test(r);
+                break;
+              default:
+                break;
+            }
+          }
+          return retval;
+        };
+    return negate(condition, composite);
+  }
+
+  private static IPredicate compileAtomic(Condition condition, IRowMeta rowMeta) {
+    if (condition.getFunction() == Condition.FUNC_TRUE) {
+      boolean retval = !condition.isNegated();
+      return r -> retval;
+    }
+
+    String leftName = condition.getLeftValuename();
+    int left = Utils.isEmpty(leftName) ? -1 : rowMeta.indexOfValue(leftName);
+    if (left < 0) {
+      return r -> false; // no fields to evaluate
+    }
+    String rightName = condition.getRightValuename();
+    int right = Utils.isEmpty(rightName) ? -1 : rowMeta.indexOfValue(rightName);
+
+    IPredicate predicate;
+    try {
+      predicate = compileFunction(condition, rowMeta, left, right);
+    } catch (HopValueException | PatternSyntaxException e) {
+      // Let the condition report the problem for the rows it occurs on
+      //
+      predicate = null;
+    }
+    if (predicate == null) {
+      return r -> condition.evaluate(rowMeta, r);
+    }
+    return negate(condition, predicate);
+  }
+
+  /**
+   * @return the compiled function or null if it needs to be evaluated by the condition
+   */
+  private static IPredicate compileFunction(
+      Condition condition, IRowMeta rowMeta, int left, int right) throws HopValueException {
+    IValueMeta leftMeta = rowMeta.getValueMeta(left);
+    ValueMetaAndData rightExact = condition.getRightExact();
+    IValueMeta constantMeta = rightExact != null ? rightExact.getValueMeta() : null;
+    Object constant = rightExact != null ? rightExact.getValueData() : null;
+    IValueMeta rightMeta = constant == null && right >= 0 ? rowMeta.getValueMeta(right) : null;
+    int function = condition.getFunction();
+
+    switch (function) {
+      case Condition.FUNC_NULL:
+        return r -> leftMeta.isNull(r[left]);
+      case Condition.FUNC_NOT_NULL:
+        return r -> !leftMeta.isNull(r[left]);
+      case Condition.FUNC_EQUAL:
+      case Condition.FUNC_NOT_EQUAL:
+      case Condition.FUNC_SMALLER:
+      case Condition.FUNC_SMALLER_EQUAL:
+      case Condition.FUNC_LARGER:
+      case Condition.FUNC_LARGER_EQUAL:
+        if (constant != null) {
+          return compileComparison(function, leftMeta, left, constantMeta, constant, -1);
+        }
+        if (rightMeta != null) {
+          return compileComparison(function, leftMeta, left, rightMeta, null, right);
+        }
+        return null;
+      case Condition.FUNC_REGEXP:
+      case Condition.FUNC_LIKE:
+        boolean like = function == Condition.FUNC_LIKE;
+        String expression = constant != null ? constantMeta.getCompatibleString(constant) : null;
+        if (expression != null) {
+          Pattern pattern = Pattern.compile(toRegex(expression, like));
+          return r -> {
+            Object field = r[left];
+            if (leftMeta.isNull(field)) {
+              return false;
+            }
+            return pattern.matcher(leftMeta.getCompatibleString(field)).matches();
+          };
+        }
+        if (rightMeta != null) {
+          PatternCache patterns = new PatternCache();
+          return r -> {
+            Object field = r[left];
+            Object field2 = r[right];
+            if (leftMeta.isNull(field) || field2 == null) {
+              return false;
+            }
+            return patterns
+                .get(toRegex(rightMeta.getCompatibleString(field2), like))
+                .matcher(leftMeta.getCompatibleString(field))
+                .matches();
+          };
+        }
+        return null;
+      case Condition.FUNC_IN_LIST:
+        if (constant == null) {
+          return null;
+        }
+        Set<String> inList = new HashSet<>();
+        for (String value : Const.splitString(constantMeta.getString(constant), ';', true)) {
+          if (value == null) {
+            return null;
+          }
+          inList.add(value.replace("\\", ""));
+        }
+        return r -> {
+          String string = leftMeta.getCompatibleString(r[left]);
+          return string != null && inList.contains(string);
+        };
+      case Condition.FUNC_CONTAINS:
+      case Condition.FUNC_STARTS_WITH:
+      case Condition.FUNC_ENDS_WITH:
+        String search = constant != null ? constantMeta.getCompatibleString(constant) : null;
+        if (search == null) {
+          return null;
+        }
+        if (function == Condition.FUNC_CONTAINS) {
+          return r -> {
+            String string = leftMeta.getCompatibleString(r[left]);
+            return string != null && string.contains(search);
+          };
+        }
+        if (function == Condition.FUNC_STARTS_WITH) {
+          return r -> {
+            String string = leftMeta.getCompatibleString(r[left]);
+            return string != null && string.startsWith(search);
+          };
+        }
+        return r -> {
+          String string = leftMeta.getCompatibleString(r[left]);
+          return !Utils.isEmpty(string) && string.endsWith(search);
+        };
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Compare the left field with a constant or another field. Integer and Number values are
+   * compared as primitives if both sides have the same type, the rest the same way as {@link
+   * IValueMeta#compare(Object, IValueMeta, Object)} does.
+   */
+  private static IPredicate compileComparison(
+      int function,
+      IValueMeta leftMeta,
+      int left,
+      IValueMeta rightMeta,
+      Object constant,
+      int right) {
+    boolean integer = isPrimitive(leftMeta, ValueMetaInteger.class);
+    boolean number = isPrimitive(leftMeta, ValueMetaNumber.class);
+    boolean sameType =
+        rightMeta.getType() == leftMeta.getType()
+            && rightMeta.getStorageType() == IValueMeta.STORAGE_TYPE_NORMAL;
+
+    if ((integer || number) && sameType && constant != null) {
+      if (integer && constant instanceof Long) {
+        long value2 = (Long) constant;
+        return r -> {
+          Object field = r[left];
+          if (field instanceof Long) {
+            return Condition.matches(function, Long.compare((Long) field, value2), false);
+          }
+          return compareObjects(function, leftMeta, field, rightMeta, constant);
+        };
+      }
+      if (number && constant instanceof Double) {
+        double value2 = (Double) constant;
+        return r -> {
+          Object field = r[left];
+          if (field instanceof Double) {
+            return Condition.matches(function, Double.compare((Double) field, value2), false);
+          }
+          return compareObjects(function, leftMeta, field, rightMeta, constant);
+        };
+      }
+    }
+
+    if ((integer || number) && sameType && constant == null) {
+      return r -> {
+        Object field = r[left];
+        Object field2 = r[right];
+        if (integer && field instanceof Long && field2 instanceof Long) {
+          return Condition.matches(function, Long.compare((Long) field, (Long) field2), false);
+        }
+        if (number && field instanceof Double && field2 instanceof Double) {
+          return Condition.matches(
+              function, Double.compare((Double) field, (Double) field2), false);
+        }
+        return compareObjects(function, leftMeta, field, rightMeta, field2);
+      };
+    }
+
+    if (constant != null) {
+      return r -> compareObjects(function, leftMeta, r[left], rightMeta, constant);
+    }
+    return r -> compareObjects(function, leftMeta, r[left], rightMeta, r[right]);
+  }
+
+  private static boolean compareObjects(
+      int function, IValueMeta leftMeta, Object field, IValueMeta rightMeta, Object field2)
+      throws HopValueException {
+    if ((function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL)
+        && leftMeta.isNull(field)) {
+      return false;
+    }
+    return Condition.matches(function, leftMeta.compare(field, rightMeta, field2), false);
+  }
+
+  /**
+   * Values of the plain Integer and Number types in normal storage are compared on their
+   * primitive value, unless they sort descending.
+   */
+  private static boolean isPrimitive(IValueMeta valueMeta, Class<? extends IValueMeta> type) {
+    return valueMeta.getClass() == type
+        && valueMeta.getStorageType() == IValueMeta.STORAGE_TYPE_NORMAL
+        && !valueMeta.isSortedDescending();
+  }
+
+  private static IPredicate negate(Condition condition, IPredicate predicate) {
+    if (condition.isNegated()) {
+      return r -> !predicate.test(r);
+    }
+    return predicate;
+  }
+
+  static String toRegex(String expression, boolean like) {
+    if (!like) {
+      return expression;
+    }
+    return expression.replace("%", ".*").replace("?", ".");
+  }
+
+  /** Keeps the last regular expression compiled: usually all rows have the same one */
+  static class PatternCache {
+    private volatile Pattern pattern;
+
+    Pattern get(String regex) {
+      Pattern last = pattern;
+      if (last == null || !last.pattern().equals(regex)) {
+        last = Pattern.compile(regex);
+        pattern = last;
+      }
+      return last;
+    }
+  }
+}
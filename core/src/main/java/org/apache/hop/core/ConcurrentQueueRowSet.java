@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe version of the {@link QueueRowSet}: it has no limited size and never waits. It's
+ * used when the transforms of a single threaded pipeline are run by a pool of worker threads. The
+ * scheduler of those workers takes care of back pressure by looking at the size of the row sets.
+ */
+public class ConcurrentQueueRowSet extends BaseRowSet implements Comparable<IRowSet>, IRowSet {
+
+  private final Queue<Object[]> buffer;
+
+  /**
+   * The size of a ConcurrentLinkedQueue is calculated by walking the queue. We keep count here. It
+   * is raised before a row is added and lowered after a row is removed so it's never too low.
+   */
+  private final AtomicInteger count;
+
+  public ConcurrentQueueRowSet() {
+    buffer = new ConcurrentLinkedQueue<>();
+    count = new AtomicInteger();
+  }
+
+  @Override
+  public Object[] getRow() {
+    Object[] retRow = buffer.poll();
+    if (retRow != null) {
+      count.decrementAndGet();
+    }
+    return retRow;
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRow();
+  }
+
+  @Override
+  public Object[] getRowWait(long timeout, TimeUnit tu) {
+    return getRow();
+  }
+
+  @Override
+  public boolean putRow(IRowMeta rowMeta, Object[] rowData) {
+    this.rowMeta = rowMeta;
+    count.incrementAndGet();
+    buffer.add(rowData);
+    return true;
+  }
+
+  @Override
+  public boolean putRowWait(IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu) {
+    return putRow(rowMeta, rowData);
+  }
+
+  @Override
+  public int size() {
+    return count.get();
+  }
+
+  @Override
+  public void clear() {
+    while (getRow() != null) {
+      // Keep the count in line with the queue
+    }
+    done.set(false);
+  }
+}
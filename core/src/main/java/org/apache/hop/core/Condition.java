@@ -21,6 +21,7 @@ import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.exception.HopXmlException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.row.ValueMetaAndData;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.xml.XmlHandler;
@@ -132,6 +133,12 @@ public class Condition implements Cloneable {
    */
   private String[] inList;
 
+  /**
+   * Temporary variable, no need to persist this one. Contains the last regular expression compiled
+   * for a REGEXP or LIKE condition
+   */
+  private CompiledCondition.PatternCache patternCache;
+
   public Condition() {
     list = new ArrayList<>();
     this.operator = OPERATOR_NONE;
@@ -407,8 +414,9 @@ public class Condition implements Cloneable {
               retval = false;
             } else {
               retval =
-                  Pattern.matches(
-                      fieldMeta2.getCompatibleString(field2), fieldMeta.getCompatibleString(field));
+                  getPattern(fieldMeta2.getCompatibleString(field2))
+                      .matcher(fieldMeta.getCompatibleString(field))
+                      .matches();
             }
             break;
           case FUNC_NULL:
@@ -469,15 +477,13 @@ public class Condition implements Cloneable {
             break;
           case FUNC_LIKE:
             // Converts to a regular expression
-            // TODO: optimize the patterns and String replacements
             //
             if (fieldMeta.isNull(field) || field2 == null) {
               retval = false;
             } else {
-              String regex = fieldMeta2.getCompatibleString(field2);
-              regex = regex.replace("%", ".*");
-              regex = regex.replace("?", ".");
-              retval = Pattern.matches(regex, fieldMeta.getCompatibleString(field));
+              String regex =
+                  CompiledCondition.toRegex(fieldMeta2.getCompatibleString(field2), true);
+              retval = getPattern(regex).matcher(fieldMeta.getCompatibleString(field)).matches();
             }
             break;
           default:
@@ -539,6 +545,217 @@ public class Condition implements Cloneable {
     return retval;
   }
 
+  /** @return the compiled regular expression, the last one is kept as it's usually a constant */
+  private Pattern getPattern(String regex) {
+    if (patternCache == null) {
+      patternCache = new CompiledCondition.PatternCache();
+    }
+    return patternCache.get(regex);
+  }
+
+  /**
+   * Compile the condition for rows with a given layout, see {@link CompiledCondition}.
+   *
+   * @param rowMeta the metadata of the rows the condition will be evaluated on
+   * @return the compiled condition
+   */
+  public CompiledCondition compile(IRowMeta rowMeta) {
+    return CompiledCondition.compile(this, rowMeta);
+  }
+
+  /**
+   * Evaluate the condition for all rows of a batch at once. This only works for conditions which
+   * compare Integer or Number fields with a constant or another field of the same type, or which
+   * test for null values. Other conditions need to be evaluated row by row.
+   *
+   * @param batch the batch with the fields used by this condition loaded
+   * @param result receives the outcome for every row in the batch
+   * @return true if the batch was evaluated, false if the caller needs to fall back to {@link
+   *     #evaluate(IRowMeta, Object[])}
+   */
+  public boolean evaluate(RowBatch batch, boolean[] result) {
+    int size = batch.size();
+
+    if (isAtomic()) {
+      if (function == FUNC_TRUE) {
+        Arrays.fill(result, 0, size, !negate);
+        return true;
+      }
+
+      IRowMeta rowMeta = batch.getRowMeta();
+      int left = Utils.isEmpty(leftValuename) ? -1 : rowMeta.indexOfValue(leftValuename);
+      if (left < 0) {
+        Arrays.fill(result, 0, size, false); // no fields to evaluate
+        return true;
+      }
+      IValueMeta leftMeta = rowMeta.getValueMeta(left);
+      if (!RowBatch.isNumericVector(leftMeta) || !isLoadedVector(batch, left, leftMeta)) {
+        return false;
+      }
+
+      switch (function) {
+        case FUNC_NULL:
+        case FUNC_NOT_NULL:
+          for (int i = 0; i < size; i++) {
+            result[i] = batch.isNull(left, i) == (function == FUNC_NULL);
+          }
+          break;
+        case FUNC_EQUAL:
+        case FUNC_NOT_EQUAL:
+        case FUNC_SMALLER:
+        case FUNC_SMALLER_EQUAL:
+        case FUNC_LARGER:
+        case FUNC_LARGER_EQUAL:
+          if (!compareBatch(batch, left, leftMeta, result)) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    } else {
+      if (!list.get(0).evaluate(batch, result)) {
+        return false;
+      }
+      boolean[] other = new boolean[size];
+      for (int c = 1; c < list.size(); c++) {
+        Condition cb = list.get(c);
+        if (!cb.evaluate(batch, other)) {
+          return false;
+        }
+        for (int i = 0; i < size; i++) {
+          switch (cb.getOperator()) {
+            case Condition.OPERATOR_OR:
+              result[i] = result[i] || other[i];
+              break;
+            case Condition.OPERATOR_AND:
+              result[i] = result[i] && other[i];
+              break;
+            case Condition.OPERATOR_OR_NOT:
+              result[i] = result[i] || !other[i];
+              break;
+            case Condition.OPERATOR_AND_NOT:
+              result[i] = result[i] && !other[i];
+              break;
+            case Condition.OPERATOR_XOR:
+              result[i] = result[i] ^ other[i];
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    }
+
+    if (isNegated()) {
+      for (int i = 0; i < size; i++) {
+        result[i] = !result[i];
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLoadedVector(RowBatch batch, int column, IValueMeta valueMeta) {
+    int encoding = batch.getEncoding(column);
+    return valueMeta.isInteger()
+        ? encoding == RowBatch.ENCODING_LONG
+        : encoding == RowBatch.ENCODING_DOUBLE;
+  }
+
+  /**
+   * Compare the left field with the right hand side in the same way as {@link
+   * IValueMeta#compare(Object, IValueMeta, Object)} does: null sorts before any other value.
+   */
+  private boolean compareBatch(RowBatch batch, int left, IValueMeta leftMeta, boolean[] result) {
+    int size = batch.size();
+    boolean integer = leftMeta.isInteger();
+    IValueMeta rightMeta = rightExact != null ? rightExact.getValueMeta() : null;
+    Object rightData = rightExact != null ? rightExact.getValueData() : null;
+
+    if (rightData == null) {
+      // Compare with another field of the same type
+      //
+      int right =
+          Utils.isEmpty(rightValuename) ? -1 : batch.getRowMeta().indexOfValue(rightValuename);
+      if (right < 0) {
+        return false;
+      }
+      rightMeta = batch.getRowMeta().getValueMeta(right);
+      if (rightMeta.getType() != leftMeta.getType()
+          || rightMeta.getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL
+          || !isLoadedVector(batch, right, rightMeta)) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        boolean leftNull = batch.isNull(left, i);
+        boolean rightNull = batch.isNull(right, i);
+        int cmp;
+        if (leftNull || rightNull) {
+          cmp = leftNull == rightNull ? 0 : (leftNull ? -1 : 1);
+        } else if (integer) {
+          cmp = Long.compare(batch.getLongs(left)[i], batch.getLongs(right)[i]);
+        } else {
+          cmp = Double.compare(batch.getDoubles(left)[i], batch.getDoubles(right)[i]);
+        }
+        result[i] = matches(function, cmp, leftNull);
+      }
+      return true;
+    }
+
+    // Compare with a constant, converted once
+    //
+    if (rightMeta == null || rightMeta.getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL) {
+      return false;
+    }
+    if (integer) {
+      if (!rightMeta.isInteger() || !(rightData instanceof Long)) {
+        return false;
+      }
+      long constant = (Long) rightData;
+      long[] values = batch.getLongs(left);
+      for (int i = 0; i < size; i++) {
+        boolean leftNull = batch.isNull(left, i);
+        int cmp = leftNull ? -1 : Long.compare(values[i], constant);
+        result[i] = matches(function, cmp, leftNull);
+      }
+    } else {
+      double constant;
+      if (rightMeta.isNumber() && rightData instanceof Double) {
+        constant = (Double) rightData;
+      } else if (rightMeta.isInteger() && rightData instanceof Long) {
+        constant = ((Long) rightData).doubleValue();
+      } else {
+        return false;
+      }
+      double[] values = batch.getDoubles(left);
+      for (int i = 0; i < size; i++) {
+        boolean leftNull = batch.isNull(left, i);
+        int cmp = leftNull ? -1 : Double.compare(values[i], constant);
+        result[i] = matches(function, cmp, leftNull);
+      }
+    }
+    return true;
+  }
+
+  static boolean matches(int function, int cmp, boolean leftNull) {
+    switch (function) {
+      case FUNC_EQUAL:
+        return cmp == 0;
+      case FUNC_NOT_EQUAL:
+        return cmp != 0;
+      case FUNC_SMALLER:
+        return !leftNull && cmp < 0;
+      case FUNC_SMALLER_EQUAL:
+        return !leftNull && cmp <= 0;
+      case FUNC_LARGER:
+        return cmp > 0;
+      case FUNC_LARGER_EQUAL:
+        return cmp >= 0;
+      default:
+        return false;
+    }
+  }
+
   public void addCondition(Condition cb) {
     if (isAtomic() && getLeftValuename() != null) {
       /*
@@ -111,6 +111,9 @@ public class Const {
   /** Size of rowset: bigger = faster for large amounts of data */
   public static final int ROWS_IN_ROWSET = 10000;
 
+  /** Maximum number of rows transforms move per call with getRows() and putRows() */
+  public static final int ROWS_IN_BATCH = 100;
+
   /** Fetch size in rows when querying a database */
   public static final int FETCH_SIZE = 10000;
 
@@ -45,6 +45,42 @@ public interface IRowSet {
    */
   boolean putRowWait(IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu);
 
+  /**
+   * Offer a batch of rows to this rowset providing for the description (metadata) of the rows. If
+   * the buffer is full, wait (block) for a small period of time. Rows are added in order, starting
+   * at the given offset in the array.
+   *
+   * @param rowMeta The description of the row data
+   * @param rows the rows of data
+   * @param offset the index of the first row in the array to add
+   * @param count the number of rows to add
+   * @return the number of rows that were added, less than count if this buffer was full.
+   */
+  default int putRows(IRowMeta rowMeta, Object[][] rows, int offset, int count) {
+    int nrPut = 0;
+    while (nrPut < count && putRow(rowMeta, rows[offset + nrPut])) {
+      nrPut++;
+    }
+    return nrPut;
+  }
+
+  /**
+   * Get the rows which are immediately available in the buffer, without waiting.
+   *
+   * @param rows the array to store the rows in
+   * @param offset the index in the array to store the first row at
+   * @param max the maximum number of rows to get
+   * @return the number of rows stored in the array, 0 if no row is available.
+   */
+  default int getRowsImmediate(Object[][] rows, int offset, int max) {
+    int nrGot = 0;
+    Object[] row;
+    while (nrGot < max && (row = getRowImmediate()) != null) {
+      rows[offset + nrGot++] = row;
+    }
+    return nrGot;
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes
    * available. Otherwise, it returns null.
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free row set for exactly one producer thread and one consumer thread. In a local
+ * pipeline every row set connects a single transform copy to a single other transform copy so that
+ * is the normal situation.
+ *
+ * <p>Rows are kept in a ring buffer with a power-of-two capacity. The producer only ever writes the
+ * tail index and the consumer only ever writes the head index so neither side needs a lock. Both
+ * sides keep a cached copy of the other side's index to avoid touching the shared cache line for
+ * every row. What a thread does while it waits for rows or for free space is determined by the
+ * {@link RowSetWaitStrategy}.
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<IRowSet>, IRowSet {
+  private final Object[][] buffer;
+  private final int mask;
+
+  /** The next slot to read, only written by the consumer */
+  private final AtomicLong head;
+
+  /** The next slot to write, only written by the producer */
+  private final AtomicLong tail;
+
+  /** The producer's view of the head index */
+  private long cachedHead;
+
+  /** The consumer's view of the tail index */
+  private long cachedTail;
+
+  private final RowSetWaitStrategy waitStrategy;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new ring buffer row set using the {@link RowSetWaitStrategy#Park} wait strategy.
+   *
+   * @param maxSize the minimum capacity of the buffer, rounded up to a power of 2
+   */
+  public RingBufferRowSet(int maxSize) {
+    this(maxSize, RowSetWaitStrategy.Park);
+  }
+
+  /**
+   * Create a new ring buffer row set.
+   *
+   * @param maxSize the minimum capacity of the buffer, rounded up to a power of 2
+   * @param waitStrategy what to do while waiting for rows or free space
+   */
+  public RingBufferRowSet(int maxSize, RowSetWaitStrategy waitStrategy) {
+    super();
+
+    int capacity = 1;
+    while (capacity < maxSize && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    buffer = new Object[capacity][];
+    mask = capacity - 1;
+
+    head = new AtomicLong(0L);
+    tail = new AtomicLong(0L);
+    cachedHead = 0L;
+    cachedTail = 0L;
+
+    this.waitStrategy = waitStrategy == null ? RowSetWaitStrategy.Park : waitStrategy;
+
+    timeoutGet =
+        Const.toInt(System.getProperty(Const.HOP_ROWSET_GET_TIMEOUT), Const.TIMEOUT_GET_MILLIS);
+    timeoutPut =
+        Const.toInt(System.getProperty(Const.HOP_ROWSET_PUT_TIMEOUT), Const.TIMEOUT_PUT_MILLIS);
+  }
+
+  @Override
+  public boolean putRow(IRowMeta rowMeta, Object[] rowData) {
+    return putRowWait(rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public boolean putRowWait(IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu) {
+    if (rowData == null) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long currentTail = tail.get();
+    if (currentTail - cachedHead >= buffer.length) {
+      cachedHead = head.get();
+      if (currentTail - cachedHead >= buffer.length) {
+        long deadline = System.nanoTime() + tu.toNanos(time);
+        int counter = 0;
+        do {
+          if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0) {
+            return false;
+          }
+          waitStrategy.idle(counter++);
+          cachedHead = head.get();
+        } while (currentTail - cachedHead >= buffer.length);
+      }
+    }
+
+    buffer[(int) currentTail & mask] = rowData;
+
+    // Publish the row to the consumer, the ordered write makes the slot visible first
+    //
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /** Publishes all the rows which fit in the buffer at once. */
+  @Override
+  public int putRows(IRowMeta rowMeta, Object[][] rows, int offset, int count) {
+    if (count <= 0) {
+      return 0;
+    }
+    this.rowMeta = rowMeta;
+
+    long currentTail = tail.get();
+    long free = buffer.length - (currentTail - cachedHead);
+    if (free < count) {
+      cachedHead = head.get();
+      free = buffer.length - (currentTail - cachedHead);
+      if (free <= 0) {
+        // Wait for at least one free slot
+        //
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutPut);
+        int counter = 0;
+        do {
+          if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0) {
+            return 0;
+          }
+          waitStrategy.idle(counter++);
+          cachedHead = head.get();
+          free = buffer.length - (currentTail - cachedHead);
+        } while (free <= 0);
+      }
+    }
+
+    int nrPut = (int) Math.min(free, count);
+    for (int i = 0; i < nrPut; i++) {
+      Object[] row = rows[offset + i];
+      if (row == null) {
+        nrPut = i;
+        break;
+      }
+      buffer[(int) (currentTail + i) & mask] = row;
+    }
+    tail.lazySet(currentTail + nrPut);
+    return nrPut;
+  }
+
+  /** Takes all the available rows and hands the slots back to the producer at once. */
+  @Override
+  public int getRowsImmediate(Object[][] rows, int offset, int max) {
+    long currentHead = head.get();
+    long available = cachedTail - currentHead;
+    if (available < max) {
+      cachedTail = tail.get();
+      available = cachedTail - currentHead;
+    }
+    int nrGot = (int) Math.min(available, max);
+    if (nrGot <= 0) {
+      return 0;
+    }
+    for (int i = 0; i < nrGot; i++) {
+      int index = (int) (currentHead + i) & mask;
+      rows[offset + i] = buffer[index];
+      buffer[index] = null; // prevent any hold-up to GC
+    }
+    head.lazySet(currentHead + nrGot);
+    return nrGot;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait(timeoutGet, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long currentHead = head.get();
+    if (currentHead >= cachedTail) {
+      cachedTail = tail.get();
+      if (currentHead >= cachedTail) {
+        return null;
+      }
+    }
+    return takeRow(currentHead);
+  }
+
+  @Override
+  public Object[] getRowWait(long timeout, TimeUnit tu) {
+    long currentHead = head.get();
+    if (currentHead >= cachedTail) {
+      cachedTail = tail.get();
+      if (currentHead >= cachedTail) {
+        long deadline = System.nanoTime() + tu.toNanos(timeout);
+        int counter = 0;
+        do {
+          if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0) {
+            return null;
+          }
+          waitStrategy.idle(counter++);
+          cachedTail = tail.get();
+        } while (currentHead >= cachedTail);
+      }
+    }
+    return takeRow(currentHead);
+  }
+
+  private Object[] takeRow(long currentHead) {
+    int index = (int) currentHead & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null; // prevent any hold-up to GC
+
+    // Hand the slot back to the producer
+    //
+    head.lazySet(currentHead + 1);
+    return row;
+  }
+
+  @Override
+  public int size() {
+    // Read head first: the size can then only be over-estimated, never negative
+    //
+    long currentHead = head.get();
+    long currentTail = tail.get();
+    return (int) Math.max(0L, Math.min(buffer.length, currentTail - currentHead));
+  }
+
+  /** @return the capacity of the ring buffer */
+  public int getCapacity() {
+    return buffer.length;
+  }
+
+  /** @return the wait strategy used by this row set */
+  public RowSetWaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(buffer, null);
+    head.set(0L);
+    tail.set(0L);
+    cachedHead = 0L;
+    cachedTail = 0L;
+    done.set(false);
+  }
+}
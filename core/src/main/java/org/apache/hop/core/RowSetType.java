@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hop.core;
+
+/** The type of row set used to connect transform copies in a normal pipeline. */
+public enum RowSetType {
+  /** A row set backed by a blocking queue, the default: {@link BlockingRowSet} */
+  Blocking,
+
+  /** A blocking row set which hands over rows in batches: {@link BlockingBatchingRowSet} */
+  Batching,
+
+  /** A lock-free single producer, single consumer ring buffer: {@link RingBufferRowSet} */
+  RingBuffer;
+
+  /**
+   * Look up a row set type by name, ignoring case.
+   *
+   * @param name the name of the type
+   * @param defaultType the type to return if the name is empty or unknown
+   * @return the matching row set type or the default
+   */
+  public static RowSetType lookupName(String name, RowSetType defaultType) {
+    if (name != null) {
+      for (RowSetType type : values()) {
+        if (type.name().equalsIgnoreCase(name.trim())) {
+          return type;
+        }
+      }
+    }
+    return defaultType;
+  }
+}
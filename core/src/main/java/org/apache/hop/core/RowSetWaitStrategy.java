@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes what a consumer or producer of a {@link RingBufferRowSet} does while it waits for a row
+ * or for free space in the buffer.
+ */
+public enum RowSetWaitStrategy {
+  /** Busy-spin: lowest latency, burns a full core per waiting thread. */
+  Spin,
+
+  /** Spin briefly, then yield the processor to other threads. */
+  Yield,
+
+  /** Spin briefly, then yield, then park the thread for increasingly longer periods. */
+  Park;
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long MAX_PARK_NANOS = 1000000L;
+
+  /**
+   * Idle for a short while.
+   *
+   * @param counter the number of times we already idled during the current wait, starting at 0
+   */
+  public void idle(int counter) {
+    switch (this) {
+      case Spin:
+        Thread.onSpinWait();
+        break;
+      case Yield:
+        if (counter < SPIN_TRIES) {
+          Thread.onSpinWait();
+        } else {
+          Thread.yield();
+        }
+        break;
+      case Park:
+      default:
+        if (counter < SPIN_TRIES) {
+          Thread.onSpinWait();
+        } else if (counter < YIELD_TRIES) {
+          Thread.yield();
+        } else {
+          // Back off exponentially from 1 microsecond up to 1 millisecond
+          //
+          int shift = Math.min(counter - YIELD_TRIES, 10);
+          LockSupport.parkNanos(Math.min(1000L << shift, MAX_PARK_NANOS));
+        }
+        break;
+    }
+  }
+
+  /**
+   * Look up a wait strategy by name, ignoring case.
+   *
+   * @param name the name of the strategy
+   * @param defaultStrategy the strategy to return if the name is empty or unknown
+   * @return the matching wait strategy or the default
+   */
+  public static RowSetWaitStrategy lookupName(String name, RowSetWaitStrategy defaultStrategy) {
+    if (name != null) {
+      for (RowSetWaitStrategy strategy : values()) {
+        if (strategy.name().equalsIgnoreCase(name.trim())) {
+          return strategy;
+        }
+      }
+    }
+    return defaultStrategy;
+  }
+}
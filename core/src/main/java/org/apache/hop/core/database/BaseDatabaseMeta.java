@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * This class contains the basic information on a database connection. It is not intended to be used
@@ -50,6 +51,12 @@ public abstract class BaseDatabaseMeta implements Cloneable, IDatabase {
   /** The prefix for all the extra options attributes */
   public static final String ATTRIBUTE_PREFIX_EXTRA_OPTION = "EXTRA_OPTION_";
 
+  /** A flag to determine if the connections are taken from a connection pool */
+  public static final String ATTRIBUTE_USE_POOLING = "USE_POOLING";
+
+  /** The prefix for all the connection pool parameter attributes */
+  public static final String ATTRIBUTE_POOLING_PARAMETER_PREFIX = "POOLING_";
+
   /** A flag to determine if we should use result streaming on MySQL */
   public static final String ATTRIBUTE_USE_RESULT_STREAMING = "STREAM_RESULTS";
 
@@ -1054,6 +1061,43 @@ public abstract class BaseDatabaseMeta implements Cloneable, IDatabase {
     attributes.put(ATTRIBUTE_SQL_CONNECT, sql);
   }
 
+  /** @return true if the connections are taken from a connection pool */
+  @Override
+  public boolean isUsingConnectionPool() {
+    String usePool = getAttributeProperty(ATTRIBUTE_USE_POOLING, "N");
+    return "Y".equalsIgnoreCase(usePool);
+  }
+
+  /** @param usePool true to take the connections from a connection pool */
+  @Override
+  public void setUsingConnectionPool(boolean usePool) {
+    attributes.put(ATTRIBUTE_USE_POOLING, usePool ? "Y" : "N");
+  }
+
+  /**
+   * @return the connection pool parameters, see {@link DatabaseConnectionPool#POOLING_PARAMETERS}
+   */
+  @Override
+  public Properties getConnectionPoolingProperties() {
+    Properties properties = new Properties();
+    for (String attribute : attributes.keySet()) {
+      if (attribute.startsWith(ATTRIBUTE_POOLING_PARAMETER_PREFIX)) {
+        String value = getAttributeProperty(attribute, "");
+        properties.put(attribute.substring(ATTRIBUTE_POOLING_PARAMETER_PREFIX.length()), value);
+      }
+    }
+    return properties;
+  }
+
+  /** @param properties the connection pool parameters to set */
+  @Override
+  public void setConnectionPoolingProperties(Properties properties) {
+    attributes.keySet().removeIf(key -> key.startsWith(ATTRIBUTE_POOLING_PARAMETER_PREFIX));
+    for (String name : properties.stringPropertyNames()) {
+      attributes.put(ATTRIBUTE_POOLING_PARAMETER_PREFIX + name, properties.getProperty(name));
+    }
+  }
+
   /**
    * @return true if the database supports setting the maximum number of return rows in a resultset.
    */
@@ -95,6 +95,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Database handles the process of connecting to, reading from, writing to and updating databases.
@@ -105,15 +106,24 @@ public class Database implements IVariables, ILoggingObject {
 
   private static final Map<String, Set<String>> registeredDrivers = new HashMap<>();
 
+  /** The drivers which are loaded already, by plugin ID and class name */
+  private static final Set<String> loadedDrivers = ConcurrentHashMap.newKeySet();
+
   private final DatabaseMeta databaseMeta;
 
   private static final String DATA_SERVICES_PLUGIN_ID = "HopThin";
 
   private int rowlimit;
+
+  /** The number of rows to fetch per round trip in queries, 0 for the default */
+  private int fetchSize;
   private int commitsize;
 
   private Connection connection;
 
+  /** The pooled connection if the connection is borrowed from a connection pool */
+  private DatabaseConnectionPool.PooledConnection pooledConnection;
+
   private Statement selStmt;
   private PreparedStatement pstmt;
   private PreparedStatement prepStatementLookup;
@@ -251,6 +261,27 @@ public class Database implements IVariables, ILoggingObject {
     rowlimit = rows;
   }
 
+  /**
+   * Set the number of rows to fetch from the database in a single round trip when reading the
+   * results of a query.
+   *
+   * @param fetchSize the number of rows or 0 to use the default
+   */
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * @return the number of rows to fetch in a single round trip, 0 for the default
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  private int getQueryFetchSize() {
+    return fetchSize > 0 ? fetchSize : Const.FETCH_SIZE;
+  }
+
   /**
    * @return Returns the prepStatementInsert.
    */
@@ -340,8 +371,8 @@ public class Database implements IVariables, ILoggingObject {
    * Open the database connection. The algorithm is:
    *
    * <ol>
-   *   <li>If <code>databaseMeta.isUsingConnectionPool()</code>, then the connection's datasource is
-   *       looked up in the pool
+   *   <li>If <code>databaseMeta.isUsingConnectionPool()</code>, then the connection is borrowed
+   *       from the pool, see {@link DatabaseConnectionPool}
    *   <li>otherwise, the connection is established via {@linkplain DriverManager}
    * </ol>
    *
@@ -389,29 +420,35 @@ public class Database implements IVariables, ILoggingObject {
             .getPlugin(DatabasePluginType.class, databaseMeta.getIDatabase());
 
     try {
-      synchronized (DriverManager.class) {
-        ClassLoader classLoader = PluginRegistry.getInstance().getClassLoader(plugin);
-        Class<?> driverClass = classLoader.loadClass(classname);
-
-        // Only need DelegatingDriver for drivers not from our classloader
-        if (driverClass.getClassLoader() != this.getClass().getClassLoader()) {
-          String pluginId =
-              PluginRegistry.getInstance()
-                  .getPluginId(DatabasePluginType.class, databaseMeta.getIDatabase());
-          Set<String> registeredDriversFromPlugin = registeredDrivers.get(pluginId);
-          if (registeredDriversFromPlugin == null) {
-            registeredDriversFromPlugin = new HashSet<>();
-            registeredDrivers.put(pluginId, registeredDriversFromPlugin);
-          }
-          // Prevent registering multiple delegating drivers for same class, plugin
-          if (!registeredDriversFromPlugin.contains(driverClass.getCanonicalName())) {
-            DriverManager.registerDriver(
-                new DelegatingDriver((Driver) driverClass.getDeclaredConstructor().newInstance()));
-            registeredDriversFromPlugin.add(driverClass.getCanonicalName());
+      // Only take the lock on the driver manager the first time a driver is loaded
+      //
+      String pluginId =
+          PluginRegistry.getInstance()
+              .getPluginId(DatabasePluginType.class, databaseMeta.getIDatabase());
+      if (!loadedDrivers.contains(pluginId + ":" + classname)) {
+        synchronized (DriverManager.class) {
+          ClassLoader classLoader = PluginRegistry.getInstance().getClassLoader(plugin);
+          Class<?> driverClass = classLoader.loadClass(classname);
+
+          // Only need DelegatingDriver for drivers not from our classloader
+          if (driverClass.getClassLoader() != this.getClass().getClassLoader()) {
+            Set<String> registeredDriversFromPlugin = registeredDrivers.get(pluginId);
+            if (registeredDriversFromPlugin == null) {
+              registeredDriversFromPlugin = new HashSet<>();
+              registeredDrivers.put(pluginId, registeredDriversFromPlugin);
+            }
+            // Prevent registering multiple delegating drivers for same class, plugin
+            if (!registeredDriversFromPlugin.contains(driverClass.getCanonicalName())) {
+              DriverManager.registerDriver(
+                  new DelegatingDriver(
+                      (Driver) driverClass.getDeclaredConstructor().newInstance()));
+              registeredDriversFromPlugin.add(driverClass.getCanonicalName());
+            }
+          } else {
+            // Trigger static register block in driver class
+            Class.forName(classname);
           }
-        } else {
-          // Trigger static register block in driver class
-          Class.forName(classname);
+          loadedDrivers.add(pluginId + ":" + classname);
         }
       }
     } catch (NoClassDefFoundError | ClassNotFoundException e) {
@@ -451,11 +488,8 @@ public class Database implements IVariables, ILoggingObject {
               url += ";instanceName=" + instance;
             }
           }
-          connection = DriverManager.getConnection(url, properties);
-        } else {
-          // Perhaps the username is in the URL or no username is required...
-          connection = DriverManager.getConnection(url, properties);
         }
+        // Otherwise perhaps the username is in the URL or no username is required...
       } else {
         if (!Utils.isEmpty(username)) {
           properties.put("user", username);
@@ -463,15 +497,54 @@ public class Database implements IVariables, ILoggingObject {
         if (!Utils.isEmpty(password)) {
           properties.put("password", password);
         }
+      }
 
+      if (databaseMeta.isUsingConnectionPool()) {
+        connectUsingPool(url, username, password, properties);
+      } else {
         connection = DriverManager.getConnection(url, properties);
       }
+    } catch (HopDatabaseException e) {
+      throw e;
     } catch (Exception e) {
       throw new HopDatabaseException(
           "Error connecting to database: (using class " + classname + ")", e);
     }
   }
 
+  /**
+   * Borrow the connection from the pool for the URL, user and connection properties. The pool is
+   * created with the pooling parameters of the database connection if it doesn't exist yet.
+   */
+  private void connectUsingPool(
+      String url, String username, String password, Properties properties)
+      throws HopDatabaseException {
+    Properties settings = new Properties();
+    Properties poolingProperties = databaseMeta.getConnectionPoolingProperties();
+    for (String name : poolingProperties.stringPropertyNames()) {
+      settings.put(name, Const.NVL(resolve(poolingProperties.getProperty(name)), ""));
+    }
+    DatabaseConnectionPool pool =
+        DatabaseConnectionPool.getPool(
+            url,
+            username,
+            password,
+            properties,
+            settings,
+            () -> DriverManager.getConnection(url, properties));
+
+    log.snap(Metrics.METRIC_DATABASE_POOL_WAIT_START, databaseMeta.getName());
+    try {
+      pooledConnection = pool.borrow();
+      connection = pooledConnection.getConnection();
+    } finally {
+      log.snap(Metrics.METRIC_DATABASE_POOL_WAIT_STOP, databaseMeta.getName());
+    }
+    if (log.isDebug()) {
+      log.logDebug("Borrowed a connection from pool " + pool.getName());
+    }
+  }
+
   /** Disconnect from the database and close all open prepared statements. */
   public synchronized void disconnect() {
     if (connection == null) {
@@ -585,7 +658,14 @@ public class Database implements IVariables, ILoggingObject {
   public synchronized void closeConnectionOnly() throws HopDatabaseException {
     try {
       if (connection != null) {
-        connection.close();
+        if (pooledConnection != null) {
+          // Hand the connection back to the pool
+          //
+          pooledConnection.release();
+          pooledConnection = null;
+        } else {
+          connection.close();
+        }
         connection = null;
       }
 
@@ -1533,7 +1613,7 @@ public class Database implements IVariables, ILoggingObject {
 
         if (canWeSetFetchSize(pstmt)) {
           int maxRows = pstmt.getMaxRows();
-          int fs = Const.FETCH_SIZE <= maxRows ? maxRows : Const.FETCH_SIZE;
+          int fs = getQueryFetchSize() <= maxRows ? maxRows : getQueryFetchSize();
           if (databaseMeta.isMySqlVariant()) {
             setMysqlFetchSize(pstmt, fs, maxRows);
           } else {
@@ -1556,7 +1636,9 @@ public class Database implements IVariables, ILoggingObject {
         log.snap(Metrics.METRIC_DATABASE_CREATE_SQL_STOP, databaseMeta.getName());
         if (canWeSetFetchSize(selStmt)) {
           int fs =
-              Const.FETCH_SIZE <= selStmt.getMaxRows() ? selStmt.getMaxRows() : Const.FETCH_SIZE;
+              getQueryFetchSize() <= selStmt.getMaxRows()
+                  ? selStmt.getMaxRows()
+                  : getQueryFetchSize();
           if (databaseMeta.getIDatabase().isMySqlVariant() && databaseMeta.isStreamingResults()) {
             selStmt.setFetchSize(Integer.MIN_VALUE);
           } else {
@@ -1592,7 +1674,8 @@ public class Database implements IVariables, ILoggingObject {
 
   private boolean canWeSetFetchSize(Statement statement) throws SQLException {
     return databaseMeta.isFetchSizeSupported()
-        && (statement.getMaxRows() > 0
+        && (fetchSize > 0
+            || statement.getMaxRows() > 0
             || databaseMeta.getIDatabase().isPostgresVariant()
             || (databaseMeta.isMySqlVariant() && databaseMeta.isStreamingResults()));
   }
@@ -1611,7 +1694,7 @@ public class Database implements IVariables, ILoggingObject {
 
       if (canWeSetFetchSize(ps)) {
         int maxRows = ps.getMaxRows();
-        int fs = Const.FETCH_SIZE <= maxRows ? maxRows : Const.FETCH_SIZE;
+        int fs = getQueryFetchSize() <= maxRows ? maxRows : getQueryFetchSize();
         // mysql have some restriction on fetch size assignment
         if (databaseMeta.isMySqlVariant()) {
           setMysqlFetchSize(ps, fs, maxRows);
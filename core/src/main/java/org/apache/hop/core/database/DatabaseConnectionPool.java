@@ -0,0 +1,729 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.database;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.util.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A pool of JDBC connections to the same database with the same user and connection properties.
+ * The pools are shared in the JVM, see {@link #getPool(String, String, String, Properties,
+ * Properties, IConnectionFactory)}.
+ *
+ * <p>Connections are borrowed with {@link #borrow()} and handed back with {@link
+ * PooledConnection#release()}. A connection is validated before it's handed out again, either with
+ * the validation query or with {@link Connection#isValid(int)}. A background task closes
+ * connections which are idle for too long, keeps the minimum number of idle connections open and
+ * reports connections which are borrowed for longer than the leak detection threshold.
+ *
+ * <p>The settings of a pool are given by the first connection which creates it, see {@link
+ * #POOLING_PARAMETERS} for the list of parameters.
+ */
+public class DatabaseConnectionPool {
+  public static final String PARAMETER_INITIAL_SIZE = "initialSize";
+  public static final String PARAMETER_MIN_IDLE = "minIdle";
+  public static final String PARAMETER_MAX_IDLE = "maxIdle";
+  public static final String PARAMETER_MAX_ACTIVE = "maxActive";
+  public static final String PARAMETER_MAX_WAIT = "maxWait";
+  public static final String PARAMETER_VALIDATION_QUERY = "validationQuery";
+  public static final String PARAMETER_TEST_ON_BORROW = "testOnBorrow";
+  public static final String PARAMETER_VALIDATION_INTERVAL = "validationInterval";
+  public static final String PARAMETER_MIN_EVICTABLE_IDLE_TIME = "minEvictableIdleTimeMillis";
+  public static final String PARAMETER_TIME_BETWEEN_EVICTION_RUNS =
+      "timeBetweenEvictionRunsMillis";
+  public static final String PARAMETER_LEAK_DETECTION_THRESHOLD = "leakDetectionThreshold";
+  public static final String PARAMETER_LOG_LEAK_STACK_TRACE = "logLeakStackTrace";
+
+  /** The parameters of a connection pool with their default values */
+  public static final DatabaseConnectionPoolParameter[] POOLING_PARAMETERS =
+      new DatabaseConnectionPoolParameter[] {
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_INITIAL_SIZE,
+            "0",
+            "The number of connections that are created when the pool is started."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_MIN_IDLE,
+            "0",
+            "The minimum number of connections that can remain idle in the pool, without extra"
+                + " ones being created."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_MAX_IDLE,
+            "8",
+            "The maximum number of connections that can remain idle in the pool, without extra"
+                + " ones being closed."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_MAX_ACTIVE,
+            "8",
+            "The maximum number of connections that can be open at the same time."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_MAX_WAIT,
+            "30000",
+            "The maximum number of milliseconds to wait for a connection when all connections are"
+                + " in use, or -1 to wait indefinitely."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_VALIDATION_QUERY,
+            "",
+            "The SQL query that will be used to validate connections. If empty the JDBC driver"
+                + " validates the connection."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_TEST_ON_BORROW,
+            "true",
+            "Validate a connection before it's handed out. If it fails to validate, it is"
+                + " closed and another connection is used."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_VALIDATION_INTERVAL,
+            "1000",
+            "A connection which was used less than this number of milliseconds ago is not"
+                + " validated again."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_MIN_EVICTABLE_IDLE_TIME,
+            "600000",
+            "The minimum number of milliseconds a connection needs to be idle before it can be"
+                + " closed."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_TIME_BETWEEN_EVICTION_RUNS,
+            "30000",
+            "The number of milliseconds between checks for idle connections to close and leaked"
+                + " connections to report."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_LEAK_DETECTION_THRESHOLD,
+            "0",
+            "Report a connection which is borrowed for longer than this number of milliseconds."
+                + " Use 0 to disable leak detection."),
+        new DatabaseConnectionPoolParameter(
+            PARAMETER_LOG_LEAK_STACK_TRACE,
+            "false",
+            "Log where a leaked connection was borrowed. This takes a stack trace for every"
+                + " borrowed connection."),
+      };
+
+  private static final ConcurrentMap<String, DatabaseConnectionPool> pools =
+      new ConcurrentHashMap<>();
+
+  private static ScheduledExecutorService housekeeper;
+
+  private static final ILogChannel log = new LogChannel("DatabaseConnectionPool");
+
+  /** Creates the physical connections of a pool */
+  public interface IConnectionFactory {
+    Connection createConnection() throws SQLException;
+  }
+
+  private final String name;
+  private final IConnectionFactory connectionFactory;
+
+  private final int minIdle;
+  private final int maxIdle;
+  private final int maxActive;
+  private final long maxWait;
+  private final String validationQuery;
+  private final boolean testOnBorrow;
+  private final long validationInterval;
+  private final long minEvictableIdleTime;
+  private final long leakDetectionThreshold;
+  private final boolean logLeakStackTrace;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  private final Deque<PooledConnection> idle = new ArrayDeque<>();
+  private final Set<PooledConnection> borrowed = new HashSet<>();
+  private int pending; // connections being created or validated
+  private boolean closed;
+  private ScheduledFuture<?> housekeeping;
+
+  // Statistics
+  //
+  private long borrowCount;
+  private long waitCount;
+  private long totalWaitTime;
+  private long maxWaitTime;
+  private long timeoutCount;
+  private long createdCount;
+  private long destroyedCount;
+  private long validationFailureCount;
+  private long leakCount;
+
+  /**
+   * @param name the name of the pool, used for logging
+   * @param settings the pooling parameters, see {@link #POOLING_PARAMETERS}
+   * @param connectionFactory creates the physical connections
+   */
+  public DatabaseConnectionPool(
+      String name, Properties settings, IConnectionFactory connectionFactory) {
+    this.name = name;
+    this.connectionFactory = connectionFactory;
+
+    this.maxActive = Math.max(1, getInt(settings, PARAMETER_MAX_ACTIVE));
+    this.maxIdle = Math.min(maxActive, Math.max(0, getInt(settings, PARAMETER_MAX_IDLE)));
+    this.minIdle = Math.min(maxIdle, Math.max(0, getInt(settings, PARAMETER_MIN_IDLE)));
+    this.maxWait = getLong(settings, PARAMETER_MAX_WAIT);
+    this.validationQuery = getString(settings, PARAMETER_VALIDATION_QUERY);
+    this.testOnBorrow = "true".equalsIgnoreCase(getString(settings, PARAMETER_TEST_ON_BORROW));
+    this.validationInterval = getLong(settings, PARAMETER_VALIDATION_INTERVAL);
+    this.minEvictableIdleTime = getLong(settings, PARAMETER_MIN_EVICTABLE_IDLE_TIME);
+    this.leakDetectionThreshold = getLong(settings, PARAMETER_LEAK_DETECTION_THRESHOLD);
+    this.logLeakStackTrace =
+        "true".equalsIgnoreCase(getString(settings, PARAMETER_LOG_LEAK_STACK_TRACE));
+
+    int initialSize = Math.min(maxIdle, getInt(settings, PARAMETER_INITIAL_SIZE));
+    fill(Math.max(initialSize, minIdle));
+
+    long evictionInterval = getLong(settings, PARAMETER_TIME_BETWEEN_EVICTION_RUNS);
+    if (evictionInterval > 0) {
+      housekeeping =
+          getHousekeeper()
+              .scheduleWithFixedDelay(
+                  this::evict, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Get the pool for a database connection, create it if it doesn't exist yet. Connections are
+   * shared between all connections with the same URL, user name, password and connection
+   * properties.
+   *
+   * @param url the resolved JDBC URL
+   * @param username the resolved user name
+   * @param password the resolved and decrypted password
+   * @param properties the connection properties
+   * @param settings the pooling parameters, only used if the pool is created
+   * @param connectionFactory creates the physical connections, only used if the pool is created
+   * @return the pool
+   */
+  public static DatabaseConnectionPool getPool(
+      String url,
+      String username,
+      String password,
+      Properties properties,
+      Properties settings,
+      IConnectionFactory connectionFactory) {
+    String key = createKey(url, username, password, properties);
+    DatabaseConnectionPool pool = pools.get(key);
+    if (pool == null) {
+      synchronized (pools) {
+        pool = pools.get(key);
+        if (pool == null) {
+          String name = Utils.isEmpty(username) ? url : username + "@" + url;
+          pool = new DatabaseConnectionPool(name, settings, connectionFactory);
+          pools.put(key, pool);
+        }
+      }
+    }
+    return pool;
+  }
+
+  /** @return the pools in this JVM */
+  public static List<DatabaseConnectionPool> getPools() {
+    return new ArrayList<>(pools.values());
+  }
+
+  /**
+   * Close all the pools in this JVM. Connections which are still borrowed are closed when they are
+   * released.
+   */
+  public static void closeAll() {
+    synchronized (pools) {
+      for (DatabaseConnectionPool pool : pools.values()) {
+        pool.close();
+      }
+      pools.clear();
+    }
+  }
+
+  private static String createKey(
+      String url, String username, String password, Properties properties) {
+    // Don't keep the password and properties in the key, only a digest
+    //
+    StringBuilder secret = new StringBuilder(Const.NVL(password, ""));
+    for (Map.Entry<Object, Object> entry : new TreeMap<>(properties).entrySet()) {
+      secret.append('\u0000').append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    StringBuilder key = new StringBuilder();
+    key.append(url).append('\u0000').append(Const.NVL(username, "")).append('\u0000');
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (byte b : digest.digest(secret.toString().getBytes(StandardCharsets.UTF_8))) {
+        key.append(String.format("%02x", b));
+      }
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM supports SHA-256
+      throw new IllegalStateException(e);
+    }
+    return key.toString();
+  }
+
+  private static synchronized ScheduledExecutorService getHousekeeper() {
+    if (housekeeper == null) {
+      housekeeper =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "Hop database connection pool housekeeper");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return housekeeper;
+  }
+
+  /**
+   * Borrow a connection from the pool. This waits for a connection to be released when the
+   * maximum number of connections are in use.
+   *
+   * @return the connection, hand it back with {@link PooledConnection#release()}
+   * @throws HopDatabaseException in case no connection could be created or the maximum wait time
+   *     is exceeded
+   */
+  public PooledConnection borrow() throws HopDatabaseException {
+    long start = System.nanoTime();
+    boolean waited = false;
+    while (true) {
+      PooledConnection candidate = null;
+      lock.lock();
+      try {
+        while (true) {
+          if (closed) {
+            throw new HopDatabaseException("The connection pool " + name + " is closed");
+          }
+          candidate = idle.pollLast();
+          if (candidate != null || getTotal() < maxActive) {
+            pending++;
+            break;
+          }
+          waited = true;
+          if (maxWait < 0) {
+            available.awaitUninterruptibly();
+          } else {
+            long remaining =
+                TimeUnit.MILLISECONDS.toNanos(maxWait) - (System.nanoTime() - start);
+            if (remaining <= 0L) {
+              timeoutCount++;
+              recordWait(start, waited);
+              throw new HopDatabaseException(
+                  "Timeout waiting "
+                      + maxWait
+                      + "ms for a connection from pool "
+                      + name
+                      + ", all "
+                      + maxActive
+                      + " connections are in use");
+            }
+            available.awaitNanos(remaining);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new HopDatabaseException("Interrupted waiting for a connection from " + name, e);
+      } finally {
+        lock.unlock();
+      }
+
+      // Create or validate the connection outside of the lock
+      //
+      if (candidate == null) {
+        try {
+          candidate = new PooledConnection(connectionFactory.createConnection());
+        } catch (Exception e) {
+          lock.lock();
+          try {
+            pending--;
+            available.signal();
+          } finally {
+            lock.unlock();
+          }
+          throw new HopDatabaseException("Unable to create a connection for pool " + name, e);
+        }
+        lock.lock();
+        try {
+          createdCount++;
+        } finally {
+          lock.unlock();
+        }
+      } else if (!validate(candidate)) {
+        candidate.destroy();
+        lock.lock();
+        try {
+          pending--;
+          validationFailureCount++;
+          destroyedCount++;
+          available.signal();
+        } finally {
+          lock.unlock();
+        }
+        continue;
+      }
+
+      lock.lock();
+      try {
+        pending--;
+        borrowed.add(candidate);
+        borrowCount++;
+        recordWait(start, waited);
+      } finally {
+        lock.unlock();
+      }
+      candidate.borrowed();
+      return candidate;
+    }
+  }
+
+  private void recordWait(long start, boolean waited) {
+    long waitTime = System.nanoTime() - start;
+    totalWaitTime += waitTime;
+    maxWaitTime = Math.max(maxWaitTime, waitTime);
+    if (waited) {
+      waitCount++;
+    }
+  }
+
+  private boolean validate(PooledConnection pooledConnection) {
+    if (!testOnBorrow
+        || System.currentTimeMillis() - pooledConnection.lastUsed < validationInterval) {
+      return true;
+    }
+    Connection connection = pooledConnection.connection;
+    try {
+      if (Utils.isEmpty(validationQuery)) {
+        return connection.isValid(5);
+      }
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(validationQuery);
+      }
+      return true;
+    } catch (Exception e) {
+      if (log.isDebug()) {
+        log.logDebug("Connection of pool " + name + " failed to validate: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  private void release(PooledConnection pooledConnection) {
+    boolean reusable = pooledConnection.reset();
+    lock.lock();
+    try {
+      if (!borrowed.remove(pooledConnection)) {
+        return; // released twice
+      }
+      if (reusable && !closed && idle.size() < maxIdle) {
+        idle.addLast(pooledConnection);
+        pooledConnection = null;
+      } else {
+        destroyedCount++;
+      }
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+    if (pooledConnection != null) {
+      pooledConnection.destroy();
+    }
+  }
+
+  /**
+   * Close the connections which are idle for too long, create connections up to the minimum
+   * number of idle connections and report leaked connections.
+   */
+  public void evict() {
+    List<PooledConnection> evicted = new ArrayList<>();
+    List<PooledConnection> leaked = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    int missing;
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      // The oldest idle connections are at the start of the deque
+      //
+      Iterator<PooledConnection> iterator = idle.iterator();
+      while (iterator.hasNext() && idle.size() > minIdle) {
+        PooledConnection pooledConnection = iterator.next();
+        if (now - pooledConnection.lastUsed < minEvictableIdleTime) {
+          break;
+        }
+        iterator.remove();
+        evicted.add(pooledConnection);
+        destroyedCount++;
+      }
+      if (leakDetectionThreshold > 0) {
+        for (PooledConnection pooledConnection : borrowed) {
+          if (!pooledConnection.leakReported
+              && now - pooledConnection.borrowTime > leakDetectionThreshold) {
+            pooledConnection.leakReported = true;
+            leakCount++;
+            leaked.add(pooledConnection);
+          }
+        }
+      }
+      missing = Math.min(minIdle - idle.size(), maxActive - getTotal());
+    } finally {
+      lock.unlock();
+    }
+
+    for (PooledConnection pooledConnection : evicted) {
+      pooledConnection.destroy();
+    }
+    for (PooledConnection pooledConnection : leaked) {
+      String message =
+          "Possible connection leak: a connection of pool "
+              + name
+              + " is borrowed for "
+              + (now - pooledConnection.borrowTime)
+              + "ms";
+      if (pooledConnection.borrowStack != null) {
+        log.logError(message, pooledConnection.borrowStack);
+      } else {
+        log.logError(message);
+      }
+    }
+    if (missing > 0) {
+      fill(missing);
+    }
+  }
+
+  private void fill(int count) {
+    for (int i = 0; i < count; i++) {
+      lock.lock();
+      try {
+        if (closed || getTotal() >= maxActive) {
+          return;
+        }
+        pending++;
+      } finally {
+        lock.unlock();
+      }
+      PooledConnection pooledConnection = null;
+      try {
+        pooledConnection = new PooledConnection(connectionFactory.createConnection());
+      } catch (Exception e) {
+        log.logError("Unable to create a connection for pool " + name, e);
+      }
+      lock.lock();
+      try {
+        pending--;
+        if (pooledConnection != null) {
+          createdCount++;
+          idle.addLast(pooledConnection);
+          available.signal();
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (pooledConnection == null) {
+        return;
+      }
+    }
+  }
+
+  /** Close the idle connections. Connections which are still borrowed are closed on release. */
+  public void close() {
+    List<PooledConnection> connections;
+    lock.lock();
+    try {
+      closed = true;
+      connections = new ArrayList<>(idle);
+      destroyedCount += idle.size();
+      idle.clear();
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (housekeeping != null) {
+      housekeeping.cancel(false);
+    }
+    for (PooledConnection pooledConnection : connections) {
+      pooledConnection.destroy();
+    }
+  }
+
+  private int getTotal() {
+    return idle.size() + borrowed.size() + pending;
+  }
+
+  /** @return the name of the pool */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the number of borrowed connections */
+  public int getNumActive() {
+    lock.lock();
+    try {
+      return borrowed.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return the number of idle connections */
+  public int getNumIdle() {
+    lock.lock();
+    try {
+      return idle.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the statistics of this pool: the number of borrowed and idle connections, the number of
+   * times a connection was borrowed, how many times and how long in total it had to wait for a
+   * connection, and how many connections were created, closed, failed to validate or leaked.
+   *
+   * @return the statistics, sorted on name
+   */
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new TreeMap<>();
+    lock.lock();
+    try {
+      statistics.put("active", (long) borrowed.size());
+      statistics.put("idle", (long) idle.size());
+      statistics.put("borrowed", borrowCount);
+      statistics.put("waited", waitCount);
+      statistics.put("waitTimeTotalMs", TimeUnit.NANOSECONDS.toMillis(totalWaitTime));
+      statistics.put("waitTimeMaxMs", TimeUnit.NANOSECONDS.toMillis(maxWaitTime));
+      statistics.put("timeouts", timeoutCount);
+      statistics.put("created", createdCount);
+      statistics.put("destroyed", destroyedCount);
+      statistics.put("validationFailures", validationFailureCount);
+      statistics.put("leaks", leakCount);
+    } finally {
+      lock.unlock();
+    }
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  private static String getString(Properties settings, String parameter) {
+    String value = settings == null ? null : settings.getProperty(parameter);
+    if (Utils.isEmpty(value)) {
+      DatabaseConnectionPoolParameter poolParameter =
+          DatabaseConnectionPoolParameter.findParameter(parameter, POOLING_PARAMETERS);
+      value = poolParameter.getDefaultValue();
+    }
+    return value;
+  }
+
+  private static int getInt(Properties settings, String parameter) {
+    return (int) getLong(settings, parameter);
+  }
+
+  private static long getLong(Properties settings, String parameter) {
+    DatabaseConnectionPoolParameter poolParameter =
+        DatabaseConnectionPoolParameter.findParameter(parameter, POOLING_PARAMETERS);
+    return Const.toLong(
+        getString(settings, parameter), Long.parseLong(poolParameter.getDefaultValue()));
+  }
+
+  /** A physical connection of a pool */
+  public class PooledConnection {
+    private final Connection connection;
+    private final boolean autoCommit;
+    private volatile long lastUsed;
+    private long borrowTime;
+    private Throwable borrowStack;
+    private boolean leakReported;
+
+    private PooledConnection(Connection connection) throws SQLException {
+      this.connection = connection;
+      this.autoCommit = connection.getAutoCommit();
+      this.lastUsed = System.currentTimeMillis();
+    }
+
+    private void borrowed() {
+      borrowTime = System.currentTimeMillis();
+      borrowStack = logLeakStackTrace ? new Exception("Connection borrowed here") : null;
+      leakReported = false;
+    }
+
+    /** @return the JDBC connection, don't close it but call {@link #release()} */
+    public Connection getConnection() {
+      return connection;
+    }
+
+    /** @return the pool of this connection */
+    public DatabaseConnectionPool getPool() {
+      return DatabaseConnectionPool.this;
+    }
+
+    /** Hand the connection back to the pool. */
+    public void release() {
+      DatabaseConnectionPool.this.release(this);
+    }
+
+    /**
+     * Roll back what wasn't committed and restore the auto-commit setting.
+     *
+     * @return true if the connection can be used again
+     */
+    private boolean reset() {
+      try {
+        if (connection.isClosed()) {
+          return false;
+        }
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+        if (connection.getAutoCommit() != autoCommit) {
+          connection.setAutoCommit(autoCommit);
+        }
+        connection.clearWarnings();
+        lastUsed = System.currentTimeMillis();
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    private void destroy() {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        // The connection is discarded anyway
+      }
+    }
+  }
+}
@@ -1822,6 +1822,28 @@ public class DatabaseMeta extends HopMetadataBase implements Cloneable, IHopMeta
     iDatabase.setConnectSql(sql);
   }
 
+  /** @return true if the connections are taken from a connection pool */
+  public boolean isUsingConnectionPool() {
+    return iDatabase.isUsingConnectionPool();
+  }
+
+  /** @param usePool true to take the connections from a connection pool */
+  public void setUsingConnectionPool(boolean usePool) {
+    iDatabase.setUsingConnectionPool(usePool);
+  }
+
+  /**
+   * @return the connection pool parameters, see {@link DatabaseConnectionPool#POOLING_PARAMETERS}
+   */
+  public Properties getConnectionPoolingProperties() {
+    return iDatabase.getConnectionPoolingProperties();
+  }
+
+  /** @param properties the connection pool parameters to set */
+  public void setConnectionPoolingProperties(Properties properties) {
+    iDatabase.setConnectionPoolingProperties(properties);
+  }
+
   /**
    * @return true if the database supports setting the maximum number of return rows in a resultset.
    */
@@ -29,6 +29,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * This interface describes the methods that a database connection needs to have in order to
@@ -536,6 +537,20 @@ public interface IDatabase extends Cloneable {
   /** @param sql The SQL to execute right after connecting */
   void setConnectSql(String sql);
 
+  /** @return true if the connections are taken from a connection pool */
+  boolean isUsingConnectionPool();
+
+  /** @param usePool true to take the connections from a connection pool */
+  void setUsingConnectionPool(boolean usePool);
+
+  /**
+   * @return the connection pool parameters, see {@link DatabaseConnectionPool#POOLING_PARAMETERS}
+   */
+  Properties getConnectionPoolingProperties();
+
+  /** @param properties the connection pool parameters to set */
+  void setConnectionPoolingProperties(Properties properties);
+
   /**
    * @return true if the database supports setting the maximum number of return rows in a resultset.
    */
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.hash;
+
+import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Encodes the key fields of a row into a compact byte array and calculates a 64-bit hash of it.
+ * Two rows get the same key bytes if and only if their key values are equal.
+ *
+ * <p>Every value starts with a tag byte. Integers, numbers and dates are written as 8 fixed bytes,
+ * booleans as 1 byte, strings and binaries are prefixed with their length. Big numbers are written
+ * as strings without trailing zeros. Other values are written with {@link
+ * IValueMeta#writeData(DataOutputStream, Object)}.
+ *
+ * <p>A key can be decoded back into the values of the key fields with {@link #decode(byte[], int)}.
+ * The key and hash stay valid until the next call to {@link #encode(Object[])}. This class is not
+ * thread-safe.
+ */
+public class BinaryKeyEncoder {
+  private static final byte TAG_NULL = 0;
+  private static final byte TAG_LONG = 1;
+  private static final byte TAG_DOUBLE = 2;
+  private static final byte TAG_DATE = 3;
+  private static final byte TAG_BOOLEAN = 4;
+  private static final byte TAG_STRING = 5;
+  private static final byte TAG_BINARY = 6;
+  private static final byte TAG_OTHER = 7;
+  private static final byte TAG_BIG_NUMBER = 8;
+
+  private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME64_3 = 0x165667B19E3779F9L;
+  private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+  private final IRowMeta rowMeta;
+  private final int[] fieldNrs;
+
+  private byte[] key;
+  private int length;
+  private long hash;
+
+  private DataOutputStream dataOutputStream;
+
+  /**
+   * @param rowMeta the metadata of the rows to encode
+   * @param fieldNrs the indexes of the key fields, null to use all the fields
+   */
+  public BinaryKeyEncoder(IRowMeta rowMeta, int[] fieldNrs) {
+    this.rowMeta = rowMeta;
+    if (fieldNrs == null) {
+      fieldNrs = new int[rowMeta.size()];
+      for (int i = 0; i < fieldNrs.length; i++) {
+        fieldNrs[i] = i;
+      }
+    }
+    this.fieldNrs = fieldNrs;
+    this.key = new byte[64];
+  }
+
+  /**
+   * Encode the key fields of a row and calculate the hash of the key.
+   *
+   * @param row the row to encode
+   * @throws HopFileException in case a value can't be serialized
+   */
+  public void encode(Object[] row) throws HopFileException {
+    length = 0;
+    for (int fieldNr : fieldNrs) {
+      writeValue(fieldNr, row[fieldNr]);
+    }
+    hash = hash(key, 0, length);
+  }
+
+  private void writeValue(int fieldNr, Object value) throws HopFileException {
+    if (value == null) {
+      writeByte(TAG_NULL);
+    } else if (value instanceof Long) {
+      writeByte(TAG_LONG);
+      writeLong((Long) value);
+    } else if (value instanceof Double) {
+      writeByte(TAG_DOUBLE);
+      writeLong(Double.doubleToLongBits((Double) value));
+    } else if (value.getClass() == Date.class) {
+      writeByte(TAG_DATE);
+      writeLong(((Date) value).getTime());
+    } else if (value instanceof Boolean) {
+      writeByte(TAG_BOOLEAN);
+      writeByte(((Boolean) value) ? (byte) 1 : (byte) 0);
+    } else if (value instanceof String) {
+      writeByte(TAG_STRING);
+      writeString((String) value);
+    } else if (value instanceof BigDecimal) {
+      // Equal numbers with a different scale like 1.5 and 1.50 get the same key
+      //
+      writeByte(TAG_BIG_NUMBER);
+      writeString(((BigDecimal) value).stripTrailingZeros().toString());
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      writeByte(TAG_BINARY);
+      writeVarInt(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, key, length, bytes.length);
+      length += bytes.length;
+    } else {
+      // Timestamps, internet addresses, ...
+      //
+      writeByte(TAG_OTHER);
+      if (dataOutputStream == null) {
+        dataOutputStream = new DataOutputStream(new KeyOutputStream());
+      }
+      rowMeta.getValueMeta(fieldNr).writeData(dataOutputStream, value);
+    }
+  }
+
+  /**
+   * Decode a key back into the values of the key fields. Big numbers come back without trailing
+   * zeros and values which aren't in normal storage keep their storage type.
+   *
+   * @param bytes the bytes of the key
+   * @param offset the start of the key
+   * @return the values of the key fields, in the order of the field indexes
+   * @throws HopFileException in case a value can't be read
+   */
+  public Object[] decode(byte[] bytes, int offset) throws HopFileException {
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset));
+    Object[] values = new Object[fieldNrs.length];
+    try {
+      for (int i = 0; i < fieldNrs.length; i++) {
+        values[i] = readValue(fieldNrs[i], in);
+      }
+    } catch (IOException e) {
+      throw new HopFileException("Unable to decode a binary key", e);
+    }
+    return values;
+  }
+
+  private Object readValue(int fieldNr, DataInputStream in) throws IOException, HopFileException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_LONG:
+        return in.readLong();
+      case TAG_DOUBLE:
+        return Double.longBitsToDouble(in.readLong());
+      case TAG_DATE:
+        return new Date(in.readLong());
+      case TAG_BOOLEAN:
+        return in.readByte() != 0;
+      case TAG_STRING:
+        return readString(in);
+      case TAG_BIG_NUMBER:
+        return new BigDecimal(readString(in));
+      case TAG_BINARY:
+        byte[] binary = new byte[readVarInt(in)];
+        in.readFully(binary);
+        return binary;
+      default:
+        return rowMeta.getValueMeta(fieldNr).readData(in);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int chars = readVarInt(in);
+    StringBuilder string = new StringBuilder(chars);
+    for (int i = 0; i < chars; i++) {
+      int b = in.readUnsignedByte();
+      if (b < 0x80) {
+        string.append((char) b);
+      } else {
+        int b1 = in.readUnsignedByte();
+        int b2 = in.readUnsignedByte();
+        string.append((char) (((b & 0x7F) << 14) | (b1 << 7) | b2));
+      }
+    }
+    return string.toString();
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  /** Strings are written as a char count followed by 1 byte per ASCII char, 3 bytes otherwise. */
+  private void writeString(String string) {
+    int chars = string.length();
+    writeVarInt(chars);
+    ensureCapacity(chars * 3);
+    for (int i = 0; i < chars; i++) {
+      char c = string.charAt(i);
+      if (c < 0x80) {
+        key[length++] = (byte) c;
+      } else {
+        key[length++] = (byte) (0x80 | (c >>> 14));
+        key[length++] = (byte) (c >>> 7);
+        key[length++] = (byte) (c & 0x7F);
+      }
+    }
+  }
+
+  private void writeVarInt(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      key[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    key[length++] = (byte) value;
+  }
+
+  private void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      key[length++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeByte(byte b) {
+    ensureCapacity(1);
+    key[length++] = b;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > key.length) {
+      key = Arrays.copyOf(key, Math.max(key.length * 2, length + extra));
+    }
+  }
+
+  /**
+   * Calculate a 64-bit hash of a range of bytes. The same bytes always give the same hash, also
+   * between JVMs.
+   *
+   * @param bytes the bytes to hash
+   * @param offset the start of the range
+   * @param length the number of bytes to hash
+   * @return the 64-bit hash
+   */
+  public static long hash(byte[] bytes, int offset, int length) {
+    long h = PRIME64_5 + length;
+    int i = offset;
+    int end = offset + length;
+    for (; i + 8 <= end; i += 8) {
+      long k = getLong(bytes, i) * PRIME64_2;
+      k = Long.rotateLeft(k, 31) * PRIME64_1;
+      h ^= k;
+      h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+    }
+    for (; i < end; i++) {
+      h ^= (bytes[i] & 0xFFL) * PRIME64_5;
+      h = Long.rotateLeft(h, 11) * PRIME64_1;
+    }
+    h ^= h >>> 33;
+    h *= PRIME64_2;
+    h ^= h >>> 29;
+    h *= PRIME64_3;
+    h ^= h >>> 32;
+    return h;
+  }
+
+  private static long getLong(byte[] bytes, int offset) {
+    long value = 0L;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xFFL);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the key of the last encoded row. Only the first {@link #getLength()} bytes are valid.
+   *
+   * @return value of key
+   */
+  public byte[] getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the length of the key of the last encoded row
+   *
+   * @return value of length
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Gets the 64-bit hash of the key of the last encoded row
+   *
+   * @return value of hash
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /** Appends to the key, used for the values without a compact encoding. */
+  private class KeyOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {
+      writeByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int len) {
+      ensureCapacity(len);
+      System.arraycopy(bytes, offset, key, length, len);
+      length += len;
+    }
+  }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An open-addressing hash table with binary keys and values, typically encoded with {@link
+ * BinaryKeyEncoder}. The caller provides the 64-bit hash of every key.
+ *
+ * <p>Entries are appended to pages of memory, on the heap or off-heap in direct buffers. The
+ * table itself is two arrays of longs with the hash and the address of every entry, probed
+ * linearly. This keeps the number of objects on the heap constant, no matter how many entries are
+ * stored.
+ *
+ * <p>When a key is put with a value of a different length, the new entry is appended and the
+ * memory of the old one is not reused. This class is not thread-safe.
+ */
+public class BinaryKeyHashTable {
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+  private static final int MIN_PAGE_SIZE = 64 * 1024;
+  private static final int PAGE_GROWTH = 6; // up to 4MB pages
+  private static final int ENTRY_HEADER = 8;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final boolean offHeap;
+
+  private long[] hashes;
+  private long[] addresses; // page << 32 | offset, plus one: 0 is an empty slot
+  private int size;
+  private int resizeThreshold;
+
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private ByteBuffer currentPage;
+  private long dataMemory;
+
+  /**
+   * @param expectedSize the expected number of entries
+   * @param offHeap true to store the keys and values in direct buffers outside of the heap
+   */
+  public BinaryKeyHashTable(int expectedSize, boolean offHeap) {
+    this.offHeap = offHeap;
+    int capacity = 1;
+    while (capacity < expectedSize / STANDARD_LOAD_FACTOR && capacity < MAX_CAPACITY) {
+      capacity <<= 1;
+    }
+    allocateIndex(capacity);
+  }
+
+  /** Create an empty hash table on the heap */
+  public BinaryKeyHashTable() {
+    this(STANDARD_INDEX_SIZE, false);
+  }
+
+  private void allocateIndex(int capacity) {
+    hashes = new long[capacity];
+    addresses = new long[capacity];
+    resizeThreshold = (int) (capacity * STANDARD_LOAD_FACTOR);
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * Gets the number of slots in the table. Together with {@link #getAddress(int)} this allows to
+   * visit all the entries.
+   *
+   * @return the number of slots
+   */
+  public int getCapacity() {
+    return addresses.length;
+  }
+
+  /**
+   * Gets the address of the entry in a slot.
+   *
+   * @param slot the slot, between 0 and {@link #getCapacity()}
+   * @return the address of the entry or -1 if the slot is empty
+   */
+  public long getAddress(int slot) {
+    return addresses[slot] - 1;
+  }
+
+  /**
+   * Gets the hash of the key of the entry in a slot.
+   *
+   * @param slot the slot, between 0 and {@link #getCapacity()}
+   * @return the hash of the key, only meaningful if the slot isn't empty
+   */
+  public long getHash(int slot) {
+    return hashes[slot];
+  }
+
+  /**
+   * Find the address of the entry with the given key.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @return the address of the entry or -1 if the key isn't in the table
+   */
+  public long find(byte[] key, int keyLength, long hash) {
+    int mask = addresses.length - 1;
+    int slot = slotFor(hash, mask);
+    while (addresses[slot] != 0L) {
+      if (hashes[slot] == hash && equalsKey(addresses[slot] - 1, key, keyLength)) {
+        return addresses[slot] - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1L;
+  }
+
+  /**
+   * Get a copy of the value stored for the given key.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @return the value or null if the key isn't in the table
+   */
+  public byte[] get(byte[] key, int keyLength, long hash) {
+    long address = find(key, keyLength, hash);
+    if (address < 0) {
+      return null;
+    }
+    return getValue(address);
+  }
+
+  /**
+   * Get a copy of the key of an entry.
+   *
+   * @param address the address of the entry, see {@link #find(byte[], int, long)}
+   * @return the key
+   */
+  public byte[] getKey(long address) {
+    ByteBuffer page = pages.get((int) (address >>> 32));
+    int offset = (int) address;
+    return readBytes(page, offset + ENTRY_HEADER, page.getInt(offset));
+  }
+
+  /**
+   * Get a copy of the value of an entry.
+   *
+   * @param address the address of the entry, see {@link #find(byte[], int, long)}
+   * @return the value
+   */
+  public byte[] getValue(long address) {
+    ByteBuffer page = pages.get((int) (address >>> 32));
+    int offset = (int) address;
+    int keyLength = page.getInt(offset);
+    int valueLength = page.getInt(offset + 4);
+    return readBytes(page, offset + ENTRY_HEADER + keyLength, valueLength);
+  }
+
+  /**
+   * Get the value of an entry stored as a 4 byte int, for example the index of the entry in an
+   * array, without copying it.
+   *
+   * @param address the address of the entry, see {@link #find(byte[], int, long)}
+   * @return the first 4 bytes of the value as a big-endian int
+   */
+  public int getIntValue(long address) {
+    ByteBuffer page = pages.get((int) (address >>> 32));
+    int offset = (int) address;
+    int keyLength = page.getInt(offset);
+    return page.getInt(offset + ENTRY_HEADER + keyLength);
+  }
+
+  /**
+   * Store a value for a key, replacing the value if the key is already present.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @param value the value bytes
+   * @param valueLength the number of valid bytes in value
+   * @return true if the key was added, false if the value of an existing key was replaced
+   */
+  public boolean put(byte[] key, int keyLength, long hash, byte[] value, int valueLength) {
+    int mask = addresses.length - 1;
+    int slot = slotFor(hash, mask);
+    while (addresses[slot] != 0L) {
+      if (hashes[slot] == hash && equalsKey(addresses[slot] - 1, key, keyLength)) {
+        long address = addresses[slot] - 1;
+        ByteBuffer page = pages.get((int) (address >>> 32));
+        int offset = (int) address;
+        if (page.getInt(offset + 4) == valueLength) {
+          writeBytes(page, offset + ENTRY_HEADER + keyLength, value, valueLength);
+        } else {
+          addresses[slot] = append(key, keyLength, value, valueLength) + 1;
+        }
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    addresses[slot] = append(key, keyLength, value, valueLength) + 1;
+    size++;
+    if (size >= resizeThreshold) {
+      resize();
+    }
+    return true;
+  }
+
+  /**
+   * Add a key without a value, if it isn't present yet. This is handy to use the table as a set.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @return true if the key was added, false if it was already present
+   */
+  public boolean add(byte[] key, int keyLength, long hash) {
+    if (find(key, keyLength, hash) >= 0) {
+      return false;
+    }
+    return put(key, keyLength, hash, null, 0);
+  }
+
+  /** Remove all entries and release the memory. */
+  public void clear() {
+    pages.clear();
+    currentPage = null;
+    dataMemory = 0L;
+    size = 0;
+    allocateIndex(STANDARD_INDEX_SIZE);
+  }
+
+  /**
+   * Gets the number of bytes allocated for the keys and values
+   *
+   * @return the number of bytes in the pages
+   */
+  public long getDataMemory() {
+    return dataMemory;
+  }
+
+  /**
+   * Gets the number of bytes allocated for the keys and values, plus the size of the table itself
+   *
+   * @return the number of bytes used by this hash table
+   */
+  public long getMemory() {
+    return dataMemory + 16L * addresses.length;
+  }
+
+  private static int slotFor(long hash, int mask) {
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private boolean equalsKey(long address, byte[] key, int keyLength) {
+    ByteBuffer page = pages.get((int) (address >>> 32));
+    int offset = (int) address;
+    if (page.getInt(offset) != keyLength) {
+      return false;
+    }
+    int start = offset + ENTRY_HEADER;
+    for (int i = 0; i < keyLength; i++) {
+      if (page.get(start + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long append(byte[] key, int keyLength, byte[] value, int valueLength) {
+    int entryLength = ENTRY_HEADER + keyLength + valueLength;
+    if (currentPage == null || currentPage.remaining() < entryLength) {
+      // Start with small pages so that small tables stay small
+      //
+      int pageSize = Math.max(MIN_PAGE_SIZE << Math.min(pages.size(), PAGE_GROWTH), entryLength);
+      currentPage = offHeap ? ByteBuffer.allocateDirect(pageSize) : ByteBuffer.allocate(pageSize);
+      pages.add(currentPage);
+      dataMemory += pageSize;
+    }
+    int offset = currentPage.position();
+    currentPage.putInt(keyLength);
+    currentPage.putInt(valueLength);
+    currentPage.put(key, 0, keyLength);
+    if (valueLength > 0) {
+      currentPage.put(value, 0, valueLength);
+    }
+    return ((long) (pages.size() - 1) << 32) | offset;
+  }
+
+  private static byte[] readBytes(ByteBuffer page, int offset, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = page.get(offset + i);
+    }
+    return bytes;
+  }
+
+  private static void writeBytes(ByteBuffer page, int offset, byte[] bytes, int length) {
+    for (int i = 0; i < length; i++) {
+      page.put(offset + i, bytes[i]);
+    }
+  }
+
+  private void resize() {
+    if (addresses.length >= MAX_CAPACITY) {
+      throw new IllegalStateException("The hash table can't hold more than " + size + " entries");
+    }
+    long[] oldHashes = hashes;
+    long[] oldAddresses = addresses;
+    allocateIndex(oldAddresses.length * 2);
+    int mask = addresses.length - 1;
+    for (int i = 0; i < oldAddresses.length; i++) {
+      if (oldAddresses[i] != 0L) {
+        int slot = slotFor(oldHashes[i], mask);
+        while (addresses[slot] != 0L) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        addresses[slot] = oldAddresses[i];
+      }
+    }
+  }
+}
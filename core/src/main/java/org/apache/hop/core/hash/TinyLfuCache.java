@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache with binary keys, typically encoded with {@link BinaryKeyEncoder}, bounded by the total
+ * weight of its entries (for example their size in bytes), by their number or by both.
+ *
+ * <p>The eviction policy is W-TinyLFU. New entries enter a small LRU window. Entries pushed out of
+ * the window compete with the least recently used entry of the main space, a segmented LRU with a
+ * probation and a protected segment, based on their estimated access frequency. The frequencies
+ * are kept in a count-min sketch of 4-bit counters which are halved periodically, so that old
+ * popularity fades away. This keeps frequently used entries in the cache when a scan of keys used
+ * only once passes through it.
+ *
+ * <p>Entries can have a time to live. Expired entries are removed when they are looked up and
+ * they are the first to go when the cache is full. All methods are synchronized.
+ *
+ * @param <V> the type of the values
+ */
+public class TinyLfuCache<V> {
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final int WINDOW_PERCENTAGE = 1;
+  private static final int PROTECTED_PERCENTAGE = 80;
+
+  private static final int MIN_SKETCH_SIZE = 64;
+  private static final int MAX_SKETCH_SIZE = 1 << 24;
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long[] SEEDS = {
+    0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+  };
+
+  private final long maxWeight;
+  private final long maxEntries;
+
+  private final Map<Key, Node<V>> map = new HashMap<>();
+  private final Key probe = new Key();
+  private final Segment<V> window = new Segment<>();
+  private final Segment<V> probation = new Segment<>();
+  private final Segment<V> protectedSegment = new Segment<>();
+
+  private long[] sketch;
+  private int sketchAdditions;
+  private long sequence;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  /**
+   * @param maxWeight the maximum total weight of the entries, 0 for no maximum
+   * @param maxEntries the maximum number of entries, 0 for no maximum
+   */
+  public TinyLfuCache(long maxWeight, long maxEntries) {
+    this.maxWeight = maxWeight;
+    this.maxEntries = maxEntries;
+    this.sketch = new long[MIN_SKETCH_SIZE];
+  }
+
+  /**
+   * Look up the value of a key and record the access.
+   *
+   * @param key the key bytes
+   * @param length the number of valid bytes in key
+   * @param hash the 64-bit hash of the key
+   * @return the value or null if the key isn't in the cache or has expired
+   */
+  public synchronized V get(byte[] key, int length, long hash) {
+    increment(hash);
+    probe.set(key, length, hash);
+    Node<V> node = map.get(probe);
+    probe.set(null, 0, 0L);
+    if (node == null) {
+      misses++;
+      return null;
+    }
+    if (isExpired(node, currentTimeMillis())) {
+      remove(node);
+      expirations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    onHit(node);
+    return node.value;
+  }
+
+  /**
+   * Store a value for a key, replacing the value if the key is already present. The key bytes are
+   * copied.
+   *
+   * @param key the key bytes
+   * @param length the number of valid bytes in key
+   * @param hash the 64-bit hash of the key
+   * @param value the value
+   * @param weight the weight of the entry, for example its size in bytes
+   * @param timeToLive the number of milliseconds after which the entry expires, 0 to never expire
+   */
+  public synchronized void put(
+      byte[] key, int length, long hash, V value, long weight, long timeToLive) {
+    long expireAt = timeToLive > 0 ? currentTimeMillis() + timeToLive : 0L;
+
+    probe.set(key, length, hash);
+    Node<V> node = map.get(probe);
+    probe.set(null, 0, 0L);
+    if (node != null) {
+      segmentOf(node).weight += weight - node.weight;
+      node.value = value;
+      node.weight = weight;
+      node.expireAt = expireAt;
+      onHit(node);
+    } else {
+      node = new Node<>();
+      node.key = new Key();
+      node.key.set(Arrays.copyOf(key, length), length, hash);
+      node.value = value;
+      node.weight = weight;
+      node.expireAt = expireAt;
+      node.sequence = sequence++;
+      node.segment = WINDOW;
+      window.addLast(node);
+      map.put(node.key, node);
+      if (map.size() > sketch.length && sketch.length < MAX_SKETCH_SIZE) {
+        // Keep the sketch in proportion with the number of entries
+        //
+        sketch = new long[Math.min(sketch.length * 2, MAX_SKETCH_SIZE)];
+        sketchAdditions = 0;
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Gets the values in the order in which their keys were first stored. Expired entries are
+   * skipped. This doesn't count as an access.
+   *
+   * @return a copy of the values
+   */
+  public synchronized List<V> values() {
+    long now = currentTimeMillis();
+    List<Node<V>> nodes = new ArrayList<>(map.size());
+    for (Node<V> node : map.values()) {
+      if (!isExpired(node, now)) {
+        nodes.add(node);
+      }
+    }
+    nodes.sort((n1, n2) -> Long.compare(n1.sequence, n2.sequence));
+    List<V> values = new ArrayList<>(nodes.size());
+    for (Node<V> node : nodes) {
+      values.add(node.value);
+    }
+    return values;
+  }
+
+  /** Remove all the entries. The statistics are kept. */
+  public synchronized void clear() {
+    map.clear();
+    window.clear();
+    probation.clear();
+    protectedSegment.clear();
+    Arrays.fill(sketch, 0L);
+    sketchAdditions = 0;
+  }
+
+  public synchronized int getSize() {
+    return map.size();
+  }
+
+  /**
+   * Gets the total weight of the entries in the cache
+   *
+   * @return the total weight
+   */
+  public synchronized long getWeight() {
+    return window.weight + probation.weight + protectedSegment.weight;
+  }
+
+  /**
+   * Gets the number of lookups which found a value
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups which didn't find a value
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of entries which were removed to make room for others
+   *
+   * @return the number of evictions
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the number of entries which were removed because their time to live passed
+   *
+   * @return the number of expirations
+   */
+  public synchronized long getExpirations() {
+    return expirations;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public long getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * The clock used to expire entries
+   *
+   * @return the current time in milliseconds
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private static boolean isExpired(Node<?> node, long now) {
+    return node.expireAt != 0L && node.expireAt <= now;
+  }
+
+  private void onHit(Node<V> node) {
+    switch (node.segment) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        // Used again: move to the protected segment, which might push out its oldest entry
+        //
+        probation.remove(node);
+        node.segment = PROTECTED;
+        protectedSegment.addLast(node);
+        while (protectedSegment.head != protectedSegment.tail
+            && isOverLimit(
+                protectedSegment,
+                percentageOf(mainWeight(), PROTECTED_PERCENTAGE),
+                percentageOf(mainEntries(), PROTECTED_PERCENTAGE))) {
+          Node<V> demoted = protectedSegment.head;
+          protectedSegment.remove(demoted);
+          demoted.segment = PROBATION;
+          probation.addLast(demoted);
+        }
+        break;
+      default:
+        protectedSegment.moveToLast(node);
+        break;
+    }
+  }
+
+  private void evict() {
+    // Entries leaving the window become candidates at the end of the probation segment
+    //
+    while (window.head != null
+        && isOverLimit(
+            window,
+            percentageOf(maxWeight, WINDOW_PERCENTAGE),
+            percentageOf(maxEntries, WINDOW_PERCENTAGE))) {
+      Node<V> candidate = window.head;
+      window.remove(candidate);
+      candidate.segment = PROBATION;
+      probation.addLast(candidate);
+    }
+
+    long now = currentTimeMillis();
+    while (isFull()) {
+      Node<V> victim = probation.head;
+      Node<V> candidate = probation.tail;
+      if (victim == null) {
+        victim = protectedSegment.head != null ? protectedSegment.head : window.head;
+      } else if (candidate != victim
+          && !isExpired(victim, now)
+          && (isExpired(candidate, now)
+              || frequency(candidate.key.hash) <= frequency(victim.key.hash))) {
+        // The candidate isn't used more often than the victim: don't admit it
+        //
+        victim = candidate;
+      }
+      remove(victim);
+      if (isExpired(victim, now)) {
+        expirations++;
+      } else {
+        evictions++;
+      }
+    }
+  }
+
+  private boolean isFull() {
+    return (maxWeight > 0 && getWeight() > maxWeight)
+        || (maxEntries > 0 && map.size() > maxEntries);
+  }
+
+  private static boolean isOverLimit(Segment<?> segment, long weightLimit, long entryLimit) {
+    return (weightLimit > 0 && segment.weight > weightLimit)
+        || (entryLimit > 0 && segment.size > entryLimit);
+  }
+
+  private long mainWeight() {
+    return maxWeight - percentageOf(maxWeight, WINDOW_PERCENTAGE);
+  }
+
+  private long mainEntries() {
+    return maxEntries - percentageOf(maxEntries, WINDOW_PERCENTAGE);
+  }
+
+  private static long percentageOf(long maximum, int percentage) {
+    return maximum <= 0 ? 0 : Math.max(1, maximum * percentage / 100);
+  }
+
+  private void remove(Node<V> node) {
+    segmentOf(node).remove(node);
+    map.remove(node.key);
+  }
+
+  private Segment<V> segmentOf(Node<V> node) {
+    switch (node.segment) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      default:
+        return protectedSegment;
+    }
+  }
+
+  private int frequency(long hash) {
+    int frequency = 15;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long h = mix(hash, i);
+      int index = (int) (h >>> 32) & (sketch.length - 1);
+      int shift = ((int) h & 15) << 2;
+      frequency = Math.min(frequency, (int) ((sketch[index] >>> shift) & 15L));
+    }
+    return frequency;
+  }
+
+  private void increment(long hash) {
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long h = mix(hash, i);
+      int index = (int) (h >>> 32) & (sketch.length - 1);
+      int shift = ((int) h & 15) << 2;
+      if (((sketch[index] >>> shift) & 15L) < 15L) {
+        sketch[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++sketchAdditions >= sketch.length * 10) {
+      // Halve all the counters so that old frequencies fade away
+      //
+      for (int i = 0; i < sketch.length; i++) {
+        sketch[i] = (sketch[i] >>> 1) & RESET_MASK;
+      }
+      sketchAdditions /= 2;
+    }
+  }
+
+  private static long mix(long hash, int i) {
+    long h = (hash + SEEDS[i]) * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+
+  private static final class Key {
+    private byte[] bytes;
+    private int length;
+    private long hash;
+
+    private void set(byte[] bytes, int length, long hash) {
+      this.bytes = bytes;
+      this.length = length;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && Arrays.equals(bytes, 0, length, other.bytes, 0, other.length);
+    }
+  }
+
+  private static final class Node<V> {
+    private Key key;
+    private V value;
+    private long weight;
+    private long expireAt;
+    private long sequence;
+    private int segment;
+    private Node<V> previous;
+    private Node<V> next;
+  }
+
+  /** A doubly linked list from the least (head) to the most (tail) recently used entry */
+  private static final class Segment<V> {
+    private Node<V> head;
+    private Node<V> tail;
+    private long weight;
+    private int size;
+
+    private void addLast(Node<V> node) {
+      node.previous = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+      size++;
+    }
+
+    private void remove(Node<V> node) {
+      if (node.previous == null) {
+        head = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      weight -= node.weight;
+      size--;
+    }
+
+    private void moveToLast(Node<V> node) {
+      if (tail != node) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    private void clear() {
+      head = null;
+      tail = null;
+      weight = 0L;
+      size = 0;
+    }
+  }
+}
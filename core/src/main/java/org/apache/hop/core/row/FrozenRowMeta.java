@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.row;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.hop.core.exception.HopValueException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Row metadata which is read without taking a lock. It is handed over to the next transforms in
+ * the row sets once the layout of the rows is known. The value metadata is kept in an array and the
+ * names are looked up in an open addressing hash table which is built once.
+ *
+ * <p>Nothing stops a transform from changing the row metadata it receives. The first change thaws
+ * this object: from then on it behaves like a normal {@link RowMeta}, locks included.
+ */
+public class FrozenRowMeta extends RowMeta {
+
+  private final IValueMeta[] valueMetas;
+  private final List<IValueMeta> valueMetaListView;
+  private final int[] realCloneIndexes;
+
+  /** Slot i holds the index of a value + 1, 0 means the slot is empty */
+  private final int[] nameSlots;
+
+  private final int nameMask;
+
+  private volatile boolean frozen;
+
+  /**
+   * Freeze the current layout of the given row metadata. The value metadata objects are shared
+   * with the given row metadata: pass a clone if it's still going to change.
+   *
+   * @param rowMeta the row metadata to freeze
+   */
+  public FrozenRowMeta(IRowMeta rowMeta) {
+    super();
+
+    int size = rowMeta.size();
+    valueMetas = new IValueMeta[size];
+    List<Integer> realClones = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      IValueMeta valueMeta = rowMeta.getValueMeta(i);
+      valueMetas[i] = valueMeta;
+      if (valueMeta.requiresRealClone()) {
+        realClones.add(i);
+      }
+    }
+    realCloneIndexes = realClones.stream().mapToInt(Integer::intValue).toArray();
+    valueMetaListView = Collections.unmodifiableList(Arrays.asList(valueMetas));
+
+    // Keep at most half of the slots filled so the probe sequences stay short
+    //
+    int nrSlots = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+    nameSlots = new int[nrSlots];
+    nameMask = nrSlots - 1;
+    for (int i = 0; i < size; i++) {
+      String name = valueMetas[i].getName();
+      if (name == null) {
+        continue;
+      }
+      int slot = hashIgnoreCase(name) & nameMask;
+      while (nameSlots[slot] != 0) {
+        // The first value with a name wins, just like in a scan of the list
+        if (name.equalsIgnoreCase(valueMetas[nameSlots[slot] - 1].getName())) {
+          break;
+        }
+        slot = (slot + 1) & nameMask;
+      }
+      if (nameSlots[slot] == 0) {
+        nameSlots[slot] = i + 1;
+      }
+    }
+
+    // The normal row metadata stays in line so we can thaw at any time.
+    //
+    super.setValueMetaList(new ArrayList<>(Arrays.asList(valueMetas)));
+    frozen = true;
+  }
+
+  /**
+   * A hash code of a name which is the same for names which are equal ignoring case, calculated
+   * without creating a lower case copy of the name.
+   */
+  static int hashIgnoreCase(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c < 128) {
+        if (c >= 'A' && c <= 'Z') {
+          c += 'a' - 'A';
+        }
+      } else {
+        // The same folding as String.equalsIgnoreCase()
+        c = Character.toLowerCase(Character.toUpperCase(c));
+      }
+      hash = 31 * hash + c;
+    }
+    // Spread the high bits, the table uses the low bits
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Checks whether the row metadata is still frozen
+   *
+   * @return true if nothing changed the row metadata after it was frozen
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void thaw() {
+    frozen = false;
+  }
+
+  @Override
+  public List<IValueMeta> getValueMetaList() {
+    if (frozen) {
+      return valueMetaListView;
+    }
+    return super.getValueMetaList();
+  }
+
+  @Override
+  public int size() {
+    if (frozen) {
+      return valueMetas.length;
+    }
+    return super.size();
+  }
+
+  @Override
+  @JsonIgnore
+  public boolean isEmpty() {
+    if (frozen) {
+      return valueMetas.length == 0;
+    }
+    return super.isEmpty();
+  }
+
+  @Override
+  public IValueMeta getValueMeta(int index) {
+    if (frozen) {
+      if (index >= 0 && index < valueMetas.length) {
+        return valueMetas[index];
+      }
+      return null;
+    }
+    return super.getValueMeta(index);
+  }
+
+  @Override
+  public int indexOfValue(String valueName) {
+    if (!frozen) {
+      return super.indexOfValue(valueName);
+    }
+    if (valueName == null) {
+      return -1;
+    }
+    int slot = hashIgnoreCase(valueName) & nameMask;
+    int entry;
+    while ((entry = nameSlots[slot]) != 0) {
+      if (valueName.equalsIgnoreCase(valueMetas[entry - 1].getName())) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & nameMask;
+    }
+
+    // A value might have been renamed after freezing
+    //
+    for (int i = 0; i < valueMetas.length; i++) {
+      if (valueName.equalsIgnoreCase(valueMetas[i].getName())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public IValueMeta searchValueMeta(String valueName) {
+    if (!frozen) {
+      return super.searchValueMeta(valueName);
+    }
+    int index = indexOfValue(valueName);
+    if (index < 0) {
+      return null;
+    }
+    return valueMetas[index];
+  }
+
+  @Override
+  @JsonIgnore
+  public String[] getFieldNames() {
+    if (!frozen) {
+      return super.getFieldNames();
+    }
+    String[] retval = new String[valueMetas.length];
+    for (int i = 0; i < valueMetas.length; i++) {
+      String valueName = valueMetas[i].getName();
+      retval[i] = valueName == null ? "" : valueName;
+    }
+    return retval;
+  }
+
+  @Override
+  public Object[] cloneRow(Object[] objects, Object[] newObjects) throws HopValueException {
+    if (!frozen) {
+      return super.cloneRow(objects, newObjects);
+    }
+    for (int i : realCloneIndexes) {
+      newObjects[i] = valueMetas[i].cloneValueData(objects[i]);
+    }
+    return newObjects;
+  }
+
+  @Override
+  public int compare(Object[] rowData1, Object[] rowData2, int[] fieldnrs)
+      throws HopValueException {
+    if (!frozen) {
+      return super.compare(rowData1, rowData2, fieldnrs);
+    }
+    for (int fieldnr : fieldnrs) {
+      int cmp = valueMetas[fieldnr].compare(rowData1[fieldnr], rowData2[fieldnr]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals(Object[] rowData1, Object[] rowData2, int[] fieldnrs)
+      throws HopValueException {
+    if (!frozen) {
+      return super.equals(rowData1, rowData2, fieldnrs);
+    }
+    for (int fieldnr : fieldnrs) {
+      if (valueMetas[fieldnr].compare(rowData1[fieldnr], rowData2[fieldnr]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int compare(Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2)
+      throws HopValueException {
+    if (!frozen) {
+      return super.compare(rowData1, rowData2, fieldnrs1, fieldnrs2);
+    }
+    int len = Math.min(fieldnrs1.length, fieldnrs2.length);
+    for (int i = 0; i < len; i++) {
+      int cmp =
+          valueMetas[fieldnrs1[i]].compare(rowData1[fieldnrs1[i]], rowData2[fieldnrs2[i]]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare(Object[] rowData1, Object[] rowData2) throws HopValueException {
+    if (!frozen) {
+      return super.compare(rowData1, rowData2);
+    }
+    for (int i = 0; i < valueMetas.length; i++) {
+      int cmp = valueMetas[i].compare(rowData1[i], rowData2[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int convertedValuesHashCode(Object[] rowData) throws HopValueException {
+    if (!frozen || rowData == null) {
+      return super.convertedValuesHashCode(rowData);
+    }
+    int result = 1;
+    for (int i = 0; i < rowData.length; i++) {
+      result = 31 * result + valueMetas[i].hashCode();
+    }
+    return result;
+  }
+
+  // Anything that changes the row metadata thaws it first.
+  //
+
+  @Override
+  public void setValueMetaList(List<IValueMeta> valueMetaList) {
+    thaw();
+    super.setValueMetaList(valueMetaList);
+  }
+
+  @Override
+  public void addValueMeta(IValueMeta meta) {
+    thaw();
+    super.addValueMeta(meta);
+  }
+
+  @Override
+  public void addValueMeta(int index, IValueMeta meta) {
+    thaw();
+    super.addValueMeta(index, meta);
+  }
+
+  @Override
+  public void setValueMeta(int index, IValueMeta valueMeta) {
+    thaw();
+    super.setValueMeta(index, valueMeta);
+  }
+
+  @Override
+  public void addRowMeta(IRowMeta rowMeta) {
+    thaw();
+    super.addRowMeta(rowMeta);
+  }
+
+  @Override
+  public void mergeRowMeta(IRowMeta r) {
+    thaw();
+    super.mergeRowMeta(r);
+  }
+
+  @Override
+  public void mergeRowMeta(IRowMeta r, String originTransformName) {
+    thaw();
+    super.mergeRowMeta(r, originTransformName);
+  }
+
+  @Override
+  public void clear() {
+    thaw();
+    super.clear();
+  }
+
+  @Override
+  public void removeValueMeta(String valueName) throws HopValueException {
+    thaw();
+    super.removeValueMeta(valueName);
+  }
+
+  @Override
+  public void removeValueMeta(int index) {
+    thaw();
+    super.removeValueMeta(index);
+  }
+}
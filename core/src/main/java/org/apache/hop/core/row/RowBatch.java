@@ -0,0 +1,521 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.row;
+
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column oriented view on a batch of rows described by an {@link IRowMeta}.
+ *
+ * <p>Integer and Boolean columns are kept in a <code>long[]</code> vector, Number columns in a
+ * <code>double[]</code> vector and String columns are dictionary encoded: every distinct string
+ * gets a code and the column holds an <code>int[]</code> of codes. Null values are tracked in a
+ * bitmap per column. Any other type, any value which isn't stored in its native Java class and any
+ * column which doesn't use normal storage is kept as an <code>Object[]</code> column.
+ *
+ * <p>Transforms still exchange <code>Object[]</code> rows. A transform with a native batch path
+ * loads the rows it received with {@link #setRows(Object[][], int, int...)}, works on the vectors
+ * and converts back with {@link #getRow(int, Object[])} where needed. A batch is not thread-safe
+ * and is meant to be re-used by a single transform copy.
+ */
+public class RowBatch {
+  /** The column was not loaded */
+  public static final int ENCODING_NONE = 0;
+
+  /** The column is stored in a <code>long[]</code> vector */
+  public static final int ENCODING_LONG = 1;
+
+  /** The column is stored in a <code>double[]</code> vector */
+  public static final int ENCODING_DOUBLE = 2;
+
+  /** The column is stored as <code>int[]</code> codes into a string dictionary */
+  public static final int ENCODING_DICTIONARY = 3;
+
+  /** The column is stored as plain objects */
+  public static final int ENCODING_OBJECT = 4;
+
+  private final IRowMeta rowMeta;
+  private final int capacity;
+  private int size;
+
+  private final int[] encodings;
+  private final long[][] longs;
+  private final double[][] doubles;
+  private final int[][] codes;
+  private final Object[][] objects;
+  private final long[][] nulls;
+  private final Map<String, Integer>[] dictionaryCodes;
+  private final List<String>[] dictionaries;
+
+  /**
+   * Create a new batch for the given row metadata.
+   *
+   * @param rowMeta the metadata describing the columns of the batch
+   * @param capacity the maximum number of rows in the batch
+   */
+  @SuppressWarnings("unchecked")
+  public RowBatch(IRowMeta rowMeta, int capacity) {
+    this.rowMeta = rowMeta;
+    this.capacity = capacity;
+    int nrColumns = rowMeta.size();
+    this.encodings = new int[nrColumns];
+    this.longs = new long[nrColumns][];
+    this.doubles = new double[nrColumns][];
+    this.codes = new int[nrColumns][];
+    this.objects = new Object[nrColumns][];
+    this.nulls = new long[nrColumns][];
+    this.dictionaryCodes = new Map[nrColumns];
+    this.dictionaries = new List[nrColumns];
+  }
+
+  /**
+   * See if a value can be processed as a primitive vector by native batch code: Integer and Number
+   * values in normal storage with the default (ascending) ordering.
+   *
+   * @param valueMeta the value metadata to verify
+   * @return true if values described by this metadata can be loaded in a long[] or double[] vector
+   *     and compared naturally.
+   */
+  public static boolean isNumericVector(IValueMeta valueMeta) {
+    return (valueMeta instanceof ValueMetaInteger || valueMeta instanceof ValueMetaNumber)
+        && valueMeta.getStorageType() == IValueMeta.STORAGE_TYPE_NORMAL
+        && !valueMeta.isSortedDescending();
+  }
+
+  /**
+   * Load all columns of the given rows into the batch.
+   *
+   * @param rows the rows to load
+   * @param count the number of rows to load from the start of the array
+   */
+  public void setRows(Object[][] rows, int count) {
+    setRows(rows, count, (int[]) null);
+  }
+
+  /**
+   * Load the given rows into the batch. Columns which are not requested are not loaded and report
+   * {@link #ENCODING_NONE}.
+   *
+   * @param rows the rows to load
+   * @param count the number of rows to load from the start of the array
+   * @param columns the indexes of the columns to load or null to load all columns
+   */
+  public void setRows(Object[][] rows, int count, int... columns) {
+    if (count > capacity) {
+      throw new IllegalArgumentException(
+          "Unable to load " + count + " rows in a batch with capacity " + capacity);
+    }
+    Arrays.fill(encodings, ENCODING_NONE);
+    size = count;
+    if (columns == null) {
+      for (int column = 0; column < encodings.length; column++) {
+        loadColumn(rows, column);
+      }
+    } else {
+      for (int column : columns) {
+        loadColumn(rows, column);
+      }
+    }
+  }
+
+  private void loadColumn(Object[][] rows, int column) {
+    IValueMeta valueMeta = rowMeta.getValueMeta(column);
+    long[] nullBits = clearNulls(column);
+
+    if (valueMeta.getStorageType() == IValueMeta.STORAGE_TYPE_NORMAL) {
+      switch (valueMeta.getType()) {
+        case IValueMeta.TYPE_INTEGER:
+          if (loadLongs(rows, column, nullBits)) {
+            return;
+          }
+          break;
+        case IValueMeta.TYPE_BOOLEAN:
+          if (loadBooleans(rows, column, nullBits)) {
+            return;
+          }
+          break;
+        case IValueMeta.TYPE_NUMBER:
+          if (loadDoubles(rows, column, nullBits)) {
+            return;
+          }
+          break;
+        case IValueMeta.TYPE_STRING:
+          if (loadStrings(rows, column, nullBits)) {
+            return;
+          }
+          break;
+        default:
+          break;
+      }
+      // A value wasn't of the expected class: keep the column as it is.
+      //
+      Arrays.fill(nullBits, 0L);
+    }
+    loadObjects(rows, column, nullBits);
+  }
+
+  private boolean loadLongs(Object[][] rows, int column, long[] nullBits) {
+    long[] vector = longs(column);
+    for (int i = 0; i < size; i++) {
+      Object value = rows[i][column];
+      if (value == null) {
+        nullBits[i >>> 6] |= 1L << i;
+        vector[i] = 0L;
+      } else if (value instanceof Long) {
+        vector[i] = (Long) value;
+      } else {
+        return false;
+      }
+    }
+    encodings[column] = ENCODING_LONG;
+    return true;
+  }
+
+  private boolean loadBooleans(Object[][] rows, int column, long[] nullBits) {
+    long[] vector = longs(column);
+    for (int i = 0; i < size; i++) {
+      Object value = rows[i][column];
+      if (value == null) {
+        nullBits[i >>> 6] |= 1L << i;
+        vector[i] = 0L;
+      } else if (value instanceof Boolean) {
+        vector[i] = (Boolean) value ? 1L : 0L;
+      } else {
+        return false;
+      }
+    }
+    encodings[column] = ENCODING_LONG;
+    return true;
+  }
+
+  private boolean loadDoubles(Object[][] rows, int column, long[] nullBits) {
+    double[] vector = doubles(column);
+    for (int i = 0; i < size; i++) {
+      Object value = rows[i][column];
+      if (value == null) {
+        nullBits[i >>> 6] |= 1L << i;
+        vector[i] = 0.0;
+      } else if (value instanceof Double) {
+        vector[i] = (Double) value;
+      } else {
+        return false;
+      }
+    }
+    encodings[column] = ENCODING_DOUBLE;
+    return true;
+  }
+
+  private boolean loadStrings(Object[][] rows, int column, long[] nullBits) {
+    int[] vector = codes[column];
+    if (vector == null) {
+      vector = new int[capacity];
+      codes[column] = vector;
+    }
+    Map<String, Integer> codeMap = dictionaryCodes[column];
+    List<String> dictionary = dictionaries[column];
+    if (codeMap == null) {
+      codeMap = new HashMap<>();
+      dictionary = new ArrayList<>();
+      dictionaryCodes[column] = codeMap;
+      dictionaries[column] = dictionary;
+    } else {
+      codeMap.clear();
+      dictionary.clear();
+    }
+
+    for (int i = 0; i < size; i++) {
+      Object value = rows[i][column];
+      if (value == null) {
+        nullBits[i >>> 6] |= 1L << i;
+        vector[i] = -1;
+      } else if (value instanceof String) {
+        Integer code = codeMap.get(value);
+        if (code == null) {
+          code = dictionary.size();
+          dictionary.add((String) value);
+          codeMap.put((String) value, code);
+        }
+        vector[i] = code;
+      } else {
+        return false;
+      }
+    }
+    encodings[column] = ENCODING_DICTIONARY;
+    return true;
+  }
+
+  private void loadObjects(Object[][] rows, int column, long[] nullBits) {
+    Object[] vector = objects[column];
+    if (vector == null) {
+      vector = new Object[capacity];
+      objects[column] = vector;
+    }
+    for (int i = 0; i < size; i++) {
+      Object value = rows[i][column];
+      if (value == null) {
+        nullBits[i >>> 6] |= 1L << i;
+      }
+      vector[i] = value;
+    }
+    Arrays.fill(vector, size, capacity, null);
+    encodings[column] = ENCODING_OBJECT;
+  }
+
+  private long[] clearNulls(int column) {
+    long[] nullBits = nulls[column];
+    if (nullBits == null) {
+      nullBits = new long[(capacity + 63) >>> 6];
+      nulls[column] = nullBits;
+    } else {
+      Arrays.fill(nullBits, 0L);
+    }
+    return nullBits;
+  }
+
+  private long[] longs(int column) {
+    if (longs[column] == null) {
+      longs[column] = new long[capacity];
+    }
+    return longs[column];
+  }
+
+  private double[] doubles(int column) {
+    if (doubles[column] == null) {
+      doubles[column] = new double[capacity];
+    }
+    return doubles[column];
+  }
+
+  /**
+   * Prepare an empty long vector for a column calculated by a transform. All values start out as
+   * null.
+   *
+   * @param column the column index
+   * @return the vector to fill in
+   */
+  public long[] newLongColumn(int column) {
+    clearNulls(column);
+    encodings[column] = ENCODING_LONG;
+    Arrays.fill(nulls[column], 0, (size + 63) >>> 6, -1L);
+    return longs(column);
+  }
+
+  /**
+   * Prepare an empty double vector for a column calculated by a transform. All values start out as
+   * null.
+   *
+   * @param column the column index
+   * @return the vector to fill in
+   */
+  public double[] newDoubleColumn(int column) {
+    clearNulls(column);
+    encodings[column] = ENCODING_DOUBLE;
+    Arrays.fill(nulls[column], 0, (size + 63) >>> 6, -1L);
+    return doubles(column);
+  }
+
+  /**
+   * Get a row from the batch. Only the loaded columns are copied to the target row.
+   *
+   * @param row the row index in the batch
+   * @param target the row to fill in or null to allocate a new one
+   * @return the row data
+   */
+  public Object[] getRow(int row, Object[] target) {
+    if (target == null) {
+      target = RowDataUtil.allocateRowData(rowMeta.size());
+    }
+    for (int column = 0; column < encodings.length; column++) {
+      if (encodings[column] != ENCODING_NONE) {
+        target[column] = getValue(column, row);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Convert the complete batch back to rows.
+   *
+   * @return a new array of rows with the size of the batch
+   */
+  public Object[][] getRows() {
+    Object[][] rows = new Object[size][];
+    for (int i = 0; i < size; i++) {
+      rows[i] = getRow(i, null);
+    }
+    return rows;
+  }
+
+  /**
+   * Get a single value from the batch in the Java class which matches the value metadata.
+   *
+   * @param column the column index
+   * @param row the row index
+   * @return the value or null
+   */
+  public Object getValue(int column, int row) {
+    if (isNull(column, row)) {
+      return encodings[column] == ENCODING_OBJECT ? objects[column][row] : null;
+    }
+    switch (encodings[column]) {
+      case ENCODING_LONG:
+        if (rowMeta.getValueMeta(column).getType() == IValueMeta.TYPE_BOOLEAN) {
+          return longs[column][row] != 0L;
+        }
+        return longs[column][row];
+      case ENCODING_DOUBLE:
+        return doubles[column][row];
+      case ENCODING_DICTIONARY:
+        return dictionaries[column].get(codes[column][row]);
+      case ENCODING_OBJECT:
+        return objects[column][row];
+      default:
+        throw new IllegalStateException("Column " + column + " is not loaded in this batch");
+    }
+  }
+
+  /**
+   * @param column the column index
+   * @param row the row index
+   * @return true if the value is null
+   */
+  public boolean isNull(int column, int row) {
+    return (nulls[column][row >>> 6] & (1L << row)) != 0;
+  }
+
+  /**
+   * Flag a value as null or not null.
+   *
+   * @param column the column index
+   * @param row the row index
+   * @param isNull true if the value is null
+   */
+  public void setNull(int column, int row, boolean isNull) {
+    if (isNull) {
+      nulls[column][row >>> 6] |= 1L << row;
+    } else {
+      nulls[column][row >>> 6] &= ~(1L << row);
+    }
+  }
+
+  /**
+   * Gets the null bitmap of a column: bit (row % 64) of word (row / 64) is set for null values.
+   *
+   * @param column the column index
+   * @return the null bitmap
+   */
+  public long[] getNulls(int column) {
+    return nulls[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return true if the column holds at least one null value
+   */
+  public boolean hasNulls(int column) {
+    long[] nullBits = nulls[column];
+    for (int i = 0; i < (size + 63) >>> 6; i++) {
+      if (nullBits[i] != 0L) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param column the column index
+   * @return the encoding of the column, one of the ENCODING_ constants
+   */
+  public int getEncoding(int column) {
+    return encodings[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return the long vector of an Integer or Boolean column
+   */
+  public long[] getLongs(int column) {
+    return longs[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return the double vector of a Number column
+   */
+  public double[] getDoubles(int column) {
+    return doubles[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return the dictionary codes of a String column, -1 for null values
+   */
+  public int[] getCodes(int column) {
+    return codes[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return the dictionary of a String column, indexed by code
+   */
+  public List<String> getDictionary(int column) {
+    return dictionaries[column];
+  }
+
+  /**
+   * @param column the column index
+   * @return the values of an object column
+   */
+  public Object[] getObjects(int column) {
+    return objects[column];
+  }
+
+  /**
+   * Gets rowMeta
+   *
+   * @return value of rowMeta
+   */
+  public IRowMeta getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * Gets the number of rows in the batch
+   *
+   * @return value of size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets capacity
+   *
+   * @return value of capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+}
@@ -88,7 +88,8 @@ public class RowMeta implements IRowMeta {
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
-    if (o == null || getClass() != o.getClass()) return false;
+    // A frozen copy is equal to the row metadata it was made from
+    if (!(o instanceof RowMeta)) return false;
     RowMeta rowMeta = (RowMeta) o;
     for (int i = 0; i < valueMetaList.size(); i++) {
       IValueMeta thisValue = valueMetaList.get(i);
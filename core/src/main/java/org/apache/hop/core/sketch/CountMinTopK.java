@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the most frequent values of a stream with a count-min sketch. The sketch estimates the
+ * frequency of every value, never too low and too high by at most a small fraction of the number
+ * of values. The values with the highest estimates are kept as candidates, a few times k of them,
+ * so that the memory used is fixed.
+ *
+ * <p>Sketches with the same width and depth can be merged, also after serializing them with {@link
+ * #toBytes()}: the counters are added up and the candidates of both are estimated again.
+ */
+public class CountMinTopK {
+
+  public static final int DEFAULT_K = 10;
+
+  private static final int DEFAULT_WIDTH = 1024;
+  private static final int DEFAULT_DEPTH = 4;
+  private static final int CANDIDATES_PER_K = 4;
+
+  private static final byte VERSION = 1;
+
+  private final int k;
+  private final int width;
+  private final int depth;
+  private final long[] counters;
+  private final int maxCandidates;
+
+  private final Map<String, Long> candidates = new HashMap<>();
+
+  /** The candidate with the lowest estimate, null when it has to be looked up again */
+  private String minCandidate;
+
+  private long minCount;
+
+  /**
+   * @param k the number of most frequent values to return
+   */
+  public CountMinTopK(int k) {
+    this(k, DEFAULT_WIDTH, DEFAULT_DEPTH);
+  }
+
+  public CountMinTopK() {
+    this(DEFAULT_K);
+  }
+
+  private CountMinTopK(int k, int width, int depth) {
+    if (k < 1) {
+      throw new IllegalArgumentException("The number of top values has to be at least 1, not " + k);
+    }
+    this.k = k;
+    this.width = width;
+    this.depth = depth;
+    this.counters = new long[width * depth];
+    this.maxCandidates = k * CANDIDATES_PER_K;
+  }
+
+  /**
+   * Count a value.
+   *
+   * @param value the value, null values are ignored
+   */
+  public void add(String value) {
+    if (value == null) {
+      return;
+    }
+    long hash = SketchHash.hash(value.getBytes(StandardCharsets.UTF_8));
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int index = row * width + bucket(hash, row);
+      estimate = Math.min(estimate, ++counters[index]);
+    }
+    offer(value, estimate);
+  }
+
+  private void offer(String value, long estimate) {
+    Long previous = candidates.get(value);
+    if (previous != null) {
+      candidates.put(value, estimate);
+      if (value.equals(minCandidate)) {
+        minCandidate = null;
+      }
+      return;
+    }
+    if (candidates.size() < maxCandidates) {
+      candidates.put(value, estimate);
+      if (minCandidate != null && estimate < minCount) {
+        minCandidate = value;
+        minCount = estimate;
+      }
+      return;
+    }
+    if (minCandidate == null) {
+      findMinCandidate();
+    }
+    if (estimate > minCount) {
+      candidates.remove(minCandidate);
+      candidates.put(value, estimate);
+      minCandidate = null;
+    }
+  }
+
+  private void findMinCandidate() {
+    minCount = Long.MAX_VALUE;
+    for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+      if (entry.getValue() < minCount) {
+        minCount = entry.getValue();
+        minCandidate = entry.getKey();
+      }
+    }
+  }
+
+  /**
+   * The bucket of a value in a row. Every row hashes the value again: with double hashing two
+   * values colliding in the first rows tend to collide in all of them.
+   */
+  private int bucket(long hash, int row) {
+    long rowHash = SketchHash.mix(hash + row * 0x9E3779B97F4A7C15L);
+    return (int) ((rowHash >>> 1) % width);
+  }
+
+  /**
+   * @param value a value
+   * @return the estimated number of times the value was added, never too low
+   */
+  public long estimate(String value) {
+    long hash = SketchHash.hash(value.getBytes(StandardCharsets.UTF_8));
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[row * width + bucket(hash, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Merge another sketch into this one.
+   *
+   * @param other a sketch with the same width and depth
+   */
+  public void merge(CountMinTopK other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("Unable to merge count-min sketches of different sizes");
+    }
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] += other.counters[i];
+    }
+
+    List<String> values = new ArrayList<>(candidates.keySet());
+    for (String value : other.candidates.keySet()) {
+      if (!candidates.containsKey(value)) {
+        values.add(value);
+      }
+    }
+    candidates.clear();
+    minCandidate = null;
+    for (String value : values) {
+      offer(value, estimate(value));
+    }
+  }
+
+  /**
+   * @return the k values with the highest estimated frequency, most frequent first
+   */
+  public List<String> getTopK() {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(candidates.entrySet());
+    entries.sort(
+        (a, b) -> {
+          int compare = Long.compare(b.getValue(), a.getValue());
+          return compare != 0 ? compare : a.getKey().compareTo(b.getKey());
+        });
+    List<String> top = new ArrayList<>();
+    for (int i = 0; i < Math.min(k, entries.size()); i++) {
+      top.add(entries.get(i).getKey());
+    }
+    return top;
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * @return the state of the sketch, see {@link #fromBytes(byte[])}
+   */
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(counters.length * 8 + 64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeInt(k);
+      out.writeInt(width);
+      out.writeInt(depth);
+      for (long counter : counters) {
+        out.writeLong(counter);
+      }
+      out.writeInt(candidates.size());
+      for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+        byte[] value = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(value.length);
+        out.write(value);
+        out.writeLong(entry.getValue());
+      }
+    } catch (IOException e) {
+      // Not possible for a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param bytes the state of a sketch written by {@link #toBytes()}
+   * @return the sketch
+   * @throws IOException in case the state is not valid
+   */
+  public static CountMinTopK fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readByte() != VERSION) {
+        throw new IOException("Unknown version of a count-min sketch");
+      }
+      int k = in.readInt();
+      int width = in.readInt();
+      int depth = in.readInt();
+      if (k < 1 || width < 1 || depth < 1 || (long) width * depth > Integer.MAX_VALUE) {
+        throw new IOException("Invalid size of a count-min sketch");
+      }
+      CountMinTopK sketch = new CountMinTopK(k, width, depth);
+      for (int i = 0; i < sketch.counters.length; i++) {
+        sketch.counters[i] = in.readLong();
+      }
+      int nrCandidates = in.readInt();
+      for (int i = 0; i < nrCandidates; i++) {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        sketch.candidates.put(new String(value, StandardCharsets.UTF_8), in.readLong());
+      }
+      return sketch;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Estimates the number of distinct values with the HyperLogLog algorithm. The memory used is fixed
+ * by the precision p: 2^p registers of one byte. The standard error of the estimate is about
+ * 1.04/sqrt(2^p), 1.6% for the default precision of 12.
+ *
+ * <p>Sketches with the same precision can be merged, also after serializing them with {@link
+ * #toBytes()}. The merge gives the same estimate as a single sketch over all values.
+ */
+public class HyperLogLog {
+
+  public static final int DEFAULT_PRECISION = 12;
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+
+  private static final byte VERSION = 1;
+
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * @param precision the number of bits used to select a register, between 4 and 18
+   */
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException(
+          "The precision of a HyperLogLog sketch has to be between "
+              + MIN_PRECISION
+              + " and "
+              + MAX_PRECISION
+              + ", not "
+              + precision);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param value the value in normal storage, null values are ignored
+   */
+  public void add(Object value) {
+    if (value != null) {
+      addHash(SketchHash.hash(value));
+    }
+  }
+
+  /**
+   * Add a value by its 64-bit hash.
+   *
+   * @param hash a well mixed hash of the value
+   */
+  public void addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // The sentinel bit limits the rank when the remaining bits are all 0
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0.0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1.0 + 1.079 / m);
+    }
+  }
+
+  /**
+   * Merge another sketch into this one.
+   *
+   * @param other a sketch with the same precision
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(
+          "Unable to merge HyperLogLog sketches with precision "
+              + precision
+              + " and "
+              + other.precision);
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * @return the state of the sketch, see {@link #fromBytes(byte[])}
+   */
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(registers.length + 2);
+    bytes.write(VERSION);
+    bytes.write(precision);
+    bytes.write(registers, 0, registers.length);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param bytes the state of a sketch written by {@link #toBytes()}
+   * @return the sketch
+   * @throws IOException in case the state is not valid
+   */
+  public static HyperLogLog fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readByte() != VERSION) {
+        throw new IOException("Unknown version of a HyperLogLog sketch");
+      }
+      int precision = in.readByte();
+      if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+        throw new IOException("Invalid precision of a HyperLogLog sketch: " + precision);
+      }
+      HyperLogLog sketch = new HyperLogLog(precision);
+      in.readFully(sketch.registers);
+      return sketch;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.sketch;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * 64-bit hashes of values for the sketches. Values which are equal for an aggregation get the same
+ * hash: 1.0 and 1.00 as BigDecimal or 0.0 and -0.0 as Double for example. The hashes are stable
+ * across JVMs, so that serialized sketches can be merged anywhere.
+ */
+final class SketchHash {
+
+  private SketchHash() {}
+
+  /**
+   * @param value a value in normal storage, not null
+   * @return the hash of the value
+   */
+  static long hash(Object value) {
+    if (value instanceof Long || value instanceof Integer) {
+      return mix(((Number) value).longValue());
+    }
+    if (value instanceof Double) {
+      double number = (Double) value;
+      return mix(Double.doubleToLongBits(number == 0.0 ? 0.0 : number) ^ 0x5851F42D4C957F2DL);
+    }
+    if (value instanceof BigDecimal) {
+      BigDecimal bigNumber = (BigDecimal) value;
+      bigNumber = bigNumber.signum() == 0 ? BigDecimal.ZERO : bigNumber.stripTrailingZeros();
+      return hash(bigNumber.toString().getBytes(StandardCharsets.UTF_8)) ^ bigNumber.scale();
+    }
+    if (value instanceof Date) {
+      return mix(((Date) value).getTime());
+    }
+    if (value instanceof Boolean) {
+      return mix((Boolean) value ? 1L : 0L);
+    }
+    if (value instanceof byte[]) {
+      return hash((byte[]) value);
+    }
+    return hash(value.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * FNV-1a over the bytes followed by two rounds of the MurmurHash3 finalizer. A single round
+   * leaves enough of the structure of FNV-1a over sequential keys like "customer-123" to bias the
+   * HyperLogLog estimates by a few percent.
+   */
+  static long hash(byte[] bytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    return mix(mix(hash));
+  }
+
+  /** The MurmurHash3 64-bit finalizer */
+  static long mix(long value) {
+    long hash = value;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles of a stream of numbers with a merging t-digest. The values are summarized in
+ * at most about compression centroids, a mean with a weight, which are small near the tails and
+ * larger in the middle. The estimates are very accurate for extreme quantiles like the 99th
+ * percentile and within a fraction of a percent of rank in the middle.
+ *
+ * <p>New values are collected in a buffer which is merged into the centroids when it's full, so
+ * the memory used is fixed by the compression. Digests can be merged, also after serializing them
+ * with {@link #toBytes()}.
+ */
+public class TDigest {
+
+  public static final double DEFAULT_COMPRESSION = 100.0;
+
+  private static final byte VERSION = 1;
+
+  private final double compression;
+
+  private double[] means;
+  private double[] weights;
+  private int nrCentroids;
+
+  private final double[] bufferMeans;
+  private final double[] bufferWeights;
+  private int bufferSize;
+
+  private double totalWeight;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * @param compression the accuracy of the digest: about the maximum number of centroids
+   */
+  public TDigest(double compression) {
+    if (compression < 10.0) {
+      throw new IllegalArgumentException(
+          "The compression of a t-digest has to be at least 10, not " + compression);
+    }
+    this.compression = compression;
+    int capacity = (int) Math.ceil(compression) * 2 + 10;
+    means = new double[capacity];
+    weights = new double[capacity];
+    bufferMeans = new double[capacity * 4];
+    bufferWeights = new double[capacity * 4];
+  }
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param value the value, NaN is ignored
+   */
+  public void add(double value) {
+    add(value, 1.0);
+  }
+
+  private void add(double mean, double weight) {
+    if (Double.isNaN(mean)) {
+      return;
+    }
+    if (bufferSize == bufferMeans.length) {
+      compress();
+    }
+    bufferMeans[bufferSize] = mean;
+    bufferWeights[bufferSize] = weight;
+    bufferSize++;
+    totalWeight += weight;
+    min = Math.min(min, mean);
+    max = Math.max(max, mean);
+  }
+
+  /**
+   * Merge another digest into this one.
+   *
+   * @param other the digest to merge
+   */
+  public void merge(TDigest other) {
+    other.compress();
+    for (int i = 0; i < other.nrCentroids; i++) {
+      add(other.means[i], other.weights[i]);
+    }
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /** Merge the buffered values into the centroids */
+  private void compress() {
+    if (bufferSize == 0) {
+      return;
+    }
+
+    // Sort the buffer and merge it with the sorted centroids
+    //
+    sortBuffer();
+    int total = nrCentroids + bufferSize;
+    double[] allMeans = new double[total];
+    double[] allWeights = new double[total];
+    int c = 0;
+    int b = 0;
+    for (int i = 0; i < total; i++) {
+      if (b == bufferSize || (c < nrCentroids && means[c] <= bufferMeans[b])) {
+        allMeans[i] = means[c];
+        allWeights[i] = weights[c++];
+      } else {
+        allMeans[i] = bufferMeans[b];
+        allWeights[i] = bufferWeights[b++];
+      }
+    }
+    bufferSize = 0;
+
+    // Combine neighbours as long as a centroid stays within one unit of the scale function
+    //
+    nrCentroids = 0;
+    double weightSoFar = 0.0;
+    double mean = allMeans[0];
+    double weight = allWeights[0];
+    double limit = totalWeight * quantileOfScale(scale(0.0) + 1.0);
+    for (int i = 1; i < total; i++) {
+      if (weightSoFar + weight + allWeights[i] <= limit) {
+        weight += allWeights[i];
+        mean += (allMeans[i] - mean) * allWeights[i] / weight;
+      } else {
+        addCentroid(mean, weight);
+        weightSoFar += weight;
+        limit = totalWeight * quantileOfScale(scale(weightSoFar / totalWeight) + 1.0);
+        mean = allMeans[i];
+        weight = allWeights[i];
+      }
+    }
+    addCentroid(mean, weight);
+  }
+
+  private void addCentroid(double mean, double weight) {
+    if (nrCentroids == means.length) {
+      means = Arrays.copyOf(means, nrCentroids * 2);
+      weights = Arrays.copyOf(weights, nrCentroids * 2);
+    }
+    means[nrCentroids] = mean;
+    weights[nrCentroids] = weight;
+    nrCentroids++;
+  }
+
+  /** The k1 scale function of the t-digest: small centroids near q=0 and q=1 */
+  private double scale(double q) {
+    return compression / (2.0 * Math.PI) * Math.asin(2.0 * Math.min(1.0, q) - 1.0);
+  }
+
+  private double quantileOfScale(double k) {
+    double angle = k * 2.0 * Math.PI / compression;
+    if (angle >= Math.PI / 2.0) {
+      return 1.0;
+    }
+    return (Math.sin(angle) + 1.0) / 2.0;
+  }
+
+  /** Sort the buffered means, with their weights, in place */
+  private void sortBuffer() {
+    sortBuffer(0, bufferSize - 1);
+  }
+
+  private void sortBuffer(int low, int high) {
+    while (high - low > 16) {
+      double pivot = bufferMeans[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (bufferMeans[i] < pivot) {
+          i++;
+        }
+        while (bufferMeans[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      // Recurse into the smaller part to bound the depth
+      if (j - low < high - i) {
+        sortBuffer(low, j);
+        low = i;
+      } else {
+        sortBuffer(i, high);
+        high = j;
+      }
+    }
+    for (int i = low + 1; i <= high; i++) {
+      for (int j = i; j > low && bufferMeans[j - 1] > bufferMeans[j]; j--) {
+        swap(j - 1, j);
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    double mean = bufferMeans[i];
+    bufferMeans[i] = bufferMeans[j];
+    bufferMeans[j] = mean;
+    double weight = bufferWeights[i];
+    bufferWeights[i] = bufferWeights[j];
+    bufferWeights[j] = weight;
+  }
+
+  /**
+   * Estimate a quantile.
+   *
+   * @param q the quantile, between 0 and 1
+   * @return the estimated value at the quantile, NaN if no values were added
+   */
+  public double quantile(double q) {
+    if (q < 0.0 || q > 1.0) {
+      throw new IllegalArgumentException("A quantile has to be between 0 and 1, not " + q);
+    }
+    compress();
+    if (nrCentroids == 0) {
+      return Double.NaN;
+    }
+    if (nrCentroids == 1) {
+      return means[0];
+    }
+
+    double target = q * totalWeight;
+    double firstHalf = weights[0] / 2.0;
+    if (target <= firstHalf) {
+      return min + (means[0] - min) * target / firstHalf;
+    }
+    double lastHalf = weights[nrCentroids - 1] / 2.0;
+    if (target >= totalWeight - lastHalf) {
+      return max - (max - means[nrCentroids - 1]) * (totalWeight - target) / lastHalf;
+    }
+
+    // Interpolate between the centres of the two centroids around the target
+    //
+    double cumulative = firstHalf;
+    for (int i = 0; i < nrCentroids - 1; i++) {
+      double distance = (weights[i] + weights[i + 1]) / 2.0;
+      if (cumulative + distance >= target) {
+        return means[i] + (means[i + 1] - means[i]) * (target - cumulative) / distance;
+      }
+      cumulative += distance;
+    }
+    return max;
+  }
+
+  /**
+   * @return the number of values added
+   */
+  public long size() {
+    return Math.round(totalWeight);
+  }
+
+  public double getCompression() {
+    return compression;
+  }
+
+  /**
+   * @return the state of the digest, see {@link #fromBytes(byte[])}
+   */
+  public byte[] toBytes() {
+    compress();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + nrCentroids * 16);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeDouble(compression);
+      out.writeDouble(min);
+      out.writeDouble(max);
+      out.writeInt(nrCentroids);
+      for (int i = 0; i < nrCentroids; i++) {
+        out.writeDouble(means[i]);
+        out.writeDouble(weights[i]);
+      }
+    } catch (IOException e) {
+      // Not possible for a byte array
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param bytes the state of a digest written by {@link #toBytes()}
+   * @return the digest
+   * @throws IOException in case the state is not valid
+   */
+  public static TDigest fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readByte() != VERSION) {
+        throw new IOException("Unknown version of a t-digest");
+      }
+      TDigest digest = new TDigest(in.readDouble());
+      digest.min = in.readDouble();
+      digest.max = in.readDouble();
+      int nrCentroids = in.readInt();
+      for (int i = 0; i < nrCentroids; i++) {
+        double mean = in.readDouble();
+        double weight = in.readDouble();
+        digest.addCentroid(mean, weight);
+        digest.totalWeight += weight;
+      }
+      return digest;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates threads for the local engines. Virtual threads are used when asked for and when the Java
+ * runtime supports them (Java 21 or later). Since Hop is built for older Java versions as well they
+ * are looked up with reflection, otherwise a normal platform thread is created.
+ */
+public class ThreadUtil {
+  private static final Object VIRTUAL_BUILDER;
+  private static final Method BUILDER_UNSTARTED;
+  private static final Method THREAD_IS_VIRTUAL;
+
+  static {
+    Object builder = null;
+    Method unstarted = null;
+    Method isVirtual = null;
+    try {
+      builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      unstarted =
+          Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+      isVirtual = Thread.class.getMethod("isVirtual");
+
+      // Make sure it actually works (preview features could be disabled)
+      //
+      unstarted.invoke(builder, (Runnable) () -> {});
+    } catch (Throwable e) {
+      builder = null;
+      unstarted = null;
+      isVirtual = null;
+    }
+    VIRTUAL_BUILDER = builder;
+    BUILDER_UNSTARTED = unstarted;
+    THREAD_IS_VIRTUAL = isVirtual;
+  }
+
+  private ThreadUtil() {}
+
+  /**
+   * @return true if the Java runtime can create virtual threads
+   */
+  public static boolean isVirtualThreadSupported() {
+    return VIRTUAL_BUILDER != null;
+  }
+
+  /**
+   * Create a new thread which isn't started yet.
+   *
+   * @param runnable The code to run in the thread
+   * @param name The name of the thread
+   * @param virtual true if a virtual thread should be created when supported
+   * @return The new, unstarted thread
+   */
+  public static Thread newThread(Runnable runnable, String name, boolean virtual) {
+    Thread thread = null;
+    if (virtual && VIRTUAL_BUILDER != null) {
+      try {
+        thread = (Thread) BUILDER_UNSTARTED.invoke(VIRTUAL_BUILDER, runnable);
+      } catch (Exception e) {
+        // Fall back to a platform thread
+        thread = null;
+      }
+    }
+    if (thread == null) {
+      thread = new Thread(runnable);
+    }
+    if (name != null) {
+      thread.setName(name);
+    }
+    return thread;
+  }
+
+  /**
+   * @param thread The thread to check
+   * @return true if the given thread is a virtual thread
+   */
+  public static boolean isVirtual(Thread thread) {
+    if (THREAD_IS_VIRTUAL == null || thread == null) {
+      return false;
+    }
+    try {
+      return (Boolean) THREAD_IS_VIRTUAL.invoke(thread);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.metadata.cache;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.metadata.api.HopMetadata;
+import org.apache.hop.metadata.api.HopMetadataBase;
+import org.apache.hop.metadata.api.HopMetadataProperty;
+import org.apache.hop.metadata.api.IHopMetadata;
+
+/**
+ * Describes a lookup cache which is shared by all the pipelines running in the same JVM, for
+ * example on a Hop Server. Lookup transforms which refer to the same lookup cache by name use the
+ * same cached rows instead of each filling their own cache.
+ *
+ * @see LookupCacheRegistry
+ */
+@HopMetadata(
+    key = "lookup-cache",
+    name = "Lookup Cache",
+    description = "A lookup cache shared by the pipelines running in the same JVM",
+    image = "ui/images/data.svg",
+    documentationUrl = "/metadata-types/lookup-cache.html")
+public class LookupCache extends HopMetadataBase implements Cloneable, IHopMetadata {
+
+  @HopMetadataProperty private String description;
+
+  /** The number of seconds after which the cached rows are discarded, 0 to keep them */
+  @HopMetadataProperty private String timeToLive;
+
+  /** The maximum number of rows in the cache, 0 for no limit */
+  @HopMetadataProperty private String maxRows;
+
+  /** The maximum estimated memory used by the cache in MB, 0 for no limit */
+  @HopMetadataProperty private String maxMemoryMb;
+
+  /** Discard the cached rows when the last lookup transform using the cache is finished */
+  @HopMetadataProperty private boolean releasingWhenUnused;
+
+  public LookupCache() {
+    super();
+    this.timeToLive = "0";
+    this.maxRows = "0";
+    this.maxMemoryMb = "0";
+    this.releasingWhenUnused = false;
+  }
+
+  public LookupCache(String name) {
+    this();
+    this.name = name;
+  }
+
+  public LookupCache(LookupCache source) {
+    this.name = source.name;
+    this.description = source.description;
+    this.timeToLive = source.timeToLive;
+    this.maxRows = source.maxRows;
+    this.maxMemoryMb = source.maxMemoryMb;
+    this.releasingWhenUnused = source.releasingWhenUnused;
+  }
+
+  @Override
+  public LookupCache clone() {
+    return new LookupCache(this);
+  }
+
+  /**
+   * Attach to the shared cache described by this metadata. Release it with {@link
+   * LookupCacheRegistry#release(SharedLookupCache)} when you're done.
+   *
+   * @param variables the variables to resolve the settings with
+   * @return the shared cache
+   */
+  public SharedLookupCache attach(IVariables variables) {
+    return LookupCacheRegistry.getInstance().attach(this, variables);
+  }
+
+  /**
+   * Calculate the time to live of the cached rows.
+   *
+   * @param variables the variables to resolve the setting with
+   * @return the time to live in milliseconds, 0 to keep the rows
+   */
+  public long calculateTimeToLiveMs(IVariables variables) {
+    return Math.max(Const.toLong(variables.resolve(timeToLive), 0L), 0L) * 1000L;
+  }
+
+  /**
+   * Calculate the maximum number of rows in the cache.
+   *
+   * @param variables the variables to resolve the setting with
+   * @return the maximum number of rows, 0 for no limit
+   */
+  public long calculateMaxRows(IVariables variables) {
+    return Math.max(Const.toLong(variables.resolve(maxRows), 0L), 0L);
+  }
+
+  /**
+   * Calculate the maximum estimated memory used by the cache.
+   *
+   * @param variables the variables to resolve the setting with
+   * @return the maximum memory in bytes, 0 for no limit
+   */
+  public long calculateMaxMemory(IVariables variables) {
+    return Math.max(Const.toLong(variables.resolve(maxMemoryMb), 0L), 0L) * 1024L * 1024L;
+  }
+
+  /**
+   * Gets description
+   *
+   * @return value of description
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Sets description
+   *
+   * @param description value of description
+   */
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Gets timeToLive
+   *
+   * @return value of timeToLive
+   */
+  public String getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets timeToLive
+   *
+   * @param timeToLive value of timeToLive
+   */
+  public void setTimeToLive(String timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Gets maxRows
+   *
+   * @return value of maxRows
+   */
+  public String getMaxRows() {
+    return maxRows;
+  }
+
+  /**
+   * Sets maxRows
+   *
+   * @param maxRows value of maxRows
+   */
+  public void setMaxRows(String maxRows) {
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * Gets maxMemoryMb
+   *
+   * @return value of maxMemoryMb
+   */
+  public String getMaxMemoryMb() {
+    return maxMemoryMb;
+  }
+
+  /**
+   * Sets maxMemoryMb
+   *
+   * @param maxMemoryMb value of maxMemoryMb
+   */
+  public void setMaxMemoryMb(String maxMemoryMb) {
+    this.maxMemoryMb = maxMemoryMb;
+  }
+
+  /**
+   * Gets releasingWhenUnused
+   *
+   * @return value of releasingWhenUnused
+   */
+  public boolean isReleasingWhenUnused() {
+    return releasingWhenUnused;
+  }
+
+  /**
+   * Sets releasingWhenUnused
+   *
+   * @param releasingWhenUnused value of releasingWhenUnused
+   */
+  public void setReleasingWhenUnused(boolean releasingWhenUnused) {
+    this.releasingWhenUnused = releasingWhenUnused;
+  }
+}
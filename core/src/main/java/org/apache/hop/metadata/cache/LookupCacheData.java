@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.metadata.cache;
+
+import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.TinyLfuCache;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * The rows of a shared lookup cache, from the moment it was created or invalidated until it is
+ * invalidated or expires. A transform can keep using the same data for the whole run, even when
+ * the shared cache moves on to new data in the meantime.
+ *
+ * <p>The keys are encoded with a {@link BinaryKeyEncoder} and the entries are spread over a
+ * number of {@link TinyLfuCache} stripes, each with its own lock, so that lookups of many
+ * transforms don't wait for each other. The values are shared between the transforms and must not
+ * be modified.
+ *
+ * <p>The first transform to use the data sets its layout: the types of the key and value fields.
+ * Others can only use the data if their layout is the same. The data is complete once all the rows
+ * of the lookup source were stored without evicting any. A key which isn't found in complete data
+ * doesn't exist in the source.
+ */
+public class LookupCacheData {
+  private static final int STRIPES = 16;
+
+  /** The estimated number of bytes used by a cache entry, next to its keys and values */
+  private static final int ENTRY_OVERHEAD = 96;
+
+  private final TinyLfuCache<Object[]>[] stripes;
+  private final long expireAt;
+
+  private IRowMeta keyRowMeta;
+  private IRowMeta valueRowMeta;
+  private volatile boolean complete;
+  private volatile long completeEvictions;
+
+  /**
+   * @param maxRows the maximum number of rows, 0 for no limit
+   * @param maxMemory the maximum estimated memory used in bytes, 0 for no limit
+   * @param expireAt the time in milliseconds at which the data expires, 0 to never expire
+   */
+  @SuppressWarnings("unchecked")
+  public LookupCacheData(long maxRows, long maxMemory, long expireAt) {
+    this.expireAt = expireAt;
+    this.stripes = new TinyLfuCache[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] =
+          new TinyLfuCache<>(
+              (maxMemory + STRIPES - 1) / STRIPES, (maxRows + STRIPES - 1) / STRIPES);
+    }
+  }
+
+  /**
+   * Sets the layout of the data if it doesn't have one yet, or verifies that the given layout is
+   * the same: the same number of keys and values with the same types and storage types.
+   *
+   * @param keyRowMeta the metadata of the keys
+   * @param valueRowMeta the metadata of the values
+   * @return true if the data has the given layout, false if the data can't be used with it
+   */
+  public synchronized boolean checkLayout(IRowMeta keyRowMeta, IRowMeta valueRowMeta) {
+    if (this.keyRowMeta == null) {
+      this.keyRowMeta = keyRowMeta.clone();
+      this.valueRowMeta = valueRowMeta.clone();
+      return true;
+    }
+    return sameLayout(this.keyRowMeta, keyRowMeta) && sameLayout(this.valueRowMeta, valueRowMeta);
+  }
+
+  private static boolean sameLayout(IRowMeta one, IRowMeta two) {
+    if (one.size() != two.size()) {
+      return false;
+    }
+    for (int i = 0; i < one.size(); i++) {
+      IValueMeta v1 = one.getValueMeta(i);
+      IValueMeta v2 = two.getValueMeta(i);
+      if (v1.getType() != v2.getType() || v1.getStorageType() != v2.getStorageType()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Look up the values of a key.
+   *
+   * @param encoder the encoder for the keys, owned by the caller
+   * @param keyRow the key values
+   * @return the values or null if the key isn't in the cache
+   * @throws HopFileException in case a key value can't be encoded
+   */
+  public Object[] get(BinaryKeyEncoder encoder, Object[] keyRow) throws HopFileException {
+    encoder.encode(keyRow);
+    long hash = encoder.getHash();
+    return stripeOf(hash).get(encoder.getKey(), encoder.getLength(), hash);
+  }
+
+  /**
+   * Store the values of a key, replacing the values if the key is already present.
+   *
+   * @param encoder the encoder for the keys, owned by the caller
+   * @param keyRow the key values
+   * @param valueRow the values, which must not be modified afterwards
+   * @throws HopFileException in case a key value can't be encoded
+   */
+  public void put(BinaryKeyEncoder encoder, Object[] keyRow, Object[] valueRow)
+      throws HopFileException {
+    encoder.encode(keyRow);
+    long hash = encoder.getHash();
+    long weight = ENTRY_OVERHEAD + encoder.getLength() + estimateSize(valueRow);
+    stripeOf(hash).put(encoder.getKey(), encoder.getLength(), hash, valueRow, weight, 0L);
+  }
+
+  private TinyLfuCache<Object[]> stripeOf(long hash) {
+    return stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+  }
+
+  /**
+   * Mark the data as complete, if no rows were evicted since the loading started.
+   *
+   * @param evictionsBefore the number of evictions when the loading started, see {@link
+   *     #getEvictions()}
+   * @return true if the data is complete
+   */
+  public boolean markComplete(long evictionsBefore) {
+    if (getEvictions() != evictionsBefore) {
+      return false;
+    }
+    completeEvictions = evictionsBefore;
+    complete = true;
+    return true;
+  }
+
+  /**
+   * See if all the rows of the lookup source are in the data. This stops being the case as soon as
+   * a row is evicted.
+   *
+   * @return true if the data is complete
+   */
+  public boolean isComplete() {
+    return complete && getEvictions() == completeEvictions;
+  }
+
+  /**
+   * @param now the current time in milliseconds
+   * @return true if the data has expired
+   */
+  public boolean isExpired(long now) {
+    return expireAt > 0 && now >= expireAt;
+  }
+
+  /**
+   * Estimate the number of bytes used on the heap by a row of values.
+   *
+   * @param row the row
+   * @return the estimated size in bytes
+   */
+  public static long estimateSize(Object[] row) {
+    if (row == null) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for (Object value : row) {
+      if (value == null) {
+        continue;
+      }
+      if (value instanceof String) {
+        size += 40L + 2L * ((String) value).length();
+      } else if (value instanceof byte[]) {
+        size += 16L + ((byte[]) value).length;
+      } else if (value instanceof BigDecimal) {
+        size += 32L + ((BigDecimal) value).precision() / 2;
+      } else if (value instanceof Date) {
+        size += 32L;
+      } else {
+        size += 24L;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the metadata of the keys, null if no layout was set yet
+   *
+   * @return value of keyRowMeta
+   */
+  public synchronized IRowMeta getKeyRowMeta() {
+    return keyRowMeta;
+  }
+
+  /**
+   * Gets the metadata of the values, null if no layout was set yet
+   *
+   * @return value of valueRowMeta
+   */
+  public synchronized IRowMeta getValueRowMeta() {
+    return valueRowMeta;
+  }
+
+  /**
+   * Gets the number of rows in the cache
+   *
+   * @return the number of rows
+   */
+  public int getSize() {
+    int size = 0;
+    for (TinyLfuCache<Object[]> stripe : stripes) {
+      size += stripe.getSize();
+    }
+    return size;
+  }
+
+  /**
+   * Gets the estimated number of bytes used by the rows in the cache
+   *
+   * @return the estimated memory in bytes
+   */
+  public long getMemory() {
+    long memory = 0L;
+    for (TinyLfuCache<Object[]> stripe : stripes) {
+      memory += stripe.getWeight();
+    }
+    return memory;
+  }
+
+  /**
+   * Gets the number of lookups which found their key
+   *
+   * @return the number of hits
+   */
+  public long getHits() {
+    long hits = 0L;
+    for (TinyLfuCache<Object[]> stripe : stripes) {
+      hits += stripe.getHits();
+    }
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups which didn't find their key
+   *
+   * @return the number of misses
+   */
+  public long getMisses() {
+    long misses = 0L;
+    for (TinyLfuCache<Object[]> stripe : stripes) {
+      misses += stripe.getMisses();
+    }
+    return misses;
+  }
+
+  /**
+   * Gets the number of rows removed to stay within the limits
+   *
+   * @return the number of evictions
+   */
+  public long getEvictions() {
+    long evictions = 0L;
+    for (TinyLfuCache<Object[]> stripe : stripes) {
+      evictions += stripe.getEvictions();
+    }
+    return evictions;
+  }
+}
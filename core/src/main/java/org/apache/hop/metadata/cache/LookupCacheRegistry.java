@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.metadata.cache;
+
+import org.apache.hop.core.variables.IVariables;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lookup caches shared by all the pipelines and workflows running in this JVM, by name. Lookup
+ * transforms and workflow actions attach to a cache when they start and release it when they're
+ * done. A cache which is set to be released when unused is removed together with its data when the
+ * last user releases it, the others stay until they're invalidated or expire.
+ */
+public class LookupCacheRegistry {
+  private static LookupCacheRegistry instance;
+
+  private final Map<String, SharedLookupCache> caches;
+
+  private LookupCacheRegistry() {
+    caches = new HashMap<>();
+  }
+
+  public static synchronized LookupCacheRegistry getInstance() {
+    if (instance == null) {
+      instance = new LookupCacheRegistry();
+    }
+    return instance;
+  }
+
+  /**
+   * Attach to the shared cache with the name of the given metadata, creating it if needed. The
+   * settings of the metadata apply to the data created from now on. Release the cache with {@link
+   * #release(SharedLookupCache)} when you're done.
+   *
+   * @param lookupCache the metadata of the cache
+   * @param variables the variables to resolve the settings with
+   * @return the shared cache
+   */
+  public synchronized SharedLookupCache attach(LookupCache lookupCache, IVariables variables) {
+    SharedLookupCache cache =
+        caches.computeIfAbsent(lookupCache.getName(), SharedLookupCache::new);
+    cache.configure(
+        lookupCache.calculateMaxRows(variables),
+        lookupCache.calculateMaxMemory(variables),
+        lookupCache.calculateTimeToLiveMs(variables),
+        lookupCache.isReleasingWhenUnused());
+    cache.addReference();
+    return cache;
+  }
+
+  /**
+   * Release a shared cache obtained with {@link #attach(LookupCache, IVariables)}.
+   *
+   * @param cache the cache to release
+   */
+  public synchronized void release(SharedLookupCache cache) {
+    if (cache.removeReference() == 0
+        && cache.isReleasingWhenUnused()
+        && caches.get(cache.getName()) == cache) {
+      caches.remove(cache.getName());
+      cache.invalidate();
+    }
+  }
+
+  /**
+   * Discard the data of a cache. Lookups which are running keep using the data they have.
+   *
+   * @param name the name of the cache
+   * @return true if the cache exists
+   */
+  public synchronized boolean invalidate(String name) {
+    SharedLookupCache cache = caches.get(name);
+    if (cache == null) {
+      return false;
+    }
+    cache.invalidate();
+    return true;
+  }
+
+  /** Discard the data of all the caches. */
+  public synchronized void invalidateAll() {
+    for (SharedLookupCache cache : caches.values()) {
+      cache.invalidate();
+    }
+  }
+
+  /**
+   * Find a cache by name, without attaching to it.
+   *
+   * @param name the name of the cache
+   * @return the cache or null if no lookup is using it
+   */
+  public synchronized SharedLookupCache find(String name) {
+    return caches.get(name);
+  }
+
+  /**
+   * Gets the names of the caches in the registry
+   *
+   * @return the names of the caches
+   */
+  public synchronized List<String> getCacheNames() {
+    return new ArrayList<>(caches.keySet());
+  }
+
+  /** Remove all the caches, for example when the server shuts down. */
+  public synchronized void clear() {
+    invalidateAll();
+    caches.clear();
+  }
+}
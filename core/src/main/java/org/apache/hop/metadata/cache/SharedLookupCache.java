@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.metadata.cache;
+
+/**
+ * A named lookup cache in the {@link LookupCacheRegistry}. It counts the lookup transforms and
+ * workflow actions attached to it and hands out the current {@link LookupCacheData}. New data is
+ * created when the cache is used for the first time, after it was invalidated and after the data
+ * expired.
+ */
+public class SharedLookupCache {
+  private final String name;
+
+  private long maxRows;
+  private long maxMemory;
+  private long timeToLiveMs;
+  private boolean releasingWhenUnused;
+
+  private int references;
+  private LookupCacheData data;
+
+  SharedLookupCache(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Apply the settings of the last attached user. They are used the next time new data is created.
+   */
+  synchronized void configure(
+      long maxRows, long maxMemory, long timeToLiveMs, boolean releasingWhenUnused) {
+    this.maxRows = maxRows;
+    this.maxMemory = maxMemory;
+    this.timeToLiveMs = timeToLiveMs;
+    this.releasingWhenUnused = releasingWhenUnused;
+  }
+
+  synchronized void addReference() {
+    references++;
+  }
+
+  /**
+   * @return the number of references left
+   */
+  synchronized int removeReference() {
+    if (references > 0) {
+      references--;
+    }
+    return references;
+  }
+
+  /**
+   * Gets the current data of the cache. A user should get the data once and keep using it, so that
+   * all its lookups see the same rows.
+   *
+   * @return the current data, new data if there was none or if it expired
+   */
+  public synchronized LookupCacheData getData() {
+    long now = System.currentTimeMillis();
+    if (data == null || data.isExpired(now)) {
+      data = new LookupCacheData(maxRows, maxMemory, timeToLiveMs > 0 ? now + timeToLiveMs : 0L);
+    }
+    return data;
+  }
+
+  /**
+   * Discard the current data. Users which already have the data keep using it, the next call to
+   * {@link #getData()} creates new data.
+   */
+  public synchronized void invalidate() {
+    data = null;
+  }
+
+  /**
+   * Gets name
+   *
+   * @return value of name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the number of lookup transforms and workflow actions attached to the cache
+   *
+   * @return value of references
+   */
+  public synchronized int getReferences() {
+    return references;
+  }
+
+  /**
+   * Gets releasingWhenUnused
+   *
+   * @return value of releasingWhenUnused
+   */
+  public synchronized boolean isReleasingWhenUnused() {
+    return releasingWhenUnused;
+  }
+
+  /**
+   * See if the cache currently holds data, without creating it.
+   *
+   * @return true if there is data which didn't expire
+   */
+  public synchronized boolean hasData() {
+    return data != null && !data.isExpired(System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.ValueMetaAndData;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.junit.rules.RestoreHopEnvironment;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledConditionTest {
+  @ClassRule public static RestoreHopEnvironment env = new RestoreHopEnvironment();
+
+  private static IRowMeta createRowMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("int1"));
+    rowMeta.addValueMeta(new ValueMetaInteger("int2"));
+    rowMeta.addValueMeta(new ValueMetaNumber("num1"));
+    rowMeta.addValueMeta(new ValueMetaNumber("num2"));
+    rowMeta.addValueMeta(new ValueMetaString("str1"));
+    rowMeta.addValueMeta(new ValueMetaString("str2"));
+    return rowMeta;
+  }
+
+  private static Object[][] createRows(int nrRows) {
+    Random random = new Random(13);
+    String[] strings = {"apple", "banana", "cherry", "apricot", "", "a.b", "Banana"};
+    Object[][] rows = new Object[nrRows][];
+    for (int i = 0; i < nrRows; i++) {
+      rows[i] =
+          new Object[] {
+            random.nextInt(8) == 0 ? null : (long) random.nextInt(10),
+            random.nextInt(8) == 0 ? null : (long) random.nextInt(10),
+            random.nextInt(8) == 0 ? null : random.nextInt(10) / 2.0,
+            random.nextInt(8) == 0 ? null : random.nextInt(10) / 2.0,
+            random.nextInt(8) == 0 ? null : strings[random.nextInt(strings.length)],
+            random.nextInt(8) == 0 ? null : strings[random.nextInt(strings.length)],
+          };
+    }
+    return rows;
+  }
+
+  private static void assertSameOutcome(Condition condition) throws Exception {
+    IRowMeta rowMeta = createRowMeta();
+    CompiledCondition compiled = condition.compile(rowMeta);
+    for (Object[] row : createRows(500)) {
+      assertEquals(
+          condition + " on " + rowMeta.getString(row),
+          outcome(() -> condition.evaluate(rowMeta, row)),
+          outcome(() -> compiled.evaluate(row)));
+    }
+  }
+
+  /** @return the outcome of an evaluation, or the exception it failed with */
+  private static Object outcome(BooleanSupplier evaluation) {
+    try {
+      return evaluation.getAsBoolean();
+    } catch (RuntimeException e) {
+      return RuntimeException.class;
+    }
+  }
+
+  @Test
+  public void testComparisonsWithConstant() throws Exception {
+    for (int function = Condition.FUNC_EQUAL; function <= Condition.FUNC_LARGER_EQUAL; function++) {
+      assertSameOutcome(new Condition("int1", function, null, integer(5L)));
+      assertSameOutcome(
+          new Condition(
+              "num1", function, null, new ValueMetaAndData(new ValueMetaNumber("c"), 2.5)));
+      assertSameOutcome(new Condition("str1", function, null, string("banana")));
+      // A constant of another type is converted
+      assertSameOutcome(new Condition("num1", function, null, integer(3L)));
+    }
+  }
+
+  @Test
+  public void testComparisonsWithField() throws Exception {
+    for (int function = Condition.FUNC_EQUAL; function <= Condition.FUNC_LARGER_EQUAL; function++) {
+      assertSameOutcome(new Condition("int1", function, "int2", null));
+      assertSameOutcome(new Condition("num1", function, "num2", null));
+      assertSameOutcome(new Condition("str1", function, "str2", null));
+      assertSameOutcome(new Condition(true, "int1", function, "int2", null));
+    }
+  }
+
+  @Test
+  public void testStringFunctions() throws Exception {
+    int[] functions = {
+      Condition.FUNC_REGEXP,
+      Condition.FUNC_LIKE,
+      Condition.FUNC_CONTAINS,
+      Condition.FUNC_STARTS_WITH,
+      Condition.FUNC_ENDS_WITH,
+      Condition.FUNC_IN_LIST,
+      Condition.FUNC_NULL,
+      Condition.FUNC_NOT_NULL
+    };
+    String[] constants = {"ap.*", "%an%", "an", "ap", "y", "apple;cherry;a\\;b", "a?b"};
+    for (int function : functions) {
+      for (String constant : constants) {
+        assertSameOutcome(new Condition("str1", function, null, string(constant)));
+      }
+      assertSameOutcome(new Condition("str1", function, "str2", null));
+    }
+  }
+
+  @Test
+  public void testComposite() throws Exception {
+    Condition condition = new Condition();
+    condition.addCondition(new Condition("int1", Condition.FUNC_LARGER, null, integer(3L)));
+    condition.addCondition(
+        new Condition(Condition.OPERATOR_OR, "str1", Condition.FUNC_LIKE, null, string("%an%")));
+    condition.addCondition(
+        new Condition(Condition.OPERATOR_AND_NOT, "num1", Condition.FUNC_NULL, null, null));
+    condition.addCondition(
+        new Condition(Condition.OPERATOR_XOR, "int1", Condition.FUNC_EQUAL, "int2", null));
+    assertSameOutcome(condition);
+
+    condition.setNegated(true);
+    assertSameOutcome(condition);
+  }
+
+  @Test
+  public void testMissingFieldIsFalse() throws Exception {
+    IRowMeta rowMeta = createRowMeta();
+    Condition condition = new Condition(true, "missing", Condition.FUNC_NULL, null, null);
+    assertFalse(condition.compile(rowMeta).evaluate(new Object[6]));
+
+    Condition trueCondition = new Condition("missing", Condition.FUNC_TRUE, null, null);
+    assertTrue(trueCondition.compile(rowMeta).evaluate(new Object[6]));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testInvalidRegularExpressionFailsOnEvaluation() throws Exception {
+    IRowMeta rowMeta = createRowMeta();
+    Condition condition = new Condition("str1", Condition.FUNC_REGEXP, null, string("a(b"));
+    CompiledCondition compiled = condition.compile(rowMeta);
+    compiled.evaluate(new Object[] {null, null, null, null, "abc", null});
+  }
+
+  private static ValueMetaAndData integer(long value) {
+    return new ValueMetaAndData(new ValueMetaInteger("c"), value);
+  }
+
+  private static ValueMetaAndData string(String value) {
+    return new ValueMetaAndData(new ValueMetaString("c"), value);
+  }
+}
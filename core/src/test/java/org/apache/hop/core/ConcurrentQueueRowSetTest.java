@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.RowMeta;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ConcurrentQueueRowSetTest {
+  Object[] row;
+  ConcurrentQueueRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowSet = new ConcurrentQueueRowSet();
+    row = new Object[] {};
+  }
+
+  @Test
+  public void testPutRow() throws Exception {
+    rowSet.putRow(new RowMeta(), row);
+    assertSame(row, rowSet.getRow());
+    assertNull(rowSet.getRow());
+  }
+
+  @Test
+  public void testPutRowWait() throws Exception {
+    rowSet.putRowWait(new RowMeta(), row, 1, TimeUnit.SECONDS);
+    assertSame(row, rowSet.getRowWait(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testGetRowImmediate() throws Exception {
+    rowSet.putRow(new RowMeta(), row);
+    assertSame(row, rowSet.getRowImmediate());
+  }
+
+  @Test
+  public void testSize() throws Exception {
+    assertEquals(0, rowSet.size());
+    rowSet.putRow(new RowMeta(), row);
+    assertEquals(1, rowSet.size());
+    rowSet.putRow(new RowMeta(), row);
+    assertEquals(2, rowSet.size());
+    rowSet.getRow();
+    assertEquals(1, rowSet.size());
+    rowSet.clear();
+    assertEquals(0, rowSet.size());
+  }
+
+  @Test
+  public void testProducerConsumer() throws Exception {
+    final int nrRows = 100000;
+    Thread producer =
+        new Thread(
+            () -> {
+              for (long i = 0; i < nrRows; i++) {
+                rowSet.putRow(new RowMeta(), new Object[] {i});
+              }
+              rowSet.setDone();
+            });
+    producer.start();
+
+    long expected = 0;
+    while (true) {
+      Object[] r = rowSet.getRow();
+      if (r == null) {
+        if (rowSet.isDone() && (r = rowSet.getRow()) == null) {
+          break;
+        }
+        if (r == null) {
+          continue;
+        }
+      }
+      assertEquals(expected++, r[0]);
+    }
+    producer.join();
+    assertEquals(nrRows, expected);
+    assertEquals(0, rowSet.size());
+  }
+}
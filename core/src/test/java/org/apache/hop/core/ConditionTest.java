@@ -18,14 +18,17 @@
 package org.apache.hop.core;
 
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.ValueMetaAndData;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.junit.rules.RestoreHopEnvironment;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -78,4 +81,72 @@ public class ConditionTest {
     condition = new Condition(left, Condition.FUNC_SMALLER_EQUAL, null, rightExact);
     assertFalse(condition.evaluate(rowMeta1, new Object[] {null, "test"}));
   }
+
+  @Test
+  public void testBatchEvaluationMatchesRowEvaluation() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("i1"));
+    rowMeta.addValueMeta(new ValueMetaInteger("i2"));
+    rowMeta.addValueMeta(new ValueMetaNumber("n1"));
+
+    Object[][] rows =
+        new Object[][] {
+          {1L, 1L, 1.5},
+          {2L, null, -2.0},
+          {null, 3L, null},
+          {null, null, 0.0},
+          {-5L, 4L, Double.NaN},
+          {10L, 10L, 10.0},
+        };
+    RowBatch batch = new RowBatch(rowMeta, rows.length);
+    batch.setRows(rows, rows.length);
+
+    ValueMetaAndData five = new ValueMetaAndData(new ValueMetaInteger("five"), 5L);
+    ValueMetaAndData half = new ValueMetaAndData(new ValueMetaNumber("half"), 0.5);
+    for (int function = Condition.FUNC_EQUAL; function <= Condition.FUNC_NOT_NULL; function++) {
+      if (function == Condition.FUNC_REGEXP) {
+        continue;
+      }
+      assertSameOutcome(new Condition("i1", function, "i2", null), rowMeta, rows, batch);
+      assertSameOutcome(new Condition("i1", function, null, five), rowMeta, rows, batch);
+      assertSameOutcome(new Condition("n1", function, null, half), rowMeta, rows, batch);
+      assertSameOutcome(new Condition("n1", function, null, five), rowMeta, rows, batch);
+      assertSameOutcome(new Condition(true, "i2", function, null, five), rowMeta, rows, batch);
+    }
+
+    Condition composite = new Condition();
+    composite.addCondition(new Condition("i1", Condition.FUNC_LARGER, null, five));
+    Condition or = new Condition("n1", Condition.FUNC_SMALLER_EQUAL, null, half);
+    or.setOperator(Condition.OPERATOR_OR);
+    composite.addCondition(or);
+    Condition andNot = new Condition("i2", Condition.FUNC_NULL, null, null);
+    andNot.setOperator(Condition.OPERATOR_AND_NOT);
+    composite.addCondition(andNot);
+    assertSameOutcome(composite, rowMeta, rows, batch);
+
+    composite.negate();
+    assertSameOutcome(composite, rowMeta, rows, batch);
+  }
+
+  @Test
+  public void testBatchEvaluationFallsBackForStrings() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaString("s"));
+    RowBatch batch = new RowBatch(rowMeta, 1);
+    batch.setRows(new Object[][] {{"a"}}, 1);
+
+    ValueMetaAndData a = new ValueMetaAndData(new ValueMetaString("a"), "a");
+    assertFalse(
+        new Condition("s", Condition.FUNC_EQUAL, null, a).evaluate(batch, new boolean[1]));
+  }
+
+  private static void assertSameOutcome(
+      Condition condition, IRowMeta rowMeta, Object[][] rows, RowBatch batch) {
+    boolean[] result = new boolean[rows.length];
+    assertTrue(condition.toString(), condition.evaluate(batch, result));
+    for (int i = 0; i < rows.length; i++) {
+      assertEquals(
+          condition + " for row " + i, condition.evaluate(rowMeta, rows[i]), result[i]);
+    }
+  }
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.junit.rules.RestoreHopEnvironment;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for the lock-free ring buffer row set. */
+public class RingBufferRowSetTest {
+  @ClassRule public static RestoreHopEnvironment env = new RestoreHopEnvironment();
+
+  private static final int NR_TRANSFER_ROWS = 5000;
+
+  public IRowMeta createRowMetaInterface() {
+    IRowMeta rm = new RowMeta();
+    rm.addValueMeta(new ValueMetaInteger("ROWNR"));
+    return rm;
+  }
+
+  /** The basic stuff. */
+  @Test
+  public void testBasicCreation() {
+    RingBufferRowSet set = new RingBufferRowSet(10);
+
+    assertFalse(set.isDone());
+    assertEquals(0, set.size());
+    assertEquals(16, set.getCapacity());
+    assertEquals(RowSetWaitStrategy.Park, set.getWaitStrategy());
+  }
+
+  /** Fill up the buffer, make sure it refuses more rows and hands them back in order. */
+  @Test
+  public void testFullAndEmpty() {
+    RingBufferRowSet set = new RingBufferRowSet(4, RowSetWaitStrategy.Yield);
+    IRowMeta rm = createRowMetaInterface();
+
+    assertNull(set.getRowImmediate());
+    assertNull(set.getRowWait(1, TimeUnit.MILLISECONDS));
+
+    for (long i = 0; i < 4; i++) {
+      assertTrue(set.putRowWait(rm, new Object[] {i}, 1, TimeUnit.MILLISECONDS));
+    }
+    assertEquals(4, set.size());
+    assertFalse(set.putRowWait(rm, new Object[] {4L}, 1, TimeUnit.MILLISECONDS));
+    assertSame(rm, set.getRowMeta());
+
+    for (long i = 0; i < 4; i++) {
+      assertEquals(i, set.getRowImmediate()[0]);
+    }
+    assertEquals(0, set.size());
+    assertNull(set.getRowImmediate());
+  }
+
+  /** Make sure the indexes wrap around the end of the buffer correctly. */
+  @Test
+  public void testWrapAround() {
+    RingBufferRowSet set = new RingBufferRowSet(2, RowSetWaitStrategy.Spin);
+    IRowMeta rm = createRowMetaInterface();
+
+    for (long i = 0; i < 100; i++) {
+      assertTrue(set.putRow(rm, new Object[] {i}));
+      assertEquals(1, set.size());
+      assertEquals(i, set.getRow()[0]);
+    }
+  }
+
+  /** Rows put and taken in batches, including a batch which doesn't fit. */
+  @Test
+  public void testBatches() {
+    RingBufferRowSet set = new RingBufferRowSet(8);
+    IRowMeta rm = createRowMetaInterface();
+
+    Object[][] rows = new Object[12][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = new Object[] {(long) i};
+    }
+    assertEquals(0, set.getRowsImmediate(new Object[4][], 0, 4));
+    assertEquals(5, set.putRows(rm, rows, 0, 5));
+    assertEquals(3, set.putRows(rm, rows, 5, 7));
+    assertEquals(8, set.size());
+
+    Object[][] target = new Object[10][];
+    assertEquals(6, set.getRowsImmediate(target, 1, 6));
+    assertNull(target[0]);
+    for (int i = 0; i < 6; i++) {
+      assertSame(rows[i], target[i + 1]);
+    }
+    assertEquals(4, set.putRows(rm, rows, 8, 4));
+    assertEquals(6, set.getRowsImmediate(target, 0, 10));
+    for (int i = 0; i < 6; i++) {
+      assertSame(rows[i + 6], target[i]);
+    }
+    assertEquals(0, set.size());
+  }
+
+  @Test
+  public void testClear() {
+    RingBufferRowSet set = new RingBufferRowSet(4);
+    IRowMeta rm = createRowMetaInterface();
+
+    set.putRow(rm, new Object[] {1L});
+    set.putRow(rm, new Object[] {2L});
+    set.setDone();
+    set.clear();
+
+    assertFalse(set.isDone());
+    assertEquals(0, set.size());
+    assertNull(set.getRowImmediate());
+  }
+
+  /** One producer and one consumer thread for every wait strategy, rows must arrive in order. */
+  @Test
+  public void testConcurrentOrdering() throws Exception {
+    for (RowSetWaitStrategy strategy : RowSetWaitStrategy.values()) {
+      RingBufferRowSet set = new RingBufferRowSet(64, strategy);
+      assertEquals(NR_TRANSFER_ROWS, transfer(set, NR_TRANSFER_ROWS));
+    }
+  }
+
+  /** The ring buffer hands over rows like the blocking row sets it replaces. */
+  @Test
+  public void testSameRowsAsBlockingRowSets() throws Exception {
+    IRowSet[] sets = {
+      new BlockingRowSet(Const.ROWS_IN_ROWSET),
+      new BlockingBatchingRowSet(Const.ROWS_IN_ROWSET),
+      new RingBufferRowSet(Const.ROWS_IN_ROWSET, RowSetWaitStrategy.Park)
+    };
+    for (IRowSet set : sets) {
+      assertEquals(NR_TRANSFER_ROWS, transfer(set, NR_TRANSFER_ROWS));
+    }
+  }
+
+  /**
+   * Pass the given number of rows from a producer thread to the calling thread.
+   *
+   * @return the number of rows received in the correct order
+   */
+  private long transfer(IRowSet set, int nrRows) throws Exception {
+    IRowMeta rm = createRowMetaInterface();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+
+    Thread producer =
+        new Thread(
+            () -> {
+              try {
+                for (long i = 0; i < nrRows; i++) {
+                  Object[] row = new Object[] {i};
+                  while (!set.putRow(rm, row)) {
+                    // retry, just like BaseTransform does
+                  }
+                }
+                set.setDone();
+              } catch (Throwable e) {
+                error.set(e);
+              }
+            });
+    producer.start();
+
+    long expected = 0;
+    while (true) {
+      Object[] row = set.getRow();
+      if (row == null) {
+        if (set.isDone() && set.size() == 0) {
+          break;
+        }
+        continue;
+      }
+      assertEquals(expected, row[0]);
+      expected++;
+    }
+    producer.join();
+    assertNull(error.get());
+    return expected;
+  }
+}
@@ -172,4 +172,30 @@ public class RowSetTest {
     assertEquals(set.toString(), set.getName());
     assertEquals("from.2 - to.3", set.getName());
   }
+
+  /** Take several rows at once. */
+  @Test
+  public void testGetRowsImmediate() {
+    IRowSet set = new BlockingRowSet(5);
+
+    IRowMeta rm = createRowMetaInterface();
+
+    Object[][] rows = new Object[5][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = new Object[] {Long.valueOf(i)};
+    }
+    assertEquals(5, set.putRows(rm, rows, 0, 5));
+    assertEquals(5, set.size());
+
+    Object[][] target = new Object[4][];
+    assertEquals(3, set.getRowsImmediate(target, 1, 3));
+    assertEquals(2, set.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(rows[i], target[i + 1]);
+    }
+    assertEquals(2, set.getRowsImmediate(target, 0, 4));
+    assertEquals(rows[3], target[0]);
+    assertEquals(rows[4], target[1]);
+    assertEquals(0, set.getRowsImmediate(target, 0, 4));
+  }
 }
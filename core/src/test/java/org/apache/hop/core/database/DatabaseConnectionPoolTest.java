@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.database;
+
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.logging.HopLogStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DatabaseConnectionPoolTest {
+
+  private AtomicInteger created;
+  private List<FakeConnection> connections;
+  private DatabaseConnectionPool pool;
+
+  /** The state of a connection created by {@link #createConnection()} */
+  private static class FakeConnection {
+    boolean closed;
+    boolean valid = true;
+    boolean autoCommit = true;
+    int rollbacks;
+  }
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    // The pool logs the connections which leak
+    //
+    HopLogStore.init();
+  }
+
+  @Before
+  public void setUp() {
+    created = new AtomicInteger();
+    connections = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  private Connection createConnection() {
+    created.incrementAndGet();
+    FakeConnection state = new FakeConnection();
+    synchronized (connections) {
+      connections.add(state);
+    }
+    return (Connection)
+        Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "close":
+                  state.closed = true;
+                  return null;
+                case "isClosed":
+                  return state.closed;
+                case "isValid":
+                  return state.valid && !state.closed;
+                case "getAutoCommit":
+                  return state.autoCommit;
+                case "setAutoCommit":
+                  state.autoCommit = (Boolean) args[0];
+                  return null;
+                case "rollback":
+                  state.rollbacks++;
+                  return null;
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "equals":
+                  return proxy == args[0];
+                default:
+                  return null;
+              }
+            });
+  }
+
+  private DatabaseConnectionPool createPool(String... settings) {
+    Properties properties = new Properties();
+    properties.put(DatabaseConnectionPool.PARAMETER_TIME_BETWEEN_EVICTION_RUNS, "0");
+    properties.put(DatabaseConnectionPool.PARAMETER_VALIDATION_INTERVAL, "0");
+    for (int i = 0; i < settings.length; i += 2) {
+      properties.put(settings[i], settings[i + 1]);
+    }
+    return new DatabaseConnectionPool("test", properties, this::createConnection);
+  }
+
+  @Test
+  public void testReuseConnection() throws Exception {
+    pool = createPool();
+    DatabaseConnectionPool.PooledConnection first = pool.borrow();
+    Connection connection = first.getConnection();
+    first.release();
+
+    DatabaseConnectionPool.PooledConnection second = pool.borrow();
+    assertSame(connection, second.getConnection());
+    assertEquals(1, created.get());
+    assertEquals(1, pool.getNumActive());
+    second.release();
+    assertEquals(0, pool.getNumActive());
+    assertEquals(1, pool.getNumIdle());
+    assertEquals(2L, (long) pool.getStatistics().get("borrowed"));
+  }
+
+  @Test
+  public void testResetOnRelease() throws Exception {
+    pool = createPool();
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    pooled.getConnection().setAutoCommit(false);
+    pooled.release();
+
+    assertEquals(1, connections.get(0).rollbacks);
+    assertTrue(connections.get(0).autoCommit);
+  }
+
+  @Test
+  public void testValidationFailure() throws Exception {
+    pool = createPool();
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    Connection connection = pooled.getConnection();
+    pooled.release();
+    connections.get(0).valid = false;
+
+    pooled = pool.borrow();
+    assertNotSame(connection, pooled.getConnection());
+    assertTrue(connections.get(0).closed);
+    assertEquals(1L, (long) pool.getStatistics().get("validationFailures"));
+    pooled.release();
+  }
+
+  @Test
+  public void testClosedConnectionIsNotReused() throws Exception {
+    pool = createPool();
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    pooled.getConnection().close();
+    pooled.release();
+    assertEquals(0, pool.getNumIdle());
+  }
+
+  @Test
+  public void testMaxIdle() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_MAX_IDLE, "1");
+    DatabaseConnectionPool.PooledConnection first = pool.borrow();
+    DatabaseConnectionPool.PooledConnection second = pool.borrow();
+    first.release();
+    second.release();
+    assertEquals(1, pool.getNumIdle());
+    assertTrue(connections.get(1).closed);
+  }
+
+  @Test
+  public void testMinIdle() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_MIN_IDLE, "2");
+    assertEquals(2, pool.getNumIdle());
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    pool.evict();
+    assertEquals(2, pool.getNumIdle());
+    assertEquals(3, created.get());
+    pooled.release();
+  }
+
+  @Test
+  public void testEvictIdleConnections() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_MIN_EVICTABLE_IDLE_TIME, "0");
+    pool.borrow().release();
+    assertEquals(1, pool.getNumIdle());
+    pool.evict();
+    assertEquals(0, pool.getNumIdle());
+    assertTrue(connections.get(0).closed);
+  }
+
+  @Test
+  public void testWaitForConnection() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_MAX_ACTIVE, "1");
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+
+    CountDownLatch borrowed = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                pool.borrow().release();
+                borrowed.countDown();
+              } catch (HopDatabaseException e) {
+                // The latch isn't counted down
+              }
+            });
+    thread.start();
+    assertFalse(borrowed.await(100, TimeUnit.MILLISECONDS));
+    pooled.release();
+    assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+    assertEquals(1, created.get());
+    assertEquals(1L, (long) pool.getStatistics().get("waited"));
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    pool =
+        createPool(
+            DatabaseConnectionPool.PARAMETER_MAX_ACTIVE,
+            "1",
+            DatabaseConnectionPool.PARAMETER_MAX_WAIT,
+            "50");
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    try {
+      pool.borrow();
+      fail("The pool should time out");
+    } catch (HopDatabaseException e) {
+      assertEquals(1L, (long) pool.getStatistics().get("timeouts"));
+    }
+    pooled.release();
+  }
+
+  @Test
+  public void testLeakDetection() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_LEAK_DETECTION_THRESHOLD, "1");
+    DatabaseConnectionPool.PooledConnection pooled = pool.borrow();
+    Thread.sleep(10);
+    pool.evict();
+    pool.evict();
+    assertEquals(1L, (long) pool.getStatistics().get("leaks"));
+    pooled.release();
+  }
+
+  @Test
+  public void testConcurrentBorrow() throws Exception {
+    pool = createPool(DatabaseConnectionPool.PARAMETER_MAX_ACTIVE, "4");
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 16; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  for (int i = 0; i < 1000; i++) {
+                    pool.borrow().release();
+                  }
+                } catch (Exception e) {
+                  failed.set(true);
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(failed.get());
+    assertTrue(created.get() <= 4);
+    assertEquals(0, pool.getNumActive());
+    assertEquals(16000L, (long) pool.getStatistics().get("borrowed"));
+  }
+
+  @Test
+  public void testSharedPools() {
+    Properties properties = new Properties();
+    DatabaseConnectionPool.IConnectionFactory factory = this::createConnection;
+    DatabaseConnectionPool one =
+        DatabaseConnectionPool.getPool("jdbc:test", "user", "a", properties, null, factory);
+    DatabaseConnectionPool two =
+        DatabaseConnectionPool.getPool("jdbc:test", "user", "a", properties, null, factory);
+    DatabaseConnectionPool other =
+        DatabaseConnectionPool.getPool("jdbc:test", "user", "b", properties, null, factory);
+    assertSame(one, two);
+    assertNotSame(one, other);
+    DatabaseConnectionPool.closeAll();
+    assertTrue(DatabaseConnectionPool.getPools().isEmpty());
+  }
+}
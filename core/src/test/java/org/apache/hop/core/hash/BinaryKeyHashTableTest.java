@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.hash;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaBinary;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for BinaryKeyEncoder and BinaryKeyHashTable. */
+public class BinaryKeyHashTableTest {
+
+  private IRowMeta createRowMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("int"));
+    rowMeta.addValueMeta(new ValueMetaString("str"));
+    rowMeta.addValueMeta(new ValueMetaNumber("num"));
+    rowMeta.addValueMeta(new ValueMetaDate("date"));
+    rowMeta.addValueMeta(new ValueMetaBigNumber("big"));
+    return rowMeta;
+  }
+
+  private byte[] encode(BinaryKeyEncoder encoder, Object[] row) throws Exception {
+    encoder.encode(row);
+    return Arrays.copyOf(encoder.getKey(), encoder.getLength());
+  }
+
+  @Test
+  public void testEncodedKeysAreEqualForEqualValues() throws Exception {
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(createRowMeta(), null);
+    Object[] row = new Object[] {1L, "héllo", 2.5, new Date(1000L), new BigDecimal("1.5")};
+    byte[] key = encode(encoder, row);
+    long hash = encoder.getHash();
+
+    Object[] copy = new Object[] {1L, "héllo", 2.5, new Date(1000L), new BigDecimal("1.5")};
+    assertArrayEquals(key, encode(encoder, copy));
+    assertEquals(hash, encoder.getHash());
+
+    // Moving a value to the next field or replacing it with a null changes the key
+    //
+    assertFalse(Arrays.equals(key, encode(encoder, new Object[] {1L, "héll", "o", null, null})));
+    Object[] nullString = new Object[] {1L, null, 2.5, new Date(1000L), new BigDecimal("1.5")};
+    assertFalse(Arrays.equals(key, encode(encoder, nullString)));
+    Object[] otherDate = new Object[] {1L, "héllo", 2.5, new Date(1001L), new BigDecimal("1.5")};
+    assertFalse(Arrays.equals(key, encode(encoder, otherDate)));
+  }
+
+  @Test
+  public void testBigNumbersWithADifferentScaleAreEqual() throws Exception {
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(createRowMeta(), new int[] {4});
+    byte[] key = encode(encoder, new Object[] {null, null, null, null, new BigDecimal("1.5")});
+    assertArrayEquals(
+        key, encode(encoder, new Object[] {null, null, null, null, new BigDecimal("1.500")}));
+    assertFalse(
+        Arrays.equals(
+            key, encode(encoder, new Object[] {null, null, null, null, new BigDecimal("15")})));
+  }
+
+  @Test
+  public void testEncodeSelectedFields() throws Exception {
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(createRowMeta(), new int[] {1, 0});
+    byte[] key = encode(encoder, new Object[] {7L, "a", 1.0, null, null});
+    assertArrayEquals(key, encode(encoder, new Object[] {7L, "a", 2.0, new Date(), null}));
+  }
+
+  @Test
+  public void testDecode() throws Exception {
+    IRowMeta rowMeta = createRowMeta();
+    rowMeta.addValueMeta(new ValueMetaBoolean("bool"));
+    rowMeta.addValueMeta(new ValueMetaBinary("bin"));
+    rowMeta.addValueMeta(new ValueMetaTimestamp("ts"));
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(rowMeta, null);
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    Object[] row = {
+      -5L,
+      "héllo € 漢字",
+      1.5,
+      new Date(42L),
+      new BigDecimal("12.340"),
+      true,
+      new byte[] {1, 2, 3},
+      timestamp
+    };
+    byte[] key = encode(encoder, row);
+
+    Object[] decoded = encoder.decode(key, 0);
+    assertEquals(-5L, decoded[0]);
+    assertEquals("héllo € 漢字", decoded[1]);
+    assertEquals(1.5, decoded[2]);
+    assertEquals(new Date(42L), decoded[3]);
+    assertEquals(new BigDecimal("12.34"), decoded[4]);
+    assertEquals(true, decoded[5]);
+    assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) decoded[6]);
+    assertEquals(timestamp, decoded[7]);
+
+    // Nulls, selected fields and a key which doesn't start at the beginning of the buffer
+    //
+    encoder = new BinaryKeyEncoder(rowMeta, new int[] {1, 0});
+    key = encode(encoder, new Object[] {7L, null});
+    byte[] shifted = new byte[key.length + 3];
+    System.arraycopy(key, 0, shifted, 3, key.length);
+    assertArrayEquals(new Object[] {null, 7L}, encoder.decode(shifted, 3));
+  }
+
+  @Test
+  public void testHashIsStable() {
+    byte[] bytes = "Apache Hop".getBytes(StandardCharsets.UTF_8);
+    assertEquals(
+        BinaryKeyEncoder.hash(bytes, 0, bytes.length),
+        BinaryKeyEncoder.hash(bytes.clone(), 0, bytes.length));
+    assertNotEquals(
+        BinaryKeyEncoder.hash(bytes, 0, bytes.length),
+        BinaryKeyEncoder.hash(bytes, 0, bytes.length - 1));
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    for (boolean offHeap : new boolean[] {false, true}) {
+      BinaryKeyHashTable table = new BinaryKeyHashTable(16, offHeap);
+      BinaryKeyEncoder encoder = new BinaryKeyEncoder(createRowMeta(), new int[] {0});
+
+      // Enough entries to resize the index a few times
+      //
+      for (long i = 0; i < 100000; i++) {
+        encoder.encode(new Object[] {i});
+        byte[] value = Long.toString(i).getBytes(StandardCharsets.UTF_8);
+        assertTrue(
+            table.put(
+                encoder.getKey(), encoder.getLength(), encoder.getHash(), value, value.length));
+      }
+      assertEquals(100000, table.getSize());
+
+      for (long i = 0; i < 100000; i++) {
+        encoder.encode(new Object[] {i});
+        byte[] value = table.get(encoder.getKey(), encoder.getLength(), encoder.getHash());
+        assertEquals(Long.toString(i), new String(value, StandardCharsets.UTF_8));
+      }
+      encoder.encode(new Object[] {-1L});
+      assertNull(table.get(encoder.getKey(), encoder.getLength(), encoder.getHash()));
+
+      // Replace values with the same and with a different length
+      //
+      encoder.encode(new Object[] {5L});
+      byte[] value = "6".getBytes(StandardCharsets.UTF_8);
+      assertFalse(
+          table.put(encoder.getKey(), encoder.getLength(), encoder.getHash(), value, value.length));
+      assertArrayEquals(
+          value, table.get(encoder.getKey(), encoder.getLength(), encoder.getHash()));
+      value = "five".getBytes(StandardCharsets.UTF_8);
+      table.put(encoder.getKey(), encoder.getLength(), encoder.getHash(), value, value.length);
+      assertArrayEquals(
+          value, table.get(encoder.getKey(), encoder.getLength(), encoder.getHash()));
+      assertEquals(100000, table.getSize());
+
+      table.clear();
+      assertTrue(table.isEmpty());
+    }
+  }
+
+  @Test
+  public void testAdd() {
+    BinaryKeyHashTable table = new BinaryKeyHashTable();
+    byte[] key = {1, 2, 3};
+    long hash = BinaryKeyEncoder.hash(key, 0, key.length);
+    assertTrue(table.add(key, key.length, hash));
+    assertFalse(table.add(key, key.length, hash));
+    assertTrue(table.add(key, 2, BinaryKeyEncoder.hash(key, 0, 2)));
+
+    // Colliding hashes with different keys are both kept
+    //
+    assertTrue(table.add(new byte[] {9}, 1, hash));
+    assertEquals(3, table.getSize());
+  }
+
+  @Test
+  public void testIntValue() {
+    BinaryKeyHashTable table = new BinaryKeyHashTable();
+    byte[] key = {1, 2, 3};
+    long hash = BinaryKeyEncoder.hash(key, 0, key.length);
+    table.put(key, key.length, hash, new byte[] {0, 1, 0, 2}, 4);
+    assertEquals(65538, table.getIntValue(table.find(key, key.length, hash)));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TinyLfuCacheTest {
+
+  private static byte[] key(long i) {
+    return Long.toString(i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static long hash(byte[] key) {
+    return BinaryKeyEncoder.hash(key, 0, key.length);
+  }
+
+  private static void put(TinyLfuCache<String> cache, long i, long weight, long timeToLive) {
+    byte[] key = key(i);
+    cache.put(key, key.length, hash(key), "value" + i, weight, timeToLive);
+  }
+
+  private static String get(TinyLfuCache<String> cache, long i) {
+    byte[] key = key(i);
+    return cache.get(key, key.length, hash(key));
+  }
+
+  @Test
+  public void testPutAndGet() {
+    TinyLfuCache<String> cache = new TinyLfuCache<>(0, 0);
+    for (long i = 0; i < 1000; i++) {
+      put(cache, i, 1, 0);
+    }
+    assertEquals(1000, cache.getSize());
+    for (long i = 0; i < 1000; i++) {
+      assertEquals("value" + i, get(cache, i));
+    }
+    assertNull(get(cache, 1000));
+
+    // The key bytes are copied and only the valid bytes count
+    //
+    byte[] key = Arrays.copyOf(key(5), 10);
+    cache.put(key, 1, hash(key(5)), "other", 1, 0);
+    Arrays.fill(key, (byte) 0);
+    assertEquals("other", get(cache, 5));
+    assertEquals(1000, cache.getSize());
+
+    assertEquals(1001, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0, cache.getEvictions());
+  }
+
+  @Test
+  public void testMaxEntries() {
+    TinyLfuCache<String> cache = new TinyLfuCache<>(0, 100);
+    for (long i = 0; i < 10000; i++) {
+      put(cache, i, 1, 0);
+      assertTrue(cache.getSize() <= 100);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(9900, cache.getEvictions());
+  }
+
+  @Test
+  public void testMaxWeight() {
+    TinyLfuCache<String> cache = new TinyLfuCache<>(10000, 0);
+    for (long i = 0; i < 10000; i++) {
+      put(cache, i, 10 + i % 90, 0);
+      assertTrue(cache.getWeight() <= 10000);
+    }
+    assertTrue(cache.getSize() > 100);
+
+    // Replacing a value updates the weight
+    //
+    cache.clear();
+    put(cache, 1, 100, 0);
+    put(cache, 1, 50, 0);
+    assertEquals(50, cache.getWeight());
+  }
+
+  @Test
+  public void testFrequentKeysSurviveAScan() {
+    TinyLfuCache<String> cache = new TinyLfuCache<>(0, 100);
+    for (int round = 0; round < 10; round++) {
+      for (long i = 0; i < 50; i++) {
+        if (get(cache, i) == null) {
+          put(cache, i, 1, 0);
+        }
+      }
+    }
+
+    // A lot of keys which are used only once
+    //
+    for (long i = 1000; i < 100000; i++) {
+      if (get(cache, i) == null) {
+        put(cache, i, 1, 0);
+      }
+    }
+
+    int survivors = 0;
+    for (long i = 0; i < 50; i++) {
+      if (get(cache, i) != null) {
+        survivors++;
+      }
+    }
+    assertTrue("Only " + survivors + " frequent keys survived", survivors >= 45);
+  }
+
+  @Test
+  public void testTimeToLive() {
+    long[] now = {1000L};
+    TinyLfuCache<String> cache =
+        new TinyLfuCache<String>(0, 0) {
+          @Override
+          protected long currentTimeMillis() {
+            return now[0];
+          }
+        };
+    put(cache, 1, 1, 500);
+    put(cache, 2, 1, 0);
+
+    now[0] = 1499L;
+    assertEquals("value1", get(cache, 1));
+    now[0] = 1500L;
+    assertNull(get(cache, 1));
+    assertEquals("value2", get(cache, 2));
+    assertEquals(1, cache.getExpirations());
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void testExpiredEntriesAreEvictedFirst() {
+    long[] now = {0L};
+    TinyLfuCache<String> cache =
+        new TinyLfuCache<String>(0, 10) {
+          @Override
+          protected long currentTimeMillis() {
+            return now[0];
+          }
+        };
+    for (long i = 0; i < 10; i++) {
+      put(cache, i, 1, i < 5 ? 100 : 0);
+      get(cache, i);
+      get(cache, i);
+    }
+    now[0] = 200L;
+    for (long i = 10; i < 15; i++) {
+      put(cache, i, 1, 0);
+    }
+    for (long i = 5; i < 10; i++) {
+      assertEquals("value" + i, get(cache, i));
+    }
+    assertEquals(0, cache.getEvictions());
+  }
+
+  @Test
+  public void testValuesInInsertionOrder() {
+    TinyLfuCache<String> cache = new TinyLfuCache<>(0, 0);
+    for (long i = 5; i > 0; i--) {
+      put(cache, i, 1, 0);
+    }
+    get(cache, 3);
+    get(cache, 3);
+    assertEquals(
+        Arrays.asList("value5", "value4", "value3", "value2", "value1"), cache.values());
+  }
+}
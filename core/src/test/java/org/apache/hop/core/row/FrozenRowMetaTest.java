@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.row;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.row.value.ValueMetaBinary;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.junit.rules.RestoreHopEnvironment;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FrozenRowMetaTest {
+  @ClassRule public static RestoreHopEnvironment env = new RestoreHopEnvironment();
+
+  private IRowMeta rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaString("name"));
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    rowMeta.addValueMeta(new ValueMetaDate("birthDate"));
+    rowMeta.addValueMeta(new ValueMetaBinary("picture"));
+  }
+
+  @Test
+  public void testReads() {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+
+    assertTrue(frozen.isFrozen());
+    assertEquals(4, frozen.size());
+    assertFalse(frozen.isEmpty());
+    for (int i = 0; i < rowMeta.size(); i++) {
+      assertSame(rowMeta.getValueMeta(i), frozen.getValueMeta(i));
+    }
+    assertNull(frozen.getValueMeta(-1));
+    assertNull(frozen.getValueMeta(4));
+    assertEquals(rowMeta.getValueMetaList(), frozen.getValueMetaList());
+    assertArrayEquals(rowMeta.getFieldNames(), frozen.getFieldNames());
+    assertEquals(rowMeta, frozen);
+    assertEquals(frozen, rowMeta);
+  }
+
+  @Test
+  public void testIndexOfValue() {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+
+    assertEquals(0, frozen.indexOfValue("name"));
+    assertEquals(1, frozen.indexOfValue("ID"));
+    assertEquals(2, frozen.indexOfValue("BirthDate"));
+    assertEquals(3, frozen.indexOfValue("picture"));
+    assertEquals(-1, frozen.indexOfValue("unknown"));
+    assertEquals(-1, frozen.indexOfValue(null));
+    assertSame(rowMeta.getValueMeta(2), frozen.searchValueMeta("birthdate"));
+    assertNull(frozen.searchValueMeta("unknown"));
+  }
+
+  @Test
+  public void testManyFields() {
+    IRowMeta wide = new RowMeta();
+    for (int i = 0; i < 1000; i++) {
+      wide.addValueMeta(new ValueMetaString("field_" + i));
+    }
+    FrozenRowMeta frozen = new FrozenRowMeta(wide);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, frozen.indexOfValue("FIELD_" + i));
+    }
+    assertEquals(-1, frozen.indexOfValue("field_1000"));
+  }
+
+  @Test
+  public void testRenamedValue() {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+    frozen.getValueMeta(1).setName("key");
+
+    assertEquals(1, frozen.indexOfValue("key"));
+    assertEquals(-1, frozen.indexOfValue("id"));
+    assertTrue(frozen.isFrozen());
+  }
+
+  @Test
+  public void testChangeThaws() throws Exception {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+    frozen.addValueMeta(new ValueMetaString("extra"));
+
+    assertFalse(frozen.isFrozen());
+    assertEquals(5, frozen.size());
+    assertEquals(4, frozen.indexOfValue("extra"));
+    assertEquals(4, rowMeta.size());
+
+    frozen.removeValueMeta("name");
+    assertEquals(4, frozen.size());
+    assertEquals(0, frozen.indexOfValue("id"));
+  }
+
+  @Test
+  public void testCloneIsNotFrozen() {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+    RowMeta clone = frozen.clone();
+
+    assertFalse(clone instanceof FrozenRowMeta);
+    assertEquals(frozen, clone);
+    assertNotSame(frozen.getValueMeta(0), clone.getValueMeta(0));
+  }
+
+  @Test
+  public void testCloneRowAndCompare() throws Exception {
+    FrozenRowMeta frozen = new FrozenRowMeta(rowMeta);
+    Date date = new Date();
+    byte[] picture = new byte[] {1, 2, 3};
+    Object[] row = new Object[] {"john", 1L, date, picture};
+
+    Object[] clone = frozen.cloneRow(row);
+    assertNotSame(row, clone);
+    assertEquals("john", clone[0]);
+    assertEquals(1L, clone[1]);
+    assertEquals(date, clone[2]);
+    assertNotSame(picture, clone[3]);
+    assertArrayEquals(picture, (byte[]) clone[3]);
+
+    Object[] other = new Object[] {"john", 2L, date, picture};
+    assertEquals(0, frozen.compare(row, clone));
+    assertTrue(frozen.compare(row, other) < 0);
+    assertEquals(0, frozen.compare(row, other, new int[] {0, 2}));
+    assertTrue(frozen.equals(row, other, new int[] {0}));
+    assertFalse(frozen.equals(row, other, new int[] {1}));
+    assertEquals(rowMeta.compare(row, other), frozen.compare(row, other));
+    assertEquals(rowMeta.convertedValuesHashCode(row), frozen.convertedValuesHashCode(row));
+  }
+
+  @Test
+  public void testHashIgnoreCase() {
+    assertEquals(
+        FrozenRowMeta.hashIgnoreCase("Field_One"), FrozenRowMeta.hashIgnoreCase("FIELD_one"));
+    assertEquals(
+        FrozenRowMeta.hashIgnoreCase("stra\u00dfe"), FrozenRowMeta.hashIgnoreCase("STRA\u00dfE"));
+  }
+
+  @Test
+  public void testWideRowReads() {
+    IRowMeta wide = new RowMeta();
+    for (int i = 0; i < 50; i++) {
+      wide.addValueMeta(new ValueMetaString("field_" + i));
+    }
+    FrozenRowMeta frozen = new FrozenRowMeta(wide);
+
+    assertEquals(wide.size(), frozen.size());
+    for (int i = 0; i < wide.size(); i++) {
+      assertSame(wide.getValueMeta(i), frozen.getValueMeta(i));
+      assertEquals(i, frozen.indexOfValue("FIELD_" + i));
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.row;
+
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchTest {
+
+  private IRowMeta rowMeta;
+  private Object[][] rows;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    rowMeta.addValueMeta(new ValueMetaNumber("amount"));
+    rowMeta.addValueMeta(new ValueMetaString("code"));
+    rowMeta.addValueMeta(new ValueMetaBoolean("flag"));
+    rowMeta.addValueMeta(new ValueMetaDate("date"));
+
+    rows = new Object[70][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] =
+          new Object[] {
+            i % 7 == 0 ? null : (long) i,
+            i % 5 == 0 ? null : i * 1.5,
+            i % 3 == 0 ? null : "code" + (i % 4),
+            i % 2 == 0,
+            new Date(i)
+          };
+    }
+  }
+
+  @Test
+  public void testEncodings() {
+    RowBatch batch = new RowBatch(rowMeta, 100);
+    batch.setRows(rows, rows.length);
+
+    assertEquals(rows.length, batch.size());
+    assertEquals(RowBatch.ENCODING_LONG, batch.getEncoding(0));
+    assertEquals(RowBatch.ENCODING_DOUBLE, batch.getEncoding(1));
+    assertEquals(RowBatch.ENCODING_DICTIONARY, batch.getEncoding(2));
+    assertEquals(RowBatch.ENCODING_LONG, batch.getEncoding(3));
+    assertEquals(RowBatch.ENCODING_OBJECT, batch.getEncoding(4));
+
+    assertEquals(4, batch.getDictionary(2).size());
+    assertEquals(6L, batch.getLongs(0)[6]);
+    assertEquals(9.0, batch.getDoubles(1)[6], 0.0);
+    assertTrue(batch.isNull(0, 63));
+    assertFalse(batch.isNull(0, 64));
+    assertTrue(batch.isNull(1, 65));
+    assertTrue(batch.hasNulls(2));
+    assertFalse(batch.hasNulls(3));
+  }
+
+  @Test
+  public void testRoundTrip() {
+    RowBatch batch = new RowBatch(rowMeta, 100);
+    batch.setRows(rows, rows.length);
+
+    Object[][] copies = batch.getRows();
+    assertEquals(rows.length, copies.length);
+    for (int i = 0; i < rows.length; i++) {
+      for (int c = 0; c < rowMeta.size(); c++) {
+        assertEquals("row " + i + ", column " + c, rows[i][c], copies[i][c]);
+      }
+    }
+  }
+
+  @Test
+  public void testSelectedColumns() {
+    RowBatch batch = new RowBatch(rowMeta, 100);
+    batch.setRows(rows, 10, 1);
+
+    assertEquals(RowBatch.ENCODING_NONE, batch.getEncoding(0));
+    assertEquals(RowBatch.ENCODING_DOUBLE, batch.getEncoding(1));
+
+    Object[] row = batch.getRow(3, new Object[] {"x", null, "y"});
+    assertArrayEquals(new Object[] {"x", 4.5, "y"}, row);
+  }
+
+  @Test
+  public void testUnexpectedClassFallsBackToObjects() {
+    RowBatch batch = new RowBatch(rowMeta, 10);
+    batch.setRows(new Object[][] {{1L, 1.0}, {Integer.valueOf(2), null}}, 2, 0, 1);
+
+    assertEquals(RowBatch.ENCODING_OBJECT, batch.getEncoding(0));
+    assertEquals(Integer.valueOf(2), batch.getValue(0, 1));
+    assertFalse(batch.isNull(0, 1));
+    assertEquals(RowBatch.ENCODING_DOUBLE, batch.getEncoding(1));
+    assertNull(batch.getValue(1, 1));
+  }
+
+  @Test
+  public void testCalculatedColumn() {
+    RowBatch batch = new RowBatch(rowMeta, 10);
+    batch.setRows(rows, 3, 1);
+
+    long[] ids = batch.newLongColumn(0);
+    ids[1] = 42L;
+    batch.setNull(0, 1, false);
+
+    assertNull(batch.getValue(0, 0));
+    assertEquals(42L, batch.getValue(0, 1));
+    assertNull(batch.getValue(0, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCapacity() {
+    new RowBatch(rowMeta, 10).setRows(rows, rows.length);
+  }
+}
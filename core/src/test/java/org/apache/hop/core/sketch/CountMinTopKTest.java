@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hop.core.sketch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CountMinTopKTest {
+
+  @Test
+  public void testTopK() throws Exception {
+    // A skewed distribution: value i is about twice as frequent as value i+1
+    //
+    Random random = new Random(3);
+    CountMinTopK first = new CountMinTopK(3);
+    CountMinTopK second = new CountMinTopK(3);
+    for (int i = 0; i < 200000; i++) {
+      int value = Math.min(Integer.numberOfTrailingZeros(random.nextInt() | (1 << 30)), 10);
+      String item = value == 10 ? "rare" + random.nextInt(100000) : "value" + value;
+      (i % 2 == 0 ? first : second).add(item);
+    }
+    first.merge(CountMinTopK.fromBytes(second.toBytes()));
+
+    assertEquals(Arrays.asList("value0", "value1", "value2"), first.getTopK());
+    long estimate = first.estimate("value0");
+    assertTrue(estimate >= 100000 * 0.95 && estimate <= 100000 * 1.05);
+  }
+
+  @Test
+  public void testFewValues() {
+    CountMinTopK sketch = new CountMinTopK(5);
+    sketch.add("b");
+    sketch.add("a");
+    sketch.add("b");
+    sketch.add(null);
+    assertEquals(Arrays.asList("b", "a"), sketch.getTopK());
+    assertEquals(2L, sketch.estimate("b"));
+  }
+}
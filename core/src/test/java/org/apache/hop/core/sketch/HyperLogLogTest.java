@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hop.core.sketch;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HyperLogLogTest {
+
+  private static void assertWithin(long expected, long actual, double relativeError) {
+    assertTrue(
+        "expected about " + expected + " but was " + actual,
+        Math.abs(actual - expected) <= expected * relativeError);
+  }
+
+  @Test
+  public void testEstimate() {
+    for (int n : new int[] {100, 10000, 1000000}) {
+      HyperLogLog sketch = new HyperLogLog();
+      for (int i = 0; i < n; i++) {
+        sketch.add("customer-" + i);
+        // Duplicates don't count
+        sketch.add("customer-" + (i / 2));
+      }
+      assertWithin(n, sketch.estimate(), 0.05);
+    }
+    assertEquals(0L, new HyperLogLog().estimate());
+  }
+
+  @Test
+  public void testEqualValues() {
+    HyperLogLog sketch = new HyperLogLog();
+    sketch.add(new BigDecimal("1.0"));
+    sketch.add(new BigDecimal("1.00"));
+    sketch.add(0.0);
+    sketch.add(-0.0);
+    sketch.add(null);
+    assertEquals(2L, sketch.estimate());
+  }
+
+  @Test
+  public void testMergeSerialized() throws Exception {
+    HyperLogLog first = new HyperLogLog(14);
+    HyperLogLog second = new HyperLogLog(14);
+    for (long i = 0; i < 200000; i++) {
+      first.add(i);
+      second.add(i + 100000);
+    }
+    first.merge(HyperLogLog.fromBytes(second.toBytes()));
+    assertEquals(14, first.getPrecision());
+    assertWithin(300000, first.estimate(), 0.03);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentPrecision() {
+    new HyperLogLog(10).merge(new HyperLogLog(12));
+  }
+}
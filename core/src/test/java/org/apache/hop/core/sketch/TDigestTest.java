@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hop.core.sketch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TDigestTest {
+
+  /** The difference between the rank of the estimate and the quantile */
+  private static double rankError(double[] sorted, double estimate, double q) {
+    int rank = Arrays.binarySearch(sorted, estimate);
+    if (rank < 0) {
+      rank = -rank - 1;
+    }
+    return Math.abs((double) rank / sorted.length - q);
+  }
+
+  @Test
+  public void testQuantiles() throws Exception {
+    Random random = new Random(1);
+    double[] values = new double[200000];
+    TDigest first = new TDigest();
+    TDigest second = new TDigest();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextGaussian() * 100;
+      (i % 3 == 0 ? first : second).add(values[i]);
+    }
+    first.merge(TDigest.fromBytes(second.toBytes()));
+    Arrays.sort(values);
+
+    assertEquals(values.length, first.size());
+    assertEquals(values[0], first.quantile(0.0), 0.0);
+    assertEquals(values[values.length - 1], first.quantile(1.0), 0.0);
+    for (double q : new double[] {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999}) {
+      double error = rankError(values, first.quantile(q), q);
+      assertTrue("quantile " + q + " is off by " + error, error < 0.005);
+    }
+  }
+
+  @Test
+  public void testFewValues() {
+    TDigest digest = new TDigest();
+    assertTrue(Double.isNaN(digest.quantile(0.5)));
+    digest.add(5.0);
+    assertEquals(5.0, digest.quantile(0.5), 0.0);
+    digest.add(Double.NaN);
+    assertEquals(1L, digest.size());
+  }
+
+  @Test
+  public void testFixedSize() {
+    TDigest digest = new TDigest();
+    for (int i = 0; i < 1000000; i++) {
+      digest.add(i);
+    }
+    assertTrue(digest.toBytes().length < 5000);
+    assertEquals(500000.0, digest.quantile(0.5), 5000.0);
+  }
+}
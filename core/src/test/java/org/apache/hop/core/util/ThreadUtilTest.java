@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.core.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class ThreadUtilTest {
+
+  @Test
+  public void testPlatformThread() throws Exception {
+    AtomicReference<Thread> ran = new AtomicReference<>();
+    Thread thread = ThreadUtil.newThread(() -> ran.set(Thread.currentThread()), "platform", false);
+
+    assertEquals("platform", thread.getName());
+    assertFalse(ThreadUtil.isVirtual(thread));
+
+    thread.start();
+    thread.join();
+    assertSame(thread, ran.get());
+  }
+
+  @Test
+  public void testVirtualThread() throws Exception {
+    AtomicReference<Thread> ran = new AtomicReference<>();
+    Thread thread = ThreadUtil.newThread(() -> ran.set(Thread.currentThread()), "virtual", true);
+
+    // Falls back to a platform thread on older Java runtimes
+    //
+    assertEquals("virtual", thread.getName());
+    assertEquals(ThreadUtil.isVirtualThreadSupported(), ThreadUtil.isVirtual(thread));
+
+    thread.start();
+    thread.join();
+    assertSame(thread, ran.get());
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.metadata.cache;
+
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.core.variables.Variables;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LookupCacheRegistryTest {
+
+  private final IVariables variables = new Variables();
+
+  @After
+  public void tearDown() {
+    LookupCacheRegistry.getInstance().clear();
+  }
+
+  private static IRowMeta keyMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    return rowMeta;
+  }
+
+  private static IRowMeta valueMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaString("name"));
+    return rowMeta;
+  }
+
+  @Test
+  public void testSharedData() throws Exception {
+    LookupCache lookupCache = new LookupCache("customers");
+    SharedLookupCache one = lookupCache.attach(variables);
+    SharedLookupCache two = lookupCache.attach(variables);
+    assertSame(one, two);
+    assertEquals(2, one.getReferences());
+
+    LookupCacheData data = one.getData();
+    assertSame(data, two.getData());
+    assertTrue(data.checkLayout(keyMeta(), valueMeta()));
+
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(keyMeta(), null);
+    long evictions = data.getEvictions();
+    data.put(encoder, new Object[] {1L}, new Object[] {"one"});
+    data.put(encoder, new Object[] {2L}, new Object[] {"two"});
+    assertTrue(data.markComplete(evictions));
+
+    LookupCacheData other = two.getData();
+    assertTrue(other.isComplete());
+    assertArrayEquals(new Object[] {"two"}, other.get(encoder, new Object[] {2L}));
+    assertNull(other.get(encoder, new Object[] {3L}));
+  }
+
+  @Test
+  public void testLayout() {
+    LookupCacheData data = new LookupCacheData(0, 0, 0);
+    assertTrue(data.checkLayout(keyMeta(), valueMeta()));
+    assertTrue(data.checkLayout(keyMeta(), valueMeta()));
+
+    // Keys of another type can't use the same data
+    //
+    assertFalse(data.checkLayout(valueMeta(), valueMeta()));
+  }
+
+  @Test
+  public void testInvalidate() {
+    SharedLookupCache cache = new LookupCache("products").attach(variables);
+    LookupCacheData data = cache.getData();
+    assertTrue(LookupCacheRegistry.getInstance().invalidate("products"));
+    assertFalse(cache.hasData());
+    assertNotSame(data, cache.getData());
+
+    assertFalse(LookupCacheRegistry.getInstance().invalidate("unknown"));
+  }
+
+  @Test
+  public void testTimeToLive() {
+    LookupCacheData data = new LookupCacheData(0, 0, 1000L);
+    assertFalse(data.isExpired(999L));
+    assertTrue(data.isExpired(1000L));
+    assertFalse(new LookupCacheData(0, 0, 0).isExpired(Long.MAX_VALUE));
+
+    LookupCache lookupCache = new LookupCache("stores");
+    lookupCache.setTimeToLive("${TTL}");
+    variables.setVariable("TTL", "60");
+    assertEquals(60000L, lookupCache.calculateTimeToLiveMs(variables));
+  }
+
+  @Test
+  public void testReleaseWhenUnused() {
+    LookupCacheRegistry registry = LookupCacheRegistry.getInstance();
+
+    LookupCache kept = new LookupCache("kept");
+    SharedLookupCache keptCache = kept.attach(variables);
+    keptCache.getData();
+    registry.release(keptCache);
+    assertSame(keptCache, registry.find("kept"));
+    assertTrue(keptCache.hasData());
+
+    LookupCache released = new LookupCache("released");
+    released.setReleasingWhenUnused(true);
+    SharedLookupCache one = released.attach(variables);
+    SharedLookupCache two = released.attach(variables);
+    one.getData();
+    registry.release(one);
+    assertSame(two, registry.find("released"));
+    registry.release(two);
+    assertNull(registry.find("released"));
+    assertFalse(two.hasData());
+  }
+
+  @Test
+  public void testMaxRows() throws Exception {
+    LookupCache lookupCache = new LookupCache("small");
+    lookupCache.setMaxRows("100");
+    LookupCacheData data = lookupCache.attach(variables).getData();
+    assertTrue(data.checkLayout(keyMeta(), valueMeta()));
+
+    BinaryKeyEncoder encoder = new BinaryKeyEncoder(keyMeta(), null);
+    long evictions = data.getEvictions();
+    for (long i = 0; i < 1000; i++) {
+      data.put(encoder, new Object[] {i}, new Object[] {"value" + i});
+    }
+    assertTrue(data.getSize() <= 112);
+    assertFalse(data.markComplete(evictions));
+    assertFalse(data.isComplete());
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline;
+
+import org.apache.hop.core.ConcurrentQueueRowSet;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.pipeline.transform.ITransform;
+import org.apache.hop.pipeline.transform.RunThread;
+import org.apache.hop.pipeline.transform.TransformMetaDataCombi;
+import org.apache.hop.pipeline.transform.stream.IStream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the transforms of a single threaded pipeline on a fixed pool of worker threads instead of
+ * one thread per transform. A transform is handed to a worker when it has rows waiting on its input
+ * and room on its output. The worker calls processRow() for a slice of rows and then moves on to
+ * another transform. Idle workers steal waiting transforms from busy ones so a small pipeline uses
+ * all the cores it is given. A transform never runs on two workers at the same time.
+ *
+ * <p>The row sets of the pipeline need to be thread-safe and should never wait, see {@link
+ * ConcurrentQueueRowSet}. The size of the pipeline row sets is used as a soft limit: a transform
+ * with that many rows waiting on one of its outputs isn't scheduled until they are read. Rows for a
+ * transform which is still waiting for its info rows, like Stream lookup or Merge join, are not
+ * limited since that transform can't read them yet.
+ */
+public class CooperativePipelineExecutor {
+
+  /** The maximum number of processRow() calls before a worker moves on to another transform */
+  public static final int SLICE_SIZE = 100;
+
+  /** The interval in ms at which waiting transforms are looked at again as a safety net */
+  private static final long CHECK_INTERVAL = 100L;
+
+  private final Pipeline pipeline;
+  private final int nrWorkers;
+  private final ILogChannel log;
+  private final int rowSetLimit;
+  private final List<TransformTask> tasks;
+
+  private ForkJoinPool pool;
+  private CountDownLatch finishedLatch;
+
+  public CooperativePipelineExecutor(Pipeline pipeline, int nrWorkers) {
+    this.pipeline = pipeline;
+    this.nrWorkers = Math.max(1, nrWorkers);
+    this.log = pipeline.getLogChannel();
+    this.rowSetLimit = Math.max(1, pipeline.getRowSetSize());
+    this.tasks = new ArrayList<>();
+
+    // Start with the first transforms so the workers don't look at empty row sets first.
+    //
+    List<TransformMetaDataCombi> combis =
+        Pipeline.sortTopologically(pipeline.getPipelineMeta(), pipeline.getTransforms());
+    Map<String, TransformTask> taskMap = new HashMap<>();
+    for (TransformMetaDataCombi combi : combis) {
+      TransformTask task = new TransformTask(combi);
+      tasks.add(task);
+      taskMap.put(combi.transformName + "." + combi.copy, task);
+    }
+    for (TransformTask task : tasks) {
+      task.connect(taskMap);
+    }
+  }
+
+  /**
+   * Run all transforms until they are finished or the pipeline is stopped. The transforms need to
+   * be initialized and the threads of the pipeline started.
+   *
+   * @throws HopException in case we're interrupted while waiting for the transforms
+   */
+  public void execute() throws HopException {
+    finishedLatch = new CountDownLatch(tasks.size());
+    pool =
+        new ForkJoinPool(nrWorkers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    if (log.isDetailed()) {
+      log.logDetailed(
+          "Running " + tasks.size() + " transforms on " + nrWorkers + " worker threads");
+    }
+    try {
+      for (TransformTask task : tasks) {
+        task.schedule();
+      }
+
+      // The transforms wake each other up. We look at the waiting ones now and then in case
+      // rows arrive from outside the pipeline (a row producer) or a transform is stopped.
+      //
+      while (!finishedLatch.await(CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+        for (TransformTask task : tasks) {
+          task.schedule();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while running the transforms of the pipeline", e);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Gets nrWorkers
+   *
+   * @return value of nrWorkers
+   */
+  public int getNrWorkers() {
+    return nrWorkers;
+  }
+
+  /** A transform with the row sets it reads from and writes to. */
+  private final class TransformTask implements Runnable {
+    private final ITransform transform;
+    private final RunThread runThread;
+    private final List<IRowSet> inputRowSets = new ArrayList<>();
+    private final List<IRowSet> infoRowSets = new ArrayList<>();
+    private final List<IRowSet> outputRowSets = new ArrayList<>();
+    private final List<TransformTask> consumers = new ArrayList<>();
+    private final List<TransformTask> producers = new ArrayList<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean finished;
+    private boolean started;
+
+    private TransformTask(TransformMetaDataCombi combi) {
+      this.transform = combi.transform;
+      this.runThread = new RunThread(combi);
+
+      List<IStream> infoStreams =
+          combi.transformMeta.getTransform().getTransformIOMeta().getInfoStreams();
+      for (IStream infoStream : infoStreams) {
+        IRowSet infoRowSet =
+            pipeline.findRowSet(infoStream.getTransformName(), 0, combi.transformName, 0);
+        if (infoRowSet != null) {
+          infoRowSets.add(infoRowSet);
+        }
+      }
+      for (IRowSet rowSet : transform.getInputRowSets()) {
+        if (!infoRowSets.contains(rowSet)) {
+          inputRowSets.add(rowSet);
+        }
+      }
+      outputRowSets.addAll(transform.getOutputRowSets());
+    }
+
+    private void connect(Map<String, TransformTask> taskMap) {
+      for (IRowSet rowSet : outputRowSets) {
+        // Keep the lists aligned, a consumer might be missing in a mapping
+        consumers.add(
+            taskMap.get(
+                rowSet.getDestinationTransformName() + "." + rowSet.getDestinationTransformCopy()));
+      }
+      for (IRowSet rowSet : transform.getInputRowSets()) {
+        TransformTask producer =
+            taskMap.get(rowSet.getOriginTransformName() + "." + rowSet.getOriginTransformCopy());
+        if (producer != null) {
+          producers.add(producer);
+        }
+      }
+    }
+
+    /** Hand this transform to a worker if it can do something and isn't handed over already. */
+    private void schedule() {
+      if (!finished && isRunnable() && scheduled.compareAndSet(false, true)) {
+        // From a worker thread this goes on the local queue of the worker where others can
+        // steal it.
+        pool.execute(this);
+      }
+    }
+
+    private boolean isRunnable() {
+      if (finished) {
+        return false;
+      }
+      if (transform.isStopped()) {
+        return true;
+      }
+
+      // Back pressure: wait until the next transforms read their rows.
+      // A transform waiting for its info rows doesn't read, holding back its producers would
+      // make them wait for each other forever.
+      //
+      for (int i = 0; i < outputRowSets.size(); i++) {
+        TransformTask consumer = consumers.get(i);
+        if (outputRowSets.get(i).size() >= rowSetLimit
+            && consumer != null
+            && !consumer.finished
+            && !consumer.isWaitingForInfo()) {
+          return false;
+        }
+      }
+
+      // Lookup transforms read all of their info rows first.
+      //
+      if (isWaitingForInfo()) {
+        return false;
+      }
+
+      // There are rows to read, or all the rows have been read and the transform needs to finish.
+      //
+      boolean allDone = true;
+      for (IRowSet rowSet : inputRowSets) {
+        if (rowSet.size() > 0) {
+          return true;
+        }
+        allDone = allDone && rowSet.isDone();
+      }
+      return allDone;
+    }
+
+    /** @return true if not all the rows of the info transforms are there yet */
+    private boolean isWaitingForInfo() {
+      for (IRowSet rowSet : infoRowSets) {
+        if (!rowSet.isDone()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runSlice();
+      } finally {
+        scheduled.set(false);
+      }
+
+      // Something might have changed after the last look in runSlice()
+      //
+      schedule();
+      for (TransformTask consumer : consumers) {
+        if (consumer != null) {
+          consumer.schedule();
+        }
+      }
+      for (TransformTask producer : producers) {
+        producer.schedule();
+      }
+    }
+
+    private void runSlice() {
+      if (finished) {
+        return;
+      }
+      boolean done = false;
+      try {
+        if (!started) {
+          started = true;
+          runThread.started();
+        }
+        for (int i = 0; i < SLICE_SIZE && isRunnable(); i++) {
+          if (transform.isStopped() || !transform.processRow()) {
+            done = true;
+            break;
+          }
+        }
+      } catch (Throwable t) {
+        runThread.failed(t);
+        done = true;
+      }
+
+      if (done) {
+        finished = true;
+        try {
+          runThread.finished();
+        } finally {
+          finishedLatch.countDown();
+        }
+      }
+    }
+  }
+}
@@ -30,7 +30,10 @@ import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.QueueRowSet;
 import org.apache.hop.core.Result;
 import org.apache.hop.core.ResultFile;
+import org.apache.hop.core.RingBufferRowSet;
 import org.apache.hop.core.RowMetaAndData;
+import org.apache.hop.core.RowSetType;
+import org.apache.hop.core.RowSetWaitStrategy;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileException;
@@ -58,6 +61,7 @@ import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.RowBuffer;
 import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.util.EnvUtil;
+import org.apache.hop.core.util.ThreadUtil;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.core.variables.Variables;
@@ -100,6 +104,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
@@ -361,6 +366,15 @@ public abstract class Pipeline
 
   protected int rowSetSize;
 
+  /** The type of row set to allocate between transform copies of a normal pipeline. */
+  protected RowSetType rowSetType;
+
+  /** The wait strategy used by lock-free row sets. */
+  protected RowSetWaitStrategy rowSetWaitStrategy;
+
+  /** Run the transform copies and their initialization in virtual threads if supported. */
+  protected boolean usingVirtualThreads;
+
   /** Whether the feedback is shown. */
   protected boolean feedbackShown;
 
@@ -392,6 +406,8 @@ public abstract class Pipeline
     extensionDataMap = new HashMap<>();
 
     rowSetSize = Const.ROWS_IN_ROWSET;
+    rowSetType = RowSetType.Blocking;
+    rowSetWaitStrategy = RowSetWaitStrategy.Park;
 
     dataSamplers = Collections.synchronizedList(new ArrayList<>());
   }
@@ -704,7 +720,17 @@ public abstract class Pipeline
                 Boolean batchingRowSet =
                     ValueMetaString.convertStringToBoolean(
                         System.getProperty(Const.HOP_BATCHING_ROWSET));
-                if (batchingRowSet != null && batchingRowSet.booleanValue()) {
+                if (rowSetType == RowSetType.RingBuffer) {
+                  // Every rowset in a 1:1, 1:N, N:1 or N:N dispatch has exactly one producer
+                  // and one consumer thread so a lock-free ring buffer can be used.
+                  // Spinning virtual threads would hog their carrier threads so those always park.
+                  //
+                  rowSet =
+                      new RingBufferRowSet(
+                          rowSetSize,
+                          usingVirtualThreads ? RowSetWaitStrategy.Park : rowSetWaitStrategy);
+                } else if (rowSetType == RowSetType.Batching
+                    || (batchingRowSet != null && batchingRowSet.booleanValue())) {
                   rowSet = new BlockingBatchingRowSet(rowSetSize);
                 } else {
                   rowSet = new BlockingRowSet(rowSetSize);
@@ -712,7 +738,7 @@ public abstract class Pipeline
                 break;
 
               case SingleThreaded:
-                rowSet = new QueueRowSet();
+                rowSet = createSingleThreadedRowSet();
                 break;
 
               default:
@@ -755,7 +781,12 @@ public abstract class Pipeline
           // distribution...
           for (int s = 0; s < thisCopies; s++) {
             for (int t = 0; t < nextCopies; t++) {
-              BlockingRowSet rowSet = new BlockingRowSet(rowSetSize);
+              IRowSet rowSet;
+              if (pipelineMeta.getPipelineType() == PipelineMeta.PipelineType.SingleThreaded) {
+                rowSet = createSingleThreadedRowSet();
+              } else {
+                rowSet = new BlockingRowSet(rowSetSize);
+              }
               rowSet.setThreadNameFromToCopy(
                   thisTransform.getName(), s, nextTransform.getName(), t);
               rowsets.add(rowSet);
@@ -968,9 +999,9 @@ public abstract class Pipeline
     setPreparing(false);
     setInitializing(true);
 
-    // Do a topology sort... Over 150 transform (copies) things might be slowing down too much.
+    // Do a topology sort...
     //
-    if (isSortingTransformsTopologically() && transforms.size() < 150) {
+    if (isSortingTransformsTopologically()) {
       doTopologySortOfTransforms();
     }
 
@@ -996,7 +1027,7 @@ public abstract class Pipeline
 
       // Put it in a separate thread!
       //
-      threads[i] = new Thread(initThreads[i]);
+      threads[i] = ThreadUtil.newThread(initThreads[i], null, usingVirtualThreads);
       threads[i].setName(
           "init of " + sid.transformName + "." + sid.copy + " (" + threads[i].getName() + ")");
 
@@ -1259,8 +1290,9 @@ public abstract class Pipeline
         //
         for (final TransformMetaDataCombi combi : transforms) {
           RunThread runThread = new RunThread(combi);
-          Thread thread = new Thread(runThread);
-          thread.setName(getName() + " - " + combi.transformName);
+          Thread thread =
+              ThreadUtil.newThread(
+                  runThread, getName() + " - " + combi.transformName, usingVirtualThreads);
           ExtensionPointHandler.callExtensionPoint(
               log, this, HopExtensionPoint.TransformBeforeStart.id, combi);
           // Call an extension point at the end of the transform
@@ -1996,7 +2028,7 @@ public abstract class Pipeline
         rowSet = new BlockingRowSet(rowSetSize);
         break;
       case SingleThreaded:
-        rowSet = new QueueRowSet();
+        rowSet = createSingleThreadedRowSet();
         break;
       default:
         throw new HopException("Unhandled pipeline type: " + pipelineMeta.getPipelineType());
@@ -2008,6 +2040,16 @@ public abstract class Pipeline
     return new RowProducer(transform, rowSet);
   }
 
+  /**
+   * Creates a row set for a single threaded pipeline. Single threaded execution never waits for
+   * room in a row set so these don't have a limited size.
+   *
+   * @return a new row set
+   */
+  protected IRowSet createSingleThreadedRowSet() {
+    return new QueueRowSet();
+  }
+
   /**
    * Gets the parent workflow, or null if there is no parent.
    *
@@ -3040,141 +3082,88 @@ public abstract class Pipeline
   }
 
   public synchronized void doTopologySortOfTransforms() {
-    // The bubble sort algorithm in contrast to the QuickSort or MergeSort
-    // algorithms
-    // does indeed cover all possibilities.
-    // Sorting larger pipelines with hundreds of transforms might be too slow
-    // though.
-    // We should consider caching PipelineMeta.findPrevious() results in that case.
-    //
-    pipelineMeta.clearCaches();
-
-    //
-    // Cocktail sort (bi-directional bubble sort)
-    //
-    // Original sort was taking 3ms for 30 transforms
-    // cocktail sort takes about 8ms for the same 30, but it works :)
-    //
-    int transformsMinSize = 0;
-    int transformsSize = transforms.size();
+    List<TransformMetaDataCombi> sorted = sortTopologically(pipelineMeta, transforms);
+    for (int i = 0; i < sorted.size(); i++) {
+      transforms.set(i, sorted.get(i));
+    }
+  }
 
-    // Noticed a problem with an immediate shrinking iteration window
-    // trapping rows that need to be sorted.
-    // This threshold buys us some time to get the sorting close before
-    // starting to decrease the window size.
-    //
-    // TODO: this could become much smarter by tracking row movement
-    // and reacting to that each outer iteration verses
-    // using a threshold.
-    //
-    // After this many iterations enable trimming inner iteration
-    // window on no change being detected.
-    //
-    int windowShrinkThreshold = (int) Math.round(transformsSize * 0.75);
+  /**
+   * Sort transforms in topological order: every transform comes after the transforms it reads
+   * from, info transforms included. Transforms which don't depend on each other keep their
+   * original order and the copies of a transform stay together. This takes O(transforms + hops)
+   * instead of the quadratic number of findPrevious() calls of a bubble sort.
+   *
+   * @param pipelineMeta The pipeline metadata with the hops
+   * @param combis The transforms to sort
+   * @return A new sorted list with the same transforms
+   */
+  public static List<TransformMetaDataCombi> sortTopologically(
+      PipelineMeta pipelineMeta, List<TransformMetaDataCombi> combis) {
 
-    // give ourselves some room to sort big lists. the window threshold should
-    // stop us before reaching this anyway.
+    // Group the copies per transform in the order in which we first see them
     //
-    int totalIterations = transformsSize * 2;
-
-    boolean isBefore = false;
-    boolean forwardChange = false;
-    boolean backwardChange = false;
-
-    boolean lastForwardChange = true;
-    boolean keepSortingForward = true;
-
-    TransformMetaDataCombi one = null;
-    TransformMetaDataCombi two = null;
-
-    for (int x = 0; x < totalIterations; x++) {
-
-      // Go forward through the list
-      //
-      if (keepSortingForward) {
-        for (int y = transformsMinSize; y < transformsSize - 1; y++) {
-          one = transforms.get(y);
-          two = transforms.get(y + 1);
-
-          if (one.transformMeta.equals(two.transformMeta)) {
-            isBefore = one.copy > two.copy;
-          } else {
-            isBefore = pipelineMeta.findPrevious(one.transformMeta, two.transformMeta);
-          }
-          if (isBefore) {
-            // two was found to be positioned BEFORE one so we need to
-            // switch them...
-            //
-            transforms.set(y, two);
-            transforms.set(y + 1, one);
-            forwardChange = true;
-          }
-        }
+    Map<TransformMeta, Integer> indexes = new HashMap<>();
+    List<List<TransformMetaDataCombi>> groups = new ArrayList<>();
+    for (TransformMetaDataCombi combi : combis) {
+      Integer index = indexes.get(combi.transformMeta);
+      if (index == null) {
+        index = groups.size();
+        indexes.put(combi.transformMeta, index);
+        groups.add(new ArrayList<>());
       }
+      groups.get(index).add(combi);
+    }
 
-      // Go backward through the list
-      //
-      for (int z = transformsSize - 1; z > transformsMinSize; z--) {
-        one = transforms.get(z);
-        two = transforms.get(z - 1);
-
-        if (one.transformMeta.equals(two.transformMeta)) {
-          isBefore = one.copy > two.copy;
-        } else {
-          isBefore = pipelineMeta.findPrevious(one.transformMeta, two.transformMeta);
-        }
-        if (!isBefore) {
-          // two was found NOT to be positioned BEFORE one so we need to
-          // switch them...
-          //
-          transforms.set(z, two);
-          transforms.set(z - 1, one);
-          backwardChange = true;
-        }
+    int nrTransforms = groups.size();
+    int[] inDegree = new int[nrTransforms];
+    List<List<Integer>> next = new ArrayList<>(nrTransforms);
+    for (int i = 0; i < nrTransforms; i++) {
+      next.add(new ArrayList<>());
+    }
+    for (int h = 0; h < pipelineMeta.nrPipelineHops(); h++) {
+      PipelineHopMeta hop = pipelineMeta.getPipelineHop(h);
+      if (!hop.isEnabled()) {
+        continue;
       }
-
-      // Shrink transformsSize(max) if there was no forward change
-      //
-      if (x > windowShrinkThreshold && !forwardChange) {
-
-        // should we keep going? check the window size
-        //
-        transformsSize--;
-        if (transformsSize <= transformsMinSize) {
-          break;
-        }
+      Integer from = indexes.get(hop.getFromTransform());
+      Integer to = indexes.get(hop.getToTransform());
+      if (from == null || to == null || from.equals(to)) {
+        continue;
       }
+      next.get(from).add(to);
+      inDegree[to]++;
+    }
 
-      // shrink transformsMinSize(min) if there was no backward change
-      //
-      if (x > windowShrinkThreshold && !backwardChange) {
-
-        // should we keep going? check the window size
-        //
-        transformsMinSize++;
-        if (transformsMinSize >= transformsSize) {
-          break;
-        }
+    // Kahn's algorithm, always picking the first transform in the original order that is ready
+    //
+    PriorityQueue<Integer> ready = new PriorityQueue<>();
+    for (int i = 0; i < nrTransforms; i++) {
+      if (inDegree[i] == 0) {
+        ready.add(i);
       }
-
-      // End of both forward and backward traversal.
-      // Time to see if we should keep going.
-      //
-      if (!forwardChange && !backwardChange) {
-        break;
+    }
+    List<TransformMetaDataCombi> sorted = new ArrayList<>(combis.size());
+    boolean[] added = new boolean[nrTransforms];
+    while (!ready.isEmpty()) {
+      int index = ready.poll();
+      added[index] = true;
+      sorted.addAll(groups.get(index));
+      for (int to : next.get(index)) {
+        if (--inDegree[to] == 0) {
+          ready.add(to);
+        }
       }
+    }
 
-      //
-      // if we are past the first iteration and there has been no change twice,
-      // quit doing it!
-      //
-      if (keepSortingForward && x > 0 && !lastForwardChange && !forwardChange) {
-        keepSortingForward = false;
+    // Loops aren't allowed in a pipeline. If there is one anyway, keep the rest in their order.
+    //
+    for (int i = 0; i < nrTransforms; i++) {
+      if (!added[i]) {
+        sorted.addAll(groups.get(i));
       }
-      lastForwardChange = forwardChange;
-      forwardChange = false;
-      backwardChange = false;
-    } // finished sorting
+    }
+    return sorted;
   }
 
   /**
@@ -3315,6 +3304,10 @@ public abstract class Pipeline
             metrics.setComponentMetric(
                 combi.transform, METRIC_REJECTED, combi.transform.getLinesRejected());
             metrics.setComponentMetric(combi.transform, METRIC_ERROR, combi.transform.getErrors());
+            for (Map.Entry<IEngineMetric, Long> entry :
+                combi.transform.getCustomMetrics().entrySet()) {
+              metrics.setComponentMetric(combi.transform, entry.getKey(), entry.getValue());
+            }
 
             long inputBufferSize = 0;
             for (IRowSet rowSet : transform.getInputRowSets()) {
@@ -3501,6 +3494,54 @@ public abstract class Pipeline
     this.rowSetSize = rowSetSize;
   }
 
+  /**
+   * Gets rowSetType
+   *
+   * @return value of rowSetType
+   */
+  public RowSetType getRowSetType() {
+    return rowSetType;
+  }
+
+  /**
+   * @param rowSetType The rowSetType to set
+   */
+  public void setRowSetType(RowSetType rowSetType) {
+    this.rowSetType = rowSetType;
+  }
+
+  /**
+   * Gets usingVirtualThreads
+   *
+   * @return value of usingVirtualThreads
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads;
+  }
+
+  /**
+   * @param usingVirtualThreads The usingVirtualThreads to set
+   */
+  public void setUsingVirtualThreads(boolean usingVirtualThreads) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
+  /**
+   * Gets rowSetWaitStrategy
+   *
+   * @return value of rowSetWaitStrategy
+   */
+  public RowSetWaitStrategy getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * @param rowSetWaitStrategy The rowSetWaitStrategy to set
+   */
+  public void setRowSetWaitStrategy(RowSetWaitStrategy rowSetWaitStrategy) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy;
+  }
+
   /**
    * Gets feedbackShown
    *
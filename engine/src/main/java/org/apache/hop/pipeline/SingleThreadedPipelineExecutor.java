@@ -84,197 +84,31 @@ public class SingleThreadedPipelineExecutor {
 
   /** Sort the transforms from start to finish... */
   private void sortTransforms() {
-
-    // The bubble sort algorithm in contrast to the QuickSort or MergeSort
-    // algorithms
-    // does indeed cover all possibilities.
-    // Sorting larger pipelines with hundreds of transforms might be too slow
-    // though.
-    // We should consider caching PipelineMeta.findPrevious() results in that case.
-    //
-    pipeline.getPipelineMeta().clearCaches();
-
-    //
-    // Cocktail sort (bi-directional bubble sort)
-    //
-    // Original sort was taking 3ms for 30 transforms
-    // cocktail sort takes about 8ms for the same 30, but it works :)
-
-    // set these to true if you are working on this algorithm and don't like
-    // flying blind.
-    //
-    boolean testing = true; // log sort details
-
-    int transformsMinSize = 0;
-    int transformsSize = transforms.size();
-
-    // Noticed a problem with an immediate shrinking iteration window
-    // trapping rows that need to be sorted.
-    // This threshold buys us some time to get the sorting close before
-    // starting to decrease the window size.
-    //
-    // TODO: this could become much smarter by tracking row movement
-    // and reacting to that each outer iteration verses
-    // using a threshold.
-    //
-    // After this many iterations enable trimming inner iteration
-    // window on no change being detected.
-    //
-    int windowShrinkThreshold = (int) Math.round(transformsSize * 0.75);
-
-    // give ourselves some room to sort big lists. the window threshold should
-    // stop us before reaching this anyway.
-    //
-    int totalIterations = transformsSize * 2;
-    int actualIterations = 0;
-
-    boolean isBefore = false;
-    boolean forwardChange = false;
-    boolean backwardChange = false;
-
-    boolean lastForwardChange = true;
-    boolean keepSortingForward = true;
-
-    TransformMetaDataCombi one = null;
-    TransformMetaDataCombi two = null;
-
-    StringBuilder tLogString = new StringBuilder(); // this helps group our
-    // output so other threads
-    // don't get logs in our
-    // output.
-    tLogString.append("-------------------------------------------------------").append("\n");
-    tLogString.append("--SingleThreadedPipelineExecutor.sortTransforms(cocktail)").append("\n");
-    tLogString.append("--Pipeline: ").append(pipeline.getName()).append("\n");
-    tLogString.append("-").append("\n");
-
     long startTime = System.currentTimeMillis();
 
-    for (int x = 0; x < totalIterations; x++) {
-
-      // Go forward through the list
-      //
-      if (keepSortingForward) {
-        for (int y = transformsMinSize; y < transformsSize - 1; y++) {
-          one = transforms.get(y);
-          two = transforms.get(y + 1);
-          isBefore = pipeline.getPipelineMeta().findPrevious(one.transformMeta, two.transformMeta);
-          if (isBefore) {
-            // two was found to be positioned BEFORE one so we need to
-            // switch them...
-            //
-            transforms.set(y, two);
-            transforms.set(y + 1, one);
-            forwardChange = true;
-          }
-        }
-      }
-
-      // Go backward through the list
-      //
-      for (int z = transformsSize - 1; z > transformsMinSize; z--) {
-        one = transforms.get(z);
-        two = transforms.get(z - 1);
-
-        isBefore = pipeline.getPipelineMeta().findPrevious(one.transformMeta, two.transformMeta);
-        if (!isBefore) {
-          // two was found NOT to be positioned BEFORE one so we need to
-          // switch them...
-          //
-          transforms.set(z, two);
-          transforms.set(z - 1, one);
-          backwardChange = true;
-        }
-      }
-
-      // Shrink transformsSize(max) if there was no forward change
-      //
-      if (x > windowShrinkThreshold && !forwardChange) {
-
-        // should we keep going? check the window size
-        //
-        transformsSize--;
-        if (transformsSize <= transformsMinSize) {
-          if (testing) {
-            tLogString.append(
-                String.format(
-                    "transformsMinSize:%s  transformsSize:%s", transformsMinSize, transformsSize));
-            tLogString
-                .append(
-                    "transformsSize is <= transformsMinSize.. exiting outer sort loop. index:" + x)
-                .append("\n");
-          }
-          break;
-        }
-      }
-
-      // shrink transformsMinSize(min) if there was no backward change
-      //
-      if (x > windowShrinkThreshold && !backwardChange) {
-
-        // should we keep going? check the window size
-        //
-        transformsMinSize++;
-        if (transformsMinSize >= transformsSize) {
-          if (testing) {
-            tLogString
-                .append(
-                    String.format(
-                        "transformsMinSize:%s  transformsSize:%s",
-                        transformsMinSize, transformsSize))
-                .append("\n");
-            tLogString
-                .append(
-                    "transformsMinSize is >= transformsSize.. exiting outer sort loop. index:" + x)
-                .append("\n");
-          }
-          break;
-        }
-      }
-
-      // End of both forward and backward traversal.
-      // Time to see if we should keep going.
-      //
-      actualIterations++;
-
-      if (!forwardChange && !backwardChange) {
-        if (testing) {
-          tLogString
-              .append(
-                  String.format(
-                      "exiting outer loop because no "
-                          + "change was detected going forward or backward. index:%s  min:%s  max:%s",
-                      x, transformsMinSize, transformsSize))
-              .append("\n");
-        }
-        break;
-      }
-
-      //
-      // if we are past the first iteration and there has been no change twice,
-      // quit doing it!
-      //
-      if (keepSortingForward && x > 0 && !lastForwardChange && !forwardChange) {
-        keepSortingForward = false;
-      }
-      lastForwardChange = forwardChange;
-      forwardChange = false;
-      backwardChange = false;
-    } // finished sorting
-
-    long endTime = System.currentTimeMillis();
-    long totalTime = (endTime - startTime);
-
-    tLogString.append("-------------------------------------------------------").append("\n");
-    tLogString.append("Transforms sort time: " + totalTime + "ms").append("\n");
-    tLogString.append("Total iterations: " + actualIterations).append("\n");
-    tLogString.append("Transform count: " + transforms.size()).append("\n");
-    tLogString.append("Transforms after sort: ").append("\n");
-    for (TransformMetaDataCombi combi : transforms) {
-      tLogString.append(combi.transform.getTransformName()).append("\n");
+    List<TransformMetaDataCombi> sorted =
+        Pipeline.sortTopologically(pipeline.getPipelineMeta(), transforms);
+    for (int i = 0; i < sorted.size(); i++) {
+      transforms.set(i, sorted.get(i));
     }
-    tLogString.append("-------------------------------------------------------").append("\n");
 
     if (log.isDetailed()) {
+      StringBuilder tLogString = new StringBuilder();
+      tLogString.append("-------------------------------------------------------").append("\n");
+      tLogString
+          .append("--SingleThreadedPipelineExecutor.sortTransforms(topological)")
+          .append("\n");
+      tLogString.append("--Pipeline: ").append(pipeline.getName()).append("\n");
+      tLogString.append("-").append("\n");
+      tLogString
+          .append("Transforms sort time: " + (System.currentTimeMillis() - startTime) + "ms")
+          .append("\n");
+      tLogString.append("Transform count: " + transforms.size()).append("\n");
+      tLogString.append("Transforms after sort: ").append("\n");
+      for (TransformMetaDataCombi combi : transforms) {
+        tLogString.append(combi.transform.getTransformName()).append("\n");
+      }
+      tLogString.append("-------------------------------------------------------").append("\n");
       log.logDetailed(tLogString.toString());
     }
   }
@@ -360,8 +194,10 @@ public class SingleThreadedPipelineExecutor {
             }
 
             // Now do the number of processRows() calls.
+            // Transforms can read a batch of rows per call so stop when the input is empty: an
+            // extra call would wait for rows that can't arrive in this iteration.
             //
-            for (int i = 0; i < nrRows; i++) {
+            for (int i = 0; i < nrRows && getTotalRows(rowSets) > 0; i++) {
               transformDone = !combi.transform.processRow();
               if (combi.transform.getErrors() > 0) {
                 return false;
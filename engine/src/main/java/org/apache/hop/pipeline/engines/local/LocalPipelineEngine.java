@@ -21,6 +21,8 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.IExtensionData;
 import org.apache.hop.core.Result;
+import org.apache.hop.core.RowSetType;
+import org.apache.hop.core.RowSetWaitStrategy;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.map.DatabaseConnectionMap;
 import org.apache.hop.core.exception.HopDatabaseException;
@@ -28,6 +30,7 @@ import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.logging.ILoggingObject;
 import org.apache.hop.core.parameters.INamedParameters;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.util.ThreadUtil;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.execution.ExecutionBuilder;
 import org.apache.hop.execution.ExecutionDataBuilder;
@@ -127,7 +130,16 @@ public class LocalPipelineEngine extends Pipeline implements IPipelineEngine<Pip
 
     int sizeRowsSet = Const.toInt(resolve(config.getRowSetSize()), Const.ROWS_IN_ROWSET);
     setRowSetSize(sizeRowsSet);
+    setRowSetType(RowSetType.lookupName(resolve(config.getRowSetType()), RowSetType.Blocking));
+    setRowSetWaitStrategy(
+        RowSetWaitStrategy.lookupName(
+            resolve(config.getRowSetWaitStrategy()), RowSetWaitStrategy.Park));
     setSafeModeEnabled(config.isSafeModeEnabled());
+    setUsingVirtualThreads(config.isUsingVirtualThreads());
+    if (config.isUsingVirtualThreads() && !ThreadUtil.isVirtualThreadSupported()) {
+      log.logBasic(
+          "Virtual threads are not supported by this Java runtime, transforms will run in platform threads");
+    }
     setSortingTransformsTopologically(config.isSortingTransformsTopologically());
     setGatheringMetrics(config.isGatheringMetrics());
     setFeedbackShown(config.isFeedbackShown());
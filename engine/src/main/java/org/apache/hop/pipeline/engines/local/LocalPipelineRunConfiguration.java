@@ -18,6 +18,8 @@
 package org.apache.hop.pipeline.engines.local;
 
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RowSetType;
+import org.apache.hop.core.RowSetWaitStrategy;
 import org.apache.hop.core.gui.plugin.GuiElementType;
 import org.apache.hop.core.gui.plugin.GuiPlugin;
 import org.apache.hop.core.gui.plugin.GuiWidgetElement;
@@ -46,6 +48,44 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
   @HopMetadataProperty(key = "rowset_size")
   protected String rowSetSize;
 
+  @GuiWidgetElement(
+      id = "rowSetType",
+      order = "012",
+      parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+      type = GuiElementType.COMBO,
+      label =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.RowSetType.Label",
+      toolTip =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.RowSetType.ToolTip",
+      comboValuesMethod = "getRowSetTypes")
+  @HopMetadataProperty(key = "rowset_type")
+  protected String rowSetType;
+
+  @GuiWidgetElement(
+      id = "rowSetWaitStrategy",
+      order = "014",
+      parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+      type = GuiElementType.COMBO,
+      label =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.RowSetWaitStrategy.Label",
+      toolTip =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.RowSetWaitStrategy.ToolTip",
+      comboValuesMethod = "getRowSetWaitStrategies")
+  @HopMetadataProperty(key = "rowset_wait_strategy")
+  protected String rowSetWaitStrategy;
+
+  @GuiWidgetElement(
+      id = "usingVirtualThreads",
+      order = "016",
+      parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+      type = GuiElementType.CHECKBOX,
+      label =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.UsingVirtualThreads.Label",
+      toolTip =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.UsingVirtualThreads.ToolTip")
+  @HopMetadataProperty(key = "virtual_threads")
+  protected boolean usingVirtualThreads;
+
   @GuiWidgetElement(
       id = "safeModeEnabled",
       order = "020",
@@ -154,17 +194,23 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
   public LocalPipelineRunConfiguration() {
     super();
     this.rowSetSize = Integer.toString(Const.ROWS_IN_ROWSET);
+    this.rowSetType = RowSetType.Blocking.name();
+    this.rowSetWaitStrategy = RowSetWaitStrategy.Park.name();
     this.feedbackShown = false;
     this.feedbackSize = Integer.toString(Const.ROWS_UPDATE);
     this.waitTime = EnvUtil.getSystemProperty(Const.HOP_DEFAULT_BUFFER_POLLING_WAITTIME, "20");
     this.sampleTypeInGui = SampleType.Last.name();
     this.sampleSize = "100";
     this.transactional = false;
+    this.usingVirtualThreads = false;
   }
 
   public LocalPipelineRunConfiguration(LocalPipelineRunConfiguration config) {
     super(config);
     this.rowSetSize = config.rowSetSize;
+    this.rowSetType = config.rowSetType;
+    this.rowSetWaitStrategy = config.rowSetWaitStrategy;
+    this.usingVirtualThreads = config.usingVirtualThreads;
     this.feedbackShown = config.feedbackShown;
     this.feedbackSize = config.feedbackSize;
     this.waitTime = config.waitTime;
@@ -188,6 +234,24 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
     }
     return list;
   }
+
+  public List<String> getRowSetTypes(ILogChannel log, IHopMetadataProvider metadataProvider) {
+    List<String> list = new ArrayList<>();
+    for (RowSetType type : RowSetType.values()) {
+      list.add(type.name());
+    }
+    return list;
+  }
+
+  public List<String> getRowSetWaitStrategies(
+      ILogChannel log, IHopMetadataProvider metadataProvider) {
+    List<String> list = new ArrayList<>();
+    for (RowSetWaitStrategy strategy : RowSetWaitStrategy.values()) {
+      list.add(strategy.name());
+    }
+    return list;
+  }
+
   /**
    * Gets rowSetSize
    *
@@ -204,6 +268,54 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
     this.rowSetSize = rowSetSize;
   }
 
+  /**
+   * Gets rowSetType
+   *
+   * @return value of rowSetType
+   */
+  public String getRowSetType() {
+    return rowSetType;
+  }
+
+  /**
+   * @param rowSetType The rowSetType to set
+   */
+  public void setRowSetType(String rowSetType) {
+    this.rowSetType = rowSetType;
+  }
+
+  /**
+   * Gets rowSetWaitStrategy
+   *
+   * @return value of rowSetWaitStrategy
+   */
+  public String getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * @param rowSetWaitStrategy The rowSetWaitStrategy to set
+   */
+  public void setRowSetWaitStrategy(String rowSetWaitStrategy) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy;
+  }
+
+  /**
+   * Gets usingVirtualThreads
+   *
+   * @return value of usingVirtualThreads
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads;
+  }
+
+  /**
+   * @param usingVirtualThreads The usingVirtualThreads to set
+   */
+  public void setUsingVirtualThreads(boolean usingVirtualThreads) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
   /**
    * Gets safeModeEnabled
    *
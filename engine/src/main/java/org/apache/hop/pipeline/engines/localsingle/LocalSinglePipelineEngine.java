@@ -17,11 +17,15 @@
 
 package org.apache.hop.pipeline.engines.localsingle;
 
+import org.apache.hop.core.ConcurrentQueueRowSet;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.logging.ILoggingObject;
 import org.apache.hop.core.parameters.INamedParameters;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.metadata.api.IHopMetadataProvider;
+import org.apache.hop.pipeline.CooperativePipelineExecutor;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.SingleThreadedPipelineExecutor;
@@ -36,6 +40,9 @@ import org.apache.hop.pipeline.engine.PipelineEngineCapabilities;
 // )
 public class LocalSinglePipelineEngine extends Pipeline implements IPipelineEngine<PipelineMeta> {
 
+  /** The number of threads running the transforms. With 1 the transforms run in this thread. */
+  protected int workerThreads = 1;
+
   public LocalSinglePipelineEngine() {
     super();
   }
@@ -73,13 +80,40 @@ public class LocalSinglePipelineEngine extends Pipeline implements IPipelineEngi
   @Override
   public void prepareExecution() throws HopException {
     pipelineMeta.setPipelineType(PipelineMeta.PipelineType.SingleThreaded);
+    if (pipelineRunConfiguration != null
+        && pipelineRunConfiguration.getEngineRunConfiguration()
+            instanceof LocalSinglePipelineRunConfiguration) {
+      LocalSinglePipelineRunConfiguration config =
+          (LocalSinglePipelineRunConfiguration)
+              pipelineRunConfiguration.getEngineRunConfiguration();
+      setWorkerThreads(Const.toInt(resolve(config.getWorkerThreads()), 1));
+    }
     super.prepareExecution();
   }
 
+  /**
+   * With more than one worker thread the producing and consuming transform of a row set can run at
+   * the same time.
+   */
+  @Override
+  protected IRowSet createSingleThreadedRowSet() {
+    if (workerThreads > 1) {
+      return new ConcurrentQueueRowSet();
+    }
+    return super.createSingleThreadedRowSet();
+  }
+
   @Override
   public void startThreads() throws HopException {
     super.startThreads();
 
+    if (workerThreads > 1) {
+      // The transforms are initialized already, hand them to the workers.
+      //
+      new CooperativePipelineExecutor(this, workerThreads).execute();
+      return;
+    }
+
     SingleThreadedPipelineExecutor executor = new SingleThreadedPipelineExecutor(this);
 
     if (!executor.init()) {
@@ -98,6 +132,20 @@ public class LocalSinglePipelineEngine extends Pipeline implements IPipelineEngi
     return super.getStatus();
   }
 
+  /**
+   * Gets workerThreads
+   *
+   * @return value of workerThreads
+   */
+  public int getWorkerThreads() {
+    return workerThreads;
+  }
+
+  /** @param workerThreads The workerThreads to set */
+  public void setWorkerThreads(int workerThreads) {
+    this.workerThreads = workerThreads;
+  }
+
   @Override
   public void pipelineCompleted() throws HopException {
 
@@ -17,29 +17,62 @@
 
 package org.apache.hop.pipeline.engines.localsingle;
 
+import org.apache.hop.core.gui.plugin.GuiElementType;
 import org.apache.hop.core.gui.plugin.GuiPlugin;
+import org.apache.hop.core.gui.plugin.GuiWidgetElement;
+import org.apache.hop.metadata.api.HopMetadataProperty;
 import org.apache.hop.pipeline.config.IPipelineEngineRunConfiguration;
+import org.apache.hop.pipeline.config.PipelineRunConfiguration;
 import org.apache.hop.pipeline.engines.EmptyPipelineRunConfiguration;
 
 @GuiPlugin
 public class LocalSinglePipelineRunConfiguration extends EmptyPipelineRunConfiguration
     implements IPipelineEngineRunConfiguration {
 
+  @GuiWidgetElement(
+      id = "workerThreads",
+      order = "010",
+      parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+      type = GuiElementType.TEXT,
+      label =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.WorkerThreads.Label",
+      toolTip =
+          "i18n:org.apache.hop.ui.pipeline.config:PipelineRunConfigurationDialog.WorkerThreads.ToolTip")
+  @HopMetadataProperty(key = "worker_threads")
+  protected String workerThreads;
+
   public LocalSinglePipelineRunConfiguration() {
     super();
+    this.workerThreads = "1";
   }
 
   public LocalSinglePipelineRunConfiguration(
       String pluginId, String pluginName, String rowSetSize) {
     super(pluginId, pluginName);
+    this.workerThreads = "1";
   }
 
   public LocalSinglePipelineRunConfiguration(LocalSinglePipelineRunConfiguration config) {
     super(config);
+    this.workerThreads = config.workerThreads;
   }
 
   @Override
   public LocalSinglePipelineRunConfiguration clone() {
     return new LocalSinglePipelineRunConfiguration(this);
   }
+
+  /**
+   * Gets workerThreads
+   *
+   * @return value of workerThreads
+   */
+  public String getWorkerThreads() {
+    return workerThreads;
+  }
+
+  /** @param workerThreads The workerThreads to set */
+  public void setWorkerThreads(String workerThreads) {
+    this.workerThreads = workerThreads;
+  }
 }
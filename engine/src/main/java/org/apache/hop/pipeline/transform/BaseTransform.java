@@ -35,9 +35,11 @@ import org.apache.hop.core.logging.ILogChannel;
 import org.apache.hop.core.logging.ILoggingObject;
 import org.apache.hop.core.logging.LogLevel;
 import org.apache.hop.core.logging.LoggingObjectType;
+import org.apache.hop.core.row.FrozenRowMeta;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowDataUtil;
+import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.value.ValueMetaBase;
 import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.util.EnvUtil;
@@ -287,6 +289,12 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
 
   private boolean checkPipelineRunning;
 
+  /** Set once the class is checked for overrides of getRow() and putRow() */
+  private boolean rowMethodsChecked;
+
+  private boolean getRowOverridden;
+  private boolean putRowOverridden;
+
   private static final int NR_OF_ROWS_IN_BLOCK = 500;
 
   private int blockPointer;
@@ -660,6 +668,13 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  private long incrementLinesRead(int count) {
+    synchronized (statusCountersLock) {
+      linesRead += count;
+      return linesRead;
+    }
+  }
+
   /**
    * Decrements the number of lines read from previous transforms by one
    *
@@ -774,6 +789,13 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  private long incrementLinesWritten(int count) {
+    synchronized (statusCountersLock) {
+      linesWritten += count;
+      return linesWritten;
+    }
+  }
+
   /**
    * Decrements the number of lines written to next transforms by one
    *
@@ -990,6 +1012,49 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
    */
   @Override
   public void putRow(IRowMeta rowMeta, Object[] row) throws HopTransformException {
+    verifyOutputRowMeta(rowMeta);
+    getRowHandler().putRow(rowMeta, row);
+
+    // This transform is not reading data, only writing
+    //
+    if (firstRowReadDate == null) {
+      firstRowReadDate = new Date();
+    }
+  }
+
+  /**
+   * putRows is the batch variant of {@link #putRow(IRowMeta, Object[])}: the first count rows of
+   * the array are passed on in order. The checks, the locking of the output row sets and the
+   * counter updates are done once per batch instead of once per row. If a subclass overrides
+   * putRow() the rows are passed to it one by one instead.
+   *
+   * @param rowMeta The description of the rows
+   * @param rows The rows to put to the destination rowset(s).
+   * @param count The number of rows to put, starting at index 0
+   * @throws HopTransformException
+   */
+  public void putRows(IRowMeta rowMeta, Object[][] rows, int count) throws HopTransformException {
+    if (count <= 0) {
+      return;
+    }
+    checkRowMethods();
+    if (putRowOverridden) {
+      for (int i = 0; i < count; i++) {
+        putRow(rowMeta, rows[i]);
+      }
+      return;
+    }
+    verifyOutputRowMeta(rowMeta);
+    getRowHandler().putRows(rowMeta, rows, count);
+
+    // This transform is not reading data, only writing
+    //
+    if (firstRowReadDate == null) {
+      firstRowReadDate = new Date();
+    }
+  }
+
+  private void verifyOutputRowMeta(IRowMeta rowMeta) throws HopTransformException {
     if (rowMeta != null) {
       if (!allowEmptyFieldNamesAndTypes) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1007,16 +1072,111 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         }
       }
     }
-    getRowHandler().putRow(rowMeta, row);
+  }
 
-    // This transform is not reading data, only writing
+  private void handlePutRow(IRowMeta rowMeta, Object[] row) throws HopTransformException {
+    if (!waitUntilReadyToPutRows()) {
+      return;
+    }
+
+    // call all row listeners...
     //
-    if (firstRowReadDate == null) {
-      firstRowReadDate = new Date();
+    for (IRowListener listener : rowListeners) {
+      listener.rowWrittenEvent(rowMeta, row);
+    }
+
+    // Keep adding to terminator_rows buffer...
+    //
+    if (terminator && terminatorRows != null) {
+      try {
+        terminatorRows.add(rowMeta.cloneRow(row));
+      } catch (HopValueException e) {
+        throw new HopTransformException(
+            "Unable to clone row while adding rows to the terminator rows.", e);
+      }
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if (outputRowSets.isEmpty()) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        incrementLinesWritten();
+
+        return; // we're done here!
+      }
+
+      putRowToOutputRowSets(rowMeta, row);
+    } finally {
+      outputRowSetsLock.readLock().unlock();
     }
   }
 
-  private void handlePutRow(IRowMeta rowMeta, Object[] row) throws HopTransformException {
+  private void handlePutRows(IRowMeta rowMeta, Object[][] rows, int count)
+      throws HopTransformException {
+    if (!waitUntilReadyToPutRows()) {
+      return;
+    }
+
+    // call all row listeners...
+    //
+    if (!rowListeners.isEmpty()) {
+      for (int i = 0; i < count; i++) {
+        for (IRowListener listener : rowListeners) {
+          listener.rowWrittenEvent(rowMeta, rows[i]);
+        }
+      }
+    }
+
+    // Keep adding to terminator_rows buffer...
+    //
+    if (terminator && terminatorRows != null) {
+      try {
+        for (int i = 0; i < count; i++) {
+          terminatorRows.add(rowMeta.cloneRow(rows[i]));
+        }
+      } catch (HopValueException e) {
+        throw new HopTransformException(
+            "Unable to clone row while adding rows to the terminator rows.", e);
+      }
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if (outputRowSets.isEmpty()) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        incrementLinesWritten(count);
+
+        return; // we're done here!
+      }
+
+      // With a single target and no partitioning or plugin row distribution, every row goes to the
+      // same row set: hand over the whole batch at once.
+      //
+      if (repartitioning == TransformPartitioningMeta.PARTITIONING_METHOD_NONE
+          && outputRowSets.size() == 1
+          && (!distributed || rowDistribution == null)) {
+        putRowsToRowSet(outputRowSets.get(0), rowMeta, rows, count);
+        incrementLinesWritten(count);
+      } else {
+        for (int i = 0; i < count; i++) {
+          putRowToOutputRowSets(rowMeta, rows[i]);
+        }
+      }
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Wait while the transform is paused and until the pipeline is running.
+   *
+   * @return false if the transform was stopped and no rows should be written.
+   */
+  private boolean waitUntilReadyToPutRows() throws HopTransformException {
     // Are we pausing the transform? If so, stall forever...
     //
     while (paused.get() && !stopped.get()) {
@@ -1035,7 +1195,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         logDebug(BaseMessages.getString(PKG, "BaseTransform.Log.StopPuttingARow"));
       }
       stopAll();
-      return;
+      return false;
     }
 
     // Have all threads started?
@@ -1058,57 +1218,31 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
       }
       this.checkPipelineRunning = true;
     }
+    return true;
+  }
 
-    // call all row listeners...
+  /** Pass a row to the output row set(s). The caller holds the output row sets read lock. */
+  private void putRowToOutputRowSets(IRowMeta rowMeta, Object[] row)
+      throws HopTransformException {
+    // Repartitioning happens when the current transform is not partitioned, but the next one is.
+    // That means we need to look up the partitioning information in the next transform..
+    // If there are multiple transforms, we need to look at the first (they should be all the
+    // same)
     //
-    for (IRowListener listener : rowListeners) {
-      listener.rowWrittenEvent(rowMeta, row);
-    }
+    switch (repartitioning) {
+      case TransformPartitioningMeta.PARTITIONING_METHOD_NONE:
+        noPartitioning(rowMeta, row);
+        break;
 
-    // Keep adding to terminator_rows buffer...
-    //
-    if (terminator && terminatorRows != null) {
-      try {
-        terminatorRows.add(rowMeta.cloneRow(row));
-      } catch (HopValueException e) {
+      case TransformPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
+        specialPartitioning(rowMeta, row);
+        break;
+      case TransformPartitioningMeta.PARTITIONING_METHOD_MIRROR:
+        mirrorPartitioning(rowMeta, row);
+        break;
+      default:
         throw new HopTransformException(
-            "Unable to clone row while adding rows to the terminator rows.", e);
-      }
-    }
-
-    outputRowSetsLock.readLock().lock();
-    try {
-      if (outputRowSets.isEmpty()) {
-        // No more output rowsets!
-        // Still update the nr of lines written.
-        //
-        incrementLinesWritten();
-
-        return; // we're done here!
-      }
-
-      // Repartitioning happens when the current transform is not partitioned, but the next one is.
-      // That means we need to look up the partitioning information in the next transform..
-      // If there are multiple transforms, we need to look at the first (they should be all the
-      // same)
-      //
-      switch (repartitioning) {
-        case TransformPartitioningMeta.PARTITIONING_METHOD_NONE:
-          noPartitioning(rowMeta, row);
-          break;
-
-        case TransformPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
-          specialPartitioning(rowMeta, row);
-          break;
-        case TransformPartitioningMeta.PARTITIONING_METHOD_MIRROR:
-          mirrorPartitioning(rowMeta, row);
-          break;
-        default:
-          throw new HopTransformException(
-              "Internal error: invalid repartitioning type: " + repartitioning);
-      }
-    } finally {
-      outputRowSetsLock.readLock().unlock();
+            "Internal error: invalid repartitioning type: " + repartitioning);
     }
   }
 
@@ -1262,12 +1396,23 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  /**
+   * Copies the row metadata for the next transform. The copy of a normal row metadata object is
+   * frozen so the next transform can read it per row without locking.
+   */
+  private static IRowMeta freezeRowMeta(IRowMeta rowMeta) {
+    if (rowMeta instanceof RowMeta) {
+      return new FrozenRowMeta(rowMeta.clone());
+    }
+    return rowMeta.clone();
+  }
+
   private void putRowToRowSet(IRowSet rs, IRowMeta rowMeta, Object[] row) {
     IRowMeta toBeSent;
     IRowMeta metaFromRs = rs.getRowMeta();
     if (metaFromRs == null) {
       // IRowSet is not initialised so far
-      toBeSent = rowMeta.clone();
+      toBeSent = freezeRowMeta(rowMeta);
     } else {
       // use the existing
       toBeSent = metaFromRs;
@@ -1280,6 +1425,27 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  private void putRowsToRowSet(IRowSet rs, IRowMeta rowMeta, Object[][] rows, int count) {
+    IRowMeta toBeSent;
+    IRowMeta metaFromRs = rs.getRowMeta();
+    if (metaFromRs == null) {
+      // IRowSet is not initialised so far
+      toBeSent = freezeRowMeta(rowMeta);
+    } else {
+      // use the existing
+      toBeSent = metaFromRs;
+    }
+
+    int offset = 0;
+    while (offset < count) {
+      int nrPut = rs.putRows(toBeSent, rows, offset, count - offset);
+      offset += nrPut;
+      if (nrPut == 0 && isStopped() && !safeStopped.get()) {
+        return;
+      }
+    }
+  }
+
   /**
    * putRowTo is used to put a row in a certain specific IRowSet.
    *
@@ -1531,6 +1697,95 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     return row;
   }
 
+  /**
+   * getRows is the batch variant of {@link #getRow()}. It waits for the first row just like
+   * getRow() does, then adds the rows which are immediately available in the same input row set,
+   * up to the length of the given array. The locking and counter updates are done once per batch.
+   * If a subclass overrides getRow() a single row is read with it instead.
+   *
+   * @param rows the array to store the rows in, starting at index 0
+   * @return the number of rows read, 0 if there are no more rows to be expected
+   * @throws HopException
+   */
+  public int getRows(Object[][] rows) throws HopException {
+    checkRowMethods();
+    if (getRowOverridden) {
+      Object[] row = getRow();
+      if (row == null) {
+        return 0;
+      }
+      rows[0] = row;
+      return 1;
+    }
+
+    int count = getRowHandler().getRows(rows);
+
+    if (firstRowReadDate == null) {
+      firstRowReadDate = new Date();
+    }
+
+    return count;
+  }
+
+  /**
+   * Look up once whether the class of this transform overrides getRow() or putRow(). The batch
+   * methods don't bypass these: they fall back to reading and writing one row at a time.
+   */
+  private void checkRowMethods() {
+    if (rowMethodsChecked) {
+      return;
+    }
+    try {
+      getRowOverridden =
+          getClass().getMethod("getRow").getDeclaringClass() != BaseTransform.class;
+      putRowOverridden =
+          getClass().getMethod("putRow", IRowMeta.class, Object[].class).getDeclaringClass()
+              != BaseTransform.class;
+    } catch (NoSuchMethodException e) {
+      getRowOverridden = true;
+      putRowOverridden = true;
+    }
+    rowMethodsChecked = true;
+  }
+
+  private int handleGetRows(Object[][] rows) throws HopException {
+    Object[] row = getRow();
+    if (row == null) {
+      return 0;
+    }
+    rows[0] = row;
+
+    // Rows from different input transforms can have different layouts, keep those one by one.
+    //
+    if (rows.length == 1 || prevTransforms.length > 1 || isStopped()) {
+      return 1;
+    }
+
+    int extra = 0;
+    inputRowSetsLock.readLock().lock();
+    try {
+      if (currentInputRowSetNr < inputRowSets.size()) {
+        IRowSet inputRowSet = inputRowSets.get(currentInputRowSetNr);
+        extra = inputRowSet.getRowsImmediate(rows, 1, rows.length - 1);
+      }
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+
+    if (extra > 0) {
+      incrementLinesRead(extra);
+      blockPointer += extra;
+
+      for (IRowListener listener : rowListeners) {
+        for (int i = 1; i <= extra; i++) {
+          listener.rowReadEvent(inputRowMeta, rows[i]);
+        }
+      }
+    }
+
+    return 1 + extra;
+  }
+
   private Object[] handleGetRow() throws HopException {
 
     // Are we pausing the transform? If so, stall forever...
@@ -3261,6 +3516,21 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         && (lines % getPipeline().getFeedbackSize()) == 0;
   }
 
+  /**
+   * Check feedback after processing a batch of rows.
+   *
+   * @param linesBefore the number of lines before the batch was processed
+   * @param linesAfter the number of lines after the batch was processed
+   * @return true if a multiple of the feedback size was passed while processing the batch
+   */
+  protected boolean checkFeedback(long linesBefore, long linesAfter) {
+    if (!getPipeline().isFeedbackShown() || getPipeline().getFeedbackSize() <= 0) {
+      return false;
+    }
+    long feedbackSize = getPipeline().getFeedbackSize();
+    return linesAfter > 0 && linesBefore / feedbackSize != linesAfter / feedbackSize;
+  }
+
   /**
    * @return the rowMeta
    */
@@ -3792,11 +4062,22 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
       return handleGetRow();
     }
 
+    @Override
+    public int getRows(Object[][] rows) throws HopException {
+      return handleGetRows(rows);
+    }
+
     @Override
     public void putRow(IRowMeta rowMeta, Object[] row) throws HopTransformException {
       handlePutRow(rowMeta, row);
     }
 
+    @Override
+    public void putRows(IRowMeta rowMeta, Object[][] rows, int count)
+        throws HopTransformException {
+      handlePutRows(rowMeta, rows, count);
+    }
+
     @Override
     public void putError(
         IRowMeta rowMeta,
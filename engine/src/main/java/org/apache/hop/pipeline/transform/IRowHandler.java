@@ -38,6 +38,35 @@ public interface IRowHandler {
 
   void putRow(IRowMeta rowMeta, Object[] row) throws HopTransformException;
 
+  /**
+   * Get a batch of rows. By default this reads a single row with {@link #getRow()}.
+   *
+   * @param rows the array to store the rows in, starting at index 0
+   * @return the number of rows read, 0 if there are no more rows to be expected
+   */
+  default int getRows(Object[][] rows) throws HopException {
+    Object[] row = getRow();
+    if (row == null) {
+      return 0;
+    }
+    rows[0] = row;
+    return 1;
+  }
+
+  /**
+   * Put a batch of rows. By default every row is passed to {@link #putRow(IRowMeta, Object[])}.
+   *
+   * @param rowMeta the description of the rows
+   * @param rows the rows to put, starting at index 0
+   * @param count the number of rows to put
+   */
+  default void putRows(IRowMeta rowMeta, Object[][] rows, int count)
+      throws HopTransformException {
+    for (int i = 0; i < count; i++) {
+      putRow(rowMeta, rows[i]);
+    }
+  }
+
   void putError(
       IRowMeta rowMeta,
       Object[] row,
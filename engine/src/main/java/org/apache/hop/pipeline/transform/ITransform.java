@@ -30,6 +30,7 @@ import org.apache.hop.metadata.api.IHopMetadataProvider;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.engine.EngineComponent.ComponentExecutionStatus;
 import org.apache.hop.pipeline.engine.IEngineComponent;
+import org.apache.hop.pipeline.engine.IEngineMetric;
 import org.apache.hop.pipeline.engine.IPipelineEngine;
 
 import java.util.Collection;
@@ -354,6 +355,16 @@ public interface ITransform
     getOutputRowSets().add(rowSet);
   }
 
+  /**
+   * Gets the metrics which are specific to this transform, like the hits and misses of a cache.
+   * They are reported next to the standard metrics like the number of rows read and written.
+   *
+   * @return the transform specific metrics and their current values
+   */
+  default Map<IEngineMetric, Long> getCustomMetrics() {
+    return Collections.emptyMap();
+  }
+
   /** @return Returns the transform specific metadata. */
   ITransformMeta getMeta();
 
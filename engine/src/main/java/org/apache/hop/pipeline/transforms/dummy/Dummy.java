@@ -17,6 +17,7 @@
 
 package org.apache.hop.pipeline.transforms.dummy;
 
+import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -24,6 +25,8 @@ import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.util.Arrays;
+
 /** Do nothing. Pass all input data to the next transforms. */
 public class Dummy extends BaseTransform<DummyMeta, DummyData>
 {
@@ -41,16 +44,22 @@ public class Dummy extends BaseTransform<DummyMeta, DummyData>
 
   @Override
   public boolean processRow() throws HopException {
-    Object[] r = getRow(); // get row, set busy!
+    if (data.rows == null) {
+      data.rows = new Object[Const.ROWS_IN_BATCH][];
+    }
+    long linesBefore = getLinesRead();
+
+    int nrRows = getRows(data.rows); // get rows, set busy!
     // no more input to be expected...
-    if (r == null) {
+    if (nrRows == 0) {
       setOutputDone();
       return false;
     }
 
-    putRow(getInputRowMeta(), r); // copy row to possible alternate rowset(s).
+    putRows(getInputRowMeta(), data.rows, nrRows); // copy rows to possible alternate rowset(s).
+    Arrays.fill(data.rows, 0, nrRows, null);
 
-    if (checkFeedback(getLinesRead())) {
+    if (checkFeedback(linesBefore, getLinesRead())) {
       if (log.isBasic()) {
         logBasic(BaseMessages.getString(PKG, "Dummy.Log.LineNumber") + getLinesRead());
       }
@@ -22,6 +22,9 @@ import org.apache.hop.pipeline.transform.ITransformData;
 
 public class DummyData extends BaseTransformData implements ITransformData {
 
+  /** The batch of rows passed along in one go */
+  public Object[][] rows;
+
   public DummyData() {
     super();
   }
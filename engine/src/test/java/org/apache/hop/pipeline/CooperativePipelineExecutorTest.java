@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline;
+
+import org.apache.hop.core.HopEnvironment;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.config.PipelineRunConfiguration;
+import org.apache.hop.pipeline.engines.localsingle.LocalSinglePipelineEngine;
+import org.apache.hop.pipeline.engines.localsingle.LocalSinglePipelineRunConfiguration;
+import org.apache.hop.pipeline.transform.RowAdapter;
+import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.pipeline.transform.TransformMetaDataCombi;
+import org.apache.hop.pipeline.transform.stream.IStream.StreamType;
+import org.apache.hop.pipeline.transform.stream.Stream;
+import org.apache.hop.pipeline.transform.stream.StreamIcon;
+import org.apache.hop.pipeline.transforms.dummy.DummyMeta;
+import org.apache.hop.pipeline.transforms.injector.InjectorMeta;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CooperativePipelineExecutorTest {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  private static final int NR_ROWS = 10000;
+  private static final int ROW_SET_SIZE = 100;
+
+  @BeforeClass
+  public static void beforeClass() throws HopException {
+    HopEnvironment.init();
+  }
+
+  /**
+   * A pipeline which splits into two branches and merges them again:
+   *
+   * <pre>
+   *            / left  \
+   * injector - split    merge
+   *            \ right /
+   * </pre>
+   */
+  private static PipelineMeta createBranchingPipeline() {
+    PipelineMeta pipelineMeta = new PipelineMeta();
+    TransformMeta injector = new TransformMeta("injector", new InjectorMeta());
+    TransformMeta split = new TransformMeta("split", new DummyMeta());
+    TransformMeta left = new TransformMeta("left", new DummyMeta());
+    TransformMeta right = new TransformMeta("right", new DummyMeta());
+    TransformMeta merge = new TransformMeta("merge", new DummyMeta());
+
+    // Add them out of order so that the sort has something to do
+    //
+    for (TransformMeta transformMeta : new TransformMeta[] {merge, right, split, left, injector}) {
+      pipelineMeta.addTransform(transformMeta);
+    }
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(injector, split));
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(split, left));
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(split, right));
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(left, merge));
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(right, merge));
+    return pipelineMeta;
+  }
+
+  /**
+   * A pipeline where the lookup transform reads the rows of the reference transform as info rows
+   * before it reads the rows of the injector:
+   *
+   * <pre>
+   * injector  - lookup
+   * reference /
+   * </pre>
+   */
+  private static PipelineMeta createLookupPipeline() {
+    PipelineMeta pipelineMeta = new PipelineMeta();
+    TransformMeta injector = new TransformMeta("injector", new InjectorMeta());
+    TransformMeta reference = new TransformMeta("reference", new InjectorMeta());
+    TransformMeta lookup = new TransformMeta("lookup", new DummyMeta());
+    lookup
+        .getTransform()
+        .getTransformIOMeta()
+        .addStream(new Stream(StreamType.INFO, reference, "reference", StreamIcon.INFO, null));
+
+    for (TransformMeta transformMeta : new TransformMeta[] {injector, reference, lookup}) {
+      pipelineMeta.addTransform(transformMeta);
+    }
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(injector, lookup));
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(reference, lookup));
+    return pipelineMeta;
+  }
+
+  private static LocalSinglePipelineEngine createPipeline(
+      PipelineMeta pipelineMeta, int workerThreads) {
+    LocalSinglePipelineRunConfiguration engineRunConfiguration =
+        new LocalSinglePipelineRunConfiguration();
+    engineRunConfiguration.setWorkerThreads(Integer.toString(workerThreads));
+
+    LocalSinglePipelineEngine pipeline = new LocalSinglePipelineEngine(pipelineMeta);
+    pipeline.setPipelineRunConfiguration(
+        new PipelineRunConfiguration(
+            "local-single", "", "", new ArrayList<>(), engineRunConfiguration, null, false));
+    return pipeline;
+  }
+
+  /** Collects the ids of the rows written by a transform */
+  private static List<Long> collectRows(LocalSinglePipelineEngine pipeline, String transformName) {
+    List<Long> received = Collections.synchronizedList(new ArrayList<>());
+    pipeline
+        .getTransform(transformName, 0)
+        .addRowListener(
+            new RowAdapter() {
+              @Override
+              public void rowWrittenEvent(IRowMeta rowMeta, Object[] row) {
+                received.add((Long) row[0]);
+              }
+            });
+    return received;
+  }
+
+  /**
+   * Queue the ids from first to last - 1 for an injector. The row sets of the worker threads don't
+   * wait, so all rows can be queued up front.
+   */
+  private static void injectRows(
+      LocalSinglePipelineEngine pipeline, String transformName, long first, long last)
+      throws HopException {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    RowProducer rowProducer = pipeline.addRowProducer(transformName, 0);
+    for (long i = first; i < last; i++) {
+      rowProducer.putRow(rowMeta, new Object[] {i});
+    }
+    rowProducer.finished();
+  }
+
+  @Test
+  public void testAllRowsArriveWithWorkerThreads() throws Exception {
+    for (int workerThreads : new int[] {2, 4}) {
+      LocalSinglePipelineEngine pipeline = createPipeline(createBranchingPipeline(), workerThreads);
+      pipeline.prepareExecution();
+      assertEquals(workerThreads, pipeline.getWorkerThreads());
+
+      List<Long> received = collectRows(pipeline, "merge");
+      injectRows(pipeline, "injector", 0L, NR_ROWS);
+
+      // Returns once all transforms are finished
+      //
+      pipeline.startThreads();
+      pipeline.waitUntilFinished();
+
+      assertTrue(pipeline.isFinished());
+      assertEquals(0, pipeline.getResult().getNrErrors());
+      assertEquals(NR_ROWS, received.size());
+      TreeSet<Long> distinct = new TreeSet<>(received);
+      assertEquals(NR_ROWS, distinct.size());
+      assertEquals(Long.valueOf(0L), distinct.first());
+      assertEquals(Long.valueOf(NR_ROWS - 1), distinct.last());
+    }
+  }
+
+  @Test(timeout = 60000L)
+  public void testInfoRowsBeyondTheRowSetSize() throws Exception {
+    LocalSinglePipelineEngine pipeline = createPipeline(createLookupPipeline(), 2);
+    pipeline.setRowSetSize(ROW_SET_SIZE);
+    pipeline.prepareExecution();
+
+    // The lookup only runs once all the reference rows are there: the reference transform
+    // can't be held back by the rows the lookup doesn't read yet, neither can the injector.
+    //
+    List<Long> received = collectRows(pipeline, "lookup");
+    injectRows(pipeline, "injector", 0L, 10L * ROW_SET_SIZE);
+    injectRows(pipeline, "reference", 10L * ROW_SET_SIZE, 20L * ROW_SET_SIZE);
+
+    pipeline.startThreads();
+    pipeline.waitUntilFinished();
+
+    assertTrue(pipeline.isFinished());
+    assertEquals(0, pipeline.getResult().getNrErrors());
+    assertEquals(20 * ROW_SET_SIZE, received.size());
+    assertEquals(20 * ROW_SET_SIZE, new TreeSet<>(received).size());
+  }
+
+  @Test
+  public void testSortTopologically() {
+    PipelineMeta pipelineMeta = createBranchingPipeline();
+    List<TransformMetaDataCombi> combis = new ArrayList<>();
+    for (TransformMeta transformMeta : pipelineMeta.getTransforms()) {
+      // Two copies of every transform
+      //
+      for (int copy = 0; copy < 2; copy++) {
+        TransformMetaDataCombi combi = new TransformMetaDataCombi();
+        combi.transformMeta = transformMeta;
+        combi.transformName = transformMeta.getName();
+        combi.copy = copy;
+        combis.add(combi);
+      }
+    }
+
+    List<TransformMetaDataCombi> sorted = Pipeline.sortTopologically(pipelineMeta, combis);
+
+    List<String> names = new ArrayList<>();
+    for (TransformMetaDataCombi combi : sorted) {
+      names.add(combi.transformName + "." + combi.copy);
+    }
+    // Independent transforms keep their original order: right was added before left
+    //
+    assertEquals(
+        Arrays.asList(
+            "injector.0", "injector.1", "split.0", "split.1", "right.0", "right.1", "left.0",
+            "left.1", "merge.0", "merge.1"),
+        names);
+  }
+
+  @Test
+  public void testSortTopologicallyIgnoresDisabledHops() {
+    PipelineMeta pipelineMeta = new PipelineMeta();
+    TransformMeta a = new TransformMeta("a", new DummyMeta());
+    TransformMeta b = new TransformMeta("b", new DummyMeta());
+    pipelineMeta.addTransform(b);
+    pipelineMeta.addTransform(a);
+    pipelineMeta.addPipelineHop(new PipelineHopMeta(a, b, false));
+
+    List<TransformMetaDataCombi> combis = new ArrayList<>();
+    for (TransformMeta transformMeta : pipelineMeta.getTransforms()) {
+      TransformMetaDataCombi combi = new TransformMetaDataCombi();
+      combi.transformMeta = transformMeta;
+      combi.transformName = transformMeta.getName();
+      combis.add(combi);
+    }
+
+    List<TransformMetaDataCombi> sorted = Pipeline.sortTopologically(pipelineMeta, combis);
+    assertEquals("b", sorted.get(0).transformName);
+    assertEquals("a", sorted.get(1).transformName);
+  }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.workflow.actions.lookupcache;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.core.ICheckResult;
+import org.apache.hop.core.Result;
+import org.apache.hop.core.annotations.Action;
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.database.DatabaseMeta;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.util.Utils;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.api.HopMetadataProperty;
+import org.apache.hop.metadata.api.IHopMetadataProvider;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.metadata.cache.LookupCacheData;
+import org.apache.hop.metadata.cache.LookupCacheRegistry;
+import org.apache.hop.metadata.cache.SharedLookupCache;
+import org.apache.hop.workflow.WorkflowMeta;
+import org.apache.hop.workflow.action.ActionBase;
+import org.apache.hop.workflow.action.IAction;
+import org.apache.hop.workflow.action.validator.ActionValidatorUtils;
+import org.apache.hop.workflow.action.validator.AndValidator;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Pre-warms or invalidates a shared lookup cache. The rows of a query are stored in the cache: the
+ * key fields are the keys of the cache, the other fields are the values. Lookup transforms using
+ * the cache with the same layout don't have to load the rows themselves.
+ */
+@Action(
+    id = "LOOKUP_CACHE",
+    name = "i18n::ActionLookupCache.Name",
+    description = "i18n::ActionLookupCache.Description",
+    image = "LookupCache.svg",
+    categoryDescription = "i18n:org.apache.hop.workflow:ActionCategory.Category.Utility",
+    keywords = "i18n::ActionLookupCache.keyword",
+    documentationUrl = "/workflow/actions/lookupcache.html")
+public class ActionLookupCache extends ActionBase implements Cloneable, IAction {
+  private static final Class<?> PKG = ActionLookupCache.class; // For Translator
+
+  /** The name of the lookup cache metadata */
+  @HopMetadataProperty(key = "lookup_cache")
+  private String lookupCache;
+
+  /** Discard the current data of the cache before loading */
+  @HopMetadataProperty(key = "invalidate")
+  private boolean invalidating;
+
+  /** The connection to load the rows from, nothing is loaded without one */
+  @HopMetadataProperty(key = "connection")
+  private String connection;
+
+  @HopMetadataProperty(key = "sql")
+  private String sql;
+
+  /** The comma separated names of the key fields in the query */
+  @HopMetadataProperty(key = "key_fields")
+  private String keyFields;
+
+  public ActionLookupCache(String n) {
+    super(n, "");
+  }
+
+  public ActionLookupCache() {
+    this("");
+  }
+
+  @Override
+  public Object clone() {
+    ActionLookupCache je = (ActionLookupCache) super.clone();
+    return je;
+  }
+
+  @Override
+  public Result execute(Result previousResult, int nr) {
+    Result result = previousResult;
+    result.setResult(false);
+
+    String cacheName = resolve(lookupCache);
+    SharedLookupCache cache = null;
+    try {
+      LookupCache cacheMeta =
+          getMetadataProvider().getSerializer(LookupCache.class).load(cacheName);
+      if (cacheMeta == null) {
+        throw new HopException(
+            BaseMessages.getString(PKG, "ActionLookupCache.Error.CacheNotFound", cacheName));
+      }
+      cache = cacheMeta.attach(this);
+
+      if (invalidating) {
+        LookupCacheRegistry.getInstance().invalidate(cacheName);
+        if (isDetailed()) {
+          logDetailed(BaseMessages.getString(PKG, "ActionLookupCache.Log.Invalidated", cacheName));
+        }
+      }
+
+      if (!Utils.isEmpty(connection)) {
+        long rows = loadCache(cache);
+        result.setNrLinesInput(result.getNrLinesInput() + rows);
+      }
+      result.setResult(true);
+    } catch (Exception e) {
+      result.setNrErrors(1);
+      logError(BaseMessages.getString(PKG, "ActionLookupCache.Error.Run", cacheName), e);
+    } finally {
+      if (cache != null) {
+        LookupCacheRegistry.getInstance().release(cache);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Load the rows of the query into the shared cache, unless it's complete already.
+   *
+   * @return the number of rows read
+   */
+  private long loadCache(SharedLookupCache cache) throws HopException {
+    LookupCacheData data = cache.getData();
+    if (data.isComplete()) {
+      if (isBasic()) {
+        logBasic(
+            BaseMessages.getString(
+                PKG,
+                "ActionLookupCache.Log.AlreadyLoaded",
+                cache.getName(),
+                Integer.toString(data.getSize())));
+      }
+      return 0L;
+    }
+
+    DatabaseMeta databaseMeta = parentWorkflowMeta.findDatabase(connection, this);
+    if (databaseMeta == null) {
+      throw new HopException(
+          BaseMessages.getString(
+              PKG, "ActionLookupCache.Error.ConnectionNotFound", resolve(connection)));
+    }
+    String[] keyNames = Const.splitString(resolve(keyFields), ',');
+    if (keyNames == null || keyNames.length == 0) {
+      throw new HopException(BaseMessages.getString(PKG, "ActionLookupCache.Error.NoKeyFields"));
+    }
+
+    long rows = 0L;
+    Database db = new Database(this, this, databaseMeta);
+    try {
+      db.connect();
+
+      String realSql = resolve(sql);
+      if (isDetailed()) {
+        logDetailed(BaseMessages.getString(PKG, "ActionLookupCache.Log.Query", realSql));
+      }
+      ResultSet resultSet = db.openQuery(realSql);
+      try {
+        IRowMeta rowMeta = db.getReturnRowMeta();
+
+        // The keys are the key fields, the values are all the other fields
+        //
+        int[] keyIndexes = new int[keyNames.length];
+        boolean[] isKey = new boolean[rowMeta.size()];
+        IRowMeta keyRowMeta = new RowMeta();
+        for (int i = 0; i < keyNames.length; i++) {
+          keyIndexes[i] = rowMeta.indexOfValue(Const.trim(keyNames[i]));
+          if (keyIndexes[i] < 0) {
+            throw new HopException(
+                BaseMessages.getString(
+                    PKG, "ActionLookupCache.Error.KeyFieldNotFound", Const.trim(keyNames[i])));
+          }
+          isKey[keyIndexes[i]] = true;
+          keyRowMeta.addValueMeta(rowMeta.getValueMeta(keyIndexes[i]));
+        }
+        int[] valueIndexes = new int[rowMeta.size() - keyNames.length];
+        IRowMeta valueRowMeta = new RowMeta();
+        for (int i = 0, v = 0; i < rowMeta.size(); i++) {
+          if (!isKey[i]) {
+            valueIndexes[v++] = i;
+            valueRowMeta.addValueMeta(rowMeta.getValueMeta(i));
+          }
+        }
+
+        if (!data.checkLayout(keyRowMeta, valueRowMeta)) {
+          throw new HopException(
+              BaseMessages.getString(
+                  PKG, "ActionLookupCache.Error.LayoutDifferent", cache.getName()));
+        }
+
+        BinaryKeyEncoder encoder = new BinaryKeyEncoder(keyRowMeta, null);
+        long evictions = data.getEvictions();
+        Object[] row = db.getRow(resultSet);
+        while (row != null && !parentWorkflow.isStopped()) {
+          Object[] keyRow = new Object[keyIndexes.length];
+          for (int i = 0; i < keyIndexes.length; i++) {
+            keyRow[i] = row[keyIndexes[i]];
+          }
+          Object[] valueRow = new Object[valueIndexes.length];
+          for (int i = 0; i < valueIndexes.length; i++) {
+            valueRow[i] = row[valueIndexes[i]];
+          }
+          data.put(encoder, keyRow, valueRow);
+          rows++;
+          row = db.getRow(resultSet);
+        }
+
+        if (parentWorkflow.isStopped()) {
+          return rows;
+        }
+        if (data.markComplete(evictions)) {
+          if (isBasic()) {
+            logBasic(
+                BaseMessages.getString(
+                    PKG, "ActionLookupCache.Log.Loaded", cache.getName(), Long.toString(rows)));
+          }
+        } else {
+          logBasic(BaseMessages.getString(PKG, "ActionLookupCache.Log.TooSmall", cache.getName()));
+        }
+      } finally {
+        db.closeQuery(resultSet);
+      }
+    } finally {
+      db.disconnect();
+    }
+    return rows;
+  }
+
+  @Override
+  public boolean isEvaluation() {
+    return true;
+  }
+
+  @Override
+  public boolean isUnconditional() {
+    return false;
+  }
+
+  @Override
+  public DatabaseMeta[] getUsedDatabaseConnections() {
+    DatabaseMeta databaseMeta =
+        parentWorkflowMeta == null ? null : parentWorkflowMeta.findDatabase(connection);
+    return databaseMeta == null ? new DatabaseMeta[0] : new DatabaseMeta[] {databaseMeta};
+  }
+
+  @Override
+  public void check(
+      List<ICheckResult> remarks,
+      WorkflowMeta workflowMeta,
+      IVariables variables,
+      IHopMetadataProvider metadataProvider) {
+    ActionValidatorUtils.andValidator()
+        .validate(
+            this,
+            "lookupCache",
+            remarks,
+            AndValidator.putValidators(ActionValidatorUtils.notBlankValidator()));
+  }
+
+  /**
+   * Gets lookupCache
+   *
+   * @return value of lookupCache
+   */
+  public String getLookupCache() {
+    return lookupCache;
+  }
+
+  /** @param lookupCache The lookupCache to set */
+  public void setLookupCache(String lookupCache) {
+    this.lookupCache = lookupCache;
+  }
+
+  /**
+   * Gets invalidating
+   *
+   * @return value of invalidating
+   */
+  public boolean isInvalidating() {
+    return invalidating;
+  }
+
+  /** @param invalidating The invalidating to set */
+  public void setInvalidating(boolean invalidating) {
+    this.invalidating = invalidating;
+  }
+
+  /**
+   * Gets connection
+   *
+   * @return value of connection
+   */
+  public String getConnection() {
+    return connection;
+  }
+
+  /** @param connection The connection to set */
+  public void setConnection(String connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Gets sql
+   *
+   * @return value of sql
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /** @param sql The sql to set */
+  public void setSql(String sql) {
+    this.sql = sql;
+  }
+
+  /**
+   * Gets keyFields
+   *
+   * @return value of keyFields
+   */
+  public String getKeyFields() {
+    return keyFields;
+  }
+
+  /** @param keyFields The keyFields to set */
+  public void setKeyFields(String keyFields) {
+    this.keyFields = keyFields;
+  }
+}
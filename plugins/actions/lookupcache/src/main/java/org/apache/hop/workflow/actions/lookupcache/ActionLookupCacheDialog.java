@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.workflow.actions.lookupcache;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.core.Props;
+import org.apache.hop.core.database.DatabaseMeta;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.util.Utils;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.ui.core.PropsUi;
+import org.apache.hop.ui.core.dialog.BaseDialog;
+import org.apache.hop.ui.core.dialog.MessageBox;
+import org.apache.hop.ui.core.widget.MetaSelectionLine;
+import org.apache.hop.ui.core.widget.StyledTextComp;
+import org.apache.hop.ui.core.widget.TextVar;
+import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
+import org.apache.hop.ui.workflow.action.ActionDialog;
+import org.apache.hop.ui.workflow.dialog.WorkflowDialog;
+import org.apache.hop.workflow.WorkflowMeta;
+import org.apache.hop.workflow.action.IAction;
+import org.apache.hop.workflow.action.IActionDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+/** This dialog allows you to edit the lookup cache action settings. */
+public class ActionLookupCacheDialog extends ActionDialog implements IActionDialog {
+  private static final Class<?> PKG = ActionLookupCache.class; // For Translator
+
+  private Text wName;
+
+  private MetaSelectionLine<LookupCache> wLookupCache;
+
+  private Button wInvalidate;
+
+  private MetaSelectionLine<DatabaseMeta> wConnection;
+
+  private TextVar wKeyFields;
+
+  private StyledTextComp wSql;
+
+  private ActionLookupCache action;
+
+  public ActionLookupCacheDialog(
+      Shell parent, IAction action, WorkflowMeta workflowMeta, IVariables variables) {
+    super(parent, workflowMeta, variables);
+    this.action = (ActionLookupCache) action;
+    if (this.action.getName() == null) {
+      this.action.setName(BaseMessages.getString(PKG, "ActionLookupCache.Name.Default"));
+    }
+  }
+
+  @Override
+  public IAction open() {
+    Shell parent = getParent();
+
+    shell = new Shell(parent, SWT.DIALOG_TRIM | SWT.MIN | SWT.MAX | SWT.RESIZE);
+    PropsUi.setLook(shell);
+    WorkflowDialog.setShellImage(shell, action);
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = PropsUi.getFormMargin();
+    formLayout.marginHeight = PropsUi.getFormMargin();
+
+    shell.setLayout(formLayout);
+    shell.setText(BaseMessages.getString(PKG, "ActionLookupCache.Title"));
+
+    int middle = props.getMiddlePct();
+    int margin = PropsUi.getMargin();
+
+    // Buttons go at the very bottom
+    //
+    Button wOk = new Button(shell, SWT.PUSH);
+    wOk.setText(BaseMessages.getString(PKG, "System.Button.OK"));
+    wOk.addListener(SWT.Selection, e -> ok());
+    Button wCancel = new Button(shell, SWT.PUSH);
+    wCancel.setText(BaseMessages.getString(PKG, "System.Button.Cancel"));
+    wCancel.addListener(SWT.Selection, e -> cancel());
+    BaseTransformDialog.positionBottomButtons(shell, new Button[] {wOk, wCancel}, margin, null);
+
+    // Name line
+    Label wlName = new Label(shell, SWT.RIGHT);
+    wlName.setText(BaseMessages.getString(PKG, "ActionLookupCache.Name.Label"));
+    PropsUi.setLook(wlName);
+    FormData fdlName = new FormData();
+    fdlName.left = new FormAttachment(0, 0);
+    fdlName.right = new FormAttachment(middle, -margin);
+    fdlName.top = new FormAttachment(0, margin);
+    wlName.setLayoutData(fdlName);
+    wName = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wName);
+    FormData fdName = new FormData();
+    fdName.left = new FormAttachment(middle, 0);
+    fdName.top = new FormAttachment(0, margin);
+    fdName.right = new FormAttachment(100, 0);
+    wName.setLayoutData(fdName);
+
+    // Lookup cache line
+    wLookupCache =
+        new MetaSelectionLine<>(
+            variables,
+            metadataProvider,
+            LookupCache.class,
+            shell,
+            SWT.SINGLE | SWT.LEFT | SWT.BORDER,
+            BaseMessages.getString(PKG, "ActionLookupCache.LookupCache.Label"),
+            BaseMessages.getString(PKG, "ActionLookupCache.LookupCache.Tooltip"));
+    PropsUi.setLook(wLookupCache);
+    FormData fdLookupCache = new FormData();
+    fdLookupCache.left = new FormAttachment(0, 0);
+    fdLookupCache.top = new FormAttachment(wName, margin);
+    fdLookupCache.right = new FormAttachment(100, 0);
+    wLookupCache.setLayoutData(fdLookupCache);
+
+    // Invalidate first?
+    Label wlInvalidate = new Label(shell, SWT.RIGHT);
+    wlInvalidate.setText(BaseMessages.getString(PKG, "ActionLookupCache.Invalidate.Label"));
+    PropsUi.setLook(wlInvalidate);
+    FormData fdlInvalidate = new FormData();
+    fdlInvalidate.left = new FormAttachment(0, 0);
+    fdlInvalidate.top = new FormAttachment(wLookupCache, margin);
+    fdlInvalidate.right = new FormAttachment(middle, -margin);
+    wlInvalidate.setLayoutData(fdlInvalidate);
+    wInvalidate = new Button(shell, SWT.CHECK);
+    PropsUi.setLook(wInvalidate);
+    wInvalidate.setToolTipText(BaseMessages.getString(PKG, "ActionLookupCache.Invalidate.Tooltip"));
+    FormData fdInvalidate = new FormData();
+    fdInvalidate.left = new FormAttachment(middle, 0);
+    fdInvalidate.top = new FormAttachment(wlInvalidate, 0, SWT.CENTER);
+    fdInvalidate.right = new FormAttachment(100, 0);
+    wInvalidate.setLayoutData(fdInvalidate);
+
+    // Connection line
+    wConnection =
+        addConnectionLine(
+            shell, wInvalidate, workflowMeta.findDatabase(action.getConnection()), null);
+
+    // Key fields
+    Label wlKeyFields = new Label(shell, SWT.RIGHT);
+    wlKeyFields.setText(BaseMessages.getString(PKG, "ActionLookupCache.KeyFields.Label"));
+    PropsUi.setLook(wlKeyFields);
+    FormData fdlKeyFields = new FormData();
+    fdlKeyFields.left = new FormAttachment(0, 0);
+    fdlKeyFields.top = new FormAttachment(wConnection, margin);
+    fdlKeyFields.right = new FormAttachment(middle, -margin);
+    wlKeyFields.setLayoutData(fdlKeyFields);
+    wKeyFields = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wKeyFields);
+    wKeyFields.setToolTipText(BaseMessages.getString(PKG, "ActionLookupCache.KeyFields.Tooltip"));
+    FormData fdKeyFields = new FormData();
+    fdKeyFields.left = new FormAttachment(middle, 0);
+    fdKeyFields.top = new FormAttachment(wlKeyFields, 0, SWT.CENTER);
+    fdKeyFields.right = new FormAttachment(100, 0);
+    wKeyFields.setLayoutData(fdKeyFields);
+
+    // Script line
+    Label wlSql = new Label(shell, SWT.NONE);
+    wlSql.setText(BaseMessages.getString(PKG, "ActionLookupCache.Script.Label"));
+    PropsUi.setLook(wlSql);
+    FormData fdlSql = new FormData();
+    fdlSql.left = new FormAttachment(0, 0);
+    fdlSql.top = new FormAttachment(wKeyFields, 2 * margin);
+    wlSql.setLayoutData(fdlSql);
+
+    wSql =
+        new StyledTextComp(
+            action, shell, SWT.MULTI | SWT.LEFT | SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL);
+    PropsUi.setLook(wSql, Props.WIDGET_STYLE_FIXED);
+    FormData fdSql = new FormData();
+    fdSql.left = new FormAttachment(0, 0);
+    fdSql.top = new FormAttachment(wlSql, margin);
+    fdSql.right = new FormAttachment(100, -20);
+    fdSql.bottom = new FormAttachment(wOk, -2 * margin);
+    wSql.setLayoutData(fdSql);
+
+    getData();
+
+    BaseDialog.defaultShellHandling(shell, c -> ok(), c -> cancel());
+
+    return action;
+  }
+
+  /** Copy information from the meta-data input to the dialog fields. */
+  public void getData() {
+    wName.setText(Const.nullToEmpty(action.getName()));
+    try {
+      wLookupCache.fillItems();
+    } catch (HopException e) {
+      LogChannel.UI.logError("Error getting the list of lookup caches", e);
+    }
+    wLookupCache.setText(Const.nullToEmpty(action.getLookupCache()));
+    wInvalidate.setSelection(action.isInvalidating());
+    wConnection.setText(Const.nullToEmpty(action.getConnection()));
+    wKeyFields.setText(Const.nullToEmpty(action.getKeyFields()));
+    wSql.setText(Const.nullToEmpty(action.getSql()));
+
+    wName.selectAll();
+    wName.setFocus();
+  }
+
+  private void cancel() {
+    action = null;
+    dispose();
+  }
+
+  private void ok() {
+    if (Utils.isEmpty(wName.getText())) {
+      MessageBox mb = new MessageBox(shell, SWT.OK | SWT.ICON_ERROR);
+      mb.setText(BaseMessages.getString(PKG, "System.TransformActionNameMissing.Title"));
+      mb.setMessage(BaseMessages.getString(PKG, "System.ActionNameMissing.Msg"));
+      mb.open();
+      return;
+    }
+    action.setName(wName.getText());
+    action.setLookupCache(wLookupCache.getText());
+    action.setInvalidating(wInvalidate.getSelection());
+    action.setConnection(wConnection.getText());
+    action.setKeyFields(wKeyFields.getText());
+    action.setSql(wSql.getText());
+
+    action.setChanged();
+
+    dispose();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.workflow.actions.lookupcache;
+
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.workflow.action.loadsave.WorkflowActionLoadSaveTestSupport;
+import org.junit.ClassRule;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class WorkflowActionLookupCacheLoadSaveTest
+    extends WorkflowActionLoadSaveTestSupport<ActionLookupCache> {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  @Override
+  protected Class<ActionLookupCache> getActionClass() {
+    return ActionLookupCache.class;
+  }
+
+  @Override
+  protected List<String> listAttributes() {
+    return Arrays.asList("lookupCache", "invalidating", "connection", "sql", "keyFields");
+  }
+}
@@ -17,12 +17,14 @@
 
 package org.apache.hop.pipeline.transforms.calculator;
 
+import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileNotFoundException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.ValueDataUtil;
 import org.apache.hop.core.util.Utils;
@@ -34,6 +36,7 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transforms.calculator.CalculatorMetaFunction.CalculationType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 
@@ -49,6 +52,16 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> {
     public int indexC;
   }
 
+  /** A function compiled for the layout of the calculation row */
+  @FunctionalInterface
+  public interface ICalculation {
+    /**
+     * @param calcData the calculation row with the input values and the values calculated so far
+     * @return the calculated value, converted to the data type of the target field
+     */
+    Object calculate(Object[] calcData) throws HopValueException, HopFileNotFoundException;
+  }
+
   public Calculator(
       TransformMeta transformMeta,
       CalculatorMeta meta,
@@ -62,8 +75,14 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> {
   @Override
   public boolean processRow() throws HopException {
 
-    Object[] r = getRow(); // get row, set busy!
-    if (r == null) { // no more input to be expected...
+    if (data.getRows() == null) {
+      data.setRows(new Object[Const.ROWS_IN_BATCH][]);
+      data.setOutputRows(new Object[Const.ROWS_IN_BATCH][]);
+    }
+    long linesBefore = getLinesRead();
+
+    int nrRows = getRows(data.getRows()); // get rows, set busy!
+    if (nrRows == 0) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -162,40 +181,229 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> {
       for (int i = 0; i < data.getTempIndexes().length; i++) {
         data.getTempIndexes()[i] = tempIndexes.get(i);
       }
-    }
 
-    if (log.isRowLevel()) {
-      logRowlevel(
-          BaseMessages.getString(PKG, "Calculator.Log.ReadRow")
-              + getLinesRead()
-              + " : "
-              + getInputRowMeta().getString(r));
+      data.setCalculations(compileCalculations());
+      prepareBatchCalculation();
     }
 
-    try {
-      Object[] row = calcFields(getInputRowMeta(), r);
-      putRow(data.getOutputRowMeta(), row); // copy row to possible alternate rowset(s).
+    Object[][] rows = data.getRows();
+    Object[][] outputRows = data.getOutputRows();
+    int nrOutputRows;
 
-      if (log.isRowLevel()) {
-        logRowlevel("Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString(r));
+    try {
+      if (data.getBatch() != null && !log.isRowLevel() && calcBatch(nrRows)) {
+        nrOutputRows = nrRows;
+      } else {
+        nrOutputRows = calcRows(nrRows, linesBefore);
+        if (nrOutputRows < 0) {
+          return false;
+        }
       }
-      if (checkFeedback(getLinesRead())) {
+
+      // copy rows to possible alternate rowset(s).
+      putRows(data.getOutputRowMeta(), outputRows, nrOutputRows);
+
+      if (checkFeedback(linesBefore, getLinesRead())) {
         if (log.isBasic()) {
           logBasic(BaseMessages.getString(PKG, "Calculator.Log.Linenr", "" + getLinesRead()));
         }
       }
-    } catch (HopFileNotFoundException e) {
-      if (meta.isFailIfNoFile()) {
-        logError(BaseMessages.getString(PKG, "Calculator.Log.NoFile") + " : " + e.getFilepath());
-        setErrors(getErrors() + 1);
-        return false;
-      }
     } catch (HopException e) {
       logError(
           BaseMessages.getString(
               PKG, "Calculator.ErrorInTransformRunning" + " : " + e.getMessage()));
       throw new HopTransformException(
           BaseMessages.getString(PKG, "Calculator.ErrorInTransformRunning"), e);
+    } finally {
+      Arrays.fill(rows, 0, nrRows, null);
+      Arrays.fill(outputRows, 0, nrRows, null);
+    }
+    return true;
+  }
+
+  /**
+   * Calculate the fields of the current batch one row at a time.
+   *
+   * @param nrRows the number of rows in the batch
+   * @param linesBefore the number of lines read before this batch
+   * @return the number of output rows or -1 if the transform needs to stop
+   */
+  private int calcRows(int nrRows, long linesBefore) throws HopException {
+    Object[][] rows = data.getRows();
+    Object[][] outputRows = data.getOutputRows();
+    int nrOutputRows = 0;
+
+    for (int i = 0; i < nrRows; i++) {
+      Object[] r = rows[i];
+      if (log.isRowLevel()) {
+        logRowlevel(
+            BaseMessages.getString(PKG, "Calculator.Log.ReadRow")
+                + (linesBefore + i + 1)
+                + " : "
+                + getInputRowMeta().getString(r));
+      }
+
+      try {
+        Object[] row = calcFields(getInputRowMeta(), r);
+        outputRows[nrOutputRows++] = row;
+
+        if (log.isRowLevel()) {
+          logRowlevel(
+              "Wrote row #"
+                  + (getLinesWritten() + nrOutputRows)
+                  + " : "
+                  + getInputRowMeta().getString(r));
+        }
+      } catch (HopFileNotFoundException e) {
+        if (meta.isFailIfNoFile()) {
+          logError(
+              BaseMessages.getString(PKG, "Calculator.Log.NoFile") + " : " + e.getFilepath());
+          setErrors(getErrors() + 1);
+
+          // Pass on the rows calculated before this one
+          //
+          putRows(data.getOutputRowMeta(), outputRows, nrOutputRows);
+          return -1;
+        }
+      }
+    }
+    return nrOutputRows;
+  }
+
+  /**
+   * The additions, subtractions and multiplications of Integer or Number fields can be calculated
+   * on a whole batch of rows at once using primitive vectors. This is only possible if all
+   * calculations are of that kind, if both arguments have the same type and if that is also the
+   * type of the result.
+   */
+  private void prepareBatchCalculation() {
+    int inputSize = getInputRowMeta().size();
+    IRowMeta calcRowMeta = data.getCalcRowMeta();
+    List<Integer> columns = new ArrayList<>();
+
+    for (int i = 0; i < meta.getFunctions().size(); i++) {
+      CalculatorMetaFunction fn = meta.getFunctions().get(i);
+      switch (fn.getCalcType()) {
+        case ADD:
+        case SUBTRACT:
+        case MULTIPLY:
+          break;
+        default:
+          return;
+      }
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      if (Utils.isEmpty(fn.getFieldB())
+          || indexes.indexA >= inputSize + i
+          || indexes.indexB >= inputSize + i) {
+        return;
+      }
+      IValueMeta metaA = calcRowMeta.getValueMeta(indexes.indexA);
+      IValueMeta metaB = calcRowMeta.getValueMeta(indexes.indexB);
+      IValueMeta targetMeta = calcRowMeta.getValueMeta(inputSize + i);
+      if (!RowBatch.isNumericVector(metaA)
+          || metaA.getType() != metaB.getType()
+          || metaA.getType() != targetMeta.getType()
+          || !RowBatch.isNumericVector(metaB)) {
+        return;
+      }
+      for (int index : new int[] {indexes.indexA, indexes.indexB}) {
+        if (index < inputSize && !columns.contains(index)) {
+          columns.add(index);
+        }
+      }
+    }
+
+    data.setBatch(new RowBatch(calcRowMeta, data.getRows().length));
+    data.setBatchColumns(columns.stream().mapToInt(Integer::intValue).toArray());
+    if (log.isDetailed()) {
+      logDetailed("Calculating batches of rows on primitive vectors");
+    }
+  }
+
+  /**
+   * Calculate the fields of the current batch on primitive vectors.
+   *
+   * @param nrRows the number of rows in the batch
+   * @return true if the batch was calculated, false if it needs to be calculated row by row
+   */
+  private boolean calcBatch(int nrRows) {
+    Object[][] rows = data.getRows();
+    Object[][] outputRows = data.getOutputRows();
+    RowBatch batch = data.getBatch();
+    IRowMeta calcRowMeta = data.getCalcRowMeta();
+    int inputSize = getInputRowMeta().size();
+
+    batch.setRows(rows, nrRows, data.getBatchColumns());
+    for (int column : data.getBatchColumns()) {
+      int expected =
+          calcRowMeta.getValueMeta(column).isInteger()
+              ? RowBatch.ENCODING_LONG
+              : RowBatch.ENCODING_DOUBLE;
+      if (batch.getEncoding(column) != expected) {
+        return false; // A value doesn't have the class of its data type
+      }
+    }
+
+    for (int i = 0; i < meta.getFunctions().size(); i++) {
+      CalculationType calcType = meta.getFunctions().get(i).getCalcType();
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      int a = indexes.indexA;
+      int b = indexes.indexB;
+      int index = inputSize + i;
+
+      if (calcRowMeta.getValueMeta(index).isInteger()) {
+        long[] valuesA = batch.getLongs(a);
+        long[] valuesB = batch.getLongs(b);
+        long[] result = batch.newLongColumn(index);
+        for (int row = 0; row < nrRows; row++) {
+          if (batch.isNull(a, row) || batch.isNull(b, row)) {
+            continue;
+          }
+          switch (calcType) {
+            case ADD:
+              result[row] = valuesA[row] + valuesB[row];
+              break;
+            case SUBTRACT:
+              result[row] = valuesA[row] - valuesB[row];
+              break;
+            default:
+              result[row] = valuesA[row] * valuesB[row];
+              break;
+          }
+          batch.setNull(index, row, false);
+        }
+      } else {
+        double[] valuesA = batch.getDoubles(a);
+        double[] valuesB = batch.getDoubles(b);
+        double[] result = batch.newDoubleColumn(index);
+        for (int row = 0; row < nrRows; row++) {
+          if (batch.isNull(a, row) || batch.isNull(b, row)) {
+            continue;
+          }
+          switch (calcType) {
+            case ADD:
+              result[row] = valuesA[row] + valuesB[row];
+              break;
+            case SUBTRACT:
+              result[row] = valuesA[row] - valuesB[row];
+              break;
+            default:
+              result[row] = valuesA[row] * valuesB[row];
+              break;
+          }
+          batch.setNull(index, row, false);
+        }
+      }
+    }
+
+    // Put the results back in the rows
+    //
+    for (int row = 0; row < nrRows; row++) {
+      Object[] calcData = RowDataUtil.resizeArray(rows[row], calcRowMeta.size());
+      for (int index = inputSize; index < calcRowMeta.size(); index++) {
+        calcData[index] = batch.getValue(index, row);
+      }
+      outputRows[row] = RowDataUtil.removeItems(calcData, data.getTempIndexes());
     }
     return true;
   }
@@ -211,480 +419,523 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> {
     // First copy the input data to the new result...
     Object[] calcData = RowDataUtil.resizeArray(r, data.getCalcRowMeta().size());
 
-    for (int i = 0, index = inputRowMeta.size() + i; i < meta.getFunctions().size(); i++, index++) {
-      CalculatorMetaFunction fn = meta.getFunctions().get(i);
-      if (!Utils.isEmpty(fn.getFieldName())) {
-        IValueMeta targetMeta = data.getCalcRowMeta().getValueMeta(index);
-
-        IValueMeta metaA = null;
-        Object dataA = null;
-
-        if (data.getFieldIndexes()[i].indexA >= 0) {
-          metaA = data.getCalcRowMeta().getValueMeta(data.getFieldIndexes()[i].indexA);
-          dataA = calcData[data.getFieldIndexes()[i].indexA];
-        }
+    ICalculation[] calculations = data.getCalculations();
+    for (int i = 0, index = inputRowMeta.size() + i; i < calculations.length; i++, index++) {
+      calcData[index] = calculations[i].calculate(calcData);
+    }
 
-        IValueMeta metaB = null;
-        Object dataB = null;
+    // OK, now we should refrain from adding the temporary fields to the result.
+    // So we remove them.
+    //
+    return RowDataUtil.removeItems(calcData, data.getTempIndexes());
+  }
 
-        if (data.getFieldIndexes()[i].indexB >= 0) {
-          metaB = data.getCalcRowMeta().getValueMeta(data.getFieldIndexes()[i].indexB);
-          dataB = calcData[data.getFieldIndexes()[i].indexB];
-        }
+  /**
+   * Compile the calculations for the layout of the calculation row. The argument and target
+   * metadata, the data type of the result and the metadata to convert the result with are looked up
+   * once instead of for every row.
+   *
+   * @return the compiled calculations, one for every function
+   */
+  private ICalculation[] compileCalculations() {
+    int inputSize = getInputRowMeta().size();
+    ICalculation[] calculations = new ICalculation[meta.getFunctions().size()];
+    for (int i = 0; i < calculations.length; i++) {
+      calculations[i] = compileCalculation(i, inputSize + i);
+    }
+    return calculations;
+  }
 
-        IValueMeta metaC = null;
-        Object dataC = null;
+  private ICalculation compileCalculation(int i, int index) {
+    CalculatorMetaFunction fn = meta.getFunctions().get(i);
+    IRowMeta calcRowMeta = data.getCalcRowMeta();
+    IValueMeta targetMeta = calcRowMeta.getValueMeta(index);
+
+    FieldIndexes indexes = data.getFieldIndexes()[i];
+    int indexA = indexes.indexA;
+    int indexB = indexes.indexB;
+    int indexC = indexes.indexC;
+    IValueMeta metaA = indexA >= 0 ? calcRowMeta.getValueMeta(indexA) : null;
+    IValueMeta metaB = indexB >= 0 ? calcRowMeta.getValueMeta(indexB) : null;
+    IValueMeta metaC = indexC >= 0 ? calcRowMeta.getValueMeta(indexC) : null;
+
+    ICalculation calculation = compileArithmetic(fn.getCalcType(), metaA, indexA, metaB, indexB);
+    if (calculation == null) {
+      calculation =
+          calcData ->
+              calculate(
+                  fn,
+                  calcData,
+                  index,
+                  targetMeta,
+                  metaA,
+                  indexA >= 0 ? calcData[indexA] : null,
+                  metaB,
+                  indexB >= 0 ? calcData[indexB] : null,
+                  metaC,
+                  indexC >= 0 ? calcData[indexC] : null);
+    }
 
-        if (data.getFieldIndexes()[i].indexC >= 0) {
-          metaC = data.getCalcRowMeta().getValueMeta(data.getFieldIndexes()[i].indexC);
-          dataC = calcData[data.getFieldIndexes()[i].indexC];
-        }
+    // If we don't have a target data type, throw an error.
+    // Otherwise the result is non-deterministic.
+    //
+    if (targetMeta.getType() == IValueMeta.TYPE_NONE) {
+      String message =
+          BaseMessages.getString(PKG, "Calculator.Log.NoType")
+              + (i + 1)
+              + " : "
+              + fn.getFieldName()
+              + " = "
+              + fn.getCalcType().getCode()
+              + " / "
+              + fn.getCalcType().getDescription();
+      ICalculation noType = calculation;
+      return calcData -> {
+        noType.calculate(calcData);
+        throw new HopValueException(message);
+      };
+    }
 
-        CalculationType calcType = fn.getCalcType();
+    // The data types are those of the first argument field, convert to the target field.
+    //
+    int resultType = getResultType(fn.getCalcType(), targetMeta, metaA, metaB, metaC);
+    if (targetMeta.getType() == resultType) {
+      return calculation;
+    }
+    if (fn.getCalcType() == CalculationType.CONSTANT) {
+      ICalculation constant = compileConstant(fn, targetMeta, resultType);
+      if (constant != null) {
+        return constant;
+      }
+    }
 
-        // The data types are those of the first argument field, convert to the target field.
-        // Exceptions:
-        // - multiply can be string
-        // - constant is string
-        // - all date functions except add days/months
-        // - hex encode / decodes
+    IValueMeta resultMeta = createResultMeta(fn, resultType);
+    ICalculation unconverted = calculation;
+    return calcData -> {
+      Object value = unconverted.calculate(calcData);
+      if (value == null) {
+        return null;
+      }
+      if (resultMeta == null) {
+        throw new HopValueException("Error creating value");
+      }
+      try {
+        return targetMeta.convertData(resultMeta, value);
+      } catch (Exception ex) {
+        throw new HopValueException(
+            "resultType: " + resultType + "; targetMeta: " + targetMeta.getType(), ex);
+      }
+    };
+  }
 
-        int resultType;
-        if (metaA != null) {
-          resultType = metaA.getType();
-        } else {
-          resultType = IValueMeta.TYPE_NONE;
+  /**
+   * Additions, subtractions and multiplications of two Integer or two Number fields are calculated
+   * on the primitive values, without going through the generic value conversions.
+   *
+   * @return the calculation or null if the function and arguments don't allow it
+   */
+  private static ICalculation compileArithmetic(
+      CalculationType calcType, IValueMeta metaA, int indexA, IValueMeta metaB, int indexB) {
+    if (metaA == null
+        || metaB == null
+        || metaA.getType() != metaB.getType()
+        || !RowBatch.isNumericVector(metaA)
+        || !RowBatch.isNumericVector(metaB)) {
+      return null;
+    }
+    boolean integer = metaA.isInteger();
+    switch (calcType) {
+      case ADD:
+      case SUBTRACT:
+      case MULTIPLY:
+        break;
+      default:
+        return null;
+    }
+    return calcData -> {
+      Object dataA = calcData[indexA];
+      Object dataB = calcData[indexB];
+      if (dataA == null || dataB == null) {
+        return null;
+      }
+      if (integer && dataA instanceof Long && dataB instanceof Long) {
+        long a = (Long) dataA;
+        long b = (Long) dataB;
+        switch (calcType) {
+          case ADD:
+            return a + b;
+          case SUBTRACT:
+            return a - b;
+          default:
+            return a * b;
         }
-
+      }
+      if (!integer && dataA instanceof Double && dataB instanceof Double) {
+        double a = (Double) dataA;
+        double b = (Double) dataB;
         switch (calcType) {
-          case NONE:
-            break;
-          case COPY_OF_FIELD: // Create a copy of field A
-            calcData[index] = dataA;
-
-            break;
-          case ADD: // A + B
-            calcData[index] = ValueDataUtil.plus(metaA, dataA, metaB, dataB);
-            if (metaA.isString() || metaB.isString()) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case SUBTRACT: // A - B
-            calcData[index] = ValueDataUtil.minus(metaA, dataA, metaB, dataB);
-            if (metaA.isDate()) {
-              resultType = IValueMeta.TYPE_INTEGER;
-            }
-            break;
-          case MULTIPLY: // A * B
-            calcData[index] = ValueDataUtil.multiply(metaA, dataA, metaB, dataB);
-            if (metaA.isString() || metaB.isString()) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case DIVIDE: // A / B
-            calcData[index] = ValueDataUtil.divide(metaA, dataA, metaB, dataB);
-            break;
-          case SQUARE: // A * A
-            calcData[index] = ValueDataUtil.multiply(metaA, dataA, metaA, dataA);
-            break;
-          case SQUARE_ROOT: // SQRT( A )
-            calcData[index] = ValueDataUtil.sqrt(metaA, dataA);
-            break;
-          case PERCENT_1: // 100 * A / B
-            calcData[index] = ValueDataUtil.percent1(metaA, dataA, metaB, dataB);
-            break;
-          case PERCENT_2: // A - ( A * B / 100 )
-            calcData[index] = ValueDataUtil.percent2(metaA, dataA, metaB, dataB);
-            break;
-          case PERCENT_3: // A + ( A * B / 100 )
-            calcData[index] = ValueDataUtil.percent3(metaA, dataA, metaB, dataB);
-            break;
-          case COMBINATION_1: // A + B * C
-            calcData[index] = ValueDataUtil.combination1(metaA, dataA, metaB, dataB, metaC, dataC);
-            break;
-          case COMBINATION_2: // SQRT( A*A + B*B )
-            calcData[index] = ValueDataUtil.combination2(metaA, dataA, metaB, dataB);
-            break;
-          case ROUND_1: // ROUND( A )
-            calcData[index] = ValueDataUtil.round(metaA, dataA);
-            break;
-          case ROUND_2: // ROUND( A , B )
-            calcData[index] = ValueDataUtil.round(metaA, dataA, metaB, dataB);
-            break;
-          case ROUND_CUSTOM_1: // ROUND( A , B )
-            calcData[index] = ValueDataUtil.round(metaA, dataA, metaB.getNumber(dataB).intValue());
-            break;
-          case ROUND_CUSTOM_2: // ROUND( A , B, C )
-            calcData[index] =
-                ValueDataUtil.round(metaA, dataA, metaB, dataB, metaC.getNumber(dataC).intValue());
-            break;
-          case ROUND_STD_1: // ROUND( A )
-            calcData[index] = ValueDataUtil.round(metaA, dataA, java.math.BigDecimal.ROUND_HALF_UP);
-            break;
-          case ROUND_STD_2: // ROUND( A , B )
-            calcData[index] =
-                ValueDataUtil.round(metaA, dataA, metaB, dataB, java.math.BigDecimal.ROUND_HALF_UP);
-            break;
-          case CEIL: // CEIL( A )
-            calcData[index] = ValueDataUtil.ceil(metaA, dataA);
-            break;
-          case FLOOR: // FLOOR( A )
-            calcData[index] = ValueDataUtil.floor(metaA, dataA);
-            break;
-          case CONSTANT: // Set field to constant value...
-            calcData[index] = fn.getFieldA(); // A string
-            resultType = calcType.getDefaultResultType();
-            break;
-          case NVL: // Replace null values with another value
-            calcData[index] = ValueDataUtil.nvl(metaA, dataA, metaB, dataB);
-            break;
-          case ADD_DAYS: // Add B days to date field A
-            calcData[index] = ValueDataUtil.addDays(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD_HOURS: // Add B hours to date field A
-            calcData[index] = ValueDataUtil.addHours(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD_MINUTES: // Add B minutes to date field A
-            calcData[index] = ValueDataUtil.addMinutes(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case YEAR_OF_DATE: // What is the year (Integer) of a date?
-            calcData[index] = ValueDataUtil.yearOfDate(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case MONTH_OF_DATE: // What is the month (Integer) of a date?
-            calcData[index] = ValueDataUtil.monthOfDate(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DAY_OF_YEAR: // What is the day of year (Integer) of a date?
-            calcData[index] = ValueDataUtil.dayOfYear(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DAY_OF_MONTH: // What is the day of month (Integer) of a date?
-            calcData[index] = ValueDataUtil.dayOfMonth(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DAY_OF_WEEK: // What is the day of week (Integer) of a date?
-            calcData[index] = ValueDataUtil.dayOfWeek(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case WEEK_OF_YEAR: // What is the week of year (Integer) of a date?
-            calcData[index] = ValueDataUtil.weekOfYear(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case WEEK_OF_YEAR_ISO8601: // What is the week of year (Integer) of a date ISO8601
-            // style?
-            calcData[index] = ValueDataUtil.weekOfYearISO8601(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case YEAR_OF_DATE_ISO8601: // What is the year (Integer) of a date ISO8601 style?
-            calcData[index] = ValueDataUtil.yearOfDateISO8601(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case BYTE_TO_HEX_ENCODE: // Byte to Hex encode string field A
-            calcData[index] = ValueDataUtil.byteToHexEncode(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case HEX_TO_BYTE_DECODE: // Hex to Byte decode string field A
-            calcData[index] = ValueDataUtil.hexToByteDecode(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-
-          case CHAR_TO_HEX_ENCODE: // Char to Hex encode string field A
-            calcData[index] = ValueDataUtil.charToHexEncode(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case HEX_TO_CHAR_DECODE: // Hex to Char decode string field A
-            calcData[index] = ValueDataUtil.hexToCharDecode(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case CRC32: // CRC32
-            calcData[index] = ValueDataUtil.checksumCRC32(metaA, dataA, meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADLER32: // ADLER32
-            calcData[index] = ValueDataUtil.checksumAdler32(metaA, dataA, meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case MD5: // MD5
-            calcData[index] =
-                ValueDataUtil.createChecksum(metaA, dataA, "MD5", meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case SHA1: // SHA-1
-            calcData[index] =
-                ValueDataUtil.createChecksum(metaA, dataA, "SHA-1", meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case LEVENSHTEIN_DISTANCE: // LEVENSHTEIN DISTANCE
-            calcData[index] = ValueDataUtil.getLevenshtein_Distance(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case METAPHONE: // METAPHONE
-            calcData[index] = ValueDataUtil.get_Metaphone(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DOUBLE_METAPHONE: // Double METAPHONE
-            calcData[index] = ValueDataUtil.get_Double_Metaphone(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ABS: // ABS( A )
-            calcData[index] = ValueDataUtil.abs(metaA, dataA);
-            break;
-          case REMOVE_TIME_FROM_DATE: // Remove Time from field A
-            calcData[index] = ValueDataUtil.removeTimeFromDate(metaA, dataA);
-            break;
-          case DATE_DIFF: // DateA - DateB
-            calcData[index] = ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "d");
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD3: // A + B + C
-            calcData[index] = ValueDataUtil.plus3(metaA, dataA, metaB, dataB, metaC, dataC);
-            if (metaA.isString() || metaB.isString() || metaC.isString()) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case INITCAP: // InitCap( A )
-            calcData[index] = ValueDataUtil.initCap(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case UPPER_CASE: // UpperCase( A )
-            calcData[index] = ValueDataUtil.upperCase(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case LOWER_CASE: // UpperCase( A )
-            calcData[index] = ValueDataUtil.lowerCase(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case MASK_XML: // escapeXML( A )
-            calcData[index] = ValueDataUtil.escapeXml(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case USE_CDATA: // CDATA( A )
-            calcData[index] = ValueDataUtil.useCDATA(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMOVE_CR: // REMOVE CR FROM A
-            calcData[index] = ValueDataUtil.removeCR(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMOVE_LF: // REMOVE LF FROM A
-            calcData[index] = ValueDataUtil.removeLF(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMOVE_CRLF: // REMOVE CRLF FROM A
-            calcData[index] = ValueDataUtil.removeCRLF(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMOVE_TAB: // REMOVE TAB FROM A
-            calcData[index] = ValueDataUtil.removeTAB(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case GET_ONLY_DIGITS: // GET ONLY DIGITS FROM A
-            calcData[index] = ValueDataUtil.getDigits(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMOVE_DIGITS: // REMOVE DIGITS FROM A
-            calcData[index] = ValueDataUtil.removeDigits(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case STRING_LEN: // RETURN THE LENGTH OF A
-            calcData[index] = ValueDataUtil.stringLen(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case LOAD_FILE_CONTENT_BINARY: // LOAD CONTENT OF A FILE A IN A BLOB
-            calcData[index] =
-                ValueDataUtil.loadFileContentInBinary(metaA, dataA, meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD_TIME_TO_DATE: // Add time B to a date A
-            calcData[index] = ValueDataUtil.addTimeToDate(metaA, dataA, metaB, dataB, metaC, dataC);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case QUARTER_OF_DATE: // What is the quarter (Integer) of a date?
-            calcData[index] = ValueDataUtil.quarterOfDate(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case SUBSTITUTE_VARIABLE: // variable substitution in string
-            calcData[index] = resolve(dataA.toString());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case UNESCAPE_XML: // UnescapeXML( A )
-            calcData[index] = ValueDataUtil.unEscapeXml(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ESCAPE_HTML: // EscapeHTML( A )
-            calcData[index] = ValueDataUtil.escapeHtml(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case UNESCAPE_HTML: // UnescapeHTML( A )
-            calcData[index] = ValueDataUtil.unEscapeHtml(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ESCAPE_SQL: // EscapeSQL( A )
-            calcData[index] = ValueDataUtil.escapeSql(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DATE_WORKING_DIFF: // DateWorkingDiff( A , B)
-            calcData[index] = ValueDataUtil.DateWorkingDiff(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD_MONTHS: // Add B months to date field A
-            calcData[index] = ValueDataUtil.addMonths(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case CHECK_XML_FILE_WELL_FORMED: // Check if file A is well formed
-            calcData[index] =
-                ValueDataUtil.isXmlFileWellFormed(metaA, dataA, meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case CHECK_XML_WELL_FORMED: // Check if xml A is well formed
-            calcData[index] = ValueDataUtil.isXmlWellFormed(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case GET_FILE_ENCODING: // Get file encoding from a file A
-            calcData[index] = ValueDataUtil.getFileEncoding(metaA, dataA, meta.isFailIfNoFile());
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DAMERAU_LEVENSHTEIN: // DAMERAULEVENSHTEIN DISTANCE
-            calcData[index] =
-                ValueDataUtil.getDamerauLevenshtein_Distance(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case NEEDLEMAN_WUNSH: // NEEDLEMANWUNSH DISTANCE
-            calcData[index] = CalculatorValueDataUtil.getNeedlemanWunschDistance(dataA, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case JARO: // Jaro DISTANCE
-            calcData[index] = ValueDataUtil.getJaro_Similitude(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case JARO_WINKLER: // Jaro DISTANCE
-            calcData[index] = ValueDataUtil.getJaroWinkler_Similitude(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case SOUNDEX: // SOUNDEX
-            calcData[index] = ValueDataUtil.get_SoundEx(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REFINED_SOUNDEX: // REFINEDSOUNDEX
-            calcData[index] = ValueDataUtil.get_RefinedSoundEx(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DATE_DIFF_MSEC: // DateA - DateB (ms)
-            calcData[index] = ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "ms");
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DATE_DIFF_SEC: // DateA - DateB (s)
-            calcData[index] = ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "s");
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DATE_DIFF_MN: // DateA - DateB (mn)
-            calcData[index] = ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "mn");
-            resultType = calcType.getDefaultResultType();
-            break;
-          case DATE_DIFF_HR: // DateA - DateB (h)
-            calcData[index] = ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "h");
-            resultType = calcType.getDefaultResultType();
-            break;
-          case HOUR_OF_DAY:
-            calcData[index] = ValueDataUtil.hourOfDay(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case MINUTE_OF_HOUR:
-            calcData[index] = ValueDataUtil.minuteOfHour(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case SECOND_OF_MINUTE:
-            calcData[index] = ValueDataUtil.secondOfMinute(metaA, dataA);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case ADD_SECONDS: // Add B seconds to date field A
-            calcData[index] = ValueDataUtil.addSeconds(metaA, dataA, metaB, dataB);
-            resultType = calcType.getDefaultResultType();
-            break;
-          case REMAINDER:
-            if (targetMeta.getType() != metaA.getType()
-                || targetMeta.getType() != metaB.getType()) {
-              dataA = targetMeta.convertData(metaA, dataA);
-              metaA = targetMeta.clone();
-              dataB = targetMeta.convertData(metaB, dataB);
-              metaB = targetMeta.clone();
-            }
-            calcData[index] = ValueDataUtil.remainder(metaA, dataA, metaB, dataB);
-            resultType = targetMeta.getType();
-            break;
-          case BASE64_ENCODE:
-            if(dataA != null){
-              calcData[index] = Base64.getEncoder().withoutPadding().encodeToString(dataA.toString().getBytes());
-            }else{
-              calcData[index] = null;
-            }
-            resultType = IValueMeta.TYPE_STRING;
-            break;
-          case BASE64_DECODE:
-            if(dataA != null){
-              byte[] tmpDecoded = Base64.getDecoder().decode(dataA.toString());
-              String tmpDecodedString = new String(tmpDecoded);
-              calcData[index] = targetMeta.convertData(metaA, tmpDecodedString);
-            }else{
-              calcData[index] = null;
-            }
-            resultType = targetMeta.getType();
-            break;
+          case ADD:
+            return a + b;
+          case SUBTRACT:
+            return a - b;
           default:
-            throw new HopValueException(
-                BaseMessages.getString(PKG, "Calculator.Log.UnknownCalculationType")
-                    + fn.getCalcType());
+            return a * b;
         }
+      }
+      // A value doesn't have the class of its data type, leave it to the conversions
+      //
+      switch (calcType) {
+        case ADD:
+          return ValueDataUtil.plus(metaA, dataA, metaB, dataB);
+        case SUBTRACT:
+          return ValueDataUtil.minus(metaA, dataA, metaB, dataB);
+        default:
+          return ValueDataUtil.multiply(metaA, dataA, metaB, dataB);
+      }
+    };
+  }
 
-        // If we don't have a target data type, throw an error.
-        // Otherwise the result is non-deterministic.
-        //
-        if (targetMeta.getType() == IValueMeta.TYPE_NONE) {
-          throw new HopValueException(
-              BaseMessages.getString(PKG, "Calculator.Log.NoType")
-                  + (i + 1)
-                  + " : "
-                  + fn.getFieldName()
-                  + " = "
-                  + fn.getCalcType().getCode()
-                  + " / "
-                  + fn.getCalcType().getDescription());
-        }
+  /**
+   * A constant is converted to the target data type once if that type has immutable values.
+   *
+   * @return the calculation or null if the constant needs to be converted for every row
+   */
+  private ICalculation compileConstant(
+      CalculatorMetaFunction fn, IValueMeta targetMeta, int resultType) {
+    switch (targetMeta.getType()) {
+      case IValueMeta.TYPE_STRING:
+      case IValueMeta.TYPE_INTEGER:
+      case IValueMeta.TYPE_NUMBER:
+      case IValueMeta.TYPE_BIGNUMBER:
+      case IValueMeta.TYPE_BOOLEAN:
+        break;
+      default:
+        return null;
+    }
+    IValueMeta resultMeta = createResultMeta(fn, resultType);
+    if (resultMeta == null) {
+      return null;
+    }
+    Object value;
+    try {
+      value = fn.getFieldA() == null ? null : targetMeta.convertData(resultMeta, fn.getFieldA());
+    } catch (Exception e) {
+      // Report the conversion error when the rows are calculated
+      return null;
+    }
+    return calcData -> value;
+  }
 
-        // Convert the data to the correct target data type.
-        //
-        if (calcData[index] != null) {
-          if (targetMeta.getType() != resultType) {
-            IValueMeta resultMeta;
-            try {
-              // clone() is not necessary as one data instance belongs to one transform instance and
-              // no race condition occurs
-              resultMeta = data.getValueMetaFor(resultType, "result");
-            } catch (Exception exception) {
-              throw new HopValueException("Error creating value");
-            }
-            resultMeta.setConversionMask(fn.getConversionMask());
-            resultMeta.setGroupingSymbol(fn.getGroupingSymbol());
-            resultMeta.setDecimalSymbol(fn.getDecimalSymbol());
-            resultMeta.setCurrencySymbol(fn.getCurrencySymbol());
-            try {
-              calcData[index] = targetMeta.convertData(resultMeta, calcData[index]);
-            } catch (Exception ex) {
-              throw new HopValueException(
-                  "resultType: " + resultType + "; targetMeta: " + targetMeta.getType(), ex);
-            }
-          }
-        }
-      }
+  /**
+   * @return metadata of the result data type with the conversion settings of the function or null
+   *     if it can't be created
+   */
+  private IValueMeta createResultMeta(CalculatorMetaFunction fn, int resultType) {
+    IValueMeta resultMeta;
+    try {
+      resultMeta = data.getValueMetaFor(resultType, "result").clone();
+    } catch (Exception exception) {
+      return null;
     }
+    resultMeta.setConversionMask(fn.getConversionMask());
+    resultMeta.setGroupingSymbol(fn.getGroupingSymbol());
+    resultMeta.setDecimalSymbol(fn.getDecimalSymbol());
+    resultMeta.setCurrencySymbol(fn.getCurrencySymbol());
+    return resultMeta;
+  }
 
-    // OK, now we should refrain from adding the temporary fields to the result.
-    // So we remove them.
-    //
-    return RowDataUtil.removeItems(calcData, data.getTempIndexes());
+  /**
+   * The data type of the calculated value is that of the first argument field. Exceptions:
+   *
+   * <ul>
+   *   <li>add and multiply can be string
+   *   <li>constant is string
+   *   <li>all date functions except add days/months
+   *   <li>hex encode / decodes
+   * </ul>
+   *
+   * @return the data type of the calculated value, before it is converted to the target type
+   */
+  private static int getResultType(
+      CalculationType calcType,
+      IValueMeta targetMeta,
+      IValueMeta metaA,
+      IValueMeta metaB,
+      IValueMeta metaC) {
+    int resultType = metaA != null ? metaA.getType() : IValueMeta.TYPE_NONE;
+    switch (calcType) {
+      case NONE:
+      case COPY_OF_FIELD:
+      case DIVIDE:
+      case SQUARE:
+      case SQUARE_ROOT:
+      case PERCENT_1:
+      case PERCENT_2:
+      case PERCENT_3:
+      case COMBINATION_1:
+      case COMBINATION_2:
+      case ROUND_1:
+      case ROUND_2:
+      case ROUND_CUSTOM_1:
+      case ROUND_CUSTOM_2:
+      case ROUND_STD_1:
+      case ROUND_STD_2:
+      case CEIL:
+      case FLOOR:
+      case NVL:
+      case ABS:
+      case REMOVE_TIME_FROM_DATE:
+        return resultType;
+      case ADD:
+      case MULTIPLY:
+        return isString(metaA) || isString(metaB) ? IValueMeta.TYPE_STRING : resultType;
+      case ADD3:
+        return isString(metaA) || isString(metaB) || isString(metaC)
+            ? IValueMeta.TYPE_STRING
+            : resultType;
+      case SUBTRACT:
+        return metaA != null && metaA.isDate() ? IValueMeta.TYPE_INTEGER : resultType;
+      case REMAINDER:
+      case BASE64_DECODE:
+        return targetMeta.getType();
+      case BASE64_ENCODE:
+        return IValueMeta.TYPE_STRING;
+      default:
+        return calcType.getDefaultResultType();
+    }
+  }
+
+  private static boolean isString(IValueMeta valueMeta) {
+    return valueMeta != null && valueMeta.isString();
+  }
+
+  /**
+   * Calculate the value of a function.
+   *
+   * @param calcData the calculation row
+   * @param index the index of the calculated field in the calculation row
+   * @return the calculated value, not yet converted to the target data type
+   */
+  private Object calculate(
+      CalculatorMetaFunction fn,
+      Object[] calcData,
+      int index,
+      IValueMeta targetMeta,
+      IValueMeta metaA,
+      Object dataA,
+      IValueMeta metaB,
+      Object dataB,
+      IValueMeta metaC,
+      Object dataC)
+      throws HopValueException, HopFileNotFoundException {
+    CalculationType calcType = fn.getCalcType();
+
+    switch (calcType) {
+      case NONE:
+        return calcData[index];
+      case COPY_OF_FIELD: // Create a copy of field A
+        return dataA;
+      case ADD: // A + B
+        return ValueDataUtil.plus(metaA, dataA, metaB, dataB);
+      case SUBTRACT: // A - B
+        return ValueDataUtil.minus(metaA, dataA, metaB, dataB);
+      case MULTIPLY: // A * B
+        return ValueDataUtil.multiply(metaA, dataA, metaB, dataB);
+      case DIVIDE: // A / B
+        return ValueDataUtil.divide(metaA, dataA, metaB, dataB);
+      case SQUARE: // A * A
+        return ValueDataUtil.multiply(metaA, dataA, metaA, dataA);
+      case SQUARE_ROOT: // SQRT( A )
+        return ValueDataUtil.sqrt(metaA, dataA);
+      case PERCENT_1: // 100 * A / B
+        return ValueDataUtil.percent1(metaA, dataA, metaB, dataB);
+      case PERCENT_2: // A - ( A * B / 100 )
+        return ValueDataUtil.percent2(metaA, dataA, metaB, dataB);
+      case PERCENT_3: // A + ( A * B / 100 )
+        return ValueDataUtil.percent3(metaA, dataA, metaB, dataB);
+      case COMBINATION_1: // A + B * C
+        return ValueDataUtil.combination1(metaA, dataA, metaB, dataB, metaC, dataC);
+      case COMBINATION_2: // SQRT( A*A + B*B )
+        return ValueDataUtil.combination2(metaA, dataA, metaB, dataB);
+      case ROUND_1: // ROUND( A )
+        return ValueDataUtil.round(metaA, dataA);
+      case ROUND_2: // ROUND( A , B )
+        return ValueDataUtil.round(metaA, dataA, metaB, dataB);
+      case ROUND_CUSTOM_1: // ROUND( A , B )
+        return ValueDataUtil.round(metaA, dataA, metaB.getNumber(dataB).intValue());
+      case ROUND_CUSTOM_2: // ROUND( A , B, C )
+        return ValueDataUtil.round(metaA, dataA, metaB, dataB, metaC.getNumber(dataC).intValue());
+      case ROUND_STD_1: // ROUND( A )
+        return ValueDataUtil.round(metaA, dataA, java.math.BigDecimal.ROUND_HALF_UP);
+      case ROUND_STD_2: // ROUND( A , B )
+        return ValueDataUtil.round(metaA, dataA, metaB, dataB, java.math.BigDecimal.ROUND_HALF_UP);
+      case CEIL: // CEIL( A )
+        return ValueDataUtil.ceil(metaA, dataA);
+      case FLOOR: // FLOOR( A )
+        return ValueDataUtil.floor(metaA, dataA);
+      case CONSTANT: // Set field to constant value...
+        return fn.getFieldA(); // A string
+      case NVL: // Replace null values with another value
+        return ValueDataUtil.nvl(metaA, dataA, metaB, dataB);
+      case ADD_DAYS: // Add B days to date field A
+        return ValueDataUtil.addDays(metaA, dataA, metaB, dataB);
+      case ADD_HOURS: // Add B hours to date field A
+        return ValueDataUtil.addHours(metaA, dataA, metaB, dataB);
+      case ADD_MINUTES: // Add B minutes to date field A
+        return ValueDataUtil.addMinutes(metaA, dataA, metaB, dataB);
+      case YEAR_OF_DATE: // What is the year (Integer) of a date?
+        return ValueDataUtil.yearOfDate(metaA, dataA);
+      case MONTH_OF_DATE: // What is the month (Integer) of a date?
+        return ValueDataUtil.monthOfDate(metaA, dataA);
+      case DAY_OF_YEAR: // What is the day of year (Integer) of a date?
+        return ValueDataUtil.dayOfYear(metaA, dataA);
+      case DAY_OF_MONTH: // What is the day of month (Integer) of a date?
+        return ValueDataUtil.dayOfMonth(metaA, dataA);
+      case DAY_OF_WEEK: // What is the day of week (Integer) of a date?
+        return ValueDataUtil.dayOfWeek(metaA, dataA);
+      case WEEK_OF_YEAR: // What is the week of year (Integer) of a date?
+        return ValueDataUtil.weekOfYear(metaA, dataA);
+      case WEEK_OF_YEAR_ISO8601: // What is the week of year (Integer) of a date ISO8601
+        // style?
+        return ValueDataUtil.weekOfYearISO8601(metaA, dataA);
+      case YEAR_OF_DATE_ISO8601: // What is the year (Integer) of a date ISO8601 style?
+        return ValueDataUtil.yearOfDateISO8601(metaA, dataA);
+      case BYTE_TO_HEX_ENCODE: // Byte to Hex encode string field A
+        return ValueDataUtil.byteToHexEncode(metaA, dataA);
+      case HEX_TO_BYTE_DECODE: // Hex to Byte decode string field A
+        return ValueDataUtil.hexToByteDecode(metaA, dataA);
+
+      case CHAR_TO_HEX_ENCODE: // Char to Hex encode string field A
+        return ValueDataUtil.charToHexEncode(metaA, dataA);
+      case HEX_TO_CHAR_DECODE: // Hex to Char decode string field A
+        return ValueDataUtil.hexToCharDecode(metaA, dataA);
+      case CRC32: // CRC32
+        return ValueDataUtil.checksumCRC32(metaA, dataA, meta.isFailIfNoFile());
+      case ADLER32: // ADLER32
+        return ValueDataUtil.checksumAdler32(metaA, dataA, meta.isFailIfNoFile());
+      case MD5: // MD5
+        return ValueDataUtil.createChecksum(metaA, dataA, "MD5", meta.isFailIfNoFile());
+      case SHA1: // SHA-1
+        return ValueDataUtil.createChecksum(metaA, dataA, "SHA-1", meta.isFailIfNoFile());
+      case LEVENSHTEIN_DISTANCE: // LEVENSHTEIN DISTANCE
+        return ValueDataUtil.getLevenshtein_Distance(metaA, dataA, metaB, dataB);
+      case METAPHONE: // METAPHONE
+        return ValueDataUtil.get_Metaphone(metaA, dataA);
+      case DOUBLE_METAPHONE: // Double METAPHONE
+        return ValueDataUtil.get_Double_Metaphone(metaA, dataA);
+      case ABS: // ABS( A )
+        return ValueDataUtil.abs(metaA, dataA);
+      case REMOVE_TIME_FROM_DATE: // Remove Time from field A
+        return ValueDataUtil.removeTimeFromDate(metaA, dataA);
+      case DATE_DIFF: // DateA - DateB
+        return ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "d");
+      case ADD3: // A + B + C
+        return ValueDataUtil.plus3(metaA, dataA, metaB, dataB, metaC, dataC);
+      case INITCAP: // InitCap( A )
+        return ValueDataUtil.initCap(metaA, dataA);
+      case UPPER_CASE: // UpperCase( A )
+        return ValueDataUtil.upperCase(metaA, dataA);
+      case LOWER_CASE: // UpperCase( A )
+        return ValueDataUtil.lowerCase(metaA, dataA);
+      case MASK_XML: // escapeXML( A )
+        return ValueDataUtil.escapeXml(metaA, dataA);
+      case USE_CDATA: // CDATA( A )
+        return ValueDataUtil.useCDATA(metaA, dataA);
+      case REMOVE_CR: // REMOVE CR FROM A
+        return ValueDataUtil.removeCR(metaA, dataA);
+      case REMOVE_LF: // REMOVE LF FROM A
+        return ValueDataUtil.removeLF(metaA, dataA);
+      case REMOVE_CRLF: // REMOVE CRLF FROM A
+        return ValueDataUtil.removeCRLF(metaA, dataA);
+      case REMOVE_TAB: // REMOVE TAB FROM A
+        return ValueDataUtil.removeTAB(metaA, dataA);
+      case GET_ONLY_DIGITS: // GET ONLY DIGITS FROM A
+        return ValueDataUtil.getDigits(metaA, dataA);
+      case REMOVE_DIGITS: // REMOVE DIGITS FROM A
+        return ValueDataUtil.removeDigits(metaA, dataA);
+      case STRING_LEN: // RETURN THE LENGTH OF A
+        return ValueDataUtil.stringLen(metaA, dataA);
+      case LOAD_FILE_CONTENT_BINARY: // LOAD CONTENT OF A FILE A IN A BLOB
+        return ValueDataUtil.loadFileContentInBinary(metaA, dataA, meta.isFailIfNoFile());
+      case ADD_TIME_TO_DATE: // Add time B to a date A
+        return ValueDataUtil.addTimeToDate(metaA, dataA, metaB, dataB, metaC, dataC);
+      case QUARTER_OF_DATE: // What is the quarter (Integer) of a date?
+        return ValueDataUtil.quarterOfDate(metaA, dataA);
+      case SUBSTITUTE_VARIABLE: // variable substitution in string
+        return resolve(dataA.toString());
+      case UNESCAPE_XML: // UnescapeXML( A )
+        return ValueDataUtil.unEscapeXml(metaA, dataA);
+      case ESCAPE_HTML: // EscapeHTML( A )
+        return ValueDataUtil.escapeHtml(metaA, dataA);
+      case UNESCAPE_HTML: // UnescapeHTML( A )
+        return ValueDataUtil.unEscapeHtml(metaA, dataA);
+      case ESCAPE_SQL: // EscapeSQL( A )
+        return ValueDataUtil.escapeSql(metaA, dataA);
+      case DATE_WORKING_DIFF: // DateWorkingDiff( A , B)
+        return ValueDataUtil.DateWorkingDiff(metaA, dataA, metaB, dataB);
+      case ADD_MONTHS: // Add B months to date field A
+        return ValueDataUtil.addMonths(metaA, dataA, metaB, dataB);
+      case CHECK_XML_FILE_WELL_FORMED: // Check if file A is well formed
+        return ValueDataUtil.isXmlFileWellFormed(metaA, dataA, meta.isFailIfNoFile());
+      case CHECK_XML_WELL_FORMED: // Check if xml A is well formed
+        return ValueDataUtil.isXmlWellFormed(metaA, dataA);
+      case GET_FILE_ENCODING: // Get file encoding from a file A
+        return ValueDataUtil.getFileEncoding(metaA, dataA, meta.isFailIfNoFile());
+      case DAMERAU_LEVENSHTEIN: // DAMERAULEVENSHTEIN DISTANCE
+        return ValueDataUtil.getDamerauLevenshtein_Distance(metaA, dataA, metaB, dataB);
+      case NEEDLEMAN_WUNSH: // NEEDLEMANWUNSH DISTANCE
+        return CalculatorValueDataUtil.getNeedlemanWunschDistance(dataA, dataB);
+      case JARO: // Jaro DISTANCE
+        return ValueDataUtil.getJaro_Similitude(metaA, dataA, metaB, dataB);
+      case JARO_WINKLER: // Jaro DISTANCE
+        return ValueDataUtil.getJaroWinkler_Similitude(metaA, dataA, metaB, dataB);
+      case SOUNDEX: // SOUNDEX
+        return ValueDataUtil.get_SoundEx(metaA, dataA);
+      case REFINED_SOUNDEX: // REFINEDSOUNDEX
+        return ValueDataUtil.get_RefinedSoundEx(metaA, dataA);
+      case DATE_DIFF_MSEC: // DateA - DateB (ms)
+        return ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "ms");
+      case DATE_DIFF_SEC: // DateA - DateB (s)
+        return ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "s");
+      case DATE_DIFF_MN: // DateA - DateB (mn)
+        return ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "mn");
+      case DATE_DIFF_HR: // DateA - DateB (h)
+        return ValueDataUtil.DateDiff(metaA, dataA, metaB, dataB, "h");
+      case HOUR_OF_DAY:
+        return ValueDataUtil.hourOfDay(metaA, dataA);
+      case MINUTE_OF_HOUR:
+        return ValueDataUtil.minuteOfHour(metaA, dataA);
+      case SECOND_OF_MINUTE:
+        return ValueDataUtil.secondOfMinute(metaA, dataA);
+      case ADD_SECONDS: // Add B seconds to date field A
+        return ValueDataUtil.addSeconds(metaA, dataA, metaB, dataB);
+      case REMAINDER:
+        if (targetMeta.getType() != metaA.getType()
+            || targetMeta.getType() != metaB.getType()) {
+          dataA = targetMeta.convertData(metaA, dataA);
+          metaA = targetMeta.clone();
+          dataB = targetMeta.convertData(metaB, dataB);
+          metaB = targetMeta.clone();
+        }
+        return ValueDataUtil.remainder(metaA, dataA, metaB, dataB);
+      case BASE64_ENCODE:
+        if (dataA != null) {
+          return Base64.getEncoder().withoutPadding().encodeToString(dataA.toString().getBytes());
+        } else {
+          return null;
+        }
+      case BASE64_DECODE:
+        if (dataA != null) {
+          byte[] tmpDecoded = Base64.getDecoder().decode(dataA.toString());
+          String tmpDecodedString = new String(tmpDecoded);
+          return targetMeta.convertData(metaA, tmpDecodedString);
+        } else {
+          return null;
+        }
+      default:
+        throw new HopValueException(
+            BaseMessages.getString(PKG, "Calculator.Log.UnknownCalculationType")
+                + fn.getCalcType());
+    }
   }
 }
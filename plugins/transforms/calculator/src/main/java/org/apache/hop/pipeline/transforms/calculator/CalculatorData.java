@@ -20,6 +20,7 @@ package org.apache.hop.pipeline.transforms.calculator;
 import org.apache.hop.core.exception.HopPluginException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.row.value.ValueMetaFactory;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
@@ -33,8 +34,18 @@ public class CalculatorData extends BaseTransformData implements ITransformData
 
   private Calculator.FieldIndexes[] fieldIndexes;
 
+  private Calculator.ICalculation[] calculations;
+
   private int[] tempIndexes;
 
+  private Object[][] rows;
+
+  private Object[][] outputRows;
+
+  private RowBatch batch;
+
+  private int[] batchColumns;
+
   private final Map<Integer, IValueMeta> resultMetaMapping;
 
   public CalculatorData() {
@@ -66,6 +77,20 @@ public class CalculatorData extends BaseTransformData implements ITransformData
     this.fieldIndexes = fieldIndexes;
   }
 
+  /**
+   * Gets the functions compiled for the layout of the calculation row
+   *
+   * @return value of calculations
+   */
+  public Calculator.ICalculation[] getCalculations() {
+    return calculations;
+  }
+
+  /** @param calculations The calculations to set */
+  public void setCalculations(Calculator.ICalculation[] calculations) {
+    this.calculations = calculations;
+  }
+
   public int[] getTempIndexes() {
     return tempIndexes;
   }
@@ -74,6 +99,51 @@ public class CalculatorData extends BaseTransformData implements ITransformData
     this.tempIndexes = tempIndexes;
   }
 
+  public Object[][] getRows() {
+    return rows;
+  }
+
+  public void setRows(Object[][] rows) {
+    this.rows = rows;
+  }
+
+  public Object[][] getOutputRows() {
+    return outputRows;
+  }
+
+  public void setOutputRows(Object[][] outputRows) {
+    this.outputRows = outputRows;
+  }
+
+  /**
+   * Gets the batch used to calculate on primitive vectors, null if the calculations are done row by
+   * row
+   *
+   * @return value of batch
+   */
+  public RowBatch getBatch() {
+    return batch;
+  }
+
+  /** @param batch The batch to set */
+  public void setBatch(RowBatch batch) {
+    this.batch = batch;
+  }
+
+  /**
+   * Gets the indexes of the input fields to load in the batch
+   *
+   * @return value of batchColumns
+   */
+  public int[] getBatchColumns() {
+    return batchColumns;
+  }
+
+  /** @param batchColumns The batchColumns to set */
+  public void setBatchColumns(int[] batchColumns) {
+    this.batchColumns = batchColumns;
+  }
+
   public IValueMeta getValueMetaFor(int resultType, String name) throws HopPluginException {
     // don't need any synchronization as data instance belongs only to one transform instance
     IValueMeta meta = resultMetaMapping.get(resultType);
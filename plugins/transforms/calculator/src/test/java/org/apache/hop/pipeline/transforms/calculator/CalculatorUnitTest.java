@@ -48,9 +48,13 @@ import java.math.BigInteger;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -1069,4 +1073,112 @@ public class CalculatorUnitTest {
       fail();
     }
   }
+
+  @Test
+  public void testBatchArithmetic() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaInteger("a"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("b"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("x"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("y"));
+
+    IRowSet inputRowSet =
+        smh.getMockInputRowSet(
+            new Object[][] {
+              {1L, 2L, 1.5, 2.0},
+              {null, 5L, null, 3.0},
+              {Long.MAX_VALUE, 1L, -0.5, 4.0},
+            });
+    inputRowSet.setRowMeta(inputRowMeta);
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.getFunctions().add(arithmetic("sum", CalculationType.ADD, "a", "b", "Integer", false));
+    meta.getFunctions()
+        .add(arithmetic("diff", CalculationType.SUBTRACT, "sum", "b", "Integer", true));
+    meta.getFunctions()
+        .add(arithmetic("check", CalculationType.MULTIPLY, "diff", "b", "Integer", false));
+    meta.getFunctions()
+        .add(arithmetic("prod", CalculationType.MULTIPLY, "x", "y", "Number", false));
+
+    CalculatorData data = new CalculatorData();
+    Calculator calculator =
+        new Calculator(smh.transformMeta, meta, data, 0, smh.pipelineMeta, smh.pipeline);
+    calculator.addRowSetToInputRowSets(inputRowSet);
+    calculator.setInputRowMeta(inputRowMeta);
+    calculator.init();
+
+    final List<Object[]> written = new ArrayList<>();
+    calculator.addRowListener(
+        new RowAdapter() {
+          @Override
+          public void rowWrittenEvent(IRowMeta rowMeta, Object[] row) {
+            written.add(row);
+          }
+        });
+    calculator.processRow();
+
+    assertNotNull("The batch calculation should be used", data.getBatch());
+    assertEquals(3, written.size());
+    assertArrayEquals(
+        new Object[] {1L, 2L, 1.5, 2.0, 3L, 2L, 3.0},
+        Arrays.copyOf(written.get(0), 7));
+    assertArrayEquals(
+        new Object[] {null, 5L, null, 3.0, null, null, null},
+        Arrays.copyOf(written.get(1), 7));
+    assertArrayEquals(
+        new Object[] {Long.MAX_VALUE, 1L, -0.5, 4.0, Long.MIN_VALUE, Long.MAX_VALUE, -2.0},
+        Arrays.copyOf(written.get(2), 7));
+  }
+
+  @Test
+  public void testCompiledCalculations() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaInteger("a"));
+    inputRowMeta.addValueMeta(new ValueMetaString("s"));
+
+    IRowSet inputRowSet =
+        smh.getMockInputRowSet(new Object[][] {{4L, "x"}, {null, "y"}, {-7L, null}});
+    inputRowSet.setRowMeta(inputRowMeta);
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.getFunctions()
+        .add(arithmetic("ten", CalculationType.CONSTANT, "10", null, "Integer", true));
+    meta.getFunctions().add(arithmetic("sum", CalculationType.ADD, "a", "ten", "Number", false));
+    meta.getFunctions()
+        .add(arithmetic("concat", CalculationType.ADD, "s", "a", "String", false));
+
+    CalculatorData data = new CalculatorData();
+    Calculator calculator =
+        new Calculator(smh.transformMeta, meta, data, 0, smh.pipelineMeta, smh.pipeline);
+    calculator.addRowSetToInputRowSets(inputRowSet);
+    calculator.setInputRowMeta(inputRowMeta);
+    calculator.init();
+
+    final List<Object[]> written = new ArrayList<>();
+    calculator.addRowListener(
+        new RowAdapter() {
+          @Override
+          public void rowWrittenEvent(IRowMeta rowMeta, Object[] row) {
+            written.add(row);
+          }
+        });
+    calculator.processRow();
+
+    assertEquals(3, data.getCalculations().length);
+    assertEquals(3, written.size());
+    assertArrayEquals(new Object[] {4L, "x", 14.0, "x4"}, Arrays.copyOf(written.get(0), 4));
+    assertArrayEquals(new Object[] {null, "y", null, null}, Arrays.copyOf(written.get(1), 4));
+    assertArrayEquals(new Object[] {-7L, null, 3.0, null}, Arrays.copyOf(written.get(2), 4));
+  }
+
+  private static CalculatorMetaFunction arithmetic(
+      String name,
+      CalculationType calcType,
+      String fieldA,
+      String fieldB,
+      String valueType,
+      boolean removedFromResult) {
+    return new CalculatorMetaFunction(
+        name, calcType, fieldA, fieldB, null, valueType, 0, 0, "", "", "", "", removedFromResult);
+  }
 }
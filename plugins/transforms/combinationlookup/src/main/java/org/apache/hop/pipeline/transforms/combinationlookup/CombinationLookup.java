@@ -18,7 +18,6 @@
 package org.apache.hop.pipeline.transforms.combinationlookup;
 
 import org.apache.hop.core.Const;
-import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopConfigException;
@@ -26,6 +25,8 @@ import org.apache.hop.core.exception.HopDatabaseException;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.TinyLfuCache;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowMeta;
@@ -33,19 +34,22 @@ import org.apache.hop.core.row.value.ValueMetaDate;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.metadata.cache.LookupCacheRegistry;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.pipeline.transforms.combinationlookup.CombinationLookupData.PendingInsert;
 
+import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * Manages or looks up information in a Type 1 or junk dimension.
@@ -72,6 +76,12 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
   private static final int CREATION_METHOD_SEQUENCE = 2;
   private static final int CREATION_METHOD_TABLEMAX = 3;
 
+  /** The estimated number of bytes used by a cache entry besides the binary key */
+  private static final int CACHE_ENTRY_OVERHEAD = 96;
+
+  /** The number of batches worth of output rows which can wait for the generated keys */
+  private static final int MAX_BUFFERED_BATCHES = 4;
+
   private int techKeyCreation;
 
   public CombinationLookup(
@@ -105,106 +115,126 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     }
   }
 
-  private Long lookupInCache(IRowMeta rowMeta, Object[] row) {
+  private Long lookupInCache(Object[] cacheKey) throws HopException {
+    if (data.sharedData != null) {
+      Object[] value = data.sharedData.get(data.cacheKeyEncoder, cacheKey);
+      return value == null ? null : (Long) value[0];
+    }
+
     // Short circuit if cache is disabled.
-    if (meta.getCacheSize() == -1) {
+    if (data.cache == null) {
       return null;
     }
 
     // try to find the row in the cache...
     //
-    Long tk = data.cache.get(new RowMetaAndData(rowMeta, row));
-    return tk;
+    BinaryKeyEncoder encoder = data.cacheKeyEncoder;
+    encoder.encode(cacheKey);
+    return data.cache.get(encoder.getKey(), encoder.getLength(), encoder.getHash());
   }
 
   /**
-   * Adds a row to the cache In case we are doing updates, we need to store the complete rows from
-   * the database. These are the values we need to store
-   *
-   * <p>Key: - natural key fields Value: - Technical key - lookup fields / extra fields (allows us
-   * to compare or retrieve) - Date_from - Date_to
+   * Adds a natural key and its technical key to the cache. When the cache grows beyond its number
+   * of rows or its memory, the keys which were used least are removed first.
    *
-   * @param rowMeta
-   * @param row
-   * @param tk
-   * @throws HopValueException
+   * @param cacheKey the natural key in normal storage
+   * @param tk the technical key
+   * @throws HopException in case the key can't be encoded
    */
-  private void addToCache(IRowMeta rowMeta, Object[] row, Long tk) throws HopValueException {
-    // Short circuit if cache is disabled.
-    if (meta.getCacheSize() == -1) {
+  private void addToCache(Object[] cacheKey, Long tk) throws HopException {
+    if (data.sharedData != null) {
+      data.sharedData.put(data.cacheKeyEncoder, cacheKey, new Object[] {tk});
+    } else if (data.cache != null) {
+      BinaryKeyEncoder encoder = data.cacheKeyEncoder;
+      encoder.encode(cacheKey);
+      data.cache.put(
+          encoder.getKey(),
+          encoder.getLength(),
+          encoder.getHash(),
+          tk,
+          CACHE_ENTRY_OVERHEAD + encoder.getLength(),
+          0L);
+    } else {
+      // Short circuit if cache is disabled.
       return;
     }
 
-    // store it in the cache if needed.
-    data.cache.put(new RowMetaAndData(rowMeta, row), tk);
+    if (isRowLevel()) {
+      logRowlevel("Cache store: key=" + data.cacheKeyMeta.getString(cacheKey) + "    key=" + tk);
+    }
+  }
 
-    // check if the size is not too big...
-    // Allow for a buffer overrun of 20% and then remove those 20% in one go.
-    // Just to keep performance in track.
-    //
-    int tenPercent = meta.getCacheSize() / 10;
-    if (meta.getCacheSize() > 0 && data.cache.size() > meta.getCacheSize() + tenPercent) {
-      // Which cache entries do we delete here?
-      // We delete those with the lowest technical key...
-      // Those would arguably be the "oldest" dimension entries.
-      // Oh well... Nothing is going to be perfect here...
-      //
-      // Getting the lowest 20% requires some kind of sorting algorithm and I'm not sure we want to
-      // do that.
-      // Sorting is slow and even in the best case situation we need to do 2 passes over the cache
-      // entries...
-      //
-      // Perhaps we should get 20% random values and delete everything below the lowest but one TK.
-      //
-      List<RowMetaAndData> keys = new ArrayList<>(data.cache.keySet());
-      int sizeBefore = keys.size();
-      List<Long> samples = new ArrayList<>();
-
-      // Take 10 sample technical keys....
-      int transformsize = keys.size() / 5;
-      if (transformsize < 1) {
-        transformsize = 1; // make sure we have no endless loop
-      }
-      for (int i = 0; i < keys.size(); i += transformsize) {
-        RowMetaAndData key = keys.get(i);
-        Long value = data.cache.get(key);
-        if (value != null) {
-          samples.add(value);
-        }
-      }
-      // Sort these 5 elements...
-      Collections.sort(samples);
+  /**
+   * The caches hold the keys in normal storage, so that pipelines reading the keys lazily and the
+   * pre-loaded keys from the database end up with the same binary key.
+   */
+  private Object[] getCacheKey(Object[] hashRow) throws HopValueException {
+    Object[] key = new Object[hashRow.length];
+    for (int i = 0; i < hashRow.length; i++) {
+      key[i] = data.hashRowMeta.getValueMeta(i).convertToNormalStorageType(hashRow[i]);
+    }
+    return key;
+  }
 
-      // What is the smallest?
-      // Take the second, not the fist in the list, otherwise we would be removing a single entry =
-      // not good.
-      if (samples.size() > 1) {
-        data.smallestCacheKey = samples.get(1).longValue();
-      } else { // except when there is only one sample
-        data.smallestCacheKey = samples.get(0).longValue();
-      }
+  /** A copy of the binary key of a new combination to find it back in the current batch. */
+  private ByteBuffer getPendingKey(Object[] cacheKey) throws HopException {
+    BinaryKeyEncoder encoder = data.cacheKeyEncoder;
+    encoder.encode(cacheKey);
+    return ByteBuffer.wrap(Arrays.copyOf(encoder.getKey(), encoder.getLength()));
+  }
 
-      // Remove anything in the cache <= smallest.
-      // This makes it almost single pass...
-      // This algorithm is not 100% correct, but I guess it beats sorting the whole cache all the
-      // time.
-      //
-      for (int i = 0; i < keys.size(); i++) {
-        RowMetaAndData key = keys.get(i);
-        Long value = data.cache.get(key);
-        if (value != null) {
-          if (value.longValue() <= data.smallestCacheKey) {
-            data.cache.remove(key); // this one has to go.
-          }
-        }
-      }
+  /**
+   * Prepare the binary encoding of the keys in the caches. Start using the data of the shared
+   * lookup cache, if the keys of this transform have the same data types as the keys already in
+   * there. Otherwise we use a private cache.
+   */
+  private void initCache() {
+    data.cacheKeyMeta = new RowMeta();
+    for (IValueMeta valueMeta : data.hashRowMeta.getValueMetaList()) {
+      IValueMeta keyMeta = valueMeta.clone();
+      keyMeta.setStorageType(IValueMeta.STORAGE_TYPE_NORMAL);
+      keyMeta.setStorageMetadata(null);
+      data.cacheKeyMeta.addValueMeta(keyMeta);
+    }
+    data.cacheKeyEncoder = new BinaryKeyEncoder(data.cacheKeyMeta, null);
 
-      int sizeAfter = data.cache.size();
-      logDetailed("Reduced the lookup cache from " + sizeBefore + " to " + sizeAfter + " rows.");
+    if (data.sharedCache == null) {
+      return;
     }
+    IRowMeta valueRowMeta = new RowMeta();
+    valueRowMeta.addValueMeta(new ValueMetaInteger(meta.getTechnicalKeyField()));
 
-    if (isRowLevel()) {
-      logRowlevel("Cache store: key=" + rowMeta.getString(row) + "    key=" + tk);
+    data.sharedData = data.sharedCache.getData();
+    if (data.sharedData.checkLayout(data.cacheKeyMeta, valueRowMeta)) {
+      return;
+    }
+
+    logBasic(
+        BaseMessages.getString(
+            PKG, "CombinationLookup.Log.SharedCacheLayoutDifferent", data.sharedCache.getName()));
+    data.sharedData = null;
+    LookupCacheRegistry.getInstance().release(data.sharedCache);
+    data.sharedCache = null;
+  }
+
+  /**
+   * Insert new combinations in batches when the database supports it. With generated keys the
+   * database has to return the keys of a whole batch.
+   */
+  private void initBatchInserts() throws HopException {
+    data.batchInserts =
+        meta.getInsertBatchSize() > 1
+            && !data.db.isAutoCommit()
+            && data.db.getUseBatchInsert(true)
+            && (!isAutoIncrement() || meta.getDatabaseMeta().supportsAutoGeneratedKeys());
+    if (data.batchInserts) {
+      data.pendingInserts = new ArrayList<>();
+      data.pendingKeys = new HashMap<>();
+      data.bufferedRows = new ArrayList<>();
+      data.bufferedInserts = new ArrayList<>();
+      data.maxBufferedRows = MAX_BUFFERED_BATCHES * meta.getInsertBatchSize();
+    } else if (meta.getInsertBatchSize() > 1 && log.isDetailed()) {
+      logDetailed(BaseMessages.getString(PKG, "CombinationLookup.Log.NoBatchInserts"));
     }
   }
 
@@ -220,7 +250,7 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     Object[] lookupRow = new Object[data.lookupRowMeta.size()];
     int lookupIndex = 0;
 
-    if (meta.useHash() || meta.getCacheSize() >= 0) {
+    if (meta.useHash() || data.cache != null || data.sharedData != null || data.batchInserts) {
       hashRow = new Object[data.hashRowMeta.size()];
       for (int i = 0; i < meta.getKeyField().length; i++) {
         hashRow[i] = row[data.keynrs[i]];
@@ -252,49 +282,53 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       lookupIndex++;
     }
 
+    Object[] cacheKey = null;
+    if (data.cache != null || data.sharedData != null || data.batchInserts) {
+      cacheKey = getCacheKey(hashRow);
+    }
+
     // Before doing the actual lookup in the database, see if it's not in the cache...
-    valKey = lookupInCache(data.hashRowMeta, hashRow);
-    if (valKey == null) {
+    valKey = lookupInCache(cacheKey);
+
+    // ... or in the batch of new combinations which isn't inserted yet
+    PendingInsert pending = null;
+    ByteBuffer pendingKey = null;
+    if (valKey == null && data.batchInserts) {
+      pendingKey = getPendingKey(cacheKey);
+      pending = data.pendingKeys.get(pendingKey);
+      if (pending != null) {
+        valKey = pending.technicalKey;
+      }
+    }
+
+    if (valKey == null && pending == null) {
       data.db.setValues(data.lookupRowMeta, lookupRow, data.prepStatementLookup);
       Object[] add = data.db.getLookup(data.prepStatementLookup);
       incrementLinesInput();
 
       if (add == null) { // The dimension entry was not found, we need to add it!
-        // First try to use an AUTOINCREMENT field
-        switch (getTechKeyCreation()) {
-          case CREATION_METHOD_TABLEMAX:
-            // Use our own counter: what's the next value for the technical key?
-            valKey =
-                data.db.getNextValue(
-                    data.realSchemaName, data.realTableName, meta.getTechnicalKeyField());
-            break;
-          case CREATION_METHOD_AUTOINC:
-            valKey = Long.valueOf(0); // value to accept new key...
-            break;
-          case CREATION_METHOD_SEQUENCE:
-            valKey =
-                data.db.getNextSequenceValue(
-                    data.realSchemaName, meta.getSequenceFrom(), meta.getTechnicalKeyField());
-            if (valKey != null && isRowLevel()) {
-              logRowlevel(
-                  BaseMessages.getString(PKG, "CombinationLookup.Log.FoundNextSequenceValue")
-                      + valKey.toString());
-            }
-            break;
-          default:
-            break;
-        }
-
-        valKey = combiInsert(rowMeta, row, valKey, valHash);
-        incrementLinesOutput();
+        valKey = getNextTechnicalKey();
+
+        if (data.batchInserts) {
+          // The row is added to the batch, generated keys are known after the batch is inserted
+          //
+          combiInsert(rowMeta, row, valKey, valHash);
+          pending = new PendingInsert(cacheKey, isAutoIncrement() ? null : valKey);
+          data.pendingInserts.add(pending);
+          data.pendingKeys.put(pendingKey, pending);
+          valKey = pending.technicalKey;
+        } else {
+          valKey = combiInsert(rowMeta, row, valKey, valHash);
+          incrementLinesOutput();
+
+          if (isRowLevel()) {
+            logRowlevel(
+                BaseMessages.getString(PKG, "CombinationLookup.Log.AddedDimensionEntry") + valKey);
+          }
 
-        if (isRowLevel()) {
-          logRowlevel(
-              BaseMessages.getString(PKG, "CombinationLookup.Log.AddedDimensionEntry") + valKey);
+          // Also store it in our Hashtable...
+          addToCache(cacheKey, valKey);
         }
-
-        // Also store it in our Hashtable...
-        addToCache(data.hashRowMeta, hashRow, valKey);
       } else {
         // Entry already exists...
         //
@@ -302,7 +336,7 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
             data.db
                 .getReturnRowMeta()
                 .getInteger(add, 0); // Sometimes it's not an integer, believe it or not.
-        addToCache(data.hashRowMeta, hashRow, valKey);
+        addToCache(cacheKey, valKey);
       }
     }
 
@@ -327,14 +361,131 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     // Add the technical key...
     outputRow[outputIndex] = valKey;
 
+    // A row waiting for a generated key is passed on after its batch is inserted.
+    // The rows after it wait as well to keep the order of the rows.
+    //
+    if (data.batchInserts && (valKey == null || !data.bufferedRows.isEmpty())) {
+      data.bufferedRows.add(outputRow);
+      data.bufferedInserts.add(valKey == null ? pending : null);
+      return null;
+    }
+
     return outputRow;
   }
 
+  /**
+   * Determine the technical key of a new combination.
+   *
+   * @return the next technical key, 0 if the database generates it
+   */
+  private Long getNextTechnicalKey() throws HopDatabaseException {
+    Long valKey = null;
+    // First try to use an AUTOINCREMENT field
+    switch (getTechKeyCreation()) {
+      case CREATION_METHOD_TABLEMAX:
+        // Use our own counter: what's the next value for the technical key?
+        valKey =
+            data.db.getNextValue(
+                data.realSchemaName, data.realTableName, meta.getTechnicalKeyField());
+        break;
+      case CREATION_METHOD_AUTOINC:
+        valKey = Long.valueOf(0); // value to accept new key...
+        break;
+      case CREATION_METHOD_SEQUENCE:
+        valKey =
+            data.db.getNextSequenceValue(
+                data.realSchemaName, meta.getSequenceFrom(), meta.getTechnicalKeyField());
+        if (valKey != null && isRowLevel()) {
+          logRowlevel(
+              BaseMessages.getString(PKG, "CombinationLookup.Log.FoundNextSequenceValue")
+                  + valKey.toString());
+        }
+        break;
+      default:
+        break;
+    }
+    return valKey;
+  }
+
+  /**
+   * Insert the batch of new combinations, retrieve the generated keys of the batch in one go and
+   * pass on the rows which were waiting for them.
+   *
+   * @throws HopException in case the batch can't be inserted or the keys can't be retrieved
+   */
+  private void flushInserts() throws HopException {
+    if (!data.pendingInserts.isEmpty()) {
+      try {
+        data.prepStatementInsert.executeBatch();
+
+        if (isAutoIncrement()) {
+          ResultSet keys = data.prepStatementInsert.getGeneratedKeys();
+          try {
+            for (int i = 0; i < data.pendingInserts.size(); i++) {
+              if (!keys.next()) {
+                throw new HopDatabaseException(
+                    BaseMessages.getString(
+                        PKG,
+                        "CombinationLookup.Exception.GeneratedKeyMissing",
+                        Integer.toString(i + 1),
+                        meta.getTechnicalKeyField()));
+              }
+              data.pendingInserts.get(i).technicalKey = Long.valueOf(keys.getLong(1));
+            }
+          } finally {
+            keys.close();
+          }
+        }
+        data.prepStatementInsert.clearBatch();
+      } catch (SQLException ex) {
+        throw new HopDatabaseException(
+            "Unable to insert a batch of "
+                + data.pendingInserts.size()
+                + " new combinations into "
+                + data.schemaTable,
+            ex);
+      }
+
+      for (PendingInsert pending : data.pendingInserts) {
+        incrementLinesOutput();
+        if (isRowLevel()) {
+          logRowlevel(
+              BaseMessages.getString(PKG, "CombinationLookup.Log.AddedDimensionEntry")
+                  + pending.technicalKey);
+        }
+        addToCache(pending.cacheKey, pending.technicalKey);
+      }
+
+      data.uncommittedInserts += data.pendingInserts.size();
+      if (meta.getCommitSize() > 0 && data.uncommittedInserts >= meta.getCommitSize()) {
+        data.db.commit();
+        data.uncommittedInserts = 0;
+      }
+      data.pendingInserts.clear();
+      data.pendingKeys.clear();
+    }
+
+    int keyIndex = data.outputRowMeta.size() - 1;
+    for (int i = 0; i < data.bufferedRows.size(); i++) {
+      Object[] outputRow = data.bufferedRows.get(i);
+      PendingInsert pending = data.bufferedInserts.get(i);
+      if (pending != null) {
+        outputRow[keyIndex] = pending.technicalKey;
+      }
+      putRow(data.outputRowMeta, outputRow);
+    }
+    data.bufferedRows.clear();
+    data.bufferedInserts.clear();
+  }
+
   @Override
   public boolean processRow() throws HopException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     // if no more input to be expected set done
     if (r == null) {
+      if (data.batchInserts) {
+        flushInserts();
+      }
       setOutputDone();
       return false;
     }
@@ -386,13 +537,17 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       }
 
       setCombiLookup(getInputRowMeta());
+      initCache();
+      initBatchInserts();
       preloadCache(data.hashRowMeta);
     }
 
     try {
       Object[] outputRow =
           lookupValues(getInputRowMeta(), r); // add new values to the row in rowset[0].
-      putRow(data.outputRowMeta, outputRow); // copy row to output rowset(s)
+      if (outputRow != null) {
+        putRow(data.outputRowMeta, outputRow); // copy row to output rowset(s)
+      }
 
       if (checkFeedback(getLinesRead()) && log.isBasic()) {
         logBasic(BaseMessages.getString(PKG, "CombinationLookup.Log.LineNumber") + getLinesRead());
@@ -411,6 +566,15 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       }
     }
 
+    // A row waiting for a generated key holds up all the rows after it: when most rows find
+    // their key in the cache the buffer fills up a lot faster than the batch.
+    //
+    if (data.batchInserts
+        && (data.pendingInserts.size() >= meta.getInsertBatchSize()
+            || data.bufferedRows.size() >= data.maxBufferedRows)) {
+      flushInserts();
+    }
+
     return true;
   }
 
@@ -635,10 +799,14 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       data.db.setValues(data.insertRowMeta, insertRow, data.prepStatementInsert);
 
       debug = "Insert row";
-      data.db.insertRow(data.prepStatementInsert);
+      if (data.batchInserts) {
+        data.prepStatementInsert.addBatch();
+      } else {
+        data.db.insertRow(data.prepStatementInsert);
+      }
 
       debug = "Retrieve key";
-      if (isAutoIncrement() && databaseMeta.supportsAutoGeneratedKeys()) {
+      if (!data.batchInserts && isAutoIncrement() && databaseMeta.supportsAutoGeneratedKeys()) {
         ResultSet keys = null;
         try {
           keys = data.prepStatementInsert.getGeneratedKeys(); // 1 key
@@ -688,10 +856,10 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       data.realSchemaName = resolve(meta.getSchemaName());
       data.realTableName = resolve(meta.getTableName());
 
-      if (meta.getCacheSize() > 0) {
-        data.cache = new HashMap<>((int) (meta.getCacheSize() * 1.5));
-      } else {
-        data.cache = new HashMap<>();
+      if (meta.getCacheSize() >= 0) {
+        data.cache =
+            new TinyLfuCache<>(
+                Math.max(meta.getCacheMemoryMb(), 0) * 1024L * 1024L, meta.getCacheSize());
       }
       if (meta.getDatabaseMeta() == null) {
         logError(
@@ -701,6 +869,19 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       }
       data.db = new Database(this, this, meta.getDatabaseMeta());
       try {
+        if (!Utils.isEmpty(meta.getSharedCache())) {
+          String cacheName = resolve(meta.getSharedCache());
+          LookupCache lookupCache =
+              metadataProvider.getSerializer(LookupCache.class).load(cacheName);
+          if (lookupCache == null) {
+            logError(
+                BaseMessages.getString(
+                    PKG, "CombinationLookup.Init.SharedCacheNotFound", cacheName));
+            return false;
+          }
+          data.sharedCache = lookupCache.attach(this);
+        }
+
         data.db.connect();
 
         if (log.isDetailed()) {
@@ -713,6 +894,11 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
         logError(
             BaseMessages.getString(PKG, "CombinationLookup.Log.UnableToConnectDB")
                 + dbe.getMessage());
+      } catch (HopException e) {
+        logError(
+            BaseMessages.getString(PKG, "CombinationLookup.Log.UnexpectedError")
+                + " : "
+                + e.getMessage());
       }
     }
     return false;
@@ -738,6 +924,11 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
         data.db.disconnect();
       }
     }
+    if (data.sharedCache != null) {
+      LookupCacheRegistry.getInstance().release(data.sharedCache);
+      data.sharedCache = null;
+      data.sharedData = null;
+    }
 
     super.dispose();
   }
@@ -747,13 +938,23 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
    *
    * @param hashRowMeta The RowMeta of the hashRow
    * @throws HopDatabaseException If something went wrong while selecting the values from the db
-   * @throws HopValueException If something went wrong while adding the data to the cache
    * @throws HopConfigException If the transform configuration is incomplete
+   * @throws HopException If something went wrong while adding the data to the cache
    */
-  private void preloadCache(IRowMeta hashRowMeta)
-      throws HopDatabaseException, HopValueException, HopConfigException {
+  private void preloadCache(IRowMeta hashRowMeta) throws HopException {
     // fast exit if no preload cache or no cache
-    if (meta.getPreloadCache() && meta.getCacheSize() >= 0) {
+    if (meta.getPreloadCache() && (data.cache != null || data.sharedData != null)) {
+      if (data.sharedData != null && data.sharedData.isComplete()) {
+        if (log.isDetailed()) {
+          logDetailed(
+              BaseMessages.getString(
+                  PKG,
+                  "CombinationLookup.Log.SharedCacheLoaded",
+                  data.sharedCache.getName(),
+                  Integer.toString(data.sharedData.getSize())));
+        }
+        return;
+      }
       if (hashRowMeta == null) {
         throw new HopConfigException(
             BaseMessages.getString(PKG, "CombinationLookup.Log.UnexpectedError"));
@@ -765,7 +966,6 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       }
       String lookupKeys = "";
       String sql = "";
-      List<Object[]> cacheValues;
 
       /* build SQl Statement to preload cache
        *
@@ -809,16 +1009,69 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       if (log.isDebug()) {
         logDebug("Using preload cache statement:" + Const.CR + sql);
       }
-      cacheValues = data.db.getRows(databaseMeta.stripCR(sql), meta.getCacheSize());
-      for (Object[] cacheRow : cacheValues) {
-        // Create a correctly structured array for the cache
-        Object[] hashRow = new Object[data.hashRowMeta.size()];
-        // Assumes the technical key is at position 0 !!
-        System.arraycopy(cacheRow, 1, hashRow, 0, hashRow.length);
-        // Potential Cache Overflow is ahndled inside
-        addToCache(hashRowMeta, hashRow, (Long) cacheRow[0]);
+      loadCache(databaseMeta.stripCR(sql));
+    }
+  }
+
+  /**
+   * Stream the keys of the dimension into the cache. The shared cache is marked as complete when
+   * all the keys fit in it, so that other pipelines don't have to load them again. Loading the
+   * private cache stops when it is full, the other keys are looked up when they are needed.
+   *
+   * @param sql the statement selecting the technical key and the natural keys
+   * @throws HopException If something went wrong while selecting or caching the keys
+   */
+  private void loadCache(String sql) throws HopException {
+    long evictions =
+        data.sharedData != null ? data.sharedData.getEvictions() : data.cache.getEvictions();
+    long rows = 0L;
+
+    ResultSet resultSet = data.db.openQuery(sql);
+    try {
+      IRowMeta cacheRowMeta = data.db.getReturnRowMeta();
+      Object[] cacheRow = data.db.getRow(resultSet);
+      while (cacheRow != null && !isStopped()) {
+        // The technical key is at position 0, the natural keys follow
+        //
+        Object[] key = new Object[data.cacheKeyMeta.size()];
+        for (int i = 0; i < key.length; i++) {
+          IValueMeta keyMeta = data.cacheKeyMeta.getValueMeta(i);
+          IValueMeta valueMeta = cacheRowMeta.getValueMeta(i + 1);
+          key[i] =
+              keyMeta.getType() == valueMeta.getType()
+                  ? cacheRow[i + 1]
+                  : keyMeta.convertData(valueMeta, cacheRow[i + 1]);
+        }
+        addToCache(key, cacheRowMeta.getInteger(cacheRow, 0));
         incrementLinesInput();
+        rows++;
+
+        if (data.sharedData == null && data.cache.getEvictions() > evictions) {
+          if (log.isDetailed()) {
+            logDetailed(
+                BaseMessages.getString(
+                    PKG, "CombinationLookup.Log.CacheFull", Long.toString(rows)));
+          }
+          return;
+        }
+        cacheRow = data.db.getRow(resultSet);
+      }
+    } finally {
+      data.db.closeQuery(resultSet);
+    }
+
+    if (isStopped()) {
+      return;
+    }
+    if (data.sharedData != null) {
+      if (!data.sharedData.markComplete(evictions) && log.isBasic()) {
+        logBasic(
+            BaseMessages.getString(
+                PKG, "CombinationLookup.Log.SharedCacheIncomplete", data.sharedCache.getName()));
       }
+    } else if (log.isDetailed()) {
+      logDetailed(
+          BaseMessages.getString(PKG, "CombinationLookup.Log.CachePreloaded", Long.toString(rows)));
     }
   }
 }
@@ -17,20 +17,55 @@
 
 package org.apache.hop.pipeline.transforms.combinationlookup;
 
-import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.TinyLfuCache;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.metadata.cache.LookupCacheData;
+import org.apache.hop.metadata.cache.SharedLookupCache;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
+import java.nio.ByteBuffer;
 import java.sql.PreparedStatement;
+import java.util.List;
 import java.util.Map;
 
 public class CombinationLookupData extends BaseTransformData implements ITransformData {
   public Database db;
   public int[] keynrs; // nrs in row of the keys
 
-  public Map<RowMetaAndData, Long> cache;
+  /** The technical keys by binary encoded natural key, null if the cache is disabled */
+  public TinyLfuCache<Long> cache;
+
+  public SharedLookupCache sharedCache;
+  public LookupCacheData sharedData;
+
+  /** The natural keys in normal storage, as they are stored in the caches */
+  public IRowMeta cacheKeyMeta;
+
+  public BinaryKeyEncoder cacheKeyEncoder;
+
+  /** Insert new combinations in batches */
+  public boolean batchInserts;
+
+  /** The new combinations in the current batch, in the order in which they were added */
+  public List<PendingInsert> pendingInserts;
+
+  /** The new combinations in the current batch by binary encoded natural key */
+  public Map<ByteBuffer, PendingInsert> pendingKeys;
+
+  /** The output rows waiting for a generated key, in the order in which they were read */
+  public List<Object[]> bufferedRows;
+
+  /** The new combination each buffered row is waiting for, null if the key is known */
+  public List<PendingInsert> bufferedInserts;
+
+  /** The batch is inserted early when this many output rows are waiting */
+  public int maxBufferedRows;
+
+  /** The number of new combinations inserted since the last commit */
+  public int uncommittedInserts;
 
   public IRowMeta outputRowMeta;
   public IRowMeta lookupRowMeta;
@@ -44,7 +79,6 @@ public class CombinationLookupData extends BaseTransformData implements ITransfo
 
   public PreparedStatement prepStatementLookup;
   public PreparedStatement prepStatementInsert;
-  public long smallestCacheKey;
 
   /** Default Constructor */
   public CombinationLookupData() {
@@ -53,4 +87,18 @@ public class CombinationLookupData extends BaseTransformData implements ITransfo
     realTableName = null;
     realSchemaName = null;
   }
+
+  /** A new combination which is inserted with the next batch */
+  public static class PendingInsert {
+    /** The natural key in normal storage */
+    public Object[] cacheKey;
+
+    /** The technical key, null until the batch is inserted if the database generates it */
+    public Long technicalKey;
+
+    public PendingInsert(Object[] cacheKey, Long technicalKey) {
+      this.cacheKey = cacheKey;
+      this.technicalKey = technicalKey;
+    }
+  }
 }
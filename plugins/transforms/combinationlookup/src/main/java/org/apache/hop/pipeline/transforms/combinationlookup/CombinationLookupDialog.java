@@ -28,6 +28,7 @@ import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransformMeta;
 import org.apache.hop.pipeline.transform.ITransformDialog;
@@ -82,8 +83,14 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
   private Text wCachesize;
 
+  private Text wInsertBatchSize;
+
+  private Text wCacheMemory;
+
   private Button wPreloadCache;
 
+  private MetaSelectionLine<LookupCache> wSharedCache;
+
   private Text wTk;
 
   private Label wlAutoinc;
@@ -285,17 +292,76 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     wCachesize.setToolTipText(
         BaseMessages.getString(PKG, "CombinationLookupDialog.Cachesize.ToolTip"));
 
+    // Insert batch size
+    Label wlInsertBatchSize = new Label(shell, SWT.RIGHT);
+    wlInsertBatchSize.setText(
+        BaseMessages.getString(PKG, "CombinationLookupDialog.InsertBatchSize.Label"));
+    PropsUi.setLook(wlInsertBatchSize);
+    FormData fdlInsertBatchSize = new FormData();
+    fdlInsertBatchSize.left = new FormAttachment(0, 0);
+    fdlInsertBatchSize.right = new FormAttachment(middle, -margin);
+    fdlInsertBatchSize.top = new FormAttachment(wCachesize, margin);
+    wlInsertBatchSize.setLayoutData(fdlInsertBatchSize);
+    wInsertBatchSize = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wInsertBatchSize);
+    wInsertBatchSize.addModifyListener(lsMod);
+    FormData fdInsertBatchSize = new FormData();
+    fdInsertBatchSize.top = new FormAttachment(wCachesize, margin);
+    fdInsertBatchSize.left = new FormAttachment(middle, 0);
+    fdInsertBatchSize.right = new FormAttachment(middle + (100 - middle) / 3, -margin);
+    wInsertBatchSize.setLayoutData(fdInsertBatchSize);
+    wInsertBatchSize.setToolTipText(
+        BaseMessages.getString(PKG, "CombinationLookupDialog.InsertBatchSize.ToolTip"));
+
+    // Cache memory
+    Label wlCacheMemory = new Label(shell, SWT.RIGHT);
+    wlCacheMemory.setText(BaseMessages.getString(PKG, "CombinationLookupDialog.CacheMemory.Label"));
+    PropsUi.setLook(wlCacheMemory);
+    FormData fdlCacheMemory = new FormData();
+    fdlCacheMemory.top = new FormAttachment(wCachesize, margin);
+    fdlCacheMemory.left = new FormAttachment(wInsertBatchSize, margin);
+    fdlCacheMemory.right = new FormAttachment(middle + 2 * (100 - middle) / 3, -margin);
+    wlCacheMemory.setLayoutData(fdlCacheMemory);
+    wCacheMemory = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wCacheMemory);
+    wCacheMemory.addModifyListener(lsMod);
+    FormData fdCacheMemory = new FormData();
+    fdCacheMemory.top = new FormAttachment(wCachesize, margin);
+    fdCacheMemory.left = new FormAttachment(wlCacheMemory, margin);
+    fdCacheMemory.right = new FormAttachment(100, 0);
+    wCacheMemory.setLayoutData(fdCacheMemory);
+    wCacheMemory.setToolTipText(
+        BaseMessages.getString(PKG, "CombinationLookupDialog.CacheMemory.ToolTip"));
+
     // Preload Cache
     wPreloadCache = new Button(shell, SWT.CHECK);
     wPreloadCache.setText(
             BaseMessages.getString(PKG, "CombinationLookupDialog.PreloadCache.Label"));
     PropsUi.setLook(wPreloadCache);
     FormData fdPreloadCache = new FormData();
-    fdPreloadCache.top = new FormAttachment(wCachesize, margin);
-    fdPreloadCache.left = new FormAttachment(wlCachesize, margin);
+    fdPreloadCache.top = new FormAttachment(wCacheMemory, margin);
+    fdPreloadCache.left = new FormAttachment(wlCacheMemory, margin);
     fdPreloadCache.right = new FormAttachment(100, 0);
     wPreloadCache.setLayoutData(fdPreloadCache);
 
+    // Shared lookup cache
+    wSharedCache =
+        new MetaSelectionLine<>(
+            variables,
+            metadataProvider,
+            LookupCache.class,
+            shell,
+            SWT.SINGLE | SWT.LEFT | SWT.BORDER,
+            BaseMessages.getString(PKG, "CombinationLookupDialog.SharedCache.Label"),
+            BaseMessages.getString(PKG, "CombinationLookupDialog.SharedCache.Tooltip"));
+    PropsUi.setLook(wSharedCache);
+    wSharedCache.addModifyListener(lsMod);
+    FormData fdSharedCache = new FormData();
+    fdSharedCache.left = new FormAttachment(0, 0);
+    fdSharedCache.top = new FormAttachment(wPreloadCache, margin);
+    fdSharedCache.right = new FormAttachment(100, 0);
+    wSharedCache.setLayoutData(fdSharedCache);
+
     //
     // The Lookup fields: usually the (business) key
     //
@@ -304,7 +370,7 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     PropsUi.setLook(wlKey);
     FormData fdlKey = new FormData();
     fdlKey.left = new FormAttachment(0, 0);
-    fdlKey.top = new FormAttachment(wPreloadCache, margin);
+    fdlKey.top = new FormAttachment(wSharedCache, margin);
     fdlKey.right = new FormAttachment(100, 0);
     wlKey.setLayoutData(fdlKey);
 
@@ -714,6 +780,12 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     }
 
     wPreloadCache.setSelection(input.getPreloadCache());
+    try {
+      wSharedCache.fillItems();
+    } catch (HopException e) {
+      log.logError("Error getting the list of lookup caches", e);
+    }
+    wSharedCache.setText(Const.NVL(input.getSharedCache(), ""));
     wReplace.setSelection(input.replaceFields());
     wHashcode.setSelection(input.useHash());
     wHashfield.setEnabled(input.useHash());
@@ -779,6 +851,8 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
     wCommit.setText("" + input.getCommitSize());
     wCachesize.setText("" + input.getCacheSize());
+    wCacheMemory.setText("" + input.getCacheMemoryMb());
+    wInsertBatchSize.setText("" + input.getInsertBatchSize());
 
     wLastUpdateField.setText(Const.NVL(input.getLastUpdateField(), ""));
 
@@ -835,6 +909,7 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     }
 
     in.setPreloadCache(wPreloadCache.getSelection());
+    in.setSharedCache(wSharedCache.getText());
     in.setUseAutoinc(wAutoinc.getSelection() && wAutoinc.isEnabled());
     in.setReplaceFields(wReplace.getSelection());
     in.setUseHash(wHashcode.getSelection());
@@ -860,6 +935,8 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
     in.setCommitSize(Const.toInt(wCommit.getText(), 0));
     in.setCacheSize(Const.toInt(wCachesize.getText(), 0));
+    in.setCacheMemoryMb(Const.toInt(wCacheMemory.getText(), 0));
+    in.setInsertBatchSize(Const.toInt(wInsertBatchSize.getText(), 0));
 
     in.setLastUpdateField(wLastUpdateField.getText());
   }
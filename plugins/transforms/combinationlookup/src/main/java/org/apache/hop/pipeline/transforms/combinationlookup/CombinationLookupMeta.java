@@ -76,6 +76,9 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
   /** Default cache size: 0 will cache everything */
   public static final int DEFAULT_CACHE_SIZE = 9999;
 
+  /** Default number of new combinations inserted in one batch */
+  public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+
   /** what's the lookup schema? */
   @Injection(name = "SCHEMA_NAME")
   private String schemaName;
@@ -127,6 +130,14 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
   @Injection(name = "CACHE_SIZE")
   private int cacheSize;
 
+  /** Limit the estimated memory used by the cache to this number of MB, 0 for no limit */
+  @Injection(name = "CACHE_MEMORY_MB")
+  private int cacheMemoryMb;
+
+  /** Insert new combinations in batches of this size, 0 or 1 to insert them one by one */
+  @Injection(name = "INSERT_BATCH_SIZE")
+  private int insertBatchSize;
+
   /** Use the auto-increment feature of the database to generate keys. */
   @Injection(name = "AUTO_INC")
   private boolean useAutoinc;
@@ -138,6 +149,10 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
   @Injection(name = "LAST_UPDATE_FIELD")
   private String lastUpdateField;
 
+  /** The name of the lookup cache shared with other pipelines, empty to use a private cache */
+  @Injection(name = "SHARED_CACHE")
+  private String sharedCache;
+
   public static final String CREATION_METHOD_AUTOINC = "autoinc";
   public static final String CREATION_METHOD_SEQUENCE = "sequence";
   public static final String CREATION_METHOD_TABLEMAX = "tablemax";
@@ -198,6 +213,26 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     this.cacheSize = cacheSize;
   }
 
+  /** @return the maximum estimated memory used by the cache in MB, 0 for no limit */
+  public int getCacheMemoryMb() {
+    return cacheMemoryMb;
+  }
+
+  /** @param cacheMemoryMb the maximum estimated memory used by the cache in MB to set */
+  public void setCacheMemoryMb(int cacheMemoryMb) {
+    this.cacheMemoryMb = cacheMemoryMb;
+  }
+
+  /** @return the number of new combinations inserted in one batch */
+  public int getInsertBatchSize() {
+    return insertBatchSize;
+  }
+
+  /** @param insertBatchSize the number of new combinations inserted in one batch to set */
+  public void setInsertBatchSize(int insertBatchSize) {
+    this.insertBatchSize = insertBatchSize;
+  }
+
   /** @return Returns the hashField. */
   public String getHashField() {
     return hashField;
@@ -338,6 +373,9 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
       commitSize = Const.toInt(commit, 0);
       csize = XmlHandler.getTagValue(transformNode, "cache_size");
       cacheSize = Const.toInt(csize, 0);
+      cacheMemoryMb = Const.toInt(XmlHandler.getTagValue(transformNode, "cache_memory_mb"), 0);
+      insertBatchSize =
+          Const.toInt(XmlHandler.getTagValue(transformNode, "insert_batch_size"), 0);
 
       replaceFields = "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "replace"));
       preloadCache = "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "preloadCache"));
@@ -365,6 +403,7 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
       technicalKeyField = XmlHandler.getTagValue(retkey, "name");
       useAutoinc = !"N".equalsIgnoreCase(XmlHandler.getTagValue(retkey, "use_autoinc"));
       lastUpdateField = XmlHandler.getTagValue(transformNode, "last_update_field");
+      sharedCache = XmlHandler.getTagValue(transformNode, "shared_cache");
 
       setTechKeyCreation(XmlHandler.getTagValue(retkey, "creation_method"));
     } catch (Exception e) {
@@ -381,8 +420,11 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     databaseMeta = null;
     commitSize = 100;
     cacheSize = DEFAULT_CACHE_SIZE;
+    cacheMemoryMb = 0;
+    insertBatchSize = DEFAULT_INSERT_BATCH_SIZE;
     replaceFields = false;
     preloadCache = false;
+    sharedCache = null;
     useHash = false;
     hashField = "hashcode";
     int nrkeys = 0;
@@ -437,6 +479,8 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
                 "connection", databaseMeta == null ? "" : databaseMeta.getName()));
     retval.append("      ").append(XmlHandler.addTagValue("commit", commitSize));
     retval.append("      ").append(XmlHandler.addTagValue("cache_size", cacheSize));
+    retval.append("      ").append(XmlHandler.addTagValue("cache_memory_mb", cacheMemoryMb));
+    retval.append("      ").append(XmlHandler.addTagValue("insert_batch_size", insertBatchSize));
     retval.append("      ").append(XmlHandler.addTagValue("replace", replaceFields));
     retval.append("      ").append(XmlHandler.addTagValue("preloadCache", preloadCache));
     retval.append("      ").append(XmlHandler.addTagValue("crc", useHash));
@@ -461,6 +505,7 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     // If sequence is empty: use auto-increment field!
     retval.append("      ").append(XmlHandler.addTagValue("sequence", sequenceFrom));
     retval.append("      ").append(XmlHandler.addTagValue("last_update_field", lastUpdateField));
+    retval.append("      ").append(XmlHandler.addTagValue("shared_cache", sharedCache));
 
     return retval.toString();
   }
@@ -978,6 +1023,12 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     if (getCacheSize() != o.getCacheSize()) {
       return false;
     }
+    if (getCacheMemoryMb() != o.getCacheMemoryMb()) {
+      return false;
+    }
+    if (getInsertBatchSize() != o.getInsertBatchSize()) {
+      return false;
+    }
     if (!getTechKeyCreation().equals(o.getTechKeyCreation())) {
       return false;
     }
@@ -1043,6 +1094,8 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     return Objects.hash(
         getCommitSize(),
         getCacheSize(),
+        getCacheMemoryMb(),
+        getInsertBatchSize(),
         getTechKeyCreation(),
         replaceFields(),
         useHash(),
@@ -1080,6 +1133,16 @@ public class CombinationLookupMeta extends BaseTransformMeta<CombinationLookup,
     this.lastUpdateField = lastUpdateField;
   }
 
+  /** @return the name of the shared lookup cache */
+  public String getSharedCache() {
+    return sharedCache;
+  }
+
+  /** @param sharedCache the name of the shared lookup cache to set */
+  public void setSharedCache(String sharedCache) {
+    this.sharedCache = sharedCache;
+  }
+
   @Override
   public boolean supportsErrorHandling() {
     return true;
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.combinationlookup;
+
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.database.DatabaseMeta;
+import org.apache.hop.core.hash.TinyLfuCache;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.metadata.api.IHopMetadataProvider;
+import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Runs rows through the transform with batched inserts and generated keys on a mocked database. */
+public class CombinationLookupBatchTest {
+  private static final String KNOWN = "known";
+  private static final long KNOWN_KEY = 7L;
+
+  private TransformMockHelper<CombinationLookupMeta, CombinationLookupData> mockHelper;
+  private CombinationLookupMeta meta;
+  private CombinationLookupData data;
+  private Database db;
+  private PreparedStatement insertStatement;
+  private ResultSet generatedKeys;
+
+  private IRowMeta inputRowMeta;
+  private IRowMeta returnRowMeta;
+  private List<Object[]> output;
+
+  /** The name looked up last in the dimension */
+  private String lookupName;
+
+  @Before
+  public void setUp() throws Exception {
+    mockHelper =
+        new TransformMockHelper<>(
+            "Combination lookup", CombinationLookupMeta.class, CombinationLookupData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+
+    DatabaseMeta databaseMeta = mock(DatabaseMeta.class);
+    when(databaseMeta.quoteField(nullable(String.class)))
+        .thenAnswer(invocation -> invocation.getArguments()[0]);
+    when(databaseMeta.stripCR(nullable(String.class)))
+        .thenAnswer(invocation -> invocation.getArguments()[0]);
+    when(databaseMeta.getQuotedSchemaTableCombination(any(), any(), any())).thenReturn("dim");
+    when(databaseMeta.supportsAutoinc()).thenReturn(true);
+    when(databaseMeta.supportsAutoGeneratedKeys()).thenReturn(true);
+
+    meta = mockHelper.iTransformMeta;
+    when(meta.getDatabaseMeta()).thenReturn(databaseMeta);
+    when(meta.getTechKeyCreation()).thenReturn(CombinationLookupMeta.CREATION_METHOD_AUTOINC);
+    when(meta.getTechnicalKeyField()).thenReturn("tk");
+    when(meta.getKeyField()).thenReturn(new String[] {"name"});
+    when(meta.getKeyLookup()).thenReturn(new String[] {"name"});
+    when(meta.getInsertBatchSize()).thenReturn(2);
+    doAnswer(
+            invocation -> {
+              ((IRowMeta) invocation.getArguments()[0]).addValueMeta(new ValueMetaInteger("tk"));
+              return null;
+            })
+        .when(meta)
+        .getFields(
+            any(IRowMeta.class),
+            nullable(String.class),
+            nullable(IRowMeta[].class),
+            nullable(TransformMeta.class),
+            nullable(IVariables.class),
+            nullable(IHopMetadataProvider.class));
+
+    // The known combination is found in the dimension, all the others are inserted
+    //
+    returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta(new ValueMetaInteger("tk"));
+    returnRowMeta.addValueMeta(new ValueMetaString("name"));
+
+    PreparedStatement lookupStatement = mock(PreparedStatement.class);
+    insertStatement = mock(PreparedStatement.class);
+    generatedKeys = mock(ResultSet.class);
+    when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+    when(generatedKeys.next()).thenReturn(true);
+    when(generatedKeys.getLong(1)).thenReturn(100L, 101L, 102L, 103L);
+
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(nullable(String.class))).thenReturn(lookupStatement);
+    when(connection.prepareStatement(nullable(String.class), anyInt()))
+        .thenReturn(insertStatement);
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaString("name"));
+
+    db = mock(Database.class);
+    when(db.getConnection()).thenReturn(connection);
+    when(db.isAutoCommit()).thenReturn(false);
+    when(db.getUseBatchInsert(true)).thenReturn(true);
+    when(db.getReturnRowMeta()).thenReturn(returnRowMeta);
+    doAnswer(
+            invocation -> {
+              if (invocation.getArguments()[2] == lookupStatement) {
+                lookupName = (String) ((Object[]) invocation.getArguments()[1])[0];
+              }
+              return null;
+            })
+        .when(db)
+        .setValues(any(IRowMeta.class), any(Object[].class), any(PreparedStatement.class));
+    when(db.getLookup(lookupStatement))
+        .thenAnswer(
+            invocation -> KNOWN.equals(lookupName) ? new Object[] {KNOWN_KEY, KNOWN} : null);
+
+    data = new CombinationLookupData();
+    data.db = db;
+    data.cache = new TinyLfuCache<>(0L, 0L);
+
+    output = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  private CombinationLookup createTransform(String... names) throws Exception {
+    CombinationLookup transform =
+        spy(
+            new CombinationLookup(
+                mockHelper.transformMeta,
+                meta,
+                data,
+                0,
+                mockHelper.pipelineMeta,
+                mockHelper.pipeline));
+
+    Iterator<String> rows = Arrays.asList(names).iterator();
+    doAnswer(invocation -> rows.hasNext() ? new Object[] {rows.next()} : null)
+        .when(transform)
+        .getRow();
+    doReturn(inputRowMeta).when(transform).getInputRowMeta();
+    doAnswer(
+            invocation -> {
+              output.add((Object[]) invocation.getArguments()[1]);
+              return null;
+            })
+        .when(transform)
+        .putRow(any(IRowMeta.class), any(Object[].class));
+    return transform;
+  }
+
+  private void assertOutput(Object[]... expected) {
+    assertEquals(expected.length, output.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertArrayEquals("Row " + i, expected[i], output.get(i));
+    }
+  }
+
+  @Test
+  public void testGeneratedKeysAreAssignedInTheRowOrder() throws Exception {
+    CombinationLookup transform = createTransform("a", KNOWN, "a", "b", KNOWN, "c");
+
+    // The first row waits for its generated key, the rows after it wait as well
+    //
+    assertTrue(transform.processRow());
+    assertTrue(transform.processRow());
+    assertTrue(transform.processRow());
+    assertTrue(output.isEmpty());
+
+    // The second new combination completes the batch
+    //
+    assertTrue(transform.processRow());
+    verify(insertStatement, times(1)).executeBatch();
+    assertOutput(
+        new Object[] {"a", 100L},
+        new Object[] {KNOWN, KNOWN_KEY},
+        new Object[] {"a", 100L},
+        new Object[] {"b", 101L});
+
+    // A known key is passed on right away when no row is waiting
+    //
+    assertTrue(transform.processRow());
+    assertEquals(5, output.size());
+
+    // The last batch is inserted at the end of the input
+    //
+    assertTrue(transform.processRow());
+    assertEquals(5, output.size());
+    assertFalse(transform.processRow());
+    verify(insertStatement, times(2)).executeBatch();
+    verify(insertStatement, times(3)).addBatch();
+    assertOutput(
+        new Object[] {"a", 100L},
+        new Object[] {KNOWN, KNOWN_KEY},
+        new Object[] {"a", 100L},
+        new Object[] {"b", 101L},
+        new Object[] {KNOWN, KNOWN_KEY},
+        new Object[] {"c", 102L});
+
+    // The duplicate new combination and the second known one don't go to the database
+    //
+    verify(db, times(4)).getLookup(any(PreparedStatement.class));
+    assertEquals(3, transform.getLinesOutput());
+  }
+
+  @Test
+  public void testBufferedRowsAreBounded() throws Exception {
+    String[] names = new String[9];
+    names[0] = "a";
+    Arrays.fill(names, 1, names.length, KNOWN);
+    CombinationLookup transform = createTransform(names);
+
+    // The batch isn't full, but 4 batches worth of rows are waiting for the generated key
+    //
+    for (int i = 0; i < 7; i++) {
+      assertTrue(transform.processRow());
+    }
+    assertTrue(output.isEmpty());
+    assertTrue(transform.processRow());
+    verify(insertStatement, times(1)).executeBatch();
+    assertEquals(8, output.size());
+    assertArrayEquals(new Object[] {"a", 100L}, output.get(0));
+
+    assertTrue(transform.processRow());
+    assertEquals(9, output.size());
+    assertFalse(transform.processRow());
+    verify(insertStatement, times(1)).executeBatch();
+  }
+
+  @Test
+  public void testPreloadedKeysAreNotLookedUp() throws Exception {
+    when(meta.getPreloadCache()).thenReturn(true);
+    ResultSet preload = mock(ResultSet.class);
+    when(db.openQuery(nullable(String.class))).thenReturn(preload);
+    when(db.getRow(preload))
+        .thenReturn(new Object[] {5L, "a"}, new Object[] {6L, "b"}, null);
+
+    CombinationLookup transform = createTransform("b", "a", "c", "b");
+    while (transform.processRow()) {
+      // Process all the rows
+    }
+
+    // Only the new combination is looked up in the dimension
+    //
+    verify(db).closeQuery(preload);
+    verify(db, times(1)).getLookup(any(PreparedStatement.class));
+    assertEquals(3, transform.getLinesInput());
+    verify(insertStatement, times(1)).executeBatch();
+    verify(db, never()).insertRow(any(PreparedStatement.class));
+    assertOutput(
+        new Object[] {"b", 6L},
+        new Object[] {"a", 5L},
+        new Object[] {"c", 100L},
+        new Object[] {"b", 6L});
+  }
+}
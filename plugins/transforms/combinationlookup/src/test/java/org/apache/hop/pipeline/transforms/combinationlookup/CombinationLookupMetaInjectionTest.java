@@ -46,9 +46,12 @@ public class CombinationLookupMetaInjectionTest
     check("COMMIT_SIZE", () -> meta.getCommitSize());
     check("PRELOAD_CACHE", () -> meta.getPreloadCache());
     check("CACHE_SIZE", () -> meta.getCacheSize());
+    check("CACHE_MEMORY_MB", () -> meta.getCacheMemoryMb());
+    check("INSERT_BATCH_SIZE", () -> meta.getInsertBatchSize());
     check("AUTO_INC", () -> meta.isUseAutoinc());
     check("TECHNICAL_KEY_CREATION", () -> meta.getTechKeyCreation());
     check("LAST_UPDATE_FIELD", () -> meta.getLastUpdateField());
+    check("SHARED_CACHE", () -> meta.getSharedCache());
     skipPropertyTest("CONNECTIONNAME");
   }
 }
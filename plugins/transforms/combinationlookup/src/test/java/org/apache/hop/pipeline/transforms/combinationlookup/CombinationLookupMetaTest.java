@@ -72,9 +72,12 @@ public class CombinationLookupMetaTest implements IInitializer<ITransformMeta> {
             "commitSize",
             "preloadCache",
             "cacheSize",
+            "cacheMemoryMb",
+            "insertBatchSize",
             "useAutoinc",
             "techKeyCreation",
-            "lastUpdateField");
+            "lastUpdateField",
+            "sharedCache");
 
     Map<String, String> getterMap =
         new HashMap<String, String>() {
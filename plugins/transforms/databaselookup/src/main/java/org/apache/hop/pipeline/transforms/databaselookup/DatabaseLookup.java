@@ -34,21 +34,65 @@ import org.apache.hop.core.row.value.ValueMetaFactory;
 import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.metadata.cache.LookupCacheData;
+import org.apache.hop.metadata.cache.LookupCacheRegistry;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
+import org.apache.hop.pipeline.engine.EngineMetric;
+import org.apache.hop.pipeline.engine.IEngineMetric;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transforms.databaselookup.readallcache.ReadAllCache;
 
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /** Looks up values in a database using keys from input streams. */
 public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLookupData> {
 
   private static final Class<?> PKG = DatabaseLookupMeta.class; // For Translator
 
+  public static final IEngineMetric METRIC_CACHE_HITS =
+      new EngineMetric(
+          "cache_hits", "Cache hits", "The number of keys found in the lookup cache", "210", true);
+  public static final IEngineMetric METRIC_CACHE_MISSES =
+      new EngineMetric(
+          "cache_misses",
+          "Cache misses",
+          "The number of keys not found in the lookup cache",
+          "220",
+          true);
+  public static final IEngineMetric METRIC_CACHE_EVICTIONS =
+      new EngineMetric(
+          "cache_evictions",
+          "Cache evictions",
+          "The number of rows removed from the lookup cache to stay within its limits",
+          "230",
+          true);
+  public static final IEngineMetric METRIC_CACHE_EXPIRATIONS =
+      new EngineMetric(
+          "cache_expirations",
+          "Cache expirations",
+          "The number of not found keys removed from the lookup cache after their time to live",
+          "240",
+          true);
+  public static final IEngineMetric METRIC_CACHE_SIZE =
+      new EngineMetric(
+          "cache_size", "Cache rows", "The number of rows in the lookup cache", "250", true);
+  public static final IEngineMetric METRIC_CACHE_MEMORY =
+      new EngineMetric(
+          "cache_memory",
+          "Cache memory",
+          "The estimated number of bytes used by the rows in the lookup cache",
+          "260",
+          true);
+
   public DatabaseLookup(
       TransformMeta transformMeta,
       DatabaseLookupMeta meta,
@@ -68,8 +112,60 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
    */
   @VisibleForTesting
   synchronized Object[] lookupValues(IRowMeta inputRowMeta, Object[] row) throws HopException {
-    Object[] outputRow = RowDataUtil.resizeArray(row, data.outputRowMeta.size());
+    Object[] lookupRow = createLookupRow(inputRowMeta, row);
 
+    Object[] add;
+    boolean cacheNow = false;
+    boolean cacheHit = false;
+
+    // First, check if we looked up before
+    if (meta.isCached()) {
+      add = data.cache.getRowFromCache(data.lookupMeta, lookupRow);
+      if (add != null) {
+        cacheHit = true;
+      }
+    } else {
+      add = null;
+    }
+
+    if (add == null) {
+      if (!isAllDataInCache() || data.hasDBCondition) { // do not go to the
+        // database when all rows
+        // are in (exception LIKE
+        // operator)
+        if (log.isRowLevel()) {
+          logRowlevel(
+              BaseMessages.getString(PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1")
+                  + meta.getLookup().getKeyFields().size()
+                  + BaseMessages.getString(PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2")
+                  + data.lookupMeta.getString(lookupRow));
+        }
+
+        data.db.setValuesLookup(data.lookupMeta, lookupRow);
+        add = data.db.getLookup(meta.getLookup().isFailingOnMultipleResults());
+        cacheNow = true;
+      }
+    }
+
+    return addReturnValues(
+        inputRowMeta,
+        row,
+        lookupRow,
+        add,
+        cacheHit,
+        cacheNow,
+        cacheNow ? data.db.getReturnRowMeta() : null);
+  }
+
+  /**
+   * Gets the values of the lookup keys from an input row, converted to the types in the table.
+   *
+   * @param inputRowMeta the metadata of the input row
+   * @param row the input row
+   * @return the lookup row
+   * @throws HopException in case a value can't be converted
+   */
+  private Object[] createLookupRow(IRowMeta inputRowMeta, Object[] row) throws HopException {
     Object[] lookupRow = new Object[data.lookupMeta.size()];
     int lookupIndex = 0;
 
@@ -101,40 +197,33 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cacheNow = false;
-    boolean cacheHit = false;
-
-    // First, check if we looked up before
-    if (meta.isCached()) {
-      add = data.cache.getRowFromCache(data.lookupMeta, lookupRow);
-      if (add != null) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
-
-    if (add == null) {
-      if (!(meta.isCached() && meta.isLoadingAllDataInCache())
-          || data.hasDBCondition) { // do not go to the
-        // database when all rows
-        // are in (exception LIKE
-        // operator)
-        if (log.isRowLevel()) {
-          logRowlevel(
-              BaseMessages.getString(PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1")
-                  + meta.getLookup().getKeyFields().size()
-                  + BaseMessages.getString(PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2")
-                  + data.lookupMeta.getString(lookupRow));
-        }
-
-        data.db.setValuesLookup(data.lookupMeta, lookupRow);
-        add = data.db.getLookup(meta.getLookup().isFailingOnMultipleResults());
-        cacheNow = true;
-      }
-    }
+  /**
+   * Adds the values found by a lookup, or the default values, to the input row.
+   *
+   * @param inputRowMeta the metadata of the input row
+   * @param row the input row
+   * @param lookupRow the lookup key values
+   * @param add the values found or null if nothing was found
+   * @param cacheHit true if the values came from the cache
+   * @param cacheNow true if the values were looked up in the database and can be cached
+   * @param returnRowMeta the metadata of the values as returned by the database
+   * @return the output row or null if the row was not passed on
+   * @throws HopException In case something goes wrong.
+   */
+  private Object[] addReturnValues(
+      IRowMeta inputRowMeta,
+      Object[] row,
+      Object[] lookupRow,
+      Object[] add,
+      boolean cacheHit,
+      boolean cacheNow,
+      IRowMeta returnRowMeta)
+      throws HopException {
+    Object[] outputRow = RowDataUtil.resizeArray(row, data.outputRowMeta.size());
+    boolean found = add != null;
 
     if (add == null) { // nothing was found, unknown code: add default values
       if (meta.getLookup().isEatingRowOnLookupFailure()) {
@@ -185,7 +274,7 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         //
         int[] types = data.returnValueTypes;
         for (int i = 0; i < types.length; i++) {
-          IValueMeta returned = data.db.getReturnRowMeta().getValueMeta(i);
+          IValueMeta returned = returnRowMeta.getValueMeta(i);
           IValueMeta expected = data.returnMeta.getValueMeta(i);
 
           if (returned != null && types[i] > 0 && types[i] != returned.getType()) {
@@ -199,8 +288,12 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
     //
-    if (meta.isCached() && cacheNow && !meta.isLoadingAllDataInCache() && data.allEquals) {
-      data.cache.storeRowInCache(meta, data.lookupMeta, lookupRow, add);
+    if (meta.isCached() && cacheNow && !isAllDataInCache() && data.allEquals) {
+      if (found) {
+        data.cache.storeRowInCache(meta, data.lookupMeta, lookupRow, add);
+      } else {
+        data.cache.storeNotFoundInCache(meta, data.lookupMeta, lookupRow, add);
+      }
     }
 
     for (int i = 0; i < data.returnMeta.size(); i++) {
@@ -324,6 +417,13 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
   public boolean processRow() throws HopException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if (r == null) { // no more input to be expected...
+      if (data.batcher != null) {
+        try {
+          data.batcher.flush();
+        } catch (HopException e) {
+          return stopOnError(e);
+        }
+      }
       setOutputDone();
       return false;
     }
@@ -415,10 +515,6 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         }
       }
 
-      if (meta.isCached()) {
-        data.cache = DefaultCache.newCache(data, meta.getCacheSize());
-      }
-
       determineFieldsTypesQueryingDb();
 
       initNullIf();
@@ -438,10 +534,28 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         }
       }
 
+      if (meta.isCached()) {
+        initCache();
+      }
+
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
       if (meta.isCached() && meta.isLoadingAllDataInCache()) {
-        loadAllTableDataIntoTheCache();
+        if (data.cache instanceof SharedCache) {
+          loadAllTableDataIntoTheSharedCache((SharedCache) data.cache);
+        } else {
+          loadAllTableDataIntoTheCache();
+        }
+      }
+
+      // Look up the keys in batches if possible
+      //
+      if (meta.getLookupBatchSize() > 1 && !isAllDataInCache()) {
+        if (isBatchLookupPossible()) {
+          initBatchLookup();
+        } else if (log.isBasic()) {
+          logBasic(BaseMessages.getString(PKG, "DatabaseLookup.Log.BatchLookupNotPossible"));
+        }
       }
     }
 
@@ -451,85 +565,350 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
               + getInputRowMeta().getString(r));
     }
 
+    if (data.batcher != null) {
+      try {
+        addRowToBatch(r);
+      } catch (HopException e) {
+        return stopOnError(e);
+      }
+      return true;
+    }
+
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues(getInputRowMeta(), r);
 
       if (outputRow != null) {
-        // copy row to output rowset(s)
-        putRow(data.outputRowMeta, outputRow);
-
-        if (log.isRowLevel()) {
-          logRowlevel(
-              BaseMessages.getString(PKG, "DatabaseLookup.Log.WroteRowToNextTransform")
-                  + getInputRowMeta().getString(r));
-        }
-        if (checkFeedback(getLinesRead())) {
-          logBasic("linenr " + getLinesRead());
-        }
+        putOutputRow(r, outputRow);
       }
     } catch (HopException e) {
       if (getTransformMeta().isDoingErrorHandling()) {
         putError(getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001");
       } else {
-        logError(
-            BaseMessages.getString(PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing")
-                + e.getMessage());
-        setErrors(1);
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+        return stopOnError(e);
       }
     }
 
     return true;
   }
 
-  private void loadAllTableDataIntoTheCache() throws HopException {
-    DatabaseMeta dbMeta = getPipelineMeta().findDatabase(meta.getConnection(), variables);
+  private void initCache() {
+    if (data.sharedCache != null) {
+      if (isBatchLookupPossible()) {
+        LookupCacheData cacheData = data.sharedCache.getData();
+        if (cacheData.checkLayout(data.lookupMeta, data.returnMeta)) {
+          data.cache = new SharedCache(cacheData);
+          return;
+        }
+        logBasic(
+            BaseMessages.getString(
+                PKG, "DatabaseLookup.Log.SharedCacheLayoutDifferent", data.sharedCache.getName()));
+      } else {
+        logBasic(
+            BaseMessages.getString(
+                PKG, "DatabaseLookup.Log.SharedCacheNotPossible", data.sharedCache.getName()));
+      }
+      LookupCacheRegistry.getInstance().release(data.sharedCache);
+      data.sharedCache = null;
+    }
 
-    Database db = getDatabase(dbMeta);
-    connectDatabase(db);
+    if (meta.isLoadingAllDataInCache()) {
+      data.cache = DefaultCache.newCache(data, 0);
+    } else {
+      data.cache = DefaultCache.newCache(data, meta.getCacheSize(), meta.getCacheMemoryMb());
+    }
+  }
 
-    Lookup lookup = meta.getLookup();
+  /**
+   * When all the table data is loaded in the cache, keys which aren't in the cache don't exist in
+   * the table. A shared cache can lose rows to stay within its limits.
+   */
+  private boolean isAllDataInCache() {
+    if (!meta.isCached() || !meta.isLoadingAllDataInCache()) {
+      return false;
+    }
+    return !(data.cache instanceof SharedCache) || ((SharedCache) data.cache).isComplete();
+  }
 
-    try {
-      // We only want to get the used table fields...
+  private void putOutputRow(Object[] r, Object[] outputRow) throws HopException {
+    // copy row to output rowset(s)
+    putRow(data.outputRowMeta, outputRow);
+
+    if (log.isRowLevel()) {
+      logRowlevel(
+          BaseMessages.getString(PKG, "DatabaseLookup.Log.WroteRowToNextTransform")
+              + getInputRowMeta().getString(r));
+    }
+    if (checkFeedback(getLinesRead())) {
+      logBasic("linenr " + getLinesRead());
+    }
+  }
+
+  private boolean stopOnError(HopException e) {
+    logError(
+        BaseMessages.getString(PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing")
+            + e.getMessage());
+    setErrors(1);
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Batches are only possible if all the keys are compared for equality: that way the rows found
+   * can be matched with the input rows using their keys.
+   */
+  private boolean isBatchLookupPossible() {
+    for (int i = 0; i < data.conditions.length; i++) {
+      if (data.conditions[i] != DatabaseLookupMeta.CONDITION_EQ || data.keynrs[i] < 0) {
+        return false;
+      }
+    }
+    return data.conditions.length > 0;
+  }
+
+  private void initBatchLookup() throws HopException {
+    DatabaseMeta databaseMeta = getPipelineMeta().findDatabase(meta.getConnection(), variables);
+    int batchSize = meta.getLookupBatchSize();
+
+    // All the connections in a connection group share a single JDBC connection
+    //
+    int batchesInFlight =
+        Utils.isEmpty(data.db.getConnectionGroup())
+            ? Math.max(1, meta.getLookupBatchesInFlight())
+            : 1;
+
+    String sql = getBatchLookupSql(databaseMeta, batchSize);
+    if (log.isDetailed()) {
+      logDetailed(
+          BaseMessages.getString(
+              PKG,
+              "DatabaseLookup.Log.BatchLookup",
+              Integer.toString(batchSize),
+              Integer.toString(batchesInFlight)));
+    }
+
+    data.batchConnections = new ArrayList<>();
+    data.idleBatchConnections = new ArrayBlockingQueue<>(batchesInFlight);
+    for (int c = 0; c < batchesInFlight; c++) {
+      DatabaseLookupData.BatchConnection connection = new DatabaseLookupData.BatchConnection();
+      connection.db = getDatabase(databaseMeta);
+      data.batchConnections.add(connection);
+      connectDatabase(connection.db);
+      connection.statement = connection.db.prepareSql(sql);
+
+      // Every connection gets its own copy of the parameter metadata
       //
-      String sql = "SELECT ";
-      List<KeyField> keyFields = lookup.getKeyFields();
+      connection.parametersMeta = new RowMeta();
+      for (int i = 0; i < batchSize; i++) {
+        for (IValueMeta valueMeta : data.lookupMeta.getValueMetaList()) {
+          IValueMeta parameterMeta = valueMeta.clone();
+          parameterMeta.setName(valueMeta.getName() + "_" + i);
+          connection.parametersMeta.addValueMeta(parameterMeta);
+        }
+      }
+      data.idleBatchConnections.add(connection);
+    }
 
-      for (int i = 0; i < keyFields.size(); i++) {
-        KeyField keyField = keyFields.get(i);
+    data.batcher =
+        new LookupBatcher(
+            data.lookupMeta,
+            batchSize,
+            batchesInFlight,
+            meta.getLookup().isFailingOnMultipleResults(),
+            this::queryBatch,
+            new LookupBatcher.IRowHandler() {
+              @Override
+              public void handleRow(
+                  Object[] row,
+                  Object[] lookupRow,
+                  Object[] add,
+                  boolean cacheHit,
+                  IRowMeta returnRowMeta)
+                  throws HopException {
+                try {
+                  Object[] outputRow =
+                      addReturnValues(
+                          getInputRowMeta(),
+                          row,
+                          lookupRow,
+                          add,
+                          cacheHit,
+                          !cacheHit,
+                          returnRowMeta);
+                  if (outputRow != null) {
+                    putOutputRow(row, outputRow);
+                  }
+                } catch (HopException e) {
+                  handleError(row, e);
+                }
+              }
+
+              @Override
+              public void handleError(Object[] row, HopException e) throws HopException {
+                if (!getTransformMeta().isDoingErrorHandling()) {
+                  throw e;
+                }
+                putError(getInputRowMeta(), row, 1, e.getMessage(), null, "DBLOOKUPD001");
+              }
+            },
+            getTransformName() + " lookup");
+  }
+
+  /**
+   * Builds the query to look up a batch of keys. With a single key field the keys are passed in an
+   * IN list, otherwise the conditions of all the keys are combined with OR.
+   *
+   * @param databaseMeta the database to query
+   * @param batchSize the number of keys in a batch
+   * @return the SQL with batchSize times the number of key fields parameters
+   */
+  @VisibleForTesting
+  String getBatchLookupSql(DatabaseMeta databaseMeta, int batchSize) {
+    Lookup lookup = meta.getLookup();
+    List<KeyField> keyFields = lookup.getKeyFields();
+    List<ReturnValue> returnValues = lookup.getReturnValues();
 
-        if (i > 0) {
-          sql += ", ";
+    // The key fields come first, to match the rows found with the input rows
+    //
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < keyFields.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(databaseMeta.quoteField(keyFields.get(i).getTableField()));
+    }
+    for (ReturnValue returnValue : returnValues) {
+      sql.append(", ").append(databaseMeta.quoteField(returnValue.getTableField()));
+    }
+    sql.append(" FROM ")
+        .append(
+            databaseMeta.getQuotedSchemaTableCombination(
+                this, meta.getSchemaName(), meta.getTableName()))
+        .append(" WHERE ");
+
+    if (keyFields.size() == 1) {
+      sql.append(databaseMeta.quoteField(keyFields.get(0).getTableField())).append(" IN (");
+      for (int i = 0; i < batchSize; i++) {
+        sql.append(i > 0 ? ", ?" : "?");
+      }
+      sql.append(")");
+    } else {
+      for (int i = 0; i < batchSize; i++) {
+        sql.append(i > 0 ? " OR (" : "(");
+        for (int k = 0; k < keyFields.size(); k++) {
+          if (k > 0) {
+            sql.append(" AND ");
+          }
+          sql.append(databaseMeta.quoteField(keyFields.get(k).getTableField())).append(" = ?");
         }
-        sql += dbMeta.quoteField(keyField.getTableField());
+        sql.append(")");
       }
+    }
 
-      // Also grab the return field...
-      //
-      List<ReturnValue> returnValues = lookup.getReturnValues();
-      for (int i = 0; i < returnValues.size(); i++) {
-        ReturnValue returnValue = returnValues.get(i);
-        sql += ", " + dbMeta.quoteField(returnValue.getTableField());
+    if (StringUtils.isNotEmpty(lookup.getOrderByClause())) {
+      sql.append(" ORDER BY ").append(lookup.getOrderByClause());
+    }
+    return sql.toString();
+  }
+
+  private void addRowToBatch(Object[] row) throws HopException {
+    Object[] lookupRow;
+    Object[] add = null;
+    try {
+      lookupRow = createLookupRow(getInputRowMeta(), row);
+      if (meta.isCached()) {
+        add = data.cache.getRowFromCache(data.lookupMeta, lookupRow);
       }
-      // The schema/table
-      //
-      sql +=
-          " FROM "
-              + dbMeta.getQuotedSchemaTableCombination(
-                  this, meta.getSchemaName(), meta.getTableName());
+    } catch (HopException e) {
+      if (!getTransformMeta().isDoingErrorHandling()) {
+        throw e;
+      }
+      putError(getInputRowMeta(), row, 1, e.getMessage(), null, "DBLOOKUPD001");
+      return;
+    }
+    data.batcher.addRow(row, lookupRow, add);
+  }
+
+  /** Runs on a worker thread of the batcher, using one of the batch connections. */
+  private LookupBatcher.BatchResult queryBatch(List<Object[]> keys) throws HopException {
+    int batchSize = meta.getLookupBatchSize();
+    int keyCount = data.lookupMeta.size();
+
+    // Pad the last batch with its last key: that way the same prepared statement is always used
+    //
+    Object[] parameters = new Object[batchSize * keyCount];
+    for (int i = 0; i < batchSize; i++) {
+      Object[] key = keys.get(Math.min(i, keys.size() - 1));
+      System.arraycopy(key, 0, parameters, i * keyCount, keyCount);
+    }
 
-      // order by?
-      if (StringUtils.isNotEmpty(lookup.getOrderByClause())) {
-        sql += " ORDER BY " + lookup.getOrderByClause();
+    DatabaseLookupData.BatchConnection connection;
+    try {
+      connection = data.idleBatchConnections.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while waiting for a lookup connection", e);
+    }
+    try {
+      Database db = connection.db;
+      ResultSet resultSet =
+          db.openQuery(connection.statement, connection.parametersMeta, parameters);
+      List<Object[]> rows = db.getRows(resultSet, 0, null);
+      return new LookupBatcher.BatchResult(db.getReturnRowMeta(), rows);
+    } finally {
+      data.idleBatchConnections.add(connection);
+    }
+  }
+
+  private String getLoadAllSql(DatabaseMeta dbMeta) {
+    Lookup lookup = meta.getLookup();
+
+    // We only want to get the used table fields...
+    //
+    String sql = "SELECT ";
+    List<KeyField> keyFields = lookup.getKeyFields();
+
+    for (int i = 0; i < keyFields.size(); i++) {
+      KeyField keyField = keyFields.get(i);
+
+      if (i > 0) {
+        sql += ", ";
       }
+      sql += dbMeta.quoteField(keyField.getTableField());
+    }
+
+    // Also grab the return field...
+    //
+    List<ReturnValue> returnValues = lookup.getReturnValues();
+    for (int i = 0; i < returnValues.size(); i++) {
+      ReturnValue returnValue = returnValues.get(i);
+      sql += ", " + dbMeta.quoteField(returnValue.getTableField());
+    }
+    // The schema/table
+    //
+    sql +=
+        " FROM "
+            + dbMeta.getQuotedSchemaTableCombination(
+                this, meta.getSchemaName(), meta.getTableName());
+
+    // order by?
+    if (StringUtils.isNotEmpty(lookup.getOrderByClause())) {
+      sql += " ORDER BY " + lookup.getOrderByClause();
+    }
+    return sql;
+  }
 
+  private void loadAllTableDataIntoTheCache() throws HopException {
+    DatabaseMeta dbMeta = getPipelineMeta().findDatabase(meta.getConnection(), variables);
+
+    Database db = getDatabase(dbMeta);
+    connectDatabase(db);
+
+    try {
       // Now that we have the SQL constructed, let's store the rows...
       //
-      List<Object[]> rows = db.getRows(sql, 0);
+      List<Object[]> rows = db.getRows(getLoadAllSql(dbMeta), 0);
       if (rows != null && !rows.isEmpty()) {
         if (data.allEquals) {
           putToDefaultCache(db, rows);
@@ -546,17 +925,16 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
     }
   }
 
-  private void putToDefaultCache(Database db, List<Object[]> rows) {
+  private void putToDefaultCache(Database db, List<Object[]> rows) throws HopException {
     final int keysAmount = meta.getLookup().getKeyFields().size();
-    IRowMeta prototype = copyValueMetasFrom(db.getReturnRowMeta(), keysAmount);
+    // all keys have the same row meta,
+    // it is useless to re-create it for each row
+    IRowMeta keyMeta = copyValueMetasFrom(db.getReturnRowMeta(), keysAmount).clone();
 
     // Copy the data into 2 parts: key and value...
     //
     for (Object[] row : rows) {
       int index = 0;
-      // not sure it is efficient to re-create the same on every row,
-      // but this was done earlier, so I'm keeping this behaviour
-      IRowMeta keyMeta = prototype.clone();
       Object[] keyData = new Object[keysAmount];
       for (int i = 0; i < keysAmount; i++) {
         keyData[i] = row[index++];
@@ -572,6 +950,65 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
     }
   }
 
+  /**
+   * Load all the table data into a shared cache, unless another pipeline already did. The keys are
+   * converted to the types used to look them up.
+   */
+  private void loadAllTableDataIntoTheSharedCache(SharedCache cache) throws HopException {
+    LookupCacheData cacheData = cache.getCacheData();
+    if (cacheData.isComplete()) {
+      if (log.isDetailed()) {
+        logDetailed(
+            BaseMessages.getString(
+                PKG,
+                "DatabaseLookup.Log.SharedCacheLoaded",
+                data.sharedCache.getName(),
+                Integer.toString(cacheData.getSize())));
+      }
+      return;
+    }
+
+    DatabaseMeta dbMeta = getPipelineMeta().findDatabase(meta.getConnection(), variables);
+
+    Database db = getDatabase(dbMeta);
+    connectDatabase(db);
+
+    try {
+      long evictions = cacheData.getEvictions();
+      List<Object[]> rows = db.getRows(getLoadAllSql(dbMeta), 0);
+      IRowMeta rowMeta = db.getReturnRowMeta();
+      int keysAmount = data.lookupMeta.size();
+      int valuesAmount = data.returnMeta.size();
+      if (rows != null) {
+        for (Object[] row : rows) {
+          Object[] keyData = new Object[keysAmount];
+          for (int i = 0; i < keysAmount; i++) {
+            IValueMeta keyMeta = data.lookupMeta.getValueMeta(i);
+            IValueMeta rowValueMeta = rowMeta.getValueMeta(i);
+            keyData[i] =
+                keyMeta.getType() == rowValueMeta.getType()
+                    ? row[i]
+                    : keyMeta.convertData(rowValueMeta, row[i]);
+          }
+          Object[] valueData = new Object[valuesAmount];
+          System.arraycopy(row, keysAmount, valueData, 0, valuesAmount);
+
+          cache.storeRowInCache(meta, data.lookupMeta, keyData, valueData);
+          incrementLinesInput();
+        }
+      }
+      if (!cacheData.markComplete(evictions) && log.isBasic()) {
+        logBasic(
+            BaseMessages.getString(
+                PKG, "DatabaseLookup.Log.SharedCacheIncomplete", data.sharedCache.getName()));
+      }
+    } catch (Exception e) {
+      throw new HopException(e);
+    } finally {
+      db.disconnect();
+    }
+  }
+
   private IRowMeta copyValueMetasFrom(IRowMeta source, int n) {
     RowMeta result = new RowMeta();
     for (int i = 0; i < n; i++) {
@@ -615,6 +1052,11 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
       synchronized (data.db) {
         data.db.cancelQuery();
       }
+      if (data.batchConnections != null) {
+        for (DatabaseLookupData.BatchConnection connection : data.batchConnections) {
+          connection.db.cancelStatement(connection.statement);
+        }
+      }
       data.isCanceled = true;
     }
   }
@@ -657,6 +1099,17 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
           }
         }
 
+        if (meta.isCached() && StringUtils.isNotEmpty(meta.getSharedCache())) {
+          String cacheName = resolve(meta.getSharedCache());
+          LookupCache lookupCache =
+              metadataProvider.getSerializer(LookupCache.class).load(cacheName);
+          if (lookupCache == null) {
+            throw new HopException(
+                BaseMessages.getString(PKG, "DatabaseLookup.Init.SharedCacheNotFound", cacheName));
+          }
+          data.sharedCache = lookupCache.attach(this);
+        }
+
         return true;
       } catch (Exception e) {
         logError(
@@ -669,12 +1122,62 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
     return false;
   }
 
+  @Override
+  public Map<IEngineMetric, Long> getCustomMetrics() {
+    Map<IEngineMetric, Long> metrics = new LinkedHashMap<>();
+    if (data.cache instanceof DefaultCache) {
+      DefaultCache cache = (DefaultCache) data.cache;
+      metrics.put(METRIC_CACHE_HITS, cache.getHits());
+      metrics.put(METRIC_CACHE_MISSES, cache.getMisses());
+      metrics.put(METRIC_CACHE_EVICTIONS, cache.getEvictions());
+      metrics.put(METRIC_CACHE_EXPIRATIONS, cache.getExpirations());
+      metrics.put(METRIC_CACHE_SIZE, (long) cache.getSize());
+      metrics.put(METRIC_CACHE_MEMORY, cache.getMemory());
+    } else if (data.cache instanceof SharedCache) {
+      SharedCache cache = (SharedCache) data.cache;
+      metrics.put(METRIC_CACHE_HITS, cache.getHits());
+      metrics.put(METRIC_CACHE_MISSES, cache.getMisses());
+      metrics.put(METRIC_CACHE_EVICTIONS, cache.getCacheData().getEvictions());
+      metrics.put(METRIC_CACHE_SIZE, (long) cache.getCacheData().getSize());
+      metrics.put(METRIC_CACHE_MEMORY, cache.getCacheData().getMemory());
+    }
+    return metrics;
+  }
+
   @Override
   public void dispose() {
 
+    if (data.cache instanceof DefaultCache && log.isDetailed()) {
+      DefaultCache cache = (DefaultCache) data.cache;
+      logDetailed(
+          BaseMessages.getString(
+              PKG,
+              "DatabaseLookup.Log.CacheStatistics",
+              Long.toString(cache.getHits()),
+              Long.toString(cache.getMisses()),
+              Long.toString(cache.getEvictions()),
+              Long.toString(cache.getExpirations()),
+              Integer.toString(cache.getSize()),
+              Long.toString(cache.getMemory())));
+    }
+    if (data.batcher != null) {
+      data.batcher.close();
+      data.batcher = null;
+    }
+    if (data.batchConnections != null) {
+      for (DatabaseLookupData.BatchConnection connection : data.batchConnections) {
+        connection.db.disconnect();
+      }
+      data.batchConnections = null;
+      data.idleBatchConnections = null;
+    }
     if (data.db != null) {
       data.db.disconnect();
     }
+    if (data.sharedCache != null) {
+      LookupCacheRegistry.getInstance().release(data.sharedCache);
+      data.sharedCache = null;
+    }
 
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
@@ -20,13 +20,17 @@ package org.apache.hop.pipeline.transforms.databaselookup;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.metadata.cache.SharedLookupCache;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
+import java.sql.PreparedStatement;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 public class DatabaseLookupData extends BaseTransformData implements ITransformData {
   public ICache cache;
+  public SharedLookupCache sharedCache;
   public Database db;
 
   public Object[] nullif; // Not found: default values...
@@ -45,12 +49,23 @@ public class DatabaseLookupData extends BaseTransformData implements ITransformD
   public String[] returnTrimTypes;
   public List<Integer> trimIndexes;
 
+  public LookupBatcher batcher;
+  public List<BatchConnection> batchConnections;
+  public BlockingQueue<BatchConnection> idleBatchConnections;
+
   public DatabaseLookupData() {
     super();
 
     db = null;
   }
 
+  /** A connection with the prepared statement used to look up batches of keys. */
+  public static class BatchConnection {
+    public Database db;
+    public PreparedStatement statement;
+    public IRowMeta parametersMeta;
+  }
+
   /** ICache for {@code DatabaseLookup} transform. */
   public interface ICache {
     /**
@@ -71,8 +86,26 @@ public class DatabaseLookupData extends BaseTransformData implements ITransformD
      * @param lookupMeta {@code lookupRow}'s meta
      * @param lookupRow tuple of keys
      * @param add tuple of data
+     * @throws HopException
      */
     void storeRowInCache(
-        DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add);
+        DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add)
+        throws HopException;
+
+    /**
+     * Saves the default values {@code add} for a key which wasn't found in the table. By default it
+     * is stored like any other data row.
+     *
+     * @param meta transform's meta
+     * @param lookupMeta {@code lookupRow}'s meta
+     * @param lookupRow tuple of keys
+     * @param add tuple of default values
+     * @throws HopException
+     */
+    default void storeNotFoundInCache(
+        DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add)
+        throws HopException {
+      storeRowInCache(meta, lookupMeta, lookupRow, add);
+    }
   }
 }
@@ -29,6 +29,7 @@ import org.apache.hop.core.row.value.ValueMetaFactory;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransformMeta;
 import org.apache.hop.pipeline.transform.ITransformDialog;
@@ -69,12 +70,27 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
 
   private Button wCache;
 
+  private MetaSelectionLine<LookupCache> wSharedCache;
+
   private Label wlCacheLoadAll;
   private Button wCacheLoadAll;
 
+  private Text wLookupBatchSize;
+
+  private Text wLookupBatchesInFlight;
+
   private Label wlCachesize;
   private Text wCachesize;
 
+  private Label wlCacheMemory;
+  private Text wCacheMemory;
+
+  private Label wlCacheNotFound;
+  private Button wCacheNotFound;
+
+  private Label wlNotFoundTtl;
+  private Text wNotFoundTtl;
+
   private TableView wKey;
 
   private TextVar wSchema;
@@ -266,6 +282,71 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
     fdCachesize.top = new FormAttachment(wCache, margin);
     wCachesize.setLayoutData(fdCachesize);
 
+    // ICache memory line
+    wlCacheMemory = new Label(shell, SWT.RIGHT);
+    wlCacheMemory.setText(BaseMessages.getString(PKG, "DatabaseLookupDialog.CacheMemory.Label"));
+    wlCacheMemory.setToolTipText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.CacheMemory.Tooltip"));
+    PropsUi.setLook(wlCacheMemory);
+    FormData fdlCacheMemory = new FormData();
+    fdlCacheMemory.left = new FormAttachment(0, 0);
+    fdlCacheMemory.right = new FormAttachment(middle, -margin);
+    fdlCacheMemory.top = new FormAttachment(wCachesize, margin);
+    wlCacheMemory.setLayoutData(fdlCacheMemory);
+    wCacheMemory = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wCacheMemory);
+    wCacheMemory.addModifyListener(lsMod);
+    FormData fdCacheMemory = new FormData();
+    fdCacheMemory.left = new FormAttachment(middle, 0);
+    fdCacheMemory.right = new FormAttachment(100, 0);
+    fdCacheMemory.top = new FormAttachment(wCachesize, margin);
+    wCacheMemory.setLayoutData(fdCacheMemory);
+
+    // ICache : not found keys?
+    wlCacheNotFound = new Label(shell, SWT.RIGHT);
+    wlCacheNotFound.setText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.CacheNotFound.Label"));
+    PropsUi.setLook(wlCacheNotFound);
+    FormData fdlCacheNotFound = new FormData();
+    fdlCacheNotFound.left = new FormAttachment(0, 0);
+    fdlCacheNotFound.right = new FormAttachment(middle, -margin);
+    fdlCacheNotFound.top = new FormAttachment(wCacheMemory, margin);
+    wlCacheNotFound.setLayoutData(fdlCacheNotFound);
+    wCacheNotFound = new Button(shell, SWT.CHECK);
+    PropsUi.setLook(wCacheNotFound);
+    FormData fdCacheNotFound = new FormData();
+    fdCacheNotFound.left = new FormAttachment(middle, 0);
+    fdCacheNotFound.top = new FormAttachment(wlCacheNotFound, 0, SWT.CENTER);
+    wCacheNotFound.setLayoutData(fdCacheNotFound);
+    wCacheNotFound.addSelectionListener(
+        new SelectionAdapter() {
+          @Override
+          public void widgetSelected(SelectionEvent e) {
+            input.setChanged();
+            enableFields();
+          }
+        });
+
+    // Not found time to live line
+    wlNotFoundTtl = new Label(shell, SWT.RIGHT);
+    wlNotFoundTtl.setText(BaseMessages.getString(PKG, "DatabaseLookupDialog.NotFoundTtl.Label"));
+    wlNotFoundTtl.setToolTipText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.NotFoundTtl.Tooltip"));
+    PropsUi.setLook(wlNotFoundTtl);
+    FormData fdlNotFoundTtl = new FormData();
+    fdlNotFoundTtl.left = new FormAttachment(0, 0);
+    fdlNotFoundTtl.right = new FormAttachment(middle, -margin);
+    fdlNotFoundTtl.top = new FormAttachment(wCacheNotFound, margin);
+    wlNotFoundTtl.setLayoutData(fdlNotFoundTtl);
+    wNotFoundTtl = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wNotFoundTtl);
+    wNotFoundTtl.addModifyListener(lsMod);
+    FormData fdNotFoundTtl = new FormData();
+    fdNotFoundTtl.left = new FormAttachment(middle, 0);
+    fdNotFoundTtl.right = new FormAttachment(100, 0);
+    fdNotFoundTtl.top = new FormAttachment(wCacheNotFound, margin);
+    wNotFoundTtl.setLayoutData(fdNotFoundTtl);
+
     // ICache : Load all?
     wlCacheLoadAll = new Label(shell, SWT.RIGHT);
     wlCacheLoadAll.setText(BaseMessages.getString(PKG, "DatabaseLookupDialog.CacheLoadAll.Label"));
@@ -273,7 +354,7 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
     FormData fdlCacheLoadAll = new FormData();
     fdlCacheLoadAll.left = new FormAttachment(0, 0);
     fdlCacheLoadAll.right = new FormAttachment(middle, -margin);
-    fdlCacheLoadAll.top = new FormAttachment(wCachesize, margin);
+    fdlCacheLoadAll.top = new FormAttachment(wNotFoundTtl, margin);
     wlCacheLoadAll.setLayoutData(fdlCacheLoadAll);
     wCacheLoadAll = new Button(shell, SWT.CHECK);
     PropsUi.setLook(wCacheLoadAll);
@@ -290,12 +371,72 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
           }
         });
 
+    // The shared cache
+    wSharedCache =
+        new MetaSelectionLine<>(
+            variables,
+            metadataProvider,
+            LookupCache.class,
+            shell,
+            SWT.SINGLE | SWT.LEFT | SWT.BORDER,
+            BaseMessages.getString(PKG, "DatabaseLookupDialog.SharedCache.Label"),
+            BaseMessages.getString(PKG, "DatabaseLookupDialog.SharedCache.Tooltip"));
+    PropsUi.setLook(wSharedCache);
+    wSharedCache.addModifyListener(lsMod);
+    FormData fdSharedCache = new FormData();
+    fdSharedCache.left = new FormAttachment(0, 0);
+    fdSharedCache.right = new FormAttachment(100, 0);
+    fdSharedCache.top = new FormAttachment(wCacheLoadAll, margin);
+    wSharedCache.setLayoutData(fdSharedCache);
+
+    // Lookup batch size line
+    Label wlLookupBatchSize = new Label(shell, SWT.RIGHT);
+    wlLookupBatchSize.setText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.LookupBatchSize.Label"));
+    wlLookupBatchSize.setToolTipText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.LookupBatchSize.Tooltip"));
+    PropsUi.setLook(wlLookupBatchSize);
+    FormData fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment(0, 0);
+    fdlLookupBatchSize.right = new FormAttachment(middle, -margin);
+    fdlLookupBatchSize.top = new FormAttachment(wSharedCache, margin);
+    wlLookupBatchSize.setLayoutData(fdlLookupBatchSize);
+    wLookupBatchSize = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wLookupBatchSize);
+    wLookupBatchSize.addModifyListener(lsMod);
+    FormData fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment(middle, 0);
+    fdLookupBatchSize.right = new FormAttachment(100, 0);
+    fdLookupBatchSize.top = new FormAttachment(wSharedCache, margin);
+    wLookupBatchSize.setLayoutData(fdLookupBatchSize);
+
+    // Batches in flight line
+    Label wlLookupBatchesInFlight = new Label(shell, SWT.RIGHT);
+    wlLookupBatchesInFlight.setText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.LookupBatchesInFlight.Label"));
+    wlLookupBatchesInFlight.setToolTipText(
+        BaseMessages.getString(PKG, "DatabaseLookupDialog.LookupBatchesInFlight.Tooltip"));
+    PropsUi.setLook(wlLookupBatchesInFlight);
+    FormData fdlLookupBatchesInFlight = new FormData();
+    fdlLookupBatchesInFlight.left = new FormAttachment(0, 0);
+    fdlLookupBatchesInFlight.right = new FormAttachment(middle, -margin);
+    fdlLookupBatchesInFlight.top = new FormAttachment(wLookupBatchSize, margin);
+    wlLookupBatchesInFlight.setLayoutData(fdlLookupBatchesInFlight);
+    wLookupBatchesInFlight = new Text(shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wLookupBatchesInFlight);
+    wLookupBatchesInFlight.addModifyListener(lsMod);
+    FormData fdLookupBatchesInFlight = new FormData();
+    fdLookupBatchesInFlight.left = new FormAttachment(middle, 0);
+    fdLookupBatchesInFlight.right = new FormAttachment(100, 0);
+    fdLookupBatchesInFlight.top = new FormAttachment(wLookupBatchSize, margin);
+    wLookupBatchesInFlight.setLayoutData(fdLookupBatchesInFlight);
+
     Label wlKey = new Label(shell, SWT.NONE);
     wlKey.setText(BaseMessages.getString(PKG, "DatabaseLookupDialog.Keys.Label"));
     PropsUi.setLook(wlKey);
     FormData fdlKey = new FormData();
     fdlKey.left = new FormAttachment(0, 0);
-    fdlKey.top = new FormAttachment(wCacheLoadAll, margin);
+    fdlKey.top = new FormAttachment(wLookupBatchesInFlight, margin);
     wlKey.setLayoutData(fdlKey);
 
     int nrKeyCols = 4;
@@ -598,8 +739,19 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
 
     wCachesize.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
     wlCachesize.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
+    wCacheMemory.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
+    wlCacheMemory.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
+    wCacheNotFound.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
+    wlCacheNotFound.setEnabled(wCache.getSelection() && !wCacheLoadAll.getSelection());
+    boolean notFoundTtl =
+        wCache.getSelection() && !wCacheLoadAll.getSelection() && wCacheNotFound.getSelection();
+    wNotFoundTtl.setEnabled(notFoundTtl);
+    wlNotFoundTtl.setEnabled(notFoundTtl);
     wCacheLoadAll.setEnabled(wCache.getSelection());
+    wSharedCache.setEnabled(wCache.getSelection());
     wlCacheLoadAll.setEnabled(wCache.getSelection());
+    wLookupBatchSize.setEnabled(!(wCache.getSelection() && wCacheLoadAll.getSelection()));
+    wLookupBatchesInFlight.setEnabled(!(wCache.getSelection() && wCacheLoadAll.getSelection()));
     wFailMultiple.setEnabled(!wCache.getSelection());
     wlFailMultiple.setEnabled(!wCache.getSelection());
   }
@@ -610,7 +762,18 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
 
     wCache.setSelection(input.isCached());
     wCachesize.setText("" + input.getCacheSize());
+    wCacheMemory.setText("" + input.getCacheMemoryMb());
+    wCacheNotFound.setSelection(input.isCachingNotFound());
+    wNotFoundTtl.setText("" + input.getNotFoundCacheTtl());
     wCacheLoadAll.setSelection(input.isLoadingAllDataInCache());
+    try {
+      wSharedCache.fillItems();
+    } catch (HopException e) {
+      log.logError("Error getting the list of lookup caches", e);
+    }
+    wSharedCache.setText(Const.NVL(input.getSharedCache(), ""));
+    wLookupBatchSize.setText("" + input.getLookupBatchSize());
+    wLookupBatchesInFlight.setText("" + input.getLookupBatchesInFlight());
 
     Lookup lookup = input.getLookup();
 
@@ -673,7 +836,13 @@ public class DatabaseLookupDialog extends BaseTransformDialog implements ITransf
 
     input.setCached(wCache.getSelection());
     input.setCacheSize(Const.toInt(wCachesize.getText(), 0));
+    input.setCacheMemoryMb(Const.toInt(wCacheMemory.getText(), 0));
+    input.setCachingNotFound(wCacheNotFound.getSelection());
+    input.setNotFoundCacheTtl(Const.toInt(wNotFoundTtl.getText(), 0));
     input.setLoadingAllDataInCache(wCacheLoadAll.getSelection());
+    input.setSharedCache(wSharedCache.getText());
+    input.setLookupBatchSize(Const.toInt(wLookupBatchSize.getText(), 0));
+    input.setLookupBatchesInFlight(Const.toInt(wLookupBatchesInFlight.getText(), 4));
 
     for (TableItem item : wKey.getNonEmptyItems()) {
       KeyField keyField = new KeyField();
@@ -93,23 +93,68 @@ public class DatabaseLookupMeta extends BaseTransformMeta<DatabaseLookup, Databa
       injectionKeyDescription = "DatabaseLookupMeta.Injection.CacheSize")
   private int cacheSize;
 
+  /** Limit the estimated memory used by the cache to this number of MB, 0 for no limit */
+  @HopMetadataProperty(
+      key = "cache_memory_mb",
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.CacheMemoryMb")
+  private int cacheMemoryMb;
+
+  /** Also cache the default values of keys which were not found in the table */
+  @HopMetadataProperty(
+      key = "cache_not_found",
+      defaultBoolean = true,
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.CachingNotFound")
+  private boolean cachingNotFound;
+
+  /** The number of seconds keys which were not found stay in the cache, 0 to keep them */
+  @HopMetadataProperty(
+      key = "cache_not_found_ttl",
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.NotFoundCacheTtl")
+  private int notFoundCacheTtl;
+
   /** Flag to make it load all data into the cache at startup */
   @HopMetadataProperty(
       key = "cache_load_all",
       injectionKeyDescription = "DatabaseLookupMeta.Injection.CacheLoadAll")
   private boolean loadingAllDataInCache;
 
+  /** The name of the lookup cache shared by the pipelines in this JVM, empty to use a private cache */
+  @HopMetadataProperty(
+      key = "shared_cache",
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.SharedCache")
+  private String sharedCache;
+
+  /** The number of distinct keys to look up with one query, 0 or 1 to look up row by row */
+  @HopMetadataProperty(
+      key = "lookup_batch_size",
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.LookupBatchSize")
+  private int lookupBatchSize;
+
+  /** The maximum number of batch queries running at the same time */
+  @HopMetadataProperty(
+      key = "lookup_batches_in_flight",
+      injectionKeyDescription = "DatabaseLookupMeta.Injection.LookupBatchesInFlight")
+  private int lookupBatchesInFlight;
+
   @HopMetadataProperty(key = "lookup")
   private Lookup lookup;
 
   public DatabaseLookupMeta() {
     lookup = new Lookup();
+    lookupBatchesInFlight = 4;
+    cachingNotFound = true;
   }
 
   public DatabaseLookupMeta(DatabaseLookupMeta m) {
     this.cached = m.cached;
     this.cacheSize = m.cacheSize;
+    this.cacheMemoryMb = m.cacheMemoryMb;
+    this.cachingNotFound = m.cachingNotFound;
+    this.notFoundCacheTtl = m.notFoundCacheTtl;
     this.loadingAllDataInCache = m.loadingAllDataInCache;
+    this.sharedCache = m.sharedCache;
+    this.lookupBatchSize = m.lookupBatchSize;
+    this.lookupBatchesInFlight = m.lookupBatchesInFlight;
     this.lookup = new Lookup(m.lookup);
   }
 
@@ -542,6 +587,54 @@ public class DatabaseLookupMeta extends BaseTransformMeta<DatabaseLookup, Databa
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * Gets cacheMemoryMb
+   *
+   * @return value of cacheMemoryMb
+   */
+  public int getCacheMemoryMb() {
+    return cacheMemoryMb;
+  }
+
+  /**
+   * @param cacheMemoryMb The cacheMemoryMb to set
+   */
+  public void setCacheMemoryMb(int cacheMemoryMb) {
+    this.cacheMemoryMb = cacheMemoryMb;
+  }
+
+  /**
+   * Gets cachingNotFound
+   *
+   * @return value of cachingNotFound
+   */
+  public boolean isCachingNotFound() {
+    return cachingNotFound;
+  }
+
+  /**
+   * @param cachingNotFound The cachingNotFound to set
+   */
+  public void setCachingNotFound(boolean cachingNotFound) {
+    this.cachingNotFound = cachingNotFound;
+  }
+
+  /**
+   * Gets notFoundCacheTtl
+   *
+   * @return value of notFoundCacheTtl
+   */
+  public int getNotFoundCacheTtl() {
+    return notFoundCacheTtl;
+  }
+
+  /**
+   * @param notFoundCacheTtl The notFoundCacheTtl to set
+   */
+  public void setNotFoundCacheTtl(int notFoundCacheTtl) {
+    this.notFoundCacheTtl = notFoundCacheTtl;
+  }
+
   /**
    * Gets loadingAllDataInCache
    *
@@ -558,6 +651,54 @@ public class DatabaseLookupMeta extends BaseTransformMeta<DatabaseLookup, Databa
     this.loadingAllDataInCache = loadingAllDataInCache;
   }
 
+  /**
+   * Gets sharedCache
+   *
+   * @return value of sharedCache
+   */
+  public String getSharedCache() {
+    return sharedCache;
+  }
+
+  /**
+   * @param sharedCache The sharedCache to set
+   */
+  public void setSharedCache(String sharedCache) {
+    this.sharedCache = sharedCache;
+  }
+
+  /**
+   * Gets lookupBatchSize
+   *
+   * @return value of lookupBatchSize
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize The lookupBatchSize to set
+   */
+  public void setLookupBatchSize(int lookupBatchSize) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
+  /**
+   * Gets lookupBatchesInFlight
+   *
+   * @return value of lookupBatchesInFlight
+   */
+  public int getLookupBatchesInFlight() {
+    return lookupBatchesInFlight;
+  }
+
+  /**
+   * @param lookupBatchesInFlight The lookupBatchesInFlight to set
+   */
+  public void setLookupBatchesInFlight(int lookupBatchesInFlight) {
+    this.lookupBatchesInFlight = lookupBatchesInFlight;
+  }
+
   /**
    * Gets lookup
    *
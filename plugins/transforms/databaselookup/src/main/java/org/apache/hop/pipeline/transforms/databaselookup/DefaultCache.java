@@ -17,36 +17,52 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup;
 
-import org.apache.hop.core.RowMetaAndData;
-import org.apache.hop.core.TimedRow;
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.TinyLfuCache;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.math.BigDecimal;
 import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.List;
 
-/** Old code, copied from {@linkplain DatabaseLookup} */
+/**
+ * The cache of the {@linkplain DatabaseLookup} transform. The lookup keys are encoded into compact
+ * binary keys and the entries are kept in a {@link TinyLfuCache}, bounded by the number of rows
+ * and by an estimate of the memory they use. Keys which weren't found in the table can be given a
+ * time to live.
+ */
 public class DefaultCache implements DatabaseLookupData.ICache {
 
+  /** The estimated number of bytes used by a cache entry, next to its keys and values */
+  private static final int ENTRY_OVERHEAD = 96;
+
   public static DefaultCache newCache(DatabaseLookupData data, int cacheSize) {
-    if (cacheSize > 0) {
-      cacheSize = (int) (cacheSize * 1.5);
-    } else {
-      cacheSize = 16;
-    }
-    return new DefaultCache(data, cacheSize);
+    return newCache(data, cacheSize, 0);
+  }
+
+  /**
+   * @param data the data of the transform
+   * @param cacheSize the maximum number of rows in the cache, 0 for no limit
+   * @param cacheMemoryMb the maximum estimated memory used by the cache in MB, 0 for no limit
+   * @return a new cache
+   */
+  public static DefaultCache newCache(DatabaseLookupData data, int cacheSize, int cacheMemoryMb) {
+    return new DefaultCache(
+        data, Math.max(cacheMemoryMb, 0) * 1024L * 1024L, Math.max(cacheSize, 0));
   }
 
   private final DatabaseLookupData data;
-  private final LinkedHashMap<RowMetaAndData, TimedRow> map;
+  private final TinyLfuCache<Entry> cache;
 
-  DefaultCache(DatabaseLookupData data, int capacity) {
+  private BinaryKeyEncoder lookupEncoder;
+  private IRowMeta lookupEncoderMeta;
+  private BinaryKeyEncoder storeEncoder;
+  private IRowMeta storeEncoderMeta;
+
+  DefaultCache(DatabaseLookupData data, long maxWeight, long maxEntries) {
     this.data = data;
-    map = new LinkedHashMap<>(capacity);
+    this.cache = new TinyLfuCache<>(maxWeight, maxEntries);
   }
 
   @Override
@@ -54,9 +70,15 @@ public class DefaultCache implements DatabaseLookupData.ICache {
     if (data.allEquals) {
       // only do the map lookup when all equals otherwise conditions >, <, <> will give wrong
       // results
-      TimedRow timedRow = map.get(new RowMetaAndData(data.lookupMeta, lookupRow));
-      if (timedRow != null) {
-        return timedRow.getRow();
+      if (lookupEncoder == null || lookupEncoderMeta != data.lookupMeta) {
+        lookupEncoder = new BinaryKeyEncoder(data.lookupMeta, null);
+        lookupEncoderMeta = data.lookupMeta;
+      }
+      lookupEncoder.encode(lookupRow);
+      Entry entry =
+          cache.get(lookupEncoder.getKey(), lookupEncoder.getLength(), lookupEncoder.getHash());
+      if (entry != null) {
+        return entry.add;
       }
     } else { // special handling of conditions <,>, <> etc.
       if (!data.hasDBCondition) { // e.g. LIKE not handled by this routine, yet
@@ -64,7 +86,11 @@ public class DefaultCache implements DatabaseLookupData.ICache {
         // Not all conditions are "=" so we are going to have to evaluate row by row
         // A sorted list or index might be a good solution here...
         //
-        for (RowMetaAndData key : map.keySet()) {
+        for (Entry entry : cache.values()) {
+          if (entry.keyRow == null) {
+            continue;
+          }
+
           // Now verify that the key is matching our conditions...
           //
           boolean match = true;
@@ -72,8 +98,8 @@ public class DefaultCache implements DatabaseLookupData.ICache {
           for (int i = 0; i < data.conditions.length && match; i++) {
             IValueMeta cmpMeta = lookupMeta.getValueMeta(lookupIndex);
             Object cmpData = lookupRow[lookupIndex];
-            IValueMeta keyMeta = key.getValueMeta(i);
-            Object keyData = key.getData()[i];
+            IValueMeta keyMeta = entry.keyMeta.getValueMeta(i);
+            Object keyData = entry.keyRow[i];
 
             switch (data.conditions[i]) {
               case DatabaseLookupMeta.CONDITION_EQ:
@@ -121,10 +147,7 @@ public class DefaultCache implements DatabaseLookupData.ICache {
             lookupIndex++;
           }
           if (match) {
-            TimedRow timedRow = map.get(key);
-            if (timedRow != null) {
-              return timedRow.getRow();
-            }
+            return entry.add;
           }
         }
       }
@@ -134,56 +157,139 @@ public class DefaultCache implements DatabaseLookupData.ICache {
 
   @Override
   public void storeRowInCache(
-      DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add) {
-    RowMetaAndData rowMetaAndData = new RowMetaAndData(lookupMeta, lookupRow);
-    //  2009-02-01 XXX: I want to write a test case to prove this point before checking
-    // in.
-    // /* Don't insert a row with a duplicate key into the cache. It doesn't seem
-    // * to serve a useful purpose and can potentially cause the transform to return
-    // * different values over the life of the pipeline (if the source DB rows change)
-    // * Additionally, if using the load all data feature, re-inserting would reverse the order
-    // * specified in the transform.
-    // */
-    map.put(rowMetaAndData, new TimedRow(add));
-
-    // See if we have to limit the cache_size.
-    // Sample 10% of the rows in the cache.
-    // Remove everything below the second lowest date.
-    // That should on average remove more than 10% of the entries
-    // It's not exact science, but it will be faster than the old algorithm
-
-    // 2009-02-01: If you had previously set a cache size and then turned on load all,
-    // this
-    // method would throw out entries if the previous cache size wasn't big enough.
-    if (!meta.isLoadingAllDataInCache()
-        && meta.getCacheSize() > 0
-        && map.size() > meta.getCacheSize()) {
-      List<RowMetaAndData> keys = new ArrayList<>(map.keySet());
-      List<Date> samples = new ArrayList<>();
-      int incr = keys.size() / 10;
-      if (incr == 0) {
-        incr = 1;
+      DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add)
+      throws HopException {
+    store(lookupMeta, lookupRow, add, 0L);
+  }
+
+  @Override
+  public void storeNotFoundInCache(
+      DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add)
+      throws HopException {
+    if (!meta.isCachingNotFound()) {
+      return;
+    }
+    store(lookupMeta, lookupRow, add, Math.max(meta.getNotFoundCacheTtl(), 0) * 1000L);
+  }
+
+  private void store(IRowMeta lookupMeta, Object[] lookupRow, Object[] add, long timeToLiveMs)
+      throws HopException {
+    if (storeEncoder == null || storeEncoderMeta != lookupMeta) {
+      storeEncoder = new BinaryKeyEncoder(lookupMeta, null);
+      storeEncoderMeta = lookupMeta;
+    }
+    storeEncoder.encode(lookupRow);
+
+    // The key values are only needed to evaluate conditions other than equals
+    //
+    Entry entry =
+        data.allEquals ? new Entry(null, null, add) : new Entry(lookupMeta, lookupRow, add);
+    long weight = ENTRY_OVERHEAD + storeEncoder.getLength() + estimateSize(add);
+    if (entry.keyRow != null) {
+      weight += estimateSize(entry.keyRow);
+    }
+    cache.put(
+        storeEncoder.getKey(),
+        storeEncoder.getLength(),
+        storeEncoder.getHash(),
+        entry,
+        weight,
+        timeToLiveMs);
+  }
+
+  /**
+   * Estimate the number of bytes used on the heap by a row of values.
+   *
+   * @param row the row
+   * @return the estimated size in bytes
+   */
+  static long estimateSize(Object[] row) {
+    if (row == null) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for (Object value : row) {
+      if (value == null) {
+        continue;
       }
-      for (int k = 0; k < keys.size(); k += incr) {
-        RowMetaAndData key = keys.get(k);
-        TimedRow timedRow = map.get(key);
-        samples.add(timedRow.getLogDate());
+      if (value instanceof String) {
+        size += 40L + 2L * ((String) value).length();
+      } else if (value instanceof byte[]) {
+        size += 16L + ((byte[]) value).length;
+      } else if (value instanceof BigDecimal) {
+        size += 32L + ((BigDecimal) value).precision() / 2;
+      } else if (value instanceof Date) {
+        size += 32L;
+      } else {
+        size += 24L;
       }
+    }
+    return size;
+  }
 
-      Collections.sort(samples);
+  /**
+   * Gets the number of rows in the cache
+   *
+   * @return the number of rows
+   */
+  public int getSize() {
+    return cache.getSize();
+  }
 
-      if (samples.size() > 1) {
-        Date smallest = samples.get(1);
+  /**
+   * Gets the estimated number of bytes used by the rows in the cache
+   *
+   * @return the estimated memory in bytes
+   */
+  public long getMemory() {
+    return cache.getWeight();
+  }
 
-        // Everything below the smallest date goes away...
-        for (RowMetaAndData key : keys) {
-          TimedRow timedRow = map.get(key);
+  /**
+   * Gets the number of lookups which found their key in the cache
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return cache.getHits();
+  }
 
-          if (timedRow.getLogDate().compareTo(smallest) < 0) {
-            map.remove(key);
-          }
-        }
-      }
+  /**
+   * Gets the number of lookups which didn't find their key in the cache
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return cache.getMisses();
+  }
+
+  /**
+   * Gets the number of rows removed from the cache to stay within its limits
+   *
+   * @return value of evictions
+   */
+  public long getEvictions() {
+    return cache.getEvictions();
+  }
+
+  /**
+   * Gets the number of not found keys removed from the cache because they expired
+   *
+   * @return value of expirations
+   */
+  public long getExpirations() {
+    return cache.getExpirations();
+  }
+
+  private static final class Entry {
+    private final IRowMeta keyMeta;
+    private final Object[] keyRow;
+    private final Object[] add;
+
+    private Entry(IRowMeta keyMeta, Object[] keyRow, Object[] add) {
+      this.keyMeta = keyMeta;
+      this.keyRow = keyRow;
+      this.add = add;
     }
   }
 }
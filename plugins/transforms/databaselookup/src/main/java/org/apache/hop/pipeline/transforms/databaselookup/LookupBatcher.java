@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup;
+
+import org.apache.hop.core.RowMetaAndData;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up the keys of many rows with a single query. Rows which aren't resolved from the cache
+ * are collected until a batch of distinct keys is complete. The batch is then queried on a worker
+ * thread while the next rows keep coming in, with a maximum number of batches in flight. The rows
+ * are handed back in the order in which they were added.
+ *
+ * <p>Only the queries run on the worker threads. The results are resolved and the rows are handled
+ * on the thread calling this class, which is not thread-safe.
+ */
+public class LookupBatcher {
+
+  /** Queries the rows for a batch of keys. This is called from a worker thread. */
+  public interface IBatchQuery {
+    /**
+     * @param keys the distinct keys of the batch, in the order of the lookup row metadata
+     * @return the key values followed by the return values of all the rows found
+     * @throws HopException in case the query fails
+     */
+    BatchResult query(List<Object[]> keys) throws HopException;
+  }
+
+  /** Receives the rows in the order in which they were added. */
+  public interface IRowHandler {
+    /**
+     * @param row the input row
+     * @param lookupRow the lookup key values
+     * @param add the return values or null if nothing was found
+     * @param cacheHit true if the row was resolved from the cache before it was added
+     * @param returnRowMeta the metadata of the return values as returned by the database, null
+     *     for cache hits
+     * @throws HopException in case something goes wrong handling the row
+     */
+    void handleRow(
+        Object[] row, Object[] lookupRow, Object[] add, boolean cacheHit, IRowMeta returnRowMeta)
+        throws HopException;
+
+    /**
+     * @param row the input row for which the lookup failed
+     * @param e the reason of the failure
+     * @throws HopException in case the error can't be handled
+     */
+    void handleError(Object[] row, HopException e) throws HopException;
+  }
+
+  /** The rows returned by a batch query */
+  public static class BatchResult {
+    private final IRowMeta rowMeta;
+    private final List<Object[]> rows;
+
+    public BatchResult(IRowMeta rowMeta, List<Object[]> rows) {
+      this.rowMeta = rowMeta;
+      this.rows = rows;
+    }
+
+    public IRowMeta getRowMeta() {
+      return rowMeta;
+    }
+
+    public List<Object[]> getRows() {
+      return rows;
+    }
+  }
+
+  private static class Batch {
+    private final List<Object[]> keys = new ArrayList<>();
+    private final List<RowMetaAndData> lookupKeys = new ArrayList<>();
+    private Future<BatchResult> future;
+    private boolean resolved;
+    private Map<RowMetaAndData, Object[]> found;
+    private Set<RowMetaAndData> duplicates;
+    private IRowMeta returnRowMeta;
+    private HopException error;
+    private int pendingRows;
+  }
+
+  private static class PendingRow {
+    private final Object[] row;
+    private final Object[] lookupRow;
+    private final Object[] add;
+    private RowMetaAndData key;
+    private Batch batch;
+
+    private PendingRow(Object[] row, Object[] lookupRow, Object[] add) {
+      this.row = row;
+      this.lookupRow = lookupRow;
+      this.add = add;
+    }
+  }
+
+  private final IRowMeta keyMeta;
+  private final int batchSize;
+  private final int batchesInFlight;
+  private final int maxPendingRows;
+  private final boolean failingOnMultipleResults;
+  private final IBatchQuery query;
+  private final IRowHandler handler;
+  private final ExecutorService executor;
+
+  private final ArrayDeque<PendingRow> pendingRows = new ArrayDeque<>();
+  private final Map<RowMetaAndData, Batch> pendingKeys = new HashMap<>();
+  private final List<Batch> inFlight = new ArrayList<>();
+  private Batch current;
+
+  /**
+   * @param keyMeta the metadata of the lookup keys
+   * @param batchSize the maximum number of distinct keys in a batch
+   * @param batchesInFlight the maximum number of batches queried at the same time
+   * @param failingOnMultipleResults true to fail the rows for which more than one row is found
+   * @param query the query to run for every batch
+   * @param handler the handler receiving the rows in order
+   * @param threadName the name of the worker threads
+   */
+  public LookupBatcher(
+      IRowMeta keyMeta,
+      int batchSize,
+      int batchesInFlight,
+      boolean failingOnMultipleResults,
+      IBatchQuery query,
+      IRowHandler handler,
+      String threadName) {
+    this.keyMeta = keyMeta;
+    this.batchSize = Math.max(1, batchSize);
+    this.batchesInFlight = Math.max(1, batchesInFlight);
+    // Cache hits pile up behind a batch which is being filled: don't let them pile up forever
+    //
+    this.maxPendingRows = this.batchSize * (this.batchesInFlight + 1) * 4;
+    this.failingOnMultipleResults = failingOnMultipleResults;
+    this.query = query;
+    this.handler = handler;
+
+    AtomicInteger threadNr = new AtomicInteger();
+    this.executor =
+        Executors.newFixedThreadPool(
+            this.batchesInFlight,
+            r -> {
+              Thread thread = new Thread(r, threadName + " - " + threadNr.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Add a row to look up.
+   *
+   * @param row the input row
+   * @param lookupRow the lookup key values
+   * @param add the values found in the cache or null if the keys need to be looked up
+   * @throws HopException in case the handler fails to handle a row
+   */
+  public void addRow(Object[] row, Object[] lookupRow, Object[] add) throws HopException {
+    PendingRow pendingRow = new PendingRow(row, lookupRow, add);
+    if (add == null) {
+      RowMetaAndData key = new RowMetaAndData(keyMeta, lookupRow);
+      Batch batch = pendingKeys.get(key);
+      if (batch == null) {
+        if (current == null) {
+          current = new Batch();
+        }
+        batch = current;
+        batch.keys.add(lookupRow);
+        batch.lookupKeys.add(key);
+        pendingKeys.put(key, batch);
+      }
+      batch.pendingRows++;
+      pendingRow.key = key;
+      pendingRow.batch = batch;
+    }
+    pendingRows.add(pendingRow);
+
+    if (current != null && current.keys.size() >= batchSize) {
+      submitCurrent();
+    }
+    while (handleNextRow(false)) {
+      // Pass on all rows which are ready
+    }
+    while (pendingRows.size() > maxPendingRows) {
+      handleNextRow(true);
+    }
+  }
+
+  /**
+   * Query the remaining keys and pass all the rows to the handler
+   *
+   * @throws HopException in case the handler fails to handle a row
+   */
+  public void flush() throws HopException {
+    while (handleNextRow(true)) {
+      // Wait for every batch in turn
+    }
+  }
+
+  /** Stop the worker threads, interrupting the queries which are still running. */
+  public void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the number of rows which are waiting to be handled
+   *
+   * @return the number of pending rows
+   */
+  public int getPendingRowCount() {
+    return pendingRows.size();
+  }
+
+  private boolean handleNextRow(boolean wait) throws HopException {
+    PendingRow pendingRow = pendingRows.peek();
+    if (pendingRow == null) {
+      return false;
+    }
+    Batch batch = pendingRow.batch;
+    if (batch == null) {
+      pendingRows.poll();
+      handler.handleRow(pendingRow.row, pendingRow.lookupRow, pendingRow.add, true, null);
+      return true;
+    }
+
+    if (!batch.resolved) {
+      if (!wait && (batch.future == null || !batch.future.isDone())) {
+        return false;
+      }
+      if (batch.future == null) {
+        submitCurrent();
+      }
+      resolve(batch);
+    }
+
+    pendingRows.poll();
+    batch.pendingRows--;
+    if (batch.pendingRows == 0) {
+      // No row can join this batch anymore
+      //
+      for (RowMetaAndData key : batch.lookupKeys) {
+        pendingKeys.remove(key, batch);
+      }
+    }
+
+    if (batch.error != null) {
+      handler.handleError(pendingRow.row, batch.error);
+    } else if (failingOnMultipleResults && batch.duplicates.contains(pendingRow.key)) {
+      handler.handleError(
+          pendingRow.row,
+          new HopDatabaseException(
+              "Only 1 row was expected as a result of a lookup, and at least 2 were found!"));
+    } else {
+      Object[] add = batch.found.get(pendingRow.key);
+      // Every row gets its own copy as the values are converted in place
+      //
+      handler.handleRow(
+          pendingRow.row,
+          pendingRow.lookupRow,
+          add == null ? null : add.clone(),
+          false,
+          batch.returnRowMeta);
+    }
+    return true;
+  }
+
+  private void submitCurrent() throws HopException {
+    Batch batch = current;
+    if (batch == null) {
+      return;
+    }
+    current = null;
+
+    inFlight.removeIf(b -> b.future.isDone());
+    while (inFlight.size() >= batchesInFlight) {
+      waitFor(inFlight.get(0));
+      inFlight.removeIf(b -> b.future.isDone());
+    }
+
+    List<Object[]> keys = batch.keys;
+    batch.future = executor.submit(() -> query.query(keys));
+    inFlight.add(batch);
+  }
+
+  private void waitFor(Batch batch) throws HopException {
+    try {
+      batch.future.get();
+    } catch (ExecutionException e) {
+      // The error is passed on with the rows of the batch
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while waiting for a lookup query", e);
+    }
+  }
+
+  private void resolve(Batch batch) throws HopException {
+    batch.resolved = true;
+    try {
+      BatchResult result = batch.future.get();
+      IRowMeta rowMeta = result.getRowMeta();
+      int keyCount = keyMeta.size();
+
+      batch.returnRowMeta = new RowMeta();
+      for (int i = keyCount; i < rowMeta.size(); i++) {
+        batch.returnRowMeta.addValueMeta(rowMeta.getValueMeta(i));
+      }
+
+      batch.found = new LinkedHashMap<>();
+      batch.duplicates = new HashSet<>();
+      for (Object[] row : result.getRows()) {
+        Object[] key = new Object[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+          IValueMeta expected = keyMeta.getValueMeta(i);
+          IValueMeta returned = rowMeta.getValueMeta(i);
+          key[i] =
+              expected.getType() == returned.getType()
+                  ? row[i]
+                  : expected.convertData(returned, row[i]);
+        }
+        RowMetaAndData lookupKey = new RowMetaAndData(keyMeta, key);
+        // Like a single row lookup, the first row found wins
+        //
+        if (batch.found.putIfAbsent(lookupKey, Arrays.copyOfRange(row, keyCount, rowMeta.size()))
+            != null) {
+          batch.duplicates.add(lookupKey);
+        }
+      }
+      matchByComparison(batch);
+    } catch (ExecutionException e) {
+      batch.error =
+          e.getCause() instanceof HopException
+              ? (HopException) e.getCause()
+              : new HopException("Error looking up a batch of rows", e.getCause());
+    } catch (HopException e) {
+      batch.error = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while waiting for a lookup query", e);
+    }
+  }
+
+  /**
+   * Keys which are equal for the key metadata can still have a different hash code, for example
+   * strings compared case insensitive or big numbers with another scale. Match the keys of the
+   * batch which weren't found by comparing them with the returned keys which weren't matched yet,
+   * like the database did.
+   */
+  private void matchByComparison(Batch batch) throws HopException {
+    List<RowMetaAndData> missing = new ArrayList<>();
+    Set<RowMetaAndData> unmatched = new LinkedHashSet<>(batch.found.keySet());
+    for (RowMetaAndData key : batch.lookupKeys) {
+      if (batch.found.containsKey(key)) {
+        unmatched.remove(key);
+      } else {
+        missing.add(key);
+      }
+    }
+    if (missing.isEmpty() || unmatched.isEmpty()) {
+      return;
+    }
+
+    // The returned keys are in the order of the result: the first row found still wins
+    //
+    for (RowMetaAndData key : missing) {
+      for (RowMetaAndData returnedKey : unmatched) {
+        if (keyMeta.compare(key.getData(), returnedKey.getData()) != 0) {
+          continue;
+        }
+        if (batch.found.putIfAbsent(key, batch.found.get(returnedKey)) != null
+            || batch.duplicates.contains(returnedKey)) {
+          batch.duplicates.add(key);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.metadata.cache.LookupCacheData;
+
+import java.util.Arrays;
+
+/**
+ * The cache of the {@linkplain DatabaseLookup} transform when it uses a lookup cache shared with
+ * other pipelines. Only lookups where all the keys are compared with "=" can use it. The rows are
+ * shared, so a copy of the values is handed out. Keys which weren't found in the table aren't
+ * stored: another pipeline might add them.
+ */
+public class SharedCache implements DatabaseLookupData.ICache {
+
+  private final LookupCacheData cacheData;
+
+  private BinaryKeyEncoder encoder;
+  private IRowMeta encoderMeta;
+
+  private long hits;
+  private long misses;
+
+  public SharedCache(LookupCacheData cacheData) {
+    this.cacheData = cacheData;
+  }
+
+  @Override
+  public Object[] getRowFromCache(IRowMeta lookupMeta, Object[] lookupRow) throws HopException {
+    Object[] add = cacheData.get(getEncoder(lookupMeta), lookupRow);
+    if (add == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return Arrays.copyOf(add, add.length);
+  }
+
+  @Override
+  public void storeRowInCache(
+      DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add)
+      throws HopException {
+    cacheData.put(getEncoder(lookupMeta), lookupRow, Arrays.copyOf(add, add.length));
+  }
+
+  @Override
+  public void storeNotFoundInCache(
+      DatabaseLookupMeta meta, IRowMeta lookupMeta, Object[] lookupRow, Object[] add) {
+    // Not found keys stay private to the pipeline
+  }
+
+  private BinaryKeyEncoder getEncoder(IRowMeta lookupMeta) {
+    if (encoder == null || encoderMeta != lookupMeta) {
+      encoder = new BinaryKeyEncoder(lookupMeta, null);
+      encoderMeta = lookupMeta;
+    }
+    return encoder;
+  }
+
+  /**
+   * See if all the rows of the table are in the shared cache.
+   *
+   * @return true if the data is complete
+   */
+  public boolean isComplete() {
+    return cacheData.isComplete();
+  }
+
+  /**
+   * Gets the shared data
+   *
+   * @return value of cacheData
+   */
+  public LookupCacheData getCacheData() {
+    return cacheData;
+  }
+
+  /**
+   * Gets the number of lookups of this transform which found their key in the cache
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups of this transform which didn't find their key in the cache
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return misses;
+  }
+}
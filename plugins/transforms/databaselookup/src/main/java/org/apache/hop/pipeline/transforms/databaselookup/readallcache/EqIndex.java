@@ -17,11 +17,13 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
-import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.BitSet;
-
+/**
+ * Finds equal (or non-equal) values. Next to the sorted rows it keeps a hash table with the first
+ * position of every distinct value, so that most lookups don't need a binary search.
+ */
 class EqIndex extends Index {
 
   static Index nonEqualityIndex(int column, IValueMeta valueMeta, int rowsAmount) {
@@ -30,6 +32,9 @@ class EqIndex extends Index {
 
   private final boolean isMatchingNonEquality;
 
+  // open addressing, the first position of a distinct value plus one: 0 is an empty slot
+  private int[] slots;
+
   EqIndex(int column, IValueMeta valueMeta, int rowsAmount) {
     this(column, valueMeta, rowsAmount, false);
   }
@@ -40,33 +45,74 @@ class EqIndex extends Index {
   }
 
   @Override
-  void doApply(SearchingContext context, IValueMeta lookupMeta, Object lookupValue)
-      throws HopException {
-    int firstValue = findInsertionPointOf(new IndexedValue(lookupValue, -1));
-    final int length = values.length;
-    if (firstValue == length || valueMeta.compare(values[firstValue].key, lookupValue) != 0) {
-      // nothing was found
-      if (isMatchingNonEquality) {
-        // everything is acceptable, just do nothing
-        return;
+  void performIndexingOf(KeyColumn keys) {
+    super.performIndexingOf(keys);
+
+    int distinct = 0;
+    for (int i = 0; i < rows.length; i++) {
+      if (isFirstOfValue(i)) {
+        distinct++;
       }
-      context.setEmpty();
-    } else {
-      BitSet bitSet = context.getWorkingSet();
-      bitSet.set(values[firstValue].row, true);
-      int lastValue = firstValue + 1;
-      while (lastValue != length && valueMeta.compare(values[lastValue].key, lookupValue) == 0) {
-        bitSet.set(values[lastValue].row, true);
-        lastValue++;
+    }
+    int capacity = Integer.highestOneBit(Math.max(distinct, 1) * 2 - 1) << 1;
+    slots = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < rows.length; i++) {
+      if (isFirstOfValue(i)) {
+        int slot = keys.hash(rows[i]) & mask;
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = i + 1;
       }
+    }
+  }
 
-      context.intersect(bitSet, isMatchingNonEquality);
+  private boolean isFirstOfValue(int position) {
+    try {
+      return position == 0 || keys.compare(rows[position - 1], rows[position]) != 0;
+    } catch (HopValueException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  void findRange(Object lookupValue, Range range) throws HopValueException {
+    int firstValue = findFirstPositionOf(lookupValue);
+    if (firstValue < 0) {
+      // nothing was found, which is everything for "!="
+      range.set(0, 0, isMatchingNonEquality);
+      return;
+    }
+    int lastValue = firstValue + 1;
+    while (lastValue != rows.length && keys.compareTo(rows[lastValue], lookupValue) == 0) {
+      lastValue++;
+    }
+    range.set(firstValue, lastValue, isMatchingNonEquality);
+  }
+
+  private int findFirstPositionOf(Object lookupValue) throws HopValueException {
+    if (keys.isHashable(lookupValue)) {
+      int mask = slots.length - 1;
+      int slot = keys.hashOf(lookupValue) & mask;
+      while (slots[slot] != 0) {
+        int position = slots[slot] - 1;
+        if (keys.compareTo(rows[position], lookupValue) == 0) {
+          return position;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+    int position = lowerBound(lookupValue);
+    if (position == rows.length || keys.compareTo(rows[position], lookupValue) != 0) {
+      return -1;
     }
+    return position;
   }
 
   @Override
-  int getRestrictionPower() {
-    // "==" is a good restriction, whereas "!=" is quite weak
-    return isMatchingNonEquality ? Short.MAX_VALUE : Short.MIN_VALUE;
+  boolean matches(int row, Object lookupValue) throws HopValueException {
+    return (keys.compareTo(row, lookupValue) == 0) != isMatchingNonEquality;
   }
 }
@@ -17,10 +17,9 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.BitSet;
-
 class GtIndex extends Index {
 
   static Index lessOrEqualCache(int column, IValueMeta valueMeta, int rowsAmount) {
@@ -39,39 +38,17 @@ class GtIndex extends Index {
   }
 
   @Override
-  void doApply(SearchingContext context, IValueMeta lookupMeta, Object lookupValue) {
-    int firstValue = findInsertionPointOf(new IndexedValue(lookupValue, Integer.MAX_VALUE));
-    final int length = values.length;
-    if (firstValue == length) {
-      // everything is less than lookupValue
-      if (isMatchingLessOrEqual) {
-        // then do nothing
-        return;
-      }
-      context.setEmpty();
+  void findRange(Object lookupValue, Range range) throws HopValueException {
+    int firstValue = upperBound(lookupValue);
+    if (isMatchingLessOrEqual) {
+      range.set(0, firstValue, false);
     } else {
-      BitSet bitSet = context.getWorkingSet();
-
-      int start;
-      int end;
-      if (firstValue < length / 2) {
-        start = 0;
-        end = firstValue;
-      } else {
-        start = firstValue;
-        end = length;
-      }
-
-      for (int i = start; i < end; i++) {
-        bitSet.set(values[i].row, true);
-      }
-
-      context.intersect(bitSet, (start == 0) ^ isMatchingLessOrEqual);
+      range.set(firstValue, rows.length, false);
     }
   }
 
   @Override
-  int getRestrictionPower() {
-    return -1000;
+  boolean matches(int row, Object lookupValue) throws HopValueException {
+    return (keys.compareTo(row, lookupValue) > 0) != isMatchingLessOrEqual;
   }
 }
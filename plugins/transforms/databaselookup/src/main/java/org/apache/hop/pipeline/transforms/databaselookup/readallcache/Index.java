@@ -17,108 +17,153 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
-import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.Arrays;
-import java.util.Comparator;
-
+/**
+ * An index on one key column of the {@linkplain ReadAllCache}. It holds the row numbers sorted by
+ * the values of the column, rows with equal values in their original order. The rows matching a
+ * condition are a range of positions in that order, see {@link Range}.
+ */
 abstract class Index {
 
   final int column;
   final IValueMeta valueMeta;
-  final IndexedValue[] values;
+  final int[] rows;
+
+  KeyColumn keys;
 
   Index(int column, IValueMeta valueMeta, int rowsAmount) {
     this.column = column;
     this.valueMeta = valueMeta;
-    this.values = new IndexedValue[rowsAmount];
+    this.rows = new int[rowsAmount];
   }
 
-  Comparator<IndexedValue> createComparator() {
-    return new IndexValueComparator(valueMeta);
+  void performIndexingOf(Object[][] rows) {
+    try {
+      performIndexingOf(KeyColumn.of(valueMeta, rows, column));
+    } catch (HopValueException e) {
+      throw new RuntimeException(e);
+    }
   }
 
-  void performIndexingOf(Object[][] rows) {
-    for (int i = 0, len = rows.length; i < len; i++) {
-      values[i] = new IndexedValue(rows[i][column], i);
+  void performIndexingOf(KeyColumn keys) {
+    this.keys = keys;
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = i;
+    }
+    // sort the row numbers using meta to compare, the sort is stable
+    RowSorter.sort(
+        rows,
+        (row1, row2) -> {
+          try {
+            return keys.compare(row1, row2);
+          } catch (HopValueException e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  /**
+   * Performs binary search algorithm looking for the first position with a value greater than or
+   * equal to {@code value}
+   *
+   * @param value value to look for
+   * @return the position, the number of rows if all values are less than {@code value}
+   */
+  int lowerBound(Object value) throws HopValueException {
+    int low = 0;
+    int high = rows.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys.compareTo(rows[middle], value) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
     }
-    // sort values using meta to compare and row number as seconds dimension
-    Arrays.sort(values, createComparator());
+    return low;
   }
 
   /**
-   * Performs binary search algorithm looking for {@code value} in the sorted array and returns
-   * decoded index of insertion (decoded index returned by Arrays.binarySearch())
+   * Performs binary search algorithm looking for the first position with a value greater than
+   * {@code value}
    *
    * @param value value to look for
-   * @return decoded index
+   * @return the position, the number of rows if no value is greater than {@code value}
    */
-  int findInsertionPointOf(IndexedValue value) {
-    int index = Arrays.binarySearch(values, value, createComparator());
-    // index == ( -insertion_point - 1)
-    return -(index + 1);
+  int upperBound(Object value) throws HopValueException {
+    int low = 0;
+    int high = rows.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys.compareTo(rows[middle], value) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
   }
 
   public int getColumn() {
     return column;
   }
 
-  public void applyRestrictionsTo(
-      SearchingContext context, IValueMeta lookupMeta, Object lookupValue) {
-    try {
-      doApply(context, lookupMeta, lookupValue);
-    } catch (HopException e) {
-      throw new RuntimeException(e);
-    }
+  /**
+   * @param position a position in the index
+   * @return the number of the row at the position
+   */
+  int getRow(int position) {
+    return rows[position];
   }
 
-  abstract void doApply(SearchingContext context, IValueMeta lookupMeta, Object lookupValue)
-      throws HopException;
+  /** @return the number of rows */
+  int size() {
+    return rows.length;
+  }
 
   /**
-   * Return the "anti-strength" of the restriction of the index. It is a heuristic weight of the
-   * restriction, needed to push more "powerful" filters before less "powerful" to cut as much
-   * values as possible at the beginning.
+   * Finds the positions of the rows matching the lookup value.
    *
-   * @return integer number, the less it is, the more "powerful" restriction is presumed to be
+   * @param lookupValue the lookup value, ignored by IS (NOT) NULL
+   * @param range receives the matching positions
+   * @throws HopValueException in case the values can't be compared
    */
-  abstract int getRestrictionPower();
-
-  static Comparator<Index> restrictionComparator() {
-    return (o1, o2) -> Integer.compare(o1.getRestrictionPower(), o2.getRestrictionPower());
-  }
-
-  static class IndexedValue {
-    final Object key;
-    final int row;
+  abstract void findRange(Object lookupValue, Range range) throws HopValueException;
 
-    public IndexedValue(Object key, int row) {
-      this.key = key;
-      this.row = row;
+  /**
+   * Checks if the value of a single row matches the lookup value.
+   *
+   * @param row the row number
+   * @param lookupValue the lookup value, ignored by IS (NOT) NULL
+   * @return true if the row matches
+   * @throws HopValueException in case the values can't be compared
+   */
+  abstract boolean matches(int row, Object lookupValue) throws HopValueException;
+
+  /** The positions from (inclusive) to (exclusive) in an index, or all others if inverse */
+  static final class Range {
+    int from;
+    int to;
+    boolean inverse;
+
+    void set(int from, int to, boolean inverse) {
+      this.from = from;
+      this.to = to;
+      this.inverse = inverse;
     }
-  }
 
-  static class IndexValueComparator implements Comparator<IndexedValue> {
-
-    private final IValueMeta meta;
-
-    public IndexValueComparator(IValueMeta meta) {
-      this.meta = meta;
+    boolean contains(int position) {
+      return (position >= from && position < to) != inverse;
     }
 
-    @Override
-    public int compare(IndexedValue o1, IndexedValue o2) {
-      // does not expect nulls here!
-      int c;
-      try {
-        c = meta.compare(o1.key, o2.key);
-      } catch (HopValueException e) {
-        throw new RuntimeException(e);
-      }
-
-      return (c == 0) ? Integer.compare(o1.row, o2.row) : c;
+    /**
+     * @param size the number of rows in the index
+     * @return the number of matching positions
+     */
+    int getCount(int size) {
+      return inverse ? size - (to - from) : to - from;
     }
   }
 }
@@ -17,93 +17,48 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
-import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.BitSet;
-import java.util.Comparator;
-
-class IsNullIndex extends Index implements Comparator<Index.IndexedValue> {
+class IsNullIndex extends Index {
 
   private final boolean isMatchingNull;
 
+  private int nullsAmount;
+
   IsNullIndex(int column, IValueMeta valueMeta, int rowsAmount, boolean isMatchingNull) {
     super(column, valueMeta, rowsAmount);
     this.isMatchingNull = isMatchingNull;
   }
 
   @Override
-  Comparator<IndexedValue> createComparator() {
-    return this;
-  }
-
-  @Override
-  void doApply(SearchingContext context, IValueMeta lookupMeta, Object lookupValue)
-      throws HopException {
-    int artificialRow = isMatchingNull ? Integer.MAX_VALUE : -1;
-
-    int afterLastValue = findInsertionPointOf(new IndexedValue(null, artificialRow));
-    if (afterLastValue == 0) {
-      // no matching values
-      context.setEmpty();
-    } else {
-      int length = values.length;
-
-      int start;
-      int end;
-      if (afterLastValue < length / 2) {
-        start = 0;
-        end = afterLastValue;
-      } else {
-        start = afterLastValue;
-        end = length;
+  void performIndexingOf(KeyColumn keys) {
+    this.keys = keys;
+    // the rows with nulls first, then the others, in their original order
+    nullsAmount = 0;
+    for (int row = 0; row < rows.length; row++) {
+      if (keys.isNull(row)) {
+        rows[nullsAmount++] = row;
       }
-
-      BitSet bitSet = context.getWorkingSet();
-      for (int i = start; i < end; i++) {
-        bitSet.set(values[i].row, true);
+    }
+    int position = nullsAmount;
+    for (int row = 0; row < rows.length; row++) {
+      if (!keys.isNull(row)) {
+        rows[position++] = row;
       }
-
-      context.intersect(bitSet, (start != 0));
     }
   }
 
   @Override
-  int getRestrictionPower() {
-    return isMatchingNull ? Byte.MIN_VALUE : Byte.MAX_VALUE;
+  void findRange(Object lookupValue, Range range) {
+    if (isMatchingNull) {
+      range.set(0, nullsAmount, false);
+    } else {
+      range.set(nullsAmount, rows.length, false);
+    }
   }
 
   @Override
-  public int compare(IndexedValue o1, IndexedValue o2) {
-    // to unify doApply() routing for both cases, the order depends on isMatchingNull:
-    //   isMatchingNull == true  --> nulls are first
-    //   isMatchingNull == false --> nulls are last
-    // regardless the flag's value, rows' order is kept
-    try {
-      boolean null1 = valueMeta.isNull(o1.key);
-      boolean null2 = valueMeta.isNull(o2.key);
-
-      int c;
-      if (null1) {
-        if (null2) {
-          c = 0;
-        } else {
-          c = -1;
-        }
-      } else {
-        if (null2) {
-          c = 1;
-        } else {
-          c = 0;
-        }
-      }
-      if (c == 0) {
-        return Integer.compare(o1.row, o2.row);
-      } else {
-        return isMatchingNull ? c : -c;
-      }
-    } catch (HopException e) {
-      throw new RuntimeException(e);
-    }
+  boolean matches(int row, Object lookupValue) {
+    return keys.isNull(row) == isMatchingNull;
   }
 }
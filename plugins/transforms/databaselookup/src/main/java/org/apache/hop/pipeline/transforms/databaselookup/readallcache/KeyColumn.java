@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
+
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IValueMeta;
+
+import java.util.BitSet;
+import java.util.Date;
+
+/**
+ * The values of one key column of the {@linkplain ReadAllCache}. Integers, numbers and dates are
+ * stored in primitive arrays when the column is compared in the natural order, all other values are
+ * kept as objects. Comparisons follow {@link IValueMeta#compare(Object, Object)}, so null values
+ * come first.
+ */
+abstract class KeyColumn {
+
+  final IValueMeta valueMeta;
+
+  KeyColumn(IValueMeta valueMeta) {
+    this.valueMeta = valueMeta;
+  }
+
+  /**
+   * Creates a column with the values at position {@code column} of the given rows.
+   *
+   * @param valueMeta the meta of the column
+   * @param rows the rows
+   * @param column the index of the column in the rows
+   * @return the column
+   * @throws HopValueException in case a value can't be checked for null
+   */
+  static KeyColumn of(IValueMeta valueMeta, Object[][] rows, int column)
+      throws HopValueException {
+    if (valueMeta.isStorageNormal() && !valueMeta.isSortedDescending()) {
+      switch (valueMeta.getType()) {
+        case IValueMeta.TYPE_INTEGER:
+          if (allInstancesOf(rows, column, Long.class)) {
+            return new LongColumn(valueMeta, rows, column);
+          }
+          break;
+        case IValueMeta.TYPE_DATE:
+          if (allInstancesOf(rows, column, Date.class)) {
+            return new DateColumn(valueMeta, rows, column);
+          }
+          break;
+        case IValueMeta.TYPE_NUMBER:
+          if (allInstancesOf(rows, column, Double.class)) {
+            return new DoubleColumn(valueMeta, rows, column);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return new ObjectColumn(valueMeta, rows, column);
+  }
+
+  private static boolean allInstancesOf(Object[][] rows, int column, Class<?> clazz) {
+    for (Object[] row : rows) {
+      Object value = row[column];
+      if (value != null && !clazz.isInstance(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the number of rows */
+  abstract int size();
+
+  abstract boolean isNull(int row);
+
+  /** @return the value of a row, a new object for the primitive columns */
+  abstract Object getValue(int row);
+
+  /** Compares the values of two rows */
+  abstract int compare(int row1, int row2) throws HopValueException;
+
+  /** Compares the value of a row with a lookup value */
+  abstract int compareTo(int row, Object value) throws HopValueException;
+
+  /**
+   * Checks if a lookup value can be found with {@link #hash(int)} and {@link #hashOf(Object)}.
+   *
+   * @param value the lookup value
+   * @return true if equal values are guaranteed to have the same hash
+   */
+  abstract boolean isHashable(Object value);
+
+  /** @return the hash of the value of a row, 0 for null values */
+  abstract int hash(int row);
+
+  /** @return the hash of a lookup value, only valid if {@link #isHashable(Object)} */
+  abstract int hashOf(Object value);
+
+  static int hashLong(long value) {
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** Integers or dates as longs, with a bit set for the null values */
+  private abstract static class PrimitiveColumn extends KeyColumn {
+    final long[] values;
+    final BitSet nulls;
+
+    PrimitiveColumn(IValueMeta valueMeta, Object[][] rows, int column) {
+      super(valueMeta);
+      values = new long[rows.length];
+      nulls = new BitSet();
+      for (int i = 0; i < rows.length; i++) {
+        Object value = rows[i][column];
+        if (value == null) {
+          nulls.set(i);
+        } else {
+          values[i] = toLong(value);
+        }
+      }
+    }
+
+    abstract long toLong(Object value);
+
+    abstract int compareLongs(long value1, long value2);
+
+    @Override
+    int size() {
+      return values.length;
+    }
+
+    @Override
+    boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    @Override
+    int compare(int row1, int row2) {
+      boolean null1 = nulls.get(row1);
+      boolean null2 = nulls.get(row2);
+      if (null1 || null2) {
+        return Boolean.compare(null2, null1);
+      }
+      return compareLongs(values[row1], values[row2]);
+    }
+
+    @Override
+    int compareTo(int row, Object value) throws HopValueException {
+      if (!isHashable(value)) {
+        return valueMeta.compare(getValue(row), value);
+      }
+      boolean null1 = nulls.get(row);
+      boolean null2 = value == null;
+      if (null1 || null2) {
+        return Boolean.compare(null2, null1);
+      }
+      return compareLongs(values[row], toLong(value));
+    }
+
+    @Override
+    int hash(int row) {
+      return nulls.get(row) ? 0 : hashLong(values[row]);
+    }
+
+    @Override
+    int hashOf(Object value) {
+      return value == null ? 0 : hashLong(toLong(value));
+    }
+  }
+
+  private static final class LongColumn extends PrimitiveColumn {
+    LongColumn(IValueMeta valueMeta, Object[][] rows, int column) {
+      super(valueMeta, rows, column);
+    }
+
+    @Override
+    long toLong(Object value) {
+      return (Long) value;
+    }
+
+    @Override
+    int compareLongs(long value1, long value2) {
+      return Long.compare(value1, value2);
+    }
+
+    @Override
+    Object getValue(int row) {
+      return nulls.get(row) ? null : values[row];
+    }
+
+    @Override
+    boolean isHashable(Object value) {
+      return value == null || value instanceof Long;
+    }
+  }
+
+  private static final class DateColumn extends PrimitiveColumn {
+    DateColumn(IValueMeta valueMeta, Object[][] rows, int column) {
+      super(valueMeta, rows, column);
+    }
+
+    @Override
+    long toLong(Object value) {
+      return ((Date) value).getTime();
+    }
+
+    @Override
+    int compareLongs(long value1, long value2) {
+      return Long.compare(value1, value2);
+    }
+
+    @Override
+    Object getValue(int row) {
+      return nulls.get(row) ? null : new Date(values[row]);
+    }
+
+    @Override
+    boolean isHashable(Object value) {
+      return value == null || value instanceof Date;
+    }
+  }
+
+  /** Numbers are stored as the bits of the doubles, so that they compare like Double.compare() */
+  private static final class DoubleColumn extends PrimitiveColumn {
+    DoubleColumn(IValueMeta valueMeta, Object[][] rows, int column) {
+      super(valueMeta, rows, column);
+    }
+
+    @Override
+    long toLong(Object value) {
+      return Double.doubleToLongBits((Double) value);
+    }
+
+    @Override
+    int compareLongs(long value1, long value2) {
+      return Double.compare(Double.longBitsToDouble(value1), Double.longBitsToDouble(value2));
+    }
+
+    @Override
+    Object getValue(int row) {
+      return nulls.get(row) ? null : Double.longBitsToDouble(values[row]);
+    }
+
+    @Override
+    boolean isHashable(Object value) {
+      return value == null || value instanceof Double;
+    }
+  }
+
+  /** All other values, compared with the value meta */
+  private static final class ObjectColumn extends KeyColumn {
+    private final Object[] values;
+    private final BitSet nulls;
+    private final boolean plainStrings;
+
+    ObjectColumn(IValueMeta valueMeta, Object[][] rows, int column) throws HopValueException {
+      super(valueMeta);
+      values = new Object[rows.length];
+      nulls = new BitSet();
+      boolean strings =
+          valueMeta.getType() == IValueMeta.TYPE_STRING
+              && valueMeta.isStorageNormal()
+              && valueMeta.isCollatorDisabled()
+              && !valueMeta.isCaseInsensitive()
+              && !valueMeta.isIgnoreWhitespace();
+      for (int i = 0; i < rows.length; i++) {
+        Object value = rows[i][column];
+        values[i] = value;
+        if (valueMeta.isNull(value)) {
+          nulls.set(i);
+        } else if (!(value instanceof String)) {
+          strings = false;
+        }
+      }
+      plainStrings = strings;
+    }
+
+    @Override
+    int size() {
+      return values.length;
+    }
+
+    @Override
+    boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    @Override
+    Object getValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    int compare(int row1, int row2) throws HopValueException {
+      return valueMeta.compare(values[row1], values[row2]);
+    }
+
+    @Override
+    int compareTo(int row, Object value) throws HopValueException {
+      return valueMeta.compare(values[row], value);
+    }
+
+    @Override
+    boolean isHashable(Object value) {
+      // Empty strings can be null, so only non-empty strings can be looked up by hash
+      return plainStrings && value instanceof String && !((String) value).isEmpty();
+    }
+
+    @Override
+    int hash(int row) {
+      return nulls.get(row) ? 0 : values[row].hashCode();
+    }
+
+    @Override
+    int hashOf(Object value) {
+      return value.hashCode();
+    }
+  }
+}
@@ -17,10 +17,9 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.BitSet;
-
 class LtIndex extends Index {
 
   static Index greaterOrEqualCache(int column, IValueMeta valueMeta, int rowsAmount) {
@@ -40,38 +39,17 @@ class LtIndex extends Index {
   }
 
   @Override
-  void doApply(SearchingContext context, IValueMeta lookupMeta, Object lookupValue) {
-    int firstValue = findInsertionPointOf(new IndexedValue(lookupValue, -1));
-    if (firstValue == 0) {
-      // everything is greater than lookupValue
-      if (isMatchingGreaterOrEqual) {
-        // then do nothing
-        return;
-      }
-      context.setEmpty();
+  void findRange(Object lookupValue, Range range) throws HopValueException {
+    int firstValue = lowerBound(lookupValue);
+    if (isMatchingGreaterOrEqual) {
+      range.set(firstValue, rows.length, false);
     } else {
-      BitSet bitSet = context.getWorkingSet();
-
-      int start;
-      int end;
-      if (firstValue < values.length / 2) {
-        start = 0;
-        end = firstValue;
-      } else {
-        start = firstValue;
-        end = values.length;
-      }
-
-      for (int i = start; i < end; i++) {
-        bitSet.set(values[i].row, true);
-      }
-
-      context.intersect(bitSet, (start != 0) ^ isMatchingGreaterOrEqual);
+      range.set(0, firstValue, false);
     }
   }
 
   @Override
-  int getRestrictionPower() {
-    return -1000;
+  boolean matches(int row, Object lookupValue) throws HopValueException {
+    return (keys.compareTo(row, lookupValue) < 0) != isMatchingGreaterOrEqual;
   }
 }
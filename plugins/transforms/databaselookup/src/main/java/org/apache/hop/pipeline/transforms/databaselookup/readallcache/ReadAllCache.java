@@ -18,28 +18,35 @@
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.pipeline.transforms.databaselookup.DatabaseLookupData;
 import org.apache.hop.pipeline.transforms.databaselookup.DatabaseLookupMeta;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
 /**
  * This is a read-only array-based cache to be used in {@linkplain
  * org.apache.hop.pipeline.transforms.databaselookup.DatabaseLookup DatabaseLookup} when "Load All
- * Data In ICache" checkbox is selected. Internally, it uses some optimizations to reduce memory
- * consumption.
+ * Data In ICache" checkbox is selected. The keys are stored per column, in primitive arrays where
+ * possible, and every condition gets an index on its column. The columns and indexes are built in
+ * parallel.
  */
 public class ReadAllCache implements DatabaseLookupData.ICache {
 
+  /**
+   * When the most selective index still matches more than this part of the rows, the rows are
+   * scanned in their original order instead, which usually finds the first match much sooner.
+   */
+  private static final int SCAN_FRACTION = 8;
+
   private final DatabaseLookupData transformData;
 
-  private final Object[][] keys;
-  private final IRowMeta keysMeta;
+  private final int rowsAmount;
+  private final KeyColumn[] columns;
 
   private final Object[][] data;
 
@@ -52,67 +59,64 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
   ReadAllCache(
       DatabaseLookupData transformData, Object[][] keys, IRowMeta keysMeta, Object[][] data) {
     this.transformData = transformData;
-    this.keys = keys;
-    this.keysMeta = keysMeta;
+    this.rowsAmount = keys.length;
     this.data = data;
 
-    Object[] pair = createIndexes(transformData, keysMeta, keys);
-    indexes = (Index[]) pair[0];
-    otherConditions = (int[][]) pair[1];
-  }
-
-  private static Object[] createIndexes(
-      DatabaseLookupData transformData, IRowMeta keysMeta, Object[][] keys) {
-    final int rowsAmount = keys.length;
     final int[] conditions = transformData.conditions;
+    this.columns = new KeyColumn[conditions.length];
+    Index[] columnIndexes = new Index[conditions.length];
 
-    // it makes sense to apply restrictions in the specific order, namely, to use those, that can
-    // filter more elements
-    // Index.restrictionComparator() uses heuristic "restriction power" of each index
-    PriorityQueue<Index> indexes =
-        new PriorityQueue<>(conditions.length, Index.restrictionComparator());
-    List<int[]> otherConditions = new ArrayList<>();
-    for (int i = 0, len = conditions.length; i < len; i++) {
-      int condition = conditions[i];
-      Index index = null;
-      switch (condition) {
-        case DatabaseLookupMeta.CONDITION_EQ:
-          index = new EqIndex(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_NE:
-          index = EqIndex.nonEqualityIndex(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_LT:
-          index = new LtIndex(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_LE:
-          index = GtIndex.lessOrEqualCache(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_GT:
-          index = new GtIndex(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_GE:
-          index = LtIndex.greaterOrEqualCache(i, keysMeta.getValueMeta(i), rowsAmount);
-          break;
-        case DatabaseLookupMeta.CONDITION_IS_NULL:
-          index = new IsNullIndex(i, keysMeta.getValueMeta(i), rowsAmount, true);
-          break;
-        case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
-          index = new IsNullIndex(i, keysMeta.getValueMeta(i), rowsAmount, false);
-          break;
-      }
-      if (index == null) {
-        otherConditions.add(new int[] {i, condition});
+    // every column and its index can be built independently
+    IntStream.range(0, conditions.length)
+        .parallel()
+        .forEach(
+            i -> {
+              try {
+                columns[i] = KeyColumn.of(keysMeta.getValueMeta(i), keys, i);
+              } catch (HopValueException e) {
+                throw new RuntimeException(e);
+              }
+              Index index = createIndex(conditions[i], i, keysMeta.getValueMeta(i), keys.length);
+              if (index != null) {
+                index.performIndexingOf(columns[i]);
+                columnIndexes[i] = index;
+              }
+            });
+
+    List<Index> indexList = new ArrayList<>();
+    List<int[]> otherConditionList = new ArrayList<>();
+    for (int i = 0; i < conditions.length; i++) {
+      if (columnIndexes[i] == null) {
+        otherConditionList.add(new int[] {i, conditions[i]});
       } else {
-        index.performIndexingOf(keys);
-        indexes.add(index);
+        indexList.add(columnIndexes[i]);
       }
     }
+    indexes = indexList.toArray(new Index[0]);
+    otherConditions = otherConditionList.toArray(new int[0][]);
+  }
 
-    return new Object[] {
-      indexes.toArray(new Index[indexes.size()]),
-      otherConditions.toArray(new int[otherConditions.size()][])
-    };
+  private static Index createIndex(int condition, int i, IValueMeta valueMeta, int rowsAmount) {
+    switch (condition) {
+      case DatabaseLookupMeta.CONDITION_EQ:
+        return new EqIndex(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_NE:
+        return EqIndex.nonEqualityIndex(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_LT:
+        return new LtIndex(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_LE:
+        return GtIndex.lessOrEqualCache(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_GT:
+        return new GtIndex(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_GE:
+        return LtIndex.greaterOrEqualCache(i, valueMeta, rowsAmount);
+      case DatabaseLookupMeta.CONDITION_IS_NULL:
+        return new IsNullIndex(i, valueMeta, rowsAmount, true);
+      case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
+        return new IsNullIndex(i, valueMeta, rowsAmount, false);
+      default:
+        return null;
+    }
   }
 
   @Override
@@ -123,70 +127,105 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
       return null;
     }
 
-    SearchingContext context = new SearchingContext();
-    context.init(keys.length);
-
-    for (Index index : indexes) {
-      int column = index.getColumn();
+    // it makes sense to start with the index matching the least rows
+    Index.Range best = null;
+    int bestIndex = -1;
+    int bestCount = rowsAmount;
+    Object[] lookupValues = new Object[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      int column = indexes[i].getColumn();
       // IS (NOT) NULL operation does not require second argument
       // hence, lookupValue can be absent
-      // basically, the index ignores both meta and value, so we can pass everything there
-      Object lookupValue = (column < lookupRow.length) ? lookupRow[column] : null;
-      index.applyRestrictionsTo(context, lookupMeta.getValueMeta(column), lookupValue);
-      if (context.isEmpty()) {
+      // basically, the index ignores the value, so we can pass everything there
+      lookupValues[i] = (column < lookupRow.length) ? lookupRow[column] : null;
+      Index.Range range = new Index.Range();
+      indexes[i].findRange(lookupValues[i], range);
+      int count = range.getCount(rowsAmount);
+      if (count == 0) {
         // if nothing matches, break the search
         return null;
       }
+      if (count < bestCount) {
+        best = range;
+        bestIndex = i;
+        bestCount = count;
+      }
     }
 
-    // iterate through all elements survived after filtering stage
-    // and find the first matching
-    BitSet candidates = context.getCandidates();
-    int candidate = candidates.nextSetBit(0);
-    while (candidate != -1) {
-      Object[] dataKeys = keys[candidate];
-
-      boolean matches = true;
-      int lookupShift = 0;
-      for (int i = 0, len = otherConditions.length; i < len && matches; i++) {
-        int[] columnConditionPair = otherConditions[i];
-
-        final int column = columnConditionPair[0];
-        Object keyData = dataKeys[column];
-        IValueMeta keyMeta = keysMeta.getValueMeta(column);
-
-        int lookupIndex = column + lookupShift;
-        Object cmpData = lookupRow[lookupIndex];
-        IValueMeta cmpMeta = lookupMeta.getValueMeta(lookupIndex);
-
-        int condition = columnConditionPair[1];
-        if (condition == DatabaseLookupMeta.CONDITION_BETWEEN) {
-          // BETWEEN is a special condition demanding two arguments
-          // technically there are no obstacles to implement it,
-          // as it is just a short form of: (a <= b) && (b <= c)
-          // however, let it be so for now
-          matches = (keyMeta.compare(keyData, cmpMeta, cmpData) >= 0);
-          if (matches) {
-            lookupShift++;
-            lookupIndex++;
-            IValueMeta cmpMeta2 = lookupMeta.getValueMeta(lookupIndex);
-            Object cmpData2 = lookupRow[lookupIndex];
-            matches = (keyMeta.compare(keyData, cmpMeta2, cmpData2) <= 0);
-          }
-        } else {
-          // if not BETWEEN, than it is LIKE (or some new operator)
-          // for now, LIKE is not supported here
-          matches = false;
-          transformData.hasDBCondition = true;
+    if (best == null || bestCount > rowsAmount / SCAN_FRACTION) {
+      // find the first row matching all conditions
+      for (int row = 0; row < rowsAmount; row++) {
+        if (matches(row, -1, lookupValues, lookupMeta, lookupRow)) {
+          return data[row];
         }
       }
-      if (matches) {
-        return data[candidate];
+      return null;
+    }
+
+    // the positions in the index aren't in the order of the rows,
+    // so go through all candidates and keep the first matching row
+    Index index = indexes[bestIndex];
+    int[][] segments =
+        best.inverse
+            ? new int[][] {{0, best.from}, {best.to, rowsAmount}}
+            : new int[][] {{best.from, best.to}};
+    int found = -1;
+    for (int[] segment : segments) {
+      for (int position = segment[0]; position < segment[1]; position++) {
+        int row = index.getRow(position);
+        if ((found < 0 || row < found)
+            && matches(row, bestIndex, lookupValues, lookupMeta, lookupRow)) {
+          found = row;
+        }
+      }
+    }
+    return found < 0 ? null : data[found];
+  }
+
+  private boolean matches(
+      int row, int skippedIndex, Object[] lookupValues, IRowMeta lookupMeta, Object[] lookupRow)
+      throws HopException {
+    for (int i = 0; i < indexes.length; i++) {
+      if (i != skippedIndex && !indexes[i].matches(row, lookupValues[i])) {
+        return false;
+      }
+    }
+
+    boolean matches = true;
+    int lookupShift = 0;
+    for (int i = 0, len = otherConditions.length; i < len && matches; i++) {
+      int[] columnConditionPair = otherConditions[i];
+
+      final int column = columnConditionPair[0];
+      Object keyData = columns[column].getValue(row);
+      IValueMeta keyMeta = columns[column].valueMeta;
+
+      int lookupIndex = column + lookupShift;
+      Object cmpData = lookupRow[lookupIndex];
+      IValueMeta cmpMeta = lookupMeta.getValueMeta(lookupIndex);
+
+      int condition = columnConditionPair[1];
+      if (condition == DatabaseLookupMeta.CONDITION_BETWEEN) {
+        // BETWEEN is a special condition demanding two arguments
+        // technically there are no obstacles to implement it,
+        // as it is just a short form of: (a <= b) && (b <= c)
+        // however, let it be so for now
+        matches = (keyMeta.compare(keyData, cmpMeta, cmpData) >= 0);
+        if (matches) {
+          lookupShift++;
+          lookupIndex++;
+          IValueMeta cmpMeta2 = lookupMeta.getValueMeta(lookupIndex);
+          Object cmpData2 = lookupRow[lookupIndex];
+          matches = (keyMeta.compare(keyData, cmpMeta2, cmpData2) <= 0);
+        }
       } else {
-        candidate = candidates.nextSetBit(candidate + 1);
+        // if not BETWEEN, than it is LIKE (or some new operator)
+        // for now, LIKE is not supported here
+        matches = false;
+        transformData.hasDBCondition = true;
       }
     }
-    return null;
+    return matches;
   }
 
   @Override
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A stable merge sort of row numbers, without boxing them. Large arrays are sorted in parallel in
+ * the common fork-join pool.
+ */
+final class RowSorter {
+
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /** Compares two rows by their row numbers */
+  interface IRowComparator {
+    int compare(int row1, int row2);
+  }
+
+  private RowSorter() {}
+
+  static void sort(int[] rows, IRowComparator comparator) {
+    int[] buffer = new int[rows.length];
+    if (rows.length < PARALLEL_THRESHOLD) {
+      sort(rows, buffer, 0, rows.length, comparator);
+    } else {
+      ForkJoinPool.commonPool().invoke(new SortTask(rows, buffer, 0, rows.length, comparator));
+    }
+  }
+
+  private static void sort(int[] rows, int[] buffer, int from, int to, IRowComparator comparator) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      insertionSort(rows, from, to, comparator);
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    sort(rows, buffer, from, middle, comparator);
+    sort(rows, buffer, middle, to, comparator);
+    merge(rows, buffer, from, middle, to, comparator);
+  }
+
+  private static void insertionSort(int[] rows, int from, int to, IRowComparator comparator) {
+    for (int i = from + 1; i < to; i++) {
+      int row = rows[i];
+      int j = i - 1;
+      while (j >= from && comparator.compare(rows[j], row) > 0) {
+        rows[j + 1] = rows[j];
+        j--;
+      }
+      rows[j + 1] = row;
+    }
+  }
+
+  private static void merge(
+      int[] rows, int[] buffer, int from, int middle, int to, IRowComparator comparator) {
+    if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+      // already in order
+      return;
+    }
+    System.arraycopy(rows, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    int target = from;
+    while (left < middle && right < to) {
+      // take from the left on ties to keep the sort stable
+      if (comparator.compare(buffer[right], buffer[left]) < 0) {
+        rows[target++] = buffer[right++];
+      } else {
+        rows[target++] = buffer[left++];
+      }
+    }
+    System.arraycopy(buffer, left, rows, target, middle - left);
+    System.arraycopy(buffer, right, rows, target, to - right);
+  }
+
+  private static final class SortTask extends RecursiveAction {
+    private final int[] rows;
+    private final int[] buffer;
+    private final int from;
+    private final int to;
+    private final IRowComparator comparator;
+
+    SortTask(int[] rows, int[] buffer, int from, int to, IRowComparator comparator) {
+      this.rows = rows;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.comparator = comparator;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from < PARALLEL_THRESHOLD) {
+        sort(rows, buffer, from, to, comparator);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new SortTask(rows, buffer, from, middle, comparator),
+          new SortTask(rows, buffer, middle, to, comparator));
+      merge(rows, buffer, from, middle, to, comparator);
+    }
+  }
+}
@@ -176,7 +176,13 @@ public class DatabaseLookupMetaTest {
     DatabaseLookupMeta meta = new DatabaseLookupMeta();
     meta.setCached(true);
     meta.setCacheSize(123456);
+    meta.setCacheMemoryMb(256);
+    meta.setCachingNotFound(false);
+    meta.setNotFoundCacheTtl(60);
     meta.setLoadingAllDataInCache(true);
+    meta.setSharedCache("customers");
+    meta.setLookupBatchSize(500);
+    meta.setLookupBatchesInFlight(8);
     Lookup lookup = meta.getLookup();
     lookup.getKeyFields().add(new KeyField("aa", "gg", "ee", "cc"));
     lookup.getKeyFields().add(new KeyField("bb", "hh", "ff", "dd"));
@@ -211,7 +217,13 @@ public class DatabaseLookupMetaTest {
     assertEquals(meta.getTableName(), meta2.getTableName());
     assertEquals(meta.isCached(), meta2.isCached());
     assertEquals(meta.getCacheSize(), meta2.getCacheSize());
+    assertEquals(meta.getCacheMemoryMb(), meta2.getCacheMemoryMb());
+    assertEquals(meta.isCachingNotFound(), meta2.isCachingNotFound());
+    assertEquals(meta.getNotFoundCacheTtl(), meta2.getNotFoundCacheTtl());
     assertEquals(meta.isLoadingAllDataInCache(), meta2.isLoadingAllDataInCache());
+    assertEquals(meta.getSharedCache(), meta2.getSharedCache());
+    assertEquals(meta.getLookupBatchSize(), meta2.getLookupBatchSize());
+    assertEquals(meta.getLookupBatchesInFlight(), meta2.getLookupBatchesInFlight());
 
     assertEquals(lookup.getKeyFields().size(), lookup2.getKeyFields().size());
     for (int i = 0; i < lookup.getKeyFields().size(); i++) {
@@ -322,6 +334,11 @@ public class DatabaseLookupMetaTest {
             .addString("orderBy")
             .addString("failOnMultiple?")
             .addString("eatRow?")
+            .addString("batchSize")
+            .addString("batchesInFlight")
+            .addString("cacheMemory")
+            .addString("cacheNotFound?")
+            .addString("notFoundTtl")
             .build();
     List<RowMetaAndData> rows =
         Arrays.asList(
@@ -335,7 +352,12 @@ public class DatabaseLookupMetaTest {
                 "Y",
                 "field1 DESC",
                 "Y",
-                "Y"));
+                "Y",
+                "1000",
+                "6",
+                "512",
+                "N",
+                "300"));
 
     injector.setProperty(meta, "connection", rows, "database");
     assertNotNull(meta.getConnection());
@@ -357,6 +379,17 @@ public class DatabaseLookupMetaTest {
     assertTrue(meta.getLookup().isFailingOnMultipleResults());
     injector.setProperty(meta, "eat_row_on_failure", rows, "eatRow?");
     assertTrue(meta.getLookup().isEatingRowOnLookupFailure());
+    injector.setProperty(meta, "lookup_batch_size", rows, "batchSize");
+    assertEquals(1000, meta.getLookupBatchSize());
+    injector.setProperty(meta, "lookup_batches_in_flight", rows, "batchesInFlight");
+    assertEquals(6, meta.getLookupBatchesInFlight());
+    injector.setProperty(meta, "cache_memory_mb", rows, "cacheMemory");
+    assertEquals(512, meta.getCacheMemoryMb());
+    assertTrue(meta.isCachingNotFound());
+    injector.setProperty(meta, "cache_not_found", rows, "cacheNotFound?");
+    assertFalse(meta.isCachingNotFound());
+    injector.setProperty(meta, "cache_not_found_ttl", rows, "notFoundTtl");
+    assertEquals(300, meta.getNotFoundCacheTtl());
 
     // Keys...
     //
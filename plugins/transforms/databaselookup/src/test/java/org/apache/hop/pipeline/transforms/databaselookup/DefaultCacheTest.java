@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultCacheTest {
+
+  private DatabaseLookupData data;
+  private DatabaseLookupMeta meta;
+  private IRowMeta keyMeta;
+
+  @Before
+  public void setUp() {
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta(new ValueMetaInteger("id"));
+    keyMeta.addValueMeta(new ValueMetaString("code"));
+
+    data = new DatabaseLookupData();
+    data.allEquals = true;
+    data.lookupMeta = keyMeta.clone();
+    meta = new DatabaseLookupMeta();
+  }
+
+  @Test
+  public void testStoreAndGet() throws HopException {
+    DefaultCache cache = DefaultCache.newCache(data, 0);
+    for (long i = 0; i < 1000; i++) {
+      cache.storeRowInCache(meta, keyMeta, new Object[] {i, "code" + i}, new Object[] {i * 10});
+    }
+    for (long i = 0; i < 1000; i++) {
+      assertArrayEquals(
+          new Object[] {i * 10},
+          cache.getRowFromCache(data.lookupMeta, new Object[] {i, "code" + i}));
+    }
+    assertNull(cache.getRowFromCache(data.lookupMeta, new Object[] {1L, "code2"}));
+    assertNull(cache.getRowFromCache(data.lookupMeta, new Object[] {1L, null}));
+
+    assertEquals(1000, cache.getSize());
+    assertEquals(1000, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testRowLimit() throws HopException {
+    DefaultCache cache = DefaultCache.newCache(data, 100);
+    for (long i = 0; i < 1000; i++) {
+      cache.storeRowInCache(meta, keyMeta, new Object[] {i, "code"}, new Object[] {i});
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(900, cache.getEvictions());
+  }
+
+  @Test
+  public void testMemoryLimit() throws HopException {
+    DefaultCache cache = DefaultCache.newCache(data, 0, 1);
+    String value = new String(new char[1000]).replace('\0', 'x');
+    for (long i = 0; i < 10000; i++) {
+      cache.storeRowInCache(meta, keyMeta, new Object[] {i, "code"}, new Object[] {value});
+    }
+    assertTrue(cache.getMemory() <= 1024 * 1024);
+    assertTrue(cache.getSize() > 100);
+    assertTrue(cache.getEvictions() > 0);
+  }
+
+  @Test
+  public void testNotFoundKeys() throws HopException {
+    DefaultCache cache = DefaultCache.newCache(data, 0);
+    Object[] defaults = new Object[] {-1L};
+
+    cache.storeNotFoundInCache(meta, keyMeta, new Object[] {1L, "a"}, defaults);
+    assertArrayEquals(defaults, cache.getRowFromCache(data.lookupMeta, new Object[] {1L, "a"}));
+
+    meta.setCachingNotFound(false);
+    cache.storeNotFoundInCache(meta, keyMeta, new Object[] {2L, "b"}, defaults);
+    assertNull(cache.getRowFromCache(data.lookupMeta, new Object[] {2L, "b"}));
+    assertEquals(1, cache.getSize());
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.databaselookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LookupBatcherTest {
+
+  private IRowMeta keyMeta;
+  private IRowMeta resultMeta;
+  private List<List<Object[]>> batches;
+  private List<Object[]> handled;
+  private List<Object[]> errors;
+  private LookupBatcher batcher;
+
+  @Before
+  public void setUp() {
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta(new ValueMetaInteger("id"));
+    resultMeta = new RowMeta();
+    resultMeta.addValueMeta(new ValueMetaInteger("id"));
+    resultMeta.addValueMeta(new ValueMetaString("name"));
+    batches = Collections.synchronizedList(new ArrayList<>());
+    handled = new ArrayList<>();
+    errors = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    if (batcher != null) {
+      batcher.close();
+    }
+  }
+
+  /** Finds the even keys only, with the name "name-key" */
+  private LookupBatcher.BatchResult evenKeys(List<Object[]> keys) {
+    batches.add(keys);
+    List<Object[]> rows = new ArrayList<>();
+    for (Object[] key : keys) {
+      long id = (Long) key[0];
+      if (id % 2 == 0) {
+        rows.add(new Object[] {id, "name-" + id});
+      }
+    }
+    return new LookupBatcher.BatchResult(resultMeta, rows);
+  }
+
+  private LookupBatcher.IRowHandler handler() {
+    return new LookupBatcher.IRowHandler() {
+      @Override
+      public void handleRow(
+          Object[] row,
+          Object[] lookupRow,
+          Object[] add,
+          boolean cacheHit,
+          IRowMeta returnRowMeta) {
+        handled.add(new Object[] {row[0], add == null ? null : add[0], cacheHit});
+      }
+
+      @Override
+      public void handleError(Object[] row, HopException e) {
+        errors.add(row);
+      }
+    };
+  }
+
+  private void addRow(long id) throws HopException {
+    batcher.addRow(new Object[] {id}, new Object[] {id}, null);
+  }
+
+  @Test
+  public void testRowsAreHandledInOrder() throws Exception {
+    batcher = new LookupBatcher(keyMeta, 3, 2, false, this::evenKeys, handler(), "test");
+
+    for (long id = 1; id <= 10; id++) {
+      addRow(id);
+      if (id == 5) {
+        batcher.addRow(new Object[] {100L}, new Object[] {100L}, new Object[] {"cached"});
+      }
+    }
+    batcher.flush();
+
+    assertEquals(0, batcher.getPendingRowCount());
+    assertEquals(11, handled.size());
+    int index = 0;
+    for (long id = 1; id <= 10; id++) {
+      Object[] row = handled.get(index++);
+      assertEquals(id, row[0]);
+      if (id % 2 == 0) {
+        assertEquals("name-" + id, row[1]);
+      } else {
+        assertNull(row[1]);
+      }
+      assertEquals(false, row[2]);
+      if (id == 5) {
+        Object[] cached = handled.get(index++);
+        assertEquals(100L, cached[0]);
+        assertEquals("cached", cached[1]);
+        assertEquals(true, cached[2]);
+      }
+    }
+
+    // 10 distinct keys in batches of 3
+    //
+    assertEquals(4, batches.size());
+    assertEquals(1, batches.get(3).size());
+  }
+
+  @Test
+  public void testDuplicateKeysAreQueriedOnce() throws Exception {
+    batcher = new LookupBatcher(keyMeta, 10, 2, false, this::evenKeys, handler(), "test");
+
+    for (int i = 0; i < 20; i++) {
+      addRow(i % 4);
+    }
+    batcher.flush();
+
+    assertEquals(20, handled.size());
+    for (int i = 0; i < 20; i++) {
+      assertEquals((long) (i % 4), handled.get(i)[0]);
+      assertEquals(i % 2 == 0 ? "name-" + (i % 4) : null, handled.get(i)[1]);
+    }
+    assertEquals(1, batches.size());
+    assertEquals(4, batches.get(0).size());
+  }
+
+  @Test
+  public void testFailingOnMultipleResults() throws Exception {
+    LookupBatcher.IBatchQuery query =
+        keys -> {
+          List<Object[]> rows = new ArrayList<>();
+          for (Object[] key : keys) {
+            rows.add(new Object[] {key[0], "first"});
+            if ((Long) key[0] == 2L) {
+              rows.add(new Object[] {key[0], "second"});
+            }
+          }
+          return new LookupBatcher.BatchResult(resultMeta, rows);
+        };
+    batcher = new LookupBatcher(keyMeta, 2, 1, true, query, handler(), "test");
+
+    for (long id = 1; id <= 3; id++) {
+      addRow(id);
+    }
+    batcher.flush();
+
+    assertEquals(2, handled.size());
+    assertEquals("first", handled.get(0)[1]);
+    assertEquals("first", handled.get(1)[1]);
+    assertEquals(1, errors.size());
+    assertEquals(2L, errors.get(0)[0]);
+  }
+
+  @Test
+  public void testKeysAreMatchedLikeTheValueMetadataCompares() throws Exception {
+    // Keys which are equal without having the same hash code
+    //
+    ValueMetaString code = new ValueMetaString("code");
+    code.setCaseInsensitive(true);
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta(code);
+    keyMeta.addValueMeta(new ValueMetaBigNumber("amount"));
+    IRowMeta returnedMeta = new RowMeta();
+    returnedMeta.addValueMeta(new ValueMetaString("code"));
+    returnedMeta.addValueMeta(new ValueMetaBigNumber("amount"));
+    returnedMeta.addValueMeta(new ValueMetaString("name"));
+
+    LookupBatcher.IBatchQuery query =
+        keys ->
+            new LookupBatcher.BatchResult(
+                returnedMeta,
+                Arrays.asList(
+                    new Object[] {"ABC", new BigDecimal("1.50"), "first"},
+                    new Object[] {"xyz", new BigDecimal("2"), "second"},
+                    new Object[] {"aBc", new BigDecimal("1.5"), "duplicate"}));
+    List<Object[]> found = new ArrayList<>();
+    LookupBatcher.IRowHandler handler =
+        new LookupBatcher.IRowHandler() {
+          @Override
+          public void handleRow(
+              Object[] row,
+              Object[] lookupRow,
+              Object[] add,
+              boolean cacheHit,
+              IRowMeta returnRowMeta) {
+            found.add(add);
+          }
+
+          @Override
+          public void handleError(Object[] row, HopException e) {
+            errors.add(row);
+          }
+        };
+
+    batcher = new LookupBatcher(keyMeta, 10, 1, false, query, handler, "test");
+    Object[][] keys = {
+      {"abc", new BigDecimal("1.5")}, {"XYZ", new BigDecimal("2.00")}, {"abc", BigDecimal.ONE}
+    };
+    for (Object[] key : keys) {
+      batcher.addRow(key, key, null);
+    }
+    batcher.flush();
+
+    assertEquals(3, found.size());
+    assertEquals("first", found.get(0)[0]);
+    assertEquals("second", found.get(1)[0]);
+    assertNull(found.get(2));
+    assertTrue(errors.isEmpty());
+
+    // The same result with only a single row expected
+    //
+    batcher.close();
+    found.clear();
+    batcher = new LookupBatcher(keyMeta, 10, 1, true, query, handler, "test");
+    for (Object[] key : keys) {
+      batcher.addRow(key, key, null);
+    }
+    batcher.flush();
+
+    assertEquals(1, errors.size());
+    assertEquals("abc", errors.get(0)[0]);
+    assertEquals(2, found.size());
+    assertEquals("second", found.get(0)[0]);
+  }
+
+  @Test
+  public void testQueryErrorIsPassedOnWithTheRowsOfTheBatch() throws Exception {
+    AtomicInteger queries = new AtomicInteger();
+    LookupBatcher.IBatchQuery query =
+        keys -> {
+          if (queries.incrementAndGet() == 2) {
+            throw new HopException("Lookup failed");
+          }
+          return evenKeys(keys);
+        };
+    batcher = new LookupBatcher(keyMeta, 2, 1, false, query, handler(), "test");
+
+    for (long id = 1; id <= 6; id++) {
+      addRow(id);
+    }
+    batcher.flush();
+
+    assertEquals(4, handled.size());
+    assertEquals(2, errors.size());
+    assertEquals(3L, errors.get(0)[0]);
+    assertEquals(4L, errors.get(1)[0]);
+  }
+
+  @Test
+  public void testBatchesInFlight() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    LookupBatcher.IBatchQuery query =
+        keys -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new HopException(e);
+          }
+          running.decrementAndGet();
+          return evenKeys(keys);
+        };
+    batcher = new LookupBatcher(keyMeta, 5, 3, false, query, handler(), "test");
+
+    for (long id = 1; id <= 200; id++) {
+      addRow(id);
+    }
+    batcher.flush();
+
+    assertEquals(200, handled.size());
+    for (int i = 0; i < 200; i++) {
+      assertEquals((long) (i + 1), handled.get(i)[0]);
+    }
+    assertEquals(40, batches.size());
+    assertTrue(maxRunning.get() <= 3);
+    assertTrue(maxRunning.get() > 1);
+  }
+}
@@ -66,7 +66,7 @@ public class GtIndexTest extends IndexTestBase<GtIndex> {
 
   @Override
   public void lookupFor_Two() {
-    testFindsCorrectly(1, 1);
+    testFindsCorrectly(2, 1);
   }
 
   @Override
@@ -17,6 +17,7 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.junit.After;
@@ -27,9 +28,9 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 
 /**
  * This is a base class for several similar cases. All of them are checking how indexes work with
@@ -67,7 +68,6 @@ public abstract class IndexTestBase<T extends Index> {
   private final Class<T> clazz;
 
   T index;
-  SearchingContext context;
 
   public IndexTestBase(Class<T> clazz, Long[][] rows) {
     this.rows = rows;
@@ -78,9 +78,6 @@ public abstract class IndexTestBase<T extends Index> {
   public void setUp() throws Exception {
     index = createIndexInstance(0, new ValueMetaInteger(), 5);
     index.performIndexingOf(rows);
-
-    context = new SearchingContext();
-    context.init(5);
   }
 
   T createIndexInstance(int column, IValueMeta meta, int rowsAmount) throws Exception {
@@ -92,34 +89,43 @@ public abstract class IndexTestBase<T extends Index> {
   @After
   public void tearDown() {
     index = null;
-    context = null;
+  }
+
+  BitSet findRows(long lookupValue) {
+    Index.Range range = new Index.Range();
+    try {
+      index.findRange(lookupValue, range);
+    } catch (HopValueException e) {
+      throw new RuntimeException(e);
+    }
+    BitSet found = new BitSet();
+    for (int position = 0; position < index.size(); position++) {
+      if (range.contains(position)) {
+        found.set(index.getRow(position));
+      }
+    }
+    assertEquals(range.getCount(index.size()), found.cardinality());
+    return found;
   }
 
   void testFindsNothing(long value) {
-    assertFalse(context.isEmpty());
-    index.applyRestrictionsTo(context, new ValueMetaInteger(), value);
-    assertTrue("Expected not to find anything matching " + value, context.isEmpty());
+    BitSet actual = findRows(value);
+    assertTrue("Expected not to find anything matching " + value, actual.isEmpty());
   }
 
   void testFindsCorrectly(long lookupValue, int expectedAmount) {
-    assertFalse(context.isEmpty());
-    index.applyRestrictionsTo(context, new ValueMetaInteger(), lookupValue);
-
-    assertFalse("Expected to find something", context.isEmpty());
-
-    BitSet actual = context.getCandidates();
-    int cnt = expectedAmount;
-    int lastSetBit = 0;
-    while (cnt > 0) {
-      lastSetBit = actual.nextSetBit(lastSetBit);
-      if (lastSetBit < 0) {
-        fail("Expected to find " + expectedAmount + " values, but got: " + actual.toString());
-      }
+    BitSet actual = findRows(lookupValue);
 
-      doAssertMatches(actual, lookupValue, rows[lastSetBit][0]);
+    assertFalse("Expected to find something", actual.isEmpty());
+    assertEquals(expectedAmount, actual.cardinality());
 
-      lastSetBit++;
-      cnt--;
+    for (int row = actual.nextSetBit(0); row >= 0; row = actual.nextSetBit(row + 1)) {
+      doAssertMatches(actual, lookupValue, rows[row][0]);
+      try {
+        assertTrue(index.matches(row, lookupValue));
+      } catch (HopValueException e) {
+        throw new RuntimeException(e);
+      }
     }
   }
 
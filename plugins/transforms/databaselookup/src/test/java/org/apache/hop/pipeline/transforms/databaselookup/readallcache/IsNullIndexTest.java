@@ -29,7 +29,6 @@ import java.util.BitSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -57,7 +56,6 @@ public class IsNullIndexTest {
 
   private IsNullIndex matchingNulls;
   private IsNullIndex matchingNonNulls;
-  private SearchingContext context;
 
   public IsNullIndexTest(Long[][] rows) {
     this.rows = rows;
@@ -80,16 +78,12 @@ public class IsNullIndexTest {
 
     matchingNonNulls = new IsNullIndex(0, new ValueMetaInteger(), 5, false);
     matchingNonNulls.performIndexingOf(rows);
-
-    context = new SearchingContext();
-    context.init(5);
   }
 
   @After
   public void tearDown() {
     matchingNulls = null;
     matchingNonNulls = null;
-    context = null;
   }
 
   @Test
@@ -105,18 +99,26 @@ public class IsNullIndexTest {
   private void testFindsCorrectly(IsNullIndex index, boolean isLookingForNull) {
     final int expectedAmount = isLookingForNull ? amountOfNulls : 5 - amountOfNulls;
 
-    assertFalse(context.isEmpty());
     // the index ignores lookup value - pass null there
-    index.applyRestrictionsTo(context, new ValueMetaInteger(), null);
+    Index.Range range = new Index.Range();
+    index.findRange(null, range);
+    BitSet actual = new BitSet();
+    for (int position = 0; position < index.size(); position++) {
+      if (range.contains(position)) {
+        actual.set(index.getRow(position));
+      }
+    }
 
     if (expectedAmount == 0) {
-      assertTrue(context.isEmpty());
+      assertTrue(actual.isEmpty());
       return;
     }
 
-    assertFalse(String.format("Expected to find %d values", expectedAmount), context.isEmpty());
+    assertEquals(
+        String.format("Expected to find %d values", expectedAmount),
+        expectedAmount,
+        actual.cardinality());
 
-    BitSet actual = context.getCandidates();
     int cnt = expectedAmount;
     int lastSetBit = 0;
     while (cnt > 0) {
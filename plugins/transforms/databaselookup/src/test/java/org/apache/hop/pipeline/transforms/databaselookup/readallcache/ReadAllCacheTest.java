@@ -17,6 +17,7 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
+import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.value.ValueMetaDate;
 import org.apache.hop.core.row.value.ValueMetaInteger;
@@ -30,6 +31,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 import java.util.StringTokenizer;
 
 import static org.junit.Assert.assertArrayEquals;
@@ -194,4 +196,86 @@ public class ReadAllCacheTest {
     Object[] found = cache.getRowFromCache(new RowMeta(), new Object[0]);
     assertArrayEquals("(keys[1] == 1L) --> row 2", new Object[] {"one"}, found);
   }
+
+  @Test
+  public void lookup_FindsTheSameRowsAsAScan_OnLargeData() throws Exception {
+    Random random = new Random(1234);
+    int amount = 200000;
+    keys = new Object[amount][];
+    data = new Object[amount][];
+    for (int i = 0; i < amount; i++) {
+      keys[i] =
+          new Object[] {
+            (long) random.nextInt(1000),
+            random.nextInt(10) == 0 ? null : "s" + random.nextInt(100),
+            new Date(random.nextInt(100000)),
+            random.nextInt(3) == 0 ? null : (long) random.nextInt(5)
+          };
+      data[i] = new Object[] {i};
+    }
+
+    for (String conditions :
+        new String[] {"=,=,>=,IS NULL", "<>,=,<,IS NOT NULL", ">,<>,<=,=", "<,IS NULL,>,<>"}) {
+      transformData.hasDBCondition = false;
+      ReadAllCache cache = buildCache(conditions);
+      for (int i = 0; i < 200; i++) {
+        Object[] lookupRow =
+            new Object[] {
+              (long) random.nextInt(1000),
+              "s" + random.nextInt(100),
+              new Date(random.nextInt(100000)),
+              (long) random.nextInt(5)
+            };
+        Object[] expected = null;
+        for (int row = 0; row < amount && expected == null; row++) {
+          if (matchesAll(transformData.conditions, keys[row], lookupRow)) {
+            expected = data[row];
+          }
+        }
+        assertArrayEquals(
+            conditions + " " + Arrays.toString(lookupRow),
+            expected,
+            cache.getRowFromCache(keysMeta.clone(), lookupRow));
+      }
+    }
+  }
+
+  private boolean matchesAll(int[] conditions, Object[] keyRow, Object[] lookupRow)
+      throws Exception {
+    for (int i = 0; i < conditions.length; i++) {
+      IValueMeta meta = keysMeta.getValueMeta(i);
+      int cmp = meta.compare(keyRow[i], lookupRow[i]);
+      boolean matches;
+      switch (conditions[i]) {
+        case DatabaseLookupMeta.CONDITION_EQ:
+          matches = cmp == 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_NE:
+          matches = cmp != 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_LT:
+          matches = cmp < 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_LE:
+          matches = cmp <= 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_GT:
+          matches = cmp > 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_GE:
+          matches = cmp >= 0;
+          break;
+        case DatabaseLookupMeta.CONDITION_IS_NULL:
+          matches = keyRow[i] == null;
+          break;
+        default:
+          matches = keyRow[i] != null;
+          break;
+      }
+      if (!matches) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
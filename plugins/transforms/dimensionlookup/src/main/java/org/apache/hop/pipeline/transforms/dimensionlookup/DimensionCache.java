@@ -18,29 +18,44 @@
 package org.apache.hop.pipeline.transforms.dimensionlookup;
 
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * This class will act as a special purpose dimension Cache. The idea here is to not only cache the
  * last version of a dimension entry, but all versions. So basically, the entry key is the natural
  * key as well as the from-to date range.
  *
- * <p>The way to achieve that result is to keep a sorted list in memory. Because we want as few
- * conversion errors as possible, we'll use the same row as we get from the database.
+ * <p>The versions are indexed per natural key: a hash map finds the versions of a key and a binary
+ * search over the sorted start dates of its validity ranges finds the version of a lookup date. The
+ * ranges are kept in primitive arrays, so a lookup or an insert doesn't shift or compare the rows of
+ * other keys. Because we want as few conversion errors as possible, we'll store the same row as we
+ * get from the database.
  */
-public class DimensionCache implements Comparator<Object[]> {
+public class DimensionCache {
+
+  /** Loads with at least this many rows index the keys in parallel */
+  public static final int PARALLEL_LOAD_THRESHOLD = 100000;
+
+  private static final int SHARDS = 16;
+
   private IRowMeta rowMeta;
-  private List<Object[]> rowCache;
   private int[] keyIndexes;
   private int fromDateIndex;
   private int toDateIndex;
 
+  private final Map<NaturalKey, Versions>[] shards;
+  private int size;
+
   /**
    * Create a new dimension cache object
    *
@@ -49,132 +64,119 @@ public class DimensionCache implements Comparator<Object[]> {
    * @param fromDateIndex the field index where the start of the date range can be found
    * @param toDateIndex the field index where the end of the date range can be found
    */
+  @SuppressWarnings("unchecked")
   public DimensionCache(IRowMeta rowMeta, int[] keyIndexes, int fromDateIndex, int toDateIndex) {
     this.rowMeta = rowMeta;
     this.keyIndexes = keyIndexes;
     this.fromDateIndex = fromDateIndex;
     this.toDateIndex = toDateIndex;
+    this.shards = new Map[SHARDS];
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new HashMap<>();
+    }
   }
 
   /**
-   * Add a row to the back of the list
+   * Add a version of a dimension entry to the cache.
    *
    * @param row the row to add
+   * @throws HopException in case the natural key or the date range can't be read
    */
-  public void addRow(Object[] row) {
-    rowCache.add(row);
+  public synchronized void addRow(Object[] row) throws HopException {
+    NaturalKey key = new NaturalKey(row);
+    shards[key.shard()].computeIfAbsent(key, k -> new Versions()).add(this, row);
+    size++;
   }
 
   /**
-   * Get a row from the cache on a certain index
+   * Add many versions of dimension entries to the cache. Large loads are indexed in parallel: the
+   * natural keys are hashed concurrently and every shard of the index is built by its own thread.
    *
-   * @param index the index to look for
-   * @return the row on the specified index
+   * @param rows the rows to add
+   * @throws HopException in case a natural key or a date range can't be read
    */
-  public Object[] getRow(int index) {
-    return rowCache.get(index);
+  public synchronized void addRows(List<Object[]> rows) throws HopException {
+    if (rows.size() < PARALLEL_LOAD_THRESHOLD) {
+      for (Object[] row : rows) {
+        addRow(row);
+      }
+      return;
+    }
+
+    try {
+      NaturalKey[] keys = new NaturalKey[rows.size()];
+      IntStream.range(0, keys.length)
+          .parallel()
+          .forEach(i -> keys[i] = newNaturalKeyUnchecked(rows.get(i)));
+
+      List<List<Integer>> shardRows = new ArrayList<>(SHARDS);
+      for (int i = 0; i < SHARDS; i++) {
+        shardRows.add(new ArrayList<>());
+      }
+      for (int i = 0; i < keys.length; i++) {
+        shardRows.get(keys[i].shard()).add(i);
+      }
+
+      IntStream.range(0, SHARDS)
+          .parallel()
+          .forEach(
+              s -> {
+                Map<NaturalKey, Versions> shard = shards[s];
+                for (int i : shardRows.get(s)) {
+                  try {
+                    shard.computeIfAbsent(keys[i], k -> new Versions()).add(this, rows.get(i));
+                  } catch (HopException e) {
+                    throw new IllegalStateException(e);
+                  }
+                }
+              });
+      size += rows.size();
+    } catch (IllegalStateException e) {
+      if (e.getCause() instanceof HopException) {
+        throw (HopException) e.getCause();
+      }
+      throw e;
+    }
   }
 
-  /**
-   * Insert a row into the list on a certain index
-   *
-   * @param index the index on which the row should be inserted
-   * @param row the row to add
-   */
-  public void addRow(int index, Object[] row) {
-    rowCache.add(index, row);
+  private NaturalKey newNaturalKeyUnchecked(Object[] row) {
+    try {
+      return new NaturalKey(row);
+    } catch (HopValueException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   /**
-   * Looks up a row in the (sorted) cache.
+   * Looks up the version of a dimension entry which is valid on the lookup date.
    *
    * @param lookupRowData The data of the lookup row. Make sure that on the index of the from date,
    *     you put the lookup date.
-   * @throws a HopException in case there are conversion errors during the lookup of the row
+   * @return the row of the version or null if the natural key or the date isn't in the cache
+   * @throws HopException in case there are conversion errors during the lookup of the row
    */
-  public int lookupRow(Object[] lookupRowData) throws HopException {
-    try {
-      // First perform the lookup!
-      //
-      int index = Collections.binarySearch(rowCache, lookupRowData, this);
-      if (index < 0) {
-        // What we have now is the insertion point.
-        // Since we only compare on the start of the date range (see also: below in
-        // Compare.compare())
-        // we will usually get the insertion point of the row
-        // However, that insertion point is the actual row index IF the supplied lookup date (in the
-        // lookup row) is
-        // between
-        //
-        // This row at the insertion point where the natural keys match and the start
-        //
-        int insertionPoint = -(index + 1);
-        if (insertionPoint < rowCache.size() - 1) {
-          // Get the row in question
-          //
-          Object[] row = rowCache.get(insertionPoint);
-
-          // See if the natural key matches...
-          //
-          int cmp = rowMeta.compare(row, lookupRowData, keyIndexes);
-          if (cmp == 0) {
-            // The natural keys match, now see if the lookup date (lookupRowData[fromDateIndex]) is
-            // between
-            // row[fromDateIndex] and row[toDateIndex]
-            //
-            Date fromDate = rowMeta.getDate(row, fromDateIndex);
-            Date toDate = rowMeta.getDate(row, toDateIndex);
-            Date lookupDate = rowMeta.getDate(lookupRowData, fromDateIndex);
-
-            if (fromDate == null && toDate != null) {
-              // This is the case where the fromDate is null and the toDate is not.
-              // This is a special case where null as a start date means -Infinity
-              //
-              if (toDate.compareTo(lookupDate) > 0) {
-                return insertionPoint; // found the key!!
-              } else {
-                // This should never happen, it's a flaw in the data or the binary search
-                // algorithm...
-                // TODO: print the row perhaps?
-                //
-                throw new HopException(
-                    "Key sorting problem detected during row cache lookup: the lookup date of "
-                        + "the row retrieved is higher than or equal to the end of the date range.");
-              }
-            } else if (fromDate != null && toDate == null) {
-              // This is the case where the toDate is null and the fromDate is not.
-              // This is a special case where null as an end date means +Infinity
-              //
-              if (fromDate.compareTo(lookupDate) <= 0) {
-                return insertionPoint; // found the key!!
-              } else {
-                // This should never happen, it's a flaw in the data or the binary search
-                // algorithm...
-                // TODO: print the row perhaps?
-                //
-                throw new HopException(
-                    "Key sorting problem detected during row cache lookup: the lookup date of the row "
-                        + "retrieved is lower than or equal to the start of the date range.");
-              }
-            } else {
-              // Both dates are available: simply see if the lookup date falls in between...
-              //
-              if (fromDate.compareTo(lookupDate) <= 0 && toDate.compareTo(lookupDate) > 0) {
-                return insertionPoint;
-              }
-              // Else this is a cache miss.
-            }
-          }
-        }
-      }
-      return index;
-    } catch (RuntimeException e) {
-      throw new HopException(e);
+  public Object[] lookupRow(Object[] lookupRowData) throws HopException {
+    Versions versions = findVersions(lookupRowData);
+    if (versions == null) {
+      return null;
     }
+    int index = versions.find(lookupDate(lookupRowData));
+    return index < 0 ? null : versions.rows[index];
   }
 
-  public void sortRows() {
-    Collections.sort(rowCache, this);
+  private synchronized Versions findVersions(Object[] lookupRowData) throws HopException {
+    NaturalKey key = new NaturalKey(lookupRowData);
+    return shards[key.shard()].get(key);
+  }
+
+  private long lookupDate(Object[] lookupRowData) throws HopValueException {
+    Date lookupDate = rowMeta.getValueMeta(fromDateIndex).getDate(lookupRowData[fromDateIndex]);
+    return lookupDate == null ? Long.MIN_VALUE : lookupDate.getTime();
+  }
+
+  /** @return the number of versions in the cache */
+  public synchronized int size() {
+    return size;
   }
 
   /**
@@ -184,7 +186,6 @@ public class DimensionCache implements Comparator<Object[]> {
    * @param o2
    * @return
    */
-  @Override
   public int compare(Object[] o1, Object[] o2) {
     try {
       // First compare on the natural keys...
@@ -231,6 +232,119 @@ public class DimensionCache implements Comparator<Object[]> {
     }
   }
 
+  /**
+   * The natural key of a row. The hash code and equality follow the value metadata of the key
+   * fields, the same way the rows were compared when the cache was a sorted list.
+   */
+  private final class NaturalKey {
+    private final Object[] row;
+    private final int hash;
+
+    private NaturalKey(Object[] row) throws HopValueException {
+      this.row = row;
+      int h = 17;
+      for (int keyIndex : keyIndexes) {
+        h = 31 * h + rowMeta.getValueMeta(keyIndex).hashCode(row[keyIndex]);
+      }
+      this.hash = h;
+    }
+
+    private int shard() {
+      return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof NaturalKey)) {
+        return false;
+      }
+      NaturalKey other = (NaturalKey) obj;
+      if (hash != other.hash) {
+        return false;
+      }
+      try {
+        return rowMeta.compare(row, other.row, keyIndexes) == 0;
+      } catch (HopValueException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * The versions of one natural key, sorted on the start of their validity range. A missing start
+   * means -infinity, a missing end means +infinity.
+   */
+  private static final class Versions {
+    private long[] fromDates = new long[2];
+    private long[] toDates = new long[2];
+    private Object[][] rows = new Object[2][];
+    private int count;
+
+    private void add(DimensionCache cache, Object[] row) throws HopValueException {
+      IRowMeta rowMeta = cache.rowMeta;
+      Date fromDate = rowMeta.getValueMeta(cache.fromDateIndex).getDate(row[cache.fromDateIndex]);
+      Date toDate = rowMeta.getValueMeta(cache.toDateIndex).getDate(row[cache.toDateIndex]);
+      long from = fromDate == null ? Long.MIN_VALUE : fromDate.getTime();
+      long to = toDate == null ? Long.MAX_VALUE : toDate.getTime();
+
+      if (count == fromDates.length) {
+        int capacity = count * 2;
+        fromDates = Arrays.copyOf(fromDates, capacity);
+        toDates = Arrays.copyOf(toDates, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+      }
+
+      // New versions usually start after all the others: append them.
+      // Otherwise only the versions of this natural key move.
+      //
+      int index = count;
+      if (count > 0 && fromDates[count - 1] > from) {
+        index = Arrays.binarySearch(fromDates, 0, count, from);
+        if (index < 0) {
+          index = -(index + 1);
+        }
+        int moved = count - index;
+        System.arraycopy(fromDates, index, fromDates, index + 1, moved);
+        System.arraycopy(toDates, index, toDates, index + 1, moved);
+        System.arraycopy(rows, index, rows, index + 1, moved);
+      }
+      fromDates[index] = from;
+      toDates[index] = to;
+      rows[index] = row;
+      count++;
+    }
+
+    /**
+     * @return the index of the version with from <= date < to, or -1
+     */
+    private int find(long date) {
+      int low = 0;
+      int high = count - 1;
+      int candidate = -1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (fromDates[mid] <= date) {
+          candidate = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      if (candidate >= 0 && date < toDates[candidate]) {
+        return candidate;
+      }
+      return -1;
+    }
+  }
+
   /** @return the rowMeta */
   public IRowMeta getRowMeta() {
     return rowMeta;
@@ -241,16 +355,6 @@ public class DimensionCache implements Comparator<Object[]> {
     this.rowMeta = rowMeta;
   }
 
-  /** @return the rowCache */
-  public List<Object[]> getRowCache() {
-    return rowCache;
-  }
-
-  /** @param rowCache the rowCache to set */
-  public void setRowCache(List<Object[]> rowCache) {
-    this.rowCache = rowCache;
-  }
-
   /** @return the keyIndexes */
   public int[] getKeyIndexes() {
     return keyIndexes;
@@ -295,11 +295,10 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
       data.preloadCache =
           new DimensionCache(
               rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex);
-      data.preloadCache.setRowCache(rows);
 
-      logDetailed("Sorting the cache rows...");
-      data.preloadCache.sortRows();
-      logDetailed("Sorting of cached rows finished.");
+      logDetailed("Indexing the cache rows...");
+      data.preloadCache.addRows(rows);
+      logDetailed("Indexing of " + data.preloadCache.size() + " cached rows finished.");
 
       // Also see what indexes to take to populate the lookup row...
       // We only ever compare indexes and the lookup date in the cache, the rest is not needed...
@@ -389,12 +388,7 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
 
       // Look up the row in the pre-load cache...
       //
-      int index = data.preloadCache.lookupRow(lookupRow);
-      if (index >= 0) {
-        returnRow = data.preloadCache.getRow(index);
-      } else {
-        returnRow = null; // Nothing found!
-      }
+      returnRow = data.preloadCache.lookupRow(lookupRow); // null if nothing was found
 
     } else {
       lookupRow = new Object[data.lookupRowMeta.size()];
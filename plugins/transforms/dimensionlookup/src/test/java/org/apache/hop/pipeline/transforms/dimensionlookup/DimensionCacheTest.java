@@ -19,12 +19,20 @@ package org.apache.hop.pipeline.transforms.dimensionlookup;
 
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.row.value.ValueMetaTimestamp;
 import org.apache.hop.core.util.Assert;
 import org.junit.Test;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class DimensionCacheTest {
 
@@ -69,6 +77,88 @@ public class DimensionCacheTest {
     assertCompareDateInterval(dc, null, D4, D5, null, -1); // NPE
   }
 
+  @Test
+  public void testLookupVersions() throws Exception {
+    DimensionCache dc = new DimensionCache(dimensionRowMeta(), new int[] {1}, 2, 3);
+
+    long t0 = 1425300000000L;
+    final Date D1 = new Timestamp(t0);
+    final Date D2 = new Timestamp(t0 + 3600000L);
+    final Date D3 = new Timestamp(t0 + 3600000L * 2);
+
+    // Versions added out of order end up sorted per natural key
+    //
+    Object[] a3 = new Object[] {3L, "A", D2, null};
+    Object[] a1 = new Object[] {1L, "A", null, D1};
+    Object[] a2 = new Object[] {2L, "A", D1, D2};
+    Object[] b1 = new Object[] {4L, "B", null, null};
+    dc.addRow(a3);
+    dc.addRow(a1);
+    dc.addRow(a2);
+    dc.addRow(b1);
+    assertEquals(4, dc.size());
+
+    assertSame(a1, dc.lookupRow(new Object[] {null, "A", new Timestamp(t0 - 1L), null}));
+    assertSame(a2, dc.lookupRow(new Object[] {null, "A", D1, null}));
+    assertSame(a3, dc.lookupRow(new Object[] {null, "A", D2, null}));
+    assertSame(a3, dc.lookupRow(new Object[] {null, "A", D3, null}));
+    assertSame(b1, dc.lookupRow(new Object[] {null, "B", D3, null}));
+    assertNull(dc.lookupRow(new Object[] {null, "C", D3, null}));
+
+    assertEquals(2L, dc.lookupRow(new Object[] {null, "A", D1, null})[0]);
+  }
+
+  @Test
+  public void testLookupGaps() throws Exception {
+    DimensionCache dc = new DimensionCache(dimensionRowMeta(), new int[] {1}, 2, 3);
+
+    long t0 = 1425300000000L;
+    final Date D1 = new Timestamp(t0);
+    final Date D2 = new Timestamp(t0 + 3600000L);
+    final Date D3 = new Timestamp(t0 + 3600000L * 2);
+    final Date D4 = new Timestamp(t0 + 3600000L * 3);
+
+    dc.addRow(new Object[] {1L, "A", D1, D2});
+    dc.addRow(new Object[] {2L, "A", D3, D4});
+
+    assertNull(dc.lookupRow(new Object[] {null, "A", new Timestamp(t0 - 1L), null}));
+    assertNull(dc.lookupRow(new Object[] {null, "A", D2, null}));
+    assertNull(dc.lookupRow(new Object[] {null, "A", D4, null}));
+    assertEquals(2L, dc.lookupRow(new Object[] {null, "A", D3, null})[0]);
+  }
+
+  @Test
+  public void testParallelLoad() throws Exception {
+    DimensionCache dc = new DimensionCache(dimensionRowMeta(), new int[] {1}, 2, 3);
+
+    long t0 = 1425300000000L;
+    final Date D1 = new Timestamp(t0);
+    int keys = DimensionCache.PARALLEL_LOAD_THRESHOLD / 2 + 1;
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < keys; i++) {
+      rows.add(new Object[] {(long) i * 2 + 1, "key" + i, D1, null});
+      rows.add(new Object[] {(long) i * 2, "key" + i, null, D1});
+    }
+    dc.addRows(rows);
+    assertEquals(rows.size(), dc.size());
+
+    for (int i = 0; i < keys; i += 997) {
+      assertEquals(
+          (long) i * 2,
+          dc.lookupRow(new Object[] {null, "key" + i, new Timestamp(t0 - 1L), null})[0]);
+      assertEquals((long) i * 2 + 1, dc.lookupRow(new Object[] {null, "key" + i, D1, null})[0]);
+    }
+  }
+
+  private static IRowMeta dimensionRowMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("TK"));
+    rowMeta.addValueMeta(new ValueMetaString("NATURAL_KEY"));
+    rowMeta.addValueMeta(new ValueMetaTimestamp("DATE_FROM"));
+    rowMeta.addValueMeta(new ValueMetaTimestamp("DATE_TO"));
+    return rowMeta;
+  }
+
   private static void assertCompareDateInterval(
       DimensionCache dc, Object from1, Object to1, Object from2, Object to2, int expectedValue) {
 
@@ -20,6 +20,7 @@ package org.apache.hop.pipeline.transforms.filterrows;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -29,6 +30,7 @@ import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transform.stream.IStream;
 
+import java.util.Arrays;
 import java.util.List;
 
 /** Filters input rows base on conditions. */
@@ -48,7 +50,7 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> {
 
   private synchronized boolean keepRow(IRowMeta rowMeta, Object[] row) throws HopException {
     try {
-      return meta.getCondition().evaluate(rowMeta, row);
+      return data.condition.evaluate(row);
     } catch (Exception e) {
       String message =
           BaseMessages.getString(
@@ -65,10 +67,15 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> {
   @Override
   public boolean processRow() throws HopException {
 
-    boolean keep;
+    if (data.rows == null) {
+      data.rows = new Object[Const.ROWS_IN_BATCH][];
+      data.keptRows = new Object[Const.ROWS_IN_BATCH][];
+    }
+    long linesBefore = getLinesRead();
 
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if (r == null) { // no more input to be expected...
+    // Get the next usable rows from input rowset(s)!
+    int nrRows = getRows(data.rows);
+    if (nrRows == 0) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -83,6 +90,18 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      // Compile the condition for the layout of the input rows, for the rows which can't be
+      // evaluated on columns
+      //
+      data.condition = meta.getCondition().compile(getInputRowMeta());
+
+      // Prepare a column batch with the fields used by the condition
+      //
+      data.batch = new RowBatch(getInputRowMeta(), data.rows.length);
+      data.batchColumns = getConditionFieldIndexes();
+      data.batchResult = new boolean[data.rows.length];
+      data.vectorized = true;
+
       // Cache the position of the IRowSet for the output.
       //
       if (data.chosesTargetTransforms) {
@@ -123,38 +142,28 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> {
       }
     }
 
-    keep = keepRow(getInputRowMeta(), r); // Keep this row?
+    boolean[] keep = evaluateBatch(nrRows);
+
     if (!data.chosesTargetTransforms) {
-      if (keep) {
-        putRow(data.outputRowMeta, r); // copy row to output rowset(s)
+      // Pass on the kept rows of the batch in one go
+      //
+      int nrKept = 0;
+      for (int i = 0; i < nrRows; i++) {
+        if (keep != null ? keep[i] : keepRow(getInputRowMeta(), data.rows[i])) {
+          data.keptRows[nrKept++] = data.rows[i];
+        }
       }
+      putRows(data.outputRowMeta, data.keptRows, nrKept); // copy rows to output rowset(s)
+      Arrays.fill(data.keptRows, 0, nrKept, null);
     } else {
-      if (keep) {
-        if (data.trueRowSet != null) {
-          if (log.isRowLevel()) {
-            logRowlevel(
-                "Sending row to true  :"
-                    + data.trueTransformName
-                    + " : "
-                    + getInputRowMeta().getString(r));
-          }
-          putRowTo(data.outputRowMeta, r, data.trueRowSet);
-        }
-      } else {
-        if (data.falseRowSet != null) {
-          if (log.isRowLevel()) {
-            logRowlevel(
-                "Sending row to false :"
-                    + data.falseTransformName
-                    + " : "
-                    + getInputRowMeta().getString(r));
-          }
-          putRowTo(data.outputRowMeta, r, data.falseRowSet);
-        }
+      for (int i = 0; i < nrRows; i++) {
+        Object[] r = data.rows[i];
+        sendRowToTarget(r, keep != null ? keep[i] : keepRow(getInputRowMeta(), r));
       }
     }
+    Arrays.fill(data.rows, 0, nrRows, null);
 
-    if (checkFeedback(getLinesRead())) {
+    if (checkFeedback(linesBefore, getLinesRead())) {
       if (log.isBasic()) {
         logBasic(BaseMessages.getString(PKG, "FilterRows.Log.LineNumber") + getLinesRead());
       }
@@ -163,6 +172,72 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> {
     return true;
   }
 
+  /**
+   * Evaluate the condition on the whole batch of input rows at once, using primitive column
+   * vectors.
+   *
+   * @param nrRows the number of rows in the batch
+   * @return the outcome for every row or null if the condition needs to be evaluated row by row
+   */
+  private boolean[] evaluateBatch(int nrRows) {
+    if (!data.vectorized) {
+      return null;
+    }
+    data.batch.setRows(data.rows, nrRows, data.batchColumns);
+    if (meta.getCondition().evaluate(data.batch, data.batchResult)) {
+      return data.batchResult;
+    }
+
+    // This condition can't be evaluated on columns, don't try again.
+    //
+    data.vectorized = false;
+    if (log.isDetailed()) {
+      logDetailed("The condition is evaluated row by row: " + meta.getCondition());
+    }
+    return null;
+  }
+
+  /** @return the indexes of the input fields used in the condition */
+  private int[] getConditionFieldIndexes() {
+    String[] fieldNames = meta.getCondition().getUsedFields();
+    int[] indexes = new int[fieldNames.length];
+    int nrIndexes = 0;
+    for (String fieldName : fieldNames) {
+      int index = getInputRowMeta().indexOfValue(fieldName);
+      if (index >= 0) {
+        indexes[nrIndexes++] = index;
+      }
+    }
+    return Arrays.copyOf(indexes, nrIndexes);
+  }
+
+  /** Send a row to the true or false target transform, if any. */
+  private void sendRowToTarget(Object[] r, boolean keep) throws HopException {
+    if (keep) {
+      if (data.trueRowSet != null) {
+        if (log.isRowLevel()) {
+          logRowlevel(
+              "Sending row to true  :"
+                  + data.trueTransformName
+                  + " : "
+                  + getInputRowMeta().getString(r));
+        }
+        putRowTo(data.outputRowMeta, r, data.trueRowSet);
+      }
+    } else {
+      if (data.falseRowSet != null) {
+        if (log.isRowLevel()) {
+          logRowlevel(
+              "Sending row to false :"
+                  + data.falseTransformName
+                  + " : "
+                  + getInputRowMeta().getString(r));
+        }
+        putRowTo(data.outputRowMeta, r, data.falseRowSet);
+      }
+    }
+  }
+
   @Override
   public boolean init() {
 
@@ -17,8 +17,10 @@
 
 package org.apache.hop.pipeline.transforms.filterrows;
 
+import org.apache.hop.core.CompiledCondition;
 import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
@@ -31,6 +33,27 @@ public class FilterRowsData extends BaseTransformData implements ITransformData
   public String trueTransformName;
   public String falseTransformName;
 
+  /** The batch of input rows */
+  public Object[][] rows;
+
+  /** The rows of the current batch which are kept */
+  public Object[][] keptRows;
+
+  /** The fields used by the condition of the current batch in columns */
+  public RowBatch batch;
+
+  /** The indexes of the fields used by the condition */
+  public int[] batchColumns;
+
+  /** The outcome of the condition for the current batch */
+  public boolean[] batchResult;
+
+  /** False if the condition can't be evaluated on the column batch */
+  public boolean vectorized;
+
+  /** The condition compiled for the input rows */
+  public CompiledCondition condition;
+
   public FilterRowsData() {
     super();
   }
@@ -18,6 +18,7 @@
 package org.apache.hop.pipeline.transforms.formula;
 
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.value.ValueMetaFactory;
@@ -30,7 +31,7 @@ import org.apache.hop.pipeline.transforms.formula.util.FormulaParser;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
@@ -41,14 +42,14 @@ public class Formula extends BaseTransform<FormulaMeta, FormulaData> {
 
   private XSSFWorkbook workBook;
   private XSSFSheet workSheet;
-  private Row sheetRow;
+  private FormulaEvaluator evaluator;
 
   @Override
   public boolean init() {
 
     workBook = new XSSFWorkbook();
     workSheet = workBook.createSheet();
-    sheetRow = workSheet.createRow(0);
+    evaluator = workBook.getCreationHelper().createFormulaEvaluator();
 
     data.returnType = new int[meta.getFormulas().size()];
     for (int i = 0; i < meta.getFormulas().size(); i++) {
@@ -102,25 +103,42 @@ public class Formula extends BaseTransform<FormulaMeta, FormulaData> {
           data.replaceIndex[i] = -1;
         }
       }
+
+      // Parse the formulas once, every formula gets its own row in the sheet.
+      // A formula can use the input fields and the results of the formulas before it.
+      //
+      data.parsers = new FormulaParser[meta.getFormulas().size()];
+      IRowMeta formulaRowMeta = getInputRowMeta().clone();
+      int resultIndex = getInputRowMeta().size();
+      for (int i = 0; i < meta.getFormulas().size(); i++) {
+        data.parsers[i] =
+            new FormulaParser(
+                meta.getFormulas().get(i),
+                formulaRowMeta,
+                workSheet.createRow(i),
+                evaluator,
+                variables);
+
+        int index = data.replaceIndex[i] < 0 ? resultIndex++ : data.replaceIndex[i];
+        if (index < formulaRowMeta.size()) {
+          formulaRowMeta.setValueMeta(index, data.outputRowMeta.getValueMeta(index));
+        } else if (index < data.outputRowMeta.size()) {
+          formulaRowMeta.addValueMeta(data.outputRowMeta.getValueMeta(index));
+        }
+      }
     }
 
     if (log.isRowLevel()) {
       logRowlevel("Read row #" + getLinesRead() + " : " + Arrays.toString(r));
     }
 
-    if (sheetRow != null) {
-      workSheet.removeRow(sheetRow);
-    }
-    sheetRow = workSheet.createRow(0);
-
     Object outputValue = null;
     Object[] outputRowData = RowDataUtil.resizeArray(r, data.outputRowMeta.size());
 
     for (int i = 0; i < meta.getFormulas().size(); i++) {
 
       FormulaMetaFunction formula = meta.getFormulas().get(i);
-      FormulaParser parser = new FormulaParser(formula, getInputRowMeta(), r, sheetRow, variables);
-      CellValue cellValue = parser.getFormulaValue();
+      CellValue cellValue = data.parsers[i].getFormulaValue(outputRowData);
 
       CellType cellType = cellValue.getCellType();
 
@@ -20,6 +20,7 @@ package org.apache.hop.pipeline.transforms.formula;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
+import org.apache.hop.pipeline.transforms.formula.util.FormulaParser;
 
 public class FormulaData extends BaseTransformData implements ITransformData {
 
@@ -36,6 +37,7 @@ public class FormulaData extends BaseTransformData implements ITransformData {
   public IRowMeta outputRowMeta;
   public int[] returnType;
   public int[] replaceIndex;
+  public FormulaParser[] parsers;
 
   public FormulaData() {
     super();
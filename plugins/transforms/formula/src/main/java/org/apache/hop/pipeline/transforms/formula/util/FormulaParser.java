@@ -17,91 +17,303 @@
 
 package org.apache.hop.pipeline.transforms.formula.util;
 
+import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.pipeline.transforms.formula.FormulaMetaFunction;
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AddPtg;
+import org.apache.poi.ss.formula.ptg.DividePtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.MultiplyPtg;
+import org.apache.poi.ss.formula.ptg.NumberPtg;
+import org.apache.poi.ss.formula.ptg.ParenthesisPtg;
+import org.apache.poi.ss.formula.ptg.PercentPtg;
+import org.apache.poi.ss.formula.ptg.PowerPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.SubtractPtg;
+import org.apache.poi.ss.formula.ptg.UnaryMinusPtg;
+import org.apache.poi.ss.formula.ptg.UnaryPlusPtg;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
-import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Evaluates a formula on the rows of a pipeline. The formula is parsed once: the fields it
+ * references are replaced by cells of a spreadsheet row which are filled in with the field values
+ * of every row before the formula cell is evaluated.
+ *
+ * <p>Formulas which only do arithmetic on Integer and Number fields and numeric constants are also
+ * compiled to an expression evaluated on the row values directly, without going through the
+ * spreadsheet.
+ */
 public class FormulaParser {
 
-  private FormulaMetaFunction formulaMetaFunction;
-  private IRowMeta rowMeta;
-  private String[] fieldNames;
-  private String formula;
-  private List<String> formulaFieldList;
-  private Object[] dataRow;
-  private Row sheetRow;
-  private FormulaEvaluator evaluator;
+  private static final Pattern FIELD_PATTERN = Pattern.compile("\\[(.*?)\\]");
+
+  private final FormulaEvaluator evaluator;
+
+  /** The indexes in the row of the fields referenced by the formula, one for every cell */
+  private final int[] fieldIndexes;
 
+  private final IValueMeta[] fieldMetas;
+  private final Cell[] fieldCells;
+  private final Cell formulaCell;
+
+  /** The compiled formula, null if the formula needs to be evaluated in the spreadsheet */
+  private final INumericExpression expression;
+
+  /**
+   * @param formulaMetaFunction the formula
+   * @param rowMeta the metadata of the rows to evaluate the formula on
+   * @param sheetRow the spreadsheet row reserved for this formula
+   * @param evaluator the evaluator of the workbook of the spreadsheet row
+   * @param variables to resolve the formula with
+   * @throws HopException in case the formula references a field which doesn't exist
+   */
   public FormulaParser(
-      FormulaMetaFunction formulaMetaFunction, IRowMeta rowMeta, Object[] dataRow, Row sheetRow, IVariables variables) {
-    this.formulaMetaFunction = formulaMetaFunction;
-    this.rowMeta = rowMeta;
-    this.dataRow = dataRow;
-    this.sheetRow = sheetRow;
-    fieldNames = rowMeta.getFieldNames();
-    formula = variables.resolve(formulaMetaFunction.getFormula());
-    evaluator = sheetRow.getSheet().getWorkbook().getCreationHelper().createFormulaEvaluator();
-
-    formulaFieldList = new ArrayList<>();
-    Pattern regex = Pattern.compile("\\[(.*?)\\]");
-    Matcher regexMatcher = regex.matcher(formula);
+      FormulaMetaFunction formulaMetaFunction,
+      IRowMeta rowMeta,
+      Row sheetRow,
+      FormulaEvaluator evaluator,
+      IVariables variables)
+      throws HopException {
+    this.evaluator = evaluator;
+    String formula = variables.resolve(formulaMetaFunction.getFormula());
 
+    List<String> formulaFieldList = new ArrayList<>();
+    Matcher regexMatcher = FIELD_PATTERN.matcher(formula);
     while (regexMatcher.find()) {
-      formulaFieldList.add(regexMatcher.group(1));
+      String formulaField = regexMatcher.group(1);
+      if (!formulaFieldList.contains(formulaField)) {
+        formulaFieldList.add(formulaField);
+      }
     }
-  }
 
-  public CellValue getFormulaValue() {
+    int nrFields = formulaFieldList.size();
+    fieldIndexes = new int[nrFields];
+    fieldMetas = new IValueMeta[nrFields];
+    fieldCells = new Cell[nrFields];
     String parsedFormula = formula;
-    int fieldIndex = 65;
-    int colIndex = 0;
-    for (String formulaField : formulaFieldList) {
-      char s = (char) fieldIndex;
-      Cell cell = sheetRow.createCell(colIndex);
-      int fieldPosition = rowMeta.indexOfValue(formulaField);
-
-      IValueMeta fieldMeta = rowMeta.getValueMeta(fieldPosition);
-      if (dataRow[fieldPosition] != null) {
-        if (fieldMeta.isBoolean()) {
-          cell.setCellValue((Boolean) dataRow[fieldPosition]);
-        } else if (fieldMeta.isBigNumber()) {
-          cell.setCellValue((RichTextString) dataRow[fieldPosition]);
-        } else if (fieldMeta.isDate()) {
-          cell.setCellValue((Date) dataRow[fieldPosition]);
-        } else if (fieldMeta.isInteger()) {
-          cell.setCellValue((Long) dataRow[fieldPosition]);
-        } else if (fieldMeta.isNumber()) {
-          cell.setCellValue((Double) dataRow[fieldPosition]);
-        } else if (fieldMeta.isString()) {
-          cell.setCellValue((String) dataRow[fieldPosition]);
-        } else if (fieldMeta.getType() == IValueMeta.TYPE_TIMESTAMP) {
-          cell.setCellValue((Timestamp) dataRow[fieldPosition]);
-        } else {
-          cell.setCellValue((String) dataRow[fieldPosition]);
-        }
+    for (int colIndex = 0; colIndex < nrFields; colIndex++) {
+      String formulaField = formulaFieldList.get(colIndex);
+      fieldIndexes[colIndex] = rowMeta.indexOfValue(formulaField);
+      if (fieldIndexes[colIndex] < 0) {
+        throw new HopException(
+            "Unable to find field [" + formulaField + "] used in formula '" + formula + "'");
       }
+      fieldMetas[colIndex] = rowMeta.getValueMeta(fieldIndexes[colIndex]);
+      fieldCells[colIndex] = sheetRow.createCell(colIndex);
 
-      parsedFormula = parsedFormula.replaceAll("\\[" + formulaField + "\\]", s + "1");
-      fieldIndex++;
-      colIndex++;
+      String cellReference =
+          CellReference.convertNumToColString(colIndex) + (sheetRow.getRowNum() + 1);
+      parsedFormula = parsedFormula.replace("[" + formulaField + "]", cellReference);
     }
 
-    Cell formulaCell = sheetRow.createCell(colIndex);
+    formulaCell = sheetRow.createCell(nrFields);
     formulaCell.setCellFormula(parsedFormula);
 
+    expression = compile(parsedFormula, sheetRow);
+  }
+
+  /**
+   * @param dataRow the row to evaluate the formula on
+   * @return the value of the formula
+   */
+  public CellValue getFormulaValue(Object[] dataRow) {
+    if (expression != null) {
+      double value = expression.evaluate(dataRow);
+      if (Double.isFinite(value)) {
+        return new CellValue(value);
+      }
+      // An error like a division by zero, let the spreadsheet report it
+    }
+
+    for (int colIndex = 0; colIndex < fieldCells.length; colIndex++) {
+      setCellValue(fieldCells[colIndex], fieldMetas[colIndex], dataRow[fieldIndexes[colIndex]]);
+    }
+    evaluator.clearAllCachedResultValues();
+
     return evaluator.evaluate(formulaCell);
   }
+
+  /**
+   * @return true if the formula is evaluated on the row values, without the spreadsheet
+   */
+  boolean isCompiled() {
+    return expression != null;
+  }
+
+  private static void setCellValue(Cell cell, IValueMeta fieldMeta, Object value) {
+    if (value == null) {
+      cell.setBlank();
+    } else if (fieldMeta.isBoolean()) {
+      cell.setCellValue((Boolean) value);
+    } else if (fieldMeta.isBigNumber()) {
+      cell.setCellValue(((BigDecimal) value).doubleValue());
+    } else if (fieldMeta.isDate()) {
+      cell.setCellValue((Date) value);
+    } else if (fieldMeta.isInteger()) {
+      cell.setCellValue((Long) value);
+    } else if (fieldMeta.isNumber()) {
+      cell.setCellValue((Double) value);
+    } else if (fieldMeta.isString()) {
+      cell.setCellValue((String) value);
+    } else if (fieldMeta.getType() == IValueMeta.TYPE_TIMESTAMP) {
+      cell.setCellValue((Timestamp) value);
+    } else {
+      cell.setCellValue((String) value);
+    }
+  }
+
+  /** An arithmetic expression on the values of a row */
+  @FunctionalInterface
+  private interface INumericExpression {
+    /**
+     * @param row the row
+     * @return the value, NaN in case of an error
+     */
+    double evaluate(Object[] row);
+  }
+
+  /**
+   * Compile a formula to an expression on the row values if it only consists of arithmetic
+   * operators, numeric constants and references to Integer or Number fields. The tokens of the
+   * parsed formula are in reverse polish notation.
+   *
+   * @return the expression or null if the formula needs to be evaluated in the spreadsheet
+   */
+  private INumericExpression compile(String parsedFormula, Row sheetRow) {
+    if (!(sheetRow.getSheet().getWorkbook() instanceof XSSFWorkbook)) {
+      return null;
+    }
+    XSSFWorkbook workbook = (XSSFWorkbook) sheetRow.getSheet().getWorkbook();
+    Ptg[] tokens;
+    try {
+      tokens =
+          org.apache.poi.ss.formula.FormulaParser.parse(
+              parsedFormula,
+              XSSFEvaluationWorkbook.create(workbook),
+              FormulaType.CELL,
+              workbook.getSheetIndex(sheetRow.getSheet()),
+              sheetRow.getRowNum());
+    } catch (FormulaParseException e) {
+      return null;
+    }
+
+    Deque<INumericExpression> stack = new ArrayDeque<>();
+    for (Ptg token : tokens) {
+      if (token instanceof NumberPtg) {
+        double constant = ((NumberPtg) token).getValue();
+        stack.push(row -> constant);
+      } else if (token instanceof IntPtg) {
+        double constant = ((IntPtg) token).getValue();
+        stack.push(row -> constant);
+      } else if (token instanceof RefPtg) {
+        INumericExpression field = compileField((RefPtg) token, sheetRow.getRowNum());
+        if (field == null) {
+          return null;
+        }
+        stack.push(field);
+      } else if (token instanceof ParenthesisPtg || token instanceof UnaryPlusPtg) {
+        if (stack.isEmpty()) {
+          return null;
+        }
+      } else if (token instanceof UnaryMinusPtg || token instanceof PercentPtg) {
+        if (stack.isEmpty()) {
+          return null;
+        }
+        INumericExpression operand = stack.pop();
+        if (token instanceof UnaryMinusPtg) {
+          stack.push(row -> unsigned(checked(-operand.evaluate(row))));
+        } else {
+          stack.push(row -> checked(operand.evaluate(row) / 100));
+        }
+      } else {
+        if (stack.size() < 2) {
+          return null;
+        }
+        INumericExpression right = stack.pop();
+        INumericExpression left = stack.pop();
+        INumericExpression operation = compileOperation(token, left, right);
+        if (operation == null) {
+          return null;
+        }
+        stack.push(operation);
+      }
+    }
+    return stack.size() == 1 ? stack.pop() : null;
+  }
+
+  private INumericExpression compileField(RefPtg reference, int rowNum) {
+    int colIndex = reference.getColumn();
+    if (reference.getRow() != rowNum || colIndex >= fieldCells.length) {
+      return null;
+    }
+    IValueMeta fieldMeta = fieldMetas[colIndex];
+    if (fieldMeta.getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL
+        || !(fieldMeta.isInteger() || fieldMeta.isNumber())) {
+      return null;
+    }
+    int fieldIndex = fieldIndexes[colIndex];
+
+    // An empty cell counts as zero
+    //
+    return row -> {
+      Object value = row[fieldIndex];
+      if (value == null) {
+        return 0.0;
+      }
+      return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    };
+  }
+
+  /**
+   * The operations follow the spreadsheet evaluation: a division by zero or a result which isn't a
+   * finite number are errors and a zero result has no sign, except for a subtraction.
+   */
+  private static INumericExpression compileOperation(
+      Ptg token, INumericExpression left, INumericExpression right) {
+    if (token instanceof AddPtg) {
+      return row -> unsigned(checked(left.evaluate(row) + right.evaluate(row)));
+    } else if (token instanceof SubtractPtg) {
+      return row -> checked(left.evaluate(row) - right.evaluate(row));
+    } else if (token instanceof MultiplyPtg) {
+      return row -> unsigned(checked(left.evaluate(row) * right.evaluate(row)));
+    } else if (token instanceof DividePtg) {
+      return row -> {
+        double dividend = left.evaluate(row);
+        double divisor = right.evaluate(row);
+        return divisor == 0.0 ? Double.NaN : unsigned(checked(dividend / divisor));
+      };
+    } else if (token instanceof PowerPtg) {
+      return row -> unsigned(checked(Math.pow(left.evaluate(row), right.evaluate(row))));
+    }
+    return null;
+  }
+
+  private static double checked(double value) {
+    return Double.isFinite(value) ? value : Double.NaN;
+  }
+
+  private static double unsigned(double value) {
+    return value == 0.0 ? 0.0 : value;
+  }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.formula;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class FormulaTest {
+
+  private TransformMockHelper<FormulaMeta, FormulaData> mockHelper;
+  private IRowMeta inputRowMeta;
+  private List<Object[]> output;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    mockHelper = new TransformMockHelper<>("Formula", FormulaMeta.class, FormulaData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaNumber("price"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("quantity"));
+
+    output = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  private static FormulaMetaFunction createFunction(
+      String fieldName, String formula, int valueType, String replaceField) {
+    FormulaMetaFunction function = new FormulaMetaFunction();
+    function.setFieldName(fieldName);
+    function.setFormula(formula);
+    function.setValueType(valueType);
+    function.setReplaceField(replaceField);
+    return function;
+  }
+
+  private Formula createTransform(List<FormulaMetaFunction> functions, Object[]... rows)
+      throws Exception {
+    FormulaMeta meta = new FormulaMeta();
+    meta.setFormulas(functions);
+
+    Formula transform =
+        spy(
+            new Formula(
+                mockHelper.transformMeta,
+                meta,
+                new FormulaData(),
+                0,
+                mockHelper.pipelineMeta,
+                mockHelper.pipeline));
+
+    Iterator<Object[]> iterator = Arrays.asList(rows).iterator();
+    doAnswer(invocation -> iterator.hasNext() ? iterator.next() : null).when(transform).getRow();
+    doReturn(inputRowMeta).when(transform).getInputRowMeta();
+    doAnswer(
+            invocation -> {
+              output.add((Object[]) invocation.getArguments()[1]);
+              return null;
+            })
+        .when(transform)
+        .putRow(any(IRowMeta.class), any(Object[].class));
+
+    assertTrue(transform.init());
+    return transform;
+  }
+
+  @Test
+  public void testFormulasUseTheResultsOfEarlierFormulas() throws Exception {
+    Formula transform =
+        createTransform(
+            Arrays.asList(
+                createFunction("total", "[price]*[quantity]", IValueMeta.TYPE_NUMBER, null),
+                createFunction("with_tax", "[total]*1.21", IValueMeta.TYPE_NUMBER, null),
+                createFunction(null, "[quantity]+1", IValueMeta.TYPE_INTEGER, "quantity"),
+                createFunction("double", "[quantity]*2", IValueMeta.TYPE_INTEGER, null)),
+            new Object[] {2.5, 4L},
+            new Object[] {null, 10L});
+
+    while (transform.processRow()) {
+      // Process all the rows
+    }
+
+    // The replaced quantity is used by the formula after it
+    //
+    assertEquals(2, output.size());
+    Object[] row = output.get(0);
+    assertEquals(2.5, (Double) row[0], 0.0);
+    assertEquals(5L, row[1]);
+    assertEquals(10.0, (Double) row[2], 0.0);
+    assertEquals(12.1, (Double) row[3], 1e-9);
+    assertEquals(10L, row[4]);
+
+    // An empty price counts as zero
+    //
+    row = output.get(1);
+    assertEquals(11L, row[1]);
+    assertEquals(0.0, (Double) row[2], 0.0);
+    assertEquals(0.0, (Double) row[3], 0.0);
+    assertEquals(22L, row[4]);
+
+    IRowMeta outputRowMeta = transform.getData().outputRowMeta;
+    assertEquals(5, outputRowMeta.size());
+    assertEquals(IValueMeta.TYPE_INTEGER, outputRowMeta.getValueMeta(1).getType());
+    assertEquals("double", outputRowMeta.getValueMeta(4).getName());
+    assertFalse(transform.processRow());
+  }
+
+  @Test
+  public void testFormulasCantUseTheResultsOfLaterFormulas() throws Exception {
+    Formula transform =
+        createTransform(
+            Arrays.asList(
+                createFunction("with_tax", "[total]*1.21", IValueMeta.TYPE_NUMBER, null),
+                createFunction("total", "[price]*[quantity]", IValueMeta.TYPE_NUMBER, null)),
+            new Object[] {2.5, 4L});
+    try {
+      transform.processRow();
+      fail("The field of the later formula should not be found");
+    } catch (HopException e) {
+      assertTrue(e.getMessage().contains("[total]"));
+    }
+  }
+}
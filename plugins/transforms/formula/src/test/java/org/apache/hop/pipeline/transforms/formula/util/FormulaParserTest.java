@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.formula.util;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.variables.Variables;
+import org.apache.hop.pipeline.transforms.formula.FormulaMetaFunction;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FormulaParserTest {
+
+  /** Arithmetic formulas which are compiled */
+  private static final String[] FORMULAS = {
+    "[a]+[b]*2",
+    "([a]+[b])*2",
+    "[a]-[b]/[c]",
+    "[a]-[a]",
+    "-[a]",
+    "-[a]^2",
+    "2^3^2",
+    "-[a]-[b]",
+    "-([b]-[b])",
+    "[a]%",
+    "-[a]%*[b]",
+    "10%+[a]",
+    "+[a]*3",
+    "[a]/[c]",
+    "[a]/[n]",
+    "[a]*[n]+1",
+    "[n]",
+    "[a]^0.5",
+    "1E300*[b]*1E10",
+  };
+
+  /** The rows for the fields a (Integer), b (Number), c (Integer) and n (Number) */
+  private static final Object[][] ROWS = {
+    {3L, 2.5, 4L, null},
+    {-7L, 0.1, 0L, null},
+    {0L, -1.5, -2L, 1.25},
+    {null, 1e10, 1L, 0.0},
+    {12L, null, null, -0.5},
+  };
+
+  private Workbook xssfWorkbook;
+  private Sheet xssfSheet;
+  private FormulaEvaluator xssfEvaluator;
+
+  private Workbook hssfWorkbook;
+  private Sheet hssfSheet;
+  private FormulaEvaluator hssfEvaluator;
+
+  private IRowMeta rowMeta;
+  private int nrParsers;
+
+  @Before
+  public void setUp() {
+    xssfWorkbook = new XSSFWorkbook();
+    xssfSheet = xssfWorkbook.createSheet();
+    xssfEvaluator = xssfWorkbook.getCreationHelper().createFormulaEvaluator();
+
+    // Formulas are never compiled on a binary workbook: its evaluation is the reference
+    //
+    hssfWorkbook = new HSSFWorkbook();
+    hssfSheet = hssfWorkbook.createSheet();
+    hssfEvaluator = hssfWorkbook.getCreationHelper().createFormulaEvaluator();
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("a"));
+    rowMeta.addValueMeta(new ValueMetaNumber("b"));
+    rowMeta.addValueMeta(new ValueMetaInteger("c"));
+    rowMeta.addValueMeta(new ValueMetaNumber("n"));
+    rowMeta.addValueMeta(new ValueMetaString("s"));
+    rowMeta.addValueMeta(new ValueMetaBigNumber("big"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    xssfWorkbook.close();
+    hssfWorkbook.close();
+  }
+
+  private FormulaParser createParser(String formula, boolean compiling) throws HopException {
+    FormulaMetaFunction function = new FormulaMetaFunction();
+    function.setFieldName("result");
+    function.setFormula(formula);
+    int rowNum = nrParsers++;
+    return compiling
+        ? new FormulaParser(
+            function, rowMeta, xssfSheet.createRow(rowNum), xssfEvaluator, new Variables())
+        : new FormulaParser(
+            function, rowMeta, hssfSheet.createRow(rowNum), hssfEvaluator, new Variables());
+  }
+
+  private static Object[] row(Object... values) {
+    Object[] row = new Object[6];
+    System.arraycopy(values, 0, row, 0, values.length);
+    return row;
+  }
+
+  private static void assertSameValue(String message, CellValue expected, CellValue actual) {
+    assertEquals(message, expected.getCellType(), actual.getCellType());
+    if (expected.getCellType() == CellType.NUMERIC) {
+      double value = expected.getNumberValue();
+      assertEquals(message, value, actual.getNumberValue(), Math.abs(value) * 1e-12);
+    } else {
+      assertEquals(message, expected.formatAsString(), actual.formatAsString());
+    }
+  }
+
+  @Test
+  public void testCompiledFormulasMatchTheSpreadsheet() throws Exception {
+    for (String formula : FORMULAS) {
+      FormulaParser compiled = createParser(formula, true);
+      FormulaParser evaluated = createParser(formula, false);
+      assertTrue(formula, compiled.isCompiled());
+      assertFalse(formula, evaluated.isCompiled());
+
+      for (Object[] values : ROWS) {
+        Object[] row = row(values);
+        String message = formula + " on " + Arrays.toString(values);
+        assertSameValue(message, evaluated.getFormulaValue(row), compiled.getFormulaValue(row));
+      }
+    }
+  }
+
+  @Test
+  public void testOperatorPrecedence() throws Exception {
+    Object[] row = row(3L, 2.5, 4L, null);
+    assertEquals(8.0, createParser("[a]+[b]*2", true).getFormulaValue(row).getNumberValue(), 0.0);
+    assertEquals(
+        11.0, createParser("([a]+[b])*2", true).getFormulaValue(row).getNumberValue(), 0.0);
+
+    // The unary minus goes before the power, the power is evaluated from left to right
+    //
+    assertEquals(9.0, createParser("-[a]^2", true).getFormulaValue(row).getNumberValue(), 0.0);
+    assertEquals(-9.0, createParser("0-[a]^2", true).getFormulaValue(row).getNumberValue(), 0.0);
+    assertEquals(64.0, createParser("2^3^2", true).getFormulaValue(row).getNumberValue(), 0.0);
+
+    // The percent goes before the multiplication
+    //
+    assertEquals(
+        -0.075, createParser("-[a]%*[b]", true).getFormulaValue(row).getNumberValue(), 1e-15);
+  }
+
+  @Test
+  public void testDivisionByZero() throws Exception {
+    for (String formula : new String[] {"[a]/[c]", "[a]/[n]", "[a]/0", "1/([c]-[c])"}) {
+      for (boolean compiling : new boolean[] {true, false}) {
+        CellValue value =
+            createParser(formula, compiling).getFormulaValue(row(3L, 2.5, 0L, null));
+        assertEquals(formula, CellType.ERROR, value.getCellType());
+        assertEquals(formula, FormulaError.DIV0.getCode(), value.getErrorValue());
+      }
+    }
+  }
+
+  @Test
+  public void testNullFieldsCountAsZero() throws Exception {
+    Object[] row = row(null, null, null, null);
+    for (boolean compiling : new boolean[] {true, false}) {
+      assertEquals(1.0, createParser("[a]+1", compiling).getFormulaValue(row).getNumberValue(), 0);
+      assertEquals(0.0, createParser("-[b]", compiling).getFormulaValue(row).getNumberValue(), 0);
+      assertEquals(0.0, createParser("[n]", compiling).getFormulaValue(row).getNumberValue(), 0);
+    }
+  }
+
+  @Test
+  public void testMissingField() throws Exception {
+    try {
+      createParser("[a]+[missing]", true);
+      fail("The missing field should be reported");
+    } catch (HopException e) {
+      assertTrue(e.getMessage().contains("[missing]"));
+    }
+  }
+
+  @Test
+  public void testOtherFormulasUseTheSpreadsheet() throws Exception {
+    Object[] row = row(3L, 2.5, 4L, null, "Hop", new BigDecimal("1.5"));
+
+    FormulaParser concat = createParser("[s]&\"!\"", true);
+    assertFalse(concat.isCompiled());
+    assertEquals("Hop!", concat.getFormulaValue(row).getStringValue());
+
+    FormulaParser function = createParser("SUM([a],[b])", true);
+    assertFalse(function.isCompiled());
+    assertEquals(5.5, function.getFormulaValue(row).getNumberValue(), 0.0);
+
+    FormulaParser comparison = createParser("[a]>[b]", true);
+    assertFalse(comparison.isCompiled());
+    assertTrue(comparison.getFormulaValue(row).getBooleanValue());
+
+    FormulaParser bigNumber = createParser("[big]*2", true);
+    assertFalse(bigNumber.isCompiled());
+    assertEquals(3.0, bigNumber.getFormulaValue(row).getNumberValue(), 0.0);
+  }
+}
@@ -73,6 +73,12 @@ public class Aggregation implements Cloneable {
 
   public static final int TYPE_GROUP_CONCAT_DISTINCT = 22;
 
+  public static final int TYPE_GROUP_APPROX_COUNT_DISTINCT = 23;
+
+  public static final int TYPE_GROUP_APPROX_PERCENTILE = 24;
+
+  public static final int TYPE_GROUP_APPROX_TOP_K = 25;
+
   public static final String[]
       typeGroupLabel = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */ {
     "-",
@@ -98,6 +104,9 @@ public class Aggregation implements Cloneable {
     "PERCENTILE_NEAREST_RANK",
     "CONCAT_STRING_CRLF",
     "CONCAT_DISTINCT",
+    "APPROX_COUNT_DISTINCT",
+    "APPROX_PERCENTILE",
+    "APPROX_TOP_K",
   };
 
   public static final String[] typeGroupLongDesc = {
@@ -123,7 +132,10 @@ public class Aggregation implements Cloneable {
     BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.STANDARD_DEVIATION_SAMPLE"),
     BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.PERCENTILE_NEAREST_RANK"),
     BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.CONCAT_STRING_CRLF"),
-    BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.CONCAT_DISTINCT")
+    BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.CONCAT_DISTINCT"),
+    BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.APPROX_COUNT_DISTINCT"),
+    BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.APPROX_PERCENTILE"),
+    BaseMessages.getString(PKG, "GroupByMeta.TypeGroupLongDesc.APPROX_TOP_K")
   };
 
   @HopMetadataProperty(
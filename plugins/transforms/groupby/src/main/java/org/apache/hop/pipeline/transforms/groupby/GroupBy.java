@@ -34,6 +34,9 @@ import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaNone;
 import org.apache.hop.core.row.value.ValueMetaNumber;
 import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.sketch.CountMinTopK;
+import org.apache.hop.core.sketch.HyperLogLog;
+import org.apache.hop.core.sketch.TDigest;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.vfs.HopVfs;
 import org.apache.hop.i18n.BaseMessages;
@@ -557,6 +560,21 @@ public class GroupBy extends BaseTransform<GroupByMeta, GroupByData> {
             sb.append(subjMeta.getString(subj));
           }
           break;
+        case Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          if (!subjMeta.isNull(subj)) {
+            ((HyperLogLog) value).add(subjMeta.convertToNormalStorageType(subj));
+          }
+          break;
+        case Aggregation.TYPE_GROUP_APPROX_PERCENTILE:
+          if (!subjMeta.isNull(subj)) {
+            ((TDigest) value).add(subjMeta.getNumber(subj));
+          }
+          break;
+        case Aggregation.TYPE_GROUP_APPROX_TOP_K:
+          if (!subjMeta.isNull(subj)) {
+            ((CountMinTopK) value).add(subjMeta.getString(subj));
+          }
+          break;
         case Aggregation.TYPE_GROUP_CONCAT_DISTINCT:
           if (subj != null) {
             SortedSet<Object> set = (SortedSet<Object>) value;
@@ -643,6 +661,18 @@ public class GroupBy extends BaseTransform<GroupByMeta, GroupByData> {
           vMeta = new ValueMetaString(fieldName);
           v = new TreeSet<>();
           break;          
+        case Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          vMeta = new ValueMetaInteger(fieldName);
+          v = createSketch(aggregation);
+          break;
+        case Aggregation.TYPE_GROUP_APPROX_PERCENTILE:
+          vMeta = new ValueMetaNumber(fieldName);
+          v = createSketch(aggregation);
+          break;
+        case Aggregation.TYPE_GROUP_APPROX_TOP_K:
+          vMeta = new ValueMetaString(fieldName);
+          v = createSketch(aggregation);
+          break;
         default:
           // TODO raise an error here because we cannot continue successfully maybe the UI should
           // validate this
@@ -653,7 +683,9 @@ public class GroupBy extends BaseTransform<GroupByMeta, GroupByData> {
       if ((subjMeta != null)
           && (aggType != Aggregation.TYPE_GROUP_COUNT_ALL
               && aggType != Aggregation.TYPE_GROUP_COUNT_DISTINCT
-              && aggType != Aggregation.TYPE_GROUP_COUNT_ANY)) {
+              && aggType != Aggregation.TYPE_GROUP_COUNT_ANY
+              && aggType != Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT
+              && aggType != Aggregation.TYPE_GROUP_APPROX_TOP_K)) {
         vMeta.setLength(subjMeta.getLength(), subjMeta.getPrecision());
       }
       data.agg[i] = v;
@@ -671,6 +703,27 @@ public class GroupBy extends BaseTransform<GroupByMeta, GroupByData> {
     }
   }
 
+  /**
+   * Create the fixed size sketch of an approximate aggregate. The value of the aggregation is the
+   * precision of a HyperLogLog sketch or the number of values of a top-K.
+   */
+  private Object createSketch(Aggregation aggregation) throws HopException {
+    String value = resolve(aggregation.getValue());
+    try {
+      switch (aggregation.getType()) {
+        case Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          return new HyperLogLog(Const.toInt(value, HyperLogLog.DEFAULT_PRECISION));
+        case Aggregation.TYPE_GROUP_APPROX_TOP_K:
+          return new CountMinTopK(Const.toInt(value, CountMinTopK.DEFAULT_K));
+        default:
+          return new TDigest();
+      }
+    } catch (IllegalArgumentException e) {
+      throw new HopException(
+          "Invalid value '" + value + "' for aggregation '" + aggregation.getField() + "'", e);
+    }
+  }
+
   private Object[] buildResult(Object[] r) throws HopValueException {
     Object[] result = null;
     if (r != null || meta.isAlwaysGivingBackOneRow()) {
@@ -784,6 +837,23 @@ public class GroupBy extends BaseTransform<GroupByMeta, GroupByData> {
         case Aggregation.TYPE_GROUP_CONCAT_STRING:
           ag = ((StringBuilder) ag).toString();
           break;
+        case Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          ag = ((HyperLogLog) ag).estimate();
+          break;
+        case Aggregation.TYPE_GROUP_APPROX_PERCENTILE:
+          {
+            double quantile = Const.toDouble(resolve(aggregation.getValue()), 50.0) / 100.0;
+            if (quantile < 0.0 || quantile > 1.0) {
+              throw new HopValueException(
+                  "The percentile of aggregation '" + fieldName + "' has to be between 0 and 100");
+            }
+            double estimate = ((TDigest) ag).quantile(quantile);
+            ag = Double.isNaN(estimate) ? null : estimate;
+            break;
+          }
+        case Aggregation.TYPE_GROUP_APPROX_TOP_K:
+          ag = String.join(", ", ((CountMinTopK) ag).getTopK());
+          break;
         case Aggregation.TYPE_GROUP_CONCAT_DISTINCT:
           IValueMeta subjMeta = data.inputRowMeta.getValueMeta(data.subjectnrs[i]);
           String separator = "";
@@ -267,6 +267,7 @@ public class GroupByMeta extends BaseTransformMeta<GroupBy, GroupByData> {
           case Aggregation.TYPE_GROUP_COUNT_DISTINCT:
           case Aggregation.TYPE_GROUP_COUNT_ANY:
           case Aggregation.TYPE_GROUP_COUNT_ALL:
+          case Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT:
             valueType = IValueMeta.TYPE_INTEGER;
             break;
           case Aggregation.TYPE_GROUP_CONCAT_COMMA:
@@ -277,11 +278,13 @@ public class GroupByMeta extends BaseTransformMeta<GroupBy, GroupByData> {
           case Aggregation.TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
           case Aggregation.TYPE_GROUP_PERCENTILE:
           case Aggregation.TYPE_GROUP_PERCENTILE_NEAREST_RANK:
+          case Aggregation.TYPE_GROUP_APPROX_PERCENTILE:
             valueType = IValueMeta.TYPE_NUMBER;
             break;
           case Aggregation.TYPE_GROUP_CONCAT_STRING:
           case Aggregation.TYPE_GROUP_CONCAT_STRING_CRLF:
           case Aggregation.TYPE_GROUP_CONCAT_DISTINCT:
+          case Aggregation.TYPE_GROUP_APPROX_TOP_K:
             valueType = IValueMeta.TYPE_STRING;
             break;
           default:
@@ -297,7 +300,8 @@ public class GroupByMeta extends BaseTransformMeta<GroupBy, GroupByData> {
           length = -1;
         } else if (aggregationType == Aggregation.TYPE_GROUP_COUNT_ALL
             || aggregationType == Aggregation.TYPE_GROUP_COUNT_DISTINCT
-            || aggregationType == Aggregation.TYPE_GROUP_COUNT_ANY) {
+            || aggregationType == Aggregation.TYPE_GROUP_COUNT_ANY
+            || aggregationType == Aggregation.TYPE_GROUP_APPROX_COUNT_DISTINCT) {
           length = IValueMeta.DEFAULT_INTEGER_LENGTH;
           precision = 0;
         } else if (aggregationType == Aggregation.TYPE_GROUP_SUM
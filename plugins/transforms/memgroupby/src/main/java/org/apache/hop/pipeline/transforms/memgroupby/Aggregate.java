@@ -24,4 +24,13 @@ public class Aggregate {
   public long[] counts;
   public Set<Object>[] distinctObjs;
   public double[] mean;
+
+  /** The primitive sums, minimums and maximums when aggregating batches of Integer values */
+  public long[] longAgg;
+
+  /** The primitive sums, minimums and maximums when aggregating batches of Number values */
+  public double[] doubleAgg;
+
+  /** The number of rows aggregated in batches */
+  public long rowCount;
 }
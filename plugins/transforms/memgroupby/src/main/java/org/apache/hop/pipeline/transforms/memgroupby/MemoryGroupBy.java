@@ -23,6 +23,7 @@ import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.ValueDataUtil;
@@ -30,6 +31,9 @@ import org.apache.hop.core.row.value.ValueMetaBase;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaNumber;
 import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.sketch.CountMinTopK;
+import org.apache.hop.core.sketch.HyperLogLog;
+import org.apache.hop.core.sketch.TDigest;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -39,8 +43,10 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.StringJoiner;
@@ -66,18 +72,24 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
   @Override
   public boolean processRow() throws HopException {
 
+    if (data.batchAggregation) {
+      return processRows();
+    }
+
     Object[] r = getRow(); // get row!
 
     if (first) {
       if ((r == null) && (!meta.isAlwaysGivingBackOneRow())) {
+        // In two-phase aggregation this copy may still have to output the groups of the others
+        //
+        if (data.twoPhase != null && mergePartials()) {
+          handleLastOfGroup();
+        }
         setOutputDone();
         return false;
       }
 
-      String val = getVariable(Const.HOP_AGGREGATION_ALL_NULLS_ARE_ZERO, "N");
-      allNullsAreZero = ValueMetaBase.convertStringToBoolean(val);
-      val = getVariable(Const.HOP_AGGREGATION_MIN_NULL_IS_VALUED, "N");
-      minNullIsValued = ValueMetaBase.convertStringToBoolean(val);
+      readAggregationVariables();
 
       // What is the output looking like?
       //
@@ -160,18 +172,35 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
     // Here is where we start to do the real work...
     //
     if (r == null) { // no more input to be expected... (or none received in the first place)
-      handleLastOfGroup();
+      if (data.twoPhase == null || mergePartials()) {
+        handleLastOfGroup();
+      }
 
       setOutputDone();
       return false;
     }
 
     if (first || data.newBatch) {
+      if (first) {
+        prepareSpillingAggregation();
+        if (data.aggregator == null) {
+          prepareBatchAggregation();
+        }
+      }
       first = false;
       data.newBatch = false;
+      data.receivedRows = true;
     }
 
-    addToAggregate(r);
+    if (data.aggregator != null) {
+      data.aggregator.addRow(r);
+    } else if (data.batchAggregation) {
+      data.rows[0] = r;
+      addRowsToAggregate(1);
+      data.rows[0] = null;
+    } else {
+      addToAggregate(r);
+    }
 
     if (checkFeedback(getLinesRead())) {
       if (log.isBasic()) {
@@ -182,30 +211,579 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
     return true;
   }
 
-  private void handleLastOfGroup() throws HopException {
-    // Dump the content of the map...
+  /**
+   * Read and aggregate a batch of rows at once. This is used after the first row when all
+   * aggregates can be calculated on primitive Integer or Number vectors.
+   */
+  private boolean processRows() throws HopException {
+    long linesBefore = getLinesRead();
+    int nrRows = getRows(data.rows);
+    if (nrRows == 0) { // no more input to be expected...
+      if (data.twoPhase == null || mergePartials()) {
+        handleLastOfGroup();
+      }
+
+      setOutputDone();
+      return false;
+    }
+    data.newBatch = false;
+
+    try {
+      addRowsToAggregate(nrRows);
+    } finally {
+      Arrays.fill(data.rows, 0, nrRows, null);
+    }
+
+    if (checkFeedback(linesBefore, getLinesRead())) {
+      if (log.isBasic()) {
+        logBasic(BaseMessages.getString(PKG, "MemoryGroupBy.LineNumber") + getLinesRead());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * With a memory limit the groups are kept in a hash table over binary keys which spills to disk
+   * when the limit is exceeded. This is possible when all aggregates are counts or sums, averages,
+   * minimums or maximums of Integer or Number values.
+   */
+  void prepareSpillingAggregation() {
+    long memoryLimit = Const.toLong(resolve(meta.getMemoryLimit()), 0L) * 1024L * 1024L;
+    if (memoryLimit <= 0) {
+      return;
+    }
+    for (int groupnr : data.groupnrs) {
+      if (!SpillingHashAggregator.isSupportedGroupField(data.inputRowMeta.getValueMeta(groupnr))) {
+        logBasic(
+            BaseMessages.getString(
+                PKG,
+                "MemoryGroupBy.Log.MemoryLimitNotSupported",
+                data.inputRowMeta.getValueMeta(groupnr).getName()));
+        return;
+      }
+    }
+    for (int i = 0; i < data.subjectnrs.length; i++) {
+      int type = meta.getAggregateType()[i];
+      IValueMeta subjMeta =
+          type == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+              ? null
+              : data.inputRowMeta.getValueMeta(data.subjectnrs[i]);
+      if (subjMeta != null && !SpillingHashAggregator.isSupported(type, subjMeta)) {
+        logBasic(
+            BaseMessages.getString(
+                PKG, "MemoryGroupBy.Log.MemoryLimitNotSupported", meta.getAggregateField()[i]));
+        return;
+      }
+    }
+
+    data.aggregator =
+        new SpillingHashAggregator(
+            log,
+            data.inputRowMeta,
+            data.groupnrs,
+            data.subjectnrs,
+            meta.getAggregateType(),
+            memoryLimit,
+            resolve(meta.getSpillDirectory()));
+
+    if (log.isDetailed()) {
+      logDetailed("Aggregating in a hash table of at most " + memoryLimit + " bytes");
+    }
+  }
+
+  /**
+   * See if all aggregates are sums, averages, counts, minimums or maximums of Integer or Number
+   * values. In that case the rows are aggregated per batch using primitive vectors and
+   * accumulators instead of one row at a time.
+   */
+  void prepareBatchAggregation() {
+    List<Integer> columns = new ArrayList<>();
+    for (int i = 0; i < data.subjectnrs.length; i++) {
+      switch (meta.getAggregateType()[i]) {
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          IValueMeta subjMeta = data.inputRowMeta.getValueMeta(data.subjectnrs[i]);
+          if (!RowBatch.isNumericVector(subjMeta)) {
+            return;
+          }
+          if (!columns.contains(data.subjectnrs[i])) {
+            columns.add(data.subjectnrs[i]);
+          }
+          break;
+        default:
+          return;
+      }
+    }
+
+    data.rows = new Object[Const.ROWS_IN_BATCH][];
+    data.batch = new RowBatch(data.inputRowMeta, Const.ROWS_IN_BATCH);
+    data.batchColumns = columns.stream().mapToInt(Integer::intValue).toArray();
+    data.batchAggregates = new Aggregate[Const.ROWS_IN_BATCH];
+    data.batchAggregation = true;
+
+    if (log.isDetailed()) {
+      logDetailed("Aggregating batches of rows on primitive vectors");
+    }
+  }
+
+  /**
+   * Aggregate the given number of rows from data.rows using the primitive accumulators of the
+   * aggregates.
+   *
+   * @param nrRows the number of rows in data.rows
+   * @throws HopException
+   */
+  void addRowsToAggregate(int nrRows) throws HopException {
+    RowBatch batch = data.batch;
+    batch.setRows(data.rows, nrRows, data.batchColumns);
+    for (int column : data.batchColumns) {
+      int expected =
+          data.inputRowMeta.getValueMeta(column).isInteger()
+              ? RowBatch.ENCODING_LONG
+              : RowBatch.ENCODING_DOUBLE;
+      if (batch.getEncoding(column) != expected) {
+        // A value doesn't have the class of its data type: handle it the regular way.
+        //
+        logDetailed(
+            "Switching to row by row aggregation for field "
+                + data.inputRowMeta.getValueMeta(column).getName());
+        materializeAggregates();
+        data.batchAggregation = false;
+        for (int row = 0; row < nrRows; row++) {
+          addToAggregate(data.rows[row]);
+        }
+        return;
+      }
+    }
+
+    // Look up the aggregate of every row first
     //
-    for (HashEntry entry : data.map.keySet()) {
-      Aggregate aggregate = data.map.get(entry);
-      Object[] aggregateResult = getAggregateResult(aggregate);
+    Aggregate[] aggregates = data.batchAggregates;
+    for (int row = 0; row < nrRows; row++) {
+      aggregates[row] = getAggregate(data.rows[row]);
+      aggregates[row].rowCount++;
+    }
 
-      Object[] outputRowData = RowDataUtil.allocateRowData(data.outputRowMeta.size());
-      int index = 0;
-      for (int i = 0; i < data.groupMeta.size(); i++) {
-        outputRowData[index++] =
-            data.groupMeta.getValueMeta(i).convertToNormalStorageType(entry.getGroupData()[i]);
+    // Then aggregate the subjects one vector at a time
+    //
+    for (int i = 0; i < data.subjectnrs.length; i++) {
+      int type = meta.getAggregateType()[i];
+      if (type == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY) {
+        for (int row = 0; row < nrRows; row++) {
+          aggregates[row].counts[i]++;
+        }
+        continue;
       }
-      for (int i = 0; i < data.aggMeta.size(); i++) {
-        outputRowData[index++] =
-            data.aggMeta.getValueMeta(i).convertToNormalStorageType(aggregateResult[i]);
+
+      int column = data.subjectnrs[i];
+      if (batch.getEncoding(column) == RowBatch.ENCODING_LONG) {
+        long[] values = batch.getLongs(column);
+        for (int row = 0; row < nrRows; row++) {
+          if (batch.isNull(column, row)) {
+            continue;
+          }
+          Aggregate aggregate = aggregates[row];
+          long value = values[row];
+          boolean firstValue = aggregate.counts[i] == 0;
+          switch (type) {
+            case MemoryGroupByMeta.TYPE_GROUP_SUM:
+            case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+              aggregate.longAgg[i] = firstValue ? value : aggregate.longAgg[i] + value;
+              break;
+            case MemoryGroupByMeta.TYPE_GROUP_MIN:
+              if (firstValue || value < aggregate.longAgg[i]) {
+                aggregate.longAgg[i] = value;
+              }
+              break;
+            case MemoryGroupByMeta.TYPE_GROUP_MAX:
+              if (firstValue || value > aggregate.longAgg[i]) {
+                aggregate.longAgg[i] = value;
+              }
+              break;
+            default:
+              break;
+          }
+          aggregate.counts[i]++;
+        }
+      } else {
+        double[] values = batch.getDoubles(column);
+        for (int row = 0; row < nrRows; row++) {
+          if (batch.isNull(column, row)) {
+            continue;
+          }
+          Aggregate aggregate = aggregates[row];
+          double value = values[row];
+          boolean firstValue = aggregate.counts[i] == 0;
+          switch (type) {
+            case MemoryGroupByMeta.TYPE_GROUP_SUM:
+            case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+              aggregate.doubleAgg[i] = firstValue ? value : aggregate.doubleAgg[i] + value;
+              break;
+            case MemoryGroupByMeta.TYPE_GROUP_MIN:
+              if (firstValue || Double.compare(value, aggregate.doubleAgg[i]) < 0) {
+                aggregate.doubleAgg[i] = value;
+              }
+              break;
+            case MemoryGroupByMeta.TYPE_GROUP_MAX:
+              if (firstValue || Double.compare(value, aggregate.doubleAgg[i]) > 0) {
+                aggregate.doubleAgg[i] = value;
+              }
+              break;
+            default:
+              break;
+          }
+          aggregate.counts[i]++;
+        }
       }
-      putRow(data.outputRowMeta, outputRowData);
+    }
+    Arrays.fill(aggregates, 0, nrRows, null);
+  }
+
+  private Aggregate getAggregate(Object[] r) throws HopException {
+    Object[] groupData = new Object[data.groupMeta.size()];
+    for (int i = 0; i < data.groupnrs.length; i++) {
+      groupData[i] = r[data.groupnrs[i]];
+    }
+    HashEntry entry = data.getHashEntry(groupData);
+
+    Aggregate aggregate = data.map.get(entry);
+    if (aggregate == null) {
+      aggregate = new Aggregate();
+      newAggregate(r, aggregate);
+      aggregate.longAgg = new long[data.subjectnrs.length];
+      aggregate.doubleAgg = new double[data.subjectnrs.length];
+      data.map.put(entry, aggregate);
+    }
+    return aggregate;
+  }
+
+  /**
+   * Convert the primitive accumulators of the batch aggregation into the regular aggregate values
+   * so that the results can be calculated the usual way.
+   */
+  private void materializeAggregates() {
+    for (Aggregate aggregate : data.map.values()) {
+      materializeAggregate(aggregate);
+    }
+  }
+
+  /**
+   * Used for junits in MemoryGroupByBatchAggregationTest
+   *
+   * @param aggregate the aggregate to convert
+   */
+  void materializeAggregate(Aggregate aggregate) {
+    if (aggregate.longAgg == null) {
+      return;
+    }
+    for (int i = 0; i < data.subjectnrs.length; i++) {
+      int type = meta.getAggregateType()[i];
+      boolean integer = data.inputRowMeta.getValueMeta(data.subjectnrs[i]).isInteger();
+      // Keep the boxed type of the subject: a conditional expression would widen the long
+      //
+      Object value;
+      if (integer) {
+        value = aggregate.longAgg[i];
+      } else {
+        value = aggregate.doubleAgg[i];
+      }
+      switch (type) {
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          aggregate.agg[i] = aggregate.counts[i] == 0 ? null : value;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          // With HOP_AGGREGATION_MIN_NULL_IS_VALUED a single null makes the minimum null
+          //
+          boolean hasNull = aggregate.counts[i] < aggregate.rowCount;
+          aggregate.agg[i] =
+              aggregate.counts[i] == 0 || (minNullIsValued && hasNull) ? null : value;
+          aggregate.counts[i] = 0;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          aggregate.agg[i] = aggregate.counts[i] == 0 ? null : value;
+          aggregate.counts[i] = 0;
+          break;
+        default:
+          break;
+      }
+    }
+    aggregate.longAgg = null;
+    aggregate.doubleAgg = null;
+  }
+
+  private void readAggregationVariables() {
+    String val = getVariable(Const.HOP_AGGREGATION_ALL_NULLS_ARE_ZERO, "N");
+    allNullsAreZero = ValueMetaBase.convertStringToBoolean(val);
+    val = getVariable(Const.HOP_AGGREGATION_MIN_NULL_IS_VALUED, "N");
+    minNullIsValued = ValueMetaBase.convertStringToBoolean(val);
+  }
+
+  /**
+   * Two-phase aggregation: hand the groups of this copy over once its input is done. The last copy
+   * to finish merges the partial aggregates of all copies, in order of copy number, into its own
+   * groups.
+   *
+   * @return true if this copy outputs the merged groups, false if another copy does
+   * @throws HopException
+   */
+  boolean mergePartials() throws HopException {
+    materializeAggregates();
+    List<TwoPhaseMerge.Partial> partials =
+        data.twoPhase.finish(
+            getCopy(), new TwoPhaseMerge.Partial(data, data.map, data.aggregator));
+
+    // The groups belong to the merge now
+    //
+    data.map = new HashMap<>();
+    data.aggregator = null;
+    if (partials == null) {
+      return false;
+    }
+
+    for (TwoPhaseMerge.Partial partial : partials) {
+      if (!data.receivedRows && partial.data.receivedRows) {
+        // This copy didn't get any rows: use the layout of a copy which did
+        //
+        adoptMetadata(partial.data);
+      }
+
+      if (partial.aggregator != null) {
+        if (data.aggregator == null && data.map.isEmpty()) {
+          data.aggregator = partial.aggregator;
+        } else if (data.aggregator != null) {
+          data.aggregator.merge(partial.aggregator);
+          partial.aggregator.close();
+        } else {
+          mergeAggregator(partial.aggregator);
+        }
+      }
+
+      if (!partial.map.isEmpty() && data.aggregator != null) {
+        // Mixed partial states: continue with the aggregates in the map
+        //
+        SpillingHashAggregator aggregator = data.aggregator;
+        data.aggregator = null;
+        mergeAggregator(aggregator);
+      }
+      for (Map.Entry<HashEntry, Aggregate> entry : partial.map.entrySet()) {
+        mergeAggregate(entry.getKey().getGroupData(), entry.getValue());
+      }
+    }
+    return true;
+  }
+
+  private void mergeAggregator(SpillingHashAggregator aggregator) throws HopException {
+    try {
+      aggregator.finish(
+          (groupData, aggregate) -> {
+            materializeAggregate(aggregate);
+            mergeAggregate(groupData, aggregate);
+          });
+    } finally {
+      aggregator.close();
+    }
+  }
+
+  private void adoptMetadata(MemoryGroupByData other) {
+    data.inputRowMeta = other.inputRowMeta;
+    data.outputRowMeta = other.outputRowMeta;
+    data.groupnrs = other.groupnrs;
+    data.subjectnrs = other.subjectnrs;
+    data.groupMeta = other.groupMeta;
+    data.entryMeta = other.entryMeta;
+    data.aggMeta = other.aggMeta;
+    data.groupAggMeta = other.groupAggMeta;
+    data.valueMetaInteger = other.valueMetaInteger;
+    data.valueMetaNumber = other.valueMetaNumber;
+    data.receivedRows = true;
+    readAggregationVariables();
+  }
+
+  /**
+   * Merge the materialized partial aggregate of a group of another copy into the groups of this
+   * copy.
+   *
+   * @param groupData the values of the group fields
+   * @param source the partial aggregate, it's taken over if the group is new
+   * @throws HopException
+   */
+  @SuppressWarnings("unchecked")
+  void mergeAggregate(Object[] groupData, Aggregate source) throws HopException {
+    HashEntry entry = data.getHashEntry(groupData);
+    Aggregate target = data.map.get(entry);
+    if (target == null) {
+      data.map.put(entry, source);
+      return;
+    }
+    target.rowCount += source.rowCount;
+
+    for (int i = 0; i < data.subjectnrs.length; i++) {
+      IValueMeta valueMeta = data.aggMeta.getValueMeta(i);
+      Object value = target.agg[i];
+      Object other = source.agg[i];
+
+      switch (meta.getAggregateType()[i]) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          target.agg[i] = ValueDataUtil.sum(valueMeta, value, valueMeta, other);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          target.agg[i] = ValueDataUtil.sum(valueMeta, value, valueMeta, other);
+          target.counts[i] += source.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+          ((List<Double>) value).addAll((List<Double>) other);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+          // Combine the means and sums of squared differences of both parts
+          //
+          long nA = target.counts[i];
+          long nB = source.counts[i];
+          if (nB == 0) {
+            break;
+          }
+          if (target.mean == null) {
+            target.mean = new double[data.subjectnrs.length];
+          }
+          if (nA == 0) {
+            target.mean[i] = source.mean[i];
+            target.agg[i] = other;
+          } else {
+            double n = (double) nA + nB;
+            double delta = source.mean[i] - target.mean[i];
+            double sumA = value == null ? 0.0 : (Double) value;
+            double sumB = other == null ? 0.0 : (Double) other;
+            target.mean[i] = target.mean[i] + delta * nB / n;
+            target.agg[i] = sumA + sumB + delta * delta * nA * nB / n;
+          }
+          target.counts[i] = nA + nB;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+          if (source.distinctObjs == null || source.distinctObjs[i] == null) {
+            break;
+          }
+          if (target.distinctObjs == null) {
+            target.distinctObjs = new Set[meta.getSubjectField().length];
+          }
+          if (target.distinctObjs[i] == null) {
+            target.distinctObjs[i] = new TreeSet<>();
+          }
+          target.distinctObjs[i].addAll(source.distinctObjs[i]);
+          target.counts[i] = target.distinctObjs[i].size();
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          target.counts[i] += source.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean otherIsNull = valueMeta.isNull(other);
+          boolean valueIsNull = valueMeta.isNull(value);
+          if (minNullIsValued || (!otherIsNull && !valueIsNull)) {
+            target.agg[i] = valueMeta.compare(other, value) < 0 ? other : value;
+          } else if (valueIsNull && !otherIsNull) {
+            target.agg[i] = other;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if (valueMeta.compare(other, value) > 0) {
+            target.agg[i] = other;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+          if (value == null) {
+            target.agg[i] = other;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST:
+          if (!valueMeta.isNull(other)) {
+            target.agg[i] = other;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+          if (target.counts[i] == 0) {
+            target.agg[i] = other;
+            target.counts[i] = source.counts[i];
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+          target.agg[i] = other;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
+          StringBuilder otherSb = (StringBuilder) other;
+          if (otherSb.length() > 0) {
+            StringBuilder sb = (StringBuilder) value;
+            if (sb.length() > 0) {
+              String separator = ", ";
+              if (meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING) {
+                separator = "";
+                if (!Utils.isEmpty(meta.getValueField()[i])) {
+                  separator = resolve(meta.getValueField()[i]);
+                }
+              }
+              sb.append(separator);
+            }
+            sb.append(otherSb);
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_DISTINCT:
+          ((SortedSet<Object>) value).addAll((SortedSet<Object>) other);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          ((HyperLogLog) value).merge((HyperLogLog) other);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          ((TDigest) value).merge((TDigest) other);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K:
+          ((CountMinTopK) value).merge((CountMinTopK) other);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private void handleLastOfGroup() throws HopException {
+    boolean empty;
+    if (data.aggregator != null) {
+      // The groups of the hash table, partition by partition if it spilled to disk
+      //
+      long[] nrGroups = {0L};
+      data.aggregator.finish(
+          (groupData, aggregate) -> {
+            materializeAggregate(aggregate);
+            putGroupRow(groupData, aggregate);
+            nrGroups[0]++;
+          });
+      empty = nrGroups[0] == 0;
+    } else {
+      materializeAggregates();
+
+      // Dump the content of the map...
+      //
+      for (HashEntry entry : data.map.keySet()) {
+        Object[] groupData = new Object[data.groupMeta.size()];
+        for (int i = 0; i < data.groupMeta.size(); i++) {
+          groupData[i] =
+              data.groupMeta.getValueMeta(i).convertToNormalStorageType(entry.getGroupData()[i]);
+        }
+        putGroupRow(groupData, data.map.get(entry));
+      }
+      empty = data.map.isEmpty();
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if (data.map.isEmpty() && meta.isAlwaysGivingBackOneRow()) {
+    if (empty && meta.isAlwaysGivingBackOneRow()) {
       Object[] outputRowData = RowDataUtil.allocateRowData(data.outputRowMeta.size());
       int index = 0;
       for (int i = 0; i < data.groupMeta.size(); i++) {
@@ -214,7 +792,8 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
       for (int i = 0; i < data.aggMeta.size(); i++) {
         if (meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
             || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
-            || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT) {
+            || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
+            || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT) {
           outputRowData[index++] = Long.valueOf(0L);
         } else {
           outputRowData[index++] = null;
@@ -224,6 +803,22 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
     }
   }
 
+  /** Output a row with the values of a group, in normal storage, and its aggregates */
+  private void putGroupRow(Object[] groupData, Aggregate aggregate) throws HopException {
+    Object[] aggregateResult = getAggregateResult(aggregate);
+
+    Object[] outputRowData = RowDataUtil.allocateRowData(data.outputRowMeta.size());
+    int index = 0;
+    for (int i = 0; i < data.groupMeta.size(); i++) {
+      outputRowData[index++] = groupData[i];
+    }
+    for (int i = 0; i < data.aggMeta.size(); i++) {
+      outputRowData[index++] =
+          data.aggMeta.getValueMeta(i).convertToNormalStorageType(aggregateResult[i]);
+    }
+    putRow(data.outputRowMeta, outputRowData);
+  }
+
   /**
    * Used for junits in MemoryGroupByAggregationNullsTest
    *
@@ -377,6 +972,21 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
             sb.append(subjMeta.getString(subj));
           }
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          if (!subjMeta.isNull(subj)) {
+            ((HyperLogLog) value).add(subjMeta.convertToNormalStorageType(subj));
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          if (!subjMeta.isNull(subj)) {
+            ((TDigest) value).add(subjMeta.getNumber(subj));
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K:
+          if (!subjMeta.isNull(subj)) {
+            ((CountMinTopK) value).add(subjMeta.getString(subj));
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_DISTINCT:
           if (subj != null) {
             SortedSet<Object> set = (SortedSet<Object>) value;
@@ -455,6 +1065,18 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
           vMeta = new ValueMetaString(meta.getAggregateField()[i]);
           v = new TreeSet<>();
           break;          
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          vMeta = new ValueMetaInteger(meta.getAggregateField()[i]);
+          v = aggregate == null ? null : createSketch(i);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          vMeta = new ValueMetaNumber(meta.getAggregateField()[i]);
+          v = aggregate == null ? null : createSketch(i);
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K:
+          vMeta = new ValueMetaString(meta.getAggregateField()[i]);
+          v = aggregate == null ? null : createSketch(i);
+          break;
         default:
           throw new HopException(
               "Unknown data type for aggregation : " + meta.getAggregateField()[i]);
@@ -462,7 +1084,9 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
       if (meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
           && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
-          && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY) {
+          && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+          && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT
+          && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K) {
         vMeta.setLength(subjMeta.getLength(), subjMeta.getPrecision());
       }
       if (aggregate == null) {
@@ -473,6 +1097,28 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
     }
   }
 
+  /**
+   * Create the fixed size sketch of an approximate aggregate. The value field holds the precision
+   * of a HyperLogLog sketch or the number of values of a top-K.
+   */
+  private Object createSketch(int i) throws HopException {
+    String value = resolve(meta.getValueField()[i]);
+    try {
+      switch (meta.getAggregateType()[i]) {
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          return new HyperLogLog(Const.toInt(value, HyperLogLog.DEFAULT_PRECISION));
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K:
+          return new CountMinTopK(Const.toInt(value, CountMinTopK.DEFAULT_K));
+        default:
+          return new TDigest();
+      }
+    } catch (IllegalArgumentException e) {
+      throw new HopException(
+          "Invalid value '" + value + "' for aggregation '" + meta.getAggregateField()[i] + "'",
+          e);
+    }
+  }
+
   private void initGroupMeta(IRowMeta previousRowMeta) throws HopValueException {
     data.groupMeta = new RowMeta();
     data.entryMeta = new RowMeta();
@@ -555,6 +1201,25 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
             }
             ag = joiner.toString();
             break;            
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+            ag = ((HyperLogLog) ag).estimate();
+            break;
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+            {
+              double quantile = Const.toDouble(resolve(meta.getValueField()[i]), 50.0) / 100.0;
+              if (quantile < 0.0 || quantile > 1.0) {
+                throw new HopValueException(
+                    "The percentile of aggregation '"
+                        + meta.getAggregateField()[i]
+                        + "' has to be between 0 and 100");
+              }
+              double estimate = ((TDigest) ag).quantile(quantile);
+              ag = Double.isNaN(estimate) ? null : estimate;
+              break;
+            }
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K:
+            ag = String.join(", ", ((CountMinTopK) ag).getTopK());
+            break;
           default:
             break;
         }
@@ -575,6 +1240,15 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
     if (super.init()) {
       data.map = new HashMap<>(5000);
+
+      if (meta.isTwoPhaseAggregation()) {
+        int nrCopies = getTransformMeta().getCopies(this);
+        if (nrCopies > 1 && !getTransformMeta().isPartitioned()) {
+          data.twoPhase =
+              TwoPhaseMerge.getInstance(
+                  getPipeline().getExtensionDataMap(), getTransformName(), nrCopies);
+        }
+      }
       return true;
     }
     return false;
@@ -582,6 +1256,12 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
   @Override
   public void dispose() {
+    if (data.aggregator != null) {
+      data.aggregator.close();
+    }
+    if (data.twoPhase != null) {
+      data.twoPhase.dispose();
+    }
     super.dispose();
     ((MemoryGroupByData) data).clear();
   }
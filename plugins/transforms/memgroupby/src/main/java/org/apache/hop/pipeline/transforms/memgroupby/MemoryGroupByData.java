@@ -20,6 +20,7 @@ package org.apache.hop.pipeline.transforms.memgroupby;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowBatch;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
@@ -89,6 +90,30 @@ public class MemoryGroupByData extends BaseTransformData implements ITransformDa
 
   public boolean newBatch;
 
+  /** True if the rows are aggregated per batch on primitive vectors */
+  public boolean batchAggregation;
+
+  /** The batch of input rows */
+  public Object[][] rows;
+
+  /** The subjects of the current batch of rows in columns */
+  public RowBatch batch;
+
+  /** The indexes of the subject fields loaded in the batch */
+  public int[] batchColumns;
+
+  /** The aggregate of every row in the current batch */
+  public Aggregate[] batchAggregates;
+
+  /** The hash table which spills to disk when a memory limit is set, null otherwise */
+  public SpillingHashAggregator aggregator;
+
+  /** The merge of the groups of all copies in two-phase aggregation, null otherwise */
+  public TwoPhaseMerge twoPhase;
+
+  /** True once the first input row is received */
+  public boolean receivedRows;
+
   public MemoryGroupByData() {
     super();
   }
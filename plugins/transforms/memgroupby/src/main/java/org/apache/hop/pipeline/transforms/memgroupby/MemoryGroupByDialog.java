@@ -32,6 +32,7 @@ import org.apache.hop.ui.core.dialog.BaseDialog;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
 import org.apache.hop.ui.core.widget.ColumnInfo;
 import org.apache.hop.ui.core.widget.TableView;
+import org.apache.hop.ui.core.widget.TextVar;
 import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.ModifyListener;
@@ -62,6 +63,11 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
 
   private Button wAlwaysAddResult;
 
+  private TextVar wMemoryLimit;
+
+  private TextVar wSpillDirectory;
+  private Button wTwoPhase;
+
   private final MemoryGroupByMeta input;
 
   private ColumnInfo[] ciKey;
@@ -147,12 +153,75 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     wAlwaysAddResult.setLayoutData(fdAlwaysAddResult);
     wAlwaysAddResult.addSelectionListener(lsSel);
 
+    // The memory limit before spilling the groups to disk
+    //
+    Label wlMemoryLimit = new Label(shell, SWT.RIGHT);
+    wlMemoryLimit.setText(BaseMessages.getString(PKG, "MemoryGroupByDialog.MemoryLimit.Label"));
+    wlMemoryLimit.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.MemoryLimit.ToolTip"));
+    PropsUi.setLook(wlMemoryLimit);
+    FormData fdlMemoryLimit = new FormData();
+    fdlMemoryLimit.left = new FormAttachment(0, 0);
+    fdlMemoryLimit.top = new FormAttachment(wlAlwaysAddResult, margin);
+    fdlMemoryLimit.right = new FormAttachment(middle, -margin);
+    wlMemoryLimit.setLayoutData(fdlMemoryLimit);
+    wMemoryLimit = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    wMemoryLimit.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.MemoryLimit.ToolTip"));
+    PropsUi.setLook(wMemoryLimit);
+    wMemoryLimit.addModifyListener(lsMod);
+    FormData fdMemoryLimit = new FormData();
+    fdMemoryLimit.left = new FormAttachment(middle, 0);
+    fdMemoryLimit.top = new FormAttachment(wlMemoryLimit, 0, SWT.CENTER);
+    fdMemoryLimit.right = new FormAttachment(100, 0);
+    wMemoryLimit.setLayoutData(fdMemoryLimit);
+
+    // The directory to spill to
+    //
+    Label wlSpillDirectory = new Label(shell, SWT.RIGHT);
+    wlSpillDirectory.setText(BaseMessages.getString(PKG, "MemoryGroupByDialog.SpillDirectory.Label"));
+    wlSpillDirectory.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.SpillDirectory.ToolTip"));
+    PropsUi.setLook(wlSpillDirectory);
+    FormData fdlSpillDirectory = new FormData();
+    fdlSpillDirectory.left = new FormAttachment(0, 0);
+    fdlSpillDirectory.top = new FormAttachment(wMemoryLimit, margin);
+    fdlSpillDirectory.right = new FormAttachment(middle, -margin);
+    wlSpillDirectory.setLayoutData(fdlSpillDirectory);
+    wSpillDirectory = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    wSpillDirectory.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.SpillDirectory.ToolTip"));
+    PropsUi.setLook(wSpillDirectory);
+    wSpillDirectory.addModifyListener(lsMod);
+    FormData fdSpillDirectory = new FormData();
+    fdSpillDirectory.left = new FormAttachment(middle, 0);
+    fdSpillDirectory.top = new FormAttachment(wlSpillDirectory, 0, SWT.CENTER);
+    fdSpillDirectory.right = new FormAttachment(100, 0);
+    wSpillDirectory.setLayoutData(fdSpillDirectory);
+
+    // Merge the groups of all copies at the end
+    //
+    Label wlTwoPhase = new Label(shell, SWT.RIGHT);
+    wlTwoPhase.setText(BaseMessages.getString(PKG, "MemoryGroupByDialog.TwoPhase.Label"));
+    wlTwoPhase.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.TwoPhase.ToolTip"));
+    PropsUi.setLook(wlTwoPhase);
+    FormData fdlTwoPhase = new FormData();
+    fdlTwoPhase.left = new FormAttachment(0, 0);
+    fdlTwoPhase.top = new FormAttachment(wSpillDirectory, margin);
+    fdlTwoPhase.right = new FormAttachment(middle, -margin);
+    wlTwoPhase.setLayoutData(fdlTwoPhase);
+    wTwoPhase = new Button(shell, SWT.CHECK);
+    wTwoPhase.setToolTipText(BaseMessages.getString(PKG, "MemoryGroupByDialog.TwoPhase.ToolTip"));
+    PropsUi.setLook(wTwoPhase);
+    FormData fdTwoPhase = new FormData();
+    fdTwoPhase.left = new FormAttachment(middle, 0);
+    fdTwoPhase.top = new FormAttachment(wlTwoPhase, 0, SWT.CENTER);
+    fdTwoPhase.right = new FormAttachment(100, 0);
+    wTwoPhase.setLayoutData(fdTwoPhase);
+    wTwoPhase.addSelectionListener(lsSel);
+
     Label wlGroup = new Label(shell, SWT.NONE);
     wlGroup.setText(BaseMessages.getString(PKG, "MemoryGroupByDialog.Group.Label"));
     PropsUi.setLook(wlGroup);
     FormData fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment(0, 0);
-    fdlGroup.top = new FormAttachment(wlAlwaysAddResult, 2 * margin);
+    fdlGroup.top = new FormAttachment(wlTwoPhase, 2 * margin);
     wlGroup.setLayoutData(fdlGroup);
 
     int nrKeyCols = 1;
@@ -319,6 +388,9 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     logDebug(BaseMessages.getString(PKG, "MemoryGroupByDialog.Log.GettingKeyInfo"));
 
     wAlwaysAddResult.setSelection(input.isAlwaysGivingBackOneRow());
+    wMemoryLimit.setText(Const.NVL(input.getMemoryLimit(), ""));
+    wSpillDirectory.setText(Const.NVL(input.getSpillDirectory(), ""));
+    wTwoPhase.setSelection(input.isTwoPhaseAggregation());
 
     if (input.getGroupField() != null) {
       for (int i = 0; i < input.getGroupField().length; i++) {
@@ -370,6 +442,9 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     int nrFields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow(wAlwaysAddResult.getSelection());
+    input.setMemoryLimit(wMemoryLimit.getText());
+    input.setSpillDirectory(wSpillDirectory.getText());
+    input.setTwoPhaseAggregation(wTwoPhase.getSelection());
 
     input.allocate(sizegroup, nrFields);
 
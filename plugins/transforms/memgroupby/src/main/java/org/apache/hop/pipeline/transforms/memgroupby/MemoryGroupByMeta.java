@@ -94,6 +94,12 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
   
   public static final int TYPE_GROUP_CONCAT_DISTINCT = 17;
 
+  public static final int TYPE_GROUP_APPROX_COUNT_DISTINCT = 18;
+
+  public static final int TYPE_GROUP_APPROX_PERCENTILE = 19;
+
+  public static final int TYPE_GROUP_APPROX_TOP_K = 20;
+
   public static final String[]
       typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */ {
     "-",
@@ -114,6 +120,9 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
     "COUNT_DISTINCT",
     "COUNT_ANY",
     "CONCAT_DISTINCT",
+    "APPROX_COUNT_DISTINCT",
+    "APPROX_PERCENTILE",
+    "APPROX_TOP_K",
   };
 
   public static final String[] typeGroupLongDesc = {
@@ -135,6 +144,9 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
     BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT"),
     BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_ANY"),
     BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.CONCAT_DISTINCT"),
+    BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.APPROX_COUNT_DISTINCT"),
+    BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.APPROX_PERCENTILE"),
+    BaseMessages.getString(PKG, "MemoryGroupByMeta.TypeGroupLongDesc.APPROX_TOP_K"),
   };
 
   @Injection(name = "GROUPFIELD", group = "FIELDS")
@@ -161,6 +173,18 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
   /** Flag to indicate that we always give back one row. Defaults to true for existing pipelines. */
   private boolean alwaysGivingBackOneRow;
 
+  @Injection(name = "MEMORY_LIMIT")
+  /** The maximum size of the groups in MB before they are written to disk, empty for no limit */
+  private String memoryLimit;
+
+  @Injection(name = "SPILL_DIRECTORY")
+  /** The directory to write the groups to when the memory limit is exceeded */
+  private String spillDirectory;
+
+  @Injection(name = "TWO_PHASE")
+  /** Aggregate in every copy and merge the groups of all copies at the end */
+  private boolean twoPhaseAggregation;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -288,13 +312,19 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
 
         if (aggregateType[i] == TYPE_GROUP_COUNT_ALL
             || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT
-            || aggregateType[i] == TYPE_GROUP_COUNT_ANY) {
+            || aggregateType[i] == TYPE_GROUP_COUNT_ANY
+            || aggregateType[i] == TYPE_GROUP_APPROX_COUNT_DISTINCT) {
           hasNumberOfValues = true;
         }
 
         valueField[i] = XmlHandler.getTagValue(fnode, "valuefield");
       }
 
+      memoryLimit = XmlHandler.getTagValue(transformNode, "memory_limit");
+      spillDirectory = XmlHandler.getTagValue(transformNode, "spill_directory");
+      twoPhaseAggregation =
+          "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "two_phase"));
+
       String giveBackRow = XmlHandler.getTagValue(transformNode, "give_back_row");
       if (Utils.isEmpty(giveBackRow)) {
         alwaysGivingBackOneRow = hasNumberOfValues;
@@ -343,6 +373,8 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
     int nrFields = 0;
 
     allocate(sizegroup, nrFields);
+
+    spillDirectory = "${java.io.tmpdir}";
   }
 
   @Override
@@ -390,6 +422,7 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
           case TYPE_GROUP_COUNT_DISTINCT:
           case TYPE_GROUP_COUNT_ALL:
           case TYPE_GROUP_COUNT_ANY:
+          case TYPE_GROUP_APPROX_COUNT_DISTINCT:
             valueType = IValueMeta.TYPE_INTEGER;
             break;
           case TYPE_GROUP_SUM:
@@ -403,11 +436,13 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
           case TYPE_GROUP_MEDIAN:
           case TYPE_GROUP_PERCENTILE:
           case TYPE_GROUP_STANDARD_DEVIATION:
+          case TYPE_GROUP_APPROX_PERCENTILE:
             valueType = IValueMeta.TYPE_NUMBER;
             break;
           case TYPE_GROUP_CONCAT_COMMA:
           case TYPE_GROUP_CONCAT_STRING:
           case TYPE_GROUP_CONCAT_DISTINCT:
+          case TYPE_GROUP_APPROX_TOP_K:
             valueType = IValueMeta.TYPE_STRING;
             break;
           default:
@@ -460,6 +495,9 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
     StringBuilder retval = new StringBuilder(500);
 
     retval.append("      ").append(XmlHandler.addTagValue("give_back_row", alwaysGivingBackOneRow));
+    retval.append("      ").append(XmlHandler.addTagValue("memory_limit", memoryLimit));
+    retval.append("      ").append(XmlHandler.addTagValue("spill_directory", spillDirectory));
+    retval.append("      ").append(XmlHandler.addTagValue("two_phase", twoPhaseAggregation));
 
     retval.append("      <group>").append(Const.CR);
     for (int i = 0; i < groupField.length; i++) {
@@ -529,6 +567,50 @@ public class MemoryGroupByMeta extends BaseTransformMeta<MemoryGroupBy, MemoryGr
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return the maximum size of the groups in MB before they are written to disk
+   */
+  public String getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * @param memoryLimit the maximum size of the groups in MB before they are written to disk
+   */
+  public void setMemoryLimit(String memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * @return the directory to write the groups to when the memory limit is exceeded
+   */
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /**
+   * @param spillDirectory the directory to write the groups to when the memory limit is exceeded
+   */
+  public void setSpillDirectory(String spillDirectory) {
+    this.spillDirectory = spillDirectory;
+  }
+
+  /**
+   * @return true if every copy aggregates its own rows and the groups of all copies are merged at
+   *     the end
+   */
+  public boolean isTwoPhaseAggregation() {
+    return twoPhaseAggregation;
+  }
+
+  /**
+   * @param twoPhaseAggregation true to aggregate in every copy and merge the groups of all copies
+   *     at the end
+   */
+  public void setTwoPhaseAggregation(boolean twoPhaseAggregation) {
+    this.twoPhaseAggregation = twoPhaseAggregation;
+  }
+
   /**
    * If we use injection we can have different arrays lengths. We need synchronize them for
    * consistency behavior with UI
@@ -0,0 +1,636 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.BinaryKeyHashTable;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.vfs.HopVfs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregates rows in a {@link BinaryKeyHashTable} within a memory budget. The table maps the
+ * encoded group fields to a group number, the accumulators of the groups are kept in primitive
+ * arrays indexed by group number and aggregate: there is no object per group.
+ *
+ * <p>Every aggregate has a count of the values and a 64-bit value: the sum, minimum or maximum of
+ * Integer values as a long or of Number values as the bits of a double. Count aggregates only use
+ * the count.
+ *
+ * <p>When the groups take more memory than allowed, the partial aggregates are written to disk in
+ * partitions based on the hash of their keys and the table is emptied. At the end every partition
+ * is read back and merged on its own: a group is always in the same partition so a partition holds
+ * complete groups. A partition which doesn't fit either is split again on other bits of the hash.
+ *
+ * <p>Only sums, averages, minimums and maximums of Integer or Number values and counts are
+ * supported, see {@link #isSupported(int, IValueMeta)}.
+ */
+public class SpillingHashAggregator {
+
+  /** Receives the groups at the end of the aggregation */
+  public interface IGroupHandler {
+    /**
+     * @param groupData the values of the group fields in normal storage
+     * @param aggregate the aggregate with the primitive accumulators of the group
+     */
+    void handleGroup(Object[] groupData, Aggregate aggregate) throws HopException;
+  }
+
+  /** The number of bits of the hash used to pick a partition */
+  private static final int PARTITION_BITS = 4;
+
+  private static final int NR_PARTITIONS = 1 << PARTITION_BITS;
+
+  /** After this many splits a partition is aggregated in memory, whatever its size */
+  private static final int MAX_LEVELS = 4;
+
+  private static final String SPILL_FILE_PREFIX = "memgroupby";
+
+  private static final int INITIAL_GROUPS = 1024;
+
+  /**
+   * The estimated number of bytes used by every group next to its key: the entry header and group
+   * number in the table, its slots in the index and the row count
+   */
+  private static final int GROUP_OVERHEAD = 8 + 4 + 2 * 16 + 8;
+
+  private final ILogChannel log;
+  private final IRowMeta inputRowMeta;
+  private final int[] subjectnrs;
+  private final int[] aggregateTypes;
+  private final boolean[] integers;
+  private final long memoryLimit;
+  private final String spillDirectory;
+  private final int nrAggregates;
+  private final IValueMeta[] groupMetas;
+
+  private final BinaryKeyEncoder encoder;
+  private final BinaryKeyHashTable table;
+  private final byte[] groupNumber = new byte[4];
+
+  private int nrGroups;
+  private long keysLength;
+
+  /** The accumulators of the groups, indexed by group number */
+  private long[] rowCounts;
+  private long[] counts;
+  private long[] values;
+
+  /** The partitions of the first level, null until the first spill */
+  private SpillFile[] partitions;
+
+  private final List<FileObject> spillFiles = new ArrayList<>();
+  private int nrSpills;
+  private boolean overBudgetLogged;
+
+  /**
+   * @param log the log channel of the transform
+   * @param inputRowMeta the metadata of the input rows
+   * @param groupnrs the indexes of the group fields
+   * @param subjectnrs the indexes of the subject of every aggregate
+   * @param aggregateTypes the MemoryGroupByMeta.TYPE_GROUP_ type of every aggregate
+   * @param memoryLimit the maximum number of bytes to use for the groups
+   * @param spillDirectory the directory for the partitions written to disk
+   */
+  public SpillingHashAggregator(
+      ILogChannel log,
+      IRowMeta inputRowMeta,
+      int[] groupnrs,
+      int[] subjectnrs,
+      int[] aggregateTypes,
+      long memoryLimit,
+      String spillDirectory) {
+    this.log = log;
+    this.inputRowMeta = inputRowMeta;
+    this.subjectnrs = subjectnrs;
+    this.aggregateTypes = aggregateTypes;
+    this.memoryLimit = memoryLimit;
+    this.spillDirectory = spillDirectory;
+    this.nrAggregates = aggregateTypes.length;
+
+    this.integers = new boolean[aggregateTypes.length];
+    for (int i = 0; i < aggregateTypes.length; i++) {
+      integers[i] =
+          aggregateTypes[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+              && inputRowMeta.getValueMeta(subjectnrs[i]).isInteger();
+    }
+    this.groupMetas = new IValueMeta[groupnrs.length];
+    for (int i = 0; i < groupnrs.length; i++) {
+      groupMetas[i] = inputRowMeta.getValueMeta(groupnrs[i]);
+    }
+    this.encoder = new BinaryKeyEncoder(inputRowMeta, groupnrs);
+    this.table = new BinaryKeyHashTable();
+    this.rowCounts = new long[INITIAL_GROUPS];
+    this.counts = new long[INITIAL_GROUPS * nrAggregates];
+    this.values = new long[INITIAL_GROUPS * nrAggregates];
+  }
+
+  /**
+   * See if the values of a group field can be part of the binary key. Values which are equal
+   * without being identical, like strings compared case insensitive, are not supported.
+   *
+   * @param valueMeta the group field
+   * @return true if the field can be part of the key
+   */
+  public static boolean isSupportedGroupField(IValueMeta valueMeta) {
+    switch (valueMeta.getType()) {
+      case IValueMeta.TYPE_STRING:
+        return !valueMeta.isCaseInsensitive();
+      case IValueMeta.TYPE_INTEGER:
+      case IValueMeta.TYPE_NUMBER:
+      case IValueMeta.TYPE_BIGNUMBER:
+      case IValueMeta.TYPE_DATE:
+      case IValueMeta.TYPE_TIMESTAMP:
+      case IValueMeta.TYPE_BOOLEAN:
+      case IValueMeta.TYPE_BINARY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * See if an aggregate can be calculated with primitive accumulators.
+   *
+   * @param aggregateType the MemoryGroupByMeta.TYPE_GROUP_ type of the aggregate
+   * @param subjectMeta the subject of the aggregate
+   * @return true if the aggregate is supported
+   */
+  public static boolean isSupported(int aggregateType, IValueMeta subjectMeta) {
+    switch (aggregateType) {
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        return true;
+      case MemoryGroupByMeta.TYPE_GROUP_SUM:
+      case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+      case MemoryGroupByMeta.TYPE_GROUP_MIN:
+      case MemoryGroupByMeta.TYPE_GROUP_MAX:
+        return subjectMeta.getType() == IValueMeta.TYPE_INTEGER
+            || subjectMeta.getType() == IValueMeta.TYPE_NUMBER;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Aggregate a row.
+   *
+   * @param row the input row
+   * @throws HopException in case of a conversion error or when writing to disk fails
+   */
+  public void addRow(Object[] row) throws HopException {
+    encoder.encode(row);
+
+    int previousGroups = nrGroups;
+    int group = findOrInsert(encoder.getKey(), encoder.getLength(), encoder.getHash());
+    rowCounts[group]++;
+
+    for (int i = 0; i < nrAggregates; i++) {
+      int index = group * nrAggregates + i;
+      if (aggregateTypes[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY) {
+        counts[index]++;
+        continue;
+      }
+      IValueMeta subjectMeta = inputRowMeta.getValueMeta(subjectnrs[i]);
+      Object subject = row[subjectnrs[i]];
+      if (subjectMeta.isNull(subject)) {
+        continue;
+      }
+      if (aggregateTypes[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL) {
+        counts[index]++;
+      } else if (integers[i]) {
+        long value = subjectMeta.getInteger(subject);
+        values[index] =
+            counts[index]++ == 0 ? value : combine(aggregateTypes[i], values[index], value);
+      } else {
+        double value = subjectMeta.getNumber(subject);
+        values[index] =
+            Double.doubleToRawLongBits(
+                counts[index]++ == 0
+                    ? value
+                    : combine(aggregateTypes[i], Double.longBitsToDouble(values[index]), value));
+      }
+    }
+
+    if (nrGroups > previousGroups && getMemoryUsage() > memoryLimit) {
+      if (partitions == null) {
+        partitions = new SpillFile[NR_PARTITIONS];
+      }
+      spill(partitions, 0);
+    }
+  }
+
+  /**
+   * Merge the partial aggregates of another aggregator with the same group fields and aggregates,
+   * for example of another copy of the transform. The other aggregator is empty afterwards.
+   *
+   * @param other the aggregator to merge
+   * @throws HopException in case reading or writing the partitions fails
+   */
+  public void merge(SpillingHashAggregator other) throws HopException {
+    BinaryKeyHashTable otherTable = other.table;
+    long[] partialCounts = new long[nrAggregates];
+    long[] partialValues = new long[nrAggregates];
+    for (int slot = 0; slot < otherTable.getCapacity(); slot++) {
+      long address = otherTable.getAddress(slot);
+      if (address < 0) {
+        continue;
+      }
+      int group = otherTable.getIntValue(address);
+      int start = group * nrAggregates;
+      System.arraycopy(other.counts, start, partialCounts, 0, nrAggregates);
+      System.arraycopy(other.values, start, partialValues, 0, nrAggregates);
+      byte[] key = otherTable.getKey(address);
+      mergeGroup(
+          key,
+          key.length,
+          otherTable.getHash(slot),
+          other.rowCounts[group],
+          partialCounts,
+          partialValues);
+    }
+    other.clearGroups();
+
+    if (other.partitions != null) {
+      List<SpillFile> files = other.close(other.partitions);
+      other.partitions = null;
+      for (SpillFile file : files) {
+        other.readPartition(file, this::mergeGroup);
+      }
+    }
+  }
+
+  /** Merge a partial group and spill to the first level partitions when the table is full */
+  private void mergeGroup(
+      byte[] key, int length, long hash, long rowCount, long[] partialCounts, long[] partialValues)
+      throws HopException {
+    int previousGroups = nrGroups;
+    int group = findOrInsert(key, length, hash);
+    mergePartial(group, rowCount, partialCounts, partialValues);
+
+    if (nrGroups > previousGroups && getMemoryUsage() > memoryLimit) {
+      if (partitions == null) {
+        partitions = new SpillFile[NR_PARTITIONS];
+      }
+      spill(partitions, 0);
+    }
+  }
+
+  /**
+   * Hand all the groups to the handler and empty the aggregator.
+   *
+   * @param handler receives the groups
+   * @throws HopException in case reading back the partitions fails
+   */
+  public void finish(IGroupHandler handler) throws HopException {
+    if (partitions == null) {
+      emit(handler);
+      return;
+    }
+
+    spill(partitions, 0);
+    List<SpillFile> files = close(partitions);
+    partitions = null;
+    if (log.isDetailed()) {
+      log.logDetailed(
+          "Aggregating " + files.size() + " partitions after " + nrSpills + " spills to disk");
+    }
+    for (SpillFile file : files) {
+      finishPartition(file, 1, handler);
+    }
+  }
+
+  /** Delete the partitions left on disk. */
+  public void close() {
+    if (partitions != null) {
+      close(partitions);
+      partitions = null;
+    }
+    for (FileObject file : new ArrayList<>(spillFiles)) {
+      delete(file);
+    }
+    clearGroups();
+  }
+
+  /**
+   * @return the number of times the groups were written to disk
+   */
+  public int getNrSpills() {
+    return nrSpills;
+  }
+
+  /** Merge the groups of a partition and emit them, splitting it up again if it's too large */
+  private void finishPartition(SpillFile file, int level, IGroupHandler handler)
+      throws HopException {
+    SpillFile[][] subPartitions = {null};
+    readPartition(
+        file,
+        (key, length, hash, rowCount, partialCounts, partialValues) -> {
+          int previousGroups = nrGroups;
+          int group = findOrInsert(key, length, hash);
+          mergePartial(group, rowCount, partialCounts, partialValues);
+
+          if (nrGroups > previousGroups && getMemoryUsage() > memoryLimit) {
+            if (level < MAX_LEVELS) {
+              if (subPartitions[0] == null) {
+                subPartitions[0] = new SpillFile[NR_PARTITIONS];
+              }
+              spill(subPartitions[0], level);
+            } else if (!overBudgetLogged) {
+              log.logBasic(
+                  "A partition of the groups doesn't fit in the memory limit, it is aggregated in"
+                      + " memory anyway");
+              overBudgetLogged = true;
+            }
+          }
+        });
+
+    if (subPartitions[0] == null) {
+      emit(handler);
+      return;
+    }
+    spill(subPartitions[0], level);
+    for (SpillFile subPartition : close(subPartitions[0])) {
+      finishPartition(subPartition, level + 1, handler);
+    }
+  }
+
+  /** Read the partial groups of a partition, the file is deleted afterwards */
+  private void readPartition(SpillFile file, IPartialGroupHandler handler) throws HopException {
+    long[] partialCounts = new long[nrAggregates];
+    long[] partialValues = new long[nrAggregates];
+    byte[] key = new byte[64];
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(HopVfs.getInputStream(file.fileObject)))) {
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        if (length > key.length) {
+          key = new byte[Math.max(length, key.length * 2)];
+        }
+        in.readFully(key, 0, length);
+        long hash = in.readLong();
+        long rowCount = in.readLong();
+        for (int i = 0; i < nrAggregates; i++) {
+          partialCounts[i] = in.readLong();
+          partialValues[i] = in.readLong();
+        }
+        handler.handlePartialGroup(key, length, hash, rowCount, partialCounts, partialValues);
+      }
+    } catch (IOException e) {
+      throw new HopException("Unable to read back aggregated groups from disk", e);
+    } finally {
+      delete(file.fileObject);
+    }
+  }
+
+  /** Write the partial aggregates of all groups in the table to the partitions and clear it */
+  private void spill(SpillFile[] files, int level) throws HopException {
+    int shift = 64 - PARTITION_BITS * (level + 1);
+    try {
+      for (int slot = 0; slot < table.getCapacity(); slot++) {
+        long address = table.getAddress(slot);
+        if (address < 0) {
+          continue;
+        }
+        long hash = table.getHash(slot);
+        int partition = (int) (hash >>> shift) & (NR_PARTITIONS - 1);
+        if (files[partition] == null) {
+          files[partition] = createSpillFile();
+        }
+        DataOutputStream out = files[partition].out;
+        byte[] key = table.getKey(address);
+        int group = table.getIntValue(address);
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeLong(hash);
+        out.writeLong(rowCounts[group]);
+        for (int i = 0; i < nrAggregates; i++) {
+          out.writeLong(counts[group * nrAggregates + i]);
+          out.writeLong(values[group * nrAggregates + i]);
+        }
+      }
+    } catch (IOException e) {
+      throw new HopException("Unable to write aggregated groups to disk", e);
+    }
+    if (log.isDetailed()) {
+      log.logDetailed("Wrote " + nrGroups + " groups to disk (level " + level + ")");
+    }
+    nrSpills++;
+    clearGroups();
+  }
+
+  private void emit(IGroupHandler handler) throws HopException {
+    for (int slot = 0; slot < table.getCapacity(); slot++) {
+      long address = table.getAddress(slot);
+      if (address < 0) {
+        continue;
+      }
+      int group = table.getIntValue(address);
+      Object[] groupData = encoder.decode(table.getKey(address), 0);
+      for (int i = 0; i < groupData.length; i++) {
+        if (groupMetas[i].getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL) {
+          groupData[i] = groupMetas[i].convertToNormalStorageType(groupData[i]);
+        }
+      }
+
+      Aggregate aggregate = new Aggregate();
+      aggregate.agg = new Object[nrAggregates];
+      aggregate.counts = new long[nrAggregates];
+      aggregate.longAgg = new long[nrAggregates];
+      aggregate.doubleAgg = new double[nrAggregates];
+      aggregate.rowCount = rowCounts[group];
+      for (int i = 0; i < nrAggregates; i++) {
+        aggregate.counts[i] = counts[group * nrAggregates + i];
+        long value = values[group * nrAggregates + i];
+        if (integers[i]) {
+          aggregate.longAgg[i] = value;
+        } else {
+          aggregate.doubleAgg[i] = Double.longBitsToDouble(value);
+        }
+      }
+      handler.handleGroup(groupData, aggregate);
+    }
+    clearGroups();
+  }
+
+  /** Look up the group number of a key and add the key as a new group if it isn't present */
+  private int findOrInsert(byte[] key, int length, long hash) {
+    long address = table.find(key, length, hash);
+    if (address >= 0) {
+      return table.getIntValue(address);
+    }
+    if (nrGroups == rowCounts.length) {
+      int capacity = rowCounts.length * 2;
+      rowCounts = Arrays.copyOf(rowCounts, capacity);
+      counts = Arrays.copyOf(counts, capacity * nrAggregates);
+      values = Arrays.copyOf(values, capacity * nrAggregates);
+    }
+    int group = nrGroups++;
+    groupNumber[0] = (byte) (group >>> 24);
+    groupNumber[1] = (byte) (group >>> 16);
+    groupNumber[2] = (byte) (group >>> 8);
+    groupNumber[3] = (byte) group;
+    table.put(key, length, hash, groupNumber, groupNumber.length);
+    keysLength += length;
+    return group;
+  }
+
+  /** Merge a partial state of a group, for example read back from disk */
+  private void mergePartial(int group, long rowCount, long[] partialCounts, long[] partialValues) {
+    rowCounts[group] += rowCount;
+    for (int i = 0; i < nrAggregates; i++) {
+      long count = partialCounts[i];
+      if (count == 0) {
+        continue;
+      }
+      int index = group * nrAggregates + i;
+      if (counts[index] == 0) {
+        values[index] = partialValues[i];
+      } else if (integers[i]) {
+        values[index] = combine(aggregateTypes[i], values[index], partialValues[i]);
+      } else {
+        values[index] =
+            Double.doubleToRawLongBits(
+                combine(
+                    aggregateTypes[i],
+                    Double.longBitsToDouble(values[index]),
+                    Double.longBitsToDouble(partialValues[i])));
+      }
+      counts[index] += count;
+    }
+  }
+
+  private static long combine(int type, long current, long value) {
+    switch (type) {
+      case MemoryGroupByMeta.TYPE_GROUP_SUM:
+      case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+        return current + value;
+      case MemoryGroupByMeta.TYPE_GROUP_MIN:
+        return Math.min(current, value);
+      case MemoryGroupByMeta.TYPE_GROUP_MAX:
+        return Math.max(current, value);
+      default:
+        return current;
+    }
+  }
+
+  private static double combine(int type, double current, double value) {
+    switch (type) {
+      case MemoryGroupByMeta.TYPE_GROUP_SUM:
+      case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+        return current + value;
+      case MemoryGroupByMeta.TYPE_GROUP_MIN:
+        return Double.compare(value, current) < 0 ? value : current;
+      case MemoryGroupByMeta.TYPE_GROUP_MAX:
+        return Double.compare(value, current) > 0 ? value : current;
+      default:
+        return current;
+    }
+  }
+
+  /**
+   * @return an estimate of the number of bytes used by the groups in the table
+   */
+  private long getMemoryUsage() {
+    return keysLength + (long) nrGroups * (GROUP_OVERHEAD + nrAggregates * 16L);
+  }
+
+  /** Remove all the groups, the accumulator arrays are kept to be reused */
+  private void clearGroups() {
+    table.clear();
+    Arrays.fill(rowCounts, 0, nrGroups, 0L);
+    Arrays.fill(counts, 0, nrGroups * nrAggregates, 0L);
+    nrGroups = 0;
+    keysLength = 0L;
+  }
+
+  private SpillFile createSpillFile() throws HopException {
+    FileObject fileObject = HopVfs.createTempFile(SPILL_FILE_PREFIX, ".tmp", spillDirectory);
+    spillFiles.add(fileObject);
+    try {
+      return new SpillFile(
+          fileObject,
+          new DataOutputStream(
+              new BufferedOutputStream(HopVfs.getOutputStream(fileObject, false), 65536)));
+    } catch (IOException e) {
+      throw new HopException("Unable to create spill file " + fileObject.getName(), e);
+    }
+  }
+
+  /** Close the partitions which were written and return them */
+  private List<SpillFile> close(SpillFile[] files) {
+    List<SpillFile> closed = new ArrayList<>();
+    for (SpillFile file : files) {
+      if (file == null) {
+        continue;
+      }
+      try {
+        file.out.close();
+      } catch (IOException e) {
+        log.logError("Error closing spill file " + file.fileObject.getName(), e);
+      }
+      closed.add(file);
+    }
+    return closed;
+  }
+
+  private void delete(FileObject fileObject) {
+    try {
+      fileObject.delete();
+    } catch (IOException e) {
+      log.logError("Unable to delete spill file " + fileObject.getName(), e);
+    }
+    spillFiles.remove(fileObject);
+  }
+
+  /** Receives the partial groups read from a partition */
+  private interface IPartialGroupHandler {
+    void handlePartialGroup(
+        byte[] key, int length, long hash, long rowCount, long[] counts, long[] values)
+        throws HopException;
+  }
+
+  private static class SpillFile {
+    private final FileObject fileObject;
+    private final DataOutputStream out;
+
+    private SpillFile(FileObject fileObject, DataOutputStream out) {
+      this.fileObject = fileObject;
+      this.out = out;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the partial aggregates of the copies of a Memory Group By transform. Every copy
+ * aggregates the rows it receives and hands over its groups when its input is done. The last copy
+ * to finish gets the partial aggregates of all copies, merges them and outputs the result. This
+ * gives correct results without partitioning the rows on the group fields.
+ *
+ * <p>One instance is shared by all the copies through the extension data of the pipeline.
+ */
+public class TwoPhaseMerge {
+
+  private static final String EXTENSION_DATA_PREFIX = "MemoryGroupBy.TwoPhaseMerge.";
+
+  /** The groups of a copy */
+  public static class Partial {
+    /** The data of the copy, for its metadata */
+    public final MemoryGroupByData data;
+
+    /** The aggregates of the map path, materialized */
+    public final Map<HashEntry, Aggregate> map;
+
+    /** The hash table when the copy aggregates within a memory limit, or null */
+    public final SpillingHashAggregator aggregator;
+
+    public Partial(
+        MemoryGroupByData data, Map<HashEntry, Aggregate> map, SpillingHashAggregator aggregator) {
+      this.data = data;
+      this.map = map;
+      this.aggregator = aggregator;
+    }
+  }
+
+  private final Map<String, Object> extensionDataMap;
+  private final String key;
+  private final Partial[] partials;
+  private int nrFinished;
+  private int nrDisposed;
+
+  private TwoPhaseMerge(Map<String, Object> extensionDataMap, String key, int nrCopies) {
+    this.extensionDataMap = extensionDataMap;
+    this.key = key;
+    this.partials = new Partial[nrCopies];
+  }
+
+  /**
+   * Get the merge shared by the copies of a transform.
+   *
+   * @param extensionDataMap the extension data of the pipeline
+   * @param transformName the name of the transform
+   * @param nrCopies the number of copies of the transform
+   * @return the merge of the copies
+   */
+  public static TwoPhaseMerge getInstance(
+      Map<String, Object> extensionDataMap, String transformName, int nrCopies) {
+    String key = EXTENSION_DATA_PREFIX + transformName;
+    synchronized (extensionDataMap) {
+      return (TwoPhaseMerge)
+          extensionDataMap.computeIfAbsent(
+              key, k -> new TwoPhaseMerge(extensionDataMap, key, nrCopies));
+    }
+  }
+
+  /**
+   * Hand over the groups of a copy. The copy doesn't own the groups anymore afterwards.
+   *
+   * @param copyNr the number of the copy
+   * @param partial the groups of the copy
+   * @return the groups of all copies in order of copy number if this is the last copy to finish,
+   *     null otherwise
+   */
+  public synchronized List<Partial> finish(int copyNr, Partial partial) {
+    partials[copyNr] = partial;
+    nrFinished++;
+    if (nrFinished < partials.length) {
+      return null;
+    }
+    List<Partial> all = new ArrayList<>();
+    for (int i = 0; i < partials.length; i++) {
+      if (partials[i] != null) {
+        all.add(partials[i]);
+      }
+      partials[i] = null;
+    }
+    return all;
+  }
+
+  /**
+   * A copy is disposed. When all copies are, the groups which weren't merged because the pipeline
+   * stopped are released.
+   */
+  public synchronized void dispose() {
+    nrDisposed++;
+    if (nrDisposed < partials.length) {
+      return;
+    }
+    for (int i = 0; i < partials.length; i++) {
+      if (partials[i] != null && partials[i].aggregator != null) {
+        partials[i].aggregator.close();
+      }
+      partials[i] = null;
+    }
+    synchronized (extensionDataMap) {
+      extensionDataMap.remove(key);
+    }
+  }
+}
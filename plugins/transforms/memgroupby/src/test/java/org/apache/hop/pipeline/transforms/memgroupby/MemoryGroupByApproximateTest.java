@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.variables.Variables;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/** Runs the approximate aggregates through Memory Group By, in one copy and in merged copies. */
+public class MemoryGroupByApproximateTest {
+
+  private static final int NR_COPIES = 3;
+
+  /** The aggregate types, their subject field indexes and their values */
+  private static final Object[][] AGGREGATES = {
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT, 1, null},
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT, 3, "14"},
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE, 2, "90"},
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE, 2, null},
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_TOP_K, 3, "3"},
+  };
+
+  private static final int[] EXPECTED_TYPES = {
+    IValueMeta.TYPE_INTEGER,
+    IValueMeta.TYPE_INTEGER,
+    IValueMeta.TYPE_NUMBER,
+    IValueMeta.TYPE_NUMBER,
+    IValueMeta.TYPE_STRING,
+  };
+
+  private static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+    mockHelper =
+        new TransformMockHelper<>(
+            "Memory Group By", MemoryGroupByMeta.class, MemoryGroupByData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+    when(mockHelper.pipeline.isRunning()).thenReturn(true);
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Test
+  public void testOutputTypes() throws Exception {
+    MemoryGroupBy transform = createTransform(0, null);
+    IRowMeta aggMeta = transform.getData().aggMeta;
+    assertEquals(AGGREGATES.length, aggMeta.size());
+    for (int i = 0; i < AGGREGATES.length; i++) {
+      assertEquals("aggregate " + i, EXPECTED_TYPES[i], aggMeta.getValueMeta(i).getType());
+    }
+
+    IRowMeta outputRowMeta = createInputRowMeta();
+    transform
+        .getMeta()
+        .getFields(outputRowMeta, "Memory Group By", null, null, new Variables(), null);
+    assertEquals(1 + AGGREGATES.length, outputRowMeta.size());
+    for (int i = 0; i < AGGREGATES.length; i++) {
+      IValueMeta valueMeta = outputRowMeta.searchValueMeta("aggregate" + i);
+      assertNotNull(valueMeta);
+      assertEquals("aggregate " + i, EXPECTED_TYPES[i], valueMeta.getType());
+    }
+  }
+
+  @Test
+  public void testGroupsAreAggregatedApart() throws Exception {
+    MemoryGroupBy transform = createTransform(0, null);
+    for (Object[] row : createRows()) {
+      transform.addToAggregate(row);
+    }
+
+    Object[] a = getResult(transform, "a");
+    assertEquals(1000L, (Long) a[0], 30L);
+    assertEquals(53L, (Long) a[1], 2L);
+    assertEquals(900.0, (Double) a[2], 10.0);
+    assertEquals(500.0, (Double) a[3], 10.0);
+    assertEquals("x, y, z", a[4]);
+
+    Object[] b = getResult(transform, "b");
+    assertEquals(100L, (Long) b[0], 3L);
+    assertEquals(2L, b[1]);
+    assertEquals(-10.0, (Double) b[2], 1.0);
+    assertEquals(-50.0, (Double) b[3], 1.0);
+    assertEquals("q, r", b[4]);
+
+    // Only nulls: nothing to count and no percentile
+    //
+    Object[] c = getResult(transform, "c");
+    assertEquals(0L, c[0]);
+    assertEquals(0L, c[1]);
+    assertNull(c[2]);
+    assertNull(c[3]);
+    assertEquals("", c[4]);
+  }
+
+  @Test
+  public void testMergedCopiesMatchSingleCopy() throws Exception {
+    List<Object[]> rows = createRows();
+    MemoryGroupBy single = createTransform(0, null);
+    for (Object[] row : rows) {
+      single.addToAggregate(row);
+    }
+
+    // Every copy sees rows of every group, the sketches of the copies are merged
+    //
+    Map<String, Object> extensionDataMap = new HashMap<>();
+    TwoPhaseMerge merge = TwoPhaseMerge.getInstance(extensionDataMap, "Memory Group By", NR_COPIES);
+    MemoryGroupBy[] copies = new MemoryGroupBy[NR_COPIES];
+    for (int copy = 0; copy < NR_COPIES; copy++) {
+      copies[copy] = createTransform(copy, merge);
+    }
+    for (int i = 0; i < rows.size(); i++) {
+      copies[i % NR_COPIES].addToAggregate(rows.get(i));
+    }
+    assertFalse(copies[2].mergePartials());
+    assertFalse(copies[0].mergePartials());
+    assertTrue(copies[1].mergePartials());
+
+    for (String group : new String[] {"a", "b", "c"}) {
+      Object[] expected = getResult(single, group);
+      Object[] actual = getResult(copies[1], group);
+
+      // Merging HyperLogLog registers loses nothing, the top values are the same
+      //
+      assertEquals("group " + group, expected[0], actual[0]);
+      assertEquals("group " + group, expected[1], actual[1]);
+      assertEquals("group " + group, expected[4], actual[4]);
+      for (int i = 2; i <= 3; i++) {
+        if (expected[i] == null) {
+          assertNull(actual[i]);
+        } else {
+          assertEquals("group " + group, (Double) expected[i], (Double) actual[i], 10.0);
+        }
+      }
+    }
+
+    for (MemoryGroupBy copy : copies) {
+      copy.getData().twoPhase.dispose();
+    }
+    assertTrue(extensionDataMap.isEmpty());
+  }
+
+  private static Object[] getResult(MemoryGroupBy transform, String group) throws Exception {
+    MemoryGroupByData data = transform.getData();
+    Aggregate aggregate = data.map.get(data.getHashEntry(new Object[] {group}));
+    assertNotNull("group " + group, aggregate);
+    return transform.getAggregateResult(aggregate);
+  }
+
+  /**
+   * Group a has 1000 distinct ids, the numbers 1 to 1000 and mostly x, y and z items. Group b has
+   * 100 distinct ids, numbers from -100 to -1 and items q and r. Group c only has nulls.
+   */
+  private static List<Object[]> createRows() {
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      String item;
+      if (i < 500) {
+        item = "x";
+      } else if (i < 800) {
+        item = "y";
+      } else if (i < 950) {
+        item = "z";
+      } else {
+        item = "other" + i;
+      }
+      rows.add(new Object[] {"a", (long) i, (double) (i + 1), item});
+      String bItem = i % 3 == 0 ? "r" : "q";
+      rows.add(new Object[] {"b", (long) (i % 100), (double) (i % 100) - 100, bItem});
+      rows.add(new Object[] {"c", null, null, null});
+    }
+    return rows;
+  }
+
+  private static IRowMeta createInputRowMeta() {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaString("group"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("id"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("number"));
+    inputRowMeta.addValueMeta(new ValueMetaString("item"));
+    return inputRowMeta;
+  }
+
+  private static MemoryGroupBy createTransform(int copyNr, TwoPhaseMerge merge)
+      throws Exception {
+    IRowMeta inputRowMeta = createInputRowMeta();
+
+    int nrAggregates = AGGREGATES.length;
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate(1, nrAggregates);
+    int[] aggregateTypes = new int[nrAggregates];
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.subjectnrs = new int[nrAggregates];
+    for (int i = 0; i < nrAggregates; i++) {
+      aggregateTypes[i] = (Integer) AGGREGATES[i][0];
+      data.subjectnrs[i] = (Integer) AGGREGATES[i][1];
+      meta.getSubjectField()[i] = inputRowMeta.getValueMeta(data.subjectnrs[i]).getName();
+      meta.getAggregateField()[i] = "aggregate" + i;
+      meta.getValueField()[i] = (String) AGGREGATES[i][2];
+    }
+    meta.setAggregateType(aggregateTypes);
+    meta.getGroupField()[0] = "group";
+    meta.setTwoPhaseAggregation(merge != null);
+
+    data.groupnrs = new int[] {0};
+    data.inputRowMeta = inputRowMeta;
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta(inputRowMeta.getValueMeta(0));
+    data.map = new HashMap<>();
+    data.twoPhase = merge;
+    data.receivedRows = true;
+
+    MemoryGroupBy transform =
+        new MemoryGroupBy(
+            mockHelper.transformMeta,
+            meta,
+            data,
+            copyNr,
+            mockHelper.pipelineMeta,
+            mockHelper.pipeline);
+    transform.newAggregate(null, null);
+    return transform;
+  }
+}
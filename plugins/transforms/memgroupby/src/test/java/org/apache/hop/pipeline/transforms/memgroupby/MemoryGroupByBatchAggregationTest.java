@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class MemoryGroupByBatchAggregationTest {
+
+  private static final int[] TYPES = {
+    MemoryGroupByMeta.TYPE_GROUP_SUM,
+    MemoryGroupByMeta.TYPE_GROUP_AVERAGE,
+    MemoryGroupByMeta.TYPE_GROUP_MIN,
+    MemoryGroupByMeta.TYPE_GROUP_MAX,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+  };
+
+  private static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+    mockHelper =
+        new TransformMockHelper<>(
+            "Memory Group By", MemoryGroupByMeta.class, MemoryGroupByData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+    when(mockHelper.pipeline.isRunning()).thenReturn(true);
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Test
+  public void testBatchAggregationMatchesRowAggregation() throws Exception {
+    Object[][] rows = createRows(1000);
+    for (boolean minNullIsValued : new boolean[] {false, true}) {
+      MemoryGroupBy rowTransform = createTransform(minNullIsValued);
+      for (Object[] row : rows) {
+        rowTransform.addToAggregate(row);
+      }
+
+      MemoryGroupBy batchTransform = createTransform(minNullIsValued);
+      MemoryGroupByData batchData = batchTransform.getData();
+      batchTransform.prepareBatchAggregation();
+      assertTrue(batchData.batchAggregation);
+      for (int start = 0; start < rows.length; start += batchData.rows.length) {
+        int nrRows = Math.min(batchData.rows.length, rows.length - start);
+        System.arraycopy(rows, start, batchData.rows, 0, nrRows);
+        batchTransform.addRowsToAggregate(nrRows);
+      }
+
+      MemoryGroupByData rowData = rowTransform.getData();
+      assertEquals(rowData.map.size(), batchData.map.size());
+      for (HashEntry entry : rowData.map.keySet()) {
+        Aggregate batchAggregate = batchData.map.get(batchData.getHashEntry(entry.getGroupData()));
+        assertNotNull(batchAggregate);
+        batchTransform.materializeAggregate(batchAggregate);
+        assertArrayEquals(
+            "group " + entry.getGroupData()[0] + ", min null is valued: " + minNullIsValued,
+            rowTransform.getAggregateResult(rowData.map.get(entry)),
+            batchTransform.getAggregateResult(batchAggregate));
+      }
+    }
+  }
+
+  @Test
+  public void testFallBackToRowAggregation() throws Exception {
+    MemoryGroupBy transform = createTransform(false);
+    MemoryGroupByData data = transform.getData();
+    transform.prepareBatchAggregation();
+
+    data.rows[0] = new Object[] {"a", 1L, 1.0};
+    transform.addRowsToAggregate(1);
+    assertTrue(data.batchAggregation);
+
+    // An Integer field holding a value of the wrong class can't be put in a long vector
+    //
+    data.rows[0] = new Object[] {"a", "2", 2.0};
+    data.rows[1] = new Object[] {"a", 3L, null};
+    try {
+      transform.addRowsToAggregate(2);
+    } catch (Exception e) {
+      // The regular row aggregation is used, which doesn't accept the value either
+    }
+    assertFalse(data.batchAggregation);
+    assertEquals(1L, data.map.values().iterator().next().agg[0]);
+  }
+
+  @Test
+  public void testUnsupportedAggregateUsesRows() throws Exception {
+    MemoryGroupBy transform = createTransform(false);
+    MemoryGroupByData data = transform.getData();
+    data.inputRowMeta = data.inputRowMeta.clone();
+    data.inputRowMeta.getValueMeta(2).setSortedDescending(true);
+
+    transform.prepareBatchAggregation();
+    assertFalse(data.batchAggregation);
+  }
+
+  private static Object[][] createRows(int nrRows) {
+    Random random = new Random(42);
+    Object[][] rows = new Object[nrRows][];
+    for (int i = 0; i < nrRows; i++) {
+      rows[i] =
+          new Object[] {
+            "group" + random.nextInt(7),
+            random.nextInt(10) == 0 ? null : (long) random.nextInt(1000) - 500,
+            random.nextInt(10) == 0 ? null : random.nextDouble() * 1000 - 500,
+          };
+    }
+    return rows;
+  }
+
+  private static MemoryGroupBy createTransform(boolean minNullIsValued) throws Exception {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaString("group"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("integer"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("number"));
+
+    int nrAggregates = TYPES.length * 2;
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate(1, nrAggregates);
+    int[] aggregateTypes = new int[nrAggregates];
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.subjectnrs = new int[nrAggregates];
+    for (int i = 0; i < nrAggregates; i++) {
+      aggregateTypes[i] = TYPES[i % TYPES.length];
+      data.subjectnrs[i] = i < TYPES.length ? 1 : 2;
+      meta.getSubjectField()[i] = inputRowMeta.getValueMeta(data.subjectnrs[i]).getName();
+      meta.getAggregateField()[i] = "aggregate" + i;
+    }
+    meta.setAggregateType(aggregateTypes);
+    meta.getGroupField()[0] = "group";
+
+    data.groupnrs = new int[] {0};
+    data.inputRowMeta = inputRowMeta;
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta(inputRowMeta.getValueMeta(0));
+    data.map = new HashMap<>();
+
+    MemoryGroupBy transform =
+        new MemoryGroupBy(
+            mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline);
+    transform.setMinNullIsValued(minNullIsValued);
+    transform.newAggregate(null, null);
+    return transform;
+  }
+}
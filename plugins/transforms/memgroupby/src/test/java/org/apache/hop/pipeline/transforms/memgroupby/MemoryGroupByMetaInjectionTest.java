@@ -38,5 +38,8 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
     check("AGGREGATETYPE", () -> meta.getAggregateType()[0]);
     check("VALUEFIELD", () -> meta.getValueField()[0]);
     check("ALWAYSGIVINGBACKONEROW", () -> meta.isAlwaysGivingBackOneRow());
+    check("MEMORY_LIMIT", () -> meta.getMemoryLimit());
+    check("SPILL_DIRECTORY", () -> meta.getSpillDirectory());
+    check("TWO_PHASE", () -> meta.isTwoPhaseAggregation());
   }
 }
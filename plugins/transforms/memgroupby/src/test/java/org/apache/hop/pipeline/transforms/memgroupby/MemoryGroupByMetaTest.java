@@ -70,7 +70,10 @@ public class MemoryGroupByMetaTest implements IInitializer<MemoryGroupByMeta> {
             "aggregateField",
             "subjectField",
             "aggregateType",
-            "valueField");
+            "valueField",
+            "memoryLimit",
+            "spillDirectory",
+            "twoPhaseAggregation");
 
     IFieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
         new ArrayLoadSaveValidator<>(new StringLoadSaveValidator(), 5);
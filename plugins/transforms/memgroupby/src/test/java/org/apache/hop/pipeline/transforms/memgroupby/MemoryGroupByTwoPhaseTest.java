@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class MemoryGroupByTwoPhaseTest {
+
+  private static final int NR_COPIES = 3;
+
+  /** The aggregate types and their subject field indexes */
+  private static final int[][] AGGREGATES = {
+    {MemoryGroupByMeta.TYPE_GROUP_SUM, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_SUM, 2},
+    {MemoryGroupByMeta.TYPE_GROUP_AVERAGE, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_AVERAGE, 2},
+    {MemoryGroupByMeta.TYPE_GROUP_MIN, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_MAX, 2},
+    {MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION, 2},
+    {MemoryGroupByMeta.TYPE_GROUP_MEDIAN, 2},
+    {MemoryGroupByMeta.TYPE_GROUP_FIRST, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_LAST, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_CONCAT_DISTINCT, 1},
+    {MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT, 2},
+  };
+
+  private static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+    mockHelper =
+        new TransformMockHelper<>(
+            "Memory Group By", MemoryGroupByMeta.class, MemoryGroupByData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+    when(mockHelper.pipeline.isRunning()).thenReturn(true);
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Test
+  public void testMergedCopiesMatchSingleCopy() throws Exception {
+    Object[][] rows = createRows(900);
+
+    MemoryGroupBy single = createTransform(0, null);
+    for (Object[] row : rows) {
+      single.addToAggregate(row);
+    }
+
+    // Every copy gets a consecutive slice of the rows, so that first, last and concatenations
+    // are the same when the copies are merged in order
+    //
+    Map<String, Object> extensionDataMap = new HashMap<>();
+    TwoPhaseMerge merge = TwoPhaseMerge.getInstance(extensionDataMap, "Memory Group By", NR_COPIES);
+    MemoryGroupBy[] copies = new MemoryGroupBy[NR_COPIES];
+    int sliceSize = rows.length / NR_COPIES;
+    for (int copy = 0; copy < NR_COPIES; copy++) {
+      copies[copy] = createTransform(copy, merge);
+      for (int row = copy * sliceSize; row < (copy + 1) * sliceSize; row++) {
+        copies[copy].addToAggregate(rows[row]);
+      }
+    }
+
+    // The copies don't finish in order, the last one to finish outputs the groups
+    //
+    assertFalse(copies[1].mergePartials());
+    assertFalse(copies[2].mergePartials());
+    assertTrue(copies[0].mergePartials());
+    assertTrue(copies[1].getData().map.isEmpty());
+    assertTrue(copies[2].getData().map.isEmpty());
+
+    MemoryGroupByData singleData = single.getData();
+    MemoryGroupByData mergedData = copies[0].getData();
+    assertEquals(singleData.map.size(), mergedData.map.size());
+    for (HashEntry entry : singleData.map.keySet()) {
+      Aggregate merged = mergedData.map.get(mergedData.getHashEntry(entry.getGroupData()));
+      assertNotNull(merged);
+      Object[] expected = single.getAggregateResult(singleData.map.get(entry));
+      Object[] actual = copies[0].getAggregateResult(merged);
+      for (int i = 0; i < expected.length; i++) {
+        String message = "group " + entry.getGroupData()[0] + ", aggregate " + i;
+        if (expected[i] instanceof Double) {
+          assertEquals(message, (Double) expected[i], (Double) actual[i], 1e-6);
+        } else {
+          assertEquals(message, expected[i], actual[i]);
+        }
+      }
+    }
+
+    for (MemoryGroupBy copy : copies) {
+      copy.getData().twoPhase.dispose();
+    }
+    assertTrue(extensionDataMap.isEmpty());
+  }
+
+  @Test
+  public void testCopiesShareTheMerge() {
+    Map<String, Object> extensionDataMap = new HashMap<>();
+    TwoPhaseMerge merge = TwoPhaseMerge.getInstance(extensionDataMap, "Group", 2);
+    assertTrue(merge == TwoPhaseMerge.getInstance(extensionDataMap, "Group", 2));
+    assertFalse(merge == TwoPhaseMerge.getInstance(extensionDataMap, "Other group", 2));
+
+    assertNull(merge.finish(1, new TwoPhaseMerge.Partial(null, new HashMap<>(), null)));
+    assertEquals(2, merge.finish(0, new TwoPhaseMerge.Partial(null, new HashMap<>(), null)).size());
+  }
+
+  private static Object[][] createRows(int nrRows) {
+    Random random = new Random(7);
+    Object[][] rows = new Object[nrRows][];
+    for (int i = 0; i < nrRows; i++) {
+      rows[i] =
+          new Object[] {
+            "group" + random.nextInt(5),
+            random.nextInt(10) == 0 ? null : (long) random.nextInt(20),
+            random.nextDouble() * 1000 - 500,
+          };
+    }
+    return rows;
+  }
+
+  private static MemoryGroupBy createTransform(int copyNr, TwoPhaseMerge merge)
+      throws Exception {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaString("group"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("integer"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("number"));
+
+    int nrAggregates = AGGREGATES.length;
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate(1, nrAggregates);
+    int[] aggregateTypes = new int[nrAggregates];
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.subjectnrs = new int[nrAggregates];
+    for (int i = 0; i < nrAggregates; i++) {
+      aggregateTypes[i] = AGGREGATES[i][0];
+      data.subjectnrs[i] = AGGREGATES[i][1];
+      meta.getSubjectField()[i] = inputRowMeta.getValueMeta(data.subjectnrs[i]).getName();
+      meta.getAggregateField()[i] = "aggregate" + i;
+    }
+    meta.setAggregateType(aggregateTypes);
+    meta.getGroupField()[0] = "group";
+    meta.setTwoPhaseAggregation(true);
+
+    data.groupnrs = new int[] {0};
+    data.inputRowMeta = inputRowMeta;
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta(inputRowMeta.getValueMeta(0));
+    data.map = new HashMap<>();
+    data.twoPhase = merge;
+    data.receivedRows = true;
+
+    MemoryGroupBy transform =
+        new MemoryGroupBy(
+            mockHelper.transformMeta,
+            meta,
+            data,
+            copyNr,
+            mockHelper.pipelineMeta,
+            mockHelper.pipeline);
+    transform.newAggregate(null, null);
+    return transform;
+  }
+}
@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class SpillingHashAggregatorTest {
+
+  private static final int[] TYPES = {
+    MemoryGroupByMeta.TYPE_GROUP_SUM,
+    MemoryGroupByMeta.TYPE_GROUP_AVERAGE,
+    MemoryGroupByMeta.TYPE_GROUP_MIN,
+    MemoryGroupByMeta.TYPE_GROUP_MAX,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+  };
+
+  /** The aggregates over the Integer field followed by the same over the Number field */
+  private static final int[] TYPES_TWICE = new int[TYPES.length * 2];
+
+  static {
+    for (int i = 0; i < TYPES_TWICE.length; i++) {
+      TYPES_TWICE[i] = TYPES[i % TYPES.length];
+    }
+  }
+
+  private static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+    mockHelper =
+        new TransformMockHelper<>(
+            "Memory Group By", MemoryGroupByMeta.class, MemoryGroupByData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+    when(mockHelper.pipeline.isRunning()).thenReturn(true);
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Test
+  public void testInMemoryMatchesRowAggregation() throws Exception {
+    checkAggregation(1024L * 1024L, false);
+  }
+
+  @Test
+  public void testSpillingMatchesRowAggregation() throws Exception {
+    // Room for a handful of groups: the partitions have to be split again
+    //
+    checkAggregation(4096L, true);
+  }
+
+  @Test
+  public void testCloseDeletesSpillFiles() throws Exception {
+    MemoryGroupBy transform = createTransform();
+    MemoryGroupByData data = transform.getData();
+    SpillingHashAggregator aggregator = createAggregator(data, 1024L);
+    for (Object[] row : createRows(1000)) {
+      aggregator.addRow(row);
+    }
+    assertTrue(aggregator.getNrSpills() > 0);
+    assertTrue(folder.getRoot().list().length > 0);
+
+    aggregator.close();
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testMergeMatchesRowAggregation() throws Exception {
+    Object[][] rows = createRows(5000);
+    MemoryGroupBy rowTransform = createTransform();
+    for (Object[] row : rows) {
+      rowTransform.addToAggregate(row);
+    }
+    MemoryGroupByData rowData = rowTransform.getData();
+
+    // Both aggregators spill, like the copies of a transform aggregating half of the rows each
+    //
+    MemoryGroupBy transform = createTransform();
+    SpillingHashAggregator aggregator = createAggregator(transform.getData(), 4096L);
+    SpillingHashAggregator other = createAggregator(transform.getData(), 4096L);
+    for (int i = 0; i < rows.length; i++) {
+      (i % 2 == 0 ? aggregator : other).addRow(rows[i]);
+    }
+    assertTrue(other.getNrSpills() > 0);
+    aggregator.merge(other);
+    other.close();
+
+    List<Object> groups = new ArrayList<>();
+    aggregator.finish(
+        (groupData, aggregate) -> {
+          groups.add(groupData[0]);
+          Aggregate expected = rowData.map.get(rowData.getHashEntry(groupData));
+          assertNotNull("group " + groupData[0], expected);
+          transform.materializeAggregate(aggregate);
+          assertResultEquals(
+              "group " + groupData[0],
+              rowTransform.getAggregateResult(expected),
+              transform.getAggregateResult(aggregate));
+        });
+    assertEquals(rowData.map.size(), groups.size());
+    assertEquals(rowData.map.size(), groups.stream().distinct().count());
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testGroupFieldsRoundTrip() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaString("string"));
+    rowMeta.addValueMeta(new ValueMetaInteger("integer"));
+    rowMeta.addValueMeta(new ValueMetaNumber("number"));
+    rowMeta.addValueMeta(new ValueMetaBigNumber("bignumber"));
+    rowMeta.addValueMeta(new ValueMetaDate("date"));
+    rowMeta.addValueMeta(new ValueMetaTimestamp("timestamp"));
+    rowMeta.addValueMeta(new ValueMetaBoolean("boolean"));
+    rowMeta.addValueMeta(new ValueMetaInteger("value"));
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+
+    SpillingHashAggregator aggregator =
+        new SpillingHashAggregator(
+            mockHelper.iLogChannel,
+            rowMeta,
+            new int[] {0, 1, 2, 3, 4, 5, 6},
+            new int[] {7},
+            new int[] {MemoryGroupByMeta.TYPE_GROUP_SUM},
+            1024L * 1024L,
+            folder.getRoot().getAbsolutePath());
+    aggregator.addRow(
+        new Object[] {
+          "été", -5L, 1.5, new BigDecimal("12.340"), new Date(42L), timestamp, true, 1L
+        });
+    // Big numbers which only differ in scale are the same group
+    //
+    aggregator.addRow(
+        new Object[] {
+          "été", -5L, 1.5, new BigDecimal("12.34"), new Date(42L), timestamp, true, 2L
+        });
+    aggregator.addRow(new Object[] {null, null, null, null, null, null, null, 4L});
+
+    List<Object[]> groups = new ArrayList<>();
+    List<Long> sums = new ArrayList<>();
+    aggregator.finish(
+        (groupData, aggregate) -> {
+          groups.add(groupData);
+          sums.add(aggregate.longAgg[0]);
+        });
+    assertEquals(2, groups.size());
+    int index = groups.get(0)[0] == null ? 1 : 0;
+
+    Object[] decoded = groups.get(index);
+    assertEquals("été", decoded[0]);
+    assertEquals(-5L, decoded[1]);
+    assertEquals(1.5, decoded[2]);
+    assertEquals(0, new BigDecimal("12.34").compareTo((BigDecimal) decoded[3]));
+    assertEquals(new Date(42L), decoded[4]);
+    assertEquals(timestamp, decoded[5]);
+    assertEquals(true, decoded[6]);
+    assertEquals(Long.valueOf(3L), sums.get(index));
+
+    assertArrayEquals(new Object[7], groups.get(1 - index));
+    assertEquals(Long.valueOf(4L), sums.get(1 - index));
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(
+        SpillingHashAggregator.isSupported(
+            MemoryGroupByMeta.TYPE_GROUP_SUM, new ValueMetaInteger("i")));
+    assertTrue(
+        SpillingHashAggregator.isSupported(
+            MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, new ValueMetaString("s")));
+    assertFalse(
+        SpillingHashAggregator.isSupported(
+            MemoryGroupByMeta.TYPE_GROUP_MAX, new ValueMetaString("s")));
+    assertFalse(
+        SpillingHashAggregator.isSupported(
+            MemoryGroupByMeta.TYPE_GROUP_MEDIAN, new ValueMetaNumber("n")));
+
+    ValueMetaString caseInsensitive = new ValueMetaString("s");
+    caseInsensitive.setCaseInsensitive(true);
+    assertFalse(SpillingHashAggregator.isSupportedGroupField(caseInsensitive));
+  }
+
+  private void checkAggregation(long memoryLimit, boolean spills) throws Exception {
+    Object[][] rows = createRows(5000);
+    for (boolean minNullIsValued : new boolean[] {false, true}) {
+      MemoryGroupBy rowTransform = createTransform();
+      rowTransform.setMinNullIsValued(minNullIsValued);
+      for (Object[] row : rows) {
+        rowTransform.addToAggregate(row);
+      }
+      MemoryGroupByData rowData = rowTransform.getData();
+
+      MemoryGroupBy transform = createTransform();
+      transform.setMinNullIsValued(minNullIsValued);
+      SpillingHashAggregator aggregator = createAggregator(transform.getData(), memoryLimit);
+      for (Object[] row : rows) {
+        aggregator.addRow(row);
+      }
+      assertEquals(spills, aggregator.getNrSpills() > 0);
+
+      List<Object> groups = new ArrayList<>();
+      aggregator.finish(
+          (groupData, aggregate) -> {
+            groups.add(groupData[0]);
+            Aggregate expected = rowData.map.get(rowData.getHashEntry(groupData));
+            assertNotNull("group " + groupData[0], expected);
+            transform.materializeAggregate(aggregate);
+            assertResultEquals(
+                "group " + groupData[0] + ", min null is valued: " + minNullIsValued,
+                rowTransform.getAggregateResult(expected),
+                transform.getAggregateResult(aggregate));
+          });
+      assertEquals(rowData.map.size(), groups.size());
+      assertEquals(rowData.map.size(), groups.stream().distinct().count());
+      assertEquals(0, folder.getRoot().list().length);
+    }
+  }
+
+  private SpillingHashAggregator createAggregator(MemoryGroupByData data, long memoryLimit) {
+    return new SpillingHashAggregator(
+        mockHelper.iLogChannel,
+        data.inputRowMeta,
+        data.groupnrs,
+        data.subjectnrs,
+        TYPES_TWICE,
+        memoryLimit,
+        folder.getRoot().getAbsolutePath());
+  }
+
+  /** The sums of Number values are added up in another order after a spill */
+  private static void assertResultEquals(String message, Object[] expected, Object[] actual) {
+    assertEquals(message, expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      if (expected[i] instanceof Double && actual[i] instanceof Double) {
+        assertEquals(message, (Double) expected[i], (Double) actual[i], 1e-6);
+      } else {
+        assertEquals(message, expected[i], actual[i]);
+      }
+    }
+  }
+
+  private static Object[][] createRows(int nrRows) {
+    Random random = new Random(42);
+    Object[][] rows = new Object[nrRows][];
+    for (int i = 0; i < nrRows; i++) {
+      rows[i] =
+          new Object[] {
+            random.nextInt(50) == 0 ? null : "group" + random.nextInt(500),
+            random.nextInt(10) == 0 ? null : (long) random.nextInt(1000) - 500,
+            random.nextInt(10) == 0 ? null : random.nextDouble() * 1000 - 500,
+          };
+    }
+    return rows;
+  }
+
+  private static MemoryGroupBy createTransform() throws Exception {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaString("group"));
+    inputRowMeta.addValueMeta(new ValueMetaInteger("integer"));
+    inputRowMeta.addValueMeta(new ValueMetaNumber("number"));
+
+    int nrAggregates = TYPES_TWICE.length;
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate(1, nrAggregates);
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.subjectnrs = new int[nrAggregates];
+    for (int i = 0; i < nrAggregates; i++) {
+      data.subjectnrs[i] = i < TYPES.length ? 1 : 2;
+      meta.getSubjectField()[i] = inputRowMeta.getValueMeta(data.subjectnrs[i]).getName();
+      meta.getAggregateField()[i] = "aggregate" + i;
+    }
+    meta.setAggregateType(TYPES_TWICE.clone());
+    meta.getGroupField()[0] = "group";
+
+    data.groupnrs = new int[] {0};
+    data.inputRowMeta = inputRowMeta;
+    data.groupMeta = new RowMeta();
+    data.groupMeta.addValueMeta(inputRowMeta.getValueMeta(0));
+    data.map = new HashMap<>();
+
+    MemoryGroupBy transform =
+        new MemoryGroupBy(
+            mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline);
+    transform.newAggregate(null, null);
+    return transform;
+  }
+}
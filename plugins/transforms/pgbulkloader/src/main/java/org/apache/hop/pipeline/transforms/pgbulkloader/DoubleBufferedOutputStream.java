@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.pgbulkloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An output stream with two buffers: while one buffer is written to the underlying stream by a
+ * background thread, the other one is filled by the caller. This lets the encoding of the rows
+ * overlap with the network writes of the COPY command.
+ *
+ * <p>Closing this stream writes the remaining data and stops the background thread but leaves the
+ * underlying stream open, the COPY command still has to be ended. This class is not thread-safe.
+ */
+public class DoubleBufferedOutputStream extends OutputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+
+  private byte[] current;
+  private byte[] spare;
+  private int length;
+
+  /** The write of the spare buffer which is in progress */
+  private Future<?> pending;
+
+  private boolean closed;
+
+  /**
+   * @param out the underlying stream
+   * @param bufferSize the size of each of the two buffers
+   * @param threadName the name of the thread writing to the underlying stream
+   */
+  public DoubleBufferedOutputStream(OutputStream out, int bufferSize, String threadName) {
+    this.out = out;
+    this.current = new byte[bufferSize];
+    this.spare = new byte[bufferSize];
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            r -> {
+              Thread thread = new Thread(r, threadName);
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (length == current.length) {
+      swap();
+    }
+    current[length++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (length == current.length) {
+        swap();
+      }
+      int n = Math.min(len, current.length - length);
+      System.arraycopy(b, off, current, length, n);
+      length += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /** Write all the buffered data and flush the underlying stream. */
+  @Override
+  public void flush() throws IOException {
+    if (length > 0) {
+      swap();
+    }
+    waitForPending();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      executor.shutdownNow();
+    }
+  }
+
+  /** Stop the background thread without writing the buffered data. */
+  public void abort() {
+    closed = true;
+    executor.shutdownNow();
+  }
+
+  /** Hand the filled buffer to the background thread and continue with the other one. */
+  private void swap() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    // The spare buffer is free once its write is done
+    //
+    waitForPending();
+
+    byte[] full = current;
+    int fullLength = length;
+    pending =
+        executor.submit(
+            () -> {
+              out.write(full, 0, fullLength);
+              return null;
+            });
+    current = spare;
+    spare = full;
+    length = 0;
+  }
+
+  private void waitForPending() throws IOException {
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing the COPY data");
+    } finally {
+      pending = null;
+    }
+  }
+}
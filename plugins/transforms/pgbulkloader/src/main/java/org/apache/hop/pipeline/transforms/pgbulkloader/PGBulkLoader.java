@@ -46,6 +46,7 @@ import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
@@ -58,6 +59,11 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
   private Charset clientEncoding = Charset.defaultCharset();
   private PGCopyOutputStream pgCopyOut;
 
+  /** The binary format: encodes the rows while the previous data is sent to the database */
+  private DoubleBufferedOutputStream binaryOut;
+
+  private PGCopyBinaryEncoder binaryEncoder;
+
   public PGBulkLoader(
       TransformMeta transformMeta,
       PGBulkLoaderMeta meta,
@@ -110,12 +116,16 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
     contents.append(" FROM STDIN"); // FIFO file
 
     // The "FORMAT" clause
-    contents
-        .append(" WITH CSV DELIMITER AS '")
-        .append(resolve(meta.getDelimiter()))
-        .append("' QUOTE AS '")
-        .append(resolve(meta.getEnclosure()))
-        .append("'");
+    if (meta.isBinaryFormat()) {
+      contents.append(" WITH ( FORMAT binary )");
+    } else {
+      contents
+          .append(" WITH CSV DELIMITER AS '")
+          .append(resolve(meta.getDelimiter()))
+          .append("' QUOTE AS '")
+          .append(resolve(meta.getEnclosure()))
+          .append("'");
+    }
     contents.append(";").append(Const.CR);
 
     return contents.toString();
@@ -154,14 +164,60 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
 
       processTruncate();
 
+      // The binary values have to match the column types: get them before the copy starts
+      //
+      if (meta.isBinaryFormat()) {
+        binaryEncoder = new PGCopyBinaryEncoder(getColumnTypes(), clientEncoding);
+      }
+
       logBasic("Launching command: " + copyCmd);
       pgCopyOut = new PGCopyOutputStream((PGConnection) data.db.getConnection(), copyCmd);
 
+      if (meta.isBinaryFormat()) {
+        binaryOut =
+            new DoubleBufferedOutputStream(
+                pgCopyOut,
+                DoubleBufferedOutputStream.DEFAULT_BUFFER_SIZE,
+                getTransformName() + " - COPY writer");
+        binaryOut.write(PGCopyBinaryEncoder.HEADER);
+      }
+
     } catch (Exception ex) {
       throw new HopException("Error while preparing the COPY " + copyCmd, ex);
     }
   }
 
+  /**
+   * Get the PostgreSQL type names of the columns to load
+   *
+   * @return the type names in the order of the field mappings
+   */
+  String[] getColumnTypes() throws Exception {
+    DatabaseMeta dm = meta.getDatabaseMeta();
+    List<PGBulkLoaderMappingMeta> mapping = meta.getMappings();
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < mapping.size(); i++) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+      sql.append(dm.quoteField(mapping.get(i).getFieldTable()));
+    }
+    sql.append(" FROM ")
+        .append(dm.getQuotedSchemaTableCombination(this, meta.getSchemaName(), meta.getTableName()))
+        .append(" WHERE 1=0");
+
+    String[] columnTypes = new String[mapping.size()];
+    try (Statement statement = data.db.getConnection().createStatement();
+        ResultSet rs = statement.executeQuery(sql.toString())) {
+      ResultSetMetaData rsMeta = rs.getMetaData();
+      for (int i = 0; i < columnTypes.length; i++) {
+        columnTypes[i] = rsMeta.getColumnTypeName(i + 1);
+      }
+    }
+    return columnTypes;
+  }
+
   @VisibleForTesting
   Database getDatabase(ILoggingObject parentObject, PGBulkLoaderMeta pgBulkLoaderMeta) {
     DatabaseMeta dbMeta = pgBulkLoaderMeta.getDatabaseMeta();
@@ -215,6 +271,11 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
         // Close the output stream...
         // will be null if no records (empty stream)
         if (data != null && pgCopyOut != null) {
+          if (binaryOut != null) {
+            binaryOut.write(PGCopyBinaryEncoder.TRAILER);
+            binaryOut.close();
+            binaryOut = null;
+          }
           pgCopyOut.flush();
           pgCopyOut.endCopy();
           pgCopyOut.close();
@@ -259,6 +320,10 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
   }
 
   private void writeRowToPostgres(IRowMeta rowMeta, Object[] r) throws HopException {
+    if (binaryOut != null) {
+      writeBinaryRowToPostgres(rowMeta, r);
+      return;
+    }
 
     try {
       // So, we have this output stream to which we can write CSV data to.
@@ -423,6 +488,17 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
     }
   }
 
+  private void writeBinaryRowToPostgres(IRowMeta rowMeta, Object[] r) throws HopException {
+    try {
+      // The values are encoded straight from the row data, no conversion to text
+      //
+      binaryEncoder.encodeRow(rowMeta, r, data.keynrs, data.dateFormatChoices);
+      binaryOut.write(binaryEncoder.getBuffer(), 0, binaryEncoder.getLength());
+    } catch (Exception e) {
+      throw new HopException("Error serializing rows of data to the binary COPY command", e);
+    }
+  }
+
   protected void verifyDatabaseConnection() throws HopException {
     // Confirming Database Connection is defined.
     if (meta.getDatabaseMeta() == null) {
@@ -481,4 +557,15 @@ public class PGBulkLoader extends BaseTransform<PGBulkLoaderMeta, PGBulkLoaderDa
     }
     return false;
   }
+
+  @Override
+  public void dispose() {
+    // Stop the writer thread in case the copy didn't finish
+    //
+    if (binaryOut != null) {
+      binaryOut.abort();
+      binaryOut = null;
+    }
+    super.dispose();
+  }
 }
@@ -92,6 +92,8 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
 
   private Button wStopOnError;
 
+  private Button wBinaryFormat;
+
   private final PGBulkLoaderMeta input;
 
   private ColumnInfo[] ciReturn;
@@ -320,6 +322,34 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
           }
         });
 
+    // Binary format line
+    Label wlBinaryFormat = new Label(shell, SWT.RIGHT);
+    wlBinaryFormat.setText(BaseMessages.getString(PKG, "PGBulkLoaderDialog.BinaryFormat.Label"));
+    PropsUi.setLook(wlBinaryFormat);
+    FormData fdlBinaryFormat = new FormData();
+    fdlBinaryFormat.left = new FormAttachment(0, 0);
+    fdlBinaryFormat.top = new FormAttachment(wStopOnError, margin);
+    fdlBinaryFormat.right = new FormAttachment(middle, -margin);
+    wlBinaryFormat.setLayoutData(fdlBinaryFormat);
+    wBinaryFormat = new Button(shell, SWT.CHECK);
+    PropsUi.setLook(wBinaryFormat);
+    wBinaryFormat.setToolTipText(
+        BaseMessages.getString(PKG, "PGBulkLoaderDialog.BinaryFormat.Tooltip"));
+    FormData fdBinaryFormat = new FormData();
+    fdBinaryFormat.left = new FormAttachment(middle, 0);
+    fdBinaryFormat.top = new FormAttachment(wlBinaryFormat, 0, SWT.CENTER);
+    fdBinaryFormat.right = new FormAttachment(100, 0);
+    wBinaryFormat.setLayoutData(fdBinaryFormat);
+
+    wBinaryFormat.addSelectionListener(
+        new SelectionAdapter() {
+          @Override
+          public void widgetSelected(SelectionEvent e) {
+            input.setChanged();
+            setFlags();
+          }
+        });
+
     // THE BUTTONS
     wOk = new Button(shell, SWT.PUSH);
     wOk.setText(BaseMessages.getString(PKG, "System.Button.OK"));
@@ -335,7 +365,7 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
     PropsUi.setLook(wlReturn);
     FormData fdlReturn = new FormData();
     fdlReturn.left = new FormAttachment(0, 0);
-    fdlReturn.top = new FormAttachment(wStopOnError, margin);
+    fdlReturn.top = new FormAttachment(wBinaryFormat, margin);
     wlReturn.setLayoutData(fdlReturn);
 
     int upInsCols = 3;
@@ -446,6 +476,13 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
     return transformName;
   }
 
+  /** The enclosure and delimiter are only used by the CSV format */
+  private void setFlags() {
+    boolean csv = !wBinaryFormat.getSelection();
+    wEnclosure.setEnabled(csv);
+    wDelimiter.setEnabled(csv);
+  }
+
   /** Copy information from the meta-data input to the dialog fields. */
   public void getData() {
     logDebug(BaseMessages.getString(PKG, "PGBulkLoaderDialog.Log.GettingKeyInfo"));
@@ -493,6 +530,8 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
       wEnclosure.setText(input.getEnclosure());
     }
     wStopOnError.setSelection(input.isStopOnError());
+    wBinaryFormat.setSelection(input.isBinaryFormat());
+    setFlags();
     if (input.getDbNameOverride() != null) {
       wDbNameOverride.setText(input.getDbNameOverride());
     }
@@ -717,6 +756,7 @@ public class PGBulkLoaderDialog extends BaseTransformDialog implements ITransfor
     inf.setDelimiter(wDelimiter.getText());
     inf.setEnclosure(wEnclosure.getText());
     inf.setStopOnError(wStopOnError.getSelection());
+    inf.setBinaryFormat(wBinaryFormat.getSelection());
 
     /*
      * /* Set the loadaction
@@ -112,6 +112,12 @@ public class PGBulkLoaderMeta extends BaseTransformMeta<PGBulkLoader, PGBulkLoad
       injectionKeyDescription = "PGBulkLoader.Injection.StopOnError.Label")
   private boolean stopOnError;
 
+  /** Send the rows in the PostgreSQL binary COPY format instead of CSV */
+  @HopMetadataProperty(
+      key = "binary_format",
+      injectionKeyDescription = "PGBulkLoader.Injection.BinaryFormat.Label")
+  private boolean binaryFormat;
+
   /*
    * Do not translate following values!!! They are will end up in the workflow export.
    */
@@ -142,6 +148,7 @@ public class PGBulkLoaderMeta extends BaseTransformMeta<PGBulkLoader, PGBulkLoad
     delimiter = ";";
     enclosure = "\"";
     stopOnError = false;
+    binaryFormat = false;
     mappings = new ArrayList<>();
   }
 
@@ -520,6 +527,16 @@ public class PGBulkLoaderMeta extends BaseTransformMeta<PGBulkLoader, PGBulkLoad
     this.stopOnError = value;
   }
 
+  /** @return true if the rows are sent in the PostgreSQL binary COPY format */
+  public boolean isBinaryFormat() {
+    return binaryFormat;
+  }
+
+  /** @param binaryFormat true to send the rows in the PostgreSQL binary COPY format */
+  public void setBinaryFormat(boolean binaryFormat) {
+    this.binaryFormat = binaryFormat;
+  }
+
   /** @return Returns the database. */
   @Override
   public DatabaseMeta getDatabaseMeta() {
@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.pgbulkloader;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Encodes rows in the binary format of the PostgreSQL COPY command. Every value is written in the
+ * binary representation of the type of its target column, so the types of the columns have to be
+ * known up front. The encoded row is kept in a buffer which is reused for the next row.
+ *
+ * <p>The timestamps are encoded as 64-bit microseconds, the default for PostgreSQL since 8.4.
+ */
+public class PGCopyBinaryEncoder {
+
+  /** The signature, the flags and the length of the header extension */
+  public static final byte[] HEADER = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0
+  };
+
+  /** A field count of -1 ends the data */
+  public static final byte[] TRAILER = {(byte) 0xFF, (byte) 0xFF};
+
+  public static final int TYPE_INT2 = 1;
+  public static final int TYPE_INT4 = 2;
+  public static final int TYPE_INT8 = 3;
+  public static final int TYPE_FLOAT4 = 4;
+  public static final int TYPE_FLOAT8 = 5;
+  public static final int TYPE_NUMERIC = 6;
+  public static final int TYPE_BOOL = 7;
+  public static final int TYPE_DATE = 8;
+  public static final int TYPE_TIMESTAMP = 9;
+  public static final int TYPE_TIMESTAMPTZ = 10;
+  public static final int TYPE_BYTEA = 11;
+  public static final int TYPE_TEXT = 12;
+  public static final int TYPE_UUID = 13;
+  public static final int TYPE_JSONB = 14;
+
+  /** 2000-01-01, the epoch of the PostgreSQL dates, in days since 1970-01-01 */
+  private static final long PG_EPOCH_DAYS = 10957L;
+
+  /** 2000-01-01 00:00:00 UTC in microseconds since 1970-01-01 00:00:00 UTC */
+  private static final long PG_EPOCH_MICROS = PG_EPOCH_DAYS * 86400L * 1000000L;
+
+  private static final short NUMERIC_POS = 0x0000;
+  private static final short NUMERIC_NEG = 0x4000;
+
+  private final int[] columnTypes;
+  private final Charset charset;
+  private final ZoneId zone;
+
+  private byte[] buffer;
+  private int length;
+
+  /**
+   * @param columnTypeNames the PostgreSQL type names of the target columns, in the order of the
+   *     fields to load
+   * @param charset the client encoding used for the text values
+   * @throws HopException in case one of the types can't be encoded
+   */
+  public PGCopyBinaryEncoder(String[] columnTypeNames, Charset charset) throws HopException {
+    this.columnTypes = new int[columnTypeNames.length];
+    for (int i = 0; i < columnTypeNames.length; i++) {
+      columnTypes[i] = getColumnType(columnTypeNames[i]);
+      if (columnTypes[i] < 0) {
+        throw new HopException(
+            "The binary COPY format doesn't support column type '"
+                + columnTypeNames[i]
+                + "' of column #"
+                + (i + 1)
+                + ", use the CSV format instead");
+      }
+    }
+    this.charset = charset;
+    this.zone = ZoneId.systemDefault();
+    this.buffer = new byte[1024];
+  }
+
+  /**
+   * @param typeName the PostgreSQL name of a column type
+   * @return the type code or -1 if the type isn't supported
+   */
+  public static int getColumnType(String typeName) {
+    if (typeName == null) {
+      return -1;
+    }
+    switch (typeName.toLowerCase()) {
+      case "int2":
+        return TYPE_INT2;
+      case "int4":
+      case "serial":
+        return TYPE_INT4;
+      case "int8":
+      case "bigserial":
+        return TYPE_INT8;
+      case "float4":
+        return TYPE_FLOAT4;
+      case "float8":
+        return TYPE_FLOAT8;
+      case "numeric":
+        return TYPE_NUMERIC;
+      case "bool":
+        return TYPE_BOOL;
+      case "date":
+        return TYPE_DATE;
+      case "timestamp":
+        return TYPE_TIMESTAMP;
+      case "timestamptz":
+        return TYPE_TIMESTAMPTZ;
+      case "bytea":
+        return TYPE_BYTEA;
+      case "text":
+      case "varchar":
+      case "bpchar":
+      case "char":
+      case "name":
+      case "citext":
+      case "json":
+      case "xml":
+        return TYPE_TEXT;
+      case "uuid":
+        return TYPE_UUID;
+      case "jsonb":
+        return TYPE_JSONB;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Encode a row as a single COPY tuple. The result is available with {@link #getBuffer()} and
+   * {@link #getLength()} until the next row is encoded.
+   *
+   * @param rowMeta the metadata of the row
+   * @param row the row data
+   * @param fieldIndexes the indexes of the fields to load, in the order of the columns
+   * @param dateFormatChoices the date masks of the fields, only the date mask is used: it drops
+   *     the time of the timestamps
+   * @throws HopValueException in case a value can't be converted to the type of its column
+   */
+  public void encodeRow(
+      IRowMeta rowMeta, Object[] row, int[] fieldIndexes, int[] dateFormatChoices)
+      throws HopValueException {
+    length = 0;
+    writeShort((short) fieldIndexes.length);
+    for (int i = 0; i < fieldIndexes.length; i++) {
+      IValueMeta valueMeta = rowMeta.getValueMeta(fieldIndexes[i]);
+      Object valueData = row[fieldIndexes[i]];
+      if (valueMeta.isNull(valueData)) {
+        writeInt(-1);
+        continue;
+      }
+      switch (columnTypes[i]) {
+        case TYPE_INT2:
+          writeInt(2);
+          writeShort((short) toRange(valueMeta, valueData, Short.MIN_VALUE, Short.MAX_VALUE));
+          break;
+        case TYPE_INT4:
+          writeInt(4);
+          writeInt((int) toRange(valueMeta, valueData, Integer.MIN_VALUE, Integer.MAX_VALUE));
+          break;
+        case TYPE_INT8:
+          writeInt(8);
+          writeLong(valueMeta.getInteger(valueData));
+          break;
+        case TYPE_FLOAT4:
+          writeInt(4);
+          writeInt(Float.floatToIntBits(valueMeta.getNumber(valueData).floatValue()));
+          break;
+        case TYPE_FLOAT8:
+          writeInt(8);
+          writeLong(Double.doubleToLongBits(valueMeta.getNumber(valueData)));
+          break;
+        case TYPE_NUMERIC:
+          writeNumeric(valueMeta.getBigNumber(valueData));
+          break;
+        case TYPE_BOOL:
+          writeInt(1);
+          writeByte(Boolean.TRUE.equals(valueMeta.getBoolean(valueData)) ? 1 : 0);
+          break;
+        case TYPE_DATE:
+          long days = toLocalDateTime(valueMeta.getDate(valueData)).toLocalDate().toEpochDay();
+          writeInt(4);
+          writeInt((int) (days - PG_EPOCH_DAYS));
+          break;
+        case TYPE_TIMESTAMP:
+          LocalDateTime dateTime = toLocalDateTime(valueMeta.getDate(valueData));
+          if (dateFormatChoices != null
+              && dateFormatChoices[i] == PGBulkLoaderMeta.NR_DATE_MASK_DATE) {
+            dateTime = dateTime.toLocalDate().atStartOfDay();
+          }
+          writeInt(8);
+          writeLong(toMicros(dateTime.toInstant(ZoneOffset.UTC)) - PG_EPOCH_MICROS);
+          break;
+        case TYPE_TIMESTAMPTZ:
+          writeInt(8);
+          writeLong(toMicros(toInstant(valueMeta.getDate(valueData))) - PG_EPOCH_MICROS);
+          break;
+        case TYPE_BYTEA:
+          writeBytes(valueMeta.getBinary(valueData));
+          break;
+        case TYPE_TEXT:
+          writeBytes(valueMeta.getString(valueData).getBytes(charset));
+          break;
+        case TYPE_UUID:
+          UUID uuid = UUID.fromString(valueMeta.getString(valueData));
+          writeInt(16);
+          writeLong(uuid.getMostSignificantBits());
+          writeLong(uuid.getLeastSignificantBits());
+          break;
+        case TYPE_JSONB:
+          byte[] json = valueMeta.getString(valueData).getBytes(charset);
+          writeInt(json.length + 1);
+          writeByte(1); // jsonb format version
+          write(json, json.length);
+          break;
+        default:
+          throw new HopValueException("Unknown column type code " + columnTypes[i]);
+      }
+    }
+  }
+
+  /**
+   * @return the buffer with the last encoded row
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return the number of bytes of the last encoded row
+   */
+  public int getLength() {
+    return length;
+  }
+
+  private static long toRange(IValueMeta valueMeta, Object valueData, long min, long max)
+      throws HopValueException {
+    long value = valueMeta.getInteger(valueData);
+    if (value < min || value > max) {
+      throw new HopValueException(
+          "Value " + value + " of field " + valueMeta.getName() + " is out of range");
+    }
+    return value;
+  }
+
+  private static Instant toInstant(Date date) {
+    // java.sql.Date doesn't support toInstant()
+    if (date instanceof Timestamp) {
+      return ((Timestamp) date).toInstant();
+    }
+    return Instant.ofEpochMilli(date.getTime());
+  }
+
+  private LocalDateTime toLocalDateTime(Date date) {
+    return LocalDateTime.ofInstant(toInstant(date), zone);
+  }
+
+  private static long toMicros(Instant instant) {
+    return instant.getEpochSecond() * 1000000L + instant.getNano() / 1000;
+  }
+
+  /**
+   * A numeric is sent as base 10000 digits: the number of digits, the weight of the first digit,
+   * the sign, the display scale and the digits themselves.
+   */
+  private void writeNumeric(BigDecimal value) {
+    int dscale = Math.max(0, value.scale());
+    if (value.signum() == 0) {
+      writeInt(8);
+      writeShort((short) 0);
+      writeShort((short) 0);
+      writeShort(NUMERIC_POS);
+      writeShort((short) dscale);
+      return;
+    }
+
+    String plain = value.abs().toPlainString();
+    int point = plain.indexOf('.');
+    String integerPart = point < 0 ? plain : plain.substring(0, point);
+    String fractionPart = point < 0 ? "" : plain.substring(point + 1);
+
+    // Pad both parts to groups of 4 decimal digits
+    //
+    int integerGroups = (integerPart.length() + 3) / 4;
+    int fractionGroups = (fractionPart.length() + 3) / 4;
+    short[] digits = new short[integerGroups + fractionGroups];
+    int padding = integerGroups * 4 - integerPart.length();
+    for (int i = 0; i < integerPart.length(); i++) {
+      int position = padding + i;
+      digits[position / 4] = (short) (digits[position / 4] * 10 + (integerPart.charAt(i) - '0'));
+    }
+    for (int i = 0; i < fractionGroups * 4; i++) {
+      int digit = i < fractionPart.length() ? fractionPart.charAt(i) - '0' : 0;
+      int group = integerGroups + i / 4;
+      digits[group] = (short) (digits[group] * 10 + digit);
+    }
+
+    // Strip the zero digits on both ends
+    //
+    int first = 0;
+    int weight = integerGroups - 1;
+    while (digits[first] == 0) {
+      first++;
+      weight--;
+    }
+    int last = digits.length - 1;
+    while (digits[last] == 0) {
+      last--;
+    }
+    int ndigits = last - first + 1;
+
+    writeInt(8 + ndigits * 2);
+    writeShort((short) ndigits);
+    writeShort((short) weight);
+    writeShort(value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+    writeShort((short) dscale);
+    for (int i = first; i <= last; i++) {
+      writeShort(digits[i]);
+    }
+  }
+
+  private void writeBytes(byte[] bytes) {
+    writeInt(bytes.length);
+    write(bytes, bytes.length);
+  }
+
+  private void write(byte[] bytes, int len) {
+    ensureCapacity(len);
+    System.arraycopy(bytes, 0, buffer, length, len);
+    length += len;
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) value;
+  }
+
+  private void writeShort(short value) {
+    ensureCapacity(2);
+    buffer[length++] = (byte) (value >>> 8);
+    buffer[length++] = (byte) value;
+  }
+
+  private void writeInt(int value) {
+    ensureCapacity(4);
+    buffer[length++] = (byte) (value >>> 24);
+    buffer[length++] = (byte) (value >>> 16);
+    buffer[length++] = (byte) (value >>> 8);
+    buffer[length++] = (byte) value;
+  }
+
+  private void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.pgbulkloader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class DoubleBufferedOutputStreamTest {
+
+  @Test
+  public void testWritesEverythingInOrder() throws Exception {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+    DoubleBufferedOutputStream out = new DoubleBufferedOutputStream(target, 7, "test");
+    for (int i = 0; i < 1000; i++) {
+      byte[] bytes = Integer.toString(i).getBytes();
+      out.write(bytes);
+      out.write('\n');
+      expected.write(bytes);
+      expected.write('\n');
+    }
+    out.close();
+
+    assertArrayEquals(expected.toByteArray(), target.toByteArray());
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriteErrorIsReported() throws Exception {
+    OutputStream failing =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("broken pipe");
+          }
+        };
+    DoubleBufferedOutputStream out = new DoubleBufferedOutputStream(failing, 4, "test");
+    out.write(new byte[100]);
+    out.close();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.pgbulkloader;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PGCopyBinaryEncoderTest {
+
+  private static ByteBuffer encode(IRowMeta rowMeta, Object[] row, String... columnTypes)
+      throws HopException {
+    PGCopyBinaryEncoder encoder =
+        new PGCopyBinaryEncoder(columnTypes, StandardCharsets.UTF_8);
+    int[] indexes = new int[rowMeta.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = i;
+    }
+    encoder.encodeRow(rowMeta, row, indexes, null);
+    return ByteBuffer.wrap(encoder.getBuffer(), 0, encoder.getLength());
+  }
+
+  @Test
+  public void testIntegersAndNull() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("a"));
+    rowMeta.addValueMeta(new ValueMetaInteger("b"));
+    rowMeta.addValueMeta(new ValueMetaInteger("c"));
+
+    ByteBuffer buffer = encode(rowMeta, new Object[] {7L, -1L, null}, "int4", "int8", "int2");
+    assertEquals(3, buffer.getShort());
+    assertEquals(4, buffer.getInt());
+    assertEquals(7, buffer.getInt());
+    assertEquals(8, buffer.getInt());
+    assertEquals(-1L, buffer.getLong());
+    assertEquals(-1, buffer.getInt());
+    assertEquals(0, buffer.remaining());
+  }
+
+  @Test(expected = HopException.class)
+  public void testIntegerOutOfRange() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("a"));
+    encode(rowMeta, new Object[] {100000L}, "int2");
+  }
+
+  @Test(expected = HopException.class)
+  public void testUnsupportedColumnType() throws Exception {
+    new PGCopyBinaryEncoder(new String[] {"int4range"}, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testNumeric() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaBigNumber("a"));
+
+    // 12345.678 = 1 2345 . 6780 with weight 1
+    ByteBuffer buffer = encode(rowMeta, new Object[] {new BigDecimal("-12345.678")}, "numeric");
+    buffer.getShort();
+    assertEquals(8 + 3 * 2, buffer.getInt());
+    assertEquals(3, buffer.getShort()); // ndigits
+    assertEquals(1, buffer.getShort()); // weight
+    assertEquals(0x4000, buffer.getShort()); // negative
+    assertEquals(3, buffer.getShort()); // dscale
+    assertEquals(1, buffer.getShort());
+    assertEquals(2345, buffer.getShort());
+    assertEquals(6780, buffer.getShort());
+
+    // 0.00005 = 5000 with weight -2
+    buffer = encode(rowMeta, new Object[] {new BigDecimal("0.00005")}, "numeric");
+    buffer.getShort();
+    assertEquals(8 + 2, buffer.getInt());
+    assertEquals(1, buffer.getShort());
+    assertEquals(-2, buffer.getShort());
+    assertEquals(0, buffer.getShort());
+    assertEquals(5, buffer.getShort());
+    assertEquals(5000, buffer.getShort());
+
+    // 1000000 = 100 0000 with the trailing zero digit removed
+    buffer = encode(rowMeta, new Object[] {new BigDecimal("1000000")}, "numeric");
+    buffer.getShort();
+    assertEquals(8 + 2, buffer.getInt());
+    assertEquals(1, buffer.getShort());
+    assertEquals(1, buffer.getShort());
+    assertEquals(0, buffer.getShort());
+    assertEquals(0, buffer.getShort());
+    assertEquals(100, buffer.getShort());
+  }
+
+  @Test
+  public void testNumberBooleanText() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaNumber("a"));
+    rowMeta.addValueMeta(new ValueMetaBoolean("b"));
+    rowMeta.addValueMeta(new ValueMetaString("c"));
+
+    ByteBuffer buffer =
+        encode(rowMeta, new Object[] {1.5, Boolean.TRUE, "héllo"}, "float8", "bool", "varchar");
+    buffer.getShort();
+    assertEquals(8, buffer.getInt());
+    assertEquals(1.5, buffer.getDouble(), 0.0);
+    assertEquals(1, buffer.getInt());
+    assertEquals(1, buffer.get());
+    byte[] expected = "héllo".getBytes(StandardCharsets.UTF_8);
+    assertEquals(expected.length, buffer.getInt());
+    byte[] text = new byte[expected.length];
+    buffer.get(text);
+    assertArrayEquals(expected, text);
+  }
+
+  @Test
+  public void testDateAndTimestamp() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaTimestamp("a"));
+    rowMeta.addValueMeta(new ValueMetaTimestamp("b"));
+
+    Timestamp timestamp = Timestamp.valueOf(LocalDateTime.of(2000, 1, 2, 0, 0, 1, 500000000));
+    ByteBuffer buffer = encode(rowMeta, new Object[] {timestamp, timestamp}, "date", "timestamp");
+    buffer.getShort();
+    assertEquals(4, buffer.getInt());
+    assertEquals(1, buffer.getInt()); // days since 2000-01-01
+    assertEquals(8, buffer.getInt());
+    assertEquals(86401500000L, buffer.getLong()); // microseconds since 2000-01-01 00:00:00
+  }
+}
@@ -357,22 +357,18 @@ public class SelectValues extends BaseTransform<SelectValuesMeta, SelectValuesDa
 
   @Override
   public boolean processRow() throws HopException {
-    Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
-    if (rowData == null) { // no more input to be expected...
-
-      setOutputDone();
-      return false;
+    if (data.rows == null) {
+      data.rows = new Object[Const.ROWS_IN_BATCH][];
+      data.outputRows = new Object[Const.ROWS_IN_BATCH][];
     }
+    long linesBefore = getLinesRead();
 
-    Object[] rowCopy = null;
-    if (getTransformMeta().isDoingErrorHandling()) {
-      rowCopy = getInputRowMeta().cloneRow(rowData);
-    }
+    // get rows from rowset, wait for our turn, indicate busy!
+    int nrRows = getRows(data.rows);
+    if (nrRows == 0) { // no more input to be expected...
 
-    if (log.isRowLevel()) {
-      logRowlevel(
-          BaseMessages.getString(PKG, "SelectValues.Log.GotRowFromPreviousTransform")
-              + getInputRowMeta().getString(rowData));
+      setOutputDone();
+      return false;
     }
 
     if (first) {
@@ -386,49 +382,76 @@ public class SelectValues extends BaseTransform<SelectValuesMeta, SelectValuesDa
       meta.getMetadataFields(data.metadataRowMeta, getTransformName(), this);
     }
 
-    try {
-      Object[] outputData = rowData;
+    int nrOutputRows = 0;
+    boolean stop = false;
+    for (int i = 0; i < nrRows && !stop; i++) {
+      Object[] rowData = data.rows[i];
 
-      if (data.select) {
-        outputData = selectValues(getInputRowMeta(), outputData);
-      }
-      if (data.deselect) {
-        outputData = removeValues(data.selectRowMeta, outputData);
-      }
-      if (data.metadata) {
-        outputData = metadataValues(data.deselectRowMeta, outputData);
-      }
-
-      if (outputData == null) {
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      Object[] rowCopy = null;
+      if (getTransformMeta().isDoingErrorHandling()) {
+        rowCopy = getInputRowMeta().cloneRow(rowData);
       }
 
-      // Send the row on its way
-      //
-      putRow(data.metadataRowMeta, outputData);
       if (log.isRowLevel()) {
         logRowlevel(
-            BaseMessages.getString(PKG, "SelectValues.Log.WroteRowToNextTransform")
-                + data.metadataRowMeta.getString(outputData));
+            BaseMessages.getString(PKG, "SelectValues.Log.GotRowFromPreviousTransform")
+                + getInputRowMeta().getString(rowData));
       }
 
-    } catch (HopException e) {
-      if (getTransformMeta().isDoingErrorHandling()) {
-        String field;
-        if (e instanceof HopConversionException) {
-          List<IValueMeta> fields = ((HopConversionException) e).getFields();
-          field = fields.isEmpty() ? null : fields.get(0).getName();
+      try {
+        Object[] outputData = rowData;
+
+        if (data.select) {
+          outputData = selectValues(getInputRowMeta(), outputData);
+        }
+        if (data.deselect) {
+          outputData = removeValues(data.selectRowMeta, outputData);
+        }
+        if (data.metadata) {
+          outputData = metadataValues(data.deselectRowMeta, outputData);
+        }
+
+        if (outputData == null) {
+          stop = true;
         } else {
-          field = null;
+          // Collect the row to send it on its way with the rest of the batch
+          //
+          data.outputRows[nrOutputRows++] = outputData;
+          if (log.isRowLevel()) {
+            logRowlevel(
+                BaseMessages.getString(PKG, "SelectValues.Log.WroteRowToNextTransform")
+                    + data.metadataRowMeta.getString(outputData));
+          }
+        }
+
+      } catch (HopException e) {
+        if (getTransformMeta().isDoingErrorHandling()) {
+          String field;
+          if (e instanceof HopConversionException) {
+            List<IValueMeta> fields = ((HopConversionException) e).getFields();
+            field = fields.isEmpty() ? null : fields.get(0).getName();
+          } else {
+            field = null;
+          }
+          putError(getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001");
+        } else {
+          throw e;
         }
-        putError(getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001");
-      } else {
-        throw e;
       }
     }
 
-    if (checkFeedback(getLinesRead())) {
+    // Send the rows on their way
+    //
+    putRows(data.metadataRowMeta, data.outputRows, nrOutputRows);
+    Arrays.fill(data.rows, 0, nrRows, null);
+    Arrays.fill(data.outputRows, 0, nrOutputRows, null);
+
+    if (stop) {
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    }
+
+    if (checkFeedback(linesBefore, getLinesRead())) {
       logBasic(BaseMessages.getString(PKG, "SelectValues.Log.LineNumber") + getLinesRead());
     }
 
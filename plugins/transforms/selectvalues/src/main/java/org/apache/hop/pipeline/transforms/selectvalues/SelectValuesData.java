@@ -38,6 +38,12 @@ public class SelectValuesData extends BaseTransformData implements ITransformDat
 
   public IRowMeta outputRowMeta;
 
+  /** The batch of input rows */
+  public Object[][] rows;
+
+  /** The output rows of the current batch */
+  public Object[][] outputRows;
+
   // The MODE, default = select...
   public boolean select; // "normal" selection of fields.
   public boolean deselect; // de-select mode
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.sort;
+
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+
+import java.util.Arrays;
+
+/**
+ * Encodes the sort fields of a row into a normalized binary key: comparing two keys byte by byte
+ * (unsigned) gives the same order as {@link IRowMeta#compare(Object[], Object[], int[])} on the
+ * sort fields.
+ *
+ * <p>Every field starts with a null marker byte so that null values sort first. Integers and dates
+ * are written big-endian with the sign bit flipped, numbers use the IEEE bits flipped in the same
+ * way as {@link Double#compare(double, double)} orders them, booleans are one byte. Strings are
+ * written as UTF-16 big-endian chars where every 0x00 byte is escaped as 0x00 0xFF and the end of
+ * the string is marked with 0x00 0x00, so that shorter strings sort before longer ones with the
+ * same prefix. Descending fields have all their bytes inverted.
+ */
+public class NormalizedKeyEncoder {
+  private static final byte NULL_MARKER = 0x00;
+  private static final byte VALUE_MARKER = 0x01;
+
+  private final IValueMeta[] valueMetas;
+  private final int[] fieldNrs;
+
+  private byte[] key;
+  private int length;
+
+  public NormalizedKeyEncoder(IRowMeta rowMeta, int[] fieldNrs) {
+    this.fieldNrs = fieldNrs;
+    this.valueMetas = new IValueMeta[fieldNrs.length];
+    for (int i = 0; i < fieldNrs.length; i++) {
+      valueMetas[i] = rowMeta.getValueMeta(fieldNrs[i]);
+    }
+    this.key = new byte[64];
+  }
+
+  /**
+   * See if all the given sort fields can be encoded into a normalized key. This is the case for
+   * Integer, Number, Date and Boolean fields and for case sensitive String fields without collator
+   * or whitespace trimming, all with normal storage.
+   *
+   * @param rowMeta the row metadata
+   * @param fieldNrs the indexes of the sort fields
+   * @return true if the normalized key gives the same order as the value comparison
+   */
+  public static boolean isSupported(IRowMeta rowMeta, int[] fieldNrs) {
+    for (int fieldNr : fieldNrs) {
+      if (!isSupported(rowMeta.getValueMeta(fieldNr))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param valueMeta the value metadata of a sort field
+   * @return true if the values can be encoded into a normalized key
+   */
+  public static boolean isSupported(IValueMeta valueMeta) {
+    if (valueMeta.getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL) {
+      return false;
+    }
+    // Subclasses can bring their own comparison: only accept the plain value types
+    //
+    Class<?> type = valueMeta.getClass();
+    if (type == ValueMetaString.class) {
+      return valueMeta.isCollatorDisabled()
+          && !valueMeta.isCaseInsensitive()
+          && !valueMeta.isIgnoreWhitespace();
+    }
+    return type == ValueMetaInteger.class
+        || type == ValueMetaNumber.class
+        || type == ValueMetaDate.class
+        || type == ValueMetaBoolean.class;
+  }
+
+  /**
+   * Encode the sort fields of a row. The key is available with {@link #getKey()} and {@link
+   * #getLength()} until the next call.
+   *
+   * @param row the row to encode
+   * @throws HopValueException in case a value can't be read
+   */
+  public void encode(Object[] row) throws HopValueException {
+    length = 0;
+    for (int i = 0; i < valueMetas.length; i++) {
+      IValueMeta valueMeta = valueMetas[i];
+      Object value = row[fieldNrs[i]];
+      int start = length;
+
+      if (valueMeta.isNull(value)) {
+        writeByte(NULL_MARKER);
+      } else {
+        writeByte(VALUE_MARKER);
+        switch (valueMeta.getType()) {
+          case IValueMeta.TYPE_INTEGER:
+            writeLong(valueMeta.getInteger(value) ^ Long.MIN_VALUE);
+            break;
+          case IValueMeta.TYPE_DATE:
+            writeLong(valueMeta.getDate(value).getTime() ^ Long.MIN_VALUE);
+            break;
+          case IValueMeta.TYPE_NUMBER:
+            long bits = Double.doubleToLongBits(valueMeta.getNumber(value));
+            writeLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+            break;
+          case IValueMeta.TYPE_BOOLEAN:
+            writeByte(valueMeta.getBoolean(value) ? (byte) 1 : (byte) 0);
+            break;
+          case IValueMeta.TYPE_STRING:
+            writeString(valueMeta.getString(value));
+            break;
+          default:
+            throw new HopValueException(
+                valueMeta.toStringMeta() + " : can't be encoded in a normalized sort key");
+        }
+      }
+
+      if (valueMeta.isSortedDescending()) {
+        for (int b = start; b < length; b++) {
+          key[b] = (byte) ~key[b];
+        }
+      }
+    }
+  }
+
+  private void writeString(String string) {
+    ensureCapacity(string.length() * 4 + 2);
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      writeEscaped((byte) (c >>> 8));
+      writeEscaped((byte) c);
+    }
+    key[length++] = 0x00;
+    key[length++] = 0x00;
+  }
+
+  private void writeEscaped(byte b) {
+    key[length++] = b;
+    if (b == 0x00) {
+      key[length++] = (byte) 0xFF;
+    }
+  }
+
+  private void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      key[length++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeByte(byte b) {
+    ensureCapacity(1);
+    key[length++] = b;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > key.length) {
+      key = Arrays.copyOf(key, Math.max(key.length * 2, length + extra));
+    }
+  }
+
+  /**
+   * Compare two keys as unsigned bytes.
+   *
+   * @return a negative number, zero or a positive number like a comparator
+   */
+  public static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+    return Arrays.compareUnsigned(a, 0, aLength, b, 0, bLength);
+  }
+
+  /**
+   * Gets the key of the last encoded row. Only the first {@link #getLength()} bytes are valid.
+   *
+   * @return value of key
+   */
+  public byte[] getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the length of the key of the last encoded row
+   *
+   * @return value of length
+   */
+  public int getLength() {
+    return length;
+  }
+}
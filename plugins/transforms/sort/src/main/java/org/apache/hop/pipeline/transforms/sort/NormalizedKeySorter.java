@@ -0,0 +1,728 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.sort;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An external merge sort which keeps rows in off-heap memory.
+ *
+ * <p>Every row is stored as a record holding its normalized sort key (see {@link
+ * NormalizedKeyEncoder}) followed by the row serialized with {@link IRowMeta#writeData}. Records
+ * are appended to direct byte buffer pages, the heap only holds two primitive arrays with the
+ * address and the first 8 key bytes of every record. Sorting is a stable LSD radix sort on those
+ * 8 byte prefixes, records with equal prefixes are ordered on their full key afterwards.
+ *
+ * <p>When the memory limit is reached the sorted records are written to a run file. At the end the
+ * runs are memory-mapped and merged with a loser tree together with the records still in memory.
+ * The order of rows with equal keys is preserved.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class NormalizedKeySorter {
+  private static final int PAGE_SIZE = 4 * 1024 * 1024;
+  private static final int RECORD_HEADER = 8;
+  private static final int INDEX_BYTES_PER_RECORD = 24;
+  private static final long MAP_WINDOW = 256L * 1024 * 1024;
+  private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+  private final IRowMeta rowMeta;
+  private final NormalizedKeyEncoder encoder;
+  private final long memoryLimit;
+  private final File directory;
+  private final String prefix;
+  private final boolean unique;
+
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private int pageIndex;
+  private long usedMemory;
+
+  private long[] addresses;
+  private long[] prefixes;
+  private int[] order;
+  private int count;
+
+  private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(256);
+  private final DataOutputStream rowOutput = new DataOutputStream(rowBytes);
+  private final RecordInputStream recordInput = new RecordInputStream();
+  private final DataInputStream rowInput = new DataInputStream(recordInput);
+
+  private final List<File> runs = new ArrayList<>();
+  private long rowsWritten;
+
+  // The state while reading the sorted rows
+  //
+  private boolean sorted;
+  private int nextIndex;
+  private RecordSource[] sources;
+  private int[] tree;
+
+  /**
+   * @param rowMeta the metadata of the rows to sort
+   * @param fieldNrs the indexes of the sort fields
+   * @param memoryLimit the maximum number of bytes kept in memory before a run is written to disk
+   * @param directory the directory to write the run files in
+   * @param prefix the prefix of the run file names
+   * @param unique true if only the first row of rows with equal keys needs to be kept
+   */
+  public NormalizedKeySorter(
+      IRowMeta rowMeta,
+      int[] fieldNrs,
+      long memoryLimit,
+      File directory,
+      String prefix,
+      boolean unique) {
+    this.rowMeta = rowMeta;
+    this.encoder = new NormalizedKeyEncoder(rowMeta, fieldNrs);
+    this.memoryLimit = Math.max(memoryLimit, PAGE_SIZE);
+    this.directory = directory;
+    this.prefix = prefix;
+    this.unique = unique;
+    this.addresses = new long[1024];
+    this.prefixes = new long[1024];
+  }
+
+  /**
+   * Add a row to sort. This writes a run to disk if the memory limit is reached.
+   *
+   * @param row the row to add
+   * @throws HopException in case the row can't be encoded or a run can't be written
+   */
+  public void add(Object[] row) throws HopException {
+    if (sorted) {
+      throw new HopException("Rows can't be added after the sorted rows have been read");
+    }
+    encoder.encode(row);
+    rowBytes.reset();
+    rowMeta.writeData(rowOutput, row);
+
+    int keyLength = encoder.getLength();
+    int rowLength = rowBytes.size();
+    int recordLength = RECORD_HEADER + keyLength + rowLength;
+
+    if (count > 0
+        && usedMemory + recordLength + (long) (count + 1) * INDEX_BYTES_PER_RECORD
+            > memoryLimit) {
+      writeRun();
+    }
+
+    ByteBuffer page = pageFor(recordLength);
+    int offset = page.position();
+    page.putInt(keyLength);
+    page.putInt(rowLength);
+    page.put(encoder.getKey(), 0, keyLength);
+    page.put(rowBytes.toByteArray(), 0, rowLength);
+    usedMemory += recordLength;
+
+    if (count == addresses.length) {
+      int newLength = addresses.length * 2;
+      long[] newAddresses = new long[newLength];
+      System.arraycopy(addresses, 0, newAddresses, 0, count);
+      addresses = newAddresses;
+      long[] newPrefixes = new long[newLength];
+      System.arraycopy(prefixes, 0, newPrefixes, 0, count);
+      prefixes = newPrefixes;
+    }
+    addresses[count] = ((long) pageIndex << 32) | offset;
+    prefixes[count] = prefixOf(encoder.getKey(), keyLength);
+    count++;
+  }
+
+  private ByteBuffer pageFor(int recordLength) {
+    if (pageIndex < pages.size()) {
+      ByteBuffer page = pages.get(pageIndex);
+      if (page.remaining() >= recordLength) {
+        return page;
+      }
+      pageIndex++;
+    }
+    while (pageIndex < pages.size()) {
+      ByteBuffer page = pages.get(pageIndex);
+      if (page.capacity() >= recordLength) {
+        return page;
+      }
+      pageIndex++;
+    }
+    ByteBuffer page = ByteBuffer.allocateDirect(Math.max(PAGE_SIZE, recordLength));
+    pages.add(page);
+    return page;
+  }
+
+  private static long prefixOf(byte[] key, int length) {
+    long prefix = 0L;
+    for (int i = 0; i < 8; i++) {
+      prefix <<= 8;
+      if (i < length) {
+        prefix |= key[i] & 0xFF;
+      }
+    }
+    return prefix;
+  }
+
+  /** Sort the records in memory: radix sort on the prefixes, then the full keys for equal ones. */
+  private void sortInMemory() {
+    int[] index = new int[count];
+    for (int i = 0; i < count; i++) {
+      index[i] = i;
+    }
+    int[] buffer = new int[count];
+    int[] histogram = new int[257];
+
+    for (int shift = 0; shift < 64; shift += 8) {
+      Arrays.fill(histogram, 0);
+      for (int i = 0; i < count; i++) {
+        histogram[(int) ((prefixes[index[i]] >>> shift) & 0xFF) + 1]++;
+      }
+      // Skip the pass if all records have the same byte here
+      //
+      boolean trivial = false;
+      for (int b = 1; b <= 256; b++) {
+        if (histogram[b] == count) {
+          trivial = true;
+          break;
+        }
+      }
+      if (trivial) {
+        continue;
+      }
+      for (int b = 1; b <= 256; b++) {
+        histogram[b] += histogram[b - 1];
+      }
+      for (int i = 0; i < count; i++) {
+        int record = index[i];
+        buffer[histogram[(int) ((prefixes[record] >>> shift) & 0xFF)]++] = record;
+      }
+      int[] swap = index;
+      index = buffer;
+      buffer = swap;
+    }
+
+    // Order the records with equal prefixes on their full keys
+    //
+    int start = 0;
+    while (start < count) {
+      int end = start + 1;
+      while (end < count && prefixes[index[end]] == prefixes[index[start]]) {
+        end++;
+      }
+      if (end - start > 1) {
+        mergeSort(index, buffer, start, end);
+      }
+      start = end;
+    }
+    order = index;
+  }
+
+  private void mergeSort(int[] index, int[] buffer, int from, int to) {
+    if (to - from <= 16) {
+      for (int i = from + 1; i < to; i++) {
+        int record = index[i];
+        int j = i - 1;
+        while (j >= from && compareRecords(index[j], record) > 0) {
+          index[j + 1] = index[j];
+          j--;
+        }
+        index[j + 1] = record;
+      }
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    mergeSort(index, buffer, from, middle);
+    mergeSort(index, buffer, middle, to);
+    if (compareRecords(index[middle - 1], index[middle]) <= 0) {
+      return;
+    }
+    System.arraycopy(index, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && compareRecords(buffer[left], buffer[right]) <= 0)) {
+        index[i] = buffer[left++];
+      } else {
+        index[i] = buffer[right++];
+      }
+    }
+  }
+
+  private int compareRecords(int a, int b) {
+    ByteBuffer pageA = pages.get((int) (addresses[a] >>> 32));
+    ByteBuffer pageB = pages.get((int) (addresses[b] >>> 32));
+    int offsetA = (int) addresses[a];
+    int offsetB = (int) addresses[b];
+    return compareKeys(
+        pageA,
+        offsetA + RECORD_HEADER,
+        pageA.getInt(offsetA),
+        pageB,
+        offsetB + RECORD_HEADER,
+        pageB.getInt(offsetB));
+  }
+
+  /** Compare two keys as unsigned bytes, 8 bytes at a time. */
+  static int compareKeys(
+      ByteBuffer a, int offsetA, int lengthA, ByteBuffer b, int offsetB, int lengthB) {
+    int length = Math.min(lengthA, lengthB);
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      long wordA = a.getLong(offsetA + i);
+      long wordB = b.getLong(offsetB + i);
+      if (wordA != wordB) {
+        return Long.compareUnsigned(wordA, wordB);
+      }
+    }
+    for (; i < length; i++) {
+      int byteA = a.get(offsetA + i) & 0xFF;
+      int byteB = b.get(offsetB + i) & 0xFF;
+      if (byteA != byteB) {
+        return byteA - byteB;
+      }
+    }
+    return lengthA - lengthB;
+  }
+
+  /** Sort the records in memory and write them to a new run file. */
+  private void writeRun() throws HopException {
+    sortInMemory();
+
+    File file;
+    try {
+      file = Files.createTempFile(directory.toPath(), prefix, ".run").toFile();
+    } catch (IOException e) {
+      throw new HopException("Unable to create a sort run file in " + directory, e);
+    }
+    runs.add(file);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+      ByteBuffer[] views = new ByteBuffer[pages.size()];
+      int previous = -1;
+      for (int i = 0; i < count; i++) {
+        int record = order[i];
+        if (unique && previous >= 0 && compareRecords(previous, record) == 0) {
+          continue;
+        }
+        previous = record;
+
+        int page = (int) (addresses[record] >>> 32);
+        int offset = (int) addresses[record];
+        if (views[page] == null) {
+          views[page] = pages.get(page).duplicate();
+        }
+        ByteBuffer view = views[page];
+        view.limit(view.capacity());
+        int recordLength = RECORD_HEADER + view.getInt(offset) + view.getInt(offset + 4);
+        view.limit(offset + recordLength);
+        view.position(offset);
+
+        while (view.hasRemaining()) {
+          if (!writeBuffer.hasRemaining()) {
+            flush(channel, writeBuffer);
+          }
+          if (view.remaining() <= writeBuffer.remaining()) {
+            writeBuffer.put(view);
+          } else {
+            ByteBuffer part = view.slice();
+            part.limit(writeBuffer.remaining());
+            writeBuffer.put(part);
+            view.position(view.position() + part.limit());
+          }
+        }
+        rowsWritten++;
+      }
+      flush(channel, writeBuffer);
+    } catch (IOException e) {
+      throw new HopException("Unable to write sort run file " + file, e);
+    }
+
+    resetMemory();
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer writeBuffer) throws IOException {
+    writeBuffer.flip();
+    while (writeBuffer.hasRemaining()) {
+      channel.write(writeBuffer);
+    }
+    writeBuffer.clear();
+  }
+
+  private void resetMemory() {
+    for (ByteBuffer page : pages) {
+      page.clear();
+    }
+    pageIndex = 0;
+    usedMemory = 0L;
+    count = 0;
+    order = null;
+  }
+
+  /**
+   * Get the next row in sorted order. The first call finishes the sort: the records left in memory
+   * are sorted and merged with the run files, if any.
+   *
+   * @return the next row or null if there are no more rows
+   * @throws HopException in case a run file can't be read
+   */
+  public Object[] next() throws HopException {
+    if (!sorted) {
+      sorted = true;
+      sortInMemory();
+      nextIndex = 0;
+      if (!runs.isEmpty()) {
+        openRuns();
+      }
+    }
+
+    if (sources == null) {
+      if (nextIndex >= count) {
+        return null;
+      }
+      int record = order[nextIndex++];
+      ByteBuffer page = pages.get((int) (addresses[record] >>> 32));
+      int offset = (int) addresses[record];
+      int keyLength = page.getInt(offset);
+      return readRow(page, offset + RECORD_HEADER + keyLength, page.getInt(offset + 4));
+    }
+
+    int winner = tree[0];
+    RecordSource source = sources[winner];
+    if (source.exhausted) {
+      return null;
+    }
+    Object[] row = readRow(source.buffer, source.rowOffset, source.rowLength);
+    source.advance();
+    replay(winner);
+    return row;
+  }
+
+  private Object[] readRow(ByteBuffer buffer, int offset, int length) throws HopException {
+    recordInput.reset(buffer, offset, length);
+    try {
+      return rowMeta.readData(rowInput);
+    } catch (Exception e) {
+      throw new HopException("Unable to read a sorted row", e);
+    }
+  }
+
+  private void openRuns() throws HopException {
+    sources = new RecordSource[runs.size() + 1];
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        sources[i] = new RunSource(runs.get(i));
+        sources[i].advance();
+      }
+    } catch (IOException e) {
+      throw new HopException("Unable to open sort run files", e);
+    }
+    // The rows still in memory are the most recent ones so they go last.
+    //
+    sources[runs.size()] = new MemorySource();
+    sources[runs.size()].advance();
+
+    buildTree();
+  }
+
+  /** Build the loser tree: tree[0] is the overall winner, the other nodes keep the losers. */
+  private void buildTree() {
+    int k = sources.length;
+    tree = new int[k];
+    int[] winners = new int[2 * k];
+    for (int i = 0; i < k; i++) {
+      winners[k + i] = i;
+    }
+    for (int node = k - 1; node > 0; node--) {
+      int a = winners[2 * node];
+      int b = winners[2 * node + 1];
+      if (less(a, b)) {
+        winners[node] = a;
+        tree[node] = b;
+      } else {
+        winners[node] = b;
+        tree[node] = a;
+      }
+    }
+    tree[0] = k == 1 ? 0 : winners[1];
+  }
+
+  private void replay(int winner) {
+    int k = sources.length;
+    int current = winner;
+    for (int node = (current + k) >>> 1; node > 0; node >>>= 1) {
+      if (less(tree[node], current)) {
+        int loser = current;
+        current = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = current;
+  }
+
+  /** Exhausted sources lose, equal keys are won by the earliest source to keep the sort stable. */
+  private boolean less(int a, int b) {
+    RecordSource sourceA = sources[a];
+    RecordSource sourceB = sources[b];
+    if (sourceA.exhausted) {
+      return false;
+    }
+    if (sourceB.exhausted) {
+      return true;
+    }
+    int cmp;
+    if (sourceA.prefix != sourceB.prefix) {
+      cmp = Long.compareUnsigned(sourceA.prefix, sourceB.prefix);
+    } else {
+      cmp =
+          compareKeys(
+              sourceA.buffer,
+              sourceA.keyOffset,
+              sourceA.keyLength,
+              sourceB.buffer,
+              sourceB.keyOffset,
+              sourceB.keyLength);
+    }
+    return cmp < 0 || (cmp == 0 && a < b);
+  }
+
+  /**
+   * Remove all rows and run files. The off-heap pages are kept to be re-used by the next sort.
+   */
+  public void clear() {
+    closeSources();
+    for (File run : runs) {
+      try {
+        Files.deleteIfExists(run.toPath());
+      } catch (IOException e) {
+        run.deleteOnExit();
+      }
+    }
+    runs.clear();
+    resetMemory();
+    sorted = false;
+    nextIndex = 0;
+    rowsWritten = 0L;
+  }
+
+  private void closeSources() {
+    if (sources != null) {
+      for (RecordSource source : sources) {
+        if (source != null) {
+          source.close();
+        }
+      }
+      sources = null;
+      tree = null;
+    }
+  }
+
+  /** Remove all rows and run files and release the off-heap pages. */
+  public void close() {
+    clear();
+    pages.clear();
+    addresses = new long[0];
+    prefixes = new long[0];
+  }
+
+  /**
+   * Gets the number of run files written
+   *
+   * @return the number of runs
+   */
+  public int getNrRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Gets the number of rows written to run files
+   *
+   * @return value of rowsWritten
+   */
+  public long getRowsWritten() {
+    return rowsWritten;
+  }
+
+  /**
+   * Gets the number of bytes of off-heap memory allocated
+   *
+   * @return the allocated number of bytes
+   */
+  public long getAllocatedMemory() {
+    long allocated = 0L;
+    for (ByteBuffer page : pages) {
+      allocated += page.capacity();
+    }
+    return allocated;
+  }
+
+  /** A sorted stream of records for the merge. */
+  private abstract static class RecordSource {
+    ByteBuffer buffer;
+    int keyOffset;
+    int keyLength;
+    int rowOffset;
+    int rowLength;
+    long prefix;
+    boolean exhausted;
+
+    abstract void advance() throws HopException;
+
+    void close() {}
+
+    void setRecord(ByteBuffer buffer, int offset) {
+      this.buffer = buffer;
+      keyLength = buffer.getInt(offset);
+      rowLength = buffer.getInt(offset + 4);
+      keyOffset = offset + RECORD_HEADER;
+      rowOffset = keyOffset + keyLength;
+      long value = 0L;
+      for (int i = 0; i < 8; i++) {
+        value <<= 8;
+        if (i < keyLength) {
+          value |= buffer.get(keyOffset + i) & 0xFF;
+        }
+      }
+      prefix = value;
+    }
+  }
+
+  /** The sorted records which are still in memory. */
+  private class MemorySource extends RecordSource {
+    private int position;
+
+    @Override
+    void advance() {
+      if (position >= count) {
+        exhausted = true;
+        return;
+      }
+      int record = order[position++];
+      setRecord(pages.get((int) (addresses[record] >>> 32)), (int) addresses[record]);
+    }
+  }
+
+  /** A run file, read through a memory-mapped window which moves along the file. */
+  private static class RunSource extends RecordSource {
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private int windowPosition;
+
+    RunSource(File file) throws IOException {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      size = channel.size();
+      windowStart = 0L;
+      windowPosition = 0;
+      buffer = map(0L, RECORD_HEADER);
+    }
+
+    private ByteBuffer map(long start, int minimum) throws IOException {
+      long length = Math.min(size - start, Math.max(MAP_WINDOW, minimum));
+      return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+
+    @Override
+    void advance() throws HopException {
+      long filePosition = windowStart + windowPosition;
+      if (filePosition >= size) {
+        exhausted = true;
+        close();
+        return;
+      }
+      try {
+        if (windowPosition + RECORD_HEADER > buffer.limit()) {
+          remap(filePosition, RECORD_HEADER);
+        }
+        int recordLength =
+            RECORD_HEADER + buffer.getInt(windowPosition) + buffer.getInt(windowPosition + 4);
+        if (windowPosition + recordLength > buffer.limit()) {
+          remap(filePosition, recordLength);
+        }
+      } catch (IOException e) {
+        throw new HopException("Unable to read sort run file", e);
+      }
+      setRecord(buffer, windowPosition);
+      windowPosition = rowOffset + rowLength;
+    }
+
+    private void remap(long filePosition, int minimum) throws IOException {
+      buffer = map(filePosition, minimum);
+      windowStart = filePosition;
+      windowPosition = 0;
+    }
+
+    @Override
+    void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Nothing left to do
+      }
+    }
+  }
+
+  /** Reads a part of a byte buffer without copying it. */
+  private static class RecordInputStream extends InputStream {
+    private ByteBuffer buffer;
+    private int position;
+    private int end;
+
+    void reset(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.position = offset;
+      this.end = offset + length;
+    }
+
+    @Override
+    public int read() {
+      if (position >= end) {
+        return -1;
+      }
+      return buffer.get(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (position >= end) {
+        return -1;
+      }
+      int n = Math.min(length, end - position);
+      for (int i = 0; i < n; i++) {
+        bytes[offset + i] = buffer.get(position++);
+      }
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return end - position;
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.hop.pipeline.transforms.sort;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileException;
@@ -37,14 +38,20 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -72,6 +79,12 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
       }
     }
 
+    // Normalized key sort: the sorter keeps track of its own memory
+    if (data.sorter != null) {
+      data.sorter.add(r);
+      return;
+    }
+
     // Save row
     data.buffer.add(r);
 
@@ -124,23 +137,11 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     quickSort(data.buffer);
 
     // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
-
     try {
       FileObject fileObject =
           HopVfs.createTempFile(meta.getPrefix(), ".tmp", resolve(meta.getDirectory()));
 
       data.files.add(fileObject); // Remember the files!
-      OutputStream outputStream = HopVfs.getOutputStream(fileObject, false);
-      if (data.compressFiles) {
-        gzos = new GZIPOutputStream(new BufferedOutputStream(outputStream));
-        dos = new DataOutputStream(gzos);
-      } else {
-        dos = new DataOutputStream(new BufferedOutputStream(outputStream, 500000));
-        gzos = null;
-      }
 
       // Just write the data, nothing else
       List<Integer> duplicates = new ArrayList<>();
@@ -170,20 +171,29 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
       // How many records do we have left?
       data.bufferSizes.add(data.buffer.size() - duplicates.size());
 
-      int duplicatesIndex = 0;
-      for (p = 0; p < data.buffer.size(); p++) {
-        boolean skip = false;
-        if (duplicatesIndex < duplicates.size() && p == duplicates.get(duplicatesIndex)) {
-          skip = true;
-          duplicatesIndex++;
-        }
-        if (!skip) {
-          data.outputRowMeta.writeData(dos, data.buffer.get(p));
-        }
+      int bufferSize = data.buffer.size();
+      if (data.sortPool != null) {
+        // Write the file in the background while the next buffer is filled.
+        // Only one file is written at a time to keep the memory usage in check.
+        //
+        waitForPendingSpill();
+        List<Object[]> rows = data.buffer;
+        data.buffer = new ArrayList<>(bufferSize);
+        data.pendingSpill =
+            data.sortPool.submit(
+                () -> {
+                  writeTempFile(fileObject, rows, duplicates);
+                  return null;
+                });
+      } else {
+        writeTempFile(fileObject, data.buffer, duplicates);
+
+        // Clear the list
+        data.buffer.clear();
       }
 
-      if (data.sortSize < 0 && data.buffer.size() > data.minSortSize) {
-        data.minSortSize = data.buffer.size(); // if we did it once, we can do
+      if (data.sortSize < 0 && bufferSize > data.minSortSize) {
+        data.minSortSize = bufferSize; // if we did it once, we can do
         // it again.
 
         // Memory usage goes up over time, even with garbage collection
@@ -193,16 +203,6 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
         data.minSortSize = (int) Math.round(data.minSortSize * 0.90);
       }
 
-      // Clear the list
-      data.buffer.clear();
-
-      // Close temp-file
-      dos.close(); // close data stream
-      if (gzos != null) {
-        gzos.close(); // close gzip stream
-      }
-      outputStream.close(); // close file stream
-
       // How much memory do we have left?
       //
       data.freeMemoryPct = Const.getPercentageFreeMemory();
@@ -219,6 +219,58 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     data.getBufferIndex = 0;
   }
 
+  // write the sorted rows to a temp-file, skipping the duplicates
+  private void writeTempFile(FileObject fileObject, List<Object[]> rows, List<Integer> duplicates)
+      throws HopException, IOException {
+    DataOutputStream dos;
+    GZIPOutputStream gzos;
+
+    OutputStream outputStream = HopVfs.getOutputStream(fileObject, false);
+    if (data.compressFiles) {
+      gzos = new GZIPOutputStream(new BufferedOutputStream(outputStream));
+      dos = new DataOutputStream(gzos);
+    } else {
+      dos = new DataOutputStream(new BufferedOutputStream(outputStream, 500000));
+      gzos = null;
+    }
+
+    int duplicatesIndex = 0;
+    for (int p = 0; p < rows.size(); p++) {
+      boolean skip = false;
+      if (duplicatesIndex < duplicates.size() && p == duplicates.get(duplicatesIndex)) {
+        skip = true;
+        duplicatesIndex++;
+      }
+      if (!skip) {
+        data.outputRowMeta.writeData(dos, rows.get(p));
+      }
+    }
+
+    // Close temp-file
+    dos.close(); // close data stream
+    if (gzos != null) {
+      gzos.close(); // close gzip stream
+    }
+    outputStream.close(); // close file stream
+  }
+
+  // wait until the temp-file which is written in the background is complete
+  private void waitForPendingSpill() throws HopException {
+    if (data.pendingSpill == null) {
+      return;
+    }
+    try {
+      data.pendingSpill.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while writing temp-file", e);
+    } catch (ExecutionException e) {
+      throw new HopException("Error processing temp-file!", e.getCause());
+    } finally {
+      data.pendingSpill = null;
+    }
+  }
+
   private DataInputStream getDataInputStream(GZIPInputStream gzipInputStream) {
     DataInputStream result = new DataInputStream(gzipInputStream);
     data.gzis.add(gzipInputStream);
@@ -270,8 +322,6 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
           }
         }
 
-        // Sort the data row buffer
-        Collections.sort(data.tempRows, data.comparator);
       } catch (Exception e) {
         logError(BaseMessages.getString(PKG, "SortRows.Error.ErrorReadingBackTempFiles"), e);
       }
@@ -303,7 +353,7 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
           }
         }
 
-        RowTempFile rowTempFile = data.tempRows.remove(0);
+        RowTempFile rowTempFile = data.tempRows.poll();
         retval = rowTempFile.row;
         int smallest = rowTempFile.fileNumber;
 
@@ -315,14 +365,7 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
 
         try {
           Object[] row2 = data.outputRowMeta.readData(di);
-          RowTempFile extra = new RowTempFile(row2, smallest);
-
-          int index = Collections.binarySearch(data.tempRows, extra, data.comparator);
-          if (index < 0) {
-            data.tempRows.add(index * (-1) - 1, extra);
-          } else {
-            data.tempRows.add(index, extra);
-          }
+          data.tempRows.add(new RowTempFile(row2, smallest));
         } catch (HopFileException fe) { // empty file or EOF mostly
           GZIPInputStream gzfi = (data.compressFiles) ? data.gzis.get(smallest) : null;
           try {
@@ -414,6 +457,7 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields(data.outputRowMeta, getTransformName(), null, null, this, metadataProvider);
       data.comparator = new RowTemapFileComparator(data.outputRowMeta, data.fieldnrs);
+      data.tempRows = new PriorityQueue<>(data.comparator);
 
       for (int i = 0; i < fieldNames.length; i++) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue(fieldNames[i]);
@@ -437,6 +481,10 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
         i++;
       }
       data.rowComparator = new RowObjectArrayComparator(data.outputRowMeta, data.fieldnrs);
+
+      if (meta.isNormalizedKeySort()) {
+        data.sorter = createNormalizedKeySorter();
+      }
     } // end if first
 
     // it is not first row and it is null
@@ -488,6 +536,42 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     return true;
   }
 
+  /**
+   * Create a sorter which sorts on normalized keys in off-heap memory. This is only possible if all
+   * sort fields can be encoded as a normalized key and if the temporary files are on a local file
+   * system since they are memory-mapped.
+   *
+   * @return the sorter or null if the default sort needs to be used
+   */
+  private NormalizedKeySorter createNormalizedKeySorter() throws HopException {
+    FileObject directory = HopVfs.getFileObject(resolve(meta.getDirectory()));
+    if (!(directory instanceof LocalFile)
+        || !NormalizedKeyEncoder.isSupported(data.outputRowMeta, data.fieldnrs)) {
+      if (log.isDetailed()) {
+        logDetailed(BaseMessages.getString(PKG, "SortRows.Detailed.NormalizedKeySortNotSupported"));
+      }
+      return null;
+    }
+    int sortMemory = Const.toInt(resolve(meta.getSortMemory()), 256);
+    if (log.isDetailed()) {
+      logDetailed(BaseMessages.getString(PKG, "SortRows.Detailed.NormalizedKeySort", sortMemory));
+    }
+    return new NormalizedKeySorter(
+        data.outputRowMeta,
+        data.fieldnrs,
+        sortMemory * 1024L * 1024L,
+        new File(HopVfs.getFilename(directory)),
+        meta.getPrefix(),
+        meta.isOnlyPassingUniqueRows());
+  }
+
+  private Object[] getSortedRow() throws HopException {
+    if (data.sorter != null) {
+      return data.sorter.next();
+    }
+    return getBuffer();
+  }
+
   /**
    * This method passes all rows in the buffer to the next transforms. Usually call to this method
    * indicates that this particular transform finishing processing.
@@ -495,7 +579,7 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
   void passBuffer() throws HopException {
     // Now we can start the output!
     //
-    Object[] r = getBuffer();
+    Object[] r = getSortedRow();
     Object[] previousRow = null;
 
     // log time spent for external merge (expected time consuming operation)
@@ -531,12 +615,20 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
         // rowset(s).
       }
 
-      r = getBuffer();
+      r = getSortedRow();
     }
 
     if (log.isDebug() && !data.files.isEmpty()) {
       this.logDebug(BaseMessages.getString(PKG, "SortRows.Debug.ExternalMergeFinished"));
     }
+    if (data.sorter != null && data.sorter.getNrRuns() > 0 && log.isDetailed()) {
+      logDetailed(
+          BaseMessages.getString(
+              PKG,
+              "SortRows.Detailed.NormalizedKeySortRuns",
+              data.sorter.getRowsWritten(),
+              data.sorter.getNrRuns()));
+    }
 
     // Clear out the buffer for the next batch
     //
@@ -569,16 +661,40 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     data.compressFiles =
         getVariableBoolean(meta.getCompressFilesVariable(), meta.getCompressFiles());
 
-    data.tempRows = new ArrayList<>();
-
     data.minSortSize = 5000;
 
+    if (meta.isParallelSort()) {
+      int threads =
+          Const.toInt(resolve(meta.getSortThreads()), Runtime.getRuntime().availableProcessors());
+      if (threads > 1) {
+        data.sortPool = new ForkJoinPool(threads);
+        if (log.isDetailed()) {
+          logDetailed(BaseMessages.getString(PKG, "SortRows.Detailed.ParallelSort", threads));
+        }
+      }
+    }
+
     return true;
   }
 
   @Override
   public void dispose() {
+    if (data.pendingSpill != null) {
+      try {
+        waitForPendingSpill();
+      } catch (HopException e) {
+        logError(e.getLocalizedMessage(), e);
+      }
+    }
     clearBuffers();
+    if (data.sortPool != null) {
+      data.sortPool.shutdownNow();
+      data.sortPool = null;
+    }
+    if (data.sorter != null) {
+      data.sorter.close();
+      data.sorter = null;
+    }
     super.dispose();
   }
 
@@ -588,6 +704,9 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     data.buffer.clear();
     data.getBufferIndex = 0;
     data.rowbuffer.clear();
+    if (data.sorter != null) {
+      data.sorter.clear();
+    }
 
     // close any open DataInputStream objects
     if (CollectionUtils.isNotEmpty(data.dis)) {
@@ -617,7 +736,19 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
   /** Sort the entire vector, if it is not empty. */
   void quickSort(List<Object[]> elements) {
     if (CollectionUtils.isNotEmpty(elements)) {
-      Collections.sort(elements, data.rowComparator);
+      if (data.sortPool != null && elements.size() >= ChunkSort.MIN_CHUNK_SIZE * 2) {
+        Object[][] rows = elements.toArray(new Object[0][]);
+        int chunkSize =
+            Math.max(ChunkSort.MIN_CHUNK_SIZE, rows.length / (data.sortPool.getParallelism() * 4));
+        data.sortPool.invoke(
+            new ChunkSort(
+                rows, new Object[rows.length][], 0, rows.length, chunkSize, data.rowComparator));
+        for (int i = 0; i < rows.length; i++) {
+          elements.set(i, rows[i]);
+        }
+      } else {
+        Collections.sort(elements, data.rowComparator);
+      }
 
       long nrConversions = 0L;
       for (IValueMeta valueMeta : data.outputRowMeta.getValueMetaList()) {
@@ -658,9 +789,14 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
   }
 
   private void preSortBeforeFlush() throws HopException {
+    if (data.sorter != null) {
+      // the normalized key sorter sorts when the first row is read
+      return;
+    }
     if (data.files.size() > 0) {
       // dump to dist and then read from disk
       sortExternalRows();
+      waitForPendingSpill();
     } else {
       // sort in memory
       quickSort(data.buffer);
@@ -703,7 +839,9 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
     @Override
     public int compare(RowTempFile o1, RowTempFile o2) {
       try {
-        return rowMeta.compare(o1.row, o2.row, fieldNrs);
+        int cmp = rowMeta.compare(o1.row, o2.row, fieldNrs);
+        // Equal rows come from the oldest file first to keep the sort stable
+        return cmp != 0 ? cmp : Integer.compare(o1.fileNumber, o2.fileNumber);
       } catch (HopValueException e) {
         logError("Error comparing rows: " + e.toString());
         return 0;
@@ -727,4 +865,63 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> {
       }
     }
   }
+
+  /**
+   * Sorts a range of rows with fork-join: the range is split in chunks which are sorted in parallel
+   * and then merged pairwise. Both the chunk sort and the merge are stable.
+   */
+  static class ChunkSort extends RecursiveAction {
+    static final int MIN_CHUNK_SIZE = 8192;
+
+    private final Object[][] rows;
+    private final Object[][] buffer;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+    private final Comparator<Object[]> comparator;
+
+    ChunkSort(
+        Object[][] rows,
+        Object[][] buffer,
+        int from,
+        int to,
+        int chunkSize,
+        Comparator<Object[]> comparator) {
+      this.rows = rows;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+      this.comparator = comparator;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= chunkSize) {
+        Arrays.sort(rows, from, to, comparator);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new ChunkSort(rows, buffer, from, middle, chunkSize, comparator),
+          new ChunkSort(rows, buffer, middle, to, chunkSize, comparator));
+
+      // Already in order?
+      if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+        return;
+      }
+      System.arraycopy(rows, from, buffer, from, to - from);
+      int left = from;
+      int right = middle;
+      for (int i = from; i < to; i++) {
+        boolean takeLeft =
+            right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0);
+        if (takeLeft) {
+          rows[i] = buffer[left++];
+        } else {
+          rows[i] = buffer[right++];
+        }
+      }
+    }
+  }
 }
@@ -27,6 +27,9 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 public class SortRowsData extends BaseTransformData implements ITransformData {
@@ -40,8 +43,8 @@ public class SortRowsData extends BaseTransformData implements ITransformData {
   public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // To store rows and file references, the smallest row first
+  public PriorityQueue<RowTempFile> tempRows;
 
   public int[] fieldnrs; // the corresponding field numbers
   public FileObject fil;
@@ -51,6 +54,15 @@ public class SortRowsData extends BaseTransformData implements ITransformData {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
+  /** The off-heap normalized key sorter, null if the rows are sorted on the heap */
+  public NormalizedKeySorter sorter;
+
+  /** The threads of a parallel sort, null if the rows are sorted by the transform thread */
+  public ForkJoinPool sortPool;
+
+  /** The temporary file being written in the background during a parallel sort */
+  public Future<?> pendingSpill;
+
     Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
 
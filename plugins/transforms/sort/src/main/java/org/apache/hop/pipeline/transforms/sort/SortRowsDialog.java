@@ -73,6 +73,14 @@ public class SortRowsDialog extends BaseTransformDialog implements ITransformDia
 
   private Button wUniqueRows;
 
+  private Button wNormalizedKeySort;
+
+  private TextVar wSortMemory;
+
+  private Button wParallelSort;
+
+  private TextVar wSortThreads;
+
   private TableView wFields;
 
   private final SortRowsMeta input;
@@ -261,6 +269,87 @@ public class SortRowsDialog extends BaseTransformDialog implements ITransformDia
     wUniqueRows.setLayoutData(fdUniqueRows);
     wUniqueRows.addSelectionListener(new ComponentSelectionListener(input));
 
+    // Sort on normalized keys in off-heap memory?
+    Label wlNormalizedKeySort = new Label(shell, SWT.RIGHT);
+    wlNormalizedKeySort.setText(
+        BaseMessages.getString(PKG, "SortRowsDialog.NormalizedKeySort.Label"));
+    PropsUi.setLook(wlNormalizedKeySort);
+    FormData fdlNormalizedKeySort = new FormData();
+    fdlNormalizedKeySort.left = new FormAttachment(0, 0);
+    fdlNormalizedKeySort.right = new FormAttachment(middle, -margin);
+    fdlNormalizedKeySort.top = new FormAttachment(wUniqueRows, margin);
+    wlNormalizedKeySort.setLayoutData(fdlNormalizedKeySort);
+    wNormalizedKeySort = new Button(shell, SWT.CHECK);
+    wNormalizedKeySort.setToolTipText(
+        BaseMessages.getString(PKG, "SortRowsDialog.NormalizedKeySort.Tooltip"));
+    PropsUi.setLook(wNormalizedKeySort);
+    FormData fdNormalizedKeySort = new FormData();
+    fdNormalizedKeySort.left = new FormAttachment(middle, 0);
+    fdNormalizedKeySort.top = new FormAttachment(wlNormalizedKeySort, 0, SWT.CENTER);
+    fdNormalizedKeySort.right = new FormAttachment(100, 0);
+    wNormalizedKeySort.setLayoutData(fdNormalizedKeySort);
+    wNormalizedKeySort.addSelectionListener(new ComponentSelectionListener(input));
+
+    // The off-heap memory of the normalized key sort
+    Label wlSortMemory = new Label(shell, SWT.RIGHT);
+    wlSortMemory.setText(BaseMessages.getString(PKG, "SortRowsDialog.SortMemory.Label"));
+    wlSortMemory.setToolTipText(BaseMessages.getString(PKG, "SortRowsDialog.SortMemory.ToolTip"));
+    PropsUi.setLook(wlSortMemory);
+    FormData fdlSortMemory = new FormData();
+    fdlSortMemory.left = new FormAttachment(0, 0);
+    fdlSortMemory.right = new FormAttachment(middle, -margin);
+    fdlSortMemory.top = new FormAttachment(wNormalizedKeySort, margin * 2);
+    wlSortMemory.setLayoutData(fdlSortMemory);
+    wSortMemory = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    wSortMemory.setToolTipText(BaseMessages.getString(PKG, "SortRowsDialog.SortMemory.ToolTip"));
+    PropsUi.setLook(wSortMemory);
+    wSortMemory.addModifyListener(lsMod);
+    FormData fdSortMemory = new FormData();
+    fdSortMemory.left = new FormAttachment(middle, 0);
+    fdSortMemory.top = new FormAttachment(wNormalizedKeySort, margin * 2);
+    fdSortMemory.right = new FormAttachment(100, 0);
+    wSortMemory.setLayoutData(fdSortMemory);
+
+    // Sort with several threads?
+    Label wlParallelSort = new Label(shell, SWT.RIGHT);
+    wlParallelSort.setText(BaseMessages.getString(PKG, "SortRowsDialog.ParallelSort.Label"));
+    PropsUi.setLook(wlParallelSort);
+    FormData fdlParallelSort = new FormData();
+    fdlParallelSort.left = new FormAttachment(0, 0);
+    fdlParallelSort.right = new FormAttachment(middle, -margin);
+    fdlParallelSort.top = new FormAttachment(wSortMemory, margin);
+    wlParallelSort.setLayoutData(fdlParallelSort);
+    wParallelSort = new Button(shell, SWT.CHECK);
+    wParallelSort.setToolTipText(
+        BaseMessages.getString(PKG, "SortRowsDialog.ParallelSort.Tooltip"));
+    PropsUi.setLook(wParallelSort);
+    FormData fdParallelSort = new FormData();
+    fdParallelSort.left = new FormAttachment(middle, 0);
+    fdParallelSort.top = new FormAttachment(wlParallelSort, 0, SWT.CENTER);
+    fdParallelSort.right = new FormAttachment(100, 0);
+    wParallelSort.setLayoutData(fdParallelSort);
+    wParallelSort.addSelectionListener(new ComponentSelectionListener(input));
+
+    // The number of sort threads
+    Label wlSortThreads = new Label(shell, SWT.RIGHT);
+    wlSortThreads.setText(BaseMessages.getString(PKG, "SortRowsDialog.SortThreads.Label"));
+    wlSortThreads.setToolTipText(BaseMessages.getString(PKG, "SortRowsDialog.SortThreads.ToolTip"));
+    PropsUi.setLook(wlSortThreads);
+    FormData fdlSortThreads = new FormData();
+    fdlSortThreads.left = new FormAttachment(0, 0);
+    fdlSortThreads.right = new FormAttachment(middle, -margin);
+    fdlSortThreads.top = new FormAttachment(wParallelSort, margin * 2);
+    wlSortThreads.setLayoutData(fdlSortThreads);
+    wSortThreads = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    wSortThreads.setToolTipText(BaseMessages.getString(PKG, "SortRowsDialog.SortThreads.ToolTip"));
+    PropsUi.setLook(wSortThreads);
+    wSortThreads.addModifyListener(lsMod);
+    FormData fdSortThreads = new FormData();
+    fdSortThreads.left = new FormAttachment(middle, 0);
+    fdSortThreads.top = new FormAttachment(wParallelSort, margin * 2);
+    fdSortThreads.right = new FormAttachment(100, 0);
+    wSortThreads.setLayoutData(fdSortThreads);
+
     wOk = new Button(shell, SWT.PUSH);
     wOk.setText(BaseMessages.getString(PKG, "System.Button.OK"));
     wOk.addListener(SWT.Selection, e -> ok());
@@ -278,7 +367,7 @@ public class SortRowsDialog extends BaseTransformDialog implements ITransformDia
     PropsUi.setLook(wlFields);
     FormData fdlFields = new FormData();
     fdlFields.left = new FormAttachment(0, 0);
-    fdlFields.top = new FormAttachment(wUniqueRows, margin);
+    fdlFields.top = new FormAttachment(wSortThreads, margin);
     wlFields.setLayoutData(fdlFields);
 
     final int FieldsRows = input.getFieldName().length;
@@ -416,6 +505,10 @@ public class SortRowsDialog extends BaseTransformDialog implements ITransformDia
     wCompress.setSelection(input.getCompressFiles());
     wCompress.setVariableName(input.getCompressFilesVariable());
     wUniqueRows.setSelection(input.isOnlyPassingUniqueRows());
+    wNormalizedKeySort.setSelection(input.isNormalizedKeySort());
+    wSortMemory.setText(Const.NVL(input.getSortMemory(), ""));
+    wParallelSort.setSelection(input.isParallelSort());
+    wSortThreads.setText(Const.NVL(input.getSortThreads(), ""));
 
     Table table = wFields.table;
     if (input.getFieldName().length > 0) {
@@ -481,6 +574,10 @@ public class SortRowsDialog extends BaseTransformDialog implements ITransformDia
     input.setCompressFiles(wCompress.getSelection());
     input.setCompressFilesVariable(wCompress.getVariableName());
     input.setOnlyPassingUniqueRows(wUniqueRows.getSelection());
+    input.setNormalizedKeySort(wNormalizedKeySort.getSelection());
+    input.setSortMemory(wSortMemory.getText());
+    input.setParallelSort(wParallelSort.getSelection());
+    input.setSortThreads(wSortThreads.getText());
 
     int nrFields = wFields.nrNonEmpty();
 
@@ -116,6 +116,28 @@ public class SortRowsMeta extends BaseTransformMeta<SortRows, SortRowsData> impl
   /** The variable to use to set the compressFiles option boolean */
   private String compressFilesVariable;
 
+  /**
+   * Sort on normalized binary keys in off-heap memory, writing memory-mapped runs when the sort
+   * memory is exhausted. Only used when all sort fields can be encoded as a normalized key.
+   */
+  @Injection(name = "NORMALIZED_KEY_SORT")
+  private boolean normalizedKeySort;
+
+  /** The off-heap memory in MB to use for a normalized key sort before writing a run to disk */
+  @Injection(name = "SORT_MEMORY_MB")
+  private String sortMemory;
+
+  /**
+   * Sort the in-memory buffers with several threads and write the temporary files in the
+   * background while the next buffer is filled.
+   */
+  @Injection(name = "PARALLEL_SORT")
+  private boolean parallelSort;
+
+  /** The number of threads to use for a parallel sort, empty for the number of processors */
+  @Injection(name = "SORT_THREADS")
+  private String sortThreads;
+
   public SortRowsMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -203,6 +225,11 @@ public class SortRowsMeta extends BaseTransformMeta<SortRows, SortRowsData> impl
       compressFilesVariable = XmlHandler.getTagValue(transformNode, "compress_variable");
       onlyPassingUniqueRows =
           "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "unique_rows"));
+      normalizedKeySort =
+          "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "normalized_keys"));
+      sortMemory = XmlHandler.getTagValue(transformNode, "sort_memory");
+      parallelSort = "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "parallel_sort"));
+      sortThreads = XmlHandler.getTagValue(transformNode, "sort_threads");
 
       Node fields = XmlHandler.getSubNode(transformNode, "fields");
       int nrFields = XmlHandler.countNodes(fields, "field");
@@ -240,6 +267,10 @@ public class SortRowsMeta extends BaseTransformMeta<SortRows, SortRowsData> impl
     compressFiles = false;
     compressFilesVariable = null;
     onlyPassingUniqueRows = false;
+    normalizedKeySort = false;
+    sortMemory = "256";
+    parallelSort = false;
+    sortThreads = null;
 
     int nrFields = 0;
 
@@ -266,6 +297,10 @@ public class SortRowsMeta extends BaseTransformMeta<SortRows, SortRowsData> impl
         .append("      ")
         .append(XmlHandler.addTagValue("compress_variable", compressFilesVariable));
     retval.append("      ").append(XmlHandler.addTagValue("unique_rows", onlyPassingUniqueRows));
+    retval.append("      ").append(XmlHandler.addTagValue("normalized_keys", normalizedKeySort));
+    retval.append("      ").append(XmlHandler.addTagValue("sort_memory", sortMemory));
+    retval.append("      ").append(XmlHandler.addTagValue("parallel_sort", parallelSort));
+    retval.append("      ").append(XmlHandler.addTagValue("sort_threads", sortThreads));
 
     retval.append("    <fields>").append(Const.CR);
     for (int i = 0; i < fieldName.length; i++) {
@@ -544,6 +579,46 @@ public class SortRowsMeta extends BaseTransformMeta<SortRows, SortRowsData> impl
     this.freeMemoryLimit = freeMemoryLimit;
   }
 
+  /** @return Returns true if rows are sorted on normalized keys in off-heap memory. */
+  public boolean isNormalizedKeySort() {
+    return normalizedKeySort;
+  }
+
+  /** @param normalizedKeySort true to sort rows on normalized keys in off-heap memory */
+  public void setNormalizedKeySort(boolean normalizedKeySort) {
+    this.normalizedKeySort = normalizedKeySort;
+  }
+
+  /** @return Returns the off-heap sort memory in MB. */
+  public String getSortMemory() {
+    return sortMemory;
+  }
+
+  /** @param sortMemory The off-heap sort memory in MB to set. */
+  public void setSortMemory(String sortMemory) {
+    this.sortMemory = sortMemory;
+  }
+
+  /** @return Returns true if the rows are sorted with several threads. */
+  public boolean isParallelSort() {
+    return parallelSort;
+  }
+
+  /** @param parallelSort true to sort the rows with several threads */
+  public void setParallelSort(boolean parallelSort) {
+    this.parallelSort = parallelSort;
+  }
+
+  /** @return Returns the number of threads of a parallel sort. */
+  public String getSortThreads() {
+    return sortThreads;
+  }
+
+  /** @param sortThreads The number of threads of a parallel sort to set. */
+  public void setSortThreads(String sortThreads) {
+    this.sortThreads = sortThreads;
+  }
+
   /** @return the preSortedField */
   public boolean[] getPreSortedField() {
     return preSortedField;
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.sort;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ChunkSortTest {
+
+  @Test
+  public void testSortIsStable() {
+    Random random = new Random(789);
+    Object[][] rows = new Object[100000][];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = new Object[] {(long) random.nextInt(1000), (long) i};
+    }
+    Comparator<Object[]> comparator = Comparator.comparing(row -> (Long) row[0]);
+
+    Object[][] expected = rows.clone();
+    Arrays.sort(expected, comparator);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      pool.invoke(
+          new SortRows.ChunkSort(
+              rows,
+              new Object[rows.length][],
+              0,
+              rows.length,
+              SortRows.ChunkSort.MIN_CHUNK_SIZE,
+              comparator));
+    } finally {
+      pool.shutdown();
+    }
+    assertArrayEquals(expected, rows);
+  }
+}
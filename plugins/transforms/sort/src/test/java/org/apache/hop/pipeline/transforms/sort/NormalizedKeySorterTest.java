@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.sort;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NormalizedKeySorterTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private IRowMeta createRowMeta(boolean descending) {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaString("str"));
+    rowMeta.addValueMeta(new ValueMetaInteger("int"));
+    rowMeta.addValueMeta(new ValueMetaNumber("num"));
+    rowMeta.addValueMeta(new ValueMetaDate("date"));
+    rowMeta.addValueMeta(new ValueMetaBoolean("bool"));
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    for (IValueMeta valueMeta : rowMeta.getValueMetaList()) {
+      valueMeta.setCollatorDisabled(true);
+    }
+    rowMeta.getValueMeta(0).setSortedDescending(descending);
+    rowMeta.getValueMeta(2).setSortedDescending(descending);
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows(Random random, int nrRows) {
+    List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < nrRows; i++) {
+      rows.add(
+          new Object[] {
+            random.nextInt(10) == 0 ? null : "k" + (char) random.nextInt(300) + random.nextInt(3),
+            random.nextInt(10) == 0 ? null : (long) (random.nextInt(7) - 3) * Long.MAX_VALUE / 5,
+            random.nextInt(10) == 0 ? null : (random.nextDouble() - 0.5) * random.nextInt(4),
+            random.nextInt(10) == 0 ? null : new Date(random.nextInt(5) - 2),
+            random.nextInt(10) == 0 ? null : random.nextBoolean(),
+            (long) i
+          });
+    }
+    return rows;
+  }
+
+  @Test
+  public void testKeyOrderMatchesRowCompare() throws Exception {
+    for (boolean descending : new boolean[] {false, true}) {
+      IRowMeta rowMeta = createRowMeta(descending);
+      int[] fieldNrs = {0, 1, 2, 3, 4};
+      NormalizedKeyEncoder encoder = new NormalizedKeyEncoder(rowMeta, fieldNrs);
+      List<Object[]> rows = createRows(new Random(123), 500);
+
+      for (int i = 0; i < rows.size(); i++) {
+        encoder.encode(rows.get(i));
+        byte[] key = encoder.getKey().clone();
+        int length = encoder.getLength();
+        for (int j = 0; j < rows.size(); j++) {
+          encoder.encode(rows.get(j));
+          int expected = rowMeta.compare(rows.get(i), rows.get(j), fieldNrs);
+          int actual =
+              NormalizedKeyEncoder.compare(key, length, encoder.getKey(), encoder.getLength());
+          assertEquals(Integer.signum(expected), Integer.signum(actual));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIsSupported() {
+    ValueMetaString string = new ValueMetaString("str");
+    string.setCollatorDisabled(true);
+    assertTrue(NormalizedKeyEncoder.isSupported(string));
+    string.setCaseInsensitive(true);
+    assertFalse(NormalizedKeyEncoder.isSupported(string));
+
+    ValueMetaInteger integer = new ValueMetaInteger("int");
+    assertTrue(NormalizedKeyEncoder.isSupported(integer));
+    integer.setStorageType(IValueMeta.STORAGE_TYPE_BINARY_STRING);
+    assertFalse(NormalizedKeyEncoder.isSupported(integer));
+  }
+
+  @Test
+  public void testSortWithRuns() throws Exception {
+    IRowMeta rowMeta = createRowMeta(true);
+    int[] fieldNrs = {2, 0, 1};
+    List<Object[]> rows = createRows(new Random(456), 150000);
+
+    // The minimum amount of memory is a single page: this forces a few runs
+    //
+    NormalizedKeySorter sorter =
+        new NormalizedKeySorter(rowMeta, fieldNrs, 0L, folder.getRoot(), "sort", false);
+    for (Object[] row : rows) {
+      sorter.add(row);
+    }
+    List<Object[]> expected = new ArrayList<>(rows);
+    expected.sort(
+        (a, b) -> {
+          try {
+            return rowMeta.compare(a, b, fieldNrs);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+
+    for (Object[] expectedRow : expected) {
+      Object[] row = sorter.next();
+      // The sort is stable: the id tells the rows apart
+      assertEquals(expectedRow[5], row[5]);
+    }
+    assertNull(sorter.next());
+    assertTrue(sorter.getNrRuns() > 1);
+
+    sorter.clear();
+    File[] files = folder.getRoot().listFiles();
+    assertEquals(0, files == null ? 0 : files.length);
+    sorter.close();
+  }
+
+  @Test
+  public void testReuseAfterClear() throws Exception {
+    IRowMeta rowMeta = createRowMeta(false);
+    int[] fieldNrs = {1};
+    NormalizedKeySorter sorter =
+        new NormalizedKeySorter(rowMeta, fieldNrs, 0L, folder.getRoot(), "sort", false);
+    for (long i = 0; i < 10; i++) {
+      sorter.add(new Object[] {null, 10L - i, null, null, null, i});
+    }
+    assertEquals(1L, sorter.next()[1]);
+    sorter.clear();
+
+    sorter.add(new Object[] {null, 7L, null, null, null, 0L});
+    sorter.add(new Object[] {null, null, null, null, null, 1L});
+    assertNull(sorter.next()[1]);
+    assertEquals(7L, sorter.next()[1]);
+    assertNull(sorter.next());
+    sorter.close();
+  }
+}
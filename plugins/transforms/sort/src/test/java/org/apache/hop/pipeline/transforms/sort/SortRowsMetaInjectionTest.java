@@ -39,6 +39,10 @@ public class SortRowsMetaInjectionTest extends BaseMetadataInjectionTest<SortRow
     check("FREE_MEMORY_TRESHOLD", () -> meta.getFreeMemoryLimit());
     check("ONLY_PASS_UNIQUE_ROWS", () -> meta.isOnlyPassingUniqueRows());
     check("COMPRESS_TEMP_FILES", () -> meta.getCompressFiles());
+    check("NORMALIZED_KEY_SORT", () -> meta.isNormalizedKeySort());
+    check("SORT_MEMORY_MB", () -> meta.getSortMemory());
+    check("PARALLEL_SORT", () -> meta.isParallelSort());
+    check("SORT_THREADS", () -> meta.getSortThreads());
     check("NAME", () -> meta.getFieldName()[0]);
     check("SORT_ASCENDING", () -> meta.getAscending()[0]);
     check("IGNORE_CASE", () -> meta.getCaseSensitive()[0]);
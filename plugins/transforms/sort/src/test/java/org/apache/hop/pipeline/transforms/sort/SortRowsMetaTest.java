@@ -56,6 +56,10 @@ public class SortRowsMetaTest {
             "CompressFiles",
             "CompressFilesVariable",
             "OnlyPassingUniqueRows",
+            "NormalizedKeySort",
+            "SortMemory",
+            "ParallelSort",
+            "SortThreads",
             "FieldName",
             "Ascending",
             "CaseSensitive",
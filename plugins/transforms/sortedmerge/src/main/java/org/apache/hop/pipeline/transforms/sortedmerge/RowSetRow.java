@@ -24,16 +24,28 @@ public class RowSetRow {
   private IRowSet rowSet;
   private IRowMeta rowMeta;
   private Object[] rowData;
+  private int rowSetNr;
 
   /**
    * @param rowSet
    * @param rowData
    */
   public RowSetRow(IRowSet rowSet, IRowMeta rowMeta, Object[] rowData) {
+    this(rowSet, rowMeta, rowData, 0);
+  }
+
+  /**
+   * @param rowSet
+   * @param rowMeta
+   * @param rowData
+   * @param rowSetNr the index of the row set in the input row sets
+   */
+  public RowSetRow(IRowSet rowSet, IRowMeta rowMeta, Object[] rowData, int rowSetNr) {
     super();
     this.rowSet = rowSet;
     this.rowMeta = rowMeta;
     this.rowData = rowData;
+    this.rowSetNr = rowSetNr;
   }
 
   /** @return the rowSet */
@@ -65,4 +77,14 @@ public class RowSetRow {
   public void setRowMeta(IRowMeta rowMeta) {
     this.rowMeta = rowMeta;
   }
+
+  /** @return the index of the row set in the input row sets */
+  public int getRowSetNr() {
+    return rowSetNr;
+  }
+
+  /** @param rowSetNr the index of the row set in the input row sets to set */
+  public void setRowSetNr(int rowSetNr) {
+    this.rowSetNr = rowSetNr;
+  }
 }
@@ -27,9 +27,8 @@ import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
 
 
 
@@ -51,8 +50,8 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
    * We read from all streams in the partition merge mode For that we need at least one row on all
    * input rowsets... If we don't have a row, we wait for one.
    *
-   * <p>TODO: keep the inputRowSets() list sorted and go from there. That should dramatically
-   * improve speed as you only need half as many comparisons.
+   * <p>The current row of every input rowset is kept in a priority queue so that finding the
+   * smallest row and adding the next one only takes a logarithmic number of comparisons.
    *
    * @return the next row
    */
@@ -60,9 +59,24 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
     if (first) {
       first = false;
 
+      data.comparator =
+          (o1, o2) -> {
+            try {
+              int cmp =
+                  o1.getRowMeta().compare(o1.getRowData(), o2.getRowData(), data.fieldIndices);
+
+              // Equal rows come from the first row set first to keep the merge stable
+              //
+              return cmp != 0 ? cmp : Integer.compare(o1.getRowSetNr(), o2.getRowSetNr());
+            } catch (HopValueException e) {
+              throw new CompareException(e);
+            }
+          };
+
       // Read one row from all rowsets...
       //
-      data.sortedBuffer = new ArrayList<>();
+      List<IRowSet> inputRowSets = getInputRowSets();
+      data.sortedBuffer = new PriorityQueue<>(Math.max(1, inputRowSets.size()), data.comparator);
       data.rowMeta = null;
 
       // If one of the inputRowSets holds a null row (the input yields
@@ -71,16 +85,15 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
       // which throws this loop off by one (the next set never gets processed).
       // Instead of modifying BaseTransform, I figure reversing the loop here would
       // effect change in less areas. If the reverse loop causes a problem, please
-      List<IRowSet> inputRowSets = getInputRowSets();
       for (int i = inputRowSets.size() - 1; i >= 0 && !isStopped(); i--) {
 
         IRowSet rowSet = inputRowSets.get(i);
         Object[] row = getRowFrom(rowSet);
         if (row != null) {
-          // Add this row to the sortedBuffer...
-          // Which is not yet sorted, we'll get to that later.
+          // Remember this row, the field indices need to be known before we can add it to the
+          // sortedBuffer.
           //
-          data.sortedBuffer.add(new RowSetRow(rowSet, rowSet.getRowMeta(), row));
+          RowSetRow rowSetRow = new RowSetRow(rowSet, rowSet.getRowMeta(), row, i);
           if (data.rowMeta == null) {
             data.rowMeta = rowSet.getRowMeta().clone();
           }
@@ -108,21 +121,11 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
                   .setSortedDescending(!meta.getAscending()[f]);
             }
           }
-        }
 
-        data.comparator =
-            (o1, o2) -> {
-              try {
-                return o1.getRowMeta().compare(o1.getRowData(), o2.getRowData(), data.fieldIndices);
-              } catch (HopValueException e) {
-                return 0; // TODO see if we should fire off alarms over here... Perhaps throw a
-                // RuntimeException.
-              }
-            };
-
-        // Now sort the sortedBuffer for the first time.
-        //
-        Collections.sort(data.sortedBuffer, data.comparator);
+          // Add this row to the sortedBuffer...
+          //
+          addSortedRow(rowSetRow);
+        }
       }
     }
 
@@ -133,10 +136,9 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
     }
 
     // now that we have all rows sorted, all we need to do is find out what the smallest row is.
-    // The smallest row is the first in our case...
+    // The smallest row is the head of the queue in our case...
     //
-    RowSetRow smallestRow = data.sortedBuffer.get(0);
-    data.sortedBuffer.remove(0);
+    RowSetRow smallestRow = pollSortedRow();
     Object[] outputRowData = smallestRow.getRowData();
 
     // We read another row from the row set where the smallest row came from.
@@ -147,16 +149,12 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
     // Add it to the sorted buffer in the right position...
     //
     if (extraRow != null) {
-      // Add this one to the sortedBuffer
-      //
-      RowSetRow add =
-          new RowSetRow(smallestRow.getRowSet(), smallestRow.getRowSet().getRowMeta(), extraRow);
-      int index = Collections.binarySearch(data.sortedBuffer, add, data.comparator);
-      if (index < 0) {
-        data.sortedBuffer.add(-index - 1, add);
-      } else {
-        data.sortedBuffer.add(index, add);
-      }
+      addSortedRow(
+          new RowSetRow(
+              smallestRow.getRowSet(),
+              smallestRow.getRowSet().getRowMeta(),
+              extraRow,
+              smallestRow.getRowSetNr()));
     }
 
     // This concludes the regular program...
@@ -173,6 +171,24 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
     return outputRowData;
   }
 
+  /** Adds a row to the sorted buffer, reporting the errors of the comparator */
+  private void addSortedRow(RowSetRow rowSetRow) throws HopValueException {
+    try {
+      data.sortedBuffer.add(rowSetRow);
+    } catch (CompareException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Removes the smallest row from the sorted buffer, reporting the errors of the comparator */
+  private RowSetRow pollSortedRow() throws HopValueException {
+    try {
+      return data.sortedBuffer.poll();
+    } catch (CompareException e) {
+      throw e.getCause();
+    }
+  }
+
   @Override
   public boolean processRow() throws HopException {
 
@@ -202,4 +218,16 @@ public class SortedMerge extends BaseTransform<SortedMergeMeta, SortedMergeData>
     }
     return false;
   }
+
+  /** Carries a comparison error out of the comparator of the sorted buffer */
+  private static class CompareException extends RuntimeException {
+    CompareException(HopValueException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized HopValueException getCause() {
+      return (HopValueException) super.getCause();
+    }
+  }
 }
@@ -22,12 +22,12 @@ import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
 import java.util.Comparator;
-import java.util.List;
+import java.util.PriorityQueue;
 
 public class SortedMergeData extends BaseTransformData implements ITransformData {
   public int[] fieldIndices;
   public IRowMeta rowMeta;
-  public List<RowSetRow> sortedBuffer;
+  public PriorityQueue<RowSetRow> sortedBuffer;
   public Comparator<RowSetRow> comparator;
 
   public SortedMergeData() {
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.sortedmerge;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class SortedMergeTest {
+
+  private TransformMockHelper<SortedMergeMeta, SortedMergeData> mockHelper;
+  private IRowMeta inputRowMeta;
+  private List<Object[]> output;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    mockHelper =
+        new TransformMockHelper<>("Sorted Merge", SortedMergeMeta.class, SortedMergeData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+
+    inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta(new ValueMetaInteger("key"));
+    inputRowMeta.addValueMeta(new ValueMetaString("source"));
+
+    output = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  private static IRowSet createRowSet(IRowMeta rowMeta, Object[]... rows) {
+    IRowSet rowSet = new QueueRowSet();
+    for (Object[] row : rows) {
+      rowSet.putRow(rowMeta, row);
+    }
+    rowSet.setDone();
+    return rowSet;
+  }
+
+  private SortedMerge createTransform(IRowSet... rowSets) throws Exception {
+    SortedMergeMeta meta = new SortedMergeMeta();
+    meta.setFieldName(new String[] {"key"});
+    meta.setAscending(new boolean[] {true});
+
+    SortedMerge transform =
+        spy(
+            new SortedMerge(
+                mockHelper.transformMeta,
+                meta,
+                new SortedMergeData(),
+                0,
+                mockHelper.pipelineMeta,
+                mockHelper.pipeline));
+
+    List<IRowSet> inputRowSets = new ArrayList<>(List.of(rowSets));
+    doReturn(inputRowSets).when(transform).getInputRowSets();
+    doAnswer(invocation -> ((IRowSet) invocation.getArguments()[0]).getRowImmediate())
+        .when(transform)
+        .getRowFrom(any(IRowSet.class));
+    doAnswer(
+            invocation -> {
+              output.add((Object[]) invocation.getArguments()[1]);
+              return null;
+            })
+        .when(transform)
+        .putRow(any(IRowMeta.class), any(Object[].class));
+
+    assertTrue(transform.init());
+    return transform;
+  }
+
+  @Test
+  public void testEqualRowsKeepTheOrderOfTheRowSets() throws Exception {
+    SortedMerge transform =
+        createTransform(
+            createRowSet(
+                inputRowMeta,
+                new Object[] {1L, "a0"},
+                new Object[] {2L, "a1"},
+                new Object[] {2L, "a2"},
+                new Object[] {3L, "a3"}),
+            createRowSet(
+                inputRowMeta,
+                new Object[] {1L, "b0"},
+                new Object[] {2L, "b1"},
+                new Object[] {4L, "b2"}),
+            createRowSet(inputRowMeta, new Object[] {2L, "c0"}),
+            createRowSet(inputRowMeta, new Object[] {1L, "d0"}, new Object[] {2L, "d1"}));
+
+    while (transform.processRow()) {
+      // Merge all the rows
+    }
+
+    // Equal keys come from the first row set first, and in their order within the row set
+    //
+    String[] expected = {"a0", "b0", "d0", "a1", "a2", "b1", "c0", "d1", "a3", "b2"};
+    assertEquals(expected.length, output.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], output.get(i)[1]);
+    }
+  }
+
+  @Test
+  public void testComparisonErrorsAreReported() throws Exception {
+    HopValueException error = new HopValueException("Unable to compare");
+    IValueMeta valueMeta = mock(IValueMeta.class);
+    when(valueMeta.getName()).thenReturn("key");
+    when(valueMeta.clone()).thenReturn(valueMeta);
+    when(valueMeta.compare(any(), any())).thenThrow(error);
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(valueMeta);
+
+    SortedMerge transform =
+        createTransform(
+            createRowSet(rowMeta, new Object[] {1L}), createRowSet(rowMeta, new Object[] {2L}));
+    try {
+      transform.processRow();
+      fail("The comparison error should be reported");
+    } catch (HopValueException e) {
+      assertSame(error, e);
+    }
+  }
+}
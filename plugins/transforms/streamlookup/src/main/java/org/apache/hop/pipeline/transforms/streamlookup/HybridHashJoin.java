@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.streamlookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyHashTable;
+import org.apache.hop.core.row.IRowMeta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hybrid hash join over binary keys and values, see {@link BinaryKeyHashTable}.
+ *
+ * <p>The lookup entries are divided in partitions on the hash of their key, every partition has its
+ * own hash table. When the memory limit is reached the largest partition in memory is written to a
+ * temporary file, later entries of that partition are appended to the file. Rows of the main
+ * stream with a key in a partition in memory are looked up immediately, the others are written to
+ * a temporary file per partition.
+ *
+ * <p>Once the main stream is done, every spilled partition is loaded as a new join on the next bits
+ * of the key hash and its rows are read back and looked up. A partition that still doesn't fit is
+ * divided again, up to the number of bits in the hash.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class HybridHashJoin {
+  private static final int PARTITION_BITS = 4;
+  private static final int NR_PARTITIONS = 1 << PARTITION_BITS;
+  private static final int MAX_LEVEL = 64 / PARTITION_BITS - 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final int level;
+  private final long memoryLimit;
+  private final boolean offHeap;
+  private final File directory;
+
+  private final BinaryKeyHashTable[] tables;
+  private final File[] buildFiles;
+  private final DataOutputStream[] buildOutputs;
+  private final long[] buildCounts;
+  private final File[] probeFiles;
+  private final DataOutputStream[] probeOutputs;
+  private final long[] probeCounts;
+
+  /**
+   * @param memoryLimit the maximum number of bytes of lookup entries to keep in memory
+   * @param offHeap true to keep the lookup entries in memory outside of the heap
+   * @param directory the directory to write the temporary files in
+   */
+  public HybridHashJoin(long memoryLimit, boolean offHeap, File directory) {
+    this(0, memoryLimit, offHeap, directory);
+  }
+
+  private HybridHashJoin(int level, long memoryLimit, boolean offHeap, File directory) {
+    this.level = level;
+    this.memoryLimit = memoryLimit;
+    this.offHeap = offHeap;
+    this.directory = directory;
+    this.tables = new BinaryKeyHashTable[NR_PARTITIONS];
+    for (int i = 0; i < NR_PARTITIONS; i++) {
+      tables[i] = new BinaryKeyHashTable(64, offHeap);
+    }
+    this.buildFiles = new File[NR_PARTITIONS];
+    this.buildOutputs = new DataOutputStream[NR_PARTITIONS];
+    this.buildCounts = new long[NR_PARTITIONS];
+    this.probeFiles = new File[NR_PARTITIONS];
+    this.probeOutputs = new DataOutputStream[NR_PARTITIONS];
+    this.probeCounts = new long[NR_PARTITIONS];
+  }
+
+  private int partitionOf(long hash) {
+    return (int) (hash >>> (64 - PARTITION_BITS * (level + 1))) & (NR_PARTITIONS - 1);
+  }
+
+  /**
+   * Store a lookup entry, replacing the value if the key is already present. This spills
+   * partitions to disk when the memory limit is reached.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @param value the value bytes
+   * @param valueLength the number of valid bytes in value
+   * @throws HopException in case a partition can't be written to disk
+   */
+  public void put(byte[] key, int keyLength, long hash, byte[] value, int valueLength)
+      throws HopException {
+    int partition = partitionOf(hash);
+    if (buildFiles[partition] != null) {
+      writeEntry(partition, key, keyLength, hash, value, valueLength);
+      return;
+    }
+    tables[partition].put(key, keyLength, hash, value, valueLength);
+    while (level < MAX_LEVEL && getMemory() > memoryLimit && spillLargestPartition()) {
+      // Keep going until the entries in memory fit
+    }
+  }
+
+  /**
+   * See if the key with the given hash belongs to a partition on disk. Rows with such a key need
+   * to be passed to {@link #spillRow(long, IRowMeta, Object[])}.
+   *
+   * @param hash the hash of the key
+   * @return true if the partition of the key was written to disk
+   */
+  public boolean isSpilled(long hash) {
+    return buildFiles[partitionOf(hash)] != null;
+  }
+
+  /**
+   * Get a copy of the value stored for the given key in memory.
+   *
+   * @param key the key bytes
+   * @param keyLength the number of valid bytes in key
+   * @param hash the hash of the key
+   * @return the value or null if the key isn't in the table
+   */
+  public byte[] get(byte[] key, int keyLength, long hash) {
+    return tables[partitionOf(hash)].get(key, keyLength, hash);
+  }
+
+  /**
+   * Write a row of the main stream to the file of the spilled partition of its key.
+   *
+   * @param hash the hash of the key of the row
+   * @param rowMeta the metadata of the row
+   * @param row the row to write
+   * @throws HopException in case the row can't be written
+   */
+  public void spillRow(long hash, IRowMeta rowMeta, Object[] row) throws HopException {
+    int partition = partitionOf(hash);
+    try {
+      if (probeOutputs[partition] == null) {
+        probeFiles[partition] = createFile("probe");
+        probeOutputs[partition] = openOutput(probeFiles[partition]);
+      }
+      rowMeta.writeData(probeOutputs[partition], row);
+      probeCounts[partition]++;
+    } catch (IOException e) {
+      throw new HopException("Unable to create a stream lookup file in " + directory, e);
+    }
+  }
+
+  /**
+   * Gets the memory used by the partitions in memory
+   *
+   * @return the number of bytes
+   */
+  public long getMemory() {
+    long memory = 0L;
+    for (BinaryKeyHashTable table : tables) {
+      if (table != null) {
+        memory += table.getMemory();
+      }
+    }
+    return memory;
+  }
+
+  /** @return the numbers of the partitions written to disk */
+  public List<Integer> getSpilledPartitions() {
+    List<Integer> partitions = new ArrayList<>();
+    for (int i = 0; i < NR_PARTITIONS; i++) {
+      if (buildFiles[i] != null) {
+        partitions.add(i);
+      }
+    }
+    return partitions;
+  }
+
+  /**
+   * Load the lookup entries of a spilled partition in a new join. The new join divides the
+   * partition further if it still doesn't fit in memory.
+   *
+   * @param partition the number of the spilled partition
+   * @return the join with the entries of the partition
+   * @throws HopException in case the partition can't be read
+   */
+  public HybridHashJoin loadPartition(int partition) throws HopException {
+    closeOutputs();
+    HybridHashJoin join = new HybridHashJoin(level + 1, memoryLimit, offHeap, directory);
+    try (DataInputStream input = openInput(buildFiles[partition])) {
+      for (long i = 0; i < buildCounts[partition]; i++) {
+        long hash = input.readLong();
+        byte[] key = new byte[input.readInt()];
+        byte[] value = new byte[input.readInt()];
+        input.readFully(key);
+        input.readFully(value);
+        join.put(key, key.length, hash, value, value.length);
+      }
+    } catch (IOException e) {
+      join.close();
+      throw new HopException("Unable to read stream lookup file " + buildFiles[partition], e);
+    }
+    return join;
+  }
+
+  /**
+   * Read back the rows of the main stream written for a spilled partition.
+   *
+   * @param partition the number of the spilled partition
+   * @param rowMeta the metadata of the rows
+   * @param handler receives every row
+   * @throws HopException in case the rows can't be read or handled
+   */
+  public void readRows(int partition, IRowMeta rowMeta, IRowHandler handler)
+      throws HopException {
+    closeOutputs();
+    if (probeFiles[partition] == null) {
+      return;
+    }
+    try (DataInputStream input = openInput(probeFiles[partition])) {
+      for (long i = 0; i < probeCounts[partition]; i++) {
+        handler.handleRow(rowMeta.readData(input));
+      }
+    } catch (IOException e) {
+      throw new HopException("Unable to read stream lookup file " + probeFiles[partition], e);
+    }
+  }
+
+  /** Release the memory and delete the temporary files. */
+  public void close() {
+    closeOutputs();
+    for (int i = 0; i < NR_PARTITIONS; i++) {
+      tables[i] = null;
+      deleteFile(buildFiles[i]);
+      deleteFile(probeFiles[i]);
+    }
+  }
+
+  private boolean spillLargestPartition() throws HopException {
+    int largest = -1;
+    for (int i = 0; i < NR_PARTITIONS; i++) {
+      if (buildFiles[i] == null
+          && !tables[i].isEmpty()
+          && (largest < 0 || tables[i].getMemory() > tables[largest].getMemory())) {
+        largest = i;
+      }
+    }
+    if (largest < 0) {
+      return false;
+    }
+    BinaryKeyHashTable table = tables[largest];
+    try {
+      buildFiles[largest] = createFile("build");
+      buildOutputs[largest] = openOutput(buildFiles[largest]);
+    } catch (IOException e) {
+      throw new HopException("Unable to create a stream lookup file in " + directory, e);
+    }
+    for (int slot = 0; slot < table.getCapacity(); slot++) {
+      long address = table.getAddress(slot);
+      if (address >= 0) {
+        byte[] key = table.getKey(address);
+        byte[] value = table.getValue(address);
+        writeEntry(largest, key, key.length, table.getHash(slot), value, value.length);
+      }
+    }
+    table.clear();
+    return true;
+  }
+
+  private void writeEntry(
+      int partition, byte[] key, int keyLength, long hash, byte[] value, int valueLength)
+      throws HopException {
+    try {
+      DataOutputStream output = buildOutputs[partition];
+      output.writeLong(hash);
+      output.writeInt(keyLength);
+      output.writeInt(valueLength);
+      output.write(key, 0, keyLength);
+      output.write(value, 0, valueLength);
+      buildCounts[partition]++;
+    } catch (IOException e) {
+      throw new HopException("Unable to write stream lookup file " + buildFiles[partition], e);
+    }
+  }
+
+  private File createFile(String type) throws IOException {
+    return Files.createTempFile(directory.toPath(), "hop-lookup-" + type + "-", ".tmp").toFile();
+  }
+
+  private static DataOutputStream openOutput(File file) throws IOException {
+    return new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE));
+  }
+
+  private static DataInputStream openInput(File file) throws IOException {
+    return new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE));
+  }
+
+  private void closeOutputs() {
+    closeOutputs(buildOutputs);
+    closeOutputs(probeOutputs);
+  }
+
+  private static void closeOutputs(DataOutputStream[] outputs) {
+    for (int i = 0; i < outputs.length; i++) {
+      if (outputs[i] != null) {
+        try {
+          outputs[i].close();
+        } catch (IOException e) {
+          // Ignore, the file is deleted anyway
+        }
+        outputs[i] = null;
+      }
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file.toPath());
+      } catch (IOException e) {
+        // Ignore, it's a temporary file
+      }
+    }
+  }
+
+  /** Receives the rows read back from a spilled partition */
+  public interface IRowHandler {
+    void handleRow(Object[] row) throws HopException;
+  }
+}
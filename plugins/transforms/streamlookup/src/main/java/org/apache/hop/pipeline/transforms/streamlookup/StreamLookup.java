@@ -17,27 +17,36 @@
 
 package org.apache.hop.pipeline.transforms.streamlookup;
 
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.provider.local.LocalFile;
+import org.apache.hop.core.Const;
 import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
-import org.apache.hop.core.hash.ByteArrayHashIndex;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.BinaryKeyHashTable;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.value.ValueMetaFactory;
 import org.apache.hop.core.util.Utils;
+import org.apache.hop.core.vfs.HopVfs;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.metadata.cache.LookupCacheRegistry;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Looks up information by first reading data into a hash table (in memory)
@@ -48,6 +57,8 @@ import java.util.Collections;
 public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupData> {
   private static final Class<?> PKG = StreamLookupMeta.class; // For Translator
 
+  private static final int HASH_TABLE_SIZE = 1024;
+
   public StreamLookup(
       TransformMeta transformMeta,
       StreamLookupMeta meta,
@@ -144,6 +155,11 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     int[] valueNrs = new int[meta.getValue().length];
     boolean firstRun = true;
 
+    // With a shared cache, the rows are only stored if the cache doesn't hold all of them yet
+    //
+    boolean storing = true;
+    long sharedEvictions = 0L;
+
     // Which row set do we read from?
     //
     IRowSet rowSet = findInputRowSet(data.infoStream.getTransformName());
@@ -195,6 +211,33 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
 
         data.cacheKeyMeta = cacheKeyMeta;
         data.cacheValueMeta = cacheValueMeta;
+
+        if (data.sharedCache != null) {
+          data.sharedData = data.sharedCache.getData();
+          if (!data.sharedData.checkLayout(cacheKeyMeta, cacheValueMeta)) {
+            throw new HopTransformException(
+                BaseMessages.getString(
+                    PKG,
+                    "StreamLookup.Exception.SharedCacheLayoutDifferent",
+                    data.sharedCache.getName()));
+          }
+          data.keyEncoder = new BinaryKeyEncoder(cacheKeyMeta, null);
+          sharedEvictions = data.sharedData.getEvictions();
+          storing = !data.sharedData.isComplete();
+          if (!storing && log.isDetailed()) {
+            logDetailed(
+                BaseMessages.getString(
+                    PKG,
+                    "StreamLookup.Log.SharedCacheLoaded",
+                    data.sharedCache.getName(),
+                    Integer.toString(data.sharedData.getSize())));
+          }
+        }
+      }
+
+      if (!storing) {
+        rowData = getRowFrom(rowSet);
+        continue;
       }
 
       Object[] keyData = new Object[keyNrs.length];
@@ -215,6 +258,12 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
       rowData = getRowFrom(rowSet);
     }
 
+    if (data.sharedData != null && storing && !data.sharedData.markComplete(sharedEvictions)) {
+      throw new HopTransformException(
+          BaseMessages.getString(
+              PKG, "StreamLookup.Exception.SharedCacheTooSmall", data.sharedCache.getName()));
+    }
+
     return true;
   }
 
@@ -275,7 +324,20 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
 
     if (data.hasLookupRows) {
       try {
-        if (meta.getKeystream().length > 0) {
+        if (meta.getKeystream().length > 0 && data.join != null) {
+          data.keyEncoder.encode(lu);
+          long hash = data.keyEncoder.getHash();
+          if (data.join.isSpilled(hash)) {
+            // The lookup data for this key is on disk, look up the row at the end of the stream
+            //
+            data.join.spillRow(hash, rowMeta, row);
+            return null;
+          }
+          byte[] value = data.join.get(data.keyEncoder.getKey(), data.keyEncoder.getLength(), hash);
+          if (value != null) {
+            add = RowMeta.getRow(data.cacheValueMeta, value);
+          }
+        } else if (meta.getKeystream().length > 0) {
           add = getFromCache(data.cacheKeyMeta, lu);
         } else {
           // Just take the first element in the hashtable...
@@ -296,8 +358,23 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
 
   private void addToCache(
       IRowMeta keyMeta, Object[] keyData, IRowMeta valueMeta, Object[] valueData)
-      throws HopValueException {
-    if (meta.isMemoryPreservationActive()) {
+      throws HopException {
+    if (data.sharedData != null) {
+      data.sharedData.put(data.keyEncoder, keyData, valueData);
+    } else if (meta.isSpillToDisk()) {
+      if (data.join == null) {
+        data.join = createHybridHashJoin();
+        data.keyEncoder = new BinaryKeyEncoder(keyMeta, null);
+      }
+      data.keyEncoder.encode(keyData);
+      byte[] value = RowMeta.extractData(valueMeta, valueData);
+      data.join.put(
+          data.keyEncoder.getKey(),
+          data.keyEncoder.getLength(),
+          data.keyEncoder.getHash(),
+          value,
+          value.length);
+    } else if (meta.isMemoryPreservationActive()) {
       if (meta.isUsingSortedList()) {
         KeyValue keyValue = new KeyValue(keyData, valueData);
         int idx = Collections.binarySearch(data.list, keyValue, data.comparator);
@@ -326,11 +403,18 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
           Long value = valueMeta.getInteger(valueData, 0);
           data.longIndex.put(key, value);
         } else {
-          if (data.hashIndex == null) {
-            data.hashIndex = new ByteArrayHashIndex(keyMeta);
+          if (data.hashTable == null) {
+            data.hashTable = new BinaryKeyHashTable(HASH_TABLE_SIZE, meta.isOffHeap());
+            data.keyEncoder = new BinaryKeyEncoder(keyMeta, null);
           }
-          data.hashIndex.put(
-              RowMeta.extractData(keyMeta, keyData), RowMeta.extractData(valueMeta, valueData));
+          data.keyEncoder.encode(keyData);
+          byte[] value = RowMeta.extractData(valueMeta, valueData);
+          data.hashTable.put(
+              data.keyEncoder.getKey(),
+              data.keyEncoder.getLength(),
+              data.keyEncoder.getHash(),
+              value,
+              value.length);
         }
       }
     } else {
@@ -340,8 +424,60 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     }
   }
 
-  private Object[] getFromCache(IRowMeta keyMeta, Object[] keyData) throws HopValueException {
-    if (meta.isMemoryPreservationActive()) {
+  private HybridHashJoin createHybridHashJoin() throws HopException {
+    String directoryName = resolve(meta.getSpillDirectory());
+    FileObject directory = HopVfs.getFileObject(directoryName);
+    if (!(directory instanceof LocalFile)) {
+      throw new HopException(
+          BaseMessages.getString(
+              PKG, "StreamLookup.Exception.SpillDirectoryNotLocal", directoryName));
+    }
+    long spillMemory = Const.toLong(resolve(meta.getSpillMemory()), 256L);
+    return new HybridHashJoin(
+        spillMemory * 1024L * 1024L, meta.isOffHeap(), new File(HopVfs.getFilename(directory)));
+  }
+
+  /**
+   * Look up the rows written to disk for the partitions of the lookup data that didn't fit in
+   * memory. A partition that still doesn't fit is divided again.
+   */
+  private void joinSpilledPartitions(HybridHashJoin join) throws HopException {
+    List<Integer> partitions = join.getSpilledPartitions();
+    if (partitions.isEmpty()) {
+      return;
+    }
+    if (log.isDetailed()) {
+      logDetailed(
+          BaseMessages.getString(PKG, "StreamLookup.Log.SpilledPartitions", partitions.size()));
+    }
+    for (int partition : partitions) {
+      HybridHashJoin partitionJoin = join.loadPartition(partition);
+      try {
+        data.join = partitionJoin;
+        join.readRows(
+            partition,
+            getInputRowMeta(),
+            row -> {
+              Object[] outputRow = lookupValues(getInputRowMeta(), row);
+              if (outputRow != null) {
+                putRow(data.outputRowMeta, outputRow);
+              }
+            });
+        joinSpilledPartitions(partitionJoin);
+      } finally {
+        data.join = join;
+        partitionJoin.close();
+      }
+      if (isStopped()) {
+        return;
+      }
+    }
+  }
+
+  private Object[] getFromCache(IRowMeta keyMeta, Object[] keyData) throws HopException {
+    if (data.sharedData != null) {
+      return data.sharedData.get(data.keyEncoder, keyData);
+    } else if (meta.isMemoryPreservationActive()) {
       if (meta.isUsingSortedList()) {
         KeyValue keyValue = new KeyValue(keyData, null);
         int idx = Collections.binarySearch(data.list, keyValue, data.comparator);
@@ -362,7 +498,12 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
           };
         } else {
           try {
-            byte[] value = data.hashIndex.get(RowMeta.extractData(keyMeta, keyData));
+            data.keyEncoder.encode(keyData);
+            byte[] value =
+                data.hashTable.get(
+                    data.keyEncoder.getKey(),
+                    data.keyEncoder.getLength(),
+                    data.keyEncoder.getHash());
             if (value == null) {
               return null;
             }
@@ -399,6 +540,10 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     if (r == null) {
       // no more input to be expected...
 
+      if (data.join != null) {
+        joinSpilledPartitions(data.join);
+      }
+
       if (log.isDetailed()) {
         logDetailed(
             BaseMessages.getString(
@@ -463,6 +608,10 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     Object[] outputRow =
         lookupValues(getInputRowMeta(), r); // Do the actual lookup in the hastable.
     if (outputRow == null) {
+      if (!isStopped()) {
+        // The row was written to disk to be looked up at the end of the stream
+        return true;
+      }
       setOutputDone(); // signal end to receiver(s)
 
       return false;
@@ -485,6 +634,25 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     if (super.init()) {
       data.readLookupValues = true;
 
+      if (!Utils.isEmpty(meta.getSharedCache())) {
+        String cacheName = resolve(meta.getSharedCache());
+        try {
+          LookupCache lookupCache =
+              metadataProvider.getSerializer(LookupCache.class).load(cacheName);
+          if (lookupCache == null) {
+            logError(
+                BaseMessages.getString(PKG, "StreamLookup.Exception.SharedCacheNotFound", cacheName));
+            return false;
+          }
+          data.sharedCache = lookupCache.attach(this);
+        } catch (HopException e) {
+          logError(
+              BaseMessages.getString(PKG, "StreamLookup.Exception.SharedCacheNotFound", cacheName),
+              e);
+          return false;
+        }
+      }
+
       return true;
     }
 
@@ -497,8 +665,18 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     //
     data.look = null;
     data.list = null;
-    data.hashIndex = null;
+    data.hashTable = null;
+    data.keyEncoder = null;
     data.longIndex = null;
+    if (data.join != null) {
+      data.join.close();
+      data.join = null;
+    }
+    data.sharedData = null;
+    if (data.sharedCache != null) {
+      LookupCacheRegistry.getInstance().release(data.sharedCache);
+      data.sharedCache = null;
+    }
 
     super.dispose();
   }
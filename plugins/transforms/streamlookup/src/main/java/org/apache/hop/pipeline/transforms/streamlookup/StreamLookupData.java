@@ -19,9 +19,12 @@ package org.apache.hop.pipeline.transforms.streamlookup;
 
 import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.exception.HopValueException;
-import org.apache.hop.core.hash.ByteArrayHashIndex;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.BinaryKeyHashTable;
 import org.apache.hop.core.hash.LongHashIndex;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.metadata.cache.LookupCacheData;
+import org.apache.hop.metadata.cache.SharedLookupCache;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 import org.apache.hop.pipeline.transform.stream.IStream;
@@ -62,9 +65,23 @@ public class StreamLookupData extends BaseTransformData implements ITransformDat
 
   public Comparator<KeyValue> comparator;
 
-  public ByteArrayHashIndex hashIndex;
+  /** The hashtable with the encoded keys and serialized values when preserving memory */
+  public BinaryKeyHashTable hashTable;
+
+  /** Encodes the keys of the hashtable */
+  public BinaryKeyEncoder keyEncoder;
+
+  /** The partitioned hashtable when the lookup data can be spilled to disk */
+  public HybridHashJoin join;
+
   public LongHashIndex longIndex;
 
+  /** The lookup cache shared with other pipelines, if any */
+  public SharedLookupCache sharedCache;
+
+  /** The data of the shared cache used during this run */
+  public LookupCacheData sharedData;
+
   public IRowMeta lookupMeta;
 
   public IRowMeta infoMeta;
@@ -84,7 +101,7 @@ public class StreamLookupData extends BaseTransformData implements ITransformDat
   public StreamLookupData() {
     super();
     look = new HashMap<>();
-    hashIndex = null;
+    hashTable = null;
     longIndex = new LongHashIndex();
     list = new ArrayList<>();
     metadataVerifiedIntegerPair = false;
@@ -24,6 +24,7 @@ import org.apache.hop.core.row.value.ValueMetaFactory;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransformMeta;
 import org.apache.hop.pipeline.transform.ITransformDialog;
@@ -34,7 +35,9 @@ import org.apache.hop.ui.core.dialog.BaseDialog;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
 import org.apache.hop.ui.core.dialog.MessageBox;
 import org.apache.hop.ui.core.widget.ColumnInfo;
+import org.apache.hop.ui.core.widget.MetaSelectionLine;
 import org.apache.hop.ui.core.widget.TableView;
+import org.apache.hop.ui.core.widget.TextVar;
 import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CCombo;
@@ -72,6 +75,18 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
 
   private Button wIntegerPair;
 
+  private Button wOffHeap;
+
+  private Button wSpillToDisk;
+
+  private MetaSelectionLine<LookupCache> wSharedCache;
+
+  private TextVar wSpillMemory;
+
+  private TextVar wSpillDirectory;
+
+  private Button wbSpillDirectory;
+
   private final StreamLookupMeta input;
 
   private ColumnInfo[] ciKey;
@@ -219,12 +234,133 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     fdKey.bottom = new FormAttachment(wlKey, (int) (props.getZoomFactor() * 120));
     wKey.setLayoutData(fdKey);
 
+    // The lookup cache shared with other pipelines
+    //
+    wSharedCache =
+        new MetaSelectionLine<>(
+            variables,
+            metadataProvider,
+            LookupCache.class,
+            shell,
+            SWT.SINGLE | SWT.LEFT | SWT.BORDER,
+            BaseMessages.getString(PKG, "StreamLookupDialog.SharedCache.Label"),
+            BaseMessages.getString(PKG, "StreamLookupDialog.SharedCache.Tooltip"));
+    PropsUi.setLook(wSharedCache);
+    wSharedCache.addModifyListener(lsMod);
+    FormData fdSharedCache = new FormData();
+    fdSharedCache.left = new FormAttachment(0, 0);
+    fdSharedCache.right = new FormAttachment(100, 0);
+    fdSharedCache.bottom = new FormAttachment(wOk, -2 * margin);
+    wSharedCache.setLayoutData(fdSharedCache);
+
+    // The directory to spill the lookup data to
+    //
+    Label wlSpillDirectory = new Label(shell, SWT.RIGHT);
+    wlSpillDirectory.setText(
+        BaseMessages.getString(PKG, "StreamLookupDialog.SpillDirectory.Label"));
+    PropsUi.setLook(wlSpillDirectory);
+    FormData fdlSpillDirectory = new FormData();
+    fdlSpillDirectory.left = new FormAttachment(0, 0);
+    fdlSpillDirectory.right = new FormAttachment(middle, -margin);
+    fdlSpillDirectory.bottom = new FormAttachment(wSharedCache, -margin);
+    wlSpillDirectory.setLayoutData(fdlSpillDirectory);
+    wbSpillDirectory = new Button(shell, SWT.PUSH | SWT.CENTER);
+    PropsUi.setLook(wbSpillDirectory);
+    wbSpillDirectory.setText(BaseMessages.getString(PKG, "System.Button.Browse"));
+    FormData fdbSpillDirectory = new FormData();
+    fdbSpillDirectory.right = new FormAttachment(100, 0);
+    fdbSpillDirectory.top = new FormAttachment(wlSpillDirectory, 0, SWT.CENTER);
+    wbSpillDirectory.setLayoutData(fdbSpillDirectory);
+    wSpillDirectory = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSpillDirectory);
+    wSpillDirectory.addModifyListener(lsMod);
+    FormData fdSpillDirectory = new FormData();
+    fdSpillDirectory.left = new FormAttachment(middle, 0);
+    fdSpillDirectory.top = new FormAttachment(wlSpillDirectory, 0, SWT.CENTER);
+    fdSpillDirectory.right = new FormAttachment(wbSpillDirectory, -margin);
+    wSpillDirectory.setLayoutData(fdSpillDirectory);
+    wbSpillDirectory.addListener(
+        SWT.Selection, e -> BaseDialog.presentDirectoryDialog(shell, wSpillDirectory, variables));
+
+    // The amount of memory to use before spilling
+    //
+    Label wlSpillMemory = new Label(shell, SWT.RIGHT);
+    wlSpillMemory.setText(BaseMessages.getString(PKG, "StreamLookupDialog.SpillMemory.Label"));
+    PropsUi.setLook(wlSpillMemory);
+    FormData fdlSpillMemory = new FormData();
+    fdlSpillMemory.left = new FormAttachment(0, 0);
+    fdlSpillMemory.right = new FormAttachment(middle, -margin);
+    fdlSpillMemory.bottom = new FormAttachment(wSpillDirectory, -margin);
+    wlSpillMemory.setLayoutData(fdlSpillMemory);
+    wSpillMemory = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSpillMemory);
+    wSpillMemory.addModifyListener(lsMod);
+    FormData fdSpillMemory = new FormData();
+    fdSpillMemory.left = new FormAttachment(middle, 0);
+    fdSpillMemory.top = new FormAttachment(wlSpillMemory, 0, SWT.CENTER);
+    fdSpillMemory.right = new FormAttachment(100, 0);
+    wSpillMemory.setLayoutData(fdSpillMemory);
+
+    Label wlSpillToDisk = new Label(shell, SWT.RIGHT);
+    wlSpillToDisk.setText(BaseMessages.getString(PKG, "StreamLookupDialog.SpillToDisk.Label"));
+    wlSpillToDisk.setToolTipText(
+        BaseMessages.getString(PKG, "StreamLookupDialog.SpillToDisk.Tooltip"));
+    PropsUi.setLook(wlSpillToDisk);
+    FormData fdlSpillToDisk = new FormData();
+    fdlSpillToDisk.left = new FormAttachment(0, 0);
+    fdlSpillToDisk.bottom = new FormAttachment(wSpillMemory, -margin);
+    fdlSpillToDisk.right = new FormAttachment(middle, -margin);
+    wlSpillToDisk.setLayoutData(fdlSpillToDisk);
+    wSpillToDisk = new Button(shell, SWT.CHECK);
+    wSpillToDisk.setToolTipText(
+        BaseMessages.getString(PKG, "StreamLookupDialog.SpillToDisk.Tooltip"));
+    PropsUi.setLook(wSpillToDisk);
+    FormData fdSpillToDisk = new FormData();
+    fdSpillToDisk.left = new FormAttachment(middle, 0);
+    fdSpillToDisk.top = new FormAttachment(wlSpillToDisk, 0, SWT.CENTER);
+    fdSpillToDisk.right = new FormAttachment(100, 0);
+    wSpillToDisk.setLayoutData(fdSpillToDisk);
+    wSpillToDisk.addSelectionListener(
+        new SelectionAdapter() {
+          @Override
+          public void widgetSelected(SelectionEvent e) {
+            input.setChanged();
+            enableSpillFields();
+          }
+        });
+
+    Label wlOffHeap = new Label(shell, SWT.RIGHT);
+    wlOffHeap.setText(BaseMessages.getString(PKG, "StreamLookupDialog.OffHeap.Label"));
+    wlOffHeap.setToolTipText(BaseMessages.getString(PKG, "StreamLookupDialog.OffHeap.Tooltip"));
+    PropsUi.setLook(wlOffHeap);
+    FormData fdlOffHeap = new FormData();
+    fdlOffHeap.left = new FormAttachment(0, 0);
+    fdlOffHeap.bottom = new FormAttachment(wSpillToDisk, -margin);
+    fdlOffHeap.right = new FormAttachment(middle, -margin);
+    wlOffHeap.setLayoutData(fdlOffHeap);
+    wOffHeap = new Button(shell, SWT.CHECK);
+    wOffHeap.setEnabled(false);
+    wOffHeap.setToolTipText(BaseMessages.getString(PKG, "StreamLookupDialog.OffHeap.Tooltip"));
+    PropsUi.setLook(wOffHeap);
+    FormData fdOffHeap = new FormData();
+    fdOffHeap.left = new FormAttachment(middle, 0);
+    fdOffHeap.top = new FormAttachment(wlOffHeap, 0, SWT.CENTER);
+    fdOffHeap.right = new FormAttachment(100, 0);
+    wOffHeap.setLayoutData(fdOffHeap);
+    wOffHeap.addSelectionListener(
+        new SelectionAdapter() {
+          @Override
+          public void widgetSelected(SelectionEvent e) {
+            input.setChanged();
+          }
+        });
+
     Label wlSortedList = new Label(shell, SWT.RIGHT);
     wlSortedList.setText(BaseMessages.getString(PKG, "StreamLookupDialog.SortedList.Label"));
     PropsUi.setLook(wlSortedList);
     FormData fdlSortedList = new FormData();
     fdlSortedList.left = new FormAttachment(0, 0);
-    fdlSortedList.bottom = new FormAttachment(wOk, -2 * margin);
+    fdlSortedList.bottom = new FormAttachment(wlOffHeap, -margin);
     fdlSortedList.right = new FormAttachment(middle, -margin);
     wlSortedList.setLayoutData(fdlSortedList);
     wSortedList = new Button(shell, SWT.RADIO);
@@ -297,6 +433,7 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
           boolean selection = wPreserveMemory.getSelection();
           wSortedList.setEnabled(selection);
           wIntegerPair.setEnabled(selection);
+          wOffHeap.setEnabled(selection || wSpillToDisk.getSelection());
         });
 
     // THE UPDATE/INSERT TABLE
@@ -483,12 +620,24 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     if (isPreserveMemory) {
       wSortedList.setEnabled(true);
       wIntegerPair.setEnabled(true);
+      wOffHeap.setEnabled(true);
     }
     // usually this is sorted list or integer pair
     // for backward compatibility they can be set both
     // but user will be forced to choose only one option later.
     wSortedList.setSelection(input.isUsingSortedList());
     wIntegerPair.setSelection(input.isUsingIntegerPair());
+    wOffHeap.setSelection(input.isOffHeap());
+    wSpillToDisk.setSelection(input.isSpillToDisk());
+    wSpillMemory.setText(Const.NVL(input.getSpillMemory(), ""));
+    wSpillDirectory.setText(Const.NVL(input.getSpillDirectory(), ""));
+    try {
+      wSharedCache.fillItems();
+    } catch (HopException e) {
+      log.logError("Error getting the list of lookup caches", e);
+    }
+    wSharedCache.setText(Const.NVL(input.getSharedCache(), ""));
+    enableSpillFields();
 
     wKey.setRowNums();
     wKey.optWidth(true);
@@ -499,6 +648,14 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     wTransformName.setFocus();
   }
 
+  private void enableSpillFields() {
+    boolean spillToDisk = wSpillToDisk.getSelection();
+    wSpillMemory.setEnabled(spillToDisk);
+    wSpillDirectory.setEnabled(spillToDisk);
+    wbSpillDirectory.setEnabled(spillToDisk);
+    wOffHeap.setEnabled(spillToDisk || wPreserveMemory.getSelection());
+  }
+
   private void cancel() {
     transformName = null;
     input.setChanged(changed);
@@ -516,6 +673,11 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     input.setMemoryPreservationActive(wPreserveMemory.getSelection());
     input.setUsingSortedList(wSortedList.getSelection());
     input.setUsingIntegerPair(wIntegerPair.getSelection());
+    input.setOffHeap(wOffHeap.getSelection());
+    input.setSpillToDisk(wSpillToDisk.getSelection());
+    input.setSpillMemory(wSpillMemory.getText());
+    input.setSpillDirectory(wSpillDirectory.getText());
+    input.setSharedCache(wSharedCache.getText());
 
     if (log.isDebug()) {
       logDebug(BaseMessages.getString(PKG, "StreamLookupDialog.Log.FoundKeys", nrkeys + ""));
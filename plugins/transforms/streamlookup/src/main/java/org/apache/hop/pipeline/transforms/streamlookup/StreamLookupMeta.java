@@ -97,6 +97,26 @@ public class StreamLookupMeta extends BaseTransformMeta<StreamLookup, StreamLook
   @Injection(name = "INTEGER_PAIR")
   private boolean usingIntegerPair;
 
+  /** Store the keys and values of the hashtable outside of the Java heap */
+  @Injection(name = "OFF_HEAP")
+  private boolean offHeap;
+
+  /** Write the lookup data to disk in partitions when it doesn't fit in memory */
+  @Injection(name = "SPILL_TO_DISK")
+  private boolean spillToDisk;
+
+  /** The maximum amount of memory in MB to use for the lookup data before spilling to disk */
+  @Injection(name = "SPILL_MEMORY_MB")
+  private String spillMemory;
+
+  /** The directory to write the spilled partitions in */
+  @Injection(name = "SPILL_DIRECTORY")
+  private String spillDirectory;
+
+  /** The name of the lookup cache shared by the pipelines in this JVM, empty to keep the data here */
+  @Injection(name = "SHARED_CACHE")
+  private String sharedCache;
+
   public StreamLookupMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -164,6 +184,12 @@ public class StreamLookupMeta extends BaseTransformMeta<StreamLookup, StreamLook
           "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "sorted_list")));
       setUsingIntegerPair(
           "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "integer_pair")));
+      setOffHeap("Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "off_heap")));
+      setSpillToDisk(
+          "Y".equalsIgnoreCase(XmlHandler.getTagValue(transformNode, "spill_to_disk")));
+      setSpillMemory(XmlHandler.getTagValue(transformNode, "spill_memory"));
+      setSpillDirectory(XmlHandler.getTagValue(transformNode, "spill_directory"));
+      setSharedCache(XmlHandler.getTagValue(transformNode, "shared_cache"));
 
       Node lookup = XmlHandler.getSubNode(transformNode, "lookup");
       nrkeys = XmlHandler.countNodes(lookup, "key");
@@ -214,6 +240,11 @@ public class StreamLookupMeta extends BaseTransformMeta<StreamLookup, StreamLook
     setMemoryPreservationActive(true);
     setUsingSortedList(false);
     setUsingIntegerPair(false);
+    setOffHeap(false);
+    setSpillToDisk(false);
+    setSpillMemory("256");
+    setSpillDirectory("${java.io.tmpdir}");
+    setSharedCache(null);
 
     allocate(0, 0);
   }
@@ -267,6 +298,11 @@ public class StreamLookupMeta extends BaseTransformMeta<StreamLookup, StreamLook
         .append(XmlHandler.addTagValue("preserve_memory", isMemoryPreservationActive()));
     retval.append("    ").append(XmlHandler.addTagValue("sorted_list", isUsingSortedList()));
     retval.append("    ").append(XmlHandler.addTagValue("integer_pair", isUsingIntegerPair()));
+    retval.append("    ").append(XmlHandler.addTagValue("off_heap", isOffHeap()));
+    retval.append("    ").append(XmlHandler.addTagValue("spill_to_disk", isSpillToDisk()));
+    retval.append("    ").append(XmlHandler.addTagValue("spill_memory", getSpillMemory()));
+    retval.append("    ").append(XmlHandler.addTagValue("spill_directory", getSpillDirectory()));
+    retval.append("    ").append(XmlHandler.addTagValue("shared_cache", getSharedCache()));
 
     retval.append("    <lookup>").append(Const.CR);
     for (int i = 0; i < getKeystream().length; i++) {
@@ -628,6 +664,56 @@ public class StreamLookupMeta extends BaseTransformMeta<StreamLookup, StreamLook
     this.usingIntegerPair = usingIntegerPair;
   }
 
+  /** @return the offHeap */
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /** @param offHeap the offHeap to set */
+  public void setOffHeap(boolean offHeap) {
+    this.offHeap = offHeap;
+  }
+
+  /** @return the spillToDisk */
+  public boolean isSpillToDisk() {
+    return spillToDisk;
+  }
+
+  /** @param spillToDisk the spillToDisk to set */
+  public void setSpillToDisk(boolean spillToDisk) {
+    this.spillToDisk = spillToDisk;
+  }
+
+  /** @return the spillMemory */
+  public String getSpillMemory() {
+    return spillMemory;
+  }
+
+  /** @param spillMemory the spillMemory to set */
+  public void setSpillMemory(String spillMemory) {
+    this.spillMemory = spillMemory;
+  }
+
+  /** @return the spillDirectory */
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /** @param spillDirectory the spillDirectory to set */
+  public void setSpillDirectory(String spillDirectory) {
+    this.spillDirectory = spillDirectory;
+  }
+
+  /** @return the sharedCache */
+  public String getSharedCache() {
+    return sharedCache;
+  }
+
+  /** @param sharedCache the sharedCache to set */
+  public void setSharedCache(String sharedCache) {
+    this.sharedCache = sharedCache;
+  }
+
   /**
    * If we use injection we can have different arrays lengths. We need synchronize them for
    * consistency behavior with UI
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.streamlookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HybridHashJoinTest {
+  private static final int NR_KEYS = 100000;
+
+  private File directory;
+  private IRowMeta keyMeta;
+  private BinaryKeyEncoder encoder;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("hybrid-hash-join").toFile();
+    keyMeta = new RowMeta();
+    keyMeta.addValueMeta(new ValueMetaInteger("id"));
+    encoder = new BinaryKeyEncoder(keyMeta, null);
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  private void put(HybridHashJoin join, long id, long value) throws HopException {
+    encoder.encode(new Object[] {id});
+    byte[] bytes = Long.toString(value).getBytes();
+    join.put(encoder.getKey(), encoder.getLength(), encoder.getHash(), bytes, bytes.length);
+  }
+
+  @Test
+  public void testInMemory() throws Exception {
+    HybridHashJoin join = new HybridHashJoin(Long.MAX_VALUE, false, directory);
+    for (long id = 0; id < 1000; id++) {
+      put(join, id, id);
+    }
+    put(join, 5L, 500L);
+    assertTrue(join.getSpilledPartitions().isEmpty());
+
+    encoder.encode(new Object[] {5L});
+    assertFalse(join.isSpilled(encoder.getHash()));
+    assertArrayEquals(
+        "500".getBytes(), join.get(encoder.getKey(), encoder.getLength(), encoder.getHash()));
+    encoder.encode(new Object[] {5000L});
+    assertNull(join.get(encoder.getKey(), encoder.getLength(), encoder.getHash()));
+    join.close();
+  }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    HybridHashJoin join = new HybridHashJoin(1024L * 1024L, true, directory);
+    for (long id = 0; id < NR_KEYS; id++) {
+      put(join, id, id);
+    }
+    // Replaced values have to survive the spill as well
+    for (long id = 0; id < NR_KEYS; id += 10) {
+      put(join, id, -id);
+    }
+    assertFalse(join.getSpilledPartitions().isEmpty());
+
+    // Look up every key twice, plus some keys that don't exist
+    //
+    List<Object[]> found = new ArrayList<>();
+    for (int pass = 0; pass < 2; pass++) {
+      for (long id = 0; id < NR_KEYS + 100; id++) {
+        lookup(join, new Object[] {id}, found);
+      }
+    }
+    joinSpilledPartitions(join, found);
+    join.close();
+
+    assertEquals(2 * (NR_KEYS + 100), found.size());
+    for (Object[] row : found) {
+      long id = (Long) row[0];
+      if (id >= NR_KEYS) {
+        assertNull(row[1]);
+      } else {
+        assertEquals(id % 10 == 0 ? -id : id, Long.parseLong((String) row[1]));
+      }
+    }
+    String[] files = directory.list();
+    assertEquals(0, files == null ? 0 : files.length);
+  }
+
+  private void lookup(HybridHashJoin join, Object[] row, List<Object[]> found)
+      throws HopException {
+    encoder.encode(row);
+    long hash = encoder.getHash();
+    if (join.isSpilled(hash)) {
+      join.spillRow(hash, keyMeta, row);
+      return;
+    }
+    byte[] value = join.get(encoder.getKey(), encoder.getLength(), hash);
+    found.add(new Object[] {row[0], value == null ? null : new String(value)});
+  }
+
+  private void joinSpilledPartitions(HybridHashJoin join, List<Object[]> found)
+      throws HopException {
+    for (int partition : join.getSpilledPartitions()) {
+      HybridHashJoin partitionJoin = join.loadPartition(partition);
+      try {
+        join.readRows(partition, keyMeta, row -> lookup(partitionJoin, row, found));
+        joinSpilledPartitions(partitionJoin, found);
+      } finally {
+        partitionJoin.close();
+      }
+    }
+  }
+}
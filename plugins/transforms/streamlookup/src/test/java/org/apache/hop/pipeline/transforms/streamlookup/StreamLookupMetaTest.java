@@ -60,6 +60,11 @@ public class StreamLookupMetaTest implements IInitializer<ITransformMeta> {
             "memoryPreservationActive",
             "usingSortedList",
             "usingIntegerPair",
+            "offHeap",
+            "spillToDisk",
+            "spillMemory",
+            "spillDirectory",
+            "sharedCache",
             "keystream",
             "keylookup",
             "value",
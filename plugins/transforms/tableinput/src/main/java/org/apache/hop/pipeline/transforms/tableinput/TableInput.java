@@ -28,6 +28,9 @@ import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -35,14 +38,23 @@ import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
 
 /** Reads information from a database table by using freehand SQL */
 public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
 
   private static final Class<?> PKG = TableInputMeta.class; // For Translator
 
+  /** The formats accepted for a date lower or upper bound of the split column */
+  private static final String[] SPLIT_DATE_FORMATS = {
+    "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd",
+  };
+
   public TableInput(
       TransformMeta transformMeta,
       TableInputMeta meta,
@@ -91,6 +103,10 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
 
   @Override
   public boolean processRow() throws HopException {
+    if (data.reader != null) {
+      return processParallelRow();
+    }
+
     if (first) { // we just got started
 
       Object[] parameters;
@@ -139,6 +155,11 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
         return false; // stop immediately, nothing to do here.
       }
 
+      if (data.parallel) {
+        startParallelQuery(parametersMeta, parameters);
+        return processParallelRow();
+      }
+
       boolean success = doQuery(parametersMeta, parameters);
       if (!success) {
         return false;
@@ -215,6 +236,185 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
     return true;
   }
 
+  /** Pass on the next row of any of the range queries */
+  private boolean processParallelRow() throws HopException {
+    Object[] row;
+    try {
+      row = data.reader.getRow();
+    } catch (HopException e) {
+      if (isStopped()) {
+        // The range queries were cancelled, this is expected
+        logDebug(e.getMessage());
+        return false;
+      }
+      throw e;
+    }
+
+    if (row == null || (data.rowLimit > 0 && getLinesInput() >= data.rowLimit)) {
+      if (row != null) {
+        // The limit was reached, no need to read the rest
+        data.reader.cancel();
+      }
+      setOutputDone();
+      return false;
+    }
+
+    incrementLinesInput();
+    putRow(data.rowMeta, row);
+
+    if (checkFeedback(getLinesInput())) {
+      if (log.isBasic()) {
+        logBasic("linenr " + getLinesInput());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Split the query in ranges of the split column and start reading them in parallel, each range
+   * on its own connection.
+   */
+  private void startParallelQuery(IRowMeta parametersMeta, Object[] parameters)
+      throws HopException {
+    String sql = meta.isVariableReplacementActive() ? resolve(meta.getSql()) : meta.getSql();
+    String column = resolve(meta.getSplitColumn());
+    String quotedColumn = data.databaseMeta.quoteField(column);
+
+    // The range of the split column: given or calculated
+    //
+    IValueMeta splitMeta;
+    Object min;
+    Object max;
+    String lowerBound = resolve(meta.getSplitLowerBound());
+    String upperBound = resolve(meta.getSplitUpperBound());
+    if (!Utils.isEmpty(lowerBound) && !Utils.isEmpty(upperBound)) {
+      splitMeta = getSplitBoundMeta(column, lowerBound, upperBound);
+      min = parseSplitBound(splitMeta, lowerBound);
+      max = parseSplitBound(splitMeta, upperBound);
+    } else {
+      String boundsSql =
+          "SELECT MIN("
+              + quotedColumn
+              + "), MAX("
+              + quotedColumn
+              + ") FROM ( "
+              + TableInputParallelReader.stripSql(sql)
+              + " ) hop_bounds";
+      if (log.isDetailed()) {
+        logDetailed("Split bounds query : " + boundsSql);
+      }
+      RowMetaAndData bounds =
+          parametersMeta.isEmpty()
+              ? data.db.getOneRow(boundsSql)
+              : data.db.getOneRow(boundsSql, parametersMeta, parameters);
+      if (bounds == null) {
+        throw new HopException("Unable to determine the range of split column " + column);
+      }
+      splitMeta = bounds.getRowMeta().getValueMeta(0).clone();
+      splitMeta.setName(column);
+      min = bounds.getData()[0];
+      max = bounds.getData()[1];
+    }
+
+    int splits = Const.toInt(resolve(meta.getNumberOfSplits()), 1);
+    List<Object> splitPoints =
+        TableInputParallelReader.getSplitPoints(splitMeta, min, max, splits);
+    if (log.isBasic()) {
+      logBasic(
+          "Reading with "
+              + (splitPoints.size() + 1)
+              + " range queries on column "
+              + column
+              + " between "
+              + splitMeta.getString(min)
+              + " and "
+              + splitMeta.getString(max));
+    }
+
+    int fetchSize = Const.toInt(resolve(meta.getSplitFetchSize()), 0);
+    data.reader =
+        new TableInputParallelReader(
+            log,
+            () -> {
+              Database db = new Database(this, this, data.databaseMeta);
+              db.setQueryLimit(data.rowLimit);
+              db.setFetchSize(fetchSize);
+              db.connect();
+              if (data.databaseMeta.isRequiringTransactionsOnQueries()) {
+                db.setCommit(100); // needed for PGSQL it seems...
+              }
+              return db;
+            },
+            sql,
+            quotedColumn,
+            parametersMeta,
+            parameters,
+            splitMeta,
+            splitPoints,
+            getTransformName());
+    data.reader.start();
+
+    // Keep the metadata
+    data.rowMeta = data.reader.getRowMeta();
+    for (IValueMeta valueMeta : data.rowMeta.getValueMetaList()) {
+      valueMeta.setOrigin(getTransformName());
+    }
+  }
+
+  /**
+   * The type of the split column given by its bounds: an integer, a number or a date.
+   *
+   * @throws HopException in case the bounds are of neither type
+   */
+  private IValueMeta getSplitBoundMeta(String column, String lowerBound, String upperBound)
+      throws HopException {
+    try {
+      Long.parseLong(lowerBound.trim());
+      Long.parseLong(upperBound.trim());
+      return new ValueMetaInteger(column);
+    } catch (NumberFormatException e) {
+      // Not an integer
+    }
+    try {
+      new BigDecimal(lowerBound.trim());
+      new BigDecimal(upperBound.trim());
+      return new ValueMetaBigNumber(column);
+    } catch (NumberFormatException e) {
+      // Not a number
+    }
+    for (String format : SPLIT_DATE_FORMATS) {
+      try {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(format);
+        dateFormat.setLenient(false);
+        dateFormat.parse(lowerBound.trim());
+        dateFormat.parse(upperBound.trim());
+        ValueMetaDate valueMeta = new ValueMetaDate(column);
+        valueMeta.setConversionMask(format);
+        return valueMeta;
+      } catch (ParseException e) {
+        // Try the next format
+      }
+    }
+    throw new HopException(
+        BaseMessages.getString(
+            PKG, "TableInput.Exception.InvalidSplitBounds", column, lowerBound, upperBound));
+  }
+
+  private Object parseSplitBound(IValueMeta splitMeta, String bound) throws HopException {
+    try {
+      switch (splitMeta.getType()) {
+        case IValueMeta.TYPE_INTEGER:
+          return Long.parseLong(bound.trim());
+        case IValueMeta.TYPE_BIGNUMBER:
+          return new BigDecimal(bound.trim());
+        default:
+          return new SimpleDateFormat(splitMeta.getConversionMask()).parse(bound.trim());
+      }
+    } catch (NumberFormatException | ParseException e) {
+      throw new HopException("Unable to parse split bound " + bound, e);
+    }
+  }
+
   private void closePreviousQuery() throws HopDatabaseException {
     if (data.db != null) {
       data.db.closeQuery(data.rs);
@@ -275,6 +475,10 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
     if (log.isBasic()) {
       logBasic("Finished reading query, closing connection.");
     }
+    if (data.reader != null) {
+      data.reader.close();
+      data.reader = null;
+    }
     try {
       closePreviousQuery();
     } catch (HopException e) {
@@ -300,6 +504,9 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
 
     setStopped(true);
 
+    if (data.reader != null) {
+      data.reader.cancel();
+    }
     if (data.db != null && data.db.getConnection() != null && !data.isCanceled) {
       data.db.cancelQuery();
       data.isCanceled = true;
@@ -333,9 +540,18 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> {
       }
 
       DatabaseMeta databaseMeta = getPipelineMeta().findDatabase(meta.getConnection(), variables);
+      data.databaseMeta = databaseMeta;
+      data.rowLimit = Const.toInt(resolve(meta.getRowLimit()), 0);
+
+      // Read in parallel ranges of the split column, not possible when a query runs per input row
+      //
+      data.parallel =
+          !Utils.isEmpty(resolve(meta.getSplitColumn()))
+              && Const.toInt(resolve(meta.getNumberOfSplits()), 1) > 1
+              && !meta.isExecuteEachInputRow();
 
       data.db = new Database(this, this, databaseMeta);
-      data.db.setQueryLimit(Const.toInt(resolve(meta.getRowLimit()), 0));
+      data.db.setQueryLimit(data.rowLimit);
 
       try {
         data.db.connect();
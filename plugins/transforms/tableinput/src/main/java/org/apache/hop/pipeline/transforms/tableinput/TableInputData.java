@@ -19,6 +19,7 @@ package org.apache.hop.pipeline.transforms.tableinput;
 
 import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.database.Database;
+import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
@@ -37,6 +38,14 @@ public class TableInputData extends BaseTransformData implements ITransformData
   public boolean isCanceled;
   public IStream infoStream;
 
+  public DatabaseMeta databaseMeta;
+  public int rowLimit;
+
+  /** Read ranges of the split column in parallel */
+  public boolean parallel;
+
+  public TableInputParallelReader reader;
+
   public TableInputData() {
     super();
 
@@ -77,6 +77,12 @@ public class TableInputDialog extends BaseTransformDialog implements ITransformD
 
   private TextVar wLimit;
 
+  private TextVar wSplitColumn;
+  private TextVar wNumberOfSplits;
+  private TextVar wSplitLowerBound;
+  private TextVar wSplitUpperBound;
+  private TextVar wSplitFetchSize;
+
   private Label wlEachRow;
   private Button wEachRow;
 
@@ -167,6 +173,98 @@ public class TableInputDialog extends BaseTransformDialog implements ITransformD
     fdLimit.bottom = new FormAttachment(wlLimit, 0, SWT.CENTER);
     wLimit.setLayoutData(fdLimit);
 
+    // Parallel read: the fetch size, bounds, number of splits and split column
+    //
+    Label wlSplitFetchSize = new Label(shell, SWT.RIGHT);
+    wlSplitFetchSize.setText(BaseMessages.getString(PKG, "TableInputDialog.SplitFetchSize"));
+    wlSplitFetchSize.setToolTipText(BaseMessages.getString(PKG, "TableInputDialog.SplitFetchSize.Tooltip"));
+    PropsUi.setLook(wlSplitFetchSize);
+    FormData fdlSplitFetchSize = new FormData();
+    fdlSplitFetchSize.left = new FormAttachment(0, 0);
+    fdlSplitFetchSize.right = new FormAttachment(middle, -margin);
+    fdlSplitFetchSize.bottom = new FormAttachment(wlLimit, -margin);
+    wlSplitFetchSize.setLayoutData(fdlSplitFetchSize);
+    wSplitFetchSize = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSplitFetchSize);
+    wSplitFetchSize.addModifyListener(lsMod);
+    FormData fdSplitFetchSize = new FormData();
+    fdSplitFetchSize.left = new FormAttachment(middle, 0);
+    fdSplitFetchSize.right = new FormAttachment(100, 0);
+    fdSplitFetchSize.bottom = new FormAttachment(wlSplitFetchSize, 0, SWT.CENTER);
+    wSplitFetchSize.setLayoutData(fdSplitFetchSize);
+
+    Label wlSplitUpperBound = new Label(shell, SWT.RIGHT);
+    wlSplitUpperBound.setText(BaseMessages.getString(PKG, "TableInputDialog.SplitUpperBound"));
+    wlSplitUpperBound.setToolTipText(BaseMessages.getString(PKG, "TableInputDialog.SplitUpperBound.Tooltip"));
+    PropsUi.setLook(wlSplitUpperBound);
+    FormData fdlSplitUpperBound = new FormData();
+    fdlSplitUpperBound.left = new FormAttachment(0, 0);
+    fdlSplitUpperBound.right = new FormAttachment(middle, -margin);
+    fdlSplitUpperBound.bottom = new FormAttachment(wlSplitFetchSize, -margin);
+    wlSplitUpperBound.setLayoutData(fdlSplitUpperBound);
+    wSplitUpperBound = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSplitUpperBound);
+    wSplitUpperBound.addModifyListener(lsMod);
+    FormData fdSplitUpperBound = new FormData();
+    fdSplitUpperBound.left = new FormAttachment(middle, 0);
+    fdSplitUpperBound.right = new FormAttachment(100, 0);
+    fdSplitUpperBound.bottom = new FormAttachment(wlSplitUpperBound, 0, SWT.CENTER);
+    wSplitUpperBound.setLayoutData(fdSplitUpperBound);
+
+    Label wlSplitLowerBound = new Label(shell, SWT.RIGHT);
+    wlSplitLowerBound.setText(BaseMessages.getString(PKG, "TableInputDialog.SplitLowerBound"));
+    wlSplitLowerBound.setToolTipText(BaseMessages.getString(PKG, "TableInputDialog.SplitLowerBound.Tooltip"));
+    PropsUi.setLook(wlSplitLowerBound);
+    FormData fdlSplitLowerBound = new FormData();
+    fdlSplitLowerBound.left = new FormAttachment(0, 0);
+    fdlSplitLowerBound.right = new FormAttachment(middle, -margin);
+    fdlSplitLowerBound.bottom = new FormAttachment(wlSplitUpperBound, -margin);
+    wlSplitLowerBound.setLayoutData(fdlSplitLowerBound);
+    wSplitLowerBound = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSplitLowerBound);
+    wSplitLowerBound.addModifyListener(lsMod);
+    FormData fdSplitLowerBound = new FormData();
+    fdSplitLowerBound.left = new FormAttachment(middle, 0);
+    fdSplitLowerBound.right = new FormAttachment(100, 0);
+    fdSplitLowerBound.bottom = new FormAttachment(wlSplitLowerBound, 0, SWT.CENTER);
+    wSplitLowerBound.setLayoutData(fdSplitLowerBound);
+
+    Label wlNumberOfSplits = new Label(shell, SWT.RIGHT);
+    wlNumberOfSplits.setText(BaseMessages.getString(PKG, "TableInputDialog.NumberOfSplits"));
+    wlNumberOfSplits.setToolTipText(BaseMessages.getString(PKG, "TableInputDialog.NumberOfSplits.Tooltip"));
+    PropsUi.setLook(wlNumberOfSplits);
+    FormData fdlNumberOfSplits = new FormData();
+    fdlNumberOfSplits.left = new FormAttachment(0, 0);
+    fdlNumberOfSplits.right = new FormAttachment(middle, -margin);
+    fdlNumberOfSplits.bottom = new FormAttachment(wlSplitLowerBound, -margin);
+    wlNumberOfSplits.setLayoutData(fdlNumberOfSplits);
+    wNumberOfSplits = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wNumberOfSplits);
+    wNumberOfSplits.addModifyListener(lsMod);
+    FormData fdNumberOfSplits = new FormData();
+    fdNumberOfSplits.left = new FormAttachment(middle, 0);
+    fdNumberOfSplits.right = new FormAttachment(100, 0);
+    fdNumberOfSplits.bottom = new FormAttachment(wlNumberOfSplits, 0, SWT.CENTER);
+    wNumberOfSplits.setLayoutData(fdNumberOfSplits);
+
+    Label wlSplitColumn = new Label(shell, SWT.RIGHT);
+    wlSplitColumn.setText(BaseMessages.getString(PKG, "TableInputDialog.SplitColumn"));
+    wlSplitColumn.setToolTipText(BaseMessages.getString(PKG, "TableInputDialog.SplitColumn.Tooltip"));
+    PropsUi.setLook(wlSplitColumn);
+    FormData fdlSplitColumn = new FormData();
+    fdlSplitColumn.left = new FormAttachment(0, 0);
+    fdlSplitColumn.right = new FormAttachment(middle, -margin);
+    fdlSplitColumn.bottom = new FormAttachment(wlNumberOfSplits, -margin);
+    wlSplitColumn.setLayoutData(fdlSplitColumn);
+    wSplitColumn = new TextVar(variables, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wSplitColumn);
+    wSplitColumn.addModifyListener(lsMod);
+    FormData fdSplitColumn = new FormData();
+    fdSplitColumn.left = new FormAttachment(middle, 0);
+    fdSplitColumn.right = new FormAttachment(100, 0);
+    fdSplitColumn.bottom = new FormAttachment(wlSplitColumn, 0, SWT.CENTER);
+    wSplitColumn.setLayoutData(fdSplitColumn);
+
     // Execute for each row?
     wlEachRow = new Label(shell, SWT.RIGHT);
     wlEachRow.setText(BaseMessages.getString(PKG, "TableInputDialog.ExecuteForEachRow"));
@@ -174,7 +272,7 @@ public class TableInputDialog extends BaseTransformDialog implements ITransformD
     FormData fdlEachRow = new FormData();
     fdlEachRow.left = new FormAttachment(0, 0);
     fdlEachRow.right = new FormAttachment(middle, -margin);
-    fdlEachRow.bottom = new FormAttachment(wlLimit, -margin);
+    fdlEachRow.bottom = new FormAttachment(wlSplitColumn, -margin);
     wlEachRow.setLayoutData(fdlEachRow);
     wEachRow = new Button(shell, SWT.CHECK);
     PropsUi.setLook(wEachRow);
@@ -368,6 +466,11 @@ public class TableInputDialog extends BaseTransformDialog implements ITransformD
     }
 
     wLimit.setText(Const.NVL(input.getRowLimit(), ""));
+    wSplitColumn.setText(Const.NVL(input.getSplitColumn(), ""));
+    wNumberOfSplits.setText(Const.NVL(input.getNumberOfSplits(), ""));
+    wSplitLowerBound.setText(Const.NVL(input.getSplitLowerBound(), ""));
+    wSplitUpperBound.setText(Const.NVL(input.getSplitUpperBound(), ""));
+    wSplitFetchSize.setText(Const.NVL(input.getSplitFetchSize(), ""));
     wDataFrom.setText(Const.NVL(input.getLookup(), ""));
     wEachRow.setSelection(input.isExecuteEachInputRow());
     wVariables.setSelection(input.isVariableReplacementActive());
@@ -395,6 +498,11 @@ public class TableInputDialog extends BaseTransformDialog implements ITransformD
             : wSql.getText());
 
     meta.setRowLimit(wLimit.getText());  
+    meta.setSplitColumn(wSplitColumn.getText());
+    meta.setNumberOfSplits(wNumberOfSplits.getText());
+    meta.setSplitLowerBound(wSplitLowerBound.getText());
+    meta.setSplitUpperBound(wSplitUpperBound.getText());
+    meta.setSplitFetchSize(wSplitFetchSize.getText());
     meta.setExecuteEachInputRow(wEachRow.getSelection());
     meta.setVariableReplacementActive(wVariables.getSelection());
     meta.setLookup(wDataFrom.getText());
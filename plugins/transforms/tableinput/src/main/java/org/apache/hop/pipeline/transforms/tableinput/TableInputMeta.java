@@ -81,6 +81,26 @@ public class TableInputMeta extends BaseTransformMeta<TableInput, TableInputData
 
   @HopMetadataProperty private String lookup;
 
+  /** The numeric or date column to split the query on, empty to read with a single query */
+  @HopMetadataProperty(key = "split_column", injectionKey = "SPLIT_COLUMN")
+  private String splitColumn;
+
+  /** The number of range queries to run in parallel */
+  @HopMetadataProperty(key = "split_count", injectionKey = "SPLIT_COUNT")
+  private String numberOfSplits;
+
+  /** The lowest value of the split column, calculated with a MIN/MAX query when empty */
+  @HopMetadataProperty(key = "split_lower_bound", injectionKey = "SPLIT_LOWER_BOUND")
+  private String splitLowerBound;
+
+  /** The highest value of the split column, calculated with a MIN/MAX query when empty */
+  @HopMetadataProperty(key = "split_upper_bound", injectionKey = "SPLIT_UPPER_BOUND")
+  private String splitUpperBound;
+
+  /** The JDBC fetch size of each range query, the default fetch size when empty */
+  @HopMetadataProperty(key = "split_fetch_size", injectionKey = "SPLIT_FETCH_SIZE")
+  private String splitFetchSize;
+
   public TableInputMeta() {
     super();
   }
@@ -131,6 +151,56 @@ public class TableInputMeta extends BaseTransformMeta<TableInput, TableInputData
     this.lookup = lookup;
   }
 
+  /** @return the column to split the query on */
+  public String getSplitColumn() {
+    return splitColumn;
+  }
+
+  /** @param splitColumn the column to split the query on */
+  public void setSplitColumn(String splitColumn) {
+    this.splitColumn = splitColumn;
+  }
+
+  /** @return the number of range queries to run in parallel */
+  public String getNumberOfSplits() {
+    return numberOfSplits;
+  }
+
+  /** @param numberOfSplits the number of range queries to run in parallel */
+  public void setNumberOfSplits(String numberOfSplits) {
+    this.numberOfSplits = numberOfSplits;
+  }
+
+  /** @return the lowest value of the split column */
+  public String getSplitLowerBound() {
+    return splitLowerBound;
+  }
+
+  /** @param splitLowerBound the lowest value of the split column */
+  public void setSplitLowerBound(String splitLowerBound) {
+    this.splitLowerBound = splitLowerBound;
+  }
+
+  /** @return the highest value of the split column */
+  public String getSplitUpperBound() {
+    return splitUpperBound;
+  }
+
+  /** @param splitUpperBound the highest value of the split column */
+  public void setSplitUpperBound(String splitUpperBound) {
+    this.splitUpperBound = splitUpperBound;
+  }
+
+  /** @return the JDBC fetch size of each range query */
+  public String getSplitFetchSize() {
+    return splitFetchSize;
+  }
+
+  /** @param splitFetchSize the JDBC fetch size of each range query */
+  public void setSplitFetchSize(String splitFetchSize) {
+    this.splitFetchSize = splitFetchSize;
+  }
+
   @Override
   public Object clone() {
     TableInputMeta retval = (TableInputMeta) super.clone();
@@ -141,6 +211,7 @@ public class TableInputMeta extends BaseTransformMeta<TableInput, TableInputData
   public void setDefault() {
     sql = "SELECT <values> FROM <table name> WHERE <conditions>";
     rowLimit = "0";
+    numberOfSplits = "4";
   }
 
   @Override
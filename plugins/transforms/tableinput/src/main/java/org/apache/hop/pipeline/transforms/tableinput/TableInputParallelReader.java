@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableinput;
+
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowDataUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the result of a query with a number of range queries on a split column, each on its own
+ * connection and thread. The rows of all the ranges are merged in no particular order.
+ *
+ * <p>The first range has no lower bound and includes the null values, the last range has no upper
+ * bound: every row of the query is read exactly once, even when the split points are off.
+ */
+public class TableInputParallelReader {
+
+  /** Creates and connects the database of a reader. */
+  public interface IDatabaseFactory {
+    Database createDatabase() throws HopException;
+  }
+
+  /** The rows are handed over in chunks to keep the contention on the queue low */
+  private static final int CHUNK_SIZE = 500;
+
+  /** The number of chunks which can wait per reader */
+  private static final int CHUNKS_PER_READER = 4;
+
+  /** Marks the end of the rows of a reader */
+  private static final List<Object[]> END = Collections.emptyList();
+
+  private final ILogChannel log;
+  private final IDatabaseFactory factory;
+  private final List<String> sqls;
+  private final List<IRowMeta> parametersMetas;
+  private final List<Object[]> parametersData;
+
+  private final ExecutorService executor;
+  private final BlockingQueue<List<Object[]>> queue;
+  private final CompletableFuture<IRowMeta> rowMeta = new CompletableFuture<>();
+  private final List<Database> databases = Collections.synchronizedList(new ArrayList<>());
+
+  private volatile Exception error;
+  private int running;
+  private Iterator<Object[]> chunk = Collections.emptyIterator();
+
+  /**
+   * @param log the log channel of the transform
+   * @param factory creates a connected database for every range
+   * @param sql the query to read
+   * @param quotedColumn the quoted name of the split column in the result of the query
+   * @param parametersMeta the metadata of the parameters of the query
+   * @param parameters the parameters of the query
+   * @param splitMeta the metadata of the split points
+   * @param splitPoints the split points in ascending order
+   * @param threadName the name of the reader threads
+   */
+  public TableInputParallelReader(
+      ILogChannel log,
+      IDatabaseFactory factory,
+      String sql,
+      String quotedColumn,
+      IRowMeta parametersMeta,
+      Object[] parameters,
+      IValueMeta splitMeta,
+      List<Object> splitPoints,
+      String threadName) {
+    this.log = log;
+    this.factory = factory;
+    this.sqls = new ArrayList<>();
+    this.parametersMetas = new ArrayList<>();
+    this.parametersData = new ArrayList<>();
+
+    String query = stripSql(sql);
+    for (int i = 0; i <= splitPoints.size(); i++) {
+      IRowMeta rangeMeta = parametersMeta.clone();
+      Object[] rangeData = RowDataUtil.allocateRowData(parametersMeta.size() + 2);
+      System.arraycopy(parameters, 0, rangeData, 0, parametersMeta.size());
+
+      StringBuilder range = new StringBuilder("SELECT * FROM ( ");
+      range.append(query).append(" ) hop_split");
+      if (!splitPoints.isEmpty()) {
+        range.append(" WHERE ");
+      }
+      if (i > 0) {
+        range.append(quotedColumn).append(" >= ?");
+        rangeData[rangeMeta.size()] = splitPoints.get(i - 1);
+        rangeMeta.addValueMeta(splitMeta.clone());
+      }
+      if (i < splitPoints.size()) {
+        if (i > 0) {
+          range.append(" AND ");
+        }
+        range.append(quotedColumn).append(" < ?");
+        rangeData[rangeMeta.size()] = splitPoints.get(i);
+        rangeMeta.addValueMeta(splitMeta.clone());
+      }
+      if (i == 0 && !splitPoints.isEmpty()) {
+        range.append(" OR ").append(quotedColumn).append(" IS NULL");
+      }
+
+      sqls.add(range.toString());
+      parametersMetas.add(rangeMeta);
+      parametersData.add(rangeData);
+    }
+
+    this.queue = new ArrayBlockingQueue<>(sqls.size() * CHUNKS_PER_READER);
+    AtomicInteger threadNr = new AtomicInteger();
+    this.executor =
+        Executors.newFixedThreadPool(
+            sqls.size(),
+            r -> {
+              Thread thread = new Thread(r, threadName + " - " + threadNr.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * @return the range queries, one per reader
+   */
+  public List<String> getSqls() {
+    return sqls;
+  }
+
+  /** Start reading the ranges. */
+  public void start() {
+    running = sqls.size();
+    for (int i = 0; i < sqls.size(); i++) {
+      int range = i;
+      executor.submit(() -> read(range));
+    }
+  }
+
+  /**
+   * @return the metadata of the rows, available once the first range query is opened
+   * @throws HopException in case the queries couldn't be opened
+   */
+  public IRowMeta getRowMeta() throws HopException {
+    try {
+      return rowMeta.get();
+    } catch (ExecutionException e) {
+      throw new HopException("Unable to open the range queries", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while opening the range queries", e);
+    }
+  }
+
+  /**
+   * @return the next row of any of the ranges or null if all ranges are read
+   * @throws HopException in case one of the readers failed
+   */
+  public Object[] getRow() throws HopException {
+    while (!chunk.hasNext()) {
+      if (running == 0) {
+        return null;
+      }
+      List<Object[]> rows;
+      try {
+        rows = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new HopException("Interrupted while waiting for rows", e);
+      }
+      if (rows == END) {
+        running--;
+        if (error != null) {
+          throw new HopException("Error reading a range of the query", error);
+        }
+      } else {
+        chunk = rows.iterator();
+      }
+    }
+    return chunk.next();
+  }
+
+  /** Cancel the running queries. */
+  public void cancel() {
+    synchronized (databases) {
+      for (Database db : databases) {
+        try {
+          db.cancelQuery();
+        } catch (HopDatabaseException e) {
+          log.logDebug("Unable to cancel a range query: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Stop the readers and disconnect them. */
+  public void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void read(int range) {
+    Database db = null;
+    ResultSet rs = null;
+    try {
+      db = factory.createDatabase();
+      databases.add(db);
+
+      if (log.isDetailed()) {
+        log.logDetailed("Range query " + (range + 1) + " : " + sqls.get(range));
+      }
+      rs =
+          db.openQuery(
+              sqls.get(range),
+              parametersMetas.get(range),
+              parametersData.get(range),
+              ResultSet.FETCH_FORWARD,
+              false);
+      rowMeta.complete(db.getReturnRowMeta());
+
+      List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+      Object[] row = db.getRow(rs);
+      while (row != null) {
+        rows.add(row);
+        if (rows.size() == CHUNK_SIZE) {
+          queue.put(rows);
+          rows = new ArrayList<>(CHUNK_SIZE);
+        }
+        row = db.getRow(rs);
+      }
+      if (!rows.isEmpty()) {
+        queue.put(rows);
+      }
+    } catch (InterruptedException e) {
+      // Stopped
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      error = e;
+      rowMeta.completeExceptionally(e);
+    } finally {
+      if (db != null) {
+        try {
+          db.closeQuery(rs);
+        } catch (Exception e) {
+          log.logDebug("Error closing a range query: " + e.getMessage());
+        }
+        db.disconnect();
+      }
+      if (!Thread.currentThread().isInterrupted()) {
+        try {
+          queue.put(END);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /** Remove the trailing semicolon which would break the sub-query */
+  static String stripSql(String sql) {
+    String query = sql.trim();
+    while (query.endsWith(";")) {
+      query = query.substring(0, query.length() - 1).trim();
+    }
+    return query;
+  }
+
+  /**
+   * Calculate the split points between a minimum and a maximum value.
+   *
+   * @param valueMeta the type of the values
+   * @param min the minimum value
+   * @param max the maximum value
+   * @param splits the number of ranges
+   * @return the distinct split points in ascending order, at most splits-1
+   * @throws HopException in case the type can't be split
+   */
+  public static List<Object> getSplitPoints(
+      IValueMeta valueMeta, Object min, Object max, int splits) throws HopException {
+    List<Object> points = new ArrayList<>();
+    if (min == null || max == null || splits < 2) {
+      return points;
+    }
+    switch (valueMeta.getType()) {
+      case IValueMeta.TYPE_INTEGER:
+        {
+          BigInteger low = BigInteger.valueOf(valueMeta.getInteger(min));
+          BigInteger width = BigInteger.valueOf(valueMeta.getInteger(max)).subtract(low);
+          long previous = low.longValue();
+          for (int i = 1; i < splits; i++) {
+            long point =
+                low.add(width.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(splits)))
+                    .longValue();
+            if (point > previous) {
+              points.add(point);
+              previous = point;
+            }
+          }
+          break;
+        }
+      case IValueMeta.TYPE_NUMBER:
+        {
+          double low = valueMeta.getNumber(min);
+          double width = valueMeta.getNumber(max) - low;
+          for (int i = 1; i < splits && width > 0; i++) {
+            points.add(low + width * i / splits);
+          }
+          break;
+        }
+      case IValueMeta.TYPE_BIGNUMBER:
+        {
+          BigDecimal low = valueMeta.getBigNumber(min);
+          BigDecimal width = valueMeta.getBigNumber(max).subtract(low);
+          for (int i = 1; i < splits && width.signum() > 0; i++) {
+            points.add(
+                low.add(
+                    width
+                        .multiply(BigDecimal.valueOf(i))
+                        .divide(BigDecimal.valueOf(splits), MathContext.DECIMAL64)));
+          }
+          break;
+        }
+      case IValueMeta.TYPE_DATE:
+      case IValueMeta.TYPE_TIMESTAMP:
+        {
+          long low = valueMeta.getDate(min).getTime();
+          long width = valueMeta.getDate(max).getTime() - low;
+          long previous = low;
+          for (int i = 1; i < splits; i++) {
+            long point =
+                low
+                    + BigInteger.valueOf(width)
+                        .multiply(BigInteger.valueOf(i))
+                        .divide(BigInteger.valueOf(splits))
+                        .longValue();
+            if (point > previous) {
+              // The split points are bound as parameters with the metadata of the column
+              //
+              points.add(
+                  valueMeta.getType() == IValueMeta.TYPE_TIMESTAMP
+                      ? new Timestamp(point)
+                      : new Date(point));
+              previous = point;
+            }
+          }
+          break;
+        }
+      default:
+        throw new HopException(
+            "The split column "
+                + valueMeta.getName()
+                + " needs to be numeric or a date, not "
+                + valueMeta.getTypeDesc());
+    }
+    return points;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableinput;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TableInputParallelReaderTest {
+
+  private static List<Object> split(IValueMeta valueMeta, Object min, Object max, int splits)
+      throws HopException {
+    return TableInputParallelReader.getSplitPoints(valueMeta, min, max, splits);
+  }
+
+  @Test
+  public void testIntegerSplitPoints() throws Exception {
+    IValueMeta valueMeta = new ValueMetaInteger("id");
+    assertEquals(Arrays.asList(25L, 50L, 75L), split(valueMeta, 0L, 100L, 4));
+    assertEquals(Arrays.asList(33L, 66L), split(valueMeta, 0L, 100L, 3));
+
+    // The full range of longs doesn't overflow
+    //
+    assertEquals(
+        Collections.singletonList(-1L), split(valueMeta, Long.MIN_VALUE, Long.MAX_VALUE, 2));
+  }
+
+  @Test
+  public void testNegativeRanges() throws Exception {
+    IValueMeta integerMeta = new ValueMetaInteger("id");
+    assertEquals(Arrays.asList(-80L, -60L, -40L), split(integerMeta, -100L, -20L, 4));
+    assertEquals(Arrays.asList(-5L, 0L, 5L), split(integerMeta, -10L, 10L, 4));
+
+    IValueMeta numberMeta = new ValueMetaNumber("amount");
+    assertEquals(Arrays.asList(-0.5, 0.0, 0.5), split(numberMeta, -1.0, 1.0, 4));
+
+    IValueMeta dateMeta = new ValueMetaDate("date");
+    assertEquals(
+        Collections.singletonList(new Date(-1000L)),
+        split(dateMeta, new Date(-2000L), new Date(0L), 2));
+  }
+
+  @Test
+  public void testNumberSplitPoints() throws Exception {
+    IValueMeta valueMeta = new ValueMetaNumber("amount");
+    assertEquals(Arrays.asList(0.25, 0.5, 0.75), split(valueMeta, 0.0, 1.0, 4));
+
+    IValueMeta bigNumberMeta = new ValueMetaBigNumber("amount");
+    List<Object> points = split(bigNumberMeta, BigDecimal.ZERO, BigDecimal.ONE, 4);
+    assertEquals(3, points.size());
+    assertEquals(0, new BigDecimal("0.25").compareTo((BigDecimal) points.get(0)));
+    assertEquals(0, new BigDecimal("0.75").compareTo((BigDecimal) points.get(2)));
+  }
+
+  @Test
+  public void testDateSplitPoints() throws Exception {
+    IValueMeta valueMeta = new ValueMetaDate("date");
+    List<Object> points = split(valueMeta, new Date(0L), new Date(4000L), 4);
+    assertEquals(Arrays.asList(new Date(1000L), new Date(2000L), new Date(3000L)), points);
+    for (Object point : points) {
+      assertEquals(Date.class, point.getClass());
+    }
+  }
+
+  @Test
+  public void testTimestampSplitPoints() throws Exception {
+    IValueMeta valueMeta = new ValueMetaTimestamp("timestamp");
+    List<Object> points = split(valueMeta, new Timestamp(0L), new Timestamp(4000L), 4);
+    assertEquals(3, points.size());
+    for (int i = 0; i < points.size(); i++) {
+      assertTrue(points.get(i) instanceof Timestamp);
+      assertEquals(1000L * (i + 1), ((Timestamp) points.get(i)).getTime());
+    }
+  }
+
+  @Test
+  public void testMinEqualsMax() throws Exception {
+    assertTrue(split(new ValueMetaInteger("id"), 5L, 5L, 4).isEmpty());
+    assertTrue(split(new ValueMetaNumber("amount"), 1.5, 1.5, 4).isEmpty());
+    assertTrue(
+        split(new ValueMetaBigNumber("amount"), BigDecimal.TEN, BigDecimal.TEN, 4).isEmpty());
+    assertTrue(split(new ValueMetaDate("date"), new Date(10L), new Date(10L), 4).isEmpty());
+  }
+
+  @Test
+  public void testMinAboveMax() throws Exception {
+    assertTrue(split(new ValueMetaInteger("id"), 10L, 0L, 4).isEmpty());
+    assertTrue(split(new ValueMetaNumber("amount"), 1.0, -1.0, 4).isEmpty());
+    assertTrue(split(new ValueMetaDate("date"), new Date(10L), new Date(0L), 4).isEmpty());
+  }
+
+  @Test
+  public void testRangeSmallerThanSplits() throws Exception {
+    // Split points are distinct, so there are fewer ranges than requested
+    //
+    IValueMeta integerMeta = new ValueMetaInteger("id");
+    assertEquals(Collections.singletonList(1L), split(integerMeta, 0L, 2L, 4));
+    assertEquals(Arrays.asList(1L, 2L, 3L), split(integerMeta, 0L, 4L, 10));
+
+    IValueMeta dateMeta = new ValueMetaDate("date");
+    assertEquals(
+        Arrays.asList(new Date(1L), new Date(2L)), split(dateMeta, new Date(0L), new Date(3L), 8));
+  }
+
+  @Test
+  public void testNothingToSplit() throws Exception {
+    IValueMeta valueMeta = new ValueMetaInteger("id");
+    assertTrue(split(valueMeta, null, 100L, 4).isEmpty());
+    assertTrue(split(valueMeta, 0L, null, 4).isEmpty());
+    assertTrue(split(valueMeta, 0L, 100L, 1).isEmpty());
+  }
+
+  @Test(expected = HopException.class)
+  public void testStringsCantBeSplit() throws Exception {
+    split(new ValueMetaString("name"), "a", "z", 4);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableoutput;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides the number of rows in the next batch from the time it took to write the previous
+ * batches. After a few batches at the same size the throughput in rows per second is compared
+ * with the throughput at the previous size. The size keeps moving in the same direction as long as
+ * the throughput doesn't get worse, otherwise it turns around. A batch which takes longer than the
+ * target latency shrinks the size right away: large batches hold back the rows and make a rollback
+ * expensive.
+ *
+ * <p>With the same minimum and maximum size the batch size is fixed. This class is thread-safe.
+ */
+public class AdaptiveBatchSize {
+
+  /** The default maximum time to write a single batch */
+  public static final long DEFAULT_TARGET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  public static final int DEFAULT_MIN_SIZE = 100;
+  public static final int DEFAULT_MAX_SIZE = 100000;
+
+  private static final double STEP = 1.5;
+  private static final int SAMPLES_PER_STEP = 3;
+
+  /** Differences in throughput below this fraction are considered noise */
+  private static final double TOLERANCE = 0.05;
+
+  private final int minSize;
+  private final int maxSize;
+  private final long targetNanos;
+
+  private int size;
+  private boolean growing;
+  private double previousThroughput;
+  private double sampleThroughput;
+  private int samples;
+
+  /**
+   * @param initialSize the size of the first batches
+   * @param minSize the minimum batch size
+   * @param maxSize the maximum batch size
+   * @param targetNanos the maximum time to write a batch in nanoseconds
+   */
+  public AdaptiveBatchSize(int initialSize, int minSize, int maxSize, long targetNanos) {
+    this.minSize = Math.max(1, minSize);
+    this.maxSize = Math.max(this.minSize, maxSize);
+    this.targetNanos = targetNanos;
+    this.size = clamp(initialSize);
+    this.growing = true;
+  }
+
+  /**
+   * A batch size which never changes
+   *
+   * @param size the batch size
+   */
+  public AdaptiveBatchSize(int size) {
+    this(size, size, size, DEFAULT_TARGET_NANOS);
+  }
+
+  /**
+   * @return the number of rows to put in the next batch
+   */
+  public synchronized int getBatchSize() {
+    return size;
+  }
+
+  /**
+   * Record the time it took to write a batch.
+   *
+   * @param rows the number of rows in the batch
+   * @param nanos the time it took to write and commit the batch in nanoseconds
+   */
+  public synchronized void report(int rows, long nanos) {
+    if (rows <= 0 || minSize == maxSize) {
+      return;
+    }
+    nanos = Math.max(1L, nanos);
+
+    if (nanos > targetNanos && size > minSize) {
+      // Too slow: back off right away and measure again
+      //
+      resize((int) (size / STEP));
+      growing = false;
+      previousThroughput = 0.0;
+      return;
+    }
+
+    sampleThroughput += rows * 1e9 / nanos;
+    samples++;
+    if (samples < SAMPLES_PER_STEP) {
+      return;
+    }
+
+    double throughput = sampleThroughput / samples;
+    if (throughput < previousThroughput * (1.0 - TOLERANCE)) {
+      // The last step made it worse, go the other way
+      //
+      growing = !growing;
+    }
+    previousThroughput = throughput;
+    resize(growing ? (int) Math.ceil(size * STEP) : (int) (size / STEP));
+  }
+
+  private void resize(int newSize) {
+    size = clamp(newSize);
+    sampleThroughput = 0.0;
+    samples = 0;
+  }
+
+  private int clamp(int value) {
+    return Math.min(maxSize, Math.max(minSize, value));
+  }
+}
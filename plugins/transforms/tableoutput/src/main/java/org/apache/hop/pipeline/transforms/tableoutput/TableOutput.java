@@ -47,6 +47,9 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
 
   private static final Class<?> PKG = TableOutputMeta.class; // For Translator
 
+  /** The first batch size of the writers in case of an unlimited commit size */
+  private static final int DEFAULT_WRITER_BATCH_SIZE = 1000;
+
   public TableOutput(
       TransformMeta transformMeta,
       TableOutputMeta meta,
@@ -65,6 +68,15 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       if (first && meta.isTruncateTable() && !meta.isOnlyWhenHaveRows()) {
         truncateTable();
       }
+      if (data.writerPool != null) {
+        try {
+          data.writerPool.finish();
+        } catch (HopException e) {
+          logError("Because of an error, this transform can't continue: ", e);
+          setErrors(1);
+          stopAll();
+        }
+      }
       return false;
     }
 
@@ -229,6 +241,26 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       throw new HopTransformException("The tablename is not defined (empty)");
     }
 
+    if (data.parallelWriters) {
+      // Hand the row to the writers, the written rows come back through the result handler
+      //
+      String sql = data.insertSqls.get(tableName);
+      if (sql == null) {
+        sql =
+            data.db.getInsertStatement(
+                resolve(meta.getSchemaName()), tableName, data.insertRowMeta);
+        if (log.isDetailed()) {
+          logDetailed("Insert statement for the writers : " + sql);
+        }
+        data.insertSqls.put(tableName, sql);
+      }
+      if (data.writerPool == null) {
+        data.writerPool = createWriterPool();
+      }
+      data.writerPool.addRow(sql, insertRowData, outputRowData);
+      return null;
+    }
+
     insertStatement = data.preparedStatements.get(tableName);
     if (insertStatement == null) {
       String sql =
@@ -427,6 +459,81 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
     return outputRowData;
   }
 
+  private TableOutputWriterPool createWriterPool() throws HopException {
+    // Unlimited commit sizes make no sense for batches: start at a reasonable size
+    //
+    int initialSize =
+        data.commitSize > 0 && data.commitSize < Integer.MAX_VALUE
+            ? data.commitSize
+            : DEFAULT_WRITER_BATCH_SIZE;
+    AdaptiveBatchSize batchSize;
+    if (meta.isAdaptiveBatchSize()) {
+      batchSize =
+          new AdaptiveBatchSize(
+              initialSize,
+              AdaptiveBatchSize.DEFAULT_MIN_SIZE,
+              AdaptiveBatchSize.DEFAULT_MAX_SIZE,
+              AdaptiveBatchSize.DEFAULT_TARGET_NANOS);
+    } else {
+      batchSize = new AdaptiveBatchSize(initialSize);
+    }
+
+    if (log.isBasic()) {
+      logBasic(
+          BaseMessages.getString(
+              PKG,
+              "TableOutput.Log.StartingWriters",
+              Integer.toString(data.numberOfWriters),
+              Integer.toString(initialSize)));
+    }
+
+    return new TableOutputWriterPool(
+        log,
+        () -> {
+          Database db = new Database(this, this, data.databaseMeta);
+          db.connect();
+          return db;
+        },
+        data.numberOfWriters,
+        data.insertRowMeta,
+        meta.isUseBatchUpdate(),
+        batchSize,
+        meta.isKeepingRowOrder(),
+        getTransformMeta().isDoingErrorHandling() || meta.isIgnoreErrors(),
+        new TableOutputWriterPool.IResultHandler() {
+          @Override
+          public void rowWritten(Object[] outputRow) throws HopException {
+            putRow(data.outputRowMeta, outputRow);
+            incrementLinesOutput();
+          }
+
+          @Override
+          public void rowFailed(Object[] outputRow, String message) throws HopException {
+            if (getTransformMeta().isDoingErrorHandling()) {
+              putError(data.outputRowMeta, outputRow, 1L, message, null, "TOP001");
+            } else {
+              if (data.warnings < 20) {
+                if (log.isBasic()) {
+                  logBasic(
+                      "WARNING: Couldn't insert row into table: "
+                          + data.outputRowMeta.getString(outputRow)
+                          + Const.CR
+                          + message);
+                }
+              } else if (data.warnings == 20 && log.isBasic()) {
+                logBasic(
+                    "FINAL WARNING (no more then 20 displayed): Couldn't insert row into table: "
+                        + data.outputRowMeta.getString(outputRow)
+                        + Const.CR
+                        + message);
+              }
+              data.warnings++;
+            }
+          }
+        },
+        getTransformName() + " writer");
+  }
+
   @Override
   public boolean isRowLevel() {
     return log.isRowLevel();
@@ -541,6 +648,20 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
         }
         data.db.setCommit(data.commitSize);
 
+        // Write with a pool of connections?
+        // Generated keys are read back row by row on the connection of this transform.
+        //
+        data.numberOfWriters = Math.max(1, Const.toInt(resolve(meta.getNumberOfWriters()), 1));
+        data.parallelWriters =
+            (data.numberOfWriters > 1 || meta.isAdaptiveBatchSize())
+                && !meta.isReturningGeneratedKeys();
+        if (data.parallelWriters && !Utils.isEmpty(data.db.getConnectionGroup())) {
+          // A single transaction for the whole pipeline: all writers would share one connection
+          //
+          logBasic(BaseMessages.getString(PKG, "TableOutput.Log.WritersDisabledUniqueConnections"));
+          data.parallelWriters = false;
+        }
+
         if (!meta.isPartitioningEnabled() && !meta.isTableNameInField()) {
           data.tableName = resolve(meta.getTableName());
         }
@@ -561,6 +682,11 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       //
       if (meta.isTruncateTable() && ((getCopy() == 0) || !Utils.isEmpty(getPartitionId()))) {
         data.db.truncateTable(resolve(meta.getSchemaName()), resolve(meta.getTableName()));
+        if (data.parallelWriters) {
+          // The writers use their own connections: don't keep the table locked
+          //
+          data.db.commit(true);
+        }
       }
     }
   }
@@ -568,6 +694,11 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
   @Override
   public void dispose() {
 
+    if (data.writerPool != null) {
+      data.writerPool.close(getErrors() > 0);
+      data.writerPool = null;
+    }
+
     if (data.db != null) {
       try {
         emptyAndCommitBatchBuffers(true);
@@ -590,6 +721,9 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
   //
   @Override
   public void batchComplete() throws HopException {
+    if (data.writerPool != null) {
+      data.writerPool.finish();
+    }
     emptyAndCommitBatchBuffers(false);
   }
 
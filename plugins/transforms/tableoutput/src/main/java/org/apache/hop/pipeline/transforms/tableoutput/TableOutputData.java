@@ -69,6 +69,17 @@ public class TableOutputData extends BaseTransformData implements ITransformData
 
   public int commitSize;
 
+  /** Write the rows with a pool of writers, each with its own connection */
+  public boolean parallelWriters;
+
+  public int numberOfWriters;
+
+  /** The writers, created with the first row */
+  public TableOutputWriterPool writerPool;
+
+  /** Mapping between the table name and the insert statement used by the writers */
+  public Map<String, String> insertSqls;
+
   public TableOutputData() {
     super();
 
@@ -83,6 +94,7 @@ public class TableOutputData extends BaseTransformData implements ITransformData
 
     batchBuffer = new ArrayList<>();
     commitCounterMap = new HashMap<>();
+    insertSqls = new HashMap<>();
 
     releaseSavepoint = true;
   }
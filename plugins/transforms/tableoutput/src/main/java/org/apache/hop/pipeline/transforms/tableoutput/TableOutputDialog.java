@@ -106,6 +106,15 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
   private Label wlBatch;
   private Button wBatch;
 
+  private Label wlWriters;
+  private TextVar wWriters;
+
+  private Label wlAdaptiveBatchSize;
+  private Button wAdaptiveBatchSize;
+
+  private Label wlKeepRowOrder;
+  private Button wKeepRowOrder;
+
   private Button wUsePart;
 
   private Label wlPartField;
@@ -552,13 +561,73 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
           }
         });
 
+    // Number of writers
+    wlWriters = new Label(wMainComp, SWT.RIGHT);
+    wlWriters.setText(BaseMessages.getString(PKG, "TableOutputDialog.Writers.Label"));
+    PropsUi.setLook(wlWriters);
+    FormData fdlWriters = new FormData();
+    fdlWriters.left = new FormAttachment(0, 0);
+    fdlWriters.top = new FormAttachment(wBatch, margin);
+    fdlWriters.right = new FormAttachment(middle, -margin);
+    wlWriters.setLayoutData(fdlWriters);
+    wWriters = new TextVar(variables, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wWriters);
+    wWriters.setToolTipText(BaseMessages.getString(PKG, "TableOutputDialog.Writers.Tooltip"));
+    wWriters.addModifyListener(lsMod);
+    FormData fdWriters = new FormData();
+    fdWriters.left = new FormAttachment(middle, 0);
+    fdWriters.top = new FormAttachment(wlWriters, 0, SWT.CENTER);
+    fdWriters.right = new FormAttachment(100, 0);
+    wWriters.setLayoutData(fdWriters);
+
+    // Adaptive batch size
+    wlAdaptiveBatchSize = new Label(wMainComp, SWT.RIGHT);
+    wlAdaptiveBatchSize.setText(
+        BaseMessages.getString(PKG, "TableOutputDialog.AdaptiveBatchSize.Label"));
+    PropsUi.setLook(wlAdaptiveBatchSize);
+    FormData fdlAdaptiveBatchSize = new FormData();
+    fdlAdaptiveBatchSize.left = new FormAttachment(0, 0);
+    fdlAdaptiveBatchSize.top = new FormAttachment(wWriters, margin);
+    fdlAdaptiveBatchSize.right = new FormAttachment(middle, -margin);
+    wlAdaptiveBatchSize.setLayoutData(fdlAdaptiveBatchSize);
+    wAdaptiveBatchSize = new Button(wMainComp, SWT.CHECK);
+    PropsUi.setLook(wAdaptiveBatchSize);
+    wAdaptiveBatchSize.setToolTipText(
+        BaseMessages.getString(PKG, "TableOutputDialog.AdaptiveBatchSize.Tooltip"));
+    FormData fdAdaptiveBatchSize = new FormData();
+    fdAdaptiveBatchSize.left = new FormAttachment(middle, 0);
+    fdAdaptiveBatchSize.top = new FormAttachment(wlAdaptiveBatchSize, 0, SWT.CENTER);
+    fdAdaptiveBatchSize.right = new FormAttachment(100, 0);
+    wAdaptiveBatchSize.setLayoutData(fdAdaptiveBatchSize);
+    wAdaptiveBatchSize.addSelectionListener(lsSelMod);
+
+    // Keep the row order
+    wlKeepRowOrder = new Label(wMainComp, SWT.RIGHT);
+    wlKeepRowOrder.setText(BaseMessages.getString(PKG, "TableOutputDialog.KeepRowOrder.Label"));
+    PropsUi.setLook(wlKeepRowOrder);
+    FormData fdlKeepRowOrder = new FormData();
+    fdlKeepRowOrder.left = new FormAttachment(0, 0);
+    fdlKeepRowOrder.top = new FormAttachment(wAdaptiveBatchSize, margin);
+    fdlKeepRowOrder.right = new FormAttachment(middle, -margin);
+    wlKeepRowOrder.setLayoutData(fdlKeepRowOrder);
+    wKeepRowOrder = new Button(wMainComp, SWT.CHECK);
+    PropsUi.setLook(wKeepRowOrder);
+    wKeepRowOrder.setToolTipText(
+        BaseMessages.getString(PKG, "TableOutputDialog.KeepRowOrder.Tooltip"));
+    FormData fdKeepRowOrder = new FormData();
+    fdKeepRowOrder.left = new FormAttachment(middle, 0);
+    fdKeepRowOrder.top = new FormAttachment(wlKeepRowOrder, 0, SWT.CENTER);
+    fdKeepRowOrder.right = new FormAttachment(100, 0);
+    wKeepRowOrder.setLayoutData(fdKeepRowOrder);
+    wKeepRowOrder.addSelectionListener(lsSelMod);
+
     // NameInField
     Label wlNameInField = new Label(wMainComp, SWT.RIGHT);
     wlNameInField.setText(BaseMessages.getString(PKG, "TableOutputDialog.NameInField.Label"));
     PropsUi.setLook(wlNameInField);
     FormData fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment(0, 0);
-    fdlNameInField.top = new FormAttachment(wBatch, margin * 5);
+    fdlNameInField.top = new FormAttachment(wKeepRowOrder, margin * 5);
     fdlNameInField.right = new FormAttachment(middle, -margin);
     wlNameInField.setLayoutData(fdlNameInField);
     wNameInField = new Button(wMainComp, SWT.CHECK);
@@ -1229,6 +1298,14 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     wlBatch.setEnabled(enableBatch);
     wBatch.setEnabled(enableBatch);
 
+    // The writers can't return auto-generated keys either
+    wlWriters.setEnabled(enableBatch);
+    wWriters.setEnabled(enableBatch);
+    wlAdaptiveBatchSize.setEnabled(enableBatch);
+    wAdaptiveBatchSize.setEnabled(enableBatch);
+    wlKeepRowOrder.setEnabled(enableBatch);
+    wKeepRowOrder.setEnabled(enableBatch);
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled(specifyFields);
     wGetFields.setEnabled(specifyFields);
@@ -1275,6 +1352,9 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     wBatch.setSelection(input.isUseBatchUpdate());
 
     wCommit.setText(input.getCommitSize());
+    wWriters.setText(Const.NVL(input.getNumberOfWriters(), ""));
+    wAdaptiveBatchSize.setSelection(input.isAdaptiveBatchSize());
+    wKeepRowOrder.setSelection(input.isKeepingRowOrder());
 
     wUsePart.setSelection(input.isPartitioningEnabled());
     wPartDaily.setSelection(input.isPartitioningDaily());
@@ -1329,6 +1409,9 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     info.setOnlyWhenHaveRows(wOnlyWhenHaveRows.getSelection());
     info.setIgnoreErrors(wIgnore.getSelection());
     info.setUseBatchUpdate(wBatch.getSelection());
+    info.setNumberOfWriters(wWriters.getText());
+    info.setAdaptiveBatchSize(wAdaptiveBatchSize.getSelection());
+    info.setKeepingRowOrder(wKeepRowOrder.getSelection());
     info.setPartitioningEnabled(wUsePart.getSelection());
     info.setPartitioningField(wPartField.getText());
     info.setPartitioningDaily(wPartDaily.getSelection());
@@ -110,6 +110,27 @@ public class TableOutputMeta extends BaseTransformMeta<TableOutput, TableOutputD
       injectionKeyDescription = "TableOutputMeta.Injection.UseBatch.Field")
   private boolean useBatchUpdate;
 
+  /** The number of writer threads, each with its own connection, 1 to write on a single one */
+  @HopMetadataProperty(
+      key = "writers",
+      injectionKey = "NUMBER_OF_WRITERS",
+      injectionKeyDescription = "TableOutputMeta.Injection.NumberOfWriters.Field")
+  private String numberOfWriters;
+
+  /** Adapt the number of rows per batch to the measured time it takes to write a batch */
+  @HopMetadataProperty(
+      key = "adaptive_batch_size",
+      injectionKey = "ADAPTIVE_BATCH_SIZE",
+      injectionKeyDescription = "TableOutputMeta.Injection.AdaptiveBatchSize.Field")
+  private boolean adaptiveBatchSize;
+
+  /** Pass on the rows written by the writer threads in the order in which they were read */
+  @HopMetadataProperty(
+      key = "keep_row_order",
+      injectionKey = "KEEP_ROW_ORDER",
+      injectionKeyDescription = "TableOutputMeta.Injection.KeepingRowOrder.Field")
+  private boolean keepingRowOrder;
+
   @HopMetadataProperty(
       key = "partitioning_enabled",
       injectionKey = "PARTITION_OVER_TABLES",
@@ -334,6 +355,7 @@ public class TableOutputMeta extends BaseTransformMeta<TableOutput, TableOutputD
     super(); // allocate BaseTransformMeta
     useBatchUpdate = true;
     commitSize = "1000";
+    numberOfWriters = "1";
 
     fields = new ArrayList<>();
   }
@@ -459,10 +481,53 @@ public class TableOutputMeta extends BaseTransformMeta<TableOutput, TableOutputD
     return useBatchUpdate;
   }
 
+  /**
+   * @return the number of writer threads, each with its own connection
+   */
+  public String getNumberOfWriters() {
+    return numberOfWriters;
+  }
+
+  /**
+   * @param numberOfWriters the number of writer threads to set
+   */
+  public void setNumberOfWriters(String numberOfWriters) {
+    this.numberOfWriters = numberOfWriters;
+  }
+
+  /**
+   * @return true if the batch size adapts to the time it takes to write a batch
+   */
+  public boolean isAdaptiveBatchSize() {
+    return adaptiveBatchSize;
+  }
+
+  /**
+   * @param adaptiveBatchSize true to adapt the batch size to the time it takes to write a batch
+   */
+  public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+    this.adaptiveBatchSize = adaptiveBatchSize;
+  }
+
+  /**
+   * @return true if the writer threads pass on the rows in the order in which they were read
+   */
+  public boolean isKeepingRowOrder() {
+    return keepingRowOrder;
+  }
+
+  /**
+   * @param keepingRowOrder true to pass on the rows in the order in which they were read
+   */
+  public void setKeepingRowOrder(boolean keepingRowOrder) {
+    this.keepingRowOrder = keepingRowOrder;
+  }
+
   @Override
   public void setDefault() {
     tableName = "";
     commitSize = "1000";
+    numberOfWriters = "1";
 
     partitioningEnabled = false;
     partitioningDaily = false;
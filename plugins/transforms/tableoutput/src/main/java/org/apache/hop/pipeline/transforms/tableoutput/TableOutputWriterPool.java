@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableoutput;
+
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.row.IRowMeta;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the rows of a table output with a pool of writer threads. Every writer has its own
+ * connection and prepared statements. The rows are collected in batches and every batch is written
+ * and committed by the next free writer while the next rows keep coming in. The number of rows per
+ * batch comes from an {@link AdaptiveBatchSize} which is told how long each batch took.
+ *
+ * <p>When a batch fails and failing rows are allowed, the batch is rolled back and its rows are
+ * written one by one to find the rows which fail.
+ *
+ * <p>Only the batches are written on the writer threads. The results are handed to the {@link
+ * IResultHandler} on the thread calling this class, which is not thread-safe. The rows are handed
+ * back in the order in which they were added if requested, otherwise as soon as their batch is
+ * written.
+ */
+public class TableOutputWriterPool {
+
+  /** Creates and connects the database of a writer. */
+  public interface IDatabaseFactory {
+    Database createDatabase() throws HopException;
+  }
+
+  /** Receives the rows once their batch is written. */
+  public interface IResultHandler {
+    /**
+     * @param outputRow the row which was written
+     * @throws HopException in case something goes wrong passing on the row
+     */
+    void rowWritten(Object[] outputRow) throws HopException;
+
+    /**
+     * @param outputRow the row which couldn't be written
+     * @param message the reason of the failure
+     * @throws HopException in case the failure can't be handled
+     */
+    void rowFailed(Object[] outputRow, String message) throws HopException;
+  }
+
+  private static class Writer {
+    private final Database db;
+    private final IRowMeta insertRowMeta;
+    private final boolean batching;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    private Writer(Database db, IRowMeta insertRowMeta, boolean batching) {
+      this.db = db;
+      this.insertRowMeta = insertRowMeta;
+      this.batching = batching;
+    }
+
+    private PreparedStatement getStatement(String sql) throws HopDatabaseException {
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null) {
+        statement = db.prepareSql(sql, false);
+        statements.put(sql, statement);
+      }
+      return statement;
+    }
+  }
+
+  private static class Batch {
+    private final List<String> sqls = new ArrayList<>();
+    private final List<Object[]> insertRows = new ArrayList<>();
+    private final List<Object[]> outputRows = new ArrayList<>();
+    private Future<Batch> future;
+    private String[] failures;
+    private HopException error;
+
+    private int size() {
+      return insertRows.size();
+    }
+  }
+
+  private final ILogChannel log;
+  private final AdaptiveBatchSize batchSize;
+  private final boolean keepingRowOrder;
+  private final boolean retryingRows;
+  private final IResultHandler handler;
+
+  private final List<Writer> writers = new ArrayList<>();
+  private final BlockingQueue<Writer> idleWriters;
+  private final ExecutorService executor;
+
+  /** Hands back the batches as soon as they're written, null when keeping the row order */
+  private final CompletionService<Batch> completionService;
+
+  private final ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+  private Batch current;
+
+  /**
+   * Connect the writers and start the writer threads.
+   *
+   * @param log the log channel of the transform
+   * @param factory creates a connected database for every writer
+   * @param numberOfWriters the number of writers
+   * @param insertRowMeta the metadata of the rows to insert
+   * @param useBatchUpdate true to send the rows of a batch with JDBC batch updates if the database
+   *     supports it, false to insert them one by one in a single transaction
+   * @param batchSize decides the number of rows per batch
+   * @param keepingRowOrder true to hand back the rows in the order in which they were added
+   * @param retryingRows true to write the rows of a failing batch one by one, false to fail
+   * @param handler receives the rows once they're written
+   * @param threadName the name of the writer threads
+   * @throws HopException in case a writer can't connect
+   */
+  public TableOutputWriterPool(
+      ILogChannel log,
+      IDatabaseFactory factory,
+      int numberOfWriters,
+      IRowMeta insertRowMeta,
+      boolean useBatchUpdate,
+      AdaptiveBatchSize batchSize,
+      boolean keepingRowOrder,
+      boolean retryingRows,
+      IResultHandler handler,
+      String threadName)
+      throws HopException {
+    this.log = log;
+    this.batchSize = batchSize;
+    this.keepingRowOrder = keepingRowOrder;
+    this.retryingRows = retryingRows;
+    this.handler = handler;
+
+    int size = Math.max(1, numberOfWriters);
+    this.idleWriters = new LinkedBlockingQueue<>();
+    try {
+      for (int i = 0; i < size; i++) {
+        Database db = factory.createDatabase();
+        // Every writer commits its own batches
+        //
+        db.setCommit(Integer.MAX_VALUE);
+        // Value metadata isn't thread-safe: every writer gets its own copy
+        //
+        Writer writer = new Writer(db, insertRowMeta.clone(), db.getUseBatchInsert(useBatchUpdate));
+        writers.add(writer);
+        idleWriters.add(writer);
+      }
+    } catch (HopException e) {
+      disconnect(true);
+      throw e;
+    }
+
+    AtomicInteger threadNr = new AtomicInteger();
+    this.executor =
+        Executors.newFixedThreadPool(
+            size,
+            r -> {
+              Thread thread = new Thread(r, threadName + " - " + threadNr.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.completionService = keepingRowOrder ? null : new ExecutorCompletionService<>(executor);
+  }
+
+  /**
+   * Add a row to write. Rows of finished batches are handed to the handler.
+   *
+   * @param sql the insert statement for the row
+   * @param insertRow the values to insert
+   * @param outputRow the row to hand back once it's written
+   * @throws HopException in case a batch failed or the handler fails to handle a row
+   */
+  public void addRow(String sql, Object[] insertRow, Object[] outputRow) throws HopException {
+    if (current == null) {
+      current = new Batch();
+    }
+    current.sqls.add(sql);
+    current.insertRows.add(insertRow);
+    current.outputRows.add(outputRow);
+    if (current.size() >= batchSize.getBatchSize()) {
+      submitCurrent();
+    }
+    handleBatches(false);
+  }
+
+  /**
+   * Write the rows added so far and wait until all the batches are handled. More rows can be added
+   * afterwards.
+   *
+   * @throws HopException in case a batch failed or the handler fails to handle a row
+   */
+  public void finish() throws HopException {
+    submitCurrent();
+    while (!inFlight.isEmpty()) {
+      handleBatches(true);
+    }
+  }
+
+  /**
+   * Stop the writer threads and disconnect the writers.
+   *
+   * @param rollback true to roll back the batches which weren't committed yet
+   */
+  public void close(boolean rollback) {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    disconnect(rollback);
+  }
+
+  /**
+   * @return the number of rows in the next batch
+   */
+  public int getBatchSize() {
+    return batchSize.getBatchSize();
+  }
+
+  private void disconnect(boolean rollback) {
+    for (Writer writer : writers) {
+      try {
+        if (rollback) {
+          writer.db.rollback();
+        }
+        for (PreparedStatement statement : writer.statements.values()) {
+          writer.db.closePreparedStatement(statement);
+        }
+      } catch (HopDatabaseException e) {
+        log.logError("Error closing the connection of a table output writer", e);
+      } finally {
+        writer.db.disconnect();
+      }
+    }
+    writers.clear();
+  }
+
+  private void submitCurrent() throws HopException {
+    Batch batch = current;
+    if (batch == null) {
+      return;
+    }
+    current = null;
+
+    // Don't queue up more batches than there are writers
+    //
+    while (inFlight.size() >= writers.size()) {
+      handleBatches(true);
+    }
+    // The batches are handed back in order from the in-flight queue, the completion service would
+    // keep the finished batches forever
+    //
+    Callable<Batch> task = () -> write(batch);
+    batch.future = keepingRowOrder ? executor.submit(task) : completionService.submit(task);
+    inFlight.add(batch);
+  }
+
+  /**
+   * Hand the rows of the written batches to the handler.
+   *
+   * @param wait true to wait until at least one batch is written
+   */
+  private void handleBatches(boolean wait) throws HopException {
+    if (inFlight.isEmpty()) {
+      return;
+    }
+    if (keepingRowOrder) {
+      if (wait) {
+        handle(get(inFlight.peekFirst().future));
+      }
+      while (!inFlight.isEmpty() && inFlight.peekFirst().future.isDone()) {
+        handle(get(inFlight.peekFirst().future));
+      }
+    } else {
+      Future<Batch> future = wait ? take() : completionService.poll();
+      while (future != null) {
+        handle(get(future));
+        future = completionService.poll();
+      }
+    }
+  }
+
+  private Future<Batch> take() throws HopException {
+    try {
+      return completionService.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while waiting for a table output writer", e);
+    }
+  }
+
+  private Batch get(Future<Batch> future) throws HopException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw new HopException("Unexpected error in a table output writer", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HopException("Interrupted while waiting for a table output writer", e);
+    }
+  }
+
+  private void handle(Batch batch) throws HopException {
+    inFlight.remove(batch);
+    if (batch.error != null) {
+      throw batch.error;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      if (batch.failures != null && batch.failures[i] != null) {
+        handler.rowFailed(batch.outputRows.get(i), batch.failures[i]);
+      } else {
+        handler.rowWritten(batch.outputRows.get(i));
+      }
+    }
+  }
+
+  /** Write a batch with the next free writer. This runs on a writer thread. */
+  private Batch write(Batch batch) throws InterruptedException {
+    Writer writer = idleWriters.take();
+    try {
+      long start = System.nanoTime();
+      try {
+        writeBatch(writer, batch);
+        batchSize.report(batch.size(), System.nanoTime() - start);
+      } catch (Exception e) {
+        rollback(writer);
+        if (retryingRows) {
+          writeRows(writer, batch);
+        } else {
+          batch.error =
+              e instanceof HopException
+                  ? (HopException) e
+                  : new HopDatabaseException(
+                      "Error writing a batch of " + batch.size() + " rows", e);
+        }
+      }
+    } finally {
+      idleWriters.add(writer);
+    }
+    return batch;
+  }
+
+  private void writeBatch(Writer writer, Batch batch) throws HopException, SQLException {
+    Set<PreparedStatement> batched = new LinkedHashSet<>();
+    for (int i = 0; i < batch.size(); i++) {
+      PreparedStatement statement = writer.getStatement(batch.sqls.get(i));
+      writer.db.setValues(writer.insertRowMeta, batch.insertRows.get(i), statement);
+      if (writer.batching) {
+        statement.addBatch();
+        batched.add(statement);
+      } else {
+        statement.executeUpdate();
+      }
+    }
+    for (PreparedStatement statement : batched) {
+      statement.executeBatch();
+      statement.clearBatch();
+    }
+    writer.db.commit();
+  }
+
+  /** Write the rows of a failed batch one by one, remembering which rows fail. */
+  private void writeRows(Writer writer, Batch batch) {
+    batch.failures = new String[batch.size()];
+    for (int i = 0; i < batch.size(); i++) {
+      try {
+        PreparedStatement statement = writer.getStatement(batch.sqls.get(i));
+        writer.db.setValues(writer.insertRowMeta, batch.insertRows.get(i), statement);
+        statement.executeUpdate();
+        writer.db.commit();
+      } catch (Exception e) {
+        batch.failures[i] = e.toString();
+        rollback(writer);
+      }
+    }
+  }
+
+  private void rollback(Writer writer) {
+    try {
+      for (PreparedStatement statement : writer.statements.values()) {
+        writer.db.clearBatch(statement);
+      }
+      writer.db.rollback();
+    } catch (HopDatabaseException e) {
+      log.logError("Error rolling back the connection of a table output writer", e);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableoutput;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveBatchSizeTest {
+
+  private static final long MILLI = 1000000L;
+
+  /** A round trip of 5ms and 10µs per row: larger batches are always faster. */
+  private static long latency(int rows) {
+    return 5 * MILLI + rows * 10000L;
+  }
+
+  @Test
+  public void testGrowsWhileThroughputImproves() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 50000, 1000 * MILLI);
+    for (int i = 0; i < 200; i++) {
+      int rows = batchSize.getBatchSize();
+      batchSize.report(rows, latency(rows));
+    }
+    assertTrue(batchSize.getBatchSize() > 10000);
+    assertTrue(batchSize.getBatchSize() <= 50000);
+  }
+
+  @Test
+  public void testShrinksWhenTooSlow() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(20000, 10, 50000, 100 * MILLI);
+    long total = 0;
+    for (int i = 0; i < 200; i++) {
+      int rows = batchSize.getBatchSize();
+      batchSize.report(rows, latency(rows));
+      if (i >= 100) {
+        total += rows;
+      }
+    }
+    // 10000 rows take 105ms: the batches have to stay below that most of the time
+    assertTrue(total / 100 < 10000);
+    assertTrue(batchSize.getBatchSize() >= 10);
+  }
+
+  @Test
+  public void testFixedSize() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(500);
+    for (int i = 0; i < 20; i++) {
+      batchSize.report(500, 10000 * MILLI);
+    }
+    assertEquals(500, batchSize.getBatchSize());
+  }
+
+  @Test
+  public void testInitialSizeIsClamped() {
+    assertEquals(10, new AdaptiveBatchSize(1, 10, 100, MILLI).getBatchSize());
+    assertEquals(100, new AdaptiveBatchSize(1000, 10, 100, MILLI).getBatchSize());
+  }
+}
@@ -117,6 +117,9 @@ public class TableOutputMetaTest {
     assertTrue(tableOutputMeta.isTableNameInTable());
     assertEquals("", tableOutputMeta.getTableNameField());
     assertFalse(tableOutputMeta.isSpecifyFields());
+    assertEquals("1", tableOutputMeta.getNumberOfWriters());
+    assertFalse(tableOutputMeta.isAdaptiveBatchSize());
+    assertFalse(tableOutputMeta.isKeepingRowOrder());
   }
 
   @Test
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.tableoutput;
+
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TableOutputWriterPoolTest {
+
+  private static final String SQL = "INSERT INTO test(id) VALUES(?)";
+  private static final int NR_ROWS = 100;
+  private static final int NR_WRITERS = 4;
+
+  private final List<Database> databases = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> written = new ArrayList<>();
+  private final List<Long> failed = new ArrayList<>();
+
+  private IRowMeta insertRowMeta;
+  private TableOutputWriterPool pool;
+
+  @Before
+  public void setUp() {
+    insertRowMeta = new RowMeta();
+    insertRowMeta.addValueMeta(new ValueMetaInteger("id"));
+  }
+
+  @After
+  public void tearDown() {
+    if (pool != null) {
+      pool.close(false);
+    }
+  }
+
+  /**
+   * A database which fails to insert negative ids. Some batches take longer than others so that
+   * they finish out of order.
+   */
+  private Database createDatabase() throws HopException {
+    Database db = mock(Database.class);
+    when(db.getUseBatchInsert(anyBoolean())).thenReturn(true);
+    when(db.prepareSql(anyString(), anyBoolean()))
+        .thenAnswer(invocation -> mock(PreparedStatement.class));
+    doAnswer(
+            invocation -> {
+              long id = (Long) ((Object[]) invocation.getArguments()[1])[0];
+              if (id < 0) {
+                throw new HopDatabaseException("Unable to insert id " + id);
+              }
+              if (id % 7 == 0) {
+                Thread.sleep(5);
+              }
+              return null;
+            })
+        .when(db)
+        .setValues(any(IRowMeta.class), any(Object[].class), any(PreparedStatement.class));
+    databases.add(db);
+    return db;
+  }
+
+  private TableOutputWriterPool createPool(boolean keepingRowOrder, boolean retryingRows)
+      throws HopException {
+    pool =
+        new TableOutputWriterPool(
+            mock(ILogChannel.class),
+            this::createDatabase,
+            NR_WRITERS,
+            insertRowMeta,
+            true,
+            new AdaptiveBatchSize(3),
+            keepingRowOrder,
+            retryingRows,
+            new TableOutputWriterPool.IResultHandler() {
+              @Override
+              public void rowWritten(Object[] outputRow) {
+                written.add((Long) outputRow[0]);
+              }
+
+              @Override
+              public void rowFailed(Object[] outputRow, String message) {
+                assertTrue(message.contains("Unable to insert id"));
+                failed.add((Long) outputRow[0]);
+              }
+            },
+            "test writer");
+    return pool;
+  }
+
+  /** Add the ids 0 to NR_ROWS - 1, the failing ids are made negative. */
+  private static void addRows(TableOutputWriterPool pool, Long... failingIds)
+      throws HopException {
+    List<Long> failing = Arrays.asList(failingIds);
+    for (long i = 0; i < NR_ROWS; i++) {
+      Long id = failing.contains(i) ? -i : i;
+      pool.addRow(SQL, new Object[] {id}, new Object[] {id});
+    }
+    pool.finish();
+  }
+
+  @Test
+  public void testOrderedRowsAreHandedBackInOrder() throws Exception {
+    addRows(createPool(true, false));
+
+    assertEquals(NR_ROWS, written.size());
+    for (int i = 0; i < NR_ROWS; i++) {
+      assertEquals(Long.valueOf(i), written.get(i));
+    }
+    assertEquals(NR_WRITERS, databases.size());
+    for (Database db : databases) {
+      verify(db, atLeastOnce()).commit();
+    }
+  }
+
+  @Test
+  public void testUnorderedRowsAreAllHandedBack() throws Exception {
+    addRows(createPool(false, false));
+
+    assertEquals(NR_ROWS, written.size());
+    TreeSet<Long> distinct = new TreeSet<>(written);
+    assertEquals(NR_ROWS, distinct.size());
+    assertEquals(Long.valueOf(0L), distinct.first());
+    assertEquals(Long.valueOf(NR_ROWS - 1L), distinct.last());
+    assertTrue(failed.isEmpty());
+  }
+
+  @Test
+  public void testMoreRowsCanBeAddedAfterFinishing() throws Exception {
+    createPool(true, false);
+    addRows(pool);
+    addRows(pool);
+    assertEquals(2 * NR_ROWS, written.size());
+    assertEquals(Long.valueOf(NR_ROWS - 1L), written.get(2 * NR_ROWS - 1));
+  }
+
+  @Test
+  public void testFailingBatchIsReported() throws Exception {
+    for (boolean keepingRowOrder : new boolean[] {true, false}) {
+      try {
+        addRows(createPool(keepingRowOrder, false), 50L);
+        fail("The failing batch should be reported");
+      } catch (HopException e) {
+        assertTrue(e.getMessage().contains("Unable to insert id -50"));
+      }
+      assertTrue(failed.isEmpty());
+      pool.close(true);
+      pool = null;
+      written.clear();
+    }
+    for (Database db : databases) {
+      verify(db, atLeastOnce()).rollback();
+    }
+  }
+
+  @Test
+  public void testFailingRowsAreRetriedOneByOne() throws Exception {
+    addRows(createPool(true, true), 10L, 11L, 50L);
+
+    // The other rows of the failing batches are still written, in order
+    //
+    assertEquals(3, failed.size());
+    assertEquals(Long.valueOf(-10L), failed.get(0));
+    assertEquals(Long.valueOf(-11L), failed.get(1));
+    assertEquals(Long.valueOf(-50L), failed.get(2));
+    assertEquals(NR_ROWS - 3, written.size());
+    long previous = -1L;
+    for (Long id : written) {
+      assertTrue(id > previous);
+      previous = id;
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
 
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.hash.BinaryKeyEncoder;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -39,8 +40,14 @@ public class UniqueRowsByHashSet
     super(transformMeta, meta, data, copyNr, pipelineMeta, pipeline);
   }
 
-  private boolean isUniqueRow(Object[] row) {
-    return data.seen.add(new RowKey(row, data));
+  private boolean isUniqueRow(Object[] row) throws HopException {
+    data.keyEncoder.encode(row);
+    if (data.storeValues) {
+      return data.seen.add(
+          data.keyEncoder.getKey(), data.keyEncoder.getLength(), data.keyEncoder.getHash());
+    }
+    // Without the values only the 64-bit hash of the key fields is compared
+    return data.seen.add(data.keyEncoder.getKey(), 0, data.keyEncoder.getHash());
   }
 
   @Override
@@ -85,6 +92,10 @@ public class UniqueRowsByHashSet
                   : data.compareFields + "," + meta.getCompareFields()[i];
         }
       }
+      // If no fields are specified we key on the entire row
+      data.keyEncoder =
+          new BinaryKeyEncoder(data.inputRowMeta, data.fieldnrs.length == 0 ? null : data.fieldnrs);
+
       if (data.sendDuplicateRows && !Utils.isEmpty(meta.getErrorDescription())) {
         data.realErrorDescription = resolve(meta.getErrorDescription());
       }
@@ -17,12 +17,12 @@
 
 package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
 
+import org.apache.hop.core.hash.BinaryKeyEncoder;
+import org.apache.hop.core.hash.BinaryKeyHashTable;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
-import java.util.HashSet;
-
 public class UniqueRowsByHashSetData extends BaseTransformData implements ITransformData {
   public IRowMeta outputRowMeta;
   public IRowMeta inputRowMeta;
@@ -32,7 +32,10 @@ public class UniqueRowsByHashSetData extends BaseTransformData implements ITrans
   public String realErrorDescription;
   boolean sendDuplicateRows;
 
-  public HashSet<RowKey> seen = new HashSet<>();
+  /** The encoded keys of the rows seen so far, or only their hashes if values aren't stored */
+  public BinaryKeyHashTable seen = new BinaryKeyHashTable();
+
+  public BinaryKeyEncoder keyEncoder;
 
   public UniqueRowsByHashSetData() {
     super();
@@ -42,5 +45,6 @@ public class UniqueRowsByHashSetData extends BaseTransformData implements ITrans
     sendDuplicateRows = false;
     compareFields = null;
     realErrorDescription = null;
+    seen.clear();
   }
 }
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaBinary;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class UniqueRowsByHashSetTest {
+
+  private TransformMockHelper<UniqueRowsByHashSetMeta, UniqueRowsByHashSetData> mockHelper;
+  private List<Object[]> output;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    mockHelper =
+        new TransformMockHelper<>(
+            "Unique rows by hash set",
+            UniqueRowsByHashSetMeta.class,
+            UniqueRowsByHashSetData.class);
+    when(mockHelper.logChannelFactory.create(any(), any(ILoggingObject.class)))
+        .thenReturn(mockHelper.iLogChannel);
+
+    output = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  /** The rows have an Integer id followed by a key field of the given type */
+  private static IRowMeta createRowMeta(IValueMeta keyValueMeta) {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta(new ValueMetaInteger("id"));
+    rowMeta.addValueMeta(keyValueMeta);
+    return rowMeta;
+  }
+
+  /** Runs the transform comparing on the fields after the id and returns the unique ids */
+  private long[] uniqueIds(boolean storeValues, IRowMeta rowMeta, Object[]... rows)
+      throws Exception {
+    UniqueRowsByHashSetMeta meta = new UniqueRowsByHashSetMeta();
+    String[] fieldNames = rowMeta.getFieldNames();
+    meta.setCompareFields(Arrays.copyOfRange(fieldNames, 1, fieldNames.length));
+    meta.setStoreValues(storeValues);
+
+    UniqueRowsByHashSet transform =
+        spy(
+            new UniqueRowsByHashSet(
+                mockHelper.transformMeta,
+                meta,
+                new UniqueRowsByHashSetData(),
+                0,
+                mockHelper.pipelineMeta,
+                mockHelper.pipeline));
+
+    Iterator<Object[]> iterator = Arrays.asList(rows).iterator();
+    doAnswer(invocation -> iterator.hasNext() ? iterator.next() : null).when(transform).getRow();
+    doReturn(rowMeta).when(transform).getInputRowMeta();
+    doAnswer(
+            invocation -> {
+              output.add((Object[]) invocation.getArguments()[1]);
+              return null;
+            })
+        .when(transform)
+        .putRow(any(IRowMeta.class), any(Object[].class));
+
+    assertTrue(transform.init());
+    while (transform.processRow()) {
+      // Process all the rows
+    }
+    assertEquals(rows.length - output.size(), transform.getLinesRejected());
+
+    return output.stream().mapToLong(row -> (Long) row[0]).toArray();
+  }
+
+  @Test
+  public void testBigNumbersOfADifferentScaleAreDuplicates() throws Exception {
+    // The key encoding strips the trailing zeros: 1.0 and 1.00 are the same key
+    //
+    for (boolean storeValues : new boolean[] {true, false}) {
+      output.clear();
+      long[] ids =
+          uniqueIds(
+              storeValues,
+              createRowMeta(new ValueMetaBigNumber("key")),
+              new Object[] {1L, new BigDecimal("1.0")},
+              new Object[] {2L, new BigDecimal("1.00")},
+              new Object[] {3L, new BigDecimal("1")},
+              new Object[] {4L, new BigDecimal("10")},
+              new Object[] {5L, new BigDecimal("1E+1")},
+              new Object[] {6L, new BigDecimal("1.01")});
+      assertArrayEquals(new long[] {1L, 4L, 6L}, ids);
+    }
+  }
+
+  @Test
+  public void testBinaryKeysAreComparedByContent() throws Exception {
+    long[] ids =
+        uniqueIds(
+            true,
+            createRowMeta(new ValueMetaBinary("key")),
+            new Object[] {1L, new byte[] {1, 2}},
+            new Object[] {2L, new byte[] {1, 2}},
+            new Object[] {3L, new byte[] {2, 1}},
+            new Object[] {4L, new byte[] {1, 2, 0}},
+            new Object[] {5L, new byte[0]},
+            new Object[] {6L, null},
+            new Object[] {7L, new byte[0]});
+    assertArrayEquals(new long[] {1L, 3L, 4L, 5L, 6L}, ids);
+  }
+
+  @Test
+  public void testNullAndEmptyStringsAreDifferentKeys() throws Exception {
+    long[] ids =
+        uniqueIds(
+            true,
+            createRowMeta(new ValueMetaString("key")),
+            new Object[] {1L, null},
+            new Object[] {2L, ""},
+            new Object[] {3L, null},
+            new Object[] {4L, ""},
+            new Object[] {5L, "null"});
+    assertArrayEquals(new long[] {1L, 2L, 5L}, ids);
+  }
+
+  @Test
+  public void testStringsAreLengthPrefixed() throws Exception {
+    // The fields of a key must not run into each other
+    //
+    IRowMeta rowMeta = createRowMeta(new ValueMetaString("key"));
+    rowMeta.addValueMeta(new ValueMetaString("extra"));
+    long[] ids =
+        uniqueIds(
+            true,
+            rowMeta,
+            new Object[] {1L, "ab", "c"},
+            new Object[] {2L, "a", "bc"},
+            new Object[] {3L, "abc", ""},
+            new Object[] {4L, "ab", "c"});
+    assertArrayEquals(new long[] {1L, 2L, 3L}, ids);
+  }
+
+  @Test
+  public void testWithoutStoringValues() throws Exception {
+    // Only the hashes of the keys are kept, the transform still removes the same duplicates
+    //
+    long[] ids =
+        uniqueIds(
+            false,
+            createRowMeta(new ValueMetaString("key")),
+            new Object[] {1L, "a"},
+            new Object[] {2L, "b"},
+            new Object[] {3L, "a"},
+            new Object[] {4L, null},
+            new Object[] {5L, ""},
+            new Object[] {6L, null},
+            new Object[] {7L, "b"});
+    assertArrayEquals(new long[] {1L, 2L, 4L, 5L}, ids);
+  }
+}
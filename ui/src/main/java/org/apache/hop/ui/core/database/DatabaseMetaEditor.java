@@ -22,6 +22,8 @@ import org.apache.hop.core.Const;
 import org.apache.hop.core.DbCache;
 import org.apache.hop.core.Props;
 import org.apache.hop.core.database.BaseDatabaseMeta;
+import org.apache.hop.core.database.DatabaseConnectionPool;
+import org.apache.hop.core.database.DatabaseConnectionPoolParameter;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.database.DatabasePluginType;
 import org.apache.hop.core.database.DatabaseTestResults;
@@ -74,6 +76,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @GuiPlugin(description = "This is the editor for database connection metadata")
@@ -109,6 +112,9 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
 
   private TableView wOptions;
 
+  private Button wUsePool;
+  private TableView wPoolParameters;
+
   private PropsUi props;
   private int middle;
   private int margin;
@@ -198,6 +204,7 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
     addGeneralTab();
     addAdvancedTab();
     addOptionsTab();
+    addPoolingTab();
 
     // Select the general tab
     //
@@ -235,6 +242,9 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
     wPreferredSchema.addListener(SWT.Modify, modifyListener);
     wSqlStatements.addListener(SWT.Modify, modifyListener);
     wOptions.addListener(SWT.Modify, modifyListener);
+    wUsePool.addListener(SWT.Selection, modifyListener);
+    wUsePool.addListener(SWT.Selection, event -> enableFields());
+    wPoolParameters.addListener(SWT.Modify, modifyListener);
   }
 
   private void addGeneralTab() {
@@ -727,6 +737,107 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
     wOptionsTab.setControl(wOptionsComp);
   }
 
+  private void addPoolingTab() {
+
+    DatabaseMeta databaseMeta = this.getMetadata();
+
+    CTabItem wPoolingTab = new CTabItem(wTabFolder, SWT.NONE);
+    wPoolingTab.setFont(GuiResource.getInstance().getFontDefault());
+    wPoolingTab.setText(
+        "   " + BaseMessages.getString(PKG, "DatabaseDialog.PoolingTab.title") + "   ");
+
+    Composite wPoolingComp = new Composite(wTabFolder, SWT.NONE);
+    PropsUi.setLook(wPoolingComp);
+
+    FormLayout poolingLayout = new FormLayout();
+    poolingLayout.marginWidth = PropsUi.getFormMargin() * 2;
+    poolingLayout.marginHeight = PropsUi.getFormMargin() * 2;
+    wPoolingComp.setLayout(poolingLayout);
+
+    // Use a connection pool?
+    //
+    Label wlUsePool = new Label(wPoolingComp, SWT.RIGHT);
+    PropsUi.setLook(wlUsePool);
+    wlUsePool.setText(BaseMessages.getString(PKG, "DatabaseDialog.label.UseConnectionPool"));
+    FormData fdlUsePool = new FormData();
+    fdlUsePool.top = new FormAttachment(0, 0);
+    fdlUsePool.left = new FormAttachment(0, 0); // First one in the left top corner
+    fdlUsePool.right = new FormAttachment(middle, 0);
+    wlUsePool.setLayoutData(fdlUsePool);
+    wUsePool = new Button(wPoolingComp, SWT.CHECK | SWT.LEFT);
+    PropsUi.setLook(wUsePool);
+    FormData fdUsePool = new FormData();
+    fdUsePool.top = new FormAttachment(wlUsePool, 0, SWT.CENTER);
+    fdUsePool.left = new FormAttachment(middle, margin); // To the right of the label
+    fdUsePool.right = new FormAttachment(100, 0);
+    wUsePool.setLayoutData(fdUsePool);
+
+    String[] parameterNames =
+        DatabaseConnectionPoolParameter.getParameterNames(
+            DatabaseConnectionPool.POOLING_PARAMETERS);
+    ColumnInfo[] poolColumns =
+        new ColumnInfo[] {
+          new ColumnInfo(
+              BaseMessages.getString(PKG, "DatabaseDialog.column.Parameter"),
+              ColumnInfo.COLUMN_TYPE_CCOMBO,
+              parameterNames,
+              false),
+          new ColumnInfo(
+              BaseMessages.getString(PKG, "DatabaseDialog.column.Value"),
+              ColumnInfo.COLUMN_TYPE_TEXT,
+              false),
+        };
+    poolColumns[1].setUsingVariables(true);
+
+    // The pool parameters, the ones that are not specified use their default value
+    //
+    Label wlPoolParameters = new Label(wPoolingComp, SWT.LEFT);
+    PropsUi.setLook(wlPoolParameters);
+    wlPoolParameters.setText(BaseMessages.getString(PKG, "DatabaseDialog.label.PoolParameters"));
+    StringBuilder tooltip = new StringBuilder();
+    for (DatabaseConnectionPoolParameter parameter : DatabaseConnectionPool.POOLING_PARAMETERS) {
+      tooltip
+          .append(parameter.getParameter())
+          .append(" (")
+          .append(parameter.getDefaultValue())
+          .append("): ")
+          .append(parameter.getDescription())
+          .append(Const.CR);
+    }
+    wlPoolParameters.setToolTipText(tooltip.toString());
+    FormData fdlPoolParameters = new FormData();
+    fdlPoolParameters.top = new FormAttachment(wUsePool, margin * 2);
+    fdlPoolParameters.left = new FormAttachment(0, 0);
+    fdlPoolParameters.right = new FormAttachment(100, 0);
+    wlPoolParameters.setLayoutData(fdlPoolParameters);
+    wPoolParameters =
+        new TableView(
+            manager.getVariables(),
+            wPoolingComp,
+            SWT.BORDER,
+            poolColumns,
+            databaseMeta.getConnectionPoolingProperties().size(),
+            event -> setChanged(),
+            props);
+    PropsUi.setLook(wPoolParameters);
+    FormData fdPoolParameters = new FormData();
+    fdPoolParameters.top = new FormAttachment(wlPoolParameters, margin * 2);
+    fdPoolParameters.bottom = new FormAttachment(100, 0);
+    fdPoolParameters.left = new FormAttachment(0, 0);
+    fdPoolParameters.right = new FormAttachment(100, 0);
+    wPoolParameters.setLayoutData(fdPoolParameters);
+
+    FormData fdPoolingComp = new FormData();
+    fdPoolingComp.left = new FormAttachment(0, 0);
+    fdPoolingComp.top = new FormAttachment(0, 0);
+    fdPoolingComp.right = new FormAttachment(100, 0);
+    fdPoolingComp.bottom = new FormAttachment(100, 0);
+    wPoolingComp.setLayoutData(fdPoolingComp);
+
+    wPoolingComp.layout();
+    wPoolingTab.setControl(wPoolingComp);
+  }
+
   private void enableFields() {
     boolean manualUrl =
         StringUtils.isNotEmpty(wManualUrl.getText())
@@ -736,6 +847,8 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
     //
     guiCompositeWidgets.enableWidgets(
         getMetadata().getIDatabase(), DatabaseMeta.GUI_PLUGIN_ELEMENT_PARENT_ID, !manualUrl);
+
+    wPoolParameters.setEnabled(wUsePool.getSelection());
   }
 
   private void test() {
@@ -812,6 +925,20 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
     wOptions.setRowNums();
     wOptions.optWidth(true);
 
+    wUsePool.setSelection(databaseMeta.isUsingConnectionPool());
+    wPoolParameters.clearAll(false);
+    Properties poolProperties = databaseMeta.getConnectionPoolingProperties();
+    List<String> poolParameters = new ArrayList<>(poolProperties.stringPropertyNames());
+    Collections.sort(poolParameters);
+    for (String parameter : poolParameters) {
+      TableItem item = new TableItem(wPoolParameters.table, SWT.NONE);
+      item.setText(1, Const.NVL(parameter, ""));
+      item.setText(2, Const.NVL(poolProperties.getProperty(parameter), ""));
+    }
+    wPoolParameters.removeEmptyRows();
+    wPoolParameters.setRowNums();
+    wPoolParameters.optWidth(true);
+
     enableFields();
   }
 
@@ -846,6 +973,14 @@ public class DatabaseMetaEditor extends MetadataEditor<DatabaseMeta> {
       String value = item.getText(2);
       meta.addExtraOption(meta.getPluginId(), option, value);
     }
+
+    meta.setUsingConnectionPool(wUsePool.getSelection());
+    Properties poolProperties = new Properties();
+    for (int i = 0; i < wPoolParameters.nrNonEmpty(); i++) {
+      TableItem item = wPoolParameters.getNonEmpty(i);
+      poolProperties.put(item.getText(1), item.getText(2));
+    }
+    meta.setConnectionPoolingProperties(poolProperties);
   }
 
   /** Test the database connection */
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.ui.metadata.cache;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.metadata.cache.LookupCache;
+import org.apache.hop.metadata.cache.LookupCacheRegistry;
+import org.apache.hop.ui.core.PropsUi;
+import org.apache.hop.ui.core.metadata.MetadataEditor;
+import org.apache.hop.ui.core.metadata.MetadataManager;
+import org.apache.hop.ui.core.widget.TextVar;
+import org.apache.hop.ui.hopgui.HopGui;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Editor that allows you to change the settings of a shared lookup cache
+ *
+ * @see LookupCache
+ */
+public class LookupCacheEditor extends MetadataEditor<LookupCache> {
+  private static final Class<?> PKG = LookupCacheEditor.class; // For Translator
+
+  private Text wName;
+  private Text wDescription;
+  private TextVar wTimeToLive;
+  private TextVar wMaxRows;
+  private TextVar wMaxMemory;
+  private Button wReleasingWhenUnused;
+
+  public LookupCacheEditor(
+      HopGui hopGui, MetadataManager<LookupCache> manager, LookupCache metadata) {
+    super(hopGui, manager, metadata);
+  }
+
+  @Override
+  public void createControl(Composite parent) {
+    PropsUi props = PropsUi.getInstance();
+
+    int middle = props.getMiddlePct();
+    int margin = PropsUi.getMargin();
+
+    Label wIcon = new Label(parent, SWT.RIGHT);
+    wIcon.setImage(getImage());
+    FormData fdlicon = new FormData();
+    fdlicon.top = new FormAttachment(0, 0);
+    fdlicon.right = new FormAttachment(100, 0);
+    wIcon.setLayoutData(fdlicon);
+    PropsUi.setLook(wIcon);
+
+    // What's the name
+    Label wlName = new Label(parent, SWT.RIGHT);
+    PropsUi.setLook(wlName);
+    wlName.setText(BaseMessages.getString(PKG, "LookupCacheEditor.Name.Label"));
+    FormData fdlName = new FormData();
+    fdlName.top = new FormAttachment(0, 0);
+    fdlName.left = new FormAttachment(0, 0);
+    wlName.setLayoutData(fdlName);
+    wName = new Text(parent, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wName);
+    FormData fdName = new FormData();
+    fdName.top = new FormAttachment(wlName, margin);
+    fdName.left = new FormAttachment(0, 0);
+    fdName.right = new FormAttachment(wIcon, -margin);
+    wName.setLayoutData(fdName);
+
+    Label spacer = new Label(parent, SWT.HORIZONTAL | SWT.SEPARATOR);
+    FormData fdSpacer = new FormData();
+    fdSpacer.left = new FormAttachment(0, 0);
+    fdSpacer.top = new FormAttachment(wName, 15);
+    fdSpacer.right = new FormAttachment(100, 0);
+    spacer.setLayoutData(fdSpacer);
+
+    Label wlDescription = new Label(parent, SWT.RIGHT);
+    PropsUi.setLook(wlDescription);
+    wlDescription.setText(BaseMessages.getString(PKG, "LookupCacheEditor.Description.Label"));
+    FormData fdlDescription = new FormData();
+    fdlDescription.top = new FormAttachment(spacer, margin);
+    fdlDescription.left = new FormAttachment(0, 0);
+    fdlDescription.right = new FormAttachment(middle, -margin);
+    wlDescription.setLayoutData(fdlDescription);
+    wDescription = new Text(parent, SWT.SINGLE | SWT.LEFT | SWT.BORDER);
+    PropsUi.setLook(wDescription);
+    FormData fdDescription = new FormData();
+    fdDescription.top = new FormAttachment(wlDescription, 0, SWT.CENTER);
+    fdDescription.left = new FormAttachment(middle, 0);
+    fdDescription.right = new FormAttachment(100, 0);
+    wDescription.setLayoutData(fdDescription);
+    Control lastControl = wDescription;
+
+    wTimeToLive = addTextVar(parent, lastControl, "TimeToLive");
+    lastControl = wTimeToLive;
+    wMaxRows = addTextVar(parent, lastControl, "MaxRows");
+    lastControl = wMaxRows;
+    wMaxMemory = addTextVar(parent, lastControl, "MaxMemory");
+    lastControl = wMaxMemory;
+
+    Label wlReleasingWhenUnused = new Label(parent, SWT.RIGHT);
+    PropsUi.setLook(wlReleasingWhenUnused);
+    wlReleasingWhenUnused.setText(
+        BaseMessages.getString(PKG, "LookupCacheEditor.ReleasingWhenUnused.Label"));
+    FormData fdlReleasingWhenUnused = new FormData();
+    fdlReleasingWhenUnused.top = new FormAttachment(lastControl, margin);
+    fdlReleasingWhenUnused.left = new FormAttachment(0, 0);
+    fdlReleasingWhenUnused.right = new FormAttachment(middle, -margin);
+    wlReleasingWhenUnused.setLayoutData(fdlReleasingWhenUnused);
+    wReleasingWhenUnused = new Button(parent, SWT.CHECK);
+    PropsUi.setLook(wReleasingWhenUnused);
+    wReleasingWhenUnused.setToolTipText(
+        BaseMessages.getString(PKG, "LookupCacheEditor.ReleasingWhenUnused.Tooltip"));
+    FormData fdReleasingWhenUnused = new FormData();
+    fdReleasingWhenUnused.top = new FormAttachment(wlReleasingWhenUnused, 0, SWT.CENTER);
+    fdReleasingWhenUnused.left = new FormAttachment(middle, 0);
+    fdReleasingWhenUnused.right = new FormAttachment(100, 0);
+    wReleasingWhenUnused.setLayoutData(fdReleasingWhenUnused);
+
+    // Discard the data of the cache in this JVM right away
+    //
+    Button wInvalidate = new Button(parent, SWT.PUSH);
+    PropsUi.setLook(wInvalidate);
+    wInvalidate.setText(BaseMessages.getString(PKG, "LookupCacheEditor.Invalidate.Label"));
+    wInvalidate.setToolTipText(
+        BaseMessages.getString(PKG, "LookupCacheEditor.Invalidate.Tooltip"));
+    FormData fdInvalidate = new FormData();
+    fdInvalidate.top = new FormAttachment(wReleasingWhenUnused, 2 * margin);
+    fdInvalidate.left = new FormAttachment(middle, 0);
+    wInvalidate.setLayoutData(fdInvalidate);
+    wInvalidate.addListener(
+        SWT.Selection,
+        e -> LookupCacheRegistry.getInstance().invalidate(getMetadata().getName()));
+
+    setWidgetsContent();
+
+    // Add listener to detect change after loading data
+    ModifyListener lsMod = e -> setChanged();
+    wName.addModifyListener(lsMod);
+    wDescription.addModifyListener(lsMod);
+    wTimeToLive.addModifyListener(lsMod);
+    wMaxRows.addModifyListener(lsMod);
+    wMaxMemory.addModifyListener(lsMod);
+    wReleasingWhenUnused.addListener(SWT.Selection, e -> setChanged());
+  }
+
+  private TextVar addTextVar(Composite parent, Control lastControl, String key) {
+    PropsUi props = PropsUi.getInstance();
+    int middle = props.getMiddlePct();
+    int margin = PropsUi.getMargin();
+
+    Label wlText = new Label(parent, SWT.RIGHT);
+    PropsUi.setLook(wlText);
+    wlText.setText(BaseMessages.getString(PKG, "LookupCacheEditor." + key + ".Label"));
+    FormData fdlText = new FormData();
+    fdlText.top = new FormAttachment(lastControl, margin);
+    fdlText.left = new FormAttachment(0, 0);
+    fdlText.right = new FormAttachment(middle, -margin);
+    wlText.setLayoutData(fdlText);
+    TextVar wText =
+        new TextVar(
+            manager.getVariables(),
+            parent,
+            SWT.SINGLE | SWT.LEFT | SWT.BORDER,
+            BaseMessages.getString(PKG, "LookupCacheEditor." + key + ".Tooltip"));
+    PropsUi.setLook(wText);
+    FormData fdText = new FormData();
+    fdText.top = new FormAttachment(wlText, 0, SWT.CENTER);
+    fdText.left = new FormAttachment(middle, 0);
+    fdText.right = new FormAttachment(100, 0);
+    wText.setLayoutData(fdText);
+    return wText;
+  }
+
+  @Override
+  public void setWidgetsContent() {
+    LookupCache lookupCache = getMetadata();
+
+    wName.setText(Const.NVL(lookupCache.getName(), ""));
+    wDescription.setText(Const.NVL(lookupCache.getDescription(), ""));
+    wTimeToLive.setText(Const.NVL(lookupCache.getTimeToLive(), ""));
+    wMaxRows.setText(Const.NVL(lookupCache.getMaxRows(), ""));
+    wMaxMemory.setText(Const.NVL(lookupCache.getMaxMemoryMb(), ""));
+    wReleasingWhenUnused.setSelection(lookupCache.isReleasingWhenUnused());
+  }
+
+  @Override
+  public void getWidgetsContent(LookupCache lookupCache) {
+    lookupCache.setName(wName.getText());
+    lookupCache.setDescription(wDescription.getText());
+    lookupCache.setTimeToLive(wTimeToLive.getText());
+    lookupCache.setMaxRows(wMaxRows.getText());
+    lookupCache.setMaxMemoryMb(wMaxMemory.getText());
+    lookupCache.setReleasingWhenUnused(wReleasingWhenUnused.getSelection());
+  }
+
+  @Override
+  public boolean setFocus() {
+    if (wName == null || wName.isDisposed()) {
+      return false;
+    }
+    return wName.setFocus();
+  }
+}